@@ -185,7 +185,12 @@ for f in glob.glob(os.path.join(CTX.INPUT_PREFIX, 'catalog', '*.cpp')):
     catalog_files.append(os.path.basename(f))
 CTX.INPUT['catalog'] = "\n".join(sorted(catalog_files))
 
+CTX.INPUT['anticache'] = """
+ AntiCacheDB.cpp
+"""
+
 CTX.INPUT['common'] = """
+ EvictedTupleAccessException.cpp
  SegvException.cpp
  SerializableEEException.cpp
  SQLException.cpp
@@ -209,6 +214,7 @@ CTX.INPUT['executors'] = """
  deleteexecutor.cpp
  distinctexecutor.cpp
  executorutil.cpp
+ hashjoinexecutor.cpp
  indexscanexecutor.cpp
  insertexecutor.cpp
  limitexecutor.cpp
@@ -226,6 +232,7 @@ CTX.INPUT['executors'] = """
 
 CTX.INPUT['expressions'] = """
  abstractexpression.cpp
+ batchpredicate.cpp
  expressionutil.cpp
  tupleaddressexpression.cpp
 """
@@ -238,6 +245,7 @@ CTX.INPUT['plannodes'] = """
  aggregatenode.cpp
  deletenode.cpp
  distinctnode.cpp
+ hashjoinnode.cpp
  indexscannode.cpp
  insertnode.cpp
  limitnode.cpp
@@ -258,6 +266,7 @@ CTX.INPUT['plannodes'] = """
 
 CTX.INPUT['indexes'] = """
  arrayuniqueindex.cpp
+ CompactBTreeIndex.cpp
  tableindex.cpp
  tableindexfactory.cpp
 """
@@ -319,6 +328,10 @@ CTX.TESTS['logging'] = """
  logging_test
 """
 
+CTX.TESTS['anticache'] = """
+ AntiCacheEvictionTest
+"""
+
 CTX.TESTS['common'] = """
  debuglog_test
  serializeio_test
@@ -333,9 +346,11 @@ CTX.TESTS['execution'] = """
 
 CTX.TESTS['expressions'] = """
  expression_test
+ batchpredicate_test
 """
 
 CTX.TESTS['indexes'] = """
+ compactbtreeindex_test
  index_key_test
  index_scripted_test
  index_test
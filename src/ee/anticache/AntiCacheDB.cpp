@@ -0,0 +1,99 @@
+/* Copyright (C) 2012 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "anticache/AntiCacheDB.h"
+#include "common/debuglog.h"
+#include "common/FatalException.hpp"
+#include "common/executorcontext.hpp"
+
+#include <cerrno>
+#include <cstdio>
+#include <cstring>
+#include <sstream>
+
+using namespace std;
+
+namespace voltdb {
+
+AntiCacheDB::AntiCacheDB(ExecutorContext *ctx, std::string dbDir) :
+    m_executorContext(ctx),
+    m_dbDir(dbDir),
+    m_nextBlockId(0) {
+    
+    VOLT_DEBUG("Initialized AntiCacheDB at %s", m_dbDir.c_str());
+}
+
+AntiCacheDB::~AntiCacheDB() {
+    // Nothing to clean up. The block files are left behind on purpose
+}
+
+std::string AntiCacheDB::getBlockPath(const std::string &tableName, int32_t blockId) const {
+    std::ostringstream path;
+    path << m_dbDir << "/" << tableName << "-" << blockId << ".block";
+    return (path.str());
+}
+
+void AntiCacheDB::writeBlock(const std::string &tableName, int32_t blockId, const char *data, const long size) {
+    std::string path = getBlockPath(tableName, blockId);
+    VOLT_DEBUG("Writing evicted block %d for table %s [size=%ld, path=%s]",
+               blockId, tableName.c_str(), size, path.c_str());
+    
+    FILE *file = fopen(path.c_str(), "wb");
+    if (file == NULL) {
+        throwFatalException("Failed to open anti-cache block file '%s': %s", path.c_str(), strerror(errno));
+    }
+    size_t written = fwrite(data, 1, size, file);
+    int closed = fclose(file);
+    if (written != static_cast<size_t>(size) || closed != 0) {
+        throwFatalException("Failed to write anti-cache block file '%s' [written=%ld, size=%ld]",
+                            path.c_str(), static_cast<long>(written), size);
+    }
+}
+
+void AntiCacheDB::readBlock(const std::string &tableName, int32_t blockId, char *data, const long size) {
+    std::string path = getBlockPath(tableName, blockId);
+    VOLT_DEBUG("Reading evicted block %d for table %s [size=%ld, path=%s]",
+               blockId, tableName.c_str(), size, path.c_str());
+    
+    FILE *file = fopen(path.c_str(), "rb");
+    if (file == NULL) {
+        throwFatalException("Failed to open anti-cache block file '%s': %s", path.c_str(), strerror(errno));
+    }
+    size_t read = fread(data, 1, size, file);
+    fclose(file);
+    if (read != static_cast<size_t>(size)) {
+        throwFatalException("Failed to read anti-cache block file '%s' [read=%ld, size=%ld]",
+                            path.c_str(), static_cast<long>(read), size);
+    }
+}
+
+void AntiCacheDB::removeBlock(const std::string &tableName, int32_t blockId) {
+    std::string path = getBlockPath(tableName, blockId);
+    if (remove(path.c_str()) != 0) {
+        VOLT_WARN("Failed to remove anti-cache block file '%s': %s", path.c_str(), strerror(errno));
+    }
+}
+
+}
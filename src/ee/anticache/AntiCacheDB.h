@@ -0,0 +1,86 @@
+/* Copyright (C) 2012 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#ifndef HSTOREANTICACHEDB_H
+#define HSTOREANTICACHEDB_H
+
+#include <stdint.h>
+#include <string>
+
+namespace voltdb {
+
+class ExecutorContext;
+
+/**
+ * The on-disk storage for the blocks that have been evicted from
+ * PersistentTables. Each block is stored in its own file inside of
+ * this partition's anti-cache directory. 
+ * 
+ * NOTE: The file name format must match AntiCacheManager.getBlockFile()
+ *       on the Java side, which uses it to prefetch blocks
+ */
+class AntiCacheDB {
+    public: 
+        AntiCacheDB(ExecutorContext *ctx, std::string dbDir);
+        ~AntiCacheDB();
+
+        /**
+         * Return the next unique id to use for an evicted block
+         */
+        inline int32_t nextBlockId() {
+            return (++m_nextBlockId);
+        }
+
+        /**
+         * Write out the given block of data to disk
+         */
+        void writeBlock(const std::string &tableName, int32_t blockId, const char *data, const long size);
+
+        /**
+         * Read the given block back in from disk into the data buffer.
+         * The buffer must be exactly as large as the block that was written out
+         */
+        void readBlock(const std::string &tableName, int32_t blockId, char *data, const long size);
+
+        /**
+         * Remove the given block from disk once it is no longer evicted
+         */
+        void removeBlock(const std::string &tableName, int32_t blockId);
+
+        inline const std::string& getDBDir() const {
+            return (m_dbDir);
+        }
+
+    private:
+        std::string getBlockPath(const std::string &tableName, int32_t blockId) const;
+
+        ExecutorContext *m_executorContext;
+        std::string m_dbDir;
+        int32_t m_nextBlockId;
+}; // CLASS
+
+}
+
+#endif
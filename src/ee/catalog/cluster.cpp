@@ -25,13 +25,14 @@
 #include "database.h"
 #include "host.h"
 #include "site.h"
+#include "cataloginteger.h"
 
 using namespace catalog;
 using namespace std;
 
 Cluster::Cluster(Catalog *catalog, CatalogType *parent, const string &path, const string &name)
 : CatalogType(catalog, parent, path, name),
-  m_databases(catalog, this, path + "/" + "databases"), m_hosts(catalog, this, path + "/" + "hosts"), m_sites(catalog, this, path + "/" + "sites")
+  m_databases(catalog, this, path + "/" + "databases"), m_hosts(catalog, this, path + "/" + "hosts"), m_sites(catalog, this, path + "/" + "sites"), m_buckets(catalog, this, path + "/" + "buckets")
 {
     CatalogValue value;
     m_childCollections["databases"] = &m_databases;
@@ -41,6 +42,7 @@ Cluster::Cluster(Catalog *catalog, CatalogType *parent, const string &path, cons
     m_fields["leaderaddress"] = value;
     m_fields["localepoch"] = value;
     m_fields["securityEnabled"] = value;
+    m_childCollections["buckets"] = &m_buckets;
 }
 
 Cluster::~Cluster() {
@@ -65,6 +67,13 @@ Cluster::~Cluster() {
     }
     m_sites.clear();
 
+    std::map<std::string, CatalogInteger*>::const_iterator cataloginteger_iter = m_buckets.begin();
+    while (cataloginteger_iter != m_buckets.end()) {
+        delete cataloginteger_iter->second;
+        cataloginteger_iter++;
+    }
+    m_buckets.clear();
+
 }
 
 void Cluster::update() {
@@ -93,6 +102,12 @@ CatalogType * Cluster::addChild(const std::string &collectionName, const std::st
             return NULL;
         return m_sites.add(childName);
     }
+    if (collectionName.compare("buckets") == 0) {
+        CatalogType *exists = m_buckets.get(childName);
+        if (exists)
+            return NULL;
+        return m_buckets.add(childName);
+    }
     return NULL;
 }
 
@@ -103,6 +118,8 @@ CatalogType * Cluster::getChild(const std::string &collectionName, const std::st
         return m_hosts.get(childName);
     if (collectionName.compare("sites") == 0)
         return m_sites.get(childName);
+    if (collectionName.compare("buckets") == 0)
+        return m_buckets.get(childName);
     return NULL;
 }
 
@@ -117,6 +134,9 @@ bool Cluster::removeChild(const std::string &collectionName, const std::string &
     if (collectionName.compare("sites") == 0) {
         return m_sites.remove(childName);
     }
+    if (collectionName.compare("buckets") == 0) {
+        return m_buckets.remove(childName);
+    }
     return false;
 }
 
@@ -148,3 +168,7 @@ bool Cluster::securityEnabled() const {
     return m_securityEnabled;
 }
 
+const CatalogMap<CatalogInteger> & Cluster::buckets() const {
+    return m_buckets;
+}
+
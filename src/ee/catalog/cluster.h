@@ -31,6 +31,7 @@ namespace catalog {
 class Database;
 class Host;
 class Site;
+class CatalogInteger;
 /**
  * A set of connected hosts running one or more database application contexts
  */
@@ -47,6 +48,7 @@ protected:
     std::string m_leaderaddress;
     int32_t m_localepoch;
     bool m_securityEnabled;
+    CatalogMap<CatalogInteger> m_buckets;
 
     virtual void update();
 
@@ -71,6 +73,8 @@ public:
     int32_t localepoch() const;
     /** GETTER: Whether security and authentication should be enabled/disabled */
     bool securityEnabled() const;
+    /** GETTER: The partition that each virtual hash bucket (keyed by its bucket id) is mapped to */
+    const CatalogMap<CatalogInteger> & buckets() const;
 };
 
 } // namespace catalog
@@ -45,6 +45,7 @@ Statement::Statement(Catalog *catalog, CatalogType *parent, const string &path,
     m_fields["secondaryindex"] = value;
     m_fields["prefetchable"] = value;
     m_fields["deferrable"] = value;
+    m_fields["cacheable"] = value;
     m_fields["paramnum"] = value;
     m_childCollections["parameters"] = &m_parameters;
     m_childCollections["output_columns"] = &m_output_columns;
@@ -102,6 +103,7 @@ void Statement::update() {
     m_secondaryindex = m_fields["secondaryindex"].intValue;
     m_prefetchable = m_fields["prefetchable"].intValue;
     m_deferrable = m_fields["deferrable"].intValue;
+    m_cacheable = m_fields["cacheable"].intValue;
     m_paramnum = m_fields["paramnum"].intValue;
     m_has_singlesited = m_fields["has_singlesited"].intValue;
     m_exptree = m_fields["exptree"].strValue.c_str();
@@ -213,6 +215,10 @@ bool Statement::deferrable() const {
     return m_deferrable;
 }
 
+bool Statement::cacheable() const {
+    return m_cacheable;
+}
+
 int32_t Statement::paramnum() const {
     return m_paramnum;
 }
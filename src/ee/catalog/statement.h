@@ -51,6 +51,7 @@ protected:
     bool m_secondaryindex;
     bool m_prefetchable;
     bool m_deferrable;
+    bool m_cacheable;
     int32_t m_paramnum;
     CatalogMap<StmtParameter> m_parameters;
     CatalogMap<Column> m_output_columns;
@@ -92,6 +93,8 @@ public:
     bool prefetchable() const;
     /** GETTER: Whether this query does not need to executed immediately in this transaction */
     bool deferrable() const;
+    /** GETTER: Whether the results of this read-only query can be cached at a partition and reused by other transactions */
+    bool cacheable() const;
     int32_t paramnum() const;
     /** GETTER: The set of parameters to this SQL statement */
     const CatalogMap<StmtParameter> & parameters() const;
@@ -31,17 +31,20 @@
 
 using namespace voltdb;
 
-EvictedTupleAccessException::EvictedTupleAccessException(std::string message) :
-    SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EVICTED_TUPLE, message) {
-        
-    // TODO: Need to store the blockIds EvictedTable into our array
-    m_numBlockIds = 0;
-    m_blockIds = new short[0];
+EvictedTupleAccessException::EvictedTupleAccessException(const std::string &tableName,
+                                                         const std::vector<int32_t> &blockIds) :
+    SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EVICTED_TUPLE,
+                            "Transaction tried to access evicted tuples in table " + tableName),
+    m_tableName(tableName),
+    m_blockIds(blockIds) {
+    
+    assert(m_blockIds.empty() == false);
 }
 
 void EvictedTupleAccessException::p_serialize(ReferenceSerializeOutput *output) {
-    output->writeShort(static_cast<short>(m_numBlockIds)); // # of block ids
-    for (int ii = 0; ii < m_numBlockIds; ii++) {
-        output->writeShort(m_blockIds[ii]);
+    output->writeTextString(m_tableName);
+    output->writeInt(static_cast<int32_t>(m_blockIds.size())); // # of block ids
+    for (std::vector<int32_t>::const_iterator it = m_blockIds.begin(); it != m_blockIds.end(); ++it) {
+        output->writeInt(*it);
     }
 }
@@ -27,20 +27,28 @@
 #define EVICTEDTUPLEACCESSEXCEPTION_H_
 
 #include "common/SerializableEEException.h"
+#include <stdint.h>
+#include <vector>
 
 namespace voltdb {
 class ReferenceSerializeOutput;
 
+/**
+ * Thrown when a transaction tries to access one or more tuples
+ * that are stored in blocks that were evicted to the anti-cache.
+ * The Java layer uses the table name and block ids to read the 
+ * blocks back in before it restarts the transaction.
+ */
 class EvictedTupleAccessException : public SerializableEEException {
 public:
 
-    EvictedTupleAccessException(std::string message);
+    EvictedTupleAccessException(const std::string &tableName, const std::vector<int32_t> &blockIds);
     virtual ~EvictedTupleAccessException() {}
 protected:
     void p_serialize(ReferenceSerializeOutput *output);
 private:
-    const int m_numBlockIds;
-    const short m_blockIds[];
+    const std::string m_tableName;
+    const std::vector<int32_t> m_blockIds;
 };
 }
 
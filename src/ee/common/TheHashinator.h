@@ -25,6 +25,7 @@
 
 #include <cstring>
 #include <string>
+#include <vector>
 #include <cassert>
 #include <stdlib.h>
 
@@ -80,6 +81,23 @@ class TheHashinator {
         }
     }
 
+    /**
+     * Given an NValue, pick a partition to store the data using the
+     * virtual bucket table from the catalog. The value is first hashed to
+     * a bucket and then the table tells us what partition that bucket belongs to.
+     * This must match TheHashinator.hashToPartition(Object, int[]) in the frontend.
+     *
+     * @param value the NValue to hash.
+     * @param buckets The partition id for each bucket.
+     * @return The partition id that the value's bucket is mapped to
+     */
+    static int32_t hashinate(NValue value, const std::vector<int32_t> &buckets)
+    {
+        assert(buckets.empty() == false);
+        int32_t bucket = hashinate(value, static_cast<int32_t>(buckets.size()));
+        return buckets[bucket];
+    }
+
  private:
 
     /**
@@ -20,6 +20,7 @@
 
 #include "Topend.h"
 #include "common/UndoQuantum.h"
+#include "anticache/AntiCacheDB.h"
 
 namespace voltdb {
 
@@ -37,7 +38,8 @@ namespace voltdb {
 class ExecutorContext {
   public:
     ~ExecutorContext() {
-        // currently does not own any of its pointers
+        // the only pointer that we own is the AntiCacheDB
+        if (m_antiCacheDB != NULL) delete m_antiCacheDB;
     }
 
     ExecutorContext(CatalogId siteId,
@@ -54,7 +56,7 @@ class ExecutorContext {
         m_hostname(hostname), m_hostId(hostId),
         m_exportEnabled(exportEnabled),
         m_antiCacheEnabled(false),
-//         m_antiCacheDir(NULL),
+        m_antiCacheDB(NULL),
         m_epoch(epoch)
     {
         m_lastCommittedTxnId = 0;
@@ -62,8 +64,13 @@ class ExecutorContext {
     }
 
     void enableAntiCache(std::string dbDir) {
+        if (m_antiCacheDB != NULL) delete m_antiCacheDB;
         m_antiCacheEnabled = true;
-//         m_antiCacheDir = dbDir;
+        m_antiCacheDB = new AntiCacheDB(this, dbDir);
+    }
+
+    AntiCacheDB* getAntiCacheDB() const {
+        return m_antiCacheDB;
     }
     
     // not always known at initial construction
@@ -146,7 +153,7 @@ class ExecutorContext {
     CatalogId m_hostId;
     bool m_exportEnabled;
     bool m_antiCacheEnabled;
-//     std::string m_antiCacheDir;
+    AntiCacheDB *m_antiCacheDB;
 
     /** local epoch for voltdb, somtime around 2008, pulled from catalog */
     int64_t m_epoch;
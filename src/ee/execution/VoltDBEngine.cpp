@@ -68,6 +68,7 @@
 #include "catalog/catalogmap.h"
 #include "catalog/catalog.h"
 #include "catalog/cluster.h"
+#include "catalog/cataloginteger.h"
 #include "catalog/site.h"
 #include "catalog/partition.h"
 #include "catalog/database.h"
@@ -711,6 +712,29 @@ VoltDBEngine::loadTable(bool allowExport, int32_t tableId,
     return true;
 }
 
+bool
+VoltDBEngine::setBulkLoad(int32_t tableId, bool enable)
+{
+    Table* ret = getTable(tableId);
+    if (ret == NULL) {
+        VOLT_ERROR("Table ID %d doesn't exist. Could not change bulk-load mode",
+                   (int) tableId);
+        return false;
+    }
+
+    PersistentTable* table = dynamic_cast<PersistentTable*>(ret);
+    if (table == NULL) {
+        VOLT_ERROR("Table ID %d(name '%s') is not a persistent table."
+                   " Could not change bulk-load mode",
+                   (int) tableId, ret->name().c_str());
+        return false;
+    }
+
+    // constraint violations are thrown back to the caller
+    table->setBulkLoad(enable);
+    return true;
+}
+
 /*
  * Delete and rebuild id based table collections. Does not affect
  * any currently stored tuples.
@@ -967,6 +991,22 @@ bool VoltDBEngine::initCluster() {
     // available when the structure was initially created.
     m_executorContext->m_partitionId = m_partitionId;
     m_totalPartitions = catalogCluster->num_partitions();
+
+    // Load the virtual bucket table (if there is one)
+    // Each bucket's name is its offset in the table
+    m_buckets.clear();
+    const catalog::CatalogMap<catalog::CatalogInteger> &catalogBuckets = catalogCluster->buckets();
+    if (catalogBuckets.size() > 0) {
+        m_buckets.resize(catalogBuckets.size(), 0);
+        std::map<std::string, catalog::CatalogInteger*>::const_iterator bucket_iter;
+        for (bucket_iter = catalogBuckets.begin(); bucket_iter != catalogBuckets.end(); bucket_iter++) {
+            int32_t bucket = atoi(bucket_iter->first.c_str());
+            assert(bucket >= 0 && bucket < catalogBuckets.size());
+            m_buckets[bucket] = bucket_iter->second->value();
+        }
+        VOLT_DEBUG("Loaded %d virtual hash buckets for %d partitions",
+                   (int)m_buckets.size(), m_totalPartitions);
+    }
     return true;
 }
 
@@ -1007,7 +1047,8 @@ void VoltDBEngine::printReport() {
 
 bool VoltDBEngine::isLocalSite(const NValue& value)
 {
-    int index = TheHashinator::hashinate(value, m_totalPartitions);
+    int index = (m_buckets.empty() ? TheHashinator::hashinate(value, m_totalPartitions) :
+                                     TheHashinator::hashinate(value, m_buckets));
     return index == m_partitionId;
 }
 
@@ -1138,6 +1179,34 @@ void VoltDBEngine::enableAntiCache(std::string dbDir) const {
     m_executorContext->enableAntiCache(dbDir);
 }
 
+/**
+ * Evict the coldest blocks of the given table to the anti-cache.
+ * Returns the number of bytes that were evicted.
+ */
+int64_t VoltDBEngine::antiCacheEvictBlocks(int32_t tableId, int64_t bytes) {
+    PersistentTable *table = dynamic_cast<PersistentTable*>(getTable(tableId));
+    if (table == NULL) {
+        throwFatalException("Tried to evict blocks from a table that is not a persistent table id %d\n", tableId);
+    }
+    VOLT_DEBUG("Evicting %ld bytes from table %s at Partition %d",
+               (long)bytes, table->name().c_str(), m_partitionId);
+    return table->evictBlocks(bytes);
+}
+
+/**
+ * Read the given evicted blocks back into the given table.
+ * Returns the number of bytes that were read back in.
+ */
+int64_t VoltDBEngine::antiCacheReadBlocks(int32_t tableId, const std::vector<int32_t> &blockIds) {
+    PersistentTable *table = dynamic_cast<PersistentTable*>(getTable(tableId));
+    if (table == NULL) {
+        throwFatalException("Tried to read evicted blocks for a table that is not a persistent table id %d\n", tableId);
+    }
+    VOLT_DEBUG("Reading %ld evicted blocks into table %s at Partition %d",
+               (long)blockIds.size(), table->name().c_str(), m_partitionId);
+    return table->readEvictedBlocks(blockIds);
+}
+
 int64_t VoltDBEngine::uniqueIdForFragment(catalog::PlanFragment *frag) {
     int64_t retval = 0;
     
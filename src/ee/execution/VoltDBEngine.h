@@ -163,6 +163,8 @@ class __attribute__((visibility("default"))) VoltDBEngine {
         // If using this somewhere new, consider if you're being lazy.
         ExecutorContext *getExecutorContext();
         void enableAntiCache(std::string dbDir) const;
+        int64_t antiCacheEvictBlocks(int32_t tableId, int64_t bytes);
+        int64_t antiCacheReadBlocks(int32_t tableId, const std::vector<int32_t> &blockIds);
 
         // -------------------------------------------------
         // Dependency Transfer Functions
@@ -189,7 +191,20 @@ class __attribute__((visibility("default"))) VoltDBEngine {
                        ReferenceSerializeInput &serializeIn,
                        int64_t txnId, int64_t lastCommittedTxnId);
 
+        /**
+        * Switch a persistent table in or out of bulk-load mode. While it is on,
+        * loadTable() only appends tuples; switching it off builds the table's
+        * indexes and checks its constraints for everything that was loaded.
+        * Returns false if the table does not exist.
+        */
+        bool setBulkLoad(int32_t tableId, bool enable);
+
         void resetReusedResultOutputBuffer(const size_t headerSize = 0);
+        /**
+        * Move the result output back to the given position without touching
+        * the exception buffer, so that an error that was just serialized survives.
+        */
+        void rewindResultOutputBuffer(const size_t position);
         inline ReferenceSerializeOutput* getResultOutputSerializer() { return &m_resultOutput; }
         inline ReferenceSerializeOutput* getExceptionOutputSerializer() { return &m_exceptionOutput; }
         void setBuffers(char *parameter_buffer, int m_parameterBuffercapacity,
@@ -426,6 +441,12 @@ class __attribute__((visibility("default"))) VoltDBEngine {
         int32_t m_partitionId;
         int32_t m_clusterIndex;
         int m_totalPartitions;
+
+        /*
+         * Virtual Bucket Id -> Partition Id
+         * This will be empty if the catalog doesn't have a bucket table
+         */
+        std::vector<int32_t> m_buckets;
         size_t m_startOfResultBuffer;
 
         /*
@@ -547,6 +568,10 @@ inline void VoltDBEngine::resetReusedResultOutputBuffer(const size_t headerSize)
     *reinterpret_cast<int32_t*>(m_exceptionBuffer) = voltdb::VOLT_EE_EXCEPTION_TYPE_NONE;
 }
 
+inline void VoltDBEngine::rewindResultOutputBuffer(const size_t position) {
+    m_resultOutput.initializeWithPosition(m_reusedResultBuffer, m_reusedResultCapacity, position);
+}
+
 } // namespace voltdb
 
 #endif // VOLTDBENGINE_H
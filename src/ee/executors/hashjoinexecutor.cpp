@@ -0,0 +1,228 @@
+/* Copyright (C) 2012 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <algorithm>
+#include <stack>
+#include "hashjoinexecutor.h"
+#include "common/debuglog.h"
+#include "common/common.h"
+#include "common/tabletuple.h"
+#include "common/TupleSchema.h"
+#include "expressions/abstractexpression.h"
+#include "expressions/tuplevalueexpression.h"
+#include "storage/table.h"
+#include "storage/temptable.h"
+#include "storage/tableiterator.h"
+#include "plannodes/hashjoinnode.h"
+
+namespace voltdb {
+
+HashJoinExecutor::~HashJoinExecutor() {
+    if (m_keySchema != NULL) {
+        TupleSchema::freeTupleSchema(m_keySchema);
+    }
+}
+
+bool HashJoinExecutor::p_init(AbstractPlanNode* abstract_node, const catalog::Database* catalog_db, int* tempTableMemoryInBytes) {
+    VOLT_TRACE("init HashJoin Executor");
+
+    // The output table and the tuple indexes of the predicate's
+    // columns are set up exactly the same way as a NestLoop
+    if (!NestLoopExecutor::p_init(abstract_node, catalog_db, tempTableMemoryInBytes)) {
+        return false;
+    }
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(abstract_node);
+    assert(node);
+    const TupleSchema *outerSchema = node->getInputTables()[0]->schema();
+    const TupleSchema *innerSchema = node->getInputTables()[1]->schema();
+
+    // Find all of the equality comparisons between an outer column and
+    // an inner column that are AND-ed together in the predicate. We can only
+    // use the ones where both columns are the same type because the key
+    // values have to be hashed the same way for both tables.
+    std::vector<ValueType> keyTypes;
+    std::vector<int32_t> keySizes;
+    std::vector<bool> keyAllowNull;
+    m_outerKeys.clear();
+    m_innerKeys.clear();
+    std::stack<const AbstractExpression*> stack;
+    if (node->getPredicate() != NULL) {
+        stack.push(node->getPredicate());
+    }
+    while (!stack.empty()) {
+        const AbstractExpression *expr = stack.top();
+        stack.pop();
+        if (expr->getExpressionType() == EXPRESSION_TYPE_CONJUNCTION_AND) {
+            stack.push(expr->getRight());
+            stack.push(expr->getLeft());
+            continue;
+        }
+        if (expr->getExpressionType() != EXPRESSION_TYPE_COMPARE_EQUAL) continue;
+
+        const TupleValueExpression *left = dynamic_cast<const TupleValueExpression*>(expr->getLeft());
+        const TupleValueExpression *right = dynamic_cast<const TupleValueExpression*>(expr->getRight());
+        if (left == NULL || right == NULL || left->getTupleIndex() == right->getTupleIndex()) continue;
+
+        const TupleValueExpression *outerKey = (left->getTupleIndex() == 0 ? left : right);
+        const TupleValueExpression *innerKey = (left->getTupleIndex() == 0 ? right : left);
+        ValueType keyType = outerSchema->columnType(outerKey->getColumnId());
+        if (keyType != innerSchema->columnType(innerKey->getColumnId())) {
+            VOLT_DEBUG("Unable to use join key %s because of mismatched column types",
+                       expr->debug(true).c_str());
+            continue;
+        }
+        m_outerKeys.push_back(outerKey);
+        m_innerKeys.push_back(innerKey);
+        keyTypes.push_back(keyType);
+        keySizes.push_back(std::max(outerSchema->columnLength(outerKey->getColumnId()),
+                                    innerSchema->columnLength(innerKey->getColumnId())));
+        keyAllowNull.push_back(true);
+    }
+
+    if (m_keySchema != NULL) {
+        TupleSchema::freeTupleSchema(m_keySchema);
+        m_keySchema = NULL;
+    }
+    if (keyTypes.empty()) {
+        VOLT_DEBUG("No join keys found in the HashJoin predicate. Falling back to a NestLoop");
+        return true;
+    }
+    m_keySchema = TupleSchema::createTupleSchema(keyTypes, keySizes, keyAllowNull, true);
+    VOLT_TRACE("HashJoin key schema: %s", m_keySchema->debug().c_str());
+    return true;
+}
+
+/**
+ * Copy the values of the join key columns into the given key tuple.
+ * Returns false if any of the values are NULL, since a NULL will never
+ * satisfy the predicate's equality comparisons.
+ */
+inline bool HashJoinExecutor::setKeyTuple(TableTuple &keyTuple,
+                                          const std::vector<const AbstractExpression*> &keys,
+                                          const TableTuple *outer, const TableTuple *inner) {
+    for (int ii = 0, cnt = static_cast<int>(keys.size()); ii < cnt; ii++) {
+        NValue value = keys[ii]->eval(outer, inner);
+        if (value.isNull()) return false;
+        keyTuple.setNValue(ii, value);
+    }
+    return true;
+}
+
+bool HashJoinExecutor::p_execute(const NValueArray &params) {
+    if (m_keySchema == NULL) {
+        return NestLoopExecutor::p_execute(params);
+    }
+    VOLT_DEBUG("executing HashJoin...");
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(abstract_node);
+    assert(node);
+    assert(node->getInputTables().size() == 2);
+
+    // output table must be a temp table
+    TempTable* output_table = dynamic_cast<TempTable*>(node->getOutputTable());
+    assert(output_table);
+
+    Table* outer_table = node->getInputTables()[0];
+    assert(outer_table);
+
+    Table* inner_table = node->getInputTables()[1];
+    assert(inner_table);
+
+    VOLT_TRACE ("input table left:\n %s", outer_table->debug().c_str());
+    VOLT_TRACE ("input table right:\n %s", inner_table->debug().c_str());
+
+    AbstractExpression *predicate = node->getPredicate();
+    assert(predicate);
+    predicate->substitute(params);
+
+    //
+    // Build Phase
+    // Hash every tuple in the inner table on its join keys. All of the keys
+    // and buckets come out of our memory pool, so we just throw them away
+    // all at once the next time that we execute.
+    //
+    m_memoryPool.purge();
+    const int keyLength = m_keySchema->tupleLength();
+    HashJoinMapType hashTable(static_cast<size_t>(inner_table->activeTupleCount()));
+    TableTuple keyTuple(m_keySchema);
+    keyTuple.moveNoHeader(m_memoryPool.allocate(keyLength));
+
+    TableTuple inner_tuple(inner_table->schema());
+    TableIterator iterator1(inner_table);
+    while (iterator1.next(inner_tuple)) {
+        if (!setKeyTuple(keyTuple, m_innerKeys, NULL, &inner_tuple)) continue;
+
+        HashJoinBucket *bucket = static_cast<HashJoinBucket*>(m_memoryPool.allocate(sizeof(HashJoinBucket)));
+        bucket->m_tupleData = inner_tuple.address();
+        bucket->m_next = NULL;
+        bucket->m_last = bucket;
+
+        HashJoinMapType::iterator iter = hashTable.find(keyTuple);
+        if (iter == hashTable.end()) {
+            hashTable.insert(HashJoinMapType::value_type(keyTuple, bucket));
+            keyTuple.moveNoHeader(m_memoryPool.allocate(keyLength));
+        } else {
+            iter->second->m_last->m_next = bucket;
+            iter->second->m_last = bucket;
+        }
+    }
+    VOLT_TRACE("Built HashJoin table with %d keys", (int)hashTable.size());
+
+    //
+    // Probe Phase
+    // Look up the join keys of each outer tuple and then check the full
+    // predicate against all of the inner tuples that had the same keys
+    //
+    int outer_cols = outer_table->columnCount();
+    int inner_cols = inner_table->columnCount();
+    TableTuple outer_tuple(outer_table->schema());
+    TableTuple &joined = output_table->tempTuple();
+
+    TableIterator iterator0(outer_table);
+    while (iterator0.next(outer_tuple)) {
+        if (!setKeyTuple(keyTuple, m_outerKeys, &outer_tuple, NULL)) continue;
+
+        HashJoinMapType::const_iterator iter = hashTable.find(keyTuple);
+        if (iter == hashTable.end()) continue;
+
+        for (int col_ctr = 0; col_ctr < outer_cols; col_ctr++) {
+            joined.setNValue(col_ctr, outer_tuple.getNValue(col_ctr));
+        }
+        for (HashJoinBucket *bucket = iter->second; bucket != NULL; bucket = bucket->m_next) {
+            inner_tuple.move(bucket->m_tupleData);
+            if (predicate->eval(&outer_tuple, &inner_tuple).isTrue()) {
+                for (int col_ctr = 0; col_ctr < inner_cols; col_ctr++) {
+                    joined.setNValue(col_ctr + outer_cols, inner_tuple.getNValue(col_ctr));
+                }
+                output_table->insertTupleNonVirtual(joined);
+            }
+        }
+    }
+
+    return (true);
+}
+
+}
@@ -0,0 +1,87 @@
+/* Copyright (C) 2012 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#ifndef HSTOREHASHJOINEXECUTOR_H
+#define HSTOREHASHJOINEXECUTOR_H
+
+#include <vector>
+#include "boost/unordered_map.hpp"
+#include "common/common.h"
+#include "common/Pool.hpp"
+#include "common/tabletuple.h"
+#include "executors/nestloopexecutor.h"
+
+namespace voltdb {
+
+class AbstractExpression;
+class TupleSchema;
+
+/**
+ * One of the inner tuples that hashed to a join key. The tuples for
+ * the same key are chained together in the order that they were read.
+ */
+struct HashJoinBucket {
+    char *m_tupleData;
+    HashJoinBucket *m_next;
+    HashJoinBucket *m_last;
+};
+
+typedef boost::unordered_map<TableTuple,
+                             HashJoinBucket*,
+                             TableTupleHasher,
+                             TableTupleEqualityChecker> HashJoinMapType;
+
+/**
+ * Equi-join of two input tables. We build a hash table on the join keys
+ * of the inner table and then probe it once for each tuple in the outer
+ * table. The join keys are the equality comparisons between a column of
+ * each table in the AND-ed terms of the predicate. The full predicate is
+ * still evaluated on every match. If the predicate has no usable join keys,
+ * then this falls back to a NestLoopExecutor.
+ */
+class HashJoinExecutor : public NestLoopExecutor {
+    public:
+        HashJoinExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node)
+            : NestLoopExecutor(engine, abstract_node), m_keySchema(NULL) { }
+        ~HashJoinExecutor();
+    protected:
+        bool p_init(AbstractPlanNode*, const catalog::Database* catalog_db, int* tempTableMemoryInBytes);
+        bool p_execute(const NValueArray &params);
+    private:
+        bool setKeyTuple(TableTuple &keyTuple,
+                         const std::vector<const AbstractExpression*> &keys,
+                         const TableTuple *outer, const TableTuple *inner);
+
+        std::vector<const AbstractExpression*> m_outerKeys;
+        std::vector<const AbstractExpression*> m_innerKeys;
+        TupleSchema *m_keySchema;
+
+        /** Storage for the hash table's keys and buckets. Purged before each execution */
+        Pool m_memoryPool;
+};
+
+}
+
+#endif
@@ -279,6 +279,7 @@ bool IndexScanExecutor::p_init(AbstractPlanNode *abstractNode,
         m_needsSubstitutePostExpression =
             m_node->getPredicate()->hasParameter();
     }
+    m_postPredicate.init(m_node->getPredicate(), m_targetTable->schema(), 0);
 
     //
     // INLINE AGGREGATE
@@ -439,7 +440,9 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
             post_expression->substitute(params);
         }
         VOLT_DEBUG("Post Expression:\n%s", post_expression->debug(true).c_str());
+        m_postPredicate.bind(NULL);
     }
+    const bool batched_post_expression = (post_expression != NULL && m_postPredicate.isVectorized());
 
     assert (m_index);
     assert (m_index == m_targetTable->index(m_node->getTargetIndexName()));
@@ -504,6 +507,11 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
            ((m_lookupType != INDEX_LOOKUP_TYPE_EQ || m_numOfSearchkeys == 0) &&
             !(m_tuple = m_index->nextValue()).isNullTuple()))
     {
+        //
+        // Make sure that the tuple was not evicted to the anti-cache
+        //
+        m_targetTable->accessTuple(m_tuple);
+
         //
         // First check whether the end_expression is now false
         //
@@ -517,7 +525,8 @@ bool IndexScanExecutor::p_execute(const NValueArray &params)
         // Then apply our post-predicate to do further filtering
         //
         if (post_expression == NULL ||
-            post_expression->eval(&m_tuple, NULL).isTrue())
+            (batched_post_expression ? m_postPredicate.matches(m_tuple) :
+                                       post_expression->eval(&m_tuple, NULL).isTrue()))
         {
             //
             // Inline Distinct
@@ -49,6 +49,7 @@
 #include "common/valuevector.h"
 #include "common/tabletuple.h"
 #include "executors/abstractexecutor.h"
+#include "expressions/batchpredicate.h"
 
 #include "boost/shared_array.hpp"
 #include "boost/unordered_set.hpp"
@@ -115,6 +116,7 @@ protected:
     bool* m_needsSubstituteProject; // needs_substitute_project_ptr[]
     bool* m_needsSubstituteSearchKey; // needs_substitute_search_key_ptr[]
     bool m_needsSubstitutePostExpression;
+    BatchPredicate m_postPredicate;
     bool m_needsSubstituteEndExpression;
 
     // Inline Aggregate
@@ -183,6 +183,10 @@ bool NestLoopExecutor::p_init(AbstractPlanNode* abstract_node, const catalog::Da
     }
 
     delete[] columnNames;
+
+    // Now that we know which tuple each column comes from, figure out which
+    // parts of the predicate we can evaluate over a batch of inner tuples
+    m_batchPredicate.init(node->getPredicate(), second, 1);
     return true;
 }
 
@@ -226,6 +230,16 @@ bool NestLoopExecutor::p_execute(const NValueArray &params) {
     TableTuple inner_tuple(node->getInputTables()[1]->schema());
     TableTuple &joined = output_table->tempTuple();
 
+    //
+    // OPTIMIZATION: BATCHED PREDICATE
+    // For each outer tuple, evaluate the parts of the predicate that only
+    // depend on the outer tuple once and then check a block of inner tuples
+    // at a time. We then only have to look at the selected inner tuples.
+    //
+    const bool batched = (predicate != NULL && m_batchPredicate.isVectorized());
+    char* batch[BatchPredicate::BATCH_SIZE];
+    uint16_t selected[BatchPredicate::BATCH_SIZE];
+
     TableIterator iterator0(outer_table);
     while (iterator0.next(outer_tuple)) {
 
@@ -237,6 +251,25 @@ bool NestLoopExecutor::p_execute(const NValueArray &params) {
         }
 
         TableIterator iterator1(inner_table);
+        if (batched) {
+            m_batchPredicate.bind(&outer_tuple);
+            bool more = true;
+            while (more) {
+                int count = 0;
+                while (count < BatchPredicate::BATCH_SIZE && (more = iterator1.next(inner_tuple))) {
+                    batch[count++] = inner_tuple.address();
+                }
+                int matched = m_batchPredicate.filter(batch, count, selected);
+                for (int ii = 0; ii < matched; ii++) {
+                    inner_tuple.move(batch[selected[ii]]);
+                    for (int col_ctr = 0; col_ctr < inner_cols; col_ctr++) {
+                        joined.setNValue(col_ctr + outer_cols, inner_tuple.getNValue(col_ctr));
+                    }
+                    output_table->insertTupleNonVirtual(joined);
+                }
+            }
+            continue;
+        }
         while (iterator1.next(inner_tuple)) {
             if (predicate == NULL || predicate->eval(&outer_tuple, &inner_tuple).isTrue()) {
                 // Matched! Complete the joined tuple with the inner column values.
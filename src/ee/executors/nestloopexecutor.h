@@ -49,6 +49,7 @@
 #include "common/common.h"
 #include "common/valuevector.h"
 #include "executors/abstractexecutor.h"
+#include "expressions/batchpredicate.h"
 
 namespace voltdb {
 
@@ -64,6 +65,9 @@ class NestLoopExecutor : public AbstractExecutor {
     protected:
         bool p_init(AbstractPlanNode*, const catalog::Database* catalog_db, int* tempTableMemoryInBytes);
         bool p_execute(const NValueArray &params);
+
+        /** The join predicate, batched over the tuples of the inner table */
+        BatchPredicate m_batchPredicate;
 };
 
 }
@@ -314,6 +314,8 @@ bool NestLoopIndexExecutor::p_execute(const NValueArray &params)
                (m_lookupType != INDEX_LOOKUP_TYPE_EQ &&
                 !(inner_tuple = index->nextValue()).isNullTuple()))
         {
+            // Make sure that the tuple was not evicted to the anti-cache
+            inner_table->accessTuple(inner_tuple);
             match = true;
 
             VOLT_TRACE("inner_tuple:%s",
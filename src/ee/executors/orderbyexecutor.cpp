@@ -182,34 +182,65 @@ OrderByExecutor::p_execute(const NValueArray &params)
     if (limit_node != NULL)
     {
         limit_node->getLimitAndOffsetByReference(params, limit, offset);
-        if (offset > 0)
-        {
-            VOLT_ERROR("Nested Limit Offset is not yet supported for PlanNode"
-                       " '%s'", node->debug().c_str());
-            return false;
-        }
     }
 
     VOLT_TRACE("Running OrderBy '%s'", abstract_node->debug().c_str());
     VOLT_TRACE("Input Table:\n '%s'", input_table->debug().c_str());
     TableIterator iterator(input_table);
     TableTuple tuple(input_table->schema());
+    TupleComparer comparer(node->getSortColumns(), node->getSortDirections());
     vector<TableTuple> xs;
-    while (iterator.next(tuple))
+
+    //
+    // OPTIMIZATION: TOP-N
+    // If we have a limit, then we only need to keep the first (limit + offset)
+    // tuples in sorted order. We keep them in a bounded max-heap where the
+    // tuple that would come last in the output is on top so that every new
+    // tuple is either thrown away or replaces it in O(log n) time.
+    //
+    if (limit >= 0)
     {
-        assert(tuple.isActive());
-        xs.push_back(tuple);
+        size_t heap_size = static_cast<size_t>(limit) + max(offset, 0);
+        if (heap_size > 0)
+        {
+            xs.reserve(min(heap_size, static_cast<size_t>(input_table->activeTupleCount())));
+        }
+        while (heap_size > 0 && iterator.next(tuple))
+        {
+            assert(tuple.isActive());
+            if (xs.size() < heap_size)
+            {
+                xs.push_back(tuple);
+                push_heap(xs.begin(), xs.end(), comparer);
+            }
+            else if (comparer(tuple, xs.front()))
+            {
+                pop_heap(xs.begin(), xs.end(), comparer);
+                xs.back() = tuple;
+                push_heap(xs.begin(), xs.end(), comparer);
+            }
+        }
+        sort_heap(xs.begin(), xs.end(), comparer);
     }
-    VOLT_TRACE("\n***** Input Table PreSort:\n '%s'",
-               input_table->debug().c_str());
-    sort(xs.begin(), xs.end(), TupleComparer(node->getSortColumns(),
-                                             node->getSortDirections()));
-
-    int tuple_ctr = 0;
-    for (vector<TableTuple>::iterator it = xs.begin(); it != xs.end(); it++)
+    else
     {
-        VOLT_TRACE("\n***** Input Table PostSort:\n '%s'",
+        while (iterator.next(tuple))
+        {
+            assert(tuple.isActive());
+            xs.push_back(tuple);
+        }
+        VOLT_TRACE("\n***** Input Table PreSort:\n '%s'",
                    input_table->debug().c_str());
+        sort(xs.begin(), xs.end(), comparer);
+    }
+
+    vector<TableTuple>::iterator it = xs.begin();
+    if (offset > 0)
+    {
+        it += min(static_cast<size_t>(offset), xs.size());
+    }
+    for (; it != xs.end(); it++)
+    {
         if (!output_table->insertTuple(*it))
         {
             VOLT_ERROR("Failed to insert order-by tuple from input table '%s'"
@@ -218,12 +249,6 @@ OrderByExecutor::p_execute(const NValueArray &params)
                        output_table->name().c_str());
             return false;
         }
-        //
-        // Check whether we have gone past our limit
-        //
-        if (limit >= 0 && ++tuple_ctr >= limit) {
-            break;
-        }
     }
     VOLT_TRACE("Result of OrderBy:\n '%s'", output_table->debug().c_str());
 
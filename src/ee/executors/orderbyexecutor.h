@@ -57,7 +57,9 @@ namespace voltdb {
     class LimitPlanNode;
 
     /**
-     *
+     * Sorts the input table on the sort columns. If there is an inlined
+     * LIMIT, then we only keep the top (limit + offset) tuples in a bounded heap
+     * instead of sorting the entire input table.
      */
     class OrderByExecutor : public AbstractExecutor {
     public:
@@ -113,6 +113,12 @@ bool SeqScanExecutor::p_init(AbstractPlanNode *abstract_node,
                     tempTableMemoryInBytes));
         }
     }
+
+    //
+    // Figure out which parts of our predicate can be evaluated
+    // over a batch of tuples at a time
+    //
+    m_batchPredicate.init(node->getPredicate(), node->getTargetTable()->schema(), 0);
     return true;
 }
 
@@ -204,56 +210,68 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
         }
 
         int tuple_ctr = 0;
-        while (iterator.next(tuple))
+        if (predicate != NULL && m_batchPredicate.isVectorized())
         {
-            VOLT_TRACE("INPUT TUPLE: %s, %d/%d\n",
-                       tuple.debug(target_table->name()).c_str(), tuple_ctr,
-                       (int)target_table->activeTupleCount());
             //
-            // For each tuple we need to evaluate it against our predicate
+            // OPTIMIZATION: BATCHED PREDICATE
             //
-            if (predicate == NULL || predicate->eval(&tuple, NULL).isTrue())
+            // Pull a block of tuples out of the table at a time and
+            // evaluate the predicate over all of them at once. We then
+            // only have to look at the tuples in the selection vector.
+            //
+            m_batchPredicate.bind(NULL);
+            char* batch[BatchPredicate::BATCH_SIZE];
+            uint16_t selected[BatchPredicate::BATCH_SIZE];
+            bool more = true;
+            while (more)
             {
-                //
-                // Nested Projection
-                // Project (or replace) values from input tuple
-                //
-                if (projection_node != NULL)
+                int count = 0;
+                while (count < BatchPredicate::BATCH_SIZE &&
+                       (more = iterator.next(tuple)))
                 {
-                    TableTuple &temp_tuple = output_table->tempTuple();
-                    for (int ctr = 0; ctr < num_of_columns; ctr++)
-                    {
-                        NValue value =
-                            projection_node->
-                          getOutputColumnExpressions()[ctr]->eval(&tuple, NULL);
-                        temp_tuple.setNValue(ctr, value);
-                    }
-                    if (!output_table->insertTuple(temp_tuple))
+                    batch[count++] = tuple.address();
+                }
+                int matched = m_batchPredicate.filter(batch, count, selected);
+                VOLT_TRACE("Batch of %d tuples has %d matches", count, matched);
+                for (int ii = 0; ii < matched; ii++)
+                {
+                    tuple.move(batch[selected[ii]]);
+                    if (!outputTuple(tuple, target_table, output_table,
+                                     projection_node, num_of_columns))
                     {
-                        VOLT_ERROR("Failed to insert tuple from table '%s' into"
-                                   " output table '%s'",
-                                   target_table->name().c_str(),
-                                   output_table->name().c_str());
                         return false;
                     }
+                    ++tuple_ctr;
+                    // Check whether we have gone past our limit
+                    if (limit >= 0 && tuple_ctr >= limit) {
+                        more = false;
+                        break;
+                    }
                 }
-                else
+            }
+        }
+        else
+        {
+            while (iterator.next(tuple))
+            {
+                VOLT_TRACE("INPUT TUPLE: %s, %d/%d\n",
+                           tuple.debug(target_table->name()).c_str(), tuple_ctr,
+                           (int)target_table->activeTupleCount());
+                //
+                // For each tuple we need to evaluate it against our predicate
+                //
+                if (predicate == NULL || predicate->eval(&tuple, NULL).isTrue())
                 {
-                    //
-                    // Insert the tuple into our output table
-                    //
-                    if (!output_table->insertTuple(tuple)) {
-                        VOLT_ERROR("Failed to insert tuple from table '%s' into"
-                                   " output table '%s'",
-                                   target_table->name().c_str(),
-                                   output_table->name().c_str());
+                    if (!outputTuple(tuple, target_table, output_table,
+                                     projection_node, num_of_columns))
+                    {
                         return false;
                     }
-                }
-                ++tuple_ctr;
-                // Check whether we have gone past our limit
-                if (limit >= 0 && tuple_ctr >= limit) {
-                    break;
+                    ++tuple_ctr;
+                    // Check whether we have gone past our limit
+                    if (limit >= 0 && tuple_ctr >= limit) {
+                        break;
+                    }
                 }
             }
         }
@@ -263,3 +281,48 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
 
     return true;
 }
+
+inline bool SeqScanExecutor::outputTuple(TableTuple &tuple,
+                                         Table *target_table,
+                                         Table *output_table,
+                                         ProjectionPlanNode *projection_node,
+                                         int num_of_columns)
+{
+    //
+    // Nested Projection
+    // Project (or replace) values from input tuple
+    //
+    if (projection_node != NULL)
+    {
+        TableTuple &temp_tuple = output_table->tempTuple();
+        for (int ctr = 0; ctr < num_of_columns; ctr++)
+        {
+            NValue value =
+                projection_node->
+              getOutputColumnExpressions()[ctr]->eval(&tuple, NULL);
+            temp_tuple.setNValue(ctr, value);
+        }
+        if (!output_table->insertTuple(temp_tuple))
+        {
+            VOLT_ERROR("Failed to insert tuple from table '%s' into"
+                       " output table '%s'",
+                       target_table->name().c_str(),
+                       output_table->name().c_str());
+            return false;
+        }
+    }
+    else
+    {
+        //
+        // Insert the tuple into our output table
+        //
+        if (!output_table->insertTuple(tuple)) {
+            VOLT_ERROR("Failed to insert tuple from table '%s' into"
+                       " output table '%s'",
+                       target_table->name().c_str(),
+                       output_table->name().c_str());
+            return false;
+        }
+    }
+    return true;
+}
@@ -49,11 +49,13 @@
 #include "common/common.h"
 #include "common/valuevector.h"
 #include "executors/abstractexecutor.h"
+#include "expressions/batchpredicate.h"
 
 namespace voltdb
 {
     class UndoLog;
     class ReadWriteSet;
+    class ProjectionPlanNode;
 
     class SeqScanExecutor : public AbstractExecutor {
     public:
@@ -65,6 +67,11 @@ namespace voltdb
                     const catalog::Database* catalog_db, int* tempTableMemoryInBytes);
         bool p_execute(const NValueArray& params);
         bool needsOutputTableClear();
+    private:
+        bool outputTuple(TableTuple &tuple, Table *target_table, Table *output_table,
+                         ProjectionPlanNode *projection_node, int num_of_columns);
+
+        BatchPredicate m_batchPredicate;
     };
 }
 
@@ -0,0 +1,339 @@
+/* Copyright (C) 2012 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <stack>
+#include "expressions/batchpredicate.h"
+#include "common/debuglog.h"
+#include "common/TupleSchema.h"
+#include "common/ValuePeeker.hpp"
+#include "common/value_defs.h"
+#include "expressions/abstractexpression.h"
+#include "expressions/tuplevalueexpression.h"
+
+namespace voltdb {
+
+// ------------------------------------------------------------------
+// Specialized comparisons for the column loops
+// ------------------------------------------------------------------
+
+struct BatchCmpEq { template <typename V> inline bool operator()(V lhs, V rhs) const { return (lhs == rhs); } };
+struct BatchCmpNe { template <typename V> inline bool operator()(V lhs, V rhs) const { return (lhs != rhs); } };
+struct BatchCmpLt { template <typename V> inline bool operator()(V lhs, V rhs) const { return (lhs < rhs); } };
+struct BatchCmpGt { template <typename V> inline bool operator()(V lhs, V rhs) const { return (lhs > rhs); } };
+struct BatchCmpLte { template <typename V> inline bool operator()(V lhs, V rhs) const { return (lhs <= rhs); } };
+struct BatchCmpGte { template <typename V> inline bool operator()(V lhs, V rhs) const { return (lhs >= rhs); } };
+
+template <typename T> inline bool isBatchNull(T value);
+template <> inline bool isBatchNull<int8_t>(int8_t value) { return (value == INT8_NULL); }
+template <> inline bool isBatchNull<int16_t>(int16_t value) { return (value == INT16_NULL); }
+template <> inline bool isBatchNull<int32_t>(int32_t value) { return (value == INT32_NULL); }
+template <> inline bool isBatchNull<int64_t>(int64_t value) { return (value == INT64_NULL); }
+template <> inline bool isBatchNull<double>(double value) { return (value <= DOUBLE_NULL); }
+
+static inline bool isIntegralType(ValueType type) {
+    return (type == VALUE_TYPE_TINYINT || type == VALUE_TYPE_SMALLINT ||
+            type == VALUE_TYPE_INTEGER || type == VALUE_TYPE_BIGINT);
+}
+
+// ------------------------------------------------------------------
+// BatchPredicate
+// ------------------------------------------------------------------
+
+BatchPredicate::BatchPredicate() : m_numVectorized(0), m_tupleIdx(0), m_other(NULL) {
+}
+
+void BatchPredicate::init(const AbstractExpression *predicate, const TupleSchema *schema, int tupleIdx) {
+    m_terms.clear();
+    m_numVectorized = 0;
+    m_tupleIdx = tupleIdx;
+    m_other = NULL;
+    m_tuple = TableTuple(schema);
+
+    // Break the predicate up into its AND-ed terms (in the same order)
+    std::stack<const AbstractExpression*> stack;
+    if (predicate != NULL) {
+        stack.push(predicate);
+    }
+    while (!stack.empty()) {
+        const AbstractExpression *expr = stack.top();
+        stack.pop();
+        if (expr->getExpressionType() == EXPRESSION_TYPE_CONJUNCTION_AND) {
+            stack.push(expr->getRight());
+            stack.push(expr->getLeft());
+        } else {
+            addTerm(expr);
+        }
+    }
+    VOLT_DEBUG("BatchPredicate has %d terms [vectorized=%d]", (int)m_terms.size(), m_numVectorized);
+}
+
+/**
+ * Returns true if the given expression does not reference the batched tuple
+ */
+bool BatchPredicate::isIndependent(const AbstractExpression *expr) const {
+    if (expr == NULL) return true;
+    switch (expr->getExpressionType()) {
+        case EXPRESSION_TYPE_VALUE_TUPLE: {
+            const TupleValueExpression *tve = dynamic_cast<const TupleValueExpression*>(expr);
+            return (tve != NULL && tve->getTupleIndex() != m_tupleIdx);
+        }
+        case EXPRESSION_TYPE_VALUE_TUPLE_ADDRESS:
+            return false;
+        default:
+            return (isIndependent(expr->getLeft()) && isIndependent(expr->getRight()));
+    }
+}
+
+void BatchPredicate::addTerm(const AbstractExpression *expr) {
+    BatchPredicateTerm term;
+    term.m_expr = expr;
+    term.m_value = NULL;
+    term.m_compare = expr->getExpressionType();
+    term.m_columnType = VALUE_TYPE_INVALID;
+    term.m_columnOffset = 0;
+    term.m_bound = false;
+    term.m_boundAsDouble = false;
+    term.m_intValue = 0;
+    term.m_doubleValue = 0;
+
+    // Flipped version of the comparison for when the column is on the right side
+    ExpressionType flipped = EXPRESSION_TYPE_INVALID;
+    switch (term.m_compare) {
+        case EXPRESSION_TYPE_COMPARE_EQUAL:
+        case EXPRESSION_TYPE_COMPARE_NOTEQUAL:
+            flipped = term.m_compare;
+            break;
+        case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+            flipped = EXPRESSION_TYPE_COMPARE_GREATERTHAN;
+            break;
+        case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+            flipped = EXPRESSION_TYPE_COMPARE_LESSTHAN;
+            break;
+        case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+            flipped = EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO;
+            break;
+        case EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO:
+            flipped = EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO;
+            break;
+        default:
+            // Anything else always has to go through eval()
+            m_terms.push_back(term);
+            return;
+    }
+
+    const TupleValueExpression *left = dynamic_cast<const TupleValueExpression*>(expr->getLeft());
+    const TupleValueExpression *right = dynamic_cast<const TupleValueExpression*>(expr->getRight());
+    const TupleValueExpression *column = NULL;
+    if (left != NULL && left->getTupleIndex() == m_tupleIdx && isIndependent(expr->getRight())) {
+        column = left;
+        term.m_value = expr->getRight();
+    } else if (right != NULL && right->getTupleIndex() == m_tupleIdx && isIndependent(expr->getLeft())) {
+        column = right;
+        term.m_value = expr->getLeft();
+        term.m_compare = flipped;
+    }
+
+    if (column != NULL) {
+        const TupleSchema *schema = m_tuple.getSchema();
+        ValueType columnType = schema->columnType(column->getColumnId());
+        switch (columnType) {
+            case VALUE_TYPE_TINYINT:
+            case VALUE_TYPE_SMALLINT:
+            case VALUE_TYPE_INTEGER:
+            case VALUE_TYPE_BIGINT:
+            case VALUE_TYPE_TIMESTAMP:
+            case VALUE_TYPE_DOUBLE:
+                term.m_columnType = columnType;
+                term.m_columnOffset = schema->columnOffset(column->getColumnId()) + TUPLE_HEADER_SIZE;
+                m_numVectorized++;
+                break;
+            default:
+                term.m_value = NULL;
+                term.m_compare = expr->getExpressionType();
+        }
+    }
+    m_terms.push_back(term);
+}
+
+void BatchPredicate::bind(const TableTuple *other) {
+    m_other = other;
+    for (std::vector<BatchPredicateTerm>::iterator it = m_terms.begin(); it != m_terms.end(); ++it) {
+        BatchPredicateTerm &term = *it;
+        term.m_bound = false;
+        if (term.m_value == NULL) continue;
+
+        // A NULL value (or a type that we don't handle) means that this
+        // term will just have to be evaluated with eval() this time around
+        NValue value = (m_tupleIdx == 0 ? term.m_value->eval(NULL, other) : term.m_value->eval(other, NULL));
+        if (value.isNull()) continue;
+        ValueType valueType = ValuePeeker::peekValueType(value);
+        switch (term.m_columnType) {
+            case VALUE_TYPE_TINYINT:
+            case VALUE_TYPE_SMALLINT:
+            case VALUE_TYPE_INTEGER:
+            case VALUE_TYPE_BIGINT:
+                if (isIntegralType(valueType)) {
+                    term.m_intValue = ValuePeeker::peekAsBigInt(value);
+                    term.m_boundAsDouble = false;
+                    term.m_bound = true;
+                } else if (valueType == VALUE_TYPE_DOUBLE) {
+                    term.m_doubleValue = ValuePeeker::peekDouble(value);
+                    term.m_boundAsDouble = true;
+                    term.m_bound = true;
+                }
+                break;
+            case VALUE_TYPE_TIMESTAMP:
+                if (valueType == VALUE_TYPE_TIMESTAMP) {
+                    term.m_intValue = ValuePeeker::peekTimestamp(value);
+                    term.m_boundAsDouble = false;
+                    term.m_bound = true;
+                }
+                break;
+            case VALUE_TYPE_DOUBLE:
+                if (isIntegralType(valueType)) {
+                    term.m_doubleValue = static_cast<double>(ValuePeeker::peekAsBigInt(value));
+                    term.m_boundAsDouble = true;
+                    term.m_bound = true;
+                } else if (valueType == VALUE_TYPE_DOUBLE) {
+                    term.m_doubleValue = ValuePeeker::peekDouble(value);
+                    term.m_boundAsDouble = true;
+                    term.m_bound = true;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+}
+
+inline bool BatchPredicate::evalTerm(const BatchPredicateTerm &term, const TableTuple &tuple) const {
+    if (m_tupleIdx == 0) {
+        return term.m_expr->eval(&tuple, m_other).isTrue();
+    }
+    return term.m_expr->eval(m_other, &tuple).isTrue();
+}
+
+int BatchPredicate::filter(char* const *tuples, int count, uint16_t *selected) {
+    assert(count <= BATCH_SIZE);
+    for (int ii = 0; ii < count; ii++) {
+        selected[ii] = static_cast<uint16_t>(ii);
+    }
+
+    // Knock out as many tuples as we can with the specialized
+    // loops before we have to resort to calling eval()
+    int matched = count;
+    for (std::vector<BatchPredicateTerm>::const_iterator it = m_terms.begin(); it != m_terms.end() && matched > 0; ++it) {
+        if (it->m_bound == false) continue;
+        matched = filterTerm(*it, tuples, selected, matched);
+    }
+    for (std::vector<BatchPredicateTerm>::const_iterator it = m_terms.begin(); it != m_terms.end() && matched > 0; ++it) {
+        if (it->m_bound) continue;
+        int remaining = 0;
+        for (int ii = 0; ii < matched; ii++) {
+            m_tuple.move(tuples[selected[ii]]);
+            if (evalTerm(*it, m_tuple)) {
+                selected[remaining++] = selected[ii];
+            }
+        }
+        matched = remaining;
+    }
+    return matched;
+}
+
+bool BatchPredicate::matches(const TableTuple &tuple) {
+    char *address = tuple.address();
+    uint16_t selected;
+    return (filter(&address, 1, &selected) == 1);
+}
+
+int BatchPredicate::filterTerm(const BatchPredicateTerm &term, char* const *tuples, uint16_t *selected, int count) {
+    switch (term.m_columnType) {
+        case VALUE_TYPE_TINYINT:
+            if (term.m_boundAsDouble) return filterColumn<int8_t, double>(term, term.m_doubleValue, tuples, selected, count);
+            return filterColumn<int8_t, int64_t>(term, term.m_intValue, tuples, selected, count);
+        case VALUE_TYPE_SMALLINT:
+            if (term.m_boundAsDouble) return filterColumn<int16_t, double>(term, term.m_doubleValue, tuples, selected, count);
+            return filterColumn<int16_t, int64_t>(term, term.m_intValue, tuples, selected, count);
+        case VALUE_TYPE_INTEGER:
+            if (term.m_boundAsDouble) return filterColumn<int32_t, double>(term, term.m_doubleValue, tuples, selected, count);
+            return filterColumn<int32_t, int64_t>(term, term.m_intValue, tuples, selected, count);
+        case VALUE_TYPE_BIGINT:
+            if (term.m_boundAsDouble) return filterColumn<int64_t, double>(term, term.m_doubleValue, tuples, selected, count);
+            return filterColumn<int64_t, int64_t>(term, term.m_intValue, tuples, selected, count);
+        case VALUE_TYPE_TIMESTAMP:
+            return filterColumn<int64_t, int64_t>(term, term.m_intValue, tuples, selected, count);
+        case VALUE_TYPE_DOUBLE:
+            return filterColumn<double, double>(term, term.m_doubleValue, tuples, selected, count);
+        default:
+            assert(false);
+    }
+    return count;
+}
+
+template <typename T, typename V>
+int BatchPredicate::filterColumn(const BatchPredicateTerm &term, V value, char* const *tuples, uint16_t *selected, int count) {
+    switch (term.m_compare) {
+        case EXPRESSION_TYPE_COMPARE_EQUAL:
+            return filterColumn<T, V, BatchCmpEq>(term, value, tuples, selected, count);
+        case EXPRESSION_TYPE_COMPARE_NOTEQUAL:
+            return filterColumn<T, V, BatchCmpNe>(term, value, tuples, selected, count);
+        case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+            return filterColumn<T, V, BatchCmpLt>(term, value, tuples, selected, count);
+        case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+            return filterColumn<T, V, BatchCmpGt>(term, value, tuples, selected, count);
+        case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+            return filterColumn<T, V, BatchCmpLte>(term, value, tuples, selected, count);
+        case EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO:
+            return filterColumn<T, V, BatchCmpGte>(term, value, tuples, selected, count);
+        default:
+            assert(false);
+    }
+    return count;
+}
+
+template <typename T, typename V, typename Compare>
+int BatchPredicate::filterColumn(const BatchPredicateTerm &term, V value, char* const *tuples, uint16_t *selected, int count) {
+    const Compare compare = Compare();
+    const uint32_t offset = term.m_columnOffset;
+    int matched = 0;
+    for (int ii = 0; ii < count; ii++) {
+        const uint16_t idx = selected[ii];
+        const T columnValue = *reinterpret_cast<const T*>(tuples[idx] + offset);
+        bool match;
+        if (isBatchNull<T>(columnValue)) {
+            // Let the expression decide what a NULL means
+            m_tuple.move(tuples[idx]);
+            match = evalTerm(term, m_tuple);
+        } else {
+            match = compare(static_cast<V>(columnValue), value);
+        }
+        // Always write out the offset so that the loop doesn't branch on the match
+        selected[matched] = idx;
+        matched += (match ? 1 : 0);
+    }
+    return matched;
+}
+
+}
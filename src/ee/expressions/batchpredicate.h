@@ -0,0 +1,140 @@
+/* Copyright (C) 2012 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#ifndef HSTOREBATCHPREDICATE_H
+#define HSTOREBATCHPREDICATE_H
+
+#include <stdint.h>
+#include <vector>
+#include "common/common.h"
+#include "common/tabletuple.h"
+
+namespace voltdb {
+
+class AbstractExpression;
+class TupleSchema;
+
+/**
+ * One of the AND-ed terms of a BatchPredicate
+ */
+struct BatchPredicateTerm {
+    /** The original expression for this term */
+    const AbstractExpression *m_expr;
+
+    /**
+     * If this term is a comparison between a fixed-width column of the batched tuple
+     * and a value that does not depend on the batched tuple, then these are filled in.
+     * The comparison is normalized so that the column is always on the left side.
+     */
+    const AbstractExpression *m_value;
+    ExpressionType m_compare;
+    ValueType m_columnType;
+    uint32_t m_columnOffset;
+
+    /** Set by bind() if m_value could be converted into one of these */
+    bool m_bound;
+    bool m_boundAsDouble;
+    int64_t m_intValue;
+    double m_doubleValue;
+};
+
+/**
+ * Evaluates a predicate over a block of tuples at a time instead of making a
+ * virtual eval() call on every node of the expression tree for every tuple.
+ * The predicate is split into its AND-ed terms. The terms that compare a
+ * TINYINT, SMALLINT, INTEGER, BIGINT, TIMESTAMP, or DOUBLE column against
+ * a value that does not depend on the tuple are evaluated directly on the
+ * tuples' storage by a loop that is specialized for that column type and
+ * comparison. Each of these loops narrows down a selection vector of the
+ * tuples that still match. Any other terms are only evaluated with eval()
+ * on the tuples that are left over. We also fall back to eval() for
+ * any tuple that has a NULL in the column so that we get the exact same
+ * results as the original expression.
+ */
+class BatchPredicate {
+    public:
+        /** The maximum number of tuples that can be passed to filter() */
+        static const int BATCH_SIZE = 1024;
+
+        BatchPredicate();
+
+        /**
+         * Split up the given predicate into its terms.
+         * @param predicate The predicate (may be NULL). It must outlive this object.
+         * @param schema The schema of the tuples that will be batched
+         * @param tupleIdx Whether the batched tuples are the first (0) or second (1) argument to eval()
+         */
+        void init(const AbstractExpression *predicate, const TupleSchema *schema, int tupleIdx);
+
+        /**
+         * Returns true if at least one of the terms can be evaluated without eval().
+         * If this is false, then there is no reason to use this over the original predicate.
+         */
+        bool isVectorized() const {
+            return (m_numVectorized > 0);
+        }
+
+        /**
+         * Evaluate the parts of each term that do not depend on the batched tuples.
+         * This must be called after the predicate's parameters have been substituted,
+         * and then again whenever the other tuple changes (i.e., for each outer tuple in a join).
+         * @param other The tuple that is the other argument to eval() (may be NULL)
+         */
+        void bind(const TableTuple *other);
+
+        /**
+         * Check which of the given tuples satisfy the predicate.
+         * @param tuples The addresses of the tuples to check
+         * @param count The number of tuples (at most BATCH_SIZE)
+         * @param selected The offsets in tuples of the tuples that match, in order
+         * @return The number of tuples that match
+         */
+        int filter(char* const *tuples, int count, uint16_t *selected);
+
+        /**
+         * Check whether a single tuple satisfies the predicate
+         */
+        bool matches(const TableTuple &tuple);
+
+    private:
+        bool isIndependent(const AbstractExpression *expr) const;
+        void addTerm(const AbstractExpression *expr);
+        bool evalTerm(const BatchPredicateTerm &term, const TableTuple &tuple) const;
+        int filterTerm(const BatchPredicateTerm &term, char* const *tuples, uint16_t *selected, int count);
+        template <typename T, typename V>
+        int filterColumn(const BatchPredicateTerm &term, V value, char* const *tuples, uint16_t *selected, int count);
+        template <typename T, typename V, typename Compare>
+        int filterColumn(const BatchPredicateTerm &term, V value, char* const *tuples, uint16_t *selected, int count);
+
+        std::vector<BatchPredicateTerm> m_terms;
+        int m_numVectorized;
+        int m_tupleIdx;
+        const TableTuple *m_other;
+        TableTuple m_tuple;
+};
+
+}
+
+#endif
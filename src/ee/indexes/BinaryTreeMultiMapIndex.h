@@ -48,7 +48,10 @@
 
 #include <map>
 #include <iostream>
+#include <algorithm>
+#include <vector>
 #include "indexes/tableindex.h"
+#include "indexes/indexkey.h"
 #include "common/tabletuple.h"
 
 namespace voltdb {
@@ -79,6 +82,31 @@ public:
         return addEntryPrivate(tuple, m_tmp1);
     }
 
+    int addEntries(const std::vector<const void*> &tuples)
+    {
+        // build the keys for the whole batch and sort them so that the
+        // tree is filled in key order
+        typedef std::pair<KeyType, const void*> EntryType;
+        std::vector<EntryType> entries;
+        entries.reserve(tuples.size());
+        TableTuple tuple(m_tupleSchema);
+        for (size_t i = 0; i < tuples.size(); ++i) {
+            tuple.move(const_cast<void*>(tuples[i]));
+            m_tmp1.setFromTuple(&tuple, column_indices_, m_keySchema);
+            entries.push_back(EntryType(m_tmp1, tuples[i]));
+        }
+        std::stable_sort(entries.begin(), entries.end(),
+            IndexEntryComparator<KeyType, KeyComparator>(KeyComparator(m_keySchema)));
+
+        // with the end hint each insert is constant time as long as the
+        // entries sort after everything that is already in the map
+        for (size_t i = 0; i < entries.size(); ++i) {
+            m_entries.insert(m_entries.end(), entries[i]);
+        }
+        m_inserts += static_cast<int>(entries.size());
+        return 0;
+    }
+
     bool deleteEntry(const TableTuple *tuple)
     {
         m_tmp1.setFromTuple(tuple, column_indices_, m_keySchema);
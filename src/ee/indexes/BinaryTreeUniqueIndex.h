@@ -49,9 +49,12 @@
 //#include <map>
 #include "stx/btree_map.h"
 #include <iostream>
+#include <algorithm>
+#include <vector>
 #include "common/debuglog.h"
 #include "common/tabletuple.h"
 #include "indexes/tableindex.h"
+#include "indexes/indexkey.h"
 
 namespace voltdb {
 
@@ -77,6 +80,36 @@ public:
         return addEntryPrivate(tuple, m_tmp1);
     }
 
+    int addEntries(const std::vector<const void*> &tuples)
+    {
+        // build the keys for the whole batch and sort them so that the
+        // tree is filled in key order
+        typedef std::pair<KeyType, const void*> EntryType;
+        std::vector<EntryType> entries;
+        entries.reserve(tuples.size());
+        TableTuple tuple(m_tupleSchema);
+        for (size_t i = 0; i < tuples.size(); ++i) {
+            tuple.move(const_cast<void*>(tuples[i]));
+            m_tmp1.setFromTuple(&tuple, column_indices_, m_keySchema);
+            entries.push_back(EntryType(m_tmp1, tuples[i]));
+        }
+        std::stable_sort(entries.begin(), entries.end(),
+            IndexEntryComparator<KeyType, KeyComparator>(KeyComparator(m_keySchema)));
+
+        // the sort is stable, so the first of any duplicate keys in the
+        // batch wins just like it would have with addEntry()
+        int failed = 0;
+        for (size_t i = 0; i < entries.size(); ++i) {
+            if (i > 0 && m_eq(entries[i - 1].first, entries[i].first)) {
+                ++failed;
+                continue;
+            }
+            ++m_inserts;
+            if (!m_entries.insert(entries[i]).second) ++failed;
+        }
+        return failed;
+    }
+
     bool deleteEntry(const TableTuple* tuple)
     {
         m_tmp1.setFromTuple(tuple, column_indices_, m_keySchema);
@@ -0,0 +1,945 @@
+/* Copyright (C) 2012 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <cassert>
+#include <cstdlib>
+#include <cstring>
+#include <algorithm>
+#include <sstream>
+#include "indexes/CompactBTreeIndex.h"
+#include "common/debuglog.h"
+#include "common/FatalException.hpp"
+#include "common/SQLException.h"
+#include "common/ValuePeeker.hpp"
+
+namespace voltdb {
+
+const int CompactBTreeIndex::CACHE_LINE_SIZE;
+const int CompactBTreeIndex::NODE_SIZE;
+const int CompactBTreeIndex::MAX_KEY_SIZE;
+
+static const uint64_t SIGN_BIT = 0x8000000000000000ULL;
+
+// ----------------------------------------------------------------------------
+// KEY ENCODING
+// ----------------------------------------------------------------------------
+
+static inline void writeBigEndian(uint64_t value, int bytes, uint8_t *out) {
+    for (int i = bytes - 1; i >= 0; i--) {
+        out[i] = static_cast<uint8_t>(value & 0xFF);
+        value >>= 8;
+    } // FOR
+}
+
+/**
+ * The first four bytes of a key as an integer, padded with zeros.
+ * If two heads are different, then they sort the same way as their keys.
+ */
+static inline uint32_t makeHead(const uint8_t *key, int length) {
+    uint32_t head = 0;
+    for (int i = 0; i < 4; i++) {
+        head <<= 8;
+        if (i < length) head |= key[i];
+    } // FOR
+    return (head);
+}
+
+static inline int compareKeys(const uint8_t *a, int aLength, const uint8_t *b, int bLength) {
+    int cmp = ::memcmp(a, b, std::min(aLength, bLength));
+    return (cmp != 0 ? cmp : aLength - bLength);
+}
+
+static inline int commonPrefix(const uint8_t *a, int aLength, const uint8_t *b, int bLength) {
+    int max = std::min(aLength, bLength);
+    int i = 0;
+    while (i < max && a[i] == b[i]) i++;
+    return (i);
+}
+
+int CompactBTreeIndex::getMaxKeyLength(const TupleSchema *keySchema) {
+    int length = 0;
+    for (int i = 0; i < keySchema->columnCount(); i++) {
+        switch (keySchema->columnType(i)) {
+            case VALUE_TYPE_TINYINT:
+                length += 1;
+                break;
+            case VALUE_TYPE_SMALLINT:
+                length += 2;
+                break;
+            case VALUE_TYPE_INTEGER:
+                length += 4;
+                break;
+            case VALUE_TYPE_BIGINT:
+            case VALUE_TYPE_TIMESTAMP:
+            case VALUE_TYPE_DOUBLE:
+                length += 8;
+                break;
+            case VALUE_TYPE_DECIMAL:
+                length += 16;
+                break;
+            case VALUE_TYPE_VARCHAR:
+                // NULL marker + the string + the terminator
+                // This assumes that there are no zero bytes in the string that
+                // need to be escaped. encodeKey() checks for that.
+                length += keySchema->columnLength(i) + 3;
+                break;
+            default:
+                return (-1);
+        } // SWITCH
+    } // FOR
+    return (length);
+}
+
+/**
+ * Encode the key columns of the given tuple into a byte string that sorts with
+ * memcmp() in the same order that TableTuple::compare() sorts the columns.
+ * NULLs sort before every other value just like they do in NValue.
+ * @param tuple
+ * @param columnIndices The offsets of the key columns in the tuple, or NULL if the tuple is already a key
+ * @param key The output buffer (at least MAX_BUFFER_SIZE bytes)
+ * @return The length of the key
+ */
+int CompactBTreeIndex::encodeKey(const TableTuple *tuple, const int *columnIndices, uint8_t *key) const {
+    int length = 0;
+    for (int i = 0; i < colCount_; i++) {
+        const NValue value = tuple->getNValue(columnIndices != NULL ? columnIndices[i] : i);
+
+        // Integers are stored big-endian with the sign bit flipped. Since NULL
+        // is the smallest value of each type, it automatically sorts first.
+        switch (m_keySchema->columnType(i)) {
+            case VALUE_TYPE_TINYINT:
+                writeBigEndian(static_cast<uint8_t>(ValuePeeker::peekTinyInt(value)) ^ 0x80, 1, key + length);
+                length += 1;
+                break;
+            case VALUE_TYPE_SMALLINT:
+                writeBigEndian(static_cast<uint16_t>(ValuePeeker::peekSmallInt(value)) ^ 0x8000, 2, key + length);
+                length += 2;
+                break;
+            case VALUE_TYPE_INTEGER:
+                writeBigEndian(static_cast<uint32_t>(ValuePeeker::peekInteger(value)) ^ 0x80000000, 4, key + length);
+                length += 4;
+                break;
+            case VALUE_TYPE_BIGINT:
+                writeBigEndian(static_cast<uint64_t>(ValuePeeker::peekBigInt(value)) ^ SIGN_BIT, 8, key + length);
+                length += 8;
+                break;
+            case VALUE_TYPE_TIMESTAMP:
+                writeBigEndian(static_cast<uint64_t>(ValuePeeker::peekTimestamp(value)) ^ SIGN_BIT, 8, key + length);
+                length += 8;
+                break;
+            case VALUE_TYPE_DOUBLE: {
+                // Positive doubles just need their sign bit flipped, but negative
+                // doubles need all of their bits flipped so that they sort backwards.
+                double d = ValuePeeker::peekDouble(value);
+                if (d == 0.0) d = 0.0; // -0.0 == 0.0
+                uint64_t bits;
+                ::memcpy(&bits, &d, sizeof(bits));
+                bits = ((bits & SIGN_BIT) ? ~bits : (bits ^ SIGN_BIT));
+                writeBigEndian(bits, 8, key + length);
+                length += 8;
+                break;
+            }
+            case VALUE_TYPE_DECIMAL: {
+                TTInt d = ValuePeeker::peekDecimal(value);
+                writeBigEndian(static_cast<uint64_t>(d.table[1]) ^ SIGN_BIT, 8, key + length);
+                writeBigEndian(static_cast<uint64_t>(d.table[0]), 8, key + length + 8);
+                length += 16;
+                break;
+            }
+            case VALUE_TYPE_VARCHAR: {
+                // Strings are terminated by two zero bytes. Any zero byte in
+                // the string is escaped as 0x00 0xFF so that shorter strings
+                // still sort before longer strings with the same prefix.
+                if (value.isNull()) {
+                    key[length++] = 0;
+                    break;
+                }
+                key[length++] = 1;
+                const uint8_t *data = reinterpret_cast<const uint8_t*>(ValuePeeker::peekObjectValue(value));
+                const int32_t dataLength = ValuePeeker::peekObjectLength(value);
+                for (int32_t j = 0; j < dataLength; j++) {
+                    key[length++] = data[j];
+                    if (data[j] == 0) key[length++] = 0xFF;
+                } // FOR
+                key[length++] = 0;
+                key[length++] = 0;
+                break;
+            }
+            default:
+                throwFatalException("Unsupported column type '%s' for index '%s'",
+                                    valueToString(m_keySchema->columnType(i)).c_str(), name_.c_str());
+        } // SWITCH
+    } // FOR
+
+    if (length > MAX_KEY_SIZE) {
+        char msg[512];
+        snprintf(msg, 512, "Key for index '%s' is %d bytes but the max is %d",
+                 name_.c_str(), length, static_cast<int>(MAX_KEY_SIZE));
+        throw SQLException(SQLException::data_exception_string_data_length_mismatch, msg);
+    }
+    return (length);
+}
+
+/**
+ * Encode the key for the given tuple as it is stored in the tree.
+ * Non-unique indexes add the tuple's address at the end so that every entry is distinct.
+ */
+int CompactBTreeIndex::encodeEntry(const TableTuple *tuple, uint8_t *key) const {
+    int length = encodeKey(tuple, column_indices_, key);
+    if (!is_unique_index_) {
+        writeBigEndian(reinterpret_cast<uintptr_t>(tuple->address()), sizeof(uint64_t), key + length);
+        length += sizeof(uint64_t);
+    }
+    return (length);
+}
+
+// ----------------------------------------------------------------------------
+// NODE OPERATIONS
+// ----------------------------------------------------------------------------
+
+CompactBTreeIndex::Node *CompactBTreeIndex::allocateNode(bool leaf) {
+    void *memory = NULL;
+    if (::posix_memalign(&memory, CACHE_LINE_SIZE, NODE_SIZE) != 0) {
+        throwFatalException("Failed to allocate a %d byte node for index '%s'",
+                            static_cast<int>(NODE_SIZE), name_.c_str());
+    }
+    Node *node = static_cast<Node*>(memory);
+    node->m_count = 0;
+    node->m_prefixLength = 0;
+    node->m_dataOffset = DATA_SIZE;
+    node->m_freeBytes = 0;
+    node->m_leaf = leaf;
+    node->m_upper = NULL;
+    node->m_prev = NULL;
+    node->m_next = NULL;
+    m_nodes++;
+    return (node);
+}
+
+void CompactBTreeIndex::freeNode(Node *node) {
+    ::free(node);
+    m_nodes--;
+}
+
+void CompactBTreeIndex::freeTree(Node *node) {
+    if (!node->m_leaf) {
+        for (int i = 0; i <= node->m_count; i++) {
+            freeTree(childAt(node, i));
+        } // FOR
+    }
+    freeNode(node);
+}
+
+void *CompactBTreeIndex::valueAt(const Node *node, int idx) {
+    const Slot &slot = reinterpret_cast<const Slot*>(node->m_data)[idx];
+    void *value;
+    ::memcpy(&value, node->m_data + slot.offset + slot.length, sizeof(value));
+    return (value);
+}
+
+void CompactBTreeIndex::setValueAt(Node *node, int idx, void *value) {
+    const Slot &slot = slots(node)[idx];
+    ::memcpy(node->m_data + slot.offset + slot.length, &value, sizeof(value));
+}
+
+void CompactBTreeIndex::setChildAt(Node *node, int idx, Node *child) {
+    if (idx < node->m_count) {
+        setValueAt(node, idx, child);
+    } else {
+        node->m_upper = child;
+    }
+}
+
+int CompactBTreeIndex::freeSpace(const Node *node) {
+    return (node->m_dataOffset - node->m_count * static_cast<int>(sizeof(Slot)));
+}
+
+/**
+ * Returns the offset of the first key in the node that is greater than or equal to the given key.
+ * If exact is not NULL, then it is set to whether that key is equal to the given key.
+ */
+int CompactBTreeIndex::lowerBound(Node *node, const uint8_t *key, int length, bool *exact) {
+    if (exact != NULL) *exact = false;
+
+    // If the key doesn't have the same prefix, then it either comes
+    // before or after everything in this node
+    const int prefixLength = node->m_prefixLength;
+    int cmp = ::memcmp(key, prefix(node), std::min(length, prefixLength));
+    if (cmp < 0 || (cmp == 0 && length < prefixLength)) return (0);
+    if (cmp > 0) return (node->m_count);
+
+    const uint8_t *suffix = key + prefixLength;
+    const int suffixLength = length - prefixLength;
+    const uint32_t head = makeHead(suffix, suffixLength);
+    const Slot *s = slots(node);
+    int lo = 0;
+    int hi = node->m_count;
+    while (lo < hi) {
+        int mid = (lo + hi) / 2;
+        if (s[mid].head < head) {
+            lo = mid + 1;
+        } else if (s[mid].head > head) {
+            hi = mid;
+        } else {
+            cmp = compareKeys(node->m_data + s[mid].offset, s[mid].length, suffix, suffixLength);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+                if (cmp == 0 && exact != NULL) *exact = true;
+            }
+        }
+    } // WHILE
+    return (lo);
+}
+
+/**
+ * Returns true if the key at the given offset in the node starts with the given key
+ */
+bool CompactBTreeIndex::startsWith(Node *node, int idx, const uint8_t *key, int length) {
+    const int prefixLength = node->m_prefixLength;
+    if (length <= prefixLength) {
+        return (::memcmp(prefix(node), key, length) == 0);
+    }
+    const Slot &slot = slots(node)[idx];
+    return (slot.length >= length - prefixLength &&
+            ::memcmp(prefix(node), key, prefixLength) == 0 &&
+            ::memcmp(node->m_data + slot.offset, key + prefixLength, length - prefixLength) == 0);
+}
+
+/**
+ * Copy the full key at the given offset in the node into the buffer
+ */
+int CompactBTreeIndex::copyKey(Node *node, int idx, uint8_t *key) {
+    const Slot &slot = slots(node)[idx];
+    ::memcpy(key, prefix(node), node->m_prefixLength);
+    ::memcpy(key + node->m_prefixLength, node->m_data + slot.offset, slot.length);
+    return (node->m_prefixLength + slot.length);
+}
+
+/**
+ * Insert a new record into the node at the given offset.
+ * The key must start with the node's prefix and there must be enough free space.
+ */
+void CompactBTreeIndex::insertRecord(Node *node, const uint8_t *key, int length, void *value, int idx) {
+    const uint8_t *suffix = key + node->m_prefixLength;
+    const int suffixLength = length - node->m_prefixLength;
+    assert(suffixLength >= 0);
+    assert(freeSpace(node) >= suffixLength + static_cast<int>(sizeof(value) + sizeof(Slot)));
+
+    node->m_dataOffset = static_cast<uint16_t>(node->m_dataOffset - suffixLength - sizeof(value));
+    ::memcpy(node->m_data + node->m_dataOffset, suffix, suffixLength);
+    ::memcpy(node->m_data + node->m_dataOffset + suffixLength, &value, sizeof(value));
+
+    Slot *s = slots(node);
+    ::memmove(s + idx + 1, s + idx, (node->m_count - idx) * sizeof(Slot));
+    s[idx].offset = node->m_dataOffset;
+    s[idx].length = static_cast<uint16_t>(suffixLength);
+    s[idx].head = makeHead(suffix, suffixLength);
+    node->m_count++;
+}
+
+void CompactBTreeIndex::removeRecord(Node *node, int idx) {
+    Slot *s = slots(node);
+    const int size = s[idx].length + static_cast<int>(sizeof(void*));
+    if (s[idx].offset == node->m_dataOffset) {
+        node->m_dataOffset = static_cast<uint16_t>(node->m_dataOffset + size);
+    } else {
+        node->m_freeBytes = static_cast<uint16_t>(node->m_freeBytes + size);
+    }
+    ::memmove(s + idx, s + idx + 1, (node->m_count - idx - 1) * sizeof(Slot));
+    node->m_count--;
+    if (node->m_count == 0) {
+        node->m_prefixLength = 0;
+        node->m_dataOffset = DATA_SIZE;
+        node->m_freeBytes = 0;
+    }
+}
+
+/**
+ * Copy all of the full keys in the node into m_arena. If key is not NULL,
+ * then it is added as a new entry at the given offset.
+ */
+void CompactBTreeIndex::collectEntries(Node *node, int pos, const uint8_t *key, int length, void *value) {
+    m_arena.resize((node->m_count + 1) * MAX_ENTRY_SIZE);
+    m_arenaEntries.clear();
+    uint32_t offset = 0;
+    for (int i = 0; i <= node->m_count; i++) {
+        if (i == pos && key != NULL) {
+            Entry e = { offset, static_cast<uint16_t>(length), value };
+            ::memcpy(&m_arena[offset], key, length);
+            m_arenaEntries.push_back(e);
+            offset += length;
+        }
+        if (i < node->m_count) {
+            Entry e = { offset, 0, valueAt(node, i) };
+            e.length = static_cast<uint16_t>(copyKey(node, i, &m_arena[offset]));
+            m_arenaEntries.push_back(e);
+            offset += e.length;
+        }
+    } // FOR
+}
+
+/**
+ * The number of bytes needed to store the given entries in a single node
+ */
+int CompactBTreeIndex::buildSize(const uint8_t *arena, const Entry *entries, int count) {
+    if (count == 0) return (0);
+    const int prefixLength = commonPrefix(arena + entries[0].offset, entries[0].length,
+                                          arena + entries[count-1].offset, entries[count-1].length);
+    int size = prefixLength;
+    for (int i = 0; i < count; i++) {
+        size += entries[i].length - prefixLength + static_cast<int>(sizeof(void*) + sizeof(Slot));
+    } // FOR
+    return (size);
+}
+
+/**
+ * Overwrite the node with the given sorted entries. Since they are sorted,
+ * the common prefix of the first and last entries is shared by all of them.
+ */
+void CompactBTreeIndex::buildNode(Node *node, const uint8_t *arena, const Entry *entries, int count) {
+    assert(buildSize(arena, entries, count) <= DATA_SIZE);
+    node->m_count = 0;
+    node->m_freeBytes = 0;
+    node->m_prefixLength = 0;
+    if (count > 0) {
+        node->m_prefixLength = static_cast<uint16_t>(
+            commonPrefix(arena + entries[0].offset, entries[0].length,
+                         arena + entries[count-1].offset, entries[count-1].length));
+    }
+    node->m_dataOffset = static_cast<uint16_t>(DATA_SIZE - node->m_prefixLength);
+    ::memcpy(node->m_data + node->m_dataOffset, arena + entries[0].offset, node->m_prefixLength);
+    for (int i = 0; i < count; i++) {
+        insertRecord(node, arena + entries[i].offset, entries[i].length, entries[i].value, i);
+    } // FOR
+}
+
+/**
+ * Returns the number of entries that should go into the left node
+ * so that both nodes end up with about the same number of bytes
+ */
+int CompactBTreeIndex::splitPoint(const Entry *entries, int count) {
+    int total = 0;
+    for (int i = 0; i < count; i++) {
+        total += entries[i].length;
+    } // FOR
+    int size = 0;
+    for (int i = 0; i < count; i++) {
+        size += entries[i].length;
+        if (size * 2 >= total) return (std::max(1, std::min(i + 1, count - 1)));
+    } // FOR
+    return (count / 2);
+}
+
+// ----------------------------------------------------------------------------
+// TREE OPERATIONS
+// ----------------------------------------------------------------------------
+
+/**
+ * Find the leaf that would contain the given key.
+ * If recordPath is true, then m_path will contain the inner nodes that we went
+ * through along with the offset of the child that we followed.
+ */
+CompactBTreeIndex::Node *CompactBTreeIndex::findLeaf(const uint8_t *key, int length, bool recordPath) {
+    if (recordPath) m_path.clear();
+    Node *node = m_root;
+    while (!node->m_leaf) {
+        int idx = lowerBound(node, key, length, NULL);
+        if (recordPath) {
+            PathEntry entry = { node, idx };
+            m_path.push_back(entry);
+        }
+        node = childAt(node, idx);
+    } // WHILE
+    return (node);
+}
+
+bool CompactBTreeIndex::insertEntry(const uint8_t *key, int length, void *value) {
+    if (m_root == NULL) {
+        m_root = allocateNode(true);
+        m_height = 1;
+    }
+    Node *leaf = findLeaf(key, length, true);
+    bool exact;
+    int pos = lowerBound(leaf, key, length, &exact);
+    if (exact) return (false);
+
+    insertIntoNode(static_cast<int>(m_path.size()), leaf, pos, key, length, value);
+    m_entries++;
+    return (true);
+}
+
+/**
+ * Insert the key into the node at the given depth, splitting it if it is full
+ */
+void CompactBTreeIndex::insertIntoNode(int depth, Node *node, int pos, const uint8_t *key, int length, void *value) {
+    const int prefixLength = node->m_prefixLength;
+    const bool sharesPrefix = (length >= prefixLength && ::memcmp(key, prefix(node), prefixLength) == 0);
+    if (sharesPrefix &&
+        freeSpace(node) >= length - prefixLength + static_cast<int>(sizeof(void*) + sizeof(Slot))) {
+        insertRecord(node, key, length, value, pos);
+        return;
+    }
+
+    // Rebuild the node with the new entry. This gets rid of the holes left by
+    // removed records and shortens the prefix if the new key doesn't share it.
+    collectEntries(node, pos, key, length, value);
+    if (buildSize(&m_arena[0], &m_arenaEntries[0], static_cast<int>(m_arenaEntries.size())) <= DATA_SIZE) {
+        buildNode(node, &m_arena[0], &m_arenaEntries[0], static_cast<int>(m_arenaEntries.size()));
+        return;
+    }
+    splitNode(depth, node, pos, !sharesPrefix);
+}
+
+/**
+ * Split the entries in m_arena between the node and a new node to its right.
+ * If the new entry at pos didn't share the node's prefix, then it has to be
+ * either the first or the last entry. We then split it off on its own so that
+ * the old entries keep their prefix and are guaranteed to still fit.
+ */
+void CompactBTreeIndex::splitNode(int depth, Node *node, int pos, bool breaksPrefix) {
+    const uint8_t *arena = &m_arena[0];
+    const Entry *entries = &m_arenaEntries[0];
+    const int count = static_cast<int>(m_arenaEntries.size());
+    assert(count >= 3);
+    assert(!breaksPrefix || pos == 0 || pos == count - 1);
+
+    Node *right = allocateNode(node->m_leaf);
+    uint8_t separator[MAX_ENTRY_SIZE];
+    int separatorLength;
+
+    if (node->m_leaf) {
+        int split;
+        if (breaksPrefix) {
+            split = (pos == 0 ? 1 : count - 1);
+        } else if (node->m_next == NULL && pos == count - 1) {
+            // We are appending to the end of the index, so keep the left node full
+            split = count - 1;
+        } else {
+            split = splitPoint(entries, count);
+        }
+        buildNode(right, arena, entries + split, count - split);
+        buildNode(node, arena, entries, split);
+
+        right->m_prev = node;
+        right->m_next = node->m_next;
+        if (node->m_next != NULL) node->m_next->m_prev = right;
+        node->m_next = right;
+
+        // Use the shortest separator that is >= the last key on the left and
+        // < the first key on the right
+        const Entry &last = entries[split - 1];
+        const Entry &first = entries[split];
+        int common = commonPrefix(arena + last.offset, last.length, arena + first.offset, first.length);
+        if (first.length > common + 1) {
+            separatorLength = common + 1;
+            ::memcpy(separator, arena + first.offset, separatorLength);
+        } else {
+            separatorLength = last.length;
+            ::memcpy(separator, arena + last.offset, separatorLength);
+        }
+    } else {
+        // The separator in the middle moves up to the parent and its child
+        // becomes the upper child of the left node
+        int middle;
+        if (breaksPrefix) {
+            middle = (pos == 0 ? 1 : count - 2);
+        } else {
+            middle = std::min(splitPoint(entries, count), count - 1);
+        }
+        separatorLength = entries[middle].length;
+        ::memcpy(separator, arena + entries[middle].offset, separatorLength);
+
+        buildNode(right, arena, entries + middle + 1, count - middle - 1);
+        right->m_upper = node->m_upper;
+        buildNode(node, arena, entries, middle);
+        node->m_upper = static_cast<Node*>(entries[middle].value);
+    }
+
+    insertSeparator(depth, node, right, separator, separatorLength);
+}
+
+/**
+ * After the node at the given depth was split into left and right, add the
+ * separator between them to its parent
+ */
+void CompactBTreeIndex::insertSeparator(int depth, Node *left, Node *right, const uint8_t *key, int length) {
+    if (depth == 0) {
+        Node *root = allocateNode(false);
+        Entry e = { 0, static_cast<uint16_t>(length), left };
+        buildNode(root, key, &e, 1);
+        root->m_upper = right;
+        m_root = root;
+        m_height++;
+        return;
+    }
+
+    // The parent used to point to left for every key up to the next separator.
+    // Now it points to right for those, and to left for every key up to the new separator.
+    Node *parent = m_path[depth - 1].node;
+    const int idx = m_path[depth - 1].childIdx;
+    setChildAt(parent, idx, right);
+    insertIntoNode(depth - 1, parent, idx, key, length, left);
+}
+
+bool CompactBTreeIndex::removeEntry(const uint8_t *key, int length) {
+    if (m_root == NULL) return (false);
+    Node *leaf = findLeaf(key, length, true);
+    bool exact;
+    int pos = lowerBound(leaf, key, length, &exact);
+    if (!exact) return (false);
+
+    removeRecord(leaf, pos);
+    m_entries--;
+    if (leaf->m_count == 0 && leaf != m_root) {
+        removeNode(static_cast<int>(m_path.size()), leaf);
+    }
+    return (true);
+}
+
+/**
+ * Remove an empty node from its parent. The neighboring child takes over the
+ * range of keys that the empty node was responsible for.
+ */
+void CompactBTreeIndex::removeNode(int depth, Node *node) {
+    if (node->m_leaf) {
+        if (node->m_prev != NULL) node->m_prev->m_next = node->m_next;
+        if (node->m_next != NULL) node->m_next->m_prev = node->m_prev;
+    }
+    freeNode(node);
+
+    Node *parent = m_path[depth - 1].node;
+    const int idx = m_path[depth - 1].childIdx;
+    if (idx < parent->m_count) {
+        removeRecord(parent, idx);
+    } else if (parent->m_count > 0) {
+        parent->m_upper = childAt(parent, parent->m_count - 1);
+        removeRecord(parent, parent->m_count - 1);
+    } else {
+        parent->m_upper = NULL;
+    }
+
+    if (parent->m_count == 0 && parent->m_upper == NULL) {
+        if (parent == m_root) {
+            freeNode(parent);
+            m_root = NULL;
+            m_height = 0;
+        } else {
+            removeNode(depth - 1, parent);
+        }
+    } else if (parent == m_root && parent->m_count == 0) {
+        // The root only has one child left, so that becomes the new root
+        m_root = parent->m_upper;
+        freeNode(parent);
+        m_height--;
+    }
+}
+
+// ----------------------------------------------------------------------------
+// ITERATION
+// ----------------------------------------------------------------------------
+
+CompactBTreeIndex::Cursor CompactBTreeIndex::seek(const uint8_t *key, int length) {
+    Cursor cursor = { NULL, 0 };
+    if (m_root == NULL) return (cursor);
+    cursor.leaf = findLeaf(key, length, false);
+    cursor.slot = lowerBound(cursor.leaf, key, length, NULL);
+    normalize(cursor, true);
+    return (cursor);
+}
+
+/**
+ * Move the cursor to the neighboring leaf if it went past the end of its leaf.
+ * When we move to a new leaf, we prefetch the one after it so that it is
+ * already in the cache by the time a range scan gets there.
+ */
+void CompactBTreeIndex::normalize(Cursor &cursor, bool forward) {
+    if (forward) {
+        while (cursor.leaf != NULL && cursor.slot >= cursor.leaf->m_count) {
+            cursor.leaf = cursor.leaf->m_next;
+            cursor.slot = 0;
+            if (cursor.leaf != NULL && cursor.leaf->m_next != NULL) {
+                __builtin_prefetch(cursor.leaf->m_next);
+            }
+        } // WHILE
+    } else {
+        while (cursor.leaf != NULL && cursor.slot < 0) {
+            cursor.leaf = cursor.leaf->m_prev;
+            if (cursor.leaf != NULL) {
+                cursor.slot = cursor.leaf->m_count - 1;
+                if (cursor.leaf->m_prev != NULL) {
+                    __builtin_prefetch(cursor.leaf->m_prev);
+                }
+            }
+        } // WHILE
+    }
+}
+
+/**
+ * Point m_match at the entry under the cursor if it has the key in m_matchKey
+ */
+void CompactBTreeIndex::matchKey(Cursor cursor) {
+    if (cursor.leaf != NULL && startsWith(cursor.leaf, cursor.slot, m_matchKey, m_matchKeyLength)) {
+        m_match.move(valueAt(cursor.leaf, cursor.slot));
+    } else {
+        m_match.move(NULL);
+    }
+}
+
+// ----------------------------------------------------------------------------
+// TABLEINDEX API
+// ----------------------------------------------------------------------------
+
+struct CompactBTreeIndex::EntryComparator {
+    const uint8_t *m_keys;
+    EntryComparator(const uint8_t *keys) : m_keys(keys) {}
+    bool operator()(const Entry &a, const Entry &b) const {
+        return (compareKeys(m_keys + a.offset, a.length, m_keys + b.offset, b.length) < 0);
+    }
+};
+
+CompactBTreeIndex::CompactBTreeIndex(const TableIndexScheme &scheme) :
+    TableIndex(scheme),
+    m_root(NULL),
+    m_height(0),
+    m_entries(0),
+    m_nodes(0),
+    m_begin(true),
+    m_matchKeyLength(0)
+{
+    m_cursor.leaf = NULL;
+    m_cursor.slot = 0;
+    m_keyCursor = m_cursor;
+    m_match = TableTuple(m_tupleSchema);
+}
+
+CompactBTreeIndex::~CompactBTreeIndex() {
+    if (m_root != NULL) freeTree(m_root);
+}
+
+bool CompactBTreeIndex::addEntry(const TableTuple *tuple) {
+    int length = encodeEntry(tuple, m_key1);
+    ++m_inserts;
+    return insertEntry(m_key1, length, tuple->address());
+}
+
+int CompactBTreeIndex::addEntries(const std::vector<const void*> &tuples) {
+    // encode the keys for the whole batch and sort them so that the
+    // tree is filled in key order
+    std::vector<uint8_t> keys(tuples.size() * MAX_ENTRY_SIZE);
+    std::vector<Entry> entries;
+    entries.reserve(tuples.size());
+    TableTuple tuple(m_tupleSchema);
+    uint32_t offset = 0;
+    for (size_t i = 0; i < tuples.size(); ++i) {
+        tuple.move(const_cast<void*>(tuples[i]));
+        Entry e = { offset, 0, const_cast<void*>(tuples[i]) };
+        e.length = static_cast<uint16_t>(encodeEntry(&tuple, &keys[offset]));
+        entries.push_back(e);
+        offset += e.length;
+    } // FOR
+
+    if (!entries.empty()) {
+        std::stable_sort(entries.begin(), entries.end(), EntryComparator(&keys[0]));
+    }
+
+    // the sort is stable, so the first of any duplicate keys in the
+    // batch wins just like it would have with addEntry()
+    int failed = 0;
+    for (size_t i = 0; i < entries.size(); ++i) {
+        ++m_inserts;
+        if (!insertEntry(&keys[entries[i].offset], entries[i].length, entries[i].value)) ++failed;
+    } // FOR
+    return (failed);
+}
+
+bool CompactBTreeIndex::deleteEntry(const TableTuple *tuple) {
+    int length = encodeEntry(tuple, m_key1);
+    ++m_deletes;
+    return removeEntry(m_key1, length);
+}
+
+bool CompactBTreeIndex::replaceEntry(const TableTuple *oldTupleValue, const TableTuple *newTupleValue) {
+    int oldLength = encodeKey(oldTupleValue, column_indices_, m_key1);
+    int newLength = encodeKey(newTupleValue, column_indices_, m_key2);
+    if (compareKeys(m_key1, oldLength, m_key2, newLength) == 0) {
+        // no update is needed for this index
+        return true;
+    }
+
+    // For non-unique indexes, the tuple has already been updated in place,
+    // so the old entry is under the address of the new tuple
+    if (!is_unique_index_) {
+        uint64_t address = reinterpret_cast<uintptr_t>(newTupleValue->address());
+        writeBigEndian(address, sizeof(uint64_t), m_key1 + oldLength);
+        writeBigEndian(address, sizeof(uint64_t), m_key2 + newLength);
+        oldLength += sizeof(uint64_t);
+        newLength += sizeof(uint64_t);
+    }
+    bool deleted = removeEntry(m_key1, oldLength);
+    bool inserted = insertEntry(m_key2, newLength, newTupleValue->address());
+    ++m_updates;
+    return (deleted && inserted);
+}
+
+bool CompactBTreeIndex::checkForIndexChange(const TableTuple *lhs, const TableTuple *rhs) {
+    int lhsLength = encodeKey(lhs, column_indices_, m_key1);
+    int rhsLength = encodeKey(rhs, column_indices_, m_key2);
+    return (compareKeys(m_key1, lhsLength, m_key2, rhsLength) != 0);
+}
+
+bool CompactBTreeIndex::exists(const TableTuple *values) {
+    ++m_lookups;
+    int length = encodeKey(values, column_indices_, m_key1);
+    Cursor cursor = seek(m_key1, length);
+    return (cursor.leaf != NULL && startsWith(cursor.leaf, cursor.slot, m_key1, length));
+}
+
+bool CompactBTreeIndex::moveToKey(const TableTuple *searchKey) {
+    ++m_lookups;
+    m_begin = true;
+    m_matchKeyLength = encodeKey(searchKey, NULL, m_matchKey);
+    m_keyCursor = seek(m_matchKey, m_matchKeyLength);
+    matchKey(m_keyCursor);
+    return !m_match.isNullTuple();
+}
+
+bool CompactBTreeIndex::moveToTuple(const TableTuple *searchTuple) {
+    ++m_lookups;
+    m_begin = true;
+    m_matchKeyLength = encodeKey(searchTuple, column_indices_, m_matchKey);
+    m_keyCursor = seek(m_matchKey, m_matchKeyLength);
+    matchKey(m_keyCursor);
+    return !m_match.isNullTuple();
+}
+
+void CompactBTreeIndex::moveToKeyOrGreater(const TableTuple *searchKey) {
+    ++m_lookups;
+    m_begin = true;
+    int length = encodeKey(searchKey, NULL, m_key1);
+    m_cursor = seek(m_key1, length);
+}
+
+void CompactBTreeIndex::moveToGreaterThanKey(const TableTuple *searchKey) {
+    ++m_lookups;
+    m_begin = true;
+    // Every entry with this key is less than the key followed by 0xFF bytes,
+    // since an entry is at most the key plus the tuple address
+    int length = encodeKey(searchKey, NULL, m_key1);
+    ::memset(m_key1 + length, 0xFF, sizeof(uint64_t));
+    m_cursor = seek(m_key1, length + static_cast<int>(sizeof(uint64_t)));
+}
+
+void CompactBTreeIndex::moveToEnd(bool begin) {
+    ++m_lookups;
+    m_begin = begin;
+    m_cursor.leaf = NULL;
+    m_cursor.slot = 0;
+    if (m_root != NULL) {
+        Node *node = m_root;
+        while (!node->m_leaf) {
+            node = (begin ? childAt(node, 0) : node->m_upper);
+        } // WHILE
+        m_cursor.leaf = node;
+        m_cursor.slot = (begin ? 0 : node->m_count - 1);
+        normalize(m_cursor, begin);
+    }
+
+    // advanceToNextKey() starts from the first key in this direction
+    m_keyCursor = m_cursor;
+    m_matchKeyLength = 0;
+    m_match.move(NULL);
+    if (m_keyCursor.leaf != NULL) {
+        m_matchKeyLength = copyKey(m_keyCursor.leaf, m_keyCursor.slot, m_matchKey) -
+                           (is_unique_index_ ? 0 : static_cast<int>(sizeof(uint64_t)));
+        m_match.move(valueAt(m_keyCursor.leaf, m_keyCursor.slot));
+    }
+}
+
+TableTuple CompactBTreeIndex::nextValue() {
+    TableTuple retval(m_tupleSchema);
+    if (m_cursor.leaf == NULL) return TableTuple();
+
+    retval.move(valueAt(m_cursor.leaf, m_cursor.slot));
+    m_cursor.slot += (m_begin ? 1 : -1);
+    normalize(m_cursor, m_begin);
+
+    // Prefetch the next tuple while the caller is looking at this one
+    if (m_cursor.leaf != NULL) {
+        __builtin_prefetch(valueAt(m_cursor.leaf, m_cursor.slot));
+    }
+    return retval;
+}
+
+TableTuple CompactBTreeIndex::nextValueAtKey() {
+    if (m_match.isNullTuple()) return m_match;
+    TableTuple retval = m_match;
+    m_keyCursor.slot++;
+    normalize(m_keyCursor, true);
+    matchKey(m_keyCursor);
+    return retval;
+}
+
+bool CompactBTreeIndex::advanceToNextKey() {
+    // Skip over the rest of the entries for the current key
+    while (m_keyCursor.leaf != NULL &&
+           startsWith(m_keyCursor.leaf, m_keyCursor.slot, m_matchKey, m_matchKeyLength)) {
+        m_keyCursor.slot += (m_begin ? 1 : -1);
+        normalize(m_keyCursor, m_begin);
+    } // WHILE
+    if (m_keyCursor.leaf == NULL) {
+        m_match.move(NULL);
+        return false;
+    }
+
+    // Non-unique indexes have the tuple address at the end of every entry
+    m_matchKeyLength = copyKey(m_keyCursor.leaf, m_keyCursor.slot, m_matchKey) -
+                       (is_unique_index_ ? 0 : static_cast<int>(sizeof(uint64_t)));
+    m_match.move(valueAt(m_keyCursor.leaf, m_keyCursor.slot));
+    return !m_match.isNullTuple();
+}
+
+std::string CompactBTreeIndex::debug() const {
+    std::ostringstream buffer;
+    buffer << TableIndex::debug() << std::endl;
+    buffer << "Height: " << m_height << " / Nodes: " << m_nodes << std::endl;
+
+    Node *node = m_root;
+    while (node != NULL && !node->m_leaf) {
+        node = (node->m_count > 0 ? static_cast<Node*>(valueAt(node, 0)) : node->m_upper);
+    } // WHILE
+    for (; node != NULL; node = node->m_next) {
+        for (int i = 0; i < node->m_count; i++) {
+            TableTuple retval(m_tupleSchema);
+            retval.move(valueAt(node, i));
+            buffer << retval.debugNoHeader() << std::endl;
+        } // FOR
+    } // FOR
+    std::string ret(buffer.str());
+    return (ret);
+}
+
+}
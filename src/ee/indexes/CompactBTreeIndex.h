@@ -0,0 +1,218 @@
+/* Copyright (C) 2012 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#ifndef HSTORECOMPACTBTREEINDEX_H
+#define HSTORECOMPACTBTREEINDEX_H
+
+#include <stdint.h>
+#include <cstddef>
+#include <string>
+#include <vector>
+#include "common/tabletuple.h"
+#include "indexes/tableindex.h"
+
+namespace voltdb {
+
+/**
+ * Ordered index that stores its entries in a B+tree of fixed-size nodes that
+ * are a whole number of cache lines and are aligned to them.
+ *
+ * Instead of keeping a full GenericKey copy per entry, every key is encoded into
+ * a byte string that sorts with memcmp() in the same order as the key's columns.
+ * Each node stores the prefix that all of its keys have in common only once, and
+ * then just the remaining suffix of each key. The separators in the inner nodes
+ * are truncated to the shortest string that still splits their two children.
+ * The directory of each node also keeps the first four bytes of every suffix so
+ * that most comparisons during a binary search never leave the directory.
+ * Range scans prefetch the next leaf and the next tuple while the caller is
+ * processing the current one.
+ *
+ * Non-unique indexes append the tuple's address to every key so that all of
+ * the entries in the tree are distinct. Nodes are only freed once they are
+ * empty; we never merge nodes that are underfull.
+ *
+ * This only supports keys whose encoded length is at most MAX_KEY_SIZE bytes.
+ * Use getMaxKeyLength() to check whether a key schema can use this index.
+ * @see TableIndex
+ */
+class CompactBTreeIndex : public TableIndex {
+    friend class TableIndexFactory;
+
+    public:
+        static const int CACHE_LINE_SIZE = 64;
+        static const int NODE_SIZE = 16 * CACHE_LINE_SIZE;
+        static const int MAX_KEY_SIZE = 160;
+
+        /**
+         * Returns the maximum length of an encoded key for the given key schema,
+         * or -1 if the key schema contains a column type that we can't encode.
+         */
+        static int getMaxKeyLength(const TupleSchema *keySchema);
+
+        ~CompactBTreeIndex();
+
+        bool addEntry(const TableTuple *tuple);
+        int addEntries(const std::vector<const void*> &tuples);
+        bool deleteEntry(const TableTuple *tuple);
+        bool replaceEntry(const TableTuple *oldTupleValue, const TableTuple *newTupleValue);
+        bool checkForIndexChange(const TableTuple *lhs, const TableTuple *rhs);
+        bool exists(const TableTuple *values);
+
+        bool moveToKey(const TableTuple *searchKey);
+        bool moveToTuple(const TableTuple *searchTuple);
+        void moveToKeyOrGreater(const TableTuple *searchKey);
+        void moveToGreaterThanKey(const TableTuple *searchKey);
+        void moveToEnd(bool begin);
+        TableTuple nextValue();
+        TableTuple nextValueAtKey();
+        bool advanceToNextKey();
+
+        size_t getSize() const { return m_entries; }
+        std::string getTypeName() const { return "CompactBTreeIndex"; }
+        std::string debug() const;
+
+        /** The number of bytes allocated for the nodes of the tree */
+        size_t getMemorySize() const { return m_nodes * NODE_SIZE; }
+        /** The number of levels in the tree */
+        int getHeight() const { return m_height; }
+
+    protected:
+        CompactBTreeIndex(const TableIndexScheme &scheme);
+
+    private:
+        /** The largest key that we ever store in a node (including the tuple address) */
+        static const int MAX_ENTRY_SIZE = MAX_KEY_SIZE + sizeof(uint64_t);
+        /** Escaped zero bytes in strings can make a key up to twice as long before we check it */
+        static const int MAX_BUFFER_SIZE = 2 * MAX_KEY_SIZE + sizeof(uint64_t);
+
+        struct Slot {
+            uint16_t offset;
+            uint16_t length;
+            uint32_t head;
+        };
+
+        struct Node {
+            uint16_t m_count;
+            uint16_t m_prefixLength;
+            /** Where the lowest record starts in m_data */
+            uint16_t m_dataOffset;
+            /** The number of bytes of removed records that are still in m_data */
+            uint16_t m_freeBytes;
+            bool m_leaf;
+            /** Inner nodes: the child for every key greater than all of the separators */
+            Node *m_upper;
+            /** Leaf nodes: the neighboring leaves */
+            Node *m_prev;
+            Node *m_next;
+            /**
+             * The slot directory grows up from the start and the records grow down from the end.
+             * The common prefix is stored at the very end.
+             */
+            uint8_t m_data[1];
+        };
+
+        /** A full key that was copied out of a node into m_arena */
+        struct Entry {
+            uint32_t offset;
+            uint16_t length;
+            void *value;
+        };
+
+        struct EntryComparator;
+
+        struct PathEntry {
+            Node *node;
+            int childIdx;
+        };
+
+        struct Cursor {
+            Node *leaf;
+            int slot;
+        };
+
+        static const int DATA_SIZE = NODE_SIZE - offsetof(Node, m_data);
+
+        // Key Encoding
+        int encodeKey(const TableTuple *tuple, const int *columnIndices, uint8_t *key) const;
+        int encodeEntry(const TableTuple *tuple, uint8_t *key) const;
+
+        // Node Operations
+        Node *allocateNode(bool leaf);
+        void freeNode(Node *node);
+        void freeTree(Node *node);
+        static Slot *slots(Node *node) { return reinterpret_cast<Slot*>(node->m_data); }
+        static const uint8_t *prefix(const Node *node) { return node->m_data + DATA_SIZE - node->m_prefixLength; }
+        static void *valueAt(const Node *node, int idx);
+        static void setValueAt(Node *node, int idx, void *value);
+        static int freeSpace(const Node *node);
+        static int lowerBound(Node *node, const uint8_t *key, int length, bool *exact);
+        static bool startsWith(Node *node, int idx, const uint8_t *key, int length);
+        static int copyKey(Node *node, int idx, uint8_t *key);
+        static void insertRecord(Node *node, const uint8_t *key, int length, void *value, int idx);
+        static void removeRecord(Node *node, int idx);
+        void collectEntries(Node *node, int pos, const uint8_t *key, int length, void *value);
+        static int buildSize(const uint8_t *arena, const Entry *entries, int count);
+        static int splitPoint(const Entry *entries, int count);
+        static void buildNode(Node *node, const uint8_t *arena, const Entry *entries, int count);
+        Node *childAt(Node *node, int idx) { return (idx < node->m_count ? static_cast<Node*>(valueAt(node, idx)) : node->m_upper); }
+        void setChildAt(Node *node, int idx, Node *child);
+
+        // Tree Operations
+        Node *findLeaf(const uint8_t *key, int length, bool recordPath);
+        bool insertEntry(const uint8_t *key, int length, void *value);
+        void insertIntoNode(int depth, Node *node, int pos, const uint8_t *key, int length, void *value);
+        void splitNode(int depth, Node *node, int pos, bool breaksPrefix);
+        void insertSeparator(int depth, Node *left, Node *right, const uint8_t *key, int length);
+        bool removeEntry(const uint8_t *key, int length);
+        void removeNode(int depth, Node *node);
+
+        // Iteration
+        Cursor seek(const uint8_t *key, int length);
+        void normalize(Cursor &cursor, bool forward);
+        void matchKey(Cursor cursor);
+
+        Node *m_root;
+        int m_height;
+        size_t m_entries;
+        size_t m_nodes;
+
+        std::vector<PathEntry> m_path;
+        std::vector<uint8_t> m_arena;
+        std::vector<Entry> m_arenaEntries;
+        uint8_t m_key1[MAX_BUFFER_SIZE];
+        uint8_t m_key2[MAX_BUFFER_SIZE];
+
+        // iteration stuff
+        bool m_begin;
+        Cursor m_cursor;
+        Cursor m_keyCursor;
+        uint8_t m_matchKey[MAX_BUFFER_SIZE];
+        int m_matchKeyLength;
+        TableTuple m_match;
+};
+
+}
+
+#endif
@@ -55,6 +55,7 @@
 #include <cassert>
 #include <iostream>
 #include <sstream>
+#include <utility>
 
 namespace voltdb {
 
@@ -595,5 +596,23 @@ public:
     TupleSchema *m_schema;
 };
 
+/**
+ * Orders (key, tuple address) entries by their key using an index's
+ * comparator. Used by the tree indexes to sort a batch of entries
+ * before adding it.
+ */
+template <typename KeyType, class KeyComparator>
+class IndexEntryComparator {
+  public:
+    IndexEntryComparator(const KeyComparator &comparator) : m_comparator(comparator) {}
+
+    inline bool operator()(const std::pair<KeyType, const void*> &lhs,
+                           const std::pair<KeyType, const void*> &rhs) const {
+        return m_comparator(lhs.first, rhs.first);
+    }
+
+    KeyComparator m_comparator;
+};
+
 }
 #endif // INDEXKEY_H
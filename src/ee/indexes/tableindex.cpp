@@ -97,6 +97,17 @@ std::string TableIndex::debug() const
     return (ret);
 }
 
+int TableIndex::addEntries(const std::vector<const void*> &tuples)
+{
+    TableTuple tuple(m_tupleSchema);
+    int failed = 0;
+    for (std::vector<const void*>::const_iterator i = tuples.begin(); i != tuples.end(); ++i) {
+        tuple.move(const_cast<void*>(*i));
+        if (!addEntry(&tuple)) ++failed;
+    }
+    return failed;
+}
+
 void TableIndex::printReport()
 {
     std::cout << name_ << ",";
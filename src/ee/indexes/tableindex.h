@@ -130,6 +130,16 @@ public:
      */
     virtual bool addEntry(const TableTuple *tuple) = 0;
 
+    /**
+     * adds a batch of tuples (given by their addresses) to the index.
+     * The default implementation calls addEntry() for each tuple; the
+     * tree indexes sort the batch by key first so that it is inserted
+     * in one sequential pass.
+     * @return the number of tuples that could not be added because their
+     * key was already in this (unique) index
+     */
+    virtual int addEntries(const std::vector<const void*> &tuples);
+
     /**
      * removes the index entry linked to given value (and tuple
      * pointer, if it's non-unique index).
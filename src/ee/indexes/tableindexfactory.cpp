@@ -51,6 +51,7 @@
 #include "indexes/tableindex.h"
 #include "indexes/indexkey.h"
 #include "indexes/arrayuniqueindex.h"
+#include "indexes/CompactBTreeIndex.h"
 #include "indexes/BinaryTreeUniqueIndex.h"
 #include "indexes/BinaryTreeMultiMapIndex.h"
 #include "indexes/HashTableUniqueIndex.h"
@@ -78,6 +79,20 @@ TableIndex *TableIndexFactory::getInstance(const TableIndexScheme &scheme) {
     VOLT_TRACE("Creating index for %s.\n%s", scheme.name.c_str(), keySchema->debug().c_str());
     const int keySize = keySchema->tupleLength();
 
+    // the compact b+tree encodes its keys as byte strings, so it can only
+    // take keys whose encoding is guaranteed to fit in one of its nodes
+    if (type == BTREE_INDEX) {
+        int maxKeyLength = CompactBTreeIndex::getMaxKeyLength(keySchema);
+        if (maxKeyLength >= 0 && maxKeyLength <= CompactBTreeIndex::MAX_KEY_SIZE) {
+            return new CompactBTreeIndex(schemeCopy);
+        }
+        VOLT_INFO("Producing a tree index for %s: "
+                  "btree index not currently supported for this index key.\n",
+                  scheme.name.c_str());
+        type = BALANCED_TREE_INDEX;
+        schemeCopy.setTree();
+    }
+
     // no int specialization beyond this point
     if (keySize > sizeof(int64_t) * 4) {
         ints_only = false;
@@ -46,6 +46,10 @@
 #include <sstream>
 #include <cassert>
 #include <cstdio>
+#include <algorithm>
+#include <vector>
+#include <unistd.h>
+#include <sys/mman.h>
 
 #include "boost/scoped_ptr.hpp"
 #include "storage/persistenttable.h"
@@ -57,7 +61,9 @@
 #include "common/UndoQuantum.h"
 #include "common/executorcontext.hpp"
 #include "common/FatalException.hpp"
+#include "common/SerializableEEException.h"
 #include "common/types.h"
+#include "anticache/AntiCacheDB.h"
 #include "common/RecoveryProtoMessage.h"
 #include "indexes/tableindex.h"
 #include "indexes/tableindexfactory.h"
@@ -87,8 +93,13 @@ PersistentTable::PersistentTable(ExecutorContext *ctx, bool exportEnabled) :
     Table(TABLE_BLOCKSIZE), m_executorContext(ctx), m_uniqueIndexes(NULL), m_uniqueIndexCount(0), m_allowNulls(NULL),
     m_indexes(NULL), m_indexCount(0), m_pkeyIndex(NULL), m_wrapper(NULL),
     m_tsSeqNo(0), stats_(this), m_exportEnabled(exportEnabled),
-    m_COWContext(NULL)
+    m_COWContext(NULL), m_bulkLoad(false), m_bulkLoadStart(0), m_bulkLoadELMark(0), m_bulkLoadSeqNo(0)
 {
+#ifndef MEMCHECK
+    // Each tuple is allocated separately in the memcheck build, so there
+    // are no blocks for us to evict
+    m_trackBlockAccess = (ctx != NULL && ctx->m_antiCacheEnabled);
+#endif
     if (exportEnabled)
     {
         m_wrapper = new TupleStreamWrapper(m_executorContext->m_partitionId,
@@ -99,7 +110,9 @@ PersistentTable::PersistentTable(ExecutorContext *ctx, bool exportEnabled) :
 
 PersistentTable::~PersistentTable() {
     // delete all tuples to free strings
-    voltdb::TableIterator ti(this);
+    // The strings for evicted tuples are never evicted, but we have no way
+    // to get to them without reading the blocks back in, so they are leaked
+    voltdb::TableIterator ti(this, false, true);
     voltdb::TableTuple tuple(m_schema);
 
     while (ti.next(tuple)) {
@@ -132,6 +145,7 @@ PersistentTable::~PersistentTable() {
 // ------------------------------------------------------------------
 void PersistentTable::deleteAllTuples(bool freeAllocatedStrings) {
     // nothing interesting
+    readAllEvictedBlocks();
     voltdb::TableIterator ti(this);
     voltdb::TableTuple tuple(m_schema);
     while (ti.next(tuple)) {
@@ -684,13 +698,103 @@ void PersistentTable::processLoadedTuple(bool allowExport, TableTuple &tuple) {
  * to do add tuples to indexes
  */
 void PersistentTable::populateIndexes(int tupleCount) {
-    // populate indexes. walk the contiguous memory in the inner loop.
+    // in bulk-load mode the indexes are built when the mode is switched off
+    if (m_bulkLoad || m_indexCount == 0) return;
+
+    // populate indexes. walk the contiguous memory once and then let
+    // each index add the whole batch in key order.
+    std::vector<const void*> tuples;
+    tuples.reserve(tupleCount);
+    for (int j = 0; j < tupleCount; ++j) {
+        tuples.push_back(dataPtrForTuple((int) m_usedTuples + j));
+    }
     for (int i = m_indexCount - 1; i >= 0;--i) {
+        m_indexes[i]->addEntries(tuples);
+    }
+}
+
+void PersistentTable::setBulkLoad(bool enable) {
+    if (enable) {
+        if (!m_bulkLoad) {
+            m_bulkLoad = true;
+            m_bulkLoadStart = m_usedTuples;
+            m_bulkLoadELMark = (m_exportEnabled && m_wrapper != NULL) ? m_wrapper->bytesUsed() : 0;
+            m_bulkLoadSeqNo = m_tsSeqNo;
+            VOLT_DEBUG("Enabled bulk-load mode for table '%s' at tuple #%d",
+                       m_name.c_str(), (int) m_bulkLoadStart);
+        }
+        return;
+    }
+    if (!m_bulkLoad) return;
+    m_bulkLoad = false;
+
+    // Collect all of the deferred tuples and check the not-null
+    // constraints for the batch while we are walking the blocks
+    std::vector<const void*> tuples;
+    tuples.reserve(m_usedTuples - m_bulkLoadStart);
+    int nullViolations = 0;
+    for (uint32_t j = m_bulkLoadStart; j < m_usedTuples; ++j) {
+        m_tmpTarget1.move(dataPtrForTuple((int) j));
+        if (!m_tmpTarget1.isActive()) continue;
+        if (!checkNulls(m_tmpTarget1)) ++nullViolations;
+        tuples.push_back(m_tmpTarget1.address());
+    }
+    VOLT_DEBUG("Building %d indexes for %d bulk-loaded tuples in table '%s'",
+               m_indexCount, (int) tuples.size(), m_name.c_str());
+
+    // Build each index in one sorted pass. The unique indexes report the
+    // tuples that they could not add because their key already existed.
+    int uniqueViolations = 0;
+    for (int i = m_indexCount - 1; i >= 0; --i) {
         TableIndex *index = m_indexes[i];
-        for (int j = 0; j < tupleCount; ++j) {
-            m_tmpTarget1.move(dataPtrForTuple((int) m_usedTuples + j));
-            index->addEntry(&m_tmpTarget1);
+        index->ensureCapacity((uint32_t) (index->getSize() + tuples.size()));
+        int failed = index->addEntries(tuples);
+        if (failed > 0 && index->isUniqueIndex()) {
+            VOLT_ERROR("%d bulk-loaded tuples in table '%s' violate unique index '%s'",
+                       failed, m_name.c_str(), index->getName().c_str());
+            uniqueViolations += failed;
+        }
+    }
+
+    if (nullViolations > 0 || uniqueViolations > 0) {
+        rollbackBulkLoad(tuples);
+        char message[256];
+        snprintf(message, 256, "Bulk load of table '%s' failed: %d tuples violate"
+                 " a not-null constraint and %d tuples violate a unique constraint",
+                 m_name.c_str(), nullViolations, uniqueViolations);
+        throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION, message);
+    }
+}
+
+/*
+ * Remove all of the given bulk-loaded tuples from the indexes, the views,
+ * the export stream and the table itself.
+ */
+void PersistentTable::rollbackBulkLoad(const std::vector<const void*> &tuples) {
+    VOLT_DEBUG("Rolling back %d bulk-loaded tuples in table '%s'",
+               (int) tuples.size(), m_name.c_str());
+    TableTuple tuple(m_schema);
+    for (size_t j = 0; j < tuples.size(); ++j) {
+        tuple.move(const_cast<void*>(tuples[j]));
+        for (int i = m_indexCount - 1; i >= 0; --i) {
+            TableIndex *index = m_indexes[i];
+            // A unique index only has an entry for this tuple if it won its key.
+            // Otherwise the entry belongs to another tuple that we have to keep.
+            if (index->isUniqueIndex() &&
+                (!index->moveToTuple(&tuple) || index->nextValueAtKey().address() != tuple.address())) {
+                continue;
+            }
+            index->deleteEntry(&tuple);
+        }
+        for (int i = 0; i < m_views.size(); i++) {
+            m_views[i]->processTupleDelete(tuple);
         }
+        tuple.freeObjectColumns();
+        deleteTupleStorage(tuple);
+    }
+    if (m_exportEnabled && m_wrapper != NULL) {
+        m_wrapper->rollbackTo(m_bulkLoadELMark);
+        m_tsSeqNo = m_bulkLoadSeqNo;
     }
 }
 
@@ -761,6 +865,8 @@ bool PersistentTable::activateCopyOnWrite(TupleSerializer *serializer, int32_t p
     if (m_tupleCount == 0) {
         return false;
     }
+    // The COW iterator goes through the blocks directly
+    readAllEvictedBlocks();
     m_COWContext.reset(new CopyOnWriteContext( this, serializer, partitionId));
     return false;
 }
@@ -790,6 +896,7 @@ bool PersistentTable::activateRecoveryStream(int32_t tableId) {
     if (m_recoveryContext != NULL) {
         return true;
     }
+    readAllEvictedBlocks();
     m_recoveryContext.reset(new RecoveryContext( this, tableId ));
     return false;
 }
@@ -837,6 +944,7 @@ size_t PersistentTable::hashCode() {
     TableIndexScheme sourceScheme = m_pkeyIndex->getScheme();
     sourceScheme.setTree();
     boost::scoped_ptr<TableIndex> pkeyIndex(TableIndexFactory::getInstance(sourceScheme));
+    readAllEvictedBlocks();
     TableIterator iter(this);
     TableTuple tuple(schema());
     while (iter.next(tuple)) {
@@ -856,4 +964,130 @@ size_t PersistentTable::hashCode() {
     return hashCode;
 }
 
+// ------------------------------------------------------------------
+// ANTI-CACHE
+// ------------------------------------------------------------------
+
+int64_t PersistentTable::evictBlocks(int64_t bytes) {
+#ifdef MEMCHECK_NOFREELIST
+    return 0;
+#else
+    AntiCacheDB *antiCacheDB = m_executorContext->getAntiCacheDB();
+    if (m_trackBlockAccess == false || antiCacheDB == NULL) {
+        return 0;
+    }
+    // We can't move blocks out from under a snapshot or a recovery stream
+    if (m_COWContext != NULL || m_recoveryContext != NULL) {
+        VOLT_DEBUG("Not evicting blocks from table %s because it is being scanned", m_name.c_str());
+        return 0;
+    }
+
+    // Only full blocks below the high-water mark are candidates. The last
+    // block is still being filled in by new inserts.
+    const uint32_t numFullBlocks = m_usedTuples / m_tuplesPerBlock;
+    std::vector<std::pair<int64_t, uint32_t> > candidates;
+    for (uint32_t block = 0; block < numFullBlocks; block++) {
+        if (m_evictedBlockIds[block] == -1) {
+            candidates.push_back(std::pair<int64_t, uint32_t>(m_blockAccessTime[block], block));
+        }
+    } // FOR
+    // Coldest blocks first
+    std::sort(candidates.begin(), candidates.end());
+
+    const long blockBytes = static_cast<long>(m_tuplesPerBlock) * m_tupleLength;
+    const uintptr_t pageSize = static_cast<uintptr_t>(sysconf(_SC_PAGESIZE));
+    int64_t evicted = 0;
+    for (std::vector<std::pair<int64_t, uint32_t> >::const_iterator iter = candidates.begin();
+         iter != candidates.end() && evicted < bytes; ++iter) {
+        const uint32_t block = iter->second;
+        char *blockStart = m_data[block];
+        char *blockEnd = blockStart + blockBytes;
+
+        // Pull this block's holes out of the free list so that inserts
+        // never put a new tuple into memory that we are about to release
+        std::vector<char*> &holes = m_evictedHoles[block];
+        std::vector<char*> remaining;
+        remaining.reserve(m_holeFreeTuples.size());
+        for (std::vector<char*>::const_iterator hole = m_holeFreeTuples.begin();
+             hole != m_holeFreeTuples.end(); ++hole) {
+            if (*hole >= blockStart && *hole < blockEnd) {
+                holes.push_back(*hole);
+            } else {
+                remaining.push_back(*hole);
+            }
+        } // FOR
+        m_holeFreeTuples.swap(remaining);
+
+        const int32_t blockId = antiCacheDB->nextBlockId();
+        antiCacheDB->writeBlock(m_name, blockId, blockStart, blockBytes);
+        m_evictedBlockIds[block] = blockId;
+        m_evictedBlockTuples[block] = m_tuplesPerBlock - static_cast<uint32_t>(holes.size());
+        m_evictedBlockCount++;
+
+        // Give the pages back to the OS but keep the address range, so that
+        // the block is read back into the same place and all of the index
+        // entries that point into it stay valid
+        uintptr_t start = (reinterpret_cast<uintptr_t>(blockStart) + pageSize - 1) & ~(pageSize - 1);
+        uintptr_t end = reinterpret_cast<uintptr_t>(blockEnd) & ~(pageSize - 1);
+        if (end > start) {
+            madvise(reinterpret_cast<void*>(start), end - start, MADV_DONTNEED);
+        }
+        evicted += blockBytes;
+
+        VOLT_DEBUG("Evicted block %d from table %s [blockId=%d, tuples=%u]",
+                   block, m_name.c_str(), blockId, m_evictedBlockTuples[block]);
+    } // FOR
+    return evicted;
+#endif
+}
+
+int64_t PersistentTable::readEvictedBlocks(const std::vector<int32_t> &blockIds) {
+#ifdef MEMCHECK_NOFREELIST
+    return 0;
+#else
+    AntiCacheDB *antiCacheDB = m_executorContext->getAntiCacheDB();
+    if (m_evictedBlockCount == 0 || antiCacheDB == NULL) {
+        return 0;
+    }
+
+    const long blockBytes = static_cast<long>(m_tuplesPerBlock) * m_tupleLength;
+    int64_t read = 0;
+    for (std::vector<int32_t>::const_iterator id = blockIds.begin(); id != blockIds.end(); ++id) {
+        // The block may have already been read back in by an earlier request
+        std::vector<int32_t>::iterator pos = std::find(m_evictedBlockIds.begin(), m_evictedBlockIds.end(), *id);
+        if (*id == -1 || pos == m_evictedBlockIds.end()) continue;
+        const uint32_t block = static_cast<uint32_t>(pos - m_evictedBlockIds.begin());
+
+        antiCacheDB->readBlock(m_name, *id, m_data[block], blockBytes);
+        antiCacheDB->removeBlock(m_name, *id);
+
+        // Put the block's holes back into the free list
+        std::map<uint32_t, std::vector<char*> >::iterator holes = m_evictedHoles.find(block);
+        if (holes != m_evictedHoles.end()) {
+            m_holeFreeTuples.insert(m_holeFreeTuples.end(), holes->second.begin(), holes->second.end());
+            m_evictedHoles.erase(holes);
+        }
+        m_evictedBlockIds[block] = -1;
+        m_evictedBlockTuples[block] = 0;
+        m_evictedBlockCount--;
+        m_blockAccessTime[block] = ++m_accessClock;
+        read += blockBytes;
+
+        VOLT_DEBUG("Read evicted block %d back into table %s [blockId=%d]",
+                   block, m_name.c_str(), *id);
+    } // FOR
+    return read;
+#endif
+}
+
+void PersistentTable::readAllEvictedBlocks() {
+    if (m_evictedBlockCount == 0) return;
+    std::vector<int32_t> blockIds;
+    for (std::vector<int32_t>::const_iterator iter = m_evictedBlockIds.begin();
+         iter != m_evictedBlockIds.end(); ++iter) {
+        if (*iter != -1) blockIds.push_back(*iter);
+    } // FOR
+    readEvictedBlocks(blockIds);
+}
+
 }
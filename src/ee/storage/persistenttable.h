@@ -53,6 +53,7 @@
 #include "common/ids.h"
 #include "common/valuevector.h"
 #include "common/tabletuple.h"
+#include "common/EvictedTupleAccessException.h"
 #include "storage/table.h"
 #include "storage/TupleStreamWrapper.h"
 #include "storage/TableStats.h"
@@ -198,6 +199,20 @@ class PersistentTable : public Table {
      */
     bool activateRecoveryStream(int32_t tableId);
 
+    /**
+     * Switch the table in or out of bulk-load mode. While in bulk-load mode,
+     * loaded tuples are only appended to the table's blocks and the indexes
+     * are left untouched. Switching it off builds every index over the
+     * deferred tuples in one sorted pass and checks the table's constraints
+     * for the whole batch at once. The table must not be read or modified
+     * through anything other than loadTuplesFrom() while in this mode.
+     * If the batch violates a constraint, then every tuple that was loaded
+     * since the mode was enabled is removed again and a SerializableEEException
+     * is thrown, so the table is left as it was before the load.
+     */
+    void setBulkLoad(bool enable);
+    bool isBulkLoad() const { return m_bulkLoad; }
+
     /**
      * Serialize the next message in the stream of recovery messages. Returns true if there are
      * more messages and false otherwise.
@@ -222,6 +237,36 @@ class PersistentTable : public Table {
      */
     size_t hashCode();
 
+    // ------------------------------------------------------------------
+    // ANTI-CACHE
+    // ------------------------------------------------------------------
+
+    /**
+     * Record that the given tuple was accessed through an index. If the
+     * tuple's block has been evicted, then this will throw an
+     * EvictedTupleAccessException for that block.
+     */
+    void accessTuple(const TableTuple &tuple);
+
+    /**
+     * Write the least recently accessed blocks of this table out to the
+     * anti-cache until at least the given number of bytes have been evicted.
+     * Returns the number of bytes that were actually evicted.
+     */
+    int64_t evictBlocks(int64_t bytes);
+
+    /**
+     * Read the given evicted blocks back in from the anti-cache.
+     * Returns the number of bytes that were read back in.
+     */
+    int64_t readEvictedBlocks(const std::vector<int32_t> &blockIds);
+
+    /**
+     * Read all of this table's evicted blocks back in from the anti-cache.
+     * This is needed before operations that scan every block directly.
+     */
+    void readAllEvictedBlocks();
+
     /**
      * Get the current offset in bytes of the export stream for this Table
      * since startup.
@@ -308,8 +353,24 @@ protected:
     // Snapshot stuff
     boost::scoped_ptr<CopyOnWriteContext> m_COWContext;
 
+    // Bulk-load stuff
+    // The tuples in [m_bulkLoadStart, m_usedTuples) have not been added
+    // to the indexes yet.
+    bool m_bulkLoad;
+    uint32_t m_bulkLoadStart;
+    // Where the export stream was when the mode was enabled
+    size_t m_bulkLoadELMark;
+    int64_t m_bulkLoadSeqNo;
+
+    void rollbackBulkLoad(const std::vector<const void*> &tuples);
+
     //Recovery stuff
     boost::scoped_ptr<RecoveryContext> m_recoveryContext;
+
+    // Anti-Cache stuff
+    // The free tuples that were in each evicted block. These are pulled out
+    // of the free list so that new tuples are never put into an evicted block.
+    std::map<uint32_t, std::vector<char*> > m_evictedHoles;
 };
 
 inline TableTuple& PersistentTable::getTempTupleInlined(TableTuple &source) {
@@ -317,6 +378,20 @@ inline TableTuple& PersistentTable::getTempTupleInlined(TableTuple &source) {
     m_tempTuple.copy(source);
     return m_tempTuple;
 }
+
+inline void PersistentTable::accessTuple(const TableTuple &tuple) {
+    if (m_trackBlockAccess == false) return;
+
+    // Find the last block that starts at or before this tuple
+    std::map<char*, uint32_t>::const_iterator iter = m_blockIndexes.upper_bound(tuple.address());
+    assert (iter != m_blockIndexes.begin());
+    --iter;
+    uint32_t block = iter->second;
+    if (m_evictedBlockIds[block] != -1) {
+        throw EvictedTupleAccessException(m_name, std::vector<int32_t>(1, m_evictedBlockIds[block]));
+    }
+    m_blockAccessTime[block] = ++m_accessClock;
+}
 }
 
 #endif
@@ -53,6 +53,7 @@
 #include "common/tabletuple.h"
 #include "common/Pool.hpp"
 #include "common/FatalException.hpp"
+#include "common/EvictedTupleAccessException.h"
 #include "indexes/tableindex.h"
 #include "storage/tableiterator.h"
 #include "storage/persistenttable.h"
@@ -76,6 +77,9 @@ Table::Table(int tableAllocationTargetSize) :
     m_name(""),
     m_ownsTupleSchema(true),
     m_tableAllocationTargetSize(tableAllocationTargetSize),
+    m_trackBlockAccess(false),
+    m_evictedBlockCount(0),
+    m_accessClock(0),
     m_tempTableMemoryInBytes(NULL),
     m_refcount(0)
 {
@@ -213,6 +217,15 @@ void Table::nextFreeTuple(TableTuple *tuple) {
     //cout << "table::nextFreeTuple(" << reinterpret_cast<const void *>(this) << ") m_usedTuples == " << m_usedTuples << endl;
 }
 
+void Table::throwEvictedTupleAccess() const {
+    std::vector<int32_t> blockIds;
+    for (std::vector<int32_t>::const_iterator iter = m_evictedBlockIds.begin();
+         iter != m_evictedBlockIds.end(); ++iter) {
+        if (*iter != -1) blockIds.push_back(*iter);
+    }
+    throw EvictedTupleAccessException(m_name, blockIds);
+}
+
 // ------------------------------------------------------------------
 // COLUMNS
 // ------------------------------------------------------------------
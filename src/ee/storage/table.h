@@ -48,6 +48,7 @@
 
 #include <string>
 #include <vector>
+#include <map>
 #ifdef MEMCHECK_NOFREELIST
 #include <set>
 #endif
@@ -301,6 +302,12 @@ protected:
      */
     void deleteTupleStorage(TableTuple &tuple);
 
+    /**
+     * Throw an EvictedTupleAccessException for all of the blocks in this
+     * table that are currently evicted to the anti-cache
+     */
+    void throwEvictedTupleAccess() const;
+
     void initializeWithColumns(TupleSchema *schema, const std::string* columnNames, bool ownsTupleSchema);
     virtual void onSetColumns() {};
 
@@ -349,6 +356,18 @@ protected:
 
     const int m_tableAllocationTargetSize;
 
+    // ANTI-CACHE
+    // When enabled, we keep a logical timestamp of the last access to each
+    // block so that the coldest blocks can be evicted. The block ids are
+    // -1 for blocks that are in memory.
+    bool m_trackBlockAccess;
+    std::vector<int32_t> m_evictedBlockIds;
+    std::vector<uint32_t> m_evictedBlockTuples;
+    int32_t m_evictedBlockCount;
+    mutable std::vector<int64_t> m_blockAccessTime;
+    mutable int64_t m_accessClock;
+    std::map<char*, uint32_t> m_blockIndexes;
+
     // ptr to global integer tracking temp table memory allocated per frag
     // should be null for persistent tables
     int* m_tempTableMemoryInBytes;
@@ -402,6 +421,12 @@ inline void Table::allocateNextBlock() {
     m_deletedTuplePointers.erase(memory);
 #endif
     m_allocatedTuples += m_tuplesPerBlock;
+    if (m_trackBlockAccess) {
+        m_blockIndexes[memory] = static_cast<uint32_t>(m_data.size() - 1);
+        m_evictedBlockIds.push_back(-1);
+        m_evictedBlockTuples.push_back(0);
+        m_blockAccessTime.push_back(++m_accessClock);
+    }
     if (m_tempTableMemoryInBytes) {
         (*m_tempTableMemoryInBytes) += bytes;
         if ((*m_tempTableMemoryInBytes) > MAX_TEMP_TABLE_MEMORY) {
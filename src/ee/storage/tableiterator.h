@@ -61,7 +61,7 @@ namespace voltdb {
  */
 class TableIterator : public TupleIterator {
 public:
-    TableIterator(const Table *parent, bool scanAllBlocks = false);
+    TableIterator(const Table *parent, bool scanAllBlocks = false, bool skipEvicted = false);
 
     /**
      * Updates the given tuple so that it points to the next tuple in the table.
@@ -88,6 +88,11 @@ private:
      * all blocks are scanned.
      */
     bool m_scanAllBlocksOrCountFoundTuples;
+    /*
+     * When set to true, blocks that have been evicted to the anti-cache are
+     * silently skipped instead of throwing an EvictedTupleAccessException.
+     */
+    bool m_skipEvicted;
     const Table *m_table;
     char *m_dataPtr;
     uint32_t m_location;
@@ -98,8 +103,8 @@ private:
     uint32_t m_blockIndex;
 };
 
-inline TableIterator::TableIterator(const Table *parent, bool scanAllBlocks)
-    : m_scanAllBlocksOrCountFoundTuples(scanAllBlocks),
+inline TableIterator::TableIterator(const Table *parent, bool scanAllBlocks, bool skipEvicted)
+    : m_scanAllBlocksOrCountFoundTuples(scanAllBlocks), m_skipEvicted(skipEvicted),
       m_table(parent), m_dataPtr(NULL), m_location(0),
     m_activeTuples((int) m_table->m_tupleCount),
     m_foundTuples(0), m_tupleLength(parent->m_tupleLength),
@@ -137,6 +142,18 @@ inline bool TableIterator::next(TableTuple &out) {
                 continue;
             }
 #else
+            if (m_table->m_trackBlockAccess) {
+                uint32_t block = m_location / m_tuplesPerBlock;
+                if (m_table->m_evictedBlockIds[block] != -1) {
+                    if (m_skipEvicted == false) {
+                        m_table->throwEvictedTupleAccess();
+                    }
+                    m_foundTuples += m_table->m_evictedBlockTuples[block];
+                    m_location += m_tuplesPerBlock;
+                    continue;
+                }
+                m_table->m_blockAccessTime[block] = ++m_table->m_accessClock;
+            }
             m_dataPtr = m_table->dataPtrForTuple(m_location);
 #endif
         } else {
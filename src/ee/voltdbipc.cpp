@@ -117,6 +117,15 @@ typedef struct {
     char data[0];
 }__attribute__((packed)) load_table_cmd;
 
+/*
+ * Header for a bulk-load mode request.
+ */
+typedef struct {
+    struct ipc_command cmd;
+    int32_t tableId;
+    int8_t enable;
+}__attribute__((packed)) set_bulk_load_cmd;
+
 /*
  * Header for a stats table request.
  */
@@ -328,6 +337,9 @@ bool VoltDBIPC::execute(struct ipc_command *cmd) {
           hashinate(cmd);
           result = kErrorCode_None;
           break;
+      case 24:
+          result = setBulkLoad(cmd);
+          break;
       default:
         result = stub(cmd);
     }
@@ -726,6 +738,26 @@ int8_t VoltDBIPC::loadTable(struct ipc_command *cmd) {
     return kErrorCode_Error;
 }
 
+int8_t VoltDBIPC::setBulkLoad(struct ipc_command *cmd) {
+    set_bulk_load_cmd *setBulkLoadCommand = (set_bulk_load_cmd*) cmd;
+    const int32_t tableId = ntohl(setBulkLoadCommand->tableId);
+    const bool enable = (setBulkLoadCommand->enable != 0);
+    try {
+        if (m_engine->setBulkLoad(tableId, enable)) {
+            return kErrorCode_Success;
+        }
+    } catch (SerializableEEException &e) {
+        // send the constraint violation back so that the load can be aborted
+        m_engine->resetReusedResultOutputBuffer();
+        e.serialize(m_engine->getExceptionOutputSerializer());
+        sendException(kErrorCode_Error);
+        return kErrorCode_None;
+    } catch (FatalException e) {
+        crashVoltDB(e);
+    }
+    return kErrorCode_Error;
+}
+
 int8_t VoltDBIPC::setLogLevels(struct ipc_command *cmd) {
     int64_t logLevels = *((int64_t*)&cmd->data[0]);
     try {
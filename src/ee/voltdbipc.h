@@ -113,6 +113,8 @@ private:
 
     int8_t loadTable(struct ipc_command *cmd);
 
+    int8_t setBulkLoad(struct ipc_command *cmd);
+
     int8_t processRecoveryMessage( struct ipc_command *cmd);
 
     void tableHashCode( struct ipc_command *cmd);
@@ -427,6 +427,43 @@ Java_org_voltdb_jni_ExecutionEngine_nativeLoadTable (
 }
 
 
+/**
+ * Switch a table in or out of bulk-load mode.
+ * @param pointer the VoltDBEngine pointer
+ * @param table_id catalog ID of the table
+ * @param enable whether tuples loaded into the table should skip its indexes
+ * until the mode is switched off again
+*/
+SHAREDLIB_JNIEXPORT jint JNICALL
+Java_org_voltdb_jni_ExecutionEngine_nativeSetBulkLoad (
+    JNIEnv *env, jobject obj, jlong engine_ptr, jint table_id, jboolean enable)
+{
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    if (engine == NULL) {
+        return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
+    }
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+
+    //JNIEnv pointer can change between calls, must be updated
+    updateJNILogProxy(engine);
+    VOLT_DEBUG("setting bulk-load mode of table %d to %d in C++...", table_id, (int) enable);
+
+    try {
+        try {
+            if (engine->setBulkLoad(table_id, enable != JNI_FALSE))
+                return org_voltdb_jni_ExecutionEngine_ERRORCODE_SUCCESS;
+        } catch (SerializableEEException &e) {
+            engine->resetReusedResultOutputBuffer();
+            e.serialize(engine->getExceptionOutputSerializer());
+        }
+    } catch (FatalException e) {
+        topend->crashVoltDB(e);
+    }
+
+    return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
+}
+
+
 ////////////////////////////////////////////////////////////////////////////
 // PlanNode Execution
 ////////////////////////////////////////////////////////////////////////////
@@ -542,6 +579,63 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeIniti
     return org_voltdb_jni_ExecutionEngine_ERRORCODE_SUCCESS;
 }
 
+/**
+ * Evict the coldest blocks of the given table to the anti-cache
+ * @param pointer the VoltDBEngine pointer
+ * @param tableId the id of the table to evict blocks from
+ * @param blockSize the number of bytes that should be evicted
+ * @return the number of bytes that were actually evicted
+ */
+SHAREDLIB_JNIEXPORT jlong JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeAntiCacheEvictBlock (
+        JNIEnv *env,
+        jobject obj,
+        jlong engine_ptr,
+        jint tableId,
+        jlong blockSize) {
+    
+    VOLT_DEBUG("nativeAntiCacheEvictBlock() start");
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    if (engine == NULL) return 0;
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+    try {
+        return engine->antiCacheEvictBlocks(tableId, blockSize);
+    } catch (FatalException e) {
+        topend->crashVoltDB(e);
+    }
+    return 0;
+}
+
+/**
+ * Read the given evicted blocks of a table back in from the anti-cache
+ * @param pointer the VoltDBEngine pointer
+ * @param tableId the id of the table that the blocks belong to
+ * @param blockIdsArray the ids of the evicted blocks
+ * @return the number of bytes that were read back in
+ */
+SHAREDLIB_JNIEXPORT jlong JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeAntiCacheReadBlocks (
+        JNIEnv *env,
+        jobject obj,
+        jlong engine_ptr,
+        jint tableId,
+        jintArray blockIdsArray) {
+    
+    VOLT_DEBUG("nativeAntiCacheReadBlocks() start");
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    if (engine == NULL) return 0;
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+    try {
+        jsize numBlockIds = env->GetArrayLength(blockIdsArray);
+        jint *blockIdsChars = env->GetIntArrayElements(blockIdsArray, NULL);
+        std::vector<int32_t> blockIds(blockIdsChars, blockIdsChars + numBlockIds);
+        env->ReleaseIntArrayElements(blockIdsArray, blockIdsChars, JNI_ABORT);
+        
+        return engine->antiCacheReadBlocks(tableId, blockIds);
+    } catch (FatalException e) {
+        topend->crashVoltDB(e);
+    }
+    return 0;
+}
+
 /**
  * Executes a plan fragment with the given parameter set.
  * @param engine_ptr the VoltDBEngine pointer
@@ -719,6 +813,111 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeExecu
     return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
 }
 
+/**
+ * Executes the plan fragments for several independent transactions in a single call.
+ * Each transaction has its own undo token and its results are written to the output
+ * buffer one after another, in the same format as nativeExecuteQueryPlanFragmentsAndGetResults.
+ * We stop at the first transaction that fails because undoing it will also undo
+ * everything that was executed after it. The error for that transaction is left
+ * in the exception buffer.
+ * @param pointer the VoltDBEngine pointer
+ * @param num_txns the number of transactions in the batch
+ * @param fragment_counts the number of plan fragments for each transaction
+ * @param plan_fragment_ids the plan fragments for all of the transactions
+ * @return the number of transactions that executed successfully
+*/
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeExecuteTransactionBatch
+(JNIEnv *env,
+        jobject obj,
+        jlong engine_ptr,
+        jint num_txns,
+        jlongArray txn_ids,
+        jlongArray undo_tokens,
+        jintArray fragment_counts,
+        jlongArray plan_fragment_ids,
+        jintArray input_depIds,
+        jintArray output_depIds,
+        jlong lastCommittedTxnId) {
+    // setup
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    assert(engine);
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+    try {
+        updateJNILogProxy(engine); //JNIEnv pointer can change between calls, must be updated
+        engine->resetReusedResultOutputBuffer();
+        Pool *stringPool = engine->getStringPool();
+
+        // txn info
+        std::vector<jlong> txnIds(num_txns);
+        std::vector<jlong> undoTokens(num_txns);
+        std::vector<jint> fragmentCounts(num_txns);
+        env->GetLongArrayRegion(txn_ids, 0, num_txns, &txnIds[0]);
+        env->GetLongArrayRegion(undo_tokens, 0, num_txns, &undoTokens[0]);
+        env->GetIntArrayRegion(fragment_counts, 0, num_txns, &fragmentCounts[0]);
+
+        // fragment info
+        int total_fragments = 0;
+        for (int i = 0; i < num_txns; ++i) {
+            total_fragments += fragmentCounts[i];
+        }
+        if (total_fragments > MAX_BATCH_COUNT) {
+            throwFatalException("too many plan fragments in transaction batch: %d", total_fragments);
+        }
+        jlong* fragment_ids_buffer = engine->getBatchFragmentIdsContainer();
+        env->GetLongArrayRegion(plan_fragment_ids, 0, total_fragments, fragment_ids_buffer);
+        jint* input_depIds_buffer = engine->getBatchInputDepIdsContainer();
+        env->GetIntArrayRegion(input_depIds, 0, total_fragments, input_depIds_buffer);
+        jint* output_depIds_buffer = engine->getBatchOutputDepIdsContainer();
+        env->GetIntArrayRegion(output_depIds, 0, total_fragments, output_depIds_buffer);
+
+        // all fragments' parameters are in this buffer
+        ReferenceSerializeInput serialize_in(engine->getParameterBuffer(), engine->getParameterBufferCapacity());
+        NValueArray &params = engine->getParameterContainer();
+
+        int executed = 0;
+        int offset = 0;
+        for (; executed < num_txns; ++executed) {
+            engine->setUndoToken(undoTokens[executed]);
+            size_t txnStart = engine->getResultOutputSerializer()->position();
+            int batch_size = fragmentCounts[executed];
+            bool failed = false;
+            for (int i = 0; i < batch_size; ++i) {
+                int cnt = serialize_in.readShort();
+                if (cnt < 0) {
+                    throwFatalException("parameter count is negative: %d", cnt);
+                }
+                assert (cnt < MAX_PARAM_COUNT);
+                deserializeParameterSetCommon(cnt, serialize_in, params, stringPool);
+
+                engine->setUsedParamcnt(cnt);
+                if (engine->executeQuery(fragment_ids_buffer[offset + i],
+                                         output_depIds_buffer[offset + i],
+                                         input_depIds_buffer[offset + i],
+                                         params, txnIds[executed], lastCommittedTxnId, i == 0,
+                                         i == (batch_size - 1)))
+                {
+                    failed = true;
+                    break;
+                }
+            }
+            if (failed) {
+                // Throw away whatever this txn wrote but keep the results
+                // of the txns that came before it and the error for this one
+                engine->rewindResultOutputBuffer(txnStart);
+                break;
+            }
+            offset += batch_size;
+        }
+
+        // cleanup
+        stringPool->purge();
+        return executed;
+    } catch (FatalException e) {
+        topend->crashVoltDB(e);
+    }
+    return 0;
+}
+
 /**
  * Serialize the result temporary table.
  * @param engine_ptr the VoltDBEngine pointer
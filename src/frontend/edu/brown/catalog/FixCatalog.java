@@ -6,14 +6,17 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
+import org.voltdb.TheHashinator;
 import org.voltdb.VoltDB;
 import org.voltdb.catalog.Catalog;
+import org.voltdb.catalog.CatalogInteger;
 import org.voltdb.catalog.Cluster;
 import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Host;
 import org.voltdb.catalog.Partition;
 import org.voltdb.catalog.Site;
 
+import edu.brown.hashing.VirtualBucketHasher;
 import edu.brown.hstore.HStoreConstants;
 import edu.brown.mappings.ParameterMappingsSet;
 import edu.brown.mappings.ParametersUtil;
@@ -119,6 +122,50 @@ public abstract class FixCatalog {
         catalog_clus.setNum_partitions(partition_ctr);
         LOG.info(String.format("Updated host information in catalog with %d hosts and %d partitions",
                                catalog_clus.getHosts().size(), partition_ctr));
+        
+        // If the catalog has a bucket table, then we need to make sure that all of the
+        // buckets map to partitions that exist. This will only move the buckets that it needs to
+        if (catalog_clus.getBuckets().isEmpty() == false) {
+            writeBucketInfo(catalog, catalog_clus.getBuckets().size());
+        }
+        return (catalog);
+    }
+    
+    /**
+     * Write the virtual hash bucket table into the catalog. If the catalog
+     * already has a bucket table with the same number of buckets, then we will
+     * only move as many buckets as we need to so that every partition has
+     * its fair share. Otherwise, the buckets are assigned round-robin. 
+     * @param catalog
+     * @param num_buckets
+     * @return
+     */
+    public static Catalog writeBucketInfo(Catalog catalog, int num_buckets) {
+        Cluster catalog_clus = CatalogUtil.getCluster(catalog);
+        int num_partitions = catalog_clus.getNum_partitions();
+        
+        int orig[] = TheHashinator.getBucketTable(catalog_clus);
+        int table[] = null;
+        if (orig != null && orig.length == num_buckets) {
+            table = VirtualBucketHasher.rebalanceBucketTable(orig, num_partitions);
+        } else {
+            table = VirtualBucketHasher.createBucketTable(num_buckets, num_partitions);
+            catalog_clus.getBuckets().clear();
+        }
+        
+        int moved = 0;
+        for (int bucket = 0; bucket < table.length; bucket++) {
+            String name = Integer.toString(bucket);
+            CatalogInteger catalog_bucket = catalog_clus.getBuckets().get(name);
+            if (catalog_bucket == null) {
+                catalog_bucket = catalog_clus.getBuckets().add(name);
+            } else if (catalog_bucket.getValue() != table[bucket]) {
+                moved++;
+            }
+            catalog_bucket.setValue(table[bucket]);
+        } // FOR
+        LOG.info(String.format("Updated bucket table in catalog with %d buckets for %d partitions [moved=%d]",
+                               table.length, num_partitions, moved));
         return (catalog);
     }
 
@@ -229,6 +276,11 @@ public abstract class FixCatalog {
             new_catalog = FixCatalog.addHostInfo(new_catalog, cc);
         }
 
+        // Populate the virtual hash bucket table
+        if (args.hasIntParam(ArgumentsParser.PARAM_CATALOG_NUM_BUCKETS)) {
+            new_catalog = FixCatalog.writeBucketInfo(new_catalog, args.getIntParam(ArgumentsParser.PARAM_CATALOG_NUM_BUCKETS));
+        }
+
         // Now construct the new Dtxn.Coordinator configuration
         // String new_dtxn = HStoreDtxnConf.toHStoreDtxnConf(new_catalog);
 
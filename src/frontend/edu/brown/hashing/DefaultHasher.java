@@ -22,6 +22,12 @@ import edu.brown.utils.ClassUtil;
  */
 public class DefaultHasher extends AbstractHasher {
 
+    /**
+     * The catalog's bucket table (if it has one).
+     * We have to use it if it's there because that's what the EE will use
+     */
+    private int buckets[];
+
     /**
      * @param catalog_db
      * @param num_partitions
@@ -36,8 +42,7 @@ public class DefaultHasher extends AbstractHasher {
     
     @Override
     public void init(Database catalogDb) {
-        // TODO Auto-generated method stub
-        
+        this.buckets = TheHashinator.getBucketTable(CatalogUtil.getCluster(catalogDb));
     }
     
 
@@ -58,6 +63,9 @@ public class DefaultHasher extends AbstractHasher {
     @Override
     public int hash(Object value, int num_partitions) {
         assert(!ClassUtil.isArray(value)) : "Value for hashing is an array: " + Arrays.toString((Object[])value); 
+        if (this.buckets != null && num_partitions == this.num_partitions) {
+            return TheHashinator.hashToPartition(value, this.buckets);
+        }
         return TheHashinator.hashToPartition(value, num_partitions);
     }
     
@@ -0,0 +1,204 @@
+package edu.brown.hashing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONStringer;
+import org.voltdb.TheHashinator;
+import org.voltdb.catalog.CatalogType;
+import org.voltdb.catalog.Cluster;
+import org.voltdb.catalog.Database;
+
+import edu.brown.catalog.CatalogUtil;
+import edu.brown.utils.ClassUtil;
+
+/**
+ * Maps values to partitions through a fixed number of virtual buckets.
+ * A value is first hashed to a bucket and then the bucket table in the catalog
+ * tells us what partition that bucket belongs to. Since the number of buckets
+ * never changes, adding a new partition only requires us to move a
+ * proportional number of buckets over to it instead of rehashing every value.
+ * The EE's TheHashinator uses the same bucket table from the catalog.
+ * @author pavlo
+ */
+public class VirtualBucketHasher extends AbstractHasher {
+
+    /**
+     * The number of buckets that we will use if the catalog doesn't have a bucket table
+     */
+    public static final int DEFAULT_NUM_BUCKETS = 1024;
+
+    /**
+     * Bucket Id -> Partition Id
+     */
+    private int buckets[];
+
+    /**
+     * @param catalog_db
+     * @param num_partitions
+     */
+    public VirtualBucketHasher(Database catalog_db, int num_partitions) {
+        super(catalog_db, num_partitions);
+        this.init(catalog_db);
+    }
+
+    public VirtualBucketHasher(Database catalog_db) {
+        this(catalog_db, CatalogUtil.getNumberOfPartitions(catalog_db));
+    }
+
+    @Override
+    public void init(Database catalog_db) {
+        int table[] = null;
+        if (catalog_db != null) {
+            Cluster catalog_clus = CatalogUtil.getCluster(catalog_db);
+            table = TheHashinator.getBucketTable(catalog_clus);
+        }
+        if (table == null) {
+            LOG.warn(String.format("The catalog does not have a bucket table. Using %d default buckets. " +
+                                   "This will not match the partitioning used in the EE!", DEFAULT_NUM_BUCKETS));
+            table = createBucketTable(DEFAULT_NUM_BUCKETS, this.num_partitions);
+        }
+        this.buckets = table;
+    }
+
+    /**
+     * Return the bucket table that this hasher is using.
+     * The value at each offset in the array is the partition for that bucket.
+     * @return
+     */
+    public int[] getBuckets() {
+        return (this.buckets);
+    }
+
+    @Override
+    public int hash(Object value) {
+        return (this.hash(value, this.num_partitions));
+    }
+
+    @Override
+    public int hash(Object value, CatalogType catalogItem) {
+        assert(catalogItem != null) : "Null catalog item [value=" + value + "]";
+        return (this.hash(value, this.num_partitions));
+    }
+
+    @Override
+    public int hash(Object value, int num_partitions) {
+        assert(!ClassUtil.isArray(value)) : "Value for hashing is an array: " + Arrays.toString((Object[])value);
+        assert(this.buckets != null) : "The bucket table was not initialized";
+        // The bucket table is only valid for the current number of partitions
+        if (num_partitions != this.num_partitions) {
+            return TheHashinator.hashToPartition(value, num_partitions);
+        }
+        return TheHashinator.hashToPartition(value, this.buckets);
+    }
+
+    // -----------------------------------------------------------------
+    // BUCKET TABLE METHODS
+    // -----------------------------------------------------------------
+
+    /**
+     * Create a new bucket table where the buckets are assigned to
+     * partitions in a round-robin manner.
+     * @param num_buckets
+     * @param num_partitions
+     * @return
+     */
+    public static int[] createBucketTable(int num_buckets, int num_partitions) {
+        assert(num_buckets >= num_partitions) :
+            String.format("Only %d buckets for %d partitions", num_buckets, num_partitions);
+        int table[] = new int[num_buckets];
+        for (int bucket = 0; bucket < num_buckets; bucket++) {
+            table[bucket] = bucket % num_partitions;
+        } // FOR
+        return (table);
+    }
+
+    /**
+     * Create a new bucket table for the given number of partitions that moves
+     * as few buckets as possible from the original table. Each partition will
+     * end up with either floor(B/P) or ceil(B/P) buckets. When a partition is
+     * added, only the buckets that it needs are taken from the other partitions.
+     * When a partition is removed, only its buckets are moved.
+     * @param orig The original bucket table. This will not be modified.
+     * @param num_partitions The new number of partitions
+     * @return
+     */
+    public static int[] rebalanceBucketTable(int orig[], int num_partitions) {
+        final int num_buckets = orig.length;
+        assert(num_buckets >= num_partitions) :
+            String.format("Only %d buckets for %d partitions", num_buckets, num_partitions);
+        int table[] = orig.clone();
+
+        // Count how many buckets each partition has now. Any bucket whose partition
+        // no longer exists will need to be given a new home
+        final int counts[] = new int[num_partitions];
+        List<Integer> moving = new ArrayList<Integer>();
+        for (int bucket = 0; bucket < num_buckets; bucket++) {
+            int partition = table[bucket];
+            if (partition < 0 || partition >= num_partitions) {
+                moving.add(bucket);
+            } else {
+                counts[partition]++;
+            }
+        } // FOR
+
+        // The partitions that already have the most buckets get to keep the extra ones
+        List<Integer> partitions = new ArrayList<Integer>();
+        for (int partition = 0; partition < num_partitions; partition++) {
+            partitions.add(partition);
+        } // FOR
+        Collections.sort(partitions, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer p0, Integer p1) {
+                int diff = counts[p1.intValue()] - counts[p0.intValue()];
+                return (diff != 0 ? diff : p0.compareTo(p1));
+            }
+        });
+        int targets[] = new int[num_partitions];
+        int extra = num_buckets % num_partitions;
+        for (int i = 0; i < num_partitions; i++) {
+            targets[partitions.get(i).intValue()] = (num_buckets / num_partitions) + (i < extra ? 1 : 0);
+        } // FOR
+
+        // Take away the buckets from the partitions that have too many
+        for (int bucket = num_buckets - 1; bucket >= 0; bucket--) {
+            int partition = table[bucket];
+            if (partition < 0 || partition >= num_partitions) continue;
+            if (counts[partition] > targets[partition]) {
+                moving.add(bucket);
+                counts[partition]--;
+            }
+        } // FOR
+
+        // And then give them to the partitions that don't have enough
+        Collections.sort(moving);
+        int partition = 0;
+        for (Integer bucket : moving) {
+            while (counts[partition] >= targets[partition]) {
+                partition++;
+            } // WHILE
+            table[bucket.intValue()] = partition;
+            counts[partition]++;
+        } // FOR
+        return (table);
+    }
+
+    // -----------------------------------------------------------------
+    // SERIALIZATION
+    // -----------------------------------------------------------------
+
+    @Override
+    public void toJSON(JSONStringer stringer) throws JSONException {
+        // Nothing to do. The bucket table always comes from the catalog
+    }
+
+    @Override
+    public void fromJSON(JSONObject json_object, Database catalog_db) throws JSONException {
+        // Nothing to do. The bucket table always comes from the catalog
+    }
+}
@@ -1,76 +1,387 @@
 package edu.brown.hstore;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.log4j.Logger;
+import org.voltdb.SysProcSelector;
+import org.voltdb.VoltTable;
 import org.voltdb.catalog.Database;
+import org.voltdb.catalog.Table;
+import org.voltdb.jni.ExecutionEngine;
 
+import edu.brown.catalog.CatalogUtil;
+import edu.brown.designer.MemoryEstimator;
 import edu.brown.hstore.conf.HStoreConf;
 import edu.brown.hstore.interfaces.Shutdownable;
+import edu.brown.hstore.txns.LocalTransaction;
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.utils.FileUtil;
+import edu.brown.utils.ProfileMeasurement;
 
 /**
  * A high-level manager for the anti-cache feature
- * Most of the work is done down in the EE, so this is just an abstraction 
- * layer for now
+ * The EE keeps track of how recently each block of a table was accessed
+ * and does the actual eviction. This thread periodically tells each
+ * PartitionExecutor to check whether it is over its memory threshold, and it
+ * prefetches the evicted blocks that a restarted transaction needs before
+ * handing them back to the PartitionExecutor to be read into the EE.
  * @author pavlo
  */
-public class AntiCacheManager implements Shutdownable {
+public class AntiCacheManager implements Runnable, Shutdownable {
+    private static final Logger LOG = Logger.getLogger(AntiCacheManager.class);
+    private static final LoggerBoolean debug = new LoggerBoolean(LOG.isDebugEnabled());
+    private static final LoggerBoolean trace = new LoggerBoolean(LOG.isTraceEnabled());
+    static {
+        LoggerUtil.attachObserver(LOG, debug, trace);
+    }
 
-    private final PartitionExecutor executor;
-    private final Database catalog_db;
+    /**
+     * A request to read evicted blocks back in for a transaction
+     */
+    private class QueueEntry {
+        final LocalTransaction ts;
+        final int partition;
+        final Table catalog_tbl;
+        final int block_ids[];
+
+        QueueEntry(LocalTransaction ts, int partition, Table catalog_tbl, int block_ids[]) {
+            this.ts = ts;
+            this.partition = partition;
+            this.catalog_tbl = catalog_tbl;
+            this.block_ids = block_ids;
+        }
+    }
+
+    // ----------------------------------------------------------------------------
+    // INSTANCE MEMBERS
+    // ----------------------------------------------------------------------------
+
+    private final HStoreSite hstore_site;
     private final HStoreConf hstore_conf;
-    
-    protected AntiCacheManager(Database catalog_db, PartitionExecutor executor) {
-        this.catalog_db = catalog_db;
-        this.executor = executor;
-        this.hstore_conf = this.executor.getHStoreConf();
+    private final Database catalog_db;
+
+    /**
+     * The tables whose blocks we are allowed to evict
+     */
+    private final Collection<Table> evictableTables;
+
+    /**
+     * The number of bytes that each local partition has evicted
+     */
+    private final Map<Integer, AtomicLong> evictedBytes = new HashMap<Integer, AtomicLong>();
+
+    /**
+     * Whether a partition already has an eviction request in its queue
+     */
+    private final Map<Integer, AtomicBoolean> pendingEvictions = new HashMap<Integer, AtomicBoolean>();
+
+    private final LinkedBlockingQueue<QueueEntry> queue = new LinkedBlockingQueue<QueueEntry>();
+
+    private final ProfileMeasurement fetchTime = new ProfileMeasurement("FETCH");
+
+    private boolean stop = false;
+    private Thread self = null;
+
+    // ----------------------------------------------------------------------------
+    // INITIALIZATION
+    // ----------------------------------------------------------------------------
+
+    protected AntiCacheManager(HStoreSite hstore_site) {
+        this.hstore_site = hstore_site;
+        this.hstore_conf = hstore_site.getHStoreConf();
+        this.catalog_db = hstore_site.getDatabase();
+
+        this.evictableTables = new ArrayList<Table>();
+        for (Table catalog_tbl : CatalogUtil.getDataTables(this.catalog_db)) {
+            if (catalog_tbl.getIsreplicated() == false) {
+                this.evictableTables.add(catalog_tbl);
+            }
+        } // FOR
+
+        for (int partition : hstore_site.getLocalPartitionIds()) {
+            this.evictedBytes.put(partition, new AtomicLong(0));
+            this.pendingEvictions.put(partition, new AtomicBoolean(false));
+        } // FOR
     }
-    
+
     /**
      * Returns the directory where the EE should store the anti-cache
      * database for this PartitionExecutor
      * @return
      */
-    public File getDatabaseDir() {
+    public static File getDatabaseDir(PartitionExecutor executor) {
+        File dbDirPath = getDatabaseDir(executor.getHStoreConf(),
+                                        CatalogUtil.getDatabase(executor.getCatalogSite()),
+                                        executor.getSiteId(),
+                                        executor.getPartitionId());
+        FileUtil.makeDirIfNotExists(dbDirPath);
+
+        // TODO: What do we do if the file already exists?
+        //       There should be an HStoreConf that says we should delete it first
+
+        return (dbDirPath);
+    }
+
+    private static File getDatabaseDir(HStoreConf hstore_conf, Database catalog_db, int site_id, int partition) {
         // First make sure that our base directory exists
-        String base_dir = FileUtil.realpath(hstore_conf.site.anticache_dir + 
+        String base_dir = FileUtil.realpath(hstore_conf.site.anticache_dir +
                                             File.separatorChar +
-                                            this.catalog_db.getProject());
+                                            catalog_db.getProject());
         synchronized (AntiCacheManager.class) {
             FileUtil.makeDirIfNotExists(base_dir);
         } // SYNCH
-        
+
         // Then each partition will have a separate directory inside of the base one
-        String partitionName = HStoreThreadManager.formatPartitionName(this.executor.getSiteId(),
-                                                                       this.executor.getPartitionId());
+        String partitionName = HStoreThreadManager.formatPartitionName(site_id, partition);
+        return (new File(base_dir + File.separatorChar + partitionName));
+    }
 
-        File dbDirPath = new File(base_dir + File.separatorChar + partitionName);
-        FileUtil.makeDirIfNotExists(dbDirPath);
-        
-        // TODO: What do we do if the file already exists?
-        //       There should be an HStoreConf that says we should delete it first
-        
-        return (dbDirPath);
+    /**
+     * Returns the file that the EE wrote the given evicted block to.
+     * This must match the naming scheme used by AntiCacheDB in the EE.
+     */
+    protected File getBlockFile(int partition, Table catalog_tbl, int block_id) {
+        File dbDir = getDatabaseDir(this.hstore_conf, this.catalog_db, this.hstore_site.getSiteId(), partition);
+        return (new File(dbDir, String.format("%s-%d.block", catalog_tbl.getName(), block_id)));
     }
-    
+
+    // ----------------------------------------------------------------------------
+    // MAIN LOOP
+    // ----------------------------------------------------------------------------
+
+    @Override
+    public void run() {
+        this.self = Thread.currentThread();
+        this.self.setName(HStoreThreadManager.getThreadName(hstore_site, HStoreConstants.THREAD_NAME_ANTICACHE));
+        this.hstore_site.getThreadManager().registerProcessingThread();
+
+        if (debug.get())
+            LOG.debug("Starting anti-cache manager thread");
+
+        long nextCheck = System.currentTimeMillis() + hstore_conf.site.anticache_check_interval;
+        QueueEntry next = null;
+        while (this.stop == false) {
+            long wait = Math.max(1, nextCheck - System.currentTimeMillis());
+            try {
+                next = this.queue.poll(wait, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                this.stop = true;
+                break;
+            }
+            if (next != null) {
+                this.processQueueEntry(next);
+            }
+            if (System.currentTimeMillis() >= nextCheck) {
+                this.queueEvictions();
+                nextCheck = System.currentTimeMillis() + hstore_conf.site.anticache_check_interval;
+            }
+        } // WHILE
+    }
+
+    /**
+     * Tell each local PartitionExecutor that it should check whether
+     * it needs to evict some of its data
+     */
+    private void queueEvictions() {
+        for (int partition : this.hstore_site.getLocalPartitionIds()) {
+            // Don't pile up eviction requests if the partition is busy
+            if (this.pendingEvictions.get(partition).compareAndSet(false, true)) {
+                this.hstore_site.getPartitionExecutor(partition).queueAntiCacheEvict();
+            }
+        } // FOR
+    }
+
+    /**
+     * Read the transaction's evicted blocks from disk so that they are in the
+     * OS's page cache, then pass them over to the transaction's base partition
+     * to read them back into the EE. We do this so that the PartitionExecutor
+     * is not stuck waiting on the disk.
+     */
+    private void processQueueEntry(QueueEntry next) {
+        if (debug.get())
+            LOG.debug(String.format("%s - Prefetching %d evicted blocks from %s at partition %d",
+                                    next.ts, next.block_ids.length, next.catalog_tbl.getName(), next.partition));
+        if (hstore_conf.site.exec_profiling) this.fetchTime.start();
+        byte buffer[] = new byte[8192];
+        for (int block_id : next.block_ids) {
+            File f = this.getBlockFile(next.partition, next.catalog_tbl, block_id);
+            FileInputStream in = null;
+            try {
+                in = new FileInputStream(f);
+                while (in.read(buffer) > 0) {
+                    // Nothing to do
+                } // WHILE
+            } catch (IOException ex) {
+                // The block may have already been read back in by another txn
+                if (trace.get()) LOG.trace("Failed to prefetch evicted block " + f, ex);
+            } finally {
+                if (in != null) {
+                    try {
+                        in.close();
+                    } catch (IOException ex) {
+                        // Ignore
+                    }
+                }
+            }
+        } // FOR
+        if (hstore_conf.site.exec_profiling) this.fetchTime.stop();
+
+        this.hstore_site.getPartitionExecutor(next.partition)
+                        .queueAntiCacheFetch(next.ts, next.catalog_tbl, next.block_ids);
+    }
+
+    // ----------------------------------------------------------------------------
+    // PARTITION EXECUTOR API
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Queue a request to read the given evicted blocks back in for a transaction
+     * that tried to access them. The transaction will be restarted once the
+     * blocks are back in memory at its base partition. The transaction can be
+     * null if the blocks should just be read back in.
+     * @param ts
+     * @param partition
+     * @param catalog_tbl
+     * @param block_ids
+     * @return
+     */
+    public boolean queue(LocalTransaction ts, int partition, Table catalog_tbl, int block_ids[]) {
+        if (debug.get())
+            LOG.debug(String.format("%s - Queuing fetch request for %d evicted blocks from %s at partition %d",
+                                    ts, block_ids.length, catalog_tbl.getName(), partition));
+        return (this.queue.offer(new QueueEntry(ts, partition, catalog_tbl, block_ids)));
+    }
+
+    /**
+     * Check whether the given partition's tables are over the memory threshold,
+     * and if they are then evict their coldest blocks.
+     * This must only be called from the partition's PartitionExecutor thread
+     * while there is no transaction executing.
+     * @param executor
+     * @return the number of bytes that were evicted
+     */
+    protected long evictBlocks(PartitionExecutor executor) {
+        int partition = executor.getPartitionId();
+        this.pendingEvictions.get(partition).set(false);
+        if (this.evictableTables.isEmpty()) return (0);
+
+        ExecutionEngine ee = executor.getExecutionEngine();
+        int tableIds[] = new int[this.evictableTables.size()];
+        Map<String, Table> tableNames = new HashMap<String, Table>();
+        int i = 0;
+        for (Table catalog_tbl : this.evictableTables) {
+            tableIds[i++] = catalog_tbl.getRelativeIndex();
+            tableNames.put(catalog_tbl.getName(), catalog_tbl);
+        } // FOR
+
+        // Estimate how much memory the tables at this partition are using
+        // The EE still counts evicted tuples as allocated, so we have to subtract
+        // out what we know that has already been evicted
+        VoltTable stats[] = ee.getStats(SysProcSelector.TABLE, tableIds, false, System.currentTimeMillis());
+        final List<Table> tables = new ArrayList<Table>();
+        final Map<Table, Long> tableSizes = new HashMap<Table, Long>();
+        long total = 0;
+        if (stats != null && stats.length > 0) {
+            VoltTable vt = stats[0];
+            while (vt.advanceRow()) {
+                Table catalog_tbl = tableNames.get(vt.getString("TABLE_NAME"));
+                if (catalog_tbl == null) continue;
+                long size = vt.getLong("TABLE_ALLOCATED_TUPLE_COUNT") * MemoryEstimator.estimateTupleSize(catalog_tbl);
+                tables.add(catalog_tbl);
+                tableSizes.put(catalog_tbl, size);
+                total += size;
+            } // WHILE
+        }
+        AtomicLong evicted = this.evictedBytes.get(partition);
+        total -= evicted.get();
+
+        long threshold = hstore_conf.site.anticache_threshold * 1024l * 1024l;
+        if (debug.get())
+            LOG.debug(String.format("Partition %d table memory: %d bytes [threshold=%d, evicted=%d]",
+                                    partition, total, threshold, evicted.get()));
+        if (total <= threshold) return (0);
+
+        // Evict from the largest tables first
+        Collections.sort(tables, new Comparator<Table>() {
+            @Override
+            public int compare(Table o1, Table o2) {
+                return (tableSizes.get(o2).compareTo(tableSizes.get(o1)));
+            }
+        });
+        long remaining = hstore_conf.site.anticache_evict_size * 1024l * 1024l;
+        long result = 0;
+        for (Table catalog_tbl : tables) {
+            if (remaining <= 0) break;
+            long bytes = ee.antiCacheEvictBlock(catalog_tbl, remaining);
+            if (debug.get() && bytes > 0)
+                LOG.debug(String.format("Evicted %d bytes from %s at partition %d",
+                                        bytes, catalog_tbl.getName(), partition));
+            remaining -= bytes;
+            result += bytes;
+        } // FOR
+        evicted.addAndGet(result);
+        return (result);
+    }
+
+    /**
+     * Read the given blocks back in from the anti-cache for the partition.
+     * This must only be called from the partition's PartitionExecutor thread.
+     * @param executor
+     * @param catalog_tbl
+     * @param block_ids
+     * @return the number of bytes that were read back in
+     */
+    protected long readBlocks(PartitionExecutor executor, Table catalog_tbl, int block_ids[]) {
+        long bytes = executor.getExecutionEngine().antiCacheReadBlocks(catalog_tbl, block_ids);
+        this.evictedBytes.get(executor.getPartitionId()).addAndGet(-bytes);
+        return (bytes);
+    }
+
+    /**
+     * Return the number of bytes that the given partition currently has evicted
+     * @param partition
+     */
+    public long getEvictedBytes(int partition) {
+        AtomicLong bytes = this.evictedBytes.get(partition);
+        return (bytes != null ? bytes.get() : 0);
+    }
+
+    public ProfileMeasurement getFetchTime() {
+        return (this.fetchTime);
+    }
+
+    // ----------------------------------------------------------------------------
+    // SHUTDOWN
+    // ----------------------------------------------------------------------------
+
     @Override
     public void prepareShutdown(boolean error) {
-        // TODO Auto-generated method stub
-        
+        this.queue.clear();
     }
 
     @Override
     public void shutdown() {
-        // TODO Auto-generated method stub
-        
+        this.stop = true;
+        if (this.self != null) this.self.interrupt();
     }
 
     @Override
     public boolean isShuttingDown() {
-        // TODO Auto-generated method stub
-        return false;
+        return (this.stop);
     }
-    
-    
 
 }
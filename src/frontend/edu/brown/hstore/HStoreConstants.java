@@ -42,6 +42,7 @@ public abstract class HStoreConstants {
     public static final String THREAD_NAME_LOGGING = "logging";
     public static final String THREAD_NAME_MAPREDUCE = "mr";
     public static final String THREAD_NAME_DEBUGSTATUS = "status";
+    public static final String THREAD_NAME_ANTICACHE = "anticache";
     
     // ----------------------------------------------------------------------------
     // EXECUTION STUFF
@@ -11,6 +11,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -36,6 +37,12 @@ import edu.brown.catalog.CatalogUtil;
 import edu.brown.hstore.Hstoreservice.HStoreService;
 import edu.brown.hstore.Hstoreservice.InitializeRequest;
 import edu.brown.hstore.Hstoreservice.InitializeResponse;
+import edu.brown.hstore.Hstoreservice.ReplayRestoreRequest;
+import edu.brown.hstore.Hstoreservice.ReplayRestoreResponse;
+import edu.brown.hstore.Hstoreservice.ReplayBarrierRequest;
+import edu.brown.hstore.Hstoreservice.ReplayBarrierResponse;
+import edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest;
+import edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse;
 import edu.brown.hstore.Hstoreservice.SendDataRequest;
 import edu.brown.hstore.Hstoreservice.SendDataResponse;
 import edu.brown.hstore.Hstoreservice.ShutdownRequest;
@@ -135,6 +142,28 @@ public class HStoreCoordinator implements Shutdownable {
     private final EventObservable<HStoreCoordinator> ready_observable = new EventObservable<HStoreCoordinator>();
     
     private final PrefetchQueryPlanner queryPrefetchPlanner;
+    
+    /**
+     * Released once the first site has restored the snapshot for command log replay
+     */
+    private final CountDownLatch replayRestore_latch = new CountDownLatch(1);
+    private Status replayRestore_status = null;
+    private long replayRestore_txnId = -1;
+    
+    /**
+     * Command log replay barriers for distributed txns. Everything is keyed by
+     * the txn id that was logged for the distributed txn.
+     * All of these are protected by the replayBarrier_lock
+     */
+    private final Object replayBarrier_lock = new Object();
+    /** TxnId -> Base SiteId for all of the distributed txns in the other sites' command logs */
+    private final Map<Long, Integer> replayBarrier_txns = new TreeMap<Long, Integer>();
+    /** The sites that have sent us the distributed txns in their command logs */
+    private final Set<Integer> replayBarrier_sites = new HashSet<Integer>();
+    /** TxnId -> Number of sites that are waiting for our local distributed txn */
+    private final Map<Long, Integer> replayBarrier_ready = new HashMap<Long, Integer>();
+    /** The remote distributed txns that have finished at their base site */
+    private final Set<Long> replayBarrier_finished = new HashSet<Long>();
 
     /**
      * 
@@ -517,6 +546,179 @@ public class HStoreCoordinator implements Shutdownable {
         assert(finished);
     }
     
+    /**
+     * Tell every other site in the cluster that the snapshot for command log
+     * replay has been restored. This is only invoked at site zero.
+     * @param status
+     * @param snapshotTxnId The id of the txn that took the restored snapshot (-1 if there wasn't one)
+     */
+    public void notifyReplayRestore(Status status, long snapshotTxnId) {
+        assert(this.local_site_id == 0);
+        ReplayRestoreRequest request = ReplayRestoreRequest.newBuilder()
+                                            .setSenderSite(this.local_site_id)
+                                            .setStatus(status)
+                                            .setSnapshotTxnId(snapshotTxnId)
+                                            .build();
+        final CountDownLatch latch = new CountDownLatch(this.channels.size()); 
+        RpcCallback<ReplayRestoreResponse> callback = new RpcCallback<ReplayRestoreResponse>() {
+            @Override
+            public void run(ReplayRestoreResponse parameter) {
+                if (debug.get()) LOG.debug(String.format("Replay Restore Response: %s",
+                                       HStoreThreadManager.formatSiteName(parameter.getSenderSite())));
+                latch.countDown();
+            }
+        };
+        for (Integer site_id : this.channels.keySet()) {
+            assert(site_id.intValue() != this.local_site_id);
+            ProtoRpcController controller = new ProtoRpcController();
+            this.channels.get(site_id).replayRestore(controller, request, callback);
+        } // FOR
+        
+        if (debug.get())
+            LOG.debug(String.format("Waiting for %s replay restore responses", this.channels.size()));
+        boolean finished = false;
+        try {
+            finished = latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            throw new ServerFaultException("Unexpected interruption", ex);
+        }
+        if (finished == false) {
+            throw new RuntimeException("Timed out waiting for sites to acknowledge snapshot restore");
+        }
+    }
+    
+    /**
+     * Block until site zero tells us that the snapshot for command log replay
+     * has been restored. Returns the status of the restore.
+     * @return
+     */
+    public Status waitForReplayRestore() {
+        try {
+            this.replayRestore_latch.await();
+        } catch (InterruptedException ex) {
+            throw new ServerFaultException("Interrupted while waiting for snapshot restore", ex);
+        }
+        synchronized (this.replayRestore_latch) {
+            return (this.replayRestore_status);
+        } // SYNCH
+    }
+    
+    /**
+     * Returns the id of the txn that took the snapshot that site zero restored
+     * for command log replay. This is -1 if there was no snapshot.
+     * Only valid after waitForReplayRestore() returns.
+     * @return
+     */
+    public long getReplayRestoreTxnId() {
+        synchronized (this.replayRestore_latch) {
+            return (this.replayRestore_txnId);
+        } // SYNCH
+    }
+    
+    /**
+     * Send the ids of the distributed txns in our command log to every other site
+     * and then block until we have gotten the same thing from all of them.
+     * Returns a map from the logged txn ids of the other sites' distributed txns
+     * to the id of the site that will replay them.
+     * @param txnIds The logged ids of the distributed txns in our command log
+     * @return
+     */
+    public Map<Long, Integer> exchangeReplayTransactions(Collection<Long> txnIds) {
+        ReplayTransactionsRequest request = ReplayTransactionsRequest.newBuilder()
+                                                .setSenderSite(this.local_site_id)
+                                                .addAllTransactionIds(txnIds)
+                                                .build();
+        RpcCallback<ReplayTransactionsResponse> callback = new RpcCallback<ReplayTransactionsResponse>() {
+            @Override
+            public void run(ReplayTransactionsResponse parameter) {
+                if (debug.get()) LOG.debug(String.format("Replay Transactions Response: %s",
+                                       HStoreThreadManager.formatSiteName(parameter.getSenderSite())));
+            }
+        };
+        for (Integer site_id : this.channels.keySet()) {
+            ProtoRpcController controller = new ProtoRpcController();
+            this.channels.get(site_id).replayTransactions(controller, request, callback);
+        } // FOR
+        
+        if (debug.get())
+            LOG.debug(String.format("Waiting for the distributed txns in %d remote command logs", this.channels.size()));
+        synchronized (this.replayBarrier_lock) {
+            while (this.replayBarrier_sites.size() < this.channels.size()) {
+                this.waitForReplayBarrierLock();
+            } // WHILE
+            return (new TreeMap<Long, Integer>(this.replayBarrier_txns));
+        } // SYNCH
+    }
+    
+    /**
+     * Tell the given base site that we have replayed everything that comes before
+     * the given distributed txn, and then block until that site tells us
+     * that the txn has finished.
+     * @param txnId The logged id of the distributed txn
+     * @param base_site The site that will replay the txn
+     */
+    public void enterReplayBarrier(long txnId, int base_site) {
+        this.sendReplayBarrier(txnId, false, Collections.singleton(base_site));
+        synchronized (this.replayBarrier_lock) {
+            while (this.replayBarrier_finished.remove(txnId) == false) {
+                this.waitForReplayBarrierLock();
+            } // WHILE
+        } // SYNCH
+    }
+    
+    /**
+     * Block until every other site has replayed everything that comes before
+     * the given distributed txn from our command log.
+     * @param txnId The logged id of the distributed txn
+     */
+    public void waitForReplayBarrier(long txnId) {
+        synchronized (this.replayBarrier_lock) {
+            while (true) {
+                Integer ready = this.replayBarrier_ready.get(txnId);
+                if (ready != null && ready.intValue() == this.channels.size()) break;
+                this.waitForReplayBarrierLock();
+            } // WHILE
+            this.replayBarrier_ready.remove(txnId);
+        } // SYNCH
+    }
+    
+    /**
+     * Tell every other site that the given distributed txn from our command log
+     * has finished so that they can go on with their own replay.
+     * @param txnId The logged id of the distributed txn
+     */
+    public void releaseReplayBarrier(long txnId) {
+        this.sendReplayBarrier(txnId, true, this.channels.keySet());
+    }
+    
+    private void sendReplayBarrier(long txnId, boolean finished, Collection<Integer> site_ids) {
+        ReplayBarrierRequest request = ReplayBarrierRequest.newBuilder()
+                                            .setSenderSite(this.local_site_id)
+                                            .setTransactionId(txnId)
+                                            .setFinished(finished)
+                                            .build();
+        RpcCallback<ReplayBarrierResponse> callback = new RpcCallback<ReplayBarrierResponse>() {
+            @Override
+            public void run(ReplayBarrierResponse parameter) {
+                if (trace.get()) LOG.trace(String.format("Replay Barrier Response: %s",
+                                       HStoreThreadManager.formatSiteName(parameter.getSenderSite())));
+            }
+        };
+        for (Integer site_id : site_ids) {
+            assert(site_id.intValue() != this.local_site_id);
+            ProtoRpcController controller = new ProtoRpcController();
+            this.channels.get(site_id).replayBarrier(controller, request, callback);
+        } // FOR
+    }
+    
+    private void waitForReplayBarrierLock() {
+        try {
+            this.replayBarrier_lock.wait();
+        } catch (InterruptedException ex) {
+            throw new ServerFaultException("Interrupted while waiting for command log replay barrier", ex);
+        }
+    }
+    
     // ----------------------------------------------------------------------------
     // MESSAGE ROUTERS
     // ----------------------------------------------------------------------------
@@ -629,6 +831,70 @@ public class HStoreCoordinator implements Shutdownable {
             done.run(response);
         }
         
+        @Override
+        public void replayRestore(RpcController controller, ReplayRestoreRequest request, RpcCallback<ReplayRestoreResponse> done) {
+            if (debug.get())
+                LOG.debug(String.format("Received %s from HStoreSite %s [status=%s, snapshotTxnId=%d]",
+                                                 request.getClass().getSimpleName(),
+                                                 HStoreThreadManager.formatSiteName(request.getSenderSite()),
+                                                 request.getStatus(), request.getSnapshotTxnId()));
+            
+            synchronized (replayRestore_latch) {
+                replayRestore_status = request.getStatus();
+                replayRestore_txnId = request.getSnapshotTxnId();
+            } // SYNCH
+            replayRestore_latch.countDown();
+            ReplayRestoreResponse response = ReplayRestoreResponse.newBuilder()
+                                                .setSenderSite(local_site_id)
+                                                .build();
+            done.run(response);
+        }
+        
+        @Override
+        public void replayTransactions(RpcController controller, ReplayTransactionsRequest request, RpcCallback<ReplayTransactionsResponse> done) {
+            if (debug.get())
+                LOG.debug(String.format("Received %s from HStoreSite %s [numTxns=%d]",
+                                                 request.getClass().getSimpleName(),
+                                                 HStoreThreadManager.formatSiteName(request.getSenderSite()),
+                                                 request.getTransactionIdsCount()));
+            
+            synchronized (replayBarrier_lock) {
+                for (Long txnId : request.getTransactionIdsList()) {
+                    replayBarrier_txns.put(txnId, request.getSenderSite());
+                } // FOR
+                replayBarrier_sites.add(request.getSenderSite());
+                replayBarrier_lock.notifyAll();
+            } // SYNCH
+            ReplayTransactionsResponse response = ReplayTransactionsResponse.newBuilder()
+                                                .setSenderSite(local_site_id)
+                                                .build();
+            done.run(response);
+        }
+        
+        @Override
+        public void replayBarrier(RpcController controller, ReplayBarrierRequest request, RpcCallback<ReplayBarrierResponse> done) {
+            if (trace.get())
+                LOG.trace(String.format("Received %s from HStoreSite %s [txnId=%d, finished=%s]",
+                                                 request.getClass().getSimpleName(),
+                                                 HStoreThreadManager.formatSiteName(request.getSenderSite()),
+                                                 request.getTransactionId(), request.getFinished()));
+            
+            Long txnId = Long.valueOf(request.getTransactionId());
+            synchronized (replayBarrier_lock) {
+                if (request.getFinished()) {
+                    replayBarrier_finished.add(txnId);
+                } else {
+                    Integer ready = replayBarrier_ready.get(txnId);
+                    replayBarrier_ready.put(txnId, (ready == null ? 1 : ready.intValue() + 1));
+                }
+                replayBarrier_lock.notifyAll();
+            } // SYNCH
+            ReplayBarrierResponse response = ReplayBarrierResponse.newBuilder()
+                                                .setSenderSite(local_site_id)
+                                                .build();
+            done.run(response);
+        }
+        
         @Override
         public void shutdown(RpcController controller, ShutdownRequest request, RpcCallback<ShutdownResponse> done) {
             String originName = HStoreThreadManager.formatSiteName(request.getSenderSite());
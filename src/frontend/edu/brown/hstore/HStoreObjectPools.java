@@ -5,6 +5,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.voltdb.ParameterSet;
 import org.voltdb.catalog.Procedure;
 
 import edu.brown.catalog.CatalogUtil;
@@ -69,6 +70,15 @@ public final class HStoreObjectPools {
      */
     private final TypedObjectPool<DistributedState> STATES_DISTRIBUTED[];
     
+    // ----------------------------------------------------------------------------
+    // ADDITIONAL
+    // ----------------------------------------------------------------------------
+    
+    /**
+     * ParameterSet ObjectPool
+     */
+    public final TypedObjectPool<ParameterSet> PARAMETERSETS;
+    
     // ----------------------------------------------------------------------------
     // INITIALIZATION
     // ----------------------------------------------------------------------------
@@ -145,9 +155,9 @@ public final class HStoreObjectPools {
         
         
         // ADDITIONAL
-//        this.PARAMETERSETS = TypedObjectPool.factory(ParameterSet.class,
-//                (int)(hstore_conf.site.pool_parametersets_idle * hstore_conf.site.pool_scale_factor),
-//                hstore_conf.site.pool_profiling);
+        this.PARAMETERSETS = TypedObjectPool.factory(ParameterSet.class,
+                (int)(hstore_conf.site.pool_parametersets_idle * hstore_conf.site.pool_scale_factor),
+                hstore_conf.site.pool_profiling);
         
         // If there are no prefetchable queries or MapReduce procedures in the catalog, then we will not
         // create these special object pools
@@ -38,7 +38,6 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import org.apache.log4j.Logger;
@@ -88,8 +87,10 @@ import edu.brown.hstore.txns.AbstractTransaction;
 import edu.brown.hstore.txns.LocalTransaction;
 import edu.brown.hstore.txns.MapReduceTransaction;
 import edu.brown.hstore.txns.RemoteTransaction;
+import edu.brown.hstore.util.ConcurrentLongHashMap;
 import edu.brown.hstore.util.MapReduceHelperThread;
 import edu.brown.hstore.util.TxnCounter;
+import edu.brown.hstore.wal.CommandLogReplayer;
 import edu.brown.hstore.wal.CommandLogWriter;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
@@ -189,9 +190,10 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
 
     /**
      * Keep track of which txns that we have in-flight right now
+     * This is keyed by primitive longs so that we don't need to box txnIds for every lookup
      */
-    private final Map<Long, AbstractTransaction> inflight_txns = 
-                        new ConcurrentHashMap<Long, AbstractTransaction>();
+    private final ConcurrentLongHashMap<AbstractTransaction> inflight_txns = 
+                        new ConcurrentLongHashMap<AbstractTransaction>();
     
     /**
      * This manager is used to pin threads to specific CPU cores
@@ -269,6 +271,17 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
      * Transaction Command Logger (WAL)
      */
     private final CommandLogWriter commandLogger;
+    
+    /**
+     * Anti-Cache Manager
+     */
+    private final AntiCacheManager anticacheManager;
+    
+    /**
+     * The previous command log files (grouped by stream) that need to be replayed
+     * when we start up. This will be null if there is nothing to recover
+     */
+    private final List<List<File>> commandLogReplayFiles;
 
     /**
      * AdHoc: This thread waits for AdHoc queries. 
@@ -512,17 +525,65 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         }
         
         // Command Logger
+        // It would be nice if we could come up with a unique name for this
+        // invocation of the system (like the cluster instanceId). But for now
+        // we'll just write out to our directory...
+        File logFile = new File(hstore_conf.site.commandlog_dir +
+                                File.separator +
+                                this.getSiteName().toLowerCase() + ".log");
+        
+        // Move the previous log out of the way before the CommandLogWriter
+        // truncates it so that we can replay it once all of our threads are running.
+        // We still have to go through the replayer even if we don't have a log
+        // because every site has to wait for the snapshot to get restored
+        List<List<File>> prevLogFiles = CommandLogWriter.getLogFiles(logFile);
+        List<List<File>> prevReplayFiles = CommandLogWriter.getLogFiles(logFile, CommandLogWriter.REPLAY_FILE_EXT);
+        if (hstore_conf.site.commandlog_replay && prevReplayFiles.isEmpty() == false) {
+            // The replay files only get deleted once the replay has finished, so the last
+            // replay was interrupted. They are still the only complete copy of the log,
+            // so we have to replay them again. The current log only has the txns that
+            // were re-executed by that replay, so we throw it away.
+            LOG.warn(String.format("Found %d command log stream(s) from an interrupted replay. " +
+                                   "Replaying them again instead of the current command log",
+                                   prevReplayFiles.size()));
+            for (List<File> stripeFiles : prevLogFiles) {
+                for (File f : stripeFiles) {
+                    if (f.delete() == false) {
+                        throw new RuntimeException("Failed to delete partially replayed command log " + f);
+                    }
+                } // FOR
+            } // FOR
+            this.commandLogReplayFiles = prevReplayFiles;
+        } else if (hstore_conf.site.commandlog_replay) {
+            this.commandLogReplayFiles = new ArrayList<List<File>>();
+            for (List<File> stripeFiles : prevLogFiles) {
+                List<File> replayFiles = new ArrayList<File>();
+                for (File f : stripeFiles) {
+                    File replayFile = new File(f.getPath() + CommandLogWriter.REPLAY_FILE_EXT);
+                    if (f.renameTo(replayFile) == false) {
+                        throw new RuntimeException("Failed to move command log " + f + " for replay");
+                    }
+                    replayFiles.add(replayFile);
+                } // FOR
+                this.commandLogReplayFiles.add(replayFiles);
+            } // FOR
+            LOG.info(String.format("Found %d command log stream(s) to replay", prevLogFiles.size()));
+        } else {
+            this.commandLogReplayFiles = null;
+        }
+        
         if (hstore_conf.site.commandlog_enable) {
-            // It would be nice if we could come up with a unique name for this
-            // invocation of the system (like the cluster instanceId). But for now
-            // we'll just write out to our directory...
-            File logFile = new File(hstore_conf.site.commandlog_dir +
-                                    File.separator +
-                                    this.getSiteName().toLowerCase() + ".log");
             this.commandLogger = new CommandLogWriter(this, logFile);
         } else {
             this.commandLogger = null;
         }
+        
+        // Anti-Cache
+        if (hstore_conf.site.anticache_enable) {
+            this.anticacheManager = new AntiCacheManager(this);
+        } else {
+            this.anticacheManager = null;
+        }
 
         // AdHoc Support
         if (hstore_conf.site.exec_adhoc_sql) {
@@ -537,7 +598,7 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         // NETWORK SETUP
         // -------------------------------
         
-        this.voltNetwork = new VoltNetwork();
+        this.voltNetwork = new VoltNetwork(true, true, null, Math.max(1, hstore_conf.site.network_selector_threads));
         this.clientInterface = ClientInterface.create(this,
                                                        this.voltNetwork,
                                                        this.catalogContext,
@@ -722,6 +783,9 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
     public ClientInterface getClientInterface() {
         return (this.clientInterface);
     }
+    public VoltNetwork getVoltNetwork() {
+        return (this.voltNetwork);
+    }
     
     /**
      * Return the list of all the partition ids in this H-Store database cluster
@@ -850,6 +914,9 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
     public CommandLogWriter getCommandLogWriter() {
         return (this.commandLogger);
     }
+    public AntiCacheManager getAntiCacheManager() {
+        return (this.anticacheManager);
+    }
     
     /**
      * Convenience method to dump out status of this HStoreSite
@@ -919,7 +986,7 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
     }
     
     @SuppressWarnings("unchecked")
-    public <T extends AbstractTransaction> T getTransaction(Long txn_id) {
+    public <T extends AbstractTransaction> T getTransaction(long txn_id) {
         return ((T)this.inflight_txns.get(txn_id));
     }
 
@@ -1090,6 +1157,14 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
             } // FOR
         }
         
+        // Start AntiCacheManager
+        if (this.anticacheManager != null) {
+            t = new Thread(this.anticacheManager);
+            t.setDaemon(true);
+            t.setUncaughtExceptionHandler(this.exceptionHandler);
+            t.start();
+        }
+        
         // Then we need to start all of the PartitionExecutor in threads
         if (d) LOG.debug("Starting PartitionExecutor threads for " + this.local_partitions_arr.length + " partitions on " + this.getSiteName());
         for (int partition : this.local_partitions_arr) {
@@ -1121,6 +1196,25 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         
         this.init();
         
+        // Recover our state from the last snapshot and command log
+        // before we let any new requests in
+        if (this.commandLogReplayFiles != null) {
+            CommandLogReplayer replayer = new CommandLogReplayer(this, this.commandLogReplayFiles);
+            replayer.replay();
+            
+            // Every replayed txn is in the new command log now, so we don't
+            // need the old one anymore
+            if (this.commandLogger != null) {
+                for (List<File> replayFiles : this.commandLogReplayFiles) {
+                    for (File f : replayFiles) {
+                        if (f.delete() == false) {
+                            throw new RuntimeException("Failed to delete replayed command log " + f);
+                        }
+                    } // FOR
+                } // FOR
+            }
+        }
+        
         try {
             this.clientInterface.startAcceptingConnections();
         } catch (Exception ex) {
@@ -1207,6 +1301,9 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         if (this.commandLogger != null) {
             this.commandLogger.prepareShutdown(error);
         }
+        if (this.anticacheManager != null) {
+            this.anticacheManager.prepareShutdown(error);
+        }
         
         if (this.adhoc_helper_started) {
             if (this.asyncCompilerWork_thread != null)
@@ -1248,6 +1345,9 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         if (this.commandLogger != null) {
             this.commandLogger.shutdown();
         }
+        if (this.anticacheManager != null) {
+            this.anticacheManager.shutdown();
+        }
       
         // Stop AdHoc threads
         if (this.adhoc_helper_started) {
@@ -1343,6 +1443,7 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
                     throw new RuntimeException(ex);
                 } finally {
                     fs.clear();
+                    parameter.releaseResults();
                 }
             }
         };
@@ -1408,19 +1509,23 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         // PARAMETERSET INITIALIZATION
         // -------------------------------
         
-        // Initialize the ParameterSet
+        // We only deserialize the full ParameterSet here for sysprocs. For everything
+        // else we will only pull out the parameters that we need to figure out the
+        // base partition. The PartitionExecutor will deserialize the rest of them
+        // if the txn ends up running at one of our partitions
         ParameterSet procParams = null;
-        try {
-//            procParams = objectPools.PARAMETERSETS.borrowObject();
-            procParams = new ParameterSet();
-            StoredProcedureInvocation.seekToParameterSet(buffer);
-            incomingDeserializer.setBuffer(buffer);
-            procParams.readExternal(incomingDeserializer);
-        } catch (Exception ex) {
-            throw new RuntimeException(ex);
-        } 
-        assert(procParams != null) :
-            "The parameters object is null for new txn from client #" + client_handle;
+        StoredProcedureInvocation.seekToParameterSet(buffer);
+        incomingDeserializer.setBuffer(buffer);
+        if (sysproc) {
+            try {
+                procParams = new ParameterSet();
+                procParams.readExternal(incomingDeserializer);
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+            assert(procParams != null) :
+                "The parameters object is null for new txn from client #" + client_handle;
+        }
         if (d) LOG.debug(String.format("Received new stored procedure invocation request for %s [handle=%d]",
                                        catalog_proc.getName(), client_handle));
         
@@ -1448,10 +1553,17 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
             this.network_incoming_partitions.put(base_partition);
         }
         
-        base_partition = this.txnInitializer.calculateBasePartition(client_handle,
-                                                                    catalog_proc,
-                                                                    procParams,
-                                                                    base_partition);
+        if (procParams != null) {
+            base_partition = this.txnInitializer.calculateBasePartition(client_handle,
+                                                                        catalog_proc,
+                                                                        procParams,
+                                                                        base_partition);
+        } else {
+            base_partition = this.txnInitializer.calculateBasePartition(client_handle,
+                                                                        catalog_proc,
+                                                                        incomingDeserializer,
+                                                                        base_partition);
+        }
         
         // -------------------------------
         // REDIRECT TXN TO PROPER BASE PARTITION
@@ -1696,10 +1808,9 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
                 
         // For some odd reason we sometimes get duplicate transaction ids from the VoltDB id generator
         // So we'll just double check to make sure that it's unique, and if not, we'll just ask for a new one
-        LocalTransaction dupe = (LocalTransaction)this.inflight_txns.put(txn_id, ts);
+        LocalTransaction dupe = (LocalTransaction)this.inflight_txns.putIfAbsent(txn_id.longValue(), ts);
         if (dupe != null) {
             // HACK!
-            this.inflight_txns.put(txn_id, dupe);
             // long new_txn_id = this.txnid_managers[base_partition].getNextUniqueTransactionId();
             Long new_txn_id = this.getTransactionIdManager(base_partition).getNextUniqueTransactionId();
             if (new_txn_id == txn_id) {
@@ -1712,7 +1823,7 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
             LOG.warn(String.format("Had to fix duplicate txn ids: %d -> %d", txn_id, new_txn_id));
             txn_id = new_txn_id;
             ts.setTransactionId(txn_id);
-            this.inflight_txns.put(txn_id, ts);
+            this.inflight_txns.put(txn_id.longValue(), ts);
         }
         if (d) LOG.debug(ts + " - Dispatching new transaction invocation");
         
@@ -2257,6 +2368,7 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
                     orig_ts.getProcedureParameters(),
                     orig_ts.getClientCallback()
         );
+        new_ts.setProcedureParametersPooled(orig_ts.isProcedureParametersPooled());
         // Make sure that we remove the ParameterSet from the original LocalTransaction
         // so that they don't get returned back to the object pool when it is deleted
         orig_ts.removeProcedureParameters();
@@ -2315,8 +2427,11 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
                                     ts.getClientCallback(),
                                     ts.getInitiateTime(),
                                     ts.getRestartCounter());
-        } else if (d) { 
-            LOG.debug(String.format("%s - Holding the ClientResponse until logged to disk", ts));
+        } else {
+            // The command log still needs to serialize the ParameterSet when it flushes
+            // its buffer, so it will return it to our pool after the group commit
+            ts.setProcedureParametersPooled(false);
+            if (d) LOG.debug(String.format("%s - Holding the ClientResponse until logged to disk", ts));
         }
         
         
@@ -2394,8 +2509,7 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
      * If you call this, you can never access anything in this txn's AbstractTransaction again
      * @param txn_id
      */
-    public void deleteTransaction(final Long txn_id, final Status status) {
-        assert(txn_id != null) : "Unexpected null transaction id";
+    public void deleteTransaction(final long txn_id, final Status status) {
         if (d) LOG.debug("Deleting internal info for txn #" + txn_id);
         AbstractTransaction abstract_ts = this.inflight_txns.remove(txn_id);
         
@@ -2408,7 +2522,7 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
             return;
         }
         
-        assert(txn_id.equals(abstract_ts.getTransactionId())) :
+        assert(txn_id == abstract_ts.getTransactionId().longValue()) :
             String.format("Mismatched %s - Expected[%d] != Actual[%s]", abstract_ts, txn_id, abstract_ts.getTransactionId());
 
         // Nothing else to do for RemoteTransactions other than to just
@@ -2441,10 +2555,11 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         // Update Transaction profiles
         // We have to calculate the profile information *before* we call PartitionExecutor.cleanup!
         // XXX: Should we include totals for mispredicted txns?
-        if (hstore_conf.site.txn_profiling && this.status_monitor != null &&
+        if (hstore_conf.site.txn_profiling &&
             ts.profiler.isDisabled() == false && status != Status.ABORT_MISPREDICT) {
             ts.profiler.stopTransaction();
-            this.status_monitor.addTxnProfile(catalog_proc, ts.profiler);
+            ts.profiler.recordLatencies(this.executors[base_partition].getTransactionLatencies());
+            if (this.status_monitor != null) this.status_monitor.addTxnProfile(catalog_proc, ts.profiler);
         }
         
         // Clean-up any extra information that we may have for the txn
@@ -2519,15 +2634,17 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
             } // FOR
         }
 
-        // Return the ParameterSet back to our pool
-//        ParameterSet params = ts.getProcedureParameters();
-//        if (params != null) {
-//            objectPools.PARAMETERSETS.returnObject(params);
-//        }
+        // Return the ParameterSet back to our pool, but only if it came from there
+        // in the first place. If the txn was handed off to the command log, then
+        // the log will return it after its group commit
+        ParameterSet params = ts.getProcedureParameters();
+        if (params != null && ts.isProcedureParametersPooled()) {
+            this.objectPools.PARAMETERSETS.returnObject(params);
+        }
         
         // HACK: Make sure the txn_id is removed from our internal map
         // This is unnecessary for single-partition txns
-        this.inflight_txns.remove(ts.getTransactionId());
+        this.inflight_txns.remove(ts.getTransactionId().longValue());
         
         assert(ts.isInitialized()) : "Trying to return uninititlized txn #" + ts.getTransactionId();
         if (d) LOG.debug(String.format("%s - Returning to ObjectPool [hashCode=%d]", ts, ts.hashCode()));
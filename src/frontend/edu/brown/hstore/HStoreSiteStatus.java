@@ -20,8 +20,10 @@ import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
+import org.voltdb.SnapshotSiteProcessor.SnapshotTableTask;
 import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Procedure;
+import org.voltdb.network.VoltNetwork;
 
 import edu.brown.hstore.callbacks.TransactionInitQueueCallback;
 import edu.brown.hstore.conf.HStoreConf;
@@ -41,6 +43,7 @@ import edu.brown.statistics.Histogram;
 import edu.brown.utils.CollectionUtil;
 import edu.brown.utils.EventObservable;
 import edu.brown.utils.EventObserver;
+import edu.brown.utils.LatencyHistogram;
 import edu.brown.utils.ProfileMeasurement;
 import edu.brown.utils.StringUtil;
 import edu.brown.utils.TableUtil;
@@ -107,6 +110,12 @@ public class HStoreSiteStatus implements Runnable, Shutdownable {
     private ProfileMeasurement lastNetworkIdle = null;
     private ProfileMeasurement lastNetworkProcessing = null;
     
+    /**
+     * The busy and idle times for each of the VoltNetwork's selectors
+     * since the last status snapshot
+     */
+    private final Map<VoltNetwork.SelectorThread, long[]> lastSelectorTimes = new IdentityHashMap<VoltNetwork.SelectorThread, long[]>();
+    
     /**
      * The profiling information for each PartitionExecutor since
      * the last status snapshot 
@@ -265,6 +274,7 @@ public class HStoreSiteStatus implements Runnable, Shutdownable {
         // Transaction Profiling
         // ----------------------------------------------------------------------------
         Map<String, String> txnProfiles = (hstore_conf.site.txn_profiling ? this.txnProfileInfo() : null);
+        Map<String, Object> txnLatencies = (hstore_conf.site.txn_profiling ? this.txnLatencyInfo() : null);
         
         // ----------------------------------------------------------------------------
         // Object Pool Information
@@ -278,6 +288,7 @@ public class HStoreSiteStatus implements Runnable, Shutdownable {
                                            threadInfo,
                                            cpuThreads,
                                            txnProfiles,
+                                           txnLatencies,
                                            plannerInfo,
                                            poolInfo);
         String bot = "";
@@ -338,6 +349,33 @@ public class HStoreSiteStatus implements Runnable, Shutdownable {
             }
         }
         
+        // VoltNetwork Selectors
+        VoltNetwork network = hstore_site.getVoltNetwork();
+        if (network != null) {
+            String val = "";
+            for (VoltNetwork.SelectorThread st : network.getSelectorThreads()) {
+                long busy = st.getBusyTime();
+                long idle = st.getIdleTime();
+                long last[] = this.lastSelectorTimes.get(st);
+                if (last == null) {
+                    last = new long[2];
+                    this.lastSelectorTimes.put(st, last);
+                }
+                long total = (busy - last[0]) + (idle - last[1]);
+                double load = (total > 0 ? (busy - last[0]) / (double)total : 0d);
+                last[0] = busy;
+                last[1] = idle;
+                
+                val += String.format("%s[%02d] %d connections / %d events / %.1f%% busy",
+                                     (val.isEmpty() ? "" : "\n"),
+                                     st.getIndex(),
+                                     st.getConnectionCount(),
+                                     st.getSelectedKeyCount(),
+                                     load * 100d);
+            } // FOR
+            siteInfo.put("Network Selectors", val);
+        }
+        
         // TransactionQueueManager
         TransactionQueueManager queueManager = hstore_site.getTransactionQueueManager();
         TransactionQueueManager.DebugContext queueManagerDebug = queueManager.getDebugContext();
@@ -442,6 +480,7 @@ public class HStoreSiteStatus implements Runnable, Shutdownable {
         ProfileMeasurement totalExecTxnTime = new ProfileMeasurement();
         ProfileMeasurement totalExecIdleTime = new ProfileMeasurement();
         ProfileMeasurement totalExecNetworkTime = new ProfileMeasurement();
+        LatencyHistogram totalExecLatency = new LatencyHistogram("EE_EXEC");
         
         // EXECUTION ENGINES
         Map<Integer, String> partitionLabels = new HashMap<Integer, String>();
@@ -472,6 +511,12 @@ public class HStoreSiteStatus implements Runnable, Shutdownable {
                                    (es_queue.isThrottled() ? " *THROTTLED*" : ""));
             m.put("Exec Queue", status);
             
+            ThrottlingQueue<?> ingress_queue = es.getIngressQueue();
+            status = String.format("%-5s [limit=%d, release=%d]%s",
+                                   ingress_queue.size(), ingress_queue.getQueueMax(), ingress_queue.getQueueRelease(),
+                                   (ingress_queue.isThrottled() ? " *THROTTLED*" : ""));
+            m.put("Ingress Queue", status);
+            
             // TransactionQueueManager Info
             status = String.format("%-5s [limit=%d, release=%d]%s / ",
                                    dtxn_queue.size(), dtxn_queue.getQueueMax(), dtxn_queue.getQueueRelease(),
@@ -506,6 +551,17 @@ public class HStoreSiteStatus implements Runnable, Shutdownable {
                 m.put("Waiting Requeues", queueManagerDebug.getRestartQueueSize());
             }
             
+            // Query Cache
+            if (hstore_conf.site.exec_query_cache) {
+                m.put("Query Cache", es.getQueryCache().debugGlobalCache());
+            }
+            
+            // Snapshot Progress
+            List<SnapshotTableTask> snapshotTasks = es.getSnapshotProgress();
+            if (snapshotTasks != null) {
+                m.put("Snapshot", this.snapshotProgressInfo(snapshotTasks));
+            }
+            
 //            if (is_throttled && queue_size < queue_release && hstore_site.isShuttingDown() == false) {
 //                LOG.warn(String.format("Partition %d is throttled when it should not be! [inflight=%d, release=%d]",
 //                                        partition, queue_size, queue_release));
@@ -532,6 +588,10 @@ public class HStoreSiteStatus implements Runnable, Shutdownable {
                 this.lastExecTxnTimes.put(es, new ProfileMeasurement(pm));
                 invokedTxns.put(partition, (int)es.getTransactionCounter());
                 totalExecTxnTime.appendTime(pm);
+                if (pm.getHistogram() != null) {
+                    m.put("Txn Latency", pm.getHistogram().debug());
+                    totalExecLatency.merge(pm.getHistogram());
+                }
                 
                 // Idle Time
                 last = lastExecIdleTimes.get(es);
@@ -539,6 +599,10 @@ public class HStoreSiteStatus implements Runnable, Shutdownable {
                 m.put("Idle Time", this.formatProfileMeasurements(pm, last, false, false)); 
                 this.lastExecIdleTimes.put(es, new ProfileMeasurement(pm));
                 totalExecIdleTime.appendTime(pm);
+                if (pm.getHistogram() != null) {
+                    m.put("Idle Latency", pm.getHistogram().debug());
+                }
+                m.put("Idle Wakeups", es.getQueueWaitStrategy().debug());
                 
                 // Network Time
                 last = lastExecNetworkTimes.get(es);
@@ -552,6 +616,9 @@ public class HStoreSiteStatus implements Runnable, Shutdownable {
                 pm = es.getWorkUtilityTime();
                 m.put("Utility Time", this.formatProfileMeasurements(pm, last, false, true)); 
                 this.lastExecUtilityTimes.put(es, new ProfileMeasurement(pm));
+                
+                // Idle Work
+                m.put("Idle Work", es.getIdleWorkScheduler().debug());
                                                 
             }
             
@@ -570,6 +637,7 @@ public class HStoreSiteStatus implements Runnable, Shutdownable {
         
         if (hstore_conf.site.exec_profiling) {
             m_exec.put("Total Txn Execution", this.formatProfileMeasurements(totalExecTxnTime, null, true, true));
+            m_exec.put("Total Txn Latency", totalExecLatency.debug());
             m_exec.put("Total Idle Execution", this.formatProfileMeasurements(totalExecIdleTime, null, true, true));
             m_exec.put("Total Network Execution", this.formatProfileMeasurements(totalExecNetworkTime, null, true, true));
             m_exec.put(" ", null);
@@ -944,6 +1012,34 @@ public class HStoreSiteStatus implements Runnable, Shutdownable {
         return (TableUtil.tableMap(this.txn_profile_format, this.txn_profiler_header, rows));
     }
     
+    /**
+     * Return the latency histograms of each TransactionProfile phase for all of the
+     * txns executed at this HStoreSite. These are merged from the histograms
+     * kept at each of the local PartitionExecutors.
+     * @return
+     */
+    public LatencyHistogram[] getTxnLatencies() {
+        LatencyHistogram totals[] = TransactionProfile.createHistograms();
+        for (PartitionExecutor es : this.executors.values()) {
+            LatencyHistogram histograms[] = es.getTransactionLatencies();
+            if (histograms == null) continue;
+            for (int i = 0; i < totals.length; i++) {
+                totals[i].merge(histograms[i]);
+            } // FOR
+        } // FOR
+        return (totals);
+    }
+    
+    public Map<String, Object> txnLatencyInfo() {
+        Map<String, Object> m = new LinkedHashMap<String, Object>();
+        for (LatencyHistogram h : this.getTxnLatencies()) {
+            if (h.isEmpty()) continue;
+            if (m.isEmpty()) m.put("Transaction Latencies", null);
+            m.put(h.getName(), h.debug());
+        } // FOR
+        return (m.isEmpty() ? null : m);
+    }
+    
     public String txnProfileCSV() {
         Object rows[][] = this.generateTxnProfileSnapshot();
         if (rows == null) return (null);
@@ -963,6 +1059,28 @@ public class HStoreSiteStatus implements Runnable, Shutdownable {
     // ----------------------------------------------------------------------------
     // OBJECT POOL PROFILING
     // ----------------------------------------------------------------------------
+    /**
+     * Format the progress of each table in a partition's snapshot
+     * @param tasks
+     * @return
+     */
+    private String snapshotProgressInfo(List<SnapshotTableTask> tasks) {
+        int finished = 0;
+        long bytes = 0;
+        StringBuilder sb = new StringBuilder();
+        for (SnapshotTableTask task : tasks) {
+            bytes += task.getBytesSerialized();
+            if (task.isFinished()) {
+                finished++;
+            } else if (task.getBlocksSerialized() > 0) {
+                sb.append(String.format("\n%s: %d blocks / %.1f MB",
+                                        task.getTableName(), task.getBlocksSerialized(),
+                                        task.getBytesSerialized() / 1048576d));
+            }
+        } // FOR
+        return (String.format("%d/%d tables / %.1f MB", finished, tasks.size(), bytes / 1048576d) + sb.toString());
+    }
+    
     private Map<String, Object> poolInfo() {
         
         // HStoreObjectPools
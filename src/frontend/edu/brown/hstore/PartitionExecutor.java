@@ -44,6 +44,7 @@ package edu.brown.hstore;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
@@ -65,12 +66,14 @@ import org.apache.commons.collections15.map.ListOrderedMap;
 import org.apache.log4j.Logger;
 import org.voltdb.BackendTarget;
 import org.voltdb.ClientResponseImpl;
+import org.voltdb.DefaultSnapshotDataTarget;
 import org.voltdb.DependencySet;
 import org.voltdb.HsqlBackend;
 import org.voltdb.ParameterSet;
 import org.voltdb.SQLStmt;
 import org.voltdb.SnapshotSiteProcessor;
 import org.voltdb.SnapshotSiteProcessor.SnapshotTableTask;
+import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.VoltProcedure;
 import org.voltdb.VoltProcedure.VoltAbortException;
 import org.voltdb.VoltSystemProcedure;
@@ -87,6 +90,7 @@ import org.voltdb.catalog.Statement;
 import org.voltdb.catalog.Table;
 import org.voltdb.exceptions.ConstraintFailureException;
 import org.voltdb.exceptions.EEException;
+import org.voltdb.exceptions.EvictedTupleAccessException;
 import org.voltdb.exceptions.MispredictionException;
 import org.voltdb.exceptions.SQLException;
 import org.voltdb.exceptions.SerializableException;
@@ -97,6 +101,7 @@ import org.voltdb.jni.ExecutionEngineJNI;
 import org.voltdb.jni.MockExecutionEngine;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.messaging.FastSerializer;
+import org.voltdb.sysprocs.SnapshotRegistry;
 import org.voltdb.utils.DBBPool;
 import org.voltdb.utils.DBBPool.BBContainer;
 import org.voltdb.utils.Encoder;
@@ -119,6 +124,8 @@ import edu.brown.hstore.callbacks.TransactionPrepareCallback;
 import edu.brown.hstore.conf.HStoreConf;
 import edu.brown.hstore.interfaces.Loggable;
 import edu.brown.hstore.interfaces.Shutdownable;
+import edu.brown.hstore.internal.AntiCacheEvictMessage;
+import edu.brown.hstore.internal.AntiCacheFetchMessage;
 import edu.brown.hstore.internal.DeferredWork;
 import edu.brown.hstore.internal.FinishTxnMessage;
 import edu.brown.hstore.internal.InitializeTxnMessage;
@@ -132,20 +139,28 @@ import edu.brown.hstore.txns.ExecutionState;
 import edu.brown.hstore.txns.LocalTransaction;
 import edu.brown.hstore.txns.MapReduceTransaction;
 import edu.brown.hstore.txns.RemoteTransaction;
+import edu.brown.hstore.txns.TransactionProfile;
 import edu.brown.hstore.util.ArrayCache.IntArrayCache;
 import edu.brown.hstore.util.ArrayCache.LongArrayCache;
+import edu.brown.hstore.util.IdleWorkScheduler;
+import edu.brown.hstore.util.IdleWorkScheduler.WorkType;
 import edu.brown.hstore.util.ParameterSetArrayCache;
 import edu.brown.hstore.util.QueryCache;
+import edu.brown.hstore.util.QueueWaitStrategy;
+import edu.brown.hstore.util.RingBufferQueue;
 import edu.brown.hstore.util.ThrottlingQueue;
 import edu.brown.hstore.util.TransactionWorkRequestBuilder;
+import edu.brown.hstore.wal.CommandLogWriter;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.markov.EstimationThresholds;
 import edu.brown.markov.MarkovEstimate;
 import edu.brown.markov.MarkovGraph;
 import edu.brown.markov.TransactionEstimator;
+import edu.brown.statistics.Histogram;
 import edu.brown.utils.CollectionUtil;
 import edu.brown.utils.EventObservable;
+import edu.brown.utils.LatencyHistogram;
 import edu.brown.utils.PartitionEstimator;
 import edu.brown.utils.ProfileMeasurement;
 import edu.brown.utils.StringUtil;
@@ -216,6 +231,13 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
     private final HsqlBackend hsql;
     private final DBBPool buffer_pool = new DBBPool(false, false);
     private final FastSerializer fs = new FastSerializer(this.buffer_pool);
+    
+    /**
+     * Pool of direct buffers for the output VoltTables from the EE.
+     * This will be null if site.exec_result_buffer_pool is disabled
+     */
+    private DBBPool result_pool = null;
+    private final FastDeserializer fds = new FastDeserializer(new byte[0]);
     private boolean stop = false;
     
     /**
@@ -228,8 +250,43 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
     // Each execution site manages snapshot using a SnapshotSiteProcessor
     private final SnapshotSiteProcessor m_snapshotter;
     
+    /**
+     * The txn id of the last snapshot that this partition participated in.
+     * Once the snapshot has been successfully written out to the command log's
+     * replay directory, we can truncate the command log up to this txn.
+     */
+    private Long snapshotTxnId = null;
+    private String snapshotPath = null;
+    private String snapshotNonce = null;
+    
+    /**
+     * Runs the deferred queries, snapshot work, and background work in
+     * priority order whenever this partition runs out of txns to execute
+     */
+    private final IdleWorkScheduler idle_scheduler;
+    
+    /**
+     * Tells the IdleWorkScheduler to give the partition back as soon as
+     * there is something for us to execute in one of our queues
+     */
+    private final IdleWorkScheduler.Interrupt idle_interrupt = new IdleWorkScheduler.Interrupt() {
+        @Override
+        public boolean hasTxnWork() {
+            return (ingress_batch.isEmpty() == false ||
+                    ingress_queue.isEmpty() == false ||
+                    work_queue.isEmpty() == false ||
+                    new_queue.isEmpty() == false);
+        }
+    };
+    
+    /**
+     * Set when the AntiCacheManager asked us to check whether we need to evict
+     * data. The eviction itself is done as background idle work.
+     */
+    private boolean anticache_evict_pending = false;
+    
     // Anti-Cache Abstraction Layer
-    private final AntiCacheManager anticacheManager;
+    private AntiCacheManager anticacheManager;
     
     /**
      * Procedure Name -> VoltProcedure
@@ -259,6 +316,46 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
      */
     private final ThrottlingQueue<InternalMessage> work_queue;
     
+    /**
+     * New transaction requests from clients are added to this ring buffer instead
+     * of the work_queue. The PartitionExecutor drains them out in batches into
+     * the ingress_batch so that we don't have to pay for a locked handoff per request.
+     * Requests in here always go before anything in the work_queue, since the
+     * PartitionMessageQueue would have put them at the front anyway.
+     */
+    private final ThrottlingQueue<InternalMessage> ingress_queue;
+    
+    /**
+     * The last batch of requests that we drained from the ingress_queue.
+     * This is only accessed by the PartitionExecutor's thread.
+     */
+    private final ArrayDeque<InternalMessage> ingress_batch = new ArrayDeque<InternalMessage>();
+    
+    /**
+     * Set to true when the PartitionExecutor is about to block on the work_queue.
+     * A producer that adds a request to the ingress_queue while this is true
+     * has to wake us up by putting INGRESS_WAKEUP into the work_queue.
+     */
+    private volatile boolean ingress_waiting = false;
+    
+    private static final InternalMessage INGRESS_WAKEUP = new InternalMessage() {
+        public String toString() {
+            return ("INGRESS_WAKEUP");
+        }
+    };
+    
+    /**
+     * How we wait for new work once all of our queues are empty
+     */
+    private final QueueWaitStrategy wait_strategy;
+    
+    private final QueueWaitStrategy.Poller<InternalMessage> wait_poller = new QueueWaitStrategy.Poller<InternalMessage>() {
+        @Override
+        public InternalMessage poll() {
+            return (PartitionExecutor.this.pollNext());
+        }
+    };
+    
     /**
      * This is the queue for work deferred .
      */
@@ -335,9 +432,29 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
     private long lastUndoToken = 0l;
     
     /**
-     * 
+     * The per-txn prefetch query results and the partition-wide
+     * cache of the results of cacheable read-only queries
      */
-    private final QueryCache queryCache = new QueryCache(10, 10); // FIXME
+    private final QueryCache queryCache;
+    
+    /**
+     * The write version of each table at this partition (indexed by the table's relative index).
+     * A table's version is incremented whenever a txn may have modified it. These are used to
+     * invalidate cached query results. This will be null if site.exec_query_cache is disabled
+     */
+    private long tableVersions[] = null;
+    
+    /**
+     * PlanFragmentId -> TableIds
+     * The tables that are read by each PlanFragment of a cacheable Statement
+     */
+    private final Map<Long, int[]> cacheableFragmentTables = new HashMap<Long, int[]>();
+    
+    /**
+     * PlanFragmentId -> TableIds
+     * The tables that may be modified by each PlanFragment of a Statement that is not read-only
+     */
+    private final Map<Long, int[]> writeFragmentTables = new HashMap<Long, int[]>();
     
     
     // ----------------------------------------------------------------------------
@@ -361,6 +478,40 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
      */
     private final ParameterSetArrayCache procParameterSets;
     
+    // ----------------------------------------------------------------------------
+    // EE TRANSACTION BATCHING
+    // ----------------------------------------------------------------------------
+    
+    /**
+     * Single-statement txns whose queries we executed together with a single call
+     * into the EE. Each txn picks up its result in executePlanFragments() when it
+     * actually runs. See executeTransactionBatch()
+     */
+    private final List<LocalTransaction> ee_batch_txns = new ArrayList<LocalTransaction>();
+    /**
+     * The number of txns at the front of ee_batch_txns that the EE executed.
+     * If ee_batch_error is not null, then the last one of them failed.
+     */
+    private int ee_batch_count = 0;
+    /**
+     * The offset in ee_batch_txns of the next txn that needs to pick up its result
+     */
+    private int ee_batch_next = 0;
+    private SerializableException ee_batch_error;
+    
+    /**
+     * The arguments that we pass to the EE for each txn in the batch
+     * These are null if ${site.exec_ee_batch_size} is less than two
+     */
+    private long ee_batch_txnIds[];
+    private long ee_batch_undoTokens[];
+    private int ee_batch_fragmentCounts[];
+    private long ee_batch_fragmentIds[];
+    private int ee_batch_inputDepIds[];
+    private int ee_batch_outputDepIds[];
+    private ParameterSet ee_batch_params[];
+    private DependencySet ee_batch_results[];
+    
     // ----------------------------------------------------------------------------
     // TEMPORARY DATA COLLECTIONS
     // ----------------------------------------------------------------------------
@@ -406,6 +557,12 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
      * Reusable ParameterSet array cache for WorkFragments
      */
     private final ParameterSetArrayCache tmp_fragmentParams;
+    /**
+     * Temporary space used when planning a batched txn's query in prefetchTransactionBatch()
+     */
+    private final SQLStmt tmp_batchStmt[] = new SQLStmt[1];
+    private final ParameterSet tmp_batchParams[] = new ParameterSet[1];
+    private final Histogram<Integer> tmp_batchTouchedPartitions = new Histogram<Integer>();
     
     /**
      * Reusable long array for fragment ids
@@ -452,6 +609,12 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
      * How much time did this PartitionExecutor spend on utility work
      */
     private final ProfileMeasurement work_utility_time = new ProfileMeasurement("EE_UTILITY");
+    /**
+     * The latencies of each TransactionProfile phase for the txns
+     * whose base partition is this PartitionExecutor
+     * This will be null if txn_profiling is disabled.
+     */
+    private LatencyHistogram txn_latencies[];
     
     // ----------------------------------------------------------------------------
     // CALLBACKS
@@ -466,7 +629,7 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
     private final RpcCallback<TransactionWorkResponse> request_work_callback = new RpcCallback<TransactionWorkResponse>() {
         @Override
         public void run(TransactionWorkResponse msg) {
-            Long txn_id = msg.getTransactionId();
+            long txn_id = msg.getTransactionId();
             AbstractTransaction ts = hstore_site.getTransaction(txn_id);
             
             // We can ignore anything that comes in for a transaction that we don't know about
@@ -546,13 +709,13 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
      */
     protected PartitionExecutor() {
         this.work_queue = null;
+        this.ingress_queue = null;
         this.deferred_queue = null;
         this.ee = null;
         this.hsql = null;
         this.p_estimator = null;
         this.t_estimator = null;
         this.m_snapshotter = null;
-        this.anticacheManager = null;
         this.thresholds = null;
         this.catalog = null;
         this.cluster = null;
@@ -565,6 +728,9 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
         this.procParameterSets = null;
         this.tmp_fragmentParams = null;
         this.tmp_transactionRequestBuilders = null;
+        this.idle_scheduler = new IdleWorkScheduler(this.partitionId);
+        this.wait_strategy = new QueueWaitStrategy(this.partitionId, QueueWaitStrategy.Type.PARK, 0, 0);
+        this.queryCache = new QueryCache(0, 10);
     }
 
     /**
@@ -590,6 +756,14 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
                 hstore_conf.site.queue_incoming_increase,
                 hstore_conf.site.queue_incoming_increase_max
         );
+        this.ingress_queue = new ThrottlingQueue<InternalMessage>(
+                new RingBufferQueue<InternalMessage>(hstore_conf.site.queue_incoming_max_per_partition +
+                                                     hstore_conf.site.queue_incoming_increase_max),
+                hstore_conf.site.queue_incoming_max_per_partition,
+                hstore_conf.site.queue_incoming_release_factor,
+                hstore_conf.site.queue_incoming_increase,
+                hstore_conf.site.queue_incoming_increase_max
+        );
         this.catalog = catalog;
         this.partition = CatalogUtil.getPartitionById(this.catalog, partitionId);
         assert(this.partition != null) : "Invalid Partition #" + partitionId;
@@ -604,6 +778,7 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
         this.backend_target = target;
         this.cluster = CatalogUtil.getCluster(catalog);
         this.database = CatalogUtil.getDatabase(cluster);
+        if (hstore_conf.site.exec_query_cache) this.initializeQueryCache();
 
         // The PartitionEstimator is what we use to figure our where our transactions are going to go
         this.p_estimator = p_estimator;
@@ -617,14 +792,6 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
             this.t_estimator = t_estimator; 
         }
         
-        // The AntiCacheManager will allow us to do special things down in the EE
-        // for evicted tuples
-        if (hstore_conf.site.anticache_enable) {
-            this.anticacheManager = null; // FIXME new AntiCacheManager(this.database, this);
-        } else {
-            this.anticacheManager = null;
-        }
-        
         // An execution site can be backed by HSQLDB, by volt's EE accessed
         // via JNI or by volt's EE accessed via IPC.  When backed by HSQLDB,
         // the VoltProcedure interface invokes HSQLDB directly through its
@@ -657,11 +824,17 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
                 eeTemp = new ExecutionEngineJNI(this, cluster.getRelativeIndex(), this.getSiteId(), this.getPartitionId(), this.getHostId(), "localhost");
                 
                 // Initialize Anti-Cache
-                if (this.anticacheManager != null) {
-                    File acFile = this.anticacheManager.getDatabaseDir(); 
+                if (hstore_conf.site.anticache_enable) {
+                    File acFile = AntiCacheManager.getDatabaseDir(this); 
                     eeTemp.initializeAntiCache(acFile);
                 }
                 
+                // Copy query results into pooled buffers instead of the heap
+                if (hstore_conf.site.exec_result_buffer_pool) {
+                    this.result_pool = new DBBPool(false, false);
+                    eeTemp.setResultBufferPool(this.result_pool);
+                }
+                
                 eeTemp.loadCatalog(catalog.serialize());
                 lastTickTime = System.currentTimeMillis();
                 eeTemp.tick( lastTickTime, 0);
@@ -670,9 +843,13 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
                     final PotentialSnapshotWorkMessage msg = new PotentialSnapshotWorkMessage();
                     @Override
                     public void run() {
+                        this.msg.markQueued();
                         PartitionExecutor.this.work_queue.add(this.msg);
                     }
-                });
+                }, hstore_conf.site.snapshot_work_budget);
+                if (hstore_conf.site.snapshot_write_bandwidth > 0) {
+                    DefaultSnapshotDataTarget.setWriteBandwidth(hstore_conf.site.snapshot_write_bandwidth * 1048576l);
+                }
             }
             else {
                 // set up the EE over IPC
@@ -706,6 +883,77 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
         } else {
             this.deferred_queue = null;
         }
+        
+        this.idle_scheduler = new IdleWorkScheduler(this.partitionId);
+        this.queryCache = new QueryCache(hstore_conf.site.exec_query_cache_size * 1024l, 10);
+        
+        // Queue Wait Strategy
+        QueueWaitStrategy.Type waitType = QueueWaitStrategy.Type.get(hstore_conf.site.queue_wait_strategy);
+        if (waitType == null) {
+            LOG.warn(String.format("Invalid queue wait strategy '%s'. Using %s",
+                                   hstore_conf.site.queue_wait_strategy, QueueWaitStrategy.Type.PARK));
+            waitType = QueueWaitStrategy.Type.PARK;
+        }
+        this.wait_strategy = new QueueWaitStrategy(this.partitionId, waitType,
+                                                   hstore_conf.site.queue_wait_spin_count,
+                                                   hstore_conf.site.queue_wait_yield_count);
+        
+        // EE Transaction Batching
+        int batchSize = hstore_conf.site.exec_ee_batch_size;
+        if (batchSize > 1) {
+            this.ee_batch_txnIds = new long[batchSize];
+            this.ee_batch_undoTokens = new long[batchSize];
+            this.ee_batch_fragmentCounts = new int[batchSize];
+            Arrays.fill(this.ee_batch_fragmentCounts, 1);
+            this.ee_batch_fragmentIds = new long[batchSize];
+            this.ee_batch_inputDepIds = new int[batchSize];
+            this.ee_batch_outputDepIds = new int[batchSize];
+            this.ee_batch_params = new ParameterSet[batchSize];
+            this.ee_batch_results = new DependencySet[batchSize];
+        }
+    }
+    
+    /**
+     * Register everything that we can do while we are waiting for txns
+     * with our IdleWorkScheduler
+     */
+    private void initializeIdleWork() {
+        if (this.deferred_queue != null) {
+            this.idle_scheduler.register(WorkType.DEFERRED, new IdleWorkScheduler.Work() {
+                @Override
+                public boolean hasWork() {
+                    return (deferred_queue.isEmpty() == false);
+                }
+                @Override
+                public void doWork() {
+                    executeDeferredWork();
+                }
+            }, hstore_conf.site.exec_idle_deferred_slice);
+        }
+        if (m_snapshotter != null) {
+            this.idle_scheduler.register(WorkType.SNAPSHOT, new IdleWorkScheduler.Work() {
+                @Override
+                public boolean hasWork() {
+                    return (m_snapshotter.hasSnapshotWork());
+                }
+                @Override
+                public void doWork() {
+                    m_snapshotter.doSnapshotWork(ee);
+                }
+            }, hstore_conf.site.exec_idle_snapshot_slice);
+        }
+        if (this.anticacheManager != null) {
+            this.idle_scheduler.register(WorkType.BACKGROUND, new IdleWorkScheduler.Work() {
+                @Override
+                public boolean hasWork() {
+                    return (anticache_evict_pending && currentDtxn == null);
+                }
+                @Override
+                public void doWork() {
+                    evictBlocks();
+                }
+            }, hstore_conf.site.exec_idle_background_slice);
+        }
     }
     
     @SuppressWarnings("unchecked")
@@ -750,14 +998,27 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
         this.thresholds = (hstore_site != null ? hstore_site.getThresholds() : null);
         this.txnInitializer = hstore_site.getTransactionInitializer();
         
+        // The AntiCacheManager will allow us to do special things down in the EE
+        // for evicted tuples
+        this.anticacheManager = hstore_site.getAntiCacheManager();
+        
         if (hstore_conf.site.exec_deferrable_queries) {
             tmp_def_txn = new LocalTransaction(hstore_site);
         }
+        this.initializeIdleWork();
         
         if (hstore_conf.site.exec_profiling) {
             EventObservable<?> observable = this.hstore_site.getStartWorkloadObservable();
             this.work_idle_time.resetOnEventObservable(observable);
+            this.work_idle_time.enableHistogram();
+            for (QueueWaitStrategy.Phase phase : QueueWaitStrategy.Phase.values()) {
+                this.wait_strategy.getWakeupTime(phase).resetOnEventObservable(observable);
+            } // FOR
             this.work_exec_time.resetOnEventObservable(observable);
+            this.work_exec_time.enableHistogram();
+        }
+        if (hstore_conf.site.txn_profiling) {
+            this.txn_latencies = TransactionProfile.createHistograms();
         }
         
         this.initializeVoltProcedures();
@@ -824,6 +1085,18 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
                     m_snapshotter.doSnapshotWork(ee);
                 }
                 // -------------------------------
+                // Anti-Cache Eviction
+                // -------------------------------
+                else if (work instanceof AntiCacheEvictMessage) {
+                    this.processAntiCacheEvictMessage((AntiCacheEvictMessage)work);
+                }
+                // -------------------------------
+                // Anti-Cache Fetch
+                // -------------------------------
+                else if (work instanceof AntiCacheFetchMessage) {
+                    this.processAntiCacheFetchMessage((AntiCacheFetchMessage)work);
+                }
+                // -------------------------------
                 // BAD MOJO!
                 // -------------------------------
                 else if (work != null) {
@@ -874,7 +1147,7 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
      * @return
      */
     protected InternalMessage getNext() {
-        InternalMessage work = this.work_queue.poll();
+        InternalMessage work = this.pollNext();
         if (work == null) {
             if (t) LOG.trace("Partition " + this.partitionId + " queue is empty. Checking for utility work...");
             
@@ -882,7 +1155,7 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
             boolean hasDeferredWork;
             do {
                 hasDeferredWork = this.utilityWork();
-            } while ((work = this.work_queue.poll()) == null && hasDeferredWork == true);
+            } while ((work = this.pollNext()) == null && hasDeferredWork == true);
             
             // There is no more deferred work, so we'll have to wait
             // until something shows up in our queue
@@ -890,13 +1163,27 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
                 if (d) LOG.debug("Partition " + this.partitionId + " queue is empty. Waiting...");
                 if (hstore_conf.site.exec_profiling) this.work_idle_time.start();
                 try {
-                    work = this.work_queue.take();
+                    // Depending on our wait strategy, we may be able to pick up
+                    // the next request without having to block on the work_queue
+                    work = this.wait_strategy.await(this.wait_poller);
+                    while (work == null) {
+                        // We have to check the ingress_queue one more time after we tell
+                        // everyone that we're waiting, otherwise we could miss a request that
+                        // was added right before they saw our flag
+                        this.ingress_waiting = true;
+                        work = this.pollIngress();
+                        if (work == null) work = this.work_queue.take();
+                        this.ingress_waiting = false;
+                        if (work == INGRESS_WAKEUP) work = this.pollIngress();
+                        if (work != null) this.wait_strategy.parked(work);
+                    } // WHILE
                 } catch (InterruptedException ex) {
                     if (d && this.isShuttingDown() == false)
                         LOG.debug("Unexpected interuption while polling work queue. Halting PartitionExecutor...", ex);
                     this.stop = true;
                     return (null);
                 } finally {
+                    this.ingress_waiting = false;
                     if (hstore_conf.site.exec_profiling) this.work_idle_time.stop();                    
                 }
             }
@@ -904,31 +1191,151 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
         return (work);
     }
     
+    /**
+     * Get the next unit of work without blocking. New transaction requests
+     * from the ingress_queue always go first.
+     * @return
+     */
+    private InternalMessage pollNext() {
+        InternalMessage work = this.pollIngress();
+        if (work == null) {
+            while ((work = this.work_queue.poll()) == INGRESS_WAKEUP) {
+                // Ignore stale wake-ups
+            } // WHILE
+        }
+        return (work);
+    }
+    
+    /**
+     * Return the next new transaction request from our current batch. If the
+     * batch is empty, then we will refill it from the ingress_queue.
+     * @return
+     */
+    private InternalMessage pollIngress() {
+        if (this.ingress_batch.isEmpty()) {
+            this.ingress_queue.drainTo(this.ingress_batch, hstore_conf.site.queue_incoming_batch_size);
+        }
+        return (this.ingress_batch.pollFirst());
+    }
+    
+    /**
+     * Return the next new transaction request without removing it
+     * @return
+     */
+    private InternalMessage peekIngress() {
+        if (this.ingress_batch.isEmpty()) {
+            this.ingress_queue.drainTo(this.ingress_batch, hstore_conf.site.queue_incoming_batch_size);
+        }
+        return (this.ingress_batch.peekFirst());
+    }
+    
+    /**
+     * Evict the coldest blocks from our tables if we are using too much memory.
+     * We can't do this while there is a distributed transaction in flight here
+     * because it may need to roll back changes to the blocks that we would evict.
+     * @param work
+     */
+    protected void processAntiCacheEvictMessage(AntiCacheEvictMessage work) {
+        assert(this.anticacheManager != null);
+        if (this.currentDtxn != null) {
+            if (d) LOG.debug(String.format("Skipping anti-cache eviction at partition %d because %s is in flight",
+                                           this.partitionId, this.currentDtxn));
+            return;
+        }
+        // The eviction is background work, so we normally leave it for the
+        // IdleWorkScheduler. But if we have been too busy to get to it since the
+        // last time that we were asked, then we will just do it now.
+        if (this.anticache_evict_pending) {
+            this.evictBlocks();
+        } else {
+            this.anticache_evict_pending = true;
+        }
+    }
+    
+    private void evictBlocks() {
+        this.anticache_evict_pending = false;
+        long evicted = this.anticacheManager.evictBlocks(this);
+        if (d && evicted > 0) LOG.debug(String.format("Evicted %d bytes at partition %d", evicted, this.partitionId));
+    }
+    
+    /**
+     * Read back in the blocks that a transaction tried to access and then
+     * restart it.
+     * @param work
+     */
+    protected void processAntiCacheFetchMessage(AntiCacheFetchMessage work) {
+        assert(this.anticacheManager != null);
+        LocalTransaction ts = work.getTransaction();
+        long bytes = this.anticacheManager.readBlocks(this, work.getTable(), work.getBlockIds());
+        if (d) LOG.debug(String.format("%s - Read %d bytes of evicted blocks from %s back in at partition %d",
+                                       ts, bytes, work.getTable().getName(), this.partitionId));
+        if (ts != null) {
+            this.hstore_site.transactionRequeue(ts, Status.ABORT_RESTART);
+        }
+    }
+    
     /**
      * 
      * @param work
      */
     protected void processInitializeTxnMessage(InitializeTxnMessage work) {
-
+        LocalTransaction ts = this.initializeTransaction(work);
+        this.processNewTransaction(ts);
+    }
+    
+    /**
+     * Create the LocalTransaction handle for a new transaction request
+     * @param work
+     * @return
+     */
+    private LocalTransaction initializeTransaction(InitializeTxnMessage work) {
         ByteBuffer serializedRequest = work.getSerializedRequest(); 
         Procedure catalog_proc = work.getProcedure();
         ParameterSet procParams = work.getProcParams();
         RpcCallback<ClientResponseImpl> done = work.getClientCallback(); 
         long client_handle = work.getClientHandle();
         
-        LocalTransaction ts = this.txnInitializer.initInvocation(
-                                               serializedRequest,
-                                               client_handle,
-                                               this.partitionId,
-                                               catalog_proc,
-                                               procParams,
-                                               done);
+        // The HStoreSite didn't deserialize the full ParameterSet for this
+        // request, so we have to do it now that we know it's going to run here
+        if (procParams == null) {
+            try {
+                procParams = hstore_site.getObjectPools().PARAMETERSETS.borrowObject();
+                StoredProcedureInvocation.seekToParameterSet(serializedRequest);
+                this.fds.setBuffer(serializedRequest);
+                procParams.readExternal(this.fds);
+            } catch (Exception ex) {
+                throw new ServerFaultException("Failed to deserialize ParameterSet for new txn request from client #" + client_handle, ex);
+            }
+        }
+        
+        boolean pooled = (work.getProcParams() == null);
+        LocalTransaction ts = this.txnInitializer.initInvocation(serializedRequest,
+                                                                 client_handle,
+                                                                 this.partitionId,
+                                                                 catalog_proc,
+                                                                 procParams,
+                                                                 done,
+                                                                 work.getPredictTouchedPartitions());
+        if (ts != null) ts.setProcedureParametersPooled(pooled);
+        return (ts);
+    }
+    
+    /**
+     * Execute a new single-partition transaction right away or send
+     * a distributed transaction off to be queued
+     * @param ts
+     */
+    private void processNewTransaction(LocalTransaction ts) {
         // -------------------------------
         // SINGLE-PARTITION TRANSACTION
         // -------------------------------
         if (ts.isPredictSinglePartition() && ts.isMapReduce() == false && ts.isSysProc() == false) {
             this.currentTxn = ts;
-            this.executeTransaction(ts);
+            if (this.ee_batch_txns.isEmpty() && this.canBatchTransaction(ts)) {
+                this.executeTransactionBatch(ts);
+            } else {
+                this.executeTransaction(ts);
+            }
         }
         // -------------------------------    
         // DISTRIBUTED TRANSACTION
@@ -1067,36 +1474,38 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
         // this.tmp_serializedParams.clear();
         // this.tmp_EEdependencies.clear();
         
-        if (hstore_conf.site.exec_deferrable_queries == false) {
-            if (hstore_conf.site.exec_profiling) this.work_utility_time.stop();
-            return (false);
-        }
-
-        boolean ret = false;
-        DeferredWork def_work = this.deferred_queue.poll();
-        if (def_work != null) {
-            // We have work to do
-            // TODO: Set the txnId in our handle to be what the original txn was that
-            //       deferred this query.
-            tmp_def_stmt[0] = def_work.getStmt();
-            tmp_def_params[0] = def_work.getParams();
-            tmp_def_txn.init(def_work.getTxnId(), 
-                       -1, // We don't really need the clientHandle
-                       this.partitionId,
-                       hstore_site.getSingletonPartitionList(partitionId),
-                       false,
-                       false,
-                       tmp_def_stmt[0].getProcedure(),
-                       def_work.getParams(),
-                       null // We don't need the client callback
-                    );
-            this.executeSQLStmtBatch(tmp_def_txn, 1, tmp_def_stmt, tmp_def_params, false, false);
-            ret = (this.deferred_queue.isEmpty() == false);
-        }
+        // Let the IdleWorkScheduler run the deferred queries, snapshot work,
+        // and background work. It will give us back control as soon as
+        // there is a txn for us to execute
+        boolean ret = this.idle_scheduler.run(this.idle_interrupt);
         
         if (hstore_conf.site.exec_profiling) this.work_utility_time.stop();
         return (ret);
     }
+    
+    /**
+     * Execute the next query in our deferred queue
+     */
+    private void executeDeferredWork() {
+        DeferredWork def_work = this.deferred_queue.poll();
+        if (def_work == null) return;
+        
+        // TODO: Set the txnId in our handle to be what the original txn was that
+        //       deferred this query.
+        tmp_def_stmt[0] = def_work.getStmt();
+        tmp_def_params[0] = def_work.getParams();
+        tmp_def_txn.init(def_work.getTxnId(), 
+                   -1, // We don't really need the clientHandle
+                   this.partitionId,
+                   hstore_site.getSingletonPartitionList(partitionId),
+                   false,
+                   false,
+                   tmp_def_stmt[0].getProcedure(),
+                   def_work.getParams(),
+                   null // We don't need the client callback
+                );
+        this.executeSQLStmtBatch(tmp_def_txn, 1, tmp_def_stmt, tmp_def_params, false, false);
+    }
 
     public void tick() {
         // invoke native ee tick if at least one second has passed
@@ -1106,10 +1515,55 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
                 ee.tick(time, lastCommittedTxnId);
             }
             lastTickTime = time;
+            
+            // Once all of the snapshot data targets have been closed, we may
+            // no longer need the command log entries that came before the snapshot
+            if (this.snapshotTxnId != null && SnapshotSiteProcessor.ExecutionSitesCurrentlySnapshotting.get() == -1) {
+                this.checkCommandLogTruncation();
+            }
         }
         
-        // do other periodic work
-        if (m_snapshotter != null) m_snapshotter.doSnapshotWork(ee);
+        // Snapshot work is scheduled by our IdleWorkScheduler
+    }
+    
+    /**
+     * Truncate the command log up to the last snapshot that this partition
+     * participated in. We only do this if the snapshot finished successfully and
+     * was written out to the directory that the command log replays from.
+     * Otherwise we would throw away log entries that we can't recover from.
+     */
+    private void checkCommandLogTruncation() {
+        SnapshotRegistry.Snapshot snapshot = null;
+        for (SnapshotRegistry.Snapshot s : SnapshotRegistry.getSnapshotHistory()) {
+            if (s.nonce.equals(this.snapshotNonce) && s.path.equals(this.snapshotPath)) {
+                snapshot = s;
+                break;
+            }
+        } // FOR
+        // Not all of the tables have been closed yet
+        if (snapshot != null && snapshot.timeFinished == 0) return;
+        
+        Long txnId = this.snapshotTxnId;
+        this.snapshotTxnId = null;
+        if (snapshot == null || snapshot.result == false) {
+            LOG.warn(String.format("Not truncating command log at partition %d because snapshot '%s' failed",
+                                   this.partitionId, this.snapshotNonce));
+            return;
+        }
+        File replayDir = new File(hstore_conf.site.commandlog_replay_snapshot_dir);
+        try {
+            if (new File(snapshot.path).getCanonicalFile().equals(replayDir.getCanonicalFile()) == false) {
+                if (d) LOG.debug(String.format("Not truncating command log at partition %d because snapshot '%s' " +
+                                               "was not written to replay directory %s",
+                                               this.partitionId, snapshot.nonce, replayDir));
+                return;
+            }
+        } catch (IOException ex) {
+            LOG.warn("Failed to resolve snapshot directory " + snapshot.path, ex);
+            return;
+        }
+        CommandLogWriter commandLogger = this.hstore_site.getCommandLogWriter();
+        if (commandLogger != null) commandLogger.truncate(txnId);
     }
 
     @Override
@@ -1194,6 +1648,9 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
     public ThrottlingQueue<InternalMessage> getWorkQueue() {
         return (this.work_queue);
     }
+    public ThrottlingQueue<InternalMessage> getIngressQueue() {
+        return (this.ingress_queue);
+    }
     public final BackendTarget getBackendTarget() {
         return (this.backend_target);
     }
@@ -1287,11 +1744,14 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
         return (this.queued_responses.size());
     }
     public int getWorkQueueSize() {
-        return (this.work_queue.size());
+        return (this.work_queue.size() + this.ingress_queue.size());
     }
     public ProfileMeasurement getWorkIdleTime() {
         return (this.work_idle_time);
     }
+    public QueueWaitStrategy getQueueWaitStrategy() {
+        return (this.wait_strategy);
+    }
     public ProfileMeasurement getWorkNetworkTime() {
         return (this.work_network_time);
     }
@@ -1301,6 +1761,18 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
     public ProfileMeasurement getWorkUtilityTime() {
         return (this.work_utility_time);
     }
+    public IdleWorkScheduler getIdleWorkScheduler() {
+        return (this.idle_scheduler);
+    }
+    /**
+     * Returns the per-phase latency histograms of the txns whose
+     * base partition is this PartitionExecutor. The offsets match
+     * TransactionProfile.PROFILE_FIELDS. Will be null if txn_profiling is disabled.
+     * @return
+     */
+    public LatencyHistogram[] getTransactionLatencies() {
+        return (this.txn_latencies);
+    }
     /**
      * Returns the number of txns that have been invoked on this partition
      * @return
@@ -1438,6 +1910,7 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
         assert(ts.isInitialized());
         
         WorkFragmentMessage work = ts.getWorkFragmentMessage(fragment);
+        work.markQueued();
         this.work_queue.offer(work, true);
         if (d) LOG.debug(String.format("%s - Added distributed txn %s to front of partition %d work queue [size=%d]",
                                        ts, work.getClass().getSimpleName(), this.partitionId, this.work_queue.size()));
@@ -1451,11 +1924,37 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
     public void queueFinish(AbstractTransaction ts, Status status) {
         assert(ts.isInitialized());
         FinishTxnMessage work = ts.getFinishTxnMessage(status);
+        work.markQueued();
         this.work_queue.offer(work, true);
         if (d) LOG.debug(String.format("%s - Added distributed %s to front of partition %d work queue [size=%d]",
                                        ts, work.getClass().getSimpleName(), this.partitionId, this.work_queue.size()));
     }
 
+    /**
+     * Tell this partition to check whether it needs to evict data to the anti-cache
+     */
+    public void queueAntiCacheEvict() {
+        AntiCacheEvictMessage work = new AntiCacheEvictMessage();
+        work.markQueued();
+        this.work_queue.offer(work, true);
+    }
+    
+    /**
+     * Tell this partition to read evicted blocks back in for the given transaction
+     * and then restart it. If the transaction is null, then the blocks are just read
+     * back in. 
+     * @param ts
+     * @param catalog_tbl
+     * @param block_ids
+     */
+    public void queueAntiCacheFetch(LocalTransaction ts, Table catalog_tbl, int block_ids[]) {
+        AntiCacheFetchMessage work = new AntiCacheFetchMessage(ts, catalog_tbl, block_ids);
+        work.markQueued();
+        this.work_queue.offer(work, true);
+        if (d) LOG.debug(String.format("%s - Added %s to front of partition %d work queue [size=%d]",
+                                       ts, work.getClass().getSimpleName(), this.partitionId, this.work_queue.size()));
+    }
+    
     /**
      * Queue a new transaction invocation request at this partition
      * @param serializedRequest
@@ -1468,6 +1967,24 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
                                          Procedure catalog_proc,
                                          ParameterSet procParams,
                                          RpcCallback<ClientResponseImpl> clientCallback) {
+        return (this.queueNewTransaction(serializedRequest, catalog_proc, procParams, clientCallback, null));
+    }
+    
+    /**
+     * Queue a new transaction invocation request at this partition whose
+     * touched partitions are already known (e.g., when replaying the command log)
+     * @param serializedRequest
+     * @param catalog_proc
+     * @param procParams
+     * @param clientCallback
+     * @param predictTouchedPartitions
+     * @return
+     */
+    public boolean queueNewTransaction(ByteBuffer serializedRequest, 
+                                         Procedure catalog_proc,
+                                         ParameterSet procParams,
+                                         RpcCallback<ClientResponseImpl> clientCallback,
+                                         Collection<Integer> predictTouchedPartitions) {
         
         if (d) LOG.debug(String.format("Queuing new %s transaction execution request on partition %d " +
                                        "[currentDtxn=%s, mode=%s]",
@@ -1477,8 +1994,18 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
         InitializeTxnMessage work = new InitializeTxnMessage(serializedRequest,
                                                              catalog_proc,
                                                              procParams,
-                                                             clientCallback);
-        return (this.work_queue.offer(work));
+                                                             clientCallback,
+                                                             predictTouchedPartitions);
+        work.markQueued();
+        if (this.ingress_queue.offer(work) == false) {
+            return (false);
+        }
+        // If our thread is about to block on the work_queue, then it may
+        // not have seen our new request. So we have to poke it.
+        if (this.ingress_waiting) {
+            this.work_queue.offer(INGRESS_WAKEUP, true);
+        }
+        return (true);
     }
     
     /**
@@ -1508,6 +2035,7 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
         if (d) LOG.debug(String.format("%s - Adding to work queue at partition %d [size=%d]",
                                        ts, this.partitionId, this.work_queue.size()));
         StartTxnMessage work = new StartTxnMessage(ts);
+        work.markQueued();
         return (this.work_queue.offer(work, true));
     }
 
@@ -1579,6 +2107,194 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
         this.currentBlockedTxns.add(work);
     }
     
+    // ---------------------------------------------------------------
+    // EE TRANSACTION BATCHING
+    // ---------------------------------------------------------------
+    
+    /**
+     * Returns true if the given txn's query can be executed together with
+     * other txns in a single call into the EE. We can only do this for
+     * single-partition txns for procedures without any Java code because we
+     * know what their query is going to be before we start them.
+     * @param ts
+     * @return
+     */
+    private boolean canBatchTransaction(LocalTransaction ts) {
+        return (this.ee_batch_txnIds != null &&
+                this.ee != null &&
+                ts.isPredictSinglePartition() &&
+                ts.isMapReduce() == false &&
+                ts.isSysProc() == false &&
+                ts.getProcedure().getHasjava() == false &&
+                ts.getEstimatorState() == null &&
+                this.currentDtxn == null &&
+                this.currentExecMode == ExecutionMode.COMMIT_ALL);
+    }
+    
+    /**
+     * Returns true if the given txn needs to pick up its result from
+     * the last EE batch instead of going to the EE
+     * @param ts
+     * @return
+     */
+    private boolean isBatchedTransaction(AbstractTransaction ts) {
+        return (this.ee_batch_next < this.ee_batch_count &&
+                this.ee_batch_txns.get(this.ee_batch_next) == ts);
+    }
+    
+    /**
+     * Group the given txn together with the other txns for procedures without any
+     * Java code that are waiting at the front of our ingress queue. We execute all 
+     * of their queries with a single call into the EE and then run each of the txns
+     * like normal. They will pick up their results in executePlanFragments().
+     * @param first
+     */
+    private void executeTransactionBatch(LocalTransaction first) {
+        assert(this.ee_batch_txns.isEmpty());
+        this.ee_batch_txns.add(first);
+        
+        // Grab all of the txns that we can from the ingress queue
+        LocalTransaction leftover = null;
+        InternalMessage next = null;
+        while (this.ee_batch_txns.size() < this.ee_batch_txnIds.length &&
+               (next = this.peekIngress()) instanceof InitializeTxnMessage) {
+            Procedure catalog_proc = ((InitializeTxnMessage)next).getProcedure();
+            if (catalog_proc.getHasjava() || catalog_proc.getSystemproc() || catalog_proc.getMapreduce()) {
+                break;
+            }
+            this.ingress_batch.pollFirst();
+            LocalTransaction ts = this.initializeTransaction((InitializeTxnMessage)next);
+            if (this.canBatchTransaction(ts) == false) {
+                leftover = ts;
+                break;
+            }
+            this.ee_batch_txns.add(ts);
+        } // WHILE
+        
+        try {
+            if (this.ee_batch_txns.size() > 1) this.prefetchTransactionBatch();
+            for (int i = 0, cnt = this.ee_batch_txns.size(); i < cnt; i++) {
+                LocalTransaction ts = this.ee_batch_txns.get(i);
+                this.currentTxn = ts;
+                this.executeTransaction(ts);
+                
+                // If a txn that the EE already executed didn't pick up its result,
+                // then its changes will never get released or undone
+                if (i < this.ee_batch_count && this.ee_batch_next <= i) {
+                    throw new ServerFaultException(String.format("%s - Failed to pick up its result from EE batch " +
+                                                                 "at partition %d", ts, this.partitionId),
+                                                   ts.getTransactionId());
+                }
+            } // FOR
+        } finally {
+            this.ee_batch_txns.clear();
+            this.ee_batch_count = 0;
+            this.ee_batch_next = 0;
+            this.ee_batch_error = null;
+            Arrays.fill(this.ee_batch_params, null);
+            Arrays.fill(this.ee_batch_results, null);
+        }
+        
+        if (leftover != null) this.processNewTransaction(leftover);
+    }
+    
+    /**
+     * Plan the query for each txn in ee_batch_txns and then execute them all 
+     * with a single call into the EE. We stop at the first txn that we can't 
+     * plan locally. The txns after that one will go to the EE on their own.
+     */
+    private void prefetchTransactionBatch() {
+        int num_txns = 0;
+        for (LocalTransaction ts : this.ee_batch_txns) {
+            VoltProcedure volt_proc = this.procedures.get(ts.getProcedureName());
+            assert(volt_proc != null) : "No VoltProcedure for " + ts;
+            SQLStmt stmt = volt_proc.getNoJavaStatement();
+            if (stmt == null) break;
+            ParameterSet params = volt_proc.getNoJavaParameterSet(ts.getProcedureParameters().toArray());
+            if (params == null) break;
+            
+            this.tmp_batchStmt[0] = stmt;
+            this.tmp_batchParams[0] = params;
+            this.tmp_batchTouchedPartitions.clear();
+            BatchPlanner planner = this.getBatchPlanner(ts, 1, this.tmp_batchStmt, false);
+            BatchPlanner.BatchPlan plan = planner.plan(ts.getTransactionId(),
+                                                       ts.getClientHandle(),
+                                                       this.partitionIdObj,
+                                                       ts.getPredictTouchedPartitions(),
+                                                       ts.isPredictSinglePartition(),
+                                                       this.tmp_batchTouchedPartitions,
+                                                       this.tmp_batchParams);
+            if (plan.getMisprediction() != null ||
+                plan.isSingledPartitionedAndLocal() == false ||
+                plan.getFragmentCount() != 1) {
+                break;
+            }
+            
+            this.ee_batch_txnIds[num_txns] = ts.getTransactionId().longValue();
+            this.ee_batch_undoTokens[num_txns] = (this.needsUndoToken(ts) ? this.getNextUndoToken() :
+                                                                             HStoreConstants.DISABLE_UNDO_LOGGING_TOKEN);
+            this.ee_batch_fragmentIds[num_txns] = plan.getFragmentIds()[0];
+            this.ee_batch_inputDepIds[num_txns] = plan.getInputDependencyIds()[0];
+            this.ee_batch_outputDepIds[num_txns] = plan.getOutputDependencyIds()[0];
+            this.ee_batch_params[num_txns] = params;
+            num_txns++;
+        } // FOR
+        this.tmp_batchStmt[0] = null;
+        this.tmp_batchParams[0] = null;
+        if (num_txns < 2) return;
+        
+        if (d) LOG.debug(String.format("Executing %d txns in a single EE batch at partition %d",
+                                       num_txns, this.partitionId));
+        try {
+            this.ee.executeTransactionBatch(num_txns,
+                                            this.ee_batch_txnIds,
+                                            this.ee_batch_undoTokens,
+                                            this.ee_batch_fragmentCounts,
+                                            this.ee_batch_fragmentIds,
+                                            this.ee_batch_inputDepIds,
+                                            this.ee_batch_outputDepIds,
+                                            this.ee_batch_params,
+                                            this.lastCommittedTxnId,
+                                            this.ee_batch_results);
+            this.ee_batch_count = num_txns;
+        } catch (SerializableException ex) {
+            // The EE stopped at the txn that failed. That txn will get
+            // this error when it runs and then it will get aborted
+            int executed = 0;
+            while (executed < num_txns && this.ee_batch_results[executed] != null) {
+                executed++;
+            } // WHILE
+            if (d) LOG.debug(String.format("%s - Failed in EE batch at partition %d [executed=%d/%d]",
+                                           this.ee_batch_txns.get(executed), this.partitionId,
+                                           executed, num_txns), ex);
+            this.ee_batch_error = ex;
+            this.ee_batch_count = executed + 1;
+        }
+    }
+    
+    /**
+     * Return the result for the given txn from the last EE batch. If this
+     * txn failed in the EE, then we will throw its error.
+     * @param ts
+     * @param fragmentIds
+     * @param batchSize
+     * @param undoToken
+     * @return
+     */
+    private DependencySet getBatchedResult(AbstractTransaction ts, long fragmentIds[], int batchSize, long undoToken) {
+        int idx = this.ee_batch_next++;
+        if (batchSize != 1 ||
+            fragmentIds[0] != this.ee_batch_fragmentIds[idx] ||
+            undoToken != this.ee_batch_undoTokens[idx]) {
+            throw new ServerFaultException(String.format("%s - Fragments %s do not match what was executed in EE batch",
+                                                         ts, Arrays.toString(fragmentIds)), ts.getTransactionId());
+        }
+        if (idx == this.ee_batch_count - 1 && this.ee_batch_error != null) {
+            throw this.ee_batch_error;
+        }
+        return (this.ee_batch_results[idx]);
+    }
+    
     /**
      * Execute a new transaction based on an InitiateTaskMessage
      * @param itask
@@ -1698,6 +2414,10 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
             return;
         }
         
+        // The results may outlive the txn handle if they are still waiting
+        // to be written out to the client 
+        if (this.result_pool != null) cresponse.retainResults();
+        
         Status status = cresponse.getStatus();
         if (d) LOG.debug(String.format("Finished execution of %s [status=%s, beforeMode=%s, currentMode=%s]",
                                        ts, status, before_mode, this.currentExecMode));
@@ -1724,6 +2444,10 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
                     if (status != Status.OK && ts.isExecReadOnlyAllPartitions() == false) {
                         this.setExecutionMode(ts, ExecutionMode.DISABLED);
                         int blocked = this.work_queue.drainTo(this.currentBlockedTxns);
+                        blocked += this.ingress_batch.size();
+                        this.currentBlockedTxns.addAll(this.ingress_batch);
+                        this.ingress_batch.clear();
+                        blocked += this.ingress_queue.drainTo(this.currentBlockedTxns);
                         if (t && blocked > 0)
                             LOG.trace(String.format("Blocking %d transactions at partition %d because ExecutionMode is now %s",
                                                     blocked, this.partitionId, this.currentExecMode));
@@ -1829,6 +2553,17 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
             if (d) LOG.warn(String.format("%s - Unexpected ConstraintFailureException error on partition %d", ts, this.partitionId), ex);
             status = Status.ABORT_UNEXPECTED;
             error = ex;
+        } catch (EvictedTupleAccessException ex) {
+            if (d) LOG.debug(String.format("%s - Accessed evicted blocks %s in %s on partition %d",
+                                           ts, Arrays.toString(ex.getBlockIds()), ex.getTableName(), this.partitionId));
+            status = Status.ABORT_RESTART;
+            error = ex;
+            // We can't hold a distributed txn while we wait for the blocks, so
+            // we'll just read them back in so that they are there if it is retried
+            if (this.anticacheManager != null) {
+                Table catalog_tbl = this.database.getTables().get(ex.getTableName());
+                this.anticacheManager.queue(null, this.partitionId, catalog_tbl, ex.getBlockIds());
+            }
         } catch (EEException ex) {
             LOG.error(String.format("%s - Unexpected ExecutionEngine error on partition %d", ts, this.partitionId), ex);
             this.crash(ex);
@@ -2038,6 +2773,9 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
             // HACK: We have to set the TransactionState for sysprocs manually
             volt_proc.setTransactionState(ts);
             ts.markExecNotReadOnly(this.partitionId);
+            
+            // We don't know what sysprocs will modify, so we can't trust our cached query results 
+            if (this.tableVersions != null) this.invalidateQueryCache();
             try {
                 result = volt_proc.executePlanFragment(ts.getTransactionId(),
                                                        this.tmp_EEdependencies,
@@ -2079,10 +2817,15 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
     public VoltTable[] executeLocalPlan(LocalTransaction ts, BatchPlanner.BatchPlan plan, ParameterSet parameterSets[]) {
         long undoToken = HStoreConstants.DISABLE_UNDO_LOGGING_TOKEN;
         
+        // If this txn's query was already executed as part of an EE batch, then we
+        // have to use the same undo token that it was executed with
+        if (this.isBatchedTransaction(ts)) {
+            undoToken = this.ee_batch_undoTokens[this.ee_batch_next];
+        }
         // If we originally executed this transaction with undo buffers and we have a MarkovEstimate,
         // then we can go back and check whether we want to disable undo logging for the rest of the transaction
         // We can do this regardless of whether the transaction has written anything <-- NOT TRUE!
-        if (ts.getEstimatorState() != null &&
+        else if (ts.getEstimatorState() != null &&
             ts.isPredictSinglePartition() &&
             ts.isSpeculative() == false && hstore_conf.site.exec_no_undo_logging) {
             
@@ -2096,8 +2839,7 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
             }
         }
         // If the transaction is predicted to be read-only, then we won't bother with an undo buffer
-        else if ((ts.isPredictReadOnly() == false && hstore_conf.site.exec_no_undo_logging_all == false) ||
-                 hstore_conf.site.exec_force_undo_logging_all) {
+        else if (this.needsUndoToken(ts)) {
             undoToken = this.getNextUndoToken();
         }
         ts.fastInitRound(this.partitionId, undoToken);
@@ -2149,6 +2891,18 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
         return (result != null ? result.dependencies : null);
     }
     
+    /**
+     * Returns true if the given txn needs an undo token for its queries
+     * when it does not have a MarkovEstimate. If the transaction is predicted
+     * to be read-only, then we won't bother with an undo buffer.
+     * @param ts
+     * @return
+     */
+    private boolean needsUndoToken(LocalTransaction ts) {
+        return ((ts.isPredictReadOnly() == false && hstore_conf.site.exec_no_undo_logging_all == false) ||
+                hstore_conf.site.exec_force_undo_logging_all);
+    }
+    
     /**
      * Execute the given fragment tasks on this site's underlying EE
      * @param ts
@@ -2220,6 +2974,28 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
             ts.setSubmittedEE(this.partitionId);
         }
         
+        // Check whether we already have the results for any of these fragments in our QueryCache.
+        // We only use the cache if none of the fragments in the batch modify data, otherwise
+        // we would not know whether the results were generated before or after the writes.
+        boolean cacheable = (this.tableVersions != null && this.isReadOnlyBatch(fragmentIds, batchSize));
+        VoltTable cachedResults[] = null;
+        int numCached = 0;
+        if (cacheable && this.isBatchedTransaction(ts) == false) {
+            for (int i = 0; i < batchSize; i++) {
+                if (input_depIds[i] != HStoreConstants.NULL_DEPENDENCY_ID ||
+                    this.cacheableFragmentTables.containsKey(fragmentIds[i]) == false) continue;
+                VoltTable vt = this.queryCache.getGlobalCachedResult((int)fragmentIds[i], parameterSets[i], this.tableVersions);
+                if (vt != null) {
+                    if (cachedResults == null) cachedResults = new VoltTable[batchSize];
+                    cachedResults[i] = vt;
+                    numCached++;
+                }
+            } // FOR
+            if (d && numCached > 0)
+                LOG.debug(String.format("%s - Found cached results for %d/%d fragments at partition %d",
+                                        ts, numCached, batchSize, this.partitionId));
+        }
+        
         DependencySet result = null;
         boolean needs_profiling = (hstore_conf.site.txn_profiling && ts.isExecLocal(this.partitionId));
         if (needs_profiling) ((LocalTransaction)ts).profiler.startExecEE();
@@ -2228,16 +3004,25 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
             if (d) LOG.debug(String.format("%s - Executing fragments %s at partition %d",
                                            ts, Arrays.toString(fragmentIds), this.partitionId));
             
-            result = this.ee.executeQueryPlanFragmentsAndGetDependencySet(
-                            fragmentIds,
-                            batchSize,
-                            input_depIds,
-                            output_depIds,
-                            parameterSets,
-                            batchSize,
-                            txn_id.longValue(),
-                            this.lastCommittedTxnId,
-                            undoToken);
+            if (this.isBatchedTransaction(ts)) {
+                result = this.getBatchedResult(ts, fragmentIds, batchSize, undoToken);
+            } else if (cachedResults != null) {
+                result = this.executeUncachedPlanFragments(ts, undoToken, batchSize,
+                                                           fragmentIds, parameterSets,
+                                                           output_depIds, input_depIds,
+                                                           cachedResults, numCached);
+            } else {
+                result = this.ee.executeQueryPlanFragmentsAndGetDependencySet(
+                                fragmentIds,
+                                batchSize,
+                                input_depIds,
+                                output_depIds,
+                                parameterSets,
+                                batchSize,
+                                txn_id.longValue(),
+                                this.lastCommittedTxnId,
+                                undoToken);
+            }
             
         } catch (SerializableException ex) {
             if (d) LOG.error(String.format("%s - Unexpected error in the ExecutionEngine on partition %d",
@@ -2255,6 +3040,29 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
             }
         }
         
+        // Update our table versions so that we don't use stale results from the QueryCache
+        // and then store the results of any cacheable fragments that we just executed
+        if (this.tableVersions != null) {
+            if (cacheable == false) {
+                this.updateTableVersions(fragmentIds, batchSize);
+            } else if (result != null) {
+                for (int i = 0; i < batchSize; i++) {
+                    if (cachedResults != null && cachedResults[i] != null) continue;
+                    if (input_depIds[i] != HStoreConstants.NULL_DEPENDENCY_ID) continue;
+                    int tableIds[] = this.cacheableFragmentTables.get(fragmentIds[i]);
+                    if (tableIds == null) continue;
+                    this.queryCache.addGlobalQueryResult((int)fragmentIds[i], parameterSets[i],
+                                                         tableIds, this.tableVersions,
+                                                         result.dependencies[i]);
+                } // FOR
+            }
+        }
+        
+        // Any pooled output tables are owned by the txn until it gets cleaned up
+        if (this.result_pool != null && result != null) {
+            ts.addPooledResults(this.partitionId, result.dependencies);
+        }
+        
         // *********************************** DEBUG ***********************************
         if (d) {
             if (result != null) {
@@ -2291,13 +3099,218 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
         }
 
         ts.setSubmittedEE(this.partitionId);
-        ee.loadTable(table.getRelativeIndex(), data,
-                     ts.getTransactionId(),
-                     lastCommittedTxnId,
-                     getNextUndoToken(),
-                     allowELT != 0);
+        if (hstore_conf.site.exec_bulk_load == false) {
+            ee.loadTable(table.getRelativeIndex(), data,
+                         ts.getTransactionId(),
+                         lastCommittedTxnId,
+                         getNextUndoToken(),
+                         allowELT != 0);
+        } else {
+            // The indexes are built and the constraints are checked for the whole
+            // batch when we switch bulk-load mode off again. If that fails, then the EE
+            // has already removed everything that we loaded and the EEException goes
+            // back to this txn so that it gets aborted.
+            if (d) LOG.debug(String.format("%s - Bulk loading %d tuples into %s at partition %d",
+                                           ts, data.getRowCount(), table.getName(), this.partitionId));
+            ee.setBulkLoad(table.getRelativeIndex(), true);
+            try {
+                ee.loadTable(table.getRelativeIndex(), data,
+                             ts.getTransactionId(),
+                             lastCommittedTxnId,
+                             getNextUndoToken(),
+                             allowELT != 0);
+            } catch (EEException ex) {
+                // Don't leave the table in bulk-load mode. The load failed, so
+                // we only care about the original error here
+                try {
+                    ee.setBulkLoad(table.getRelativeIndex(), false);
+                } catch (EEException ignore) {
+                    // Ignore
+                }
+                throw ex;
+            }
+            ee.setBulkLoad(table.getRelativeIndex(), false);
+        }
+        if (this.tableVersions != null) this.tableVersions[table.getRelativeIndex()]++;
     }
 
+    // ----------------------------------------------------------------------------
+    // QUERY CACHE METHODS
+    // ----------------------------------------------------------------------------
+    
+    /**
+     * Figure out what tables are read by each PlanFragment of the cacheable Statements
+     * and what tables may be modified by each PlanFragment that is not read-only 
+     */
+    private void initializeQueryCache() {
+        int maxTableId = 0;
+        for (Table catalog_tbl : this.database.getTables()) {
+            maxTableId = Math.max(maxTableId, catalog_tbl.getRelativeIndex());
+        } // FOR
+        this.tableVersions = new long[maxTableId + 1];
+        
+        for (Procedure catalog_proc : this.database.getProcedures()) {
+            for (Statement catalog_stmt : catalog_proc.getStatements()) {
+                if (catalog_stmt.getReadonly() && catalog_stmt.getCacheable() == false) continue;
+                
+                // If we can't figure out what tables the Statement touches, then it won't
+                // be cacheable and any writes will just invalidate everything 
+                Collection<Table> tables = null;
+                try {
+                    tables = CatalogUtil.getAllTables(catalog_stmt);
+                } catch (Throwable ex) {
+                    LOG.warn(String.format("Failed to get the tables referenced by %s. Unable to cache its results",
+                                           catalog_stmt.fullName()), ex);
+                    continue;
+                }
+                int tableIds[] = new int[tables.size()];
+                int i = 0;
+                for (Table catalog_tbl : tables) {
+                    tableIds[i++] = catalog_tbl.getRelativeIndex();
+                } // FOR
+                
+                // Only the single-partition plan is cacheable
+                if (catalog_stmt.getReadonly()) {
+                    for (PlanFragment catalog_frag : catalog_stmt.getFragments()) {
+                        this.cacheableFragmentTables.put(Long.valueOf(catalog_frag.getId()), tableIds);
+                    } // FOR
+                } else {
+                    for (PlanFragment catalog_frag : catalog_stmt.getFragments()) {
+                        this.writeFragmentTables.put(Long.valueOf(catalog_frag.getId()), tableIds);
+                    } // FOR
+                    for (PlanFragment catalog_frag : catalog_stmt.getMs_fragments()) {
+                        this.writeFragmentTables.put(Long.valueOf(catalog_frag.getId()), tableIds);
+                    } // FOR
+                }
+            } // FOR (stmt)
+        } // FOR (proc)
+        if (d) LOG.debug(String.format("Partition %d has %d cacheable PlanFragments and %d PlanFragments that modify data",
+                                       this.partitionId, this.cacheableFragmentTables.size(), this.writeFragmentTables.size()));
+    }
+    
+    /**
+     * Returns true if none of the given PlanFragments modify data
+     */
+    private boolean isReadOnlyBatch(long fragmentIds[], int batchSize) {
+        for (int i = 0; i < batchSize; i++) {
+            if (PlanFragmentIdGenerator.isPlanFragmentReadOnly(fragmentIds[i]) == false) return (false);
+        } // FOR
+        return (true);
+    }
+    
+    /**
+     * Increment the version of every table that the given PlanFragments may modify.
+     * If we don't know what a PlanFragment modifies, then all of the tables get a new version.
+     */
+    private void updateTableVersions(long fragmentIds[], int batchSize) {
+        for (int i = 0; i < batchSize; i++) {
+            if (PlanFragmentIdGenerator.isPlanFragmentReadOnly(fragmentIds[i])) continue;
+            int tableIds[] = this.writeFragmentTables.get(fragmentIds[i]);
+            if (tableIds == null) {
+                this.invalidateQueryCache();
+                return;
+            }
+            for (int tableId : tableIds) {
+                this.tableVersions[tableId]++;
+            } // FOR
+        } // FOR
+    }
+    
+    /**
+     * Give every table a new version. This is needed whenever we modify the
+     * database in a way that we can't track, such as rolling back a txn.
+     */
+    private void invalidateQueryCache() {
+        if (t) LOG.trace(String.format("Invalidating all cached query results at partition %d", this.partitionId));
+        for (int i = 0; i < this.tableVersions.length; i++) {
+            this.tableVersions[i]++;
+        } // FOR
+        this.queryCache.clearGlobalCache();
+    }
+    
+    /**
+     * Execute the given PlanFragments in the EE, except for the ones whose results
+     * we already have from the QueryCache.
+     * @param cachedResults The cached results for each PlanFragment (null if we need to execute it)
+     * @param numCached The number of non-null entries in cachedResults 
+     */
+    private DependencySet executeUncachedPlanFragments(AbstractTransaction ts,
+                                                        long undoToken,
+                                                        int batchSize, 
+                                                        long fragmentIds[],
+                                                        ParameterSet parameterSets[],
+                                                        int output_depIds[],
+                                                        int input_depIds[],
+                                                        VoltTable cachedResults[],
+                                                        int numCached) {
+        DependencySet eeResult = null;
+        int numMisses = batchSize - numCached;
+        if (numMisses > 0) {
+            long missFragmentIds[] = new long[numMisses];
+            ParameterSet missParams[] = new ParameterSet[numMisses];
+            int missOutputDepIds[] = new int[numMisses];
+            int missInputDepIds[] = new int[numMisses];
+            for (int i = 0, j = 0; i < batchSize; i++) {
+                if (cachedResults[i] != null) continue;
+                missFragmentIds[j] = fragmentIds[i];
+                missParams[j] = parameterSets[i];
+                missOutputDepIds[j] = output_depIds[i];
+                missInputDepIds[j] = input_depIds[i];
+                j++;
+            } // FOR
+            eeResult = this.ee.executeQueryPlanFragmentsAndGetDependencySet(
+                                missFragmentIds,
+                                numMisses,
+                                missInputDepIds,
+                                missOutputDepIds,
+                                missParams,
+                                numMisses,
+                                ts.getTransactionId().longValue(),
+                                this.lastCommittedTxnId,
+                                undoToken);
+        }
+        
+        // Put the results back together in the original order
+        int depIds[] = new int[batchSize];
+        VoltTable results[] = new VoltTable[batchSize];
+        for (int i = 0, j = 0; i < batchSize; i++) {
+            depIds[i] = output_depIds[i];
+            results[i] = (cachedResults[i] != null ? cachedResults[i] : eeResult.dependencies[j++]);
+        } // FOR
+        return (new DependencySet(depIds, results));
+    }
+    
+    public QueryCache getQueryCache() {
+        return (this.queryCache);
+    }
+
+    /**
+     * Return the BatchPlanner for the given batch of SQLStmts
+     * @param ts
+     * @param batchSize
+     * @param batchStmts
+     * @param forceSinglePartition
+     * @return
+     */
+    private BatchPlanner getBatchPlanner(LocalTransaction ts,
+                                         int batchSize,
+                                         SQLStmt batchStmts[],
+                                         boolean forceSinglePartition) {
+        // Calculate the hash code for this batch to see whether we already have a planner
+        final Integer batchHashCode = VoltProcedure.getBatchHashCode(batchStmts, batchSize);
+        BatchPlanner planner = this.batchPlanners.get(batchHashCode);
+        if (planner == null) { // Assume fast case
+            planner = new BatchPlanner(batchStmts,
+                                       batchSize,
+                                       ts.getProcedure(),
+                                       this.p_estimator,
+                                       forceSinglePartition);
+            this.batchPlanners.put(batchHashCode, planner);
+        }
+        assert(planner != null);
+        return (planner);
+    }
+    
     /**
      * Execute a SQLStmt batch at this partition.
      * @param ts The txn handle that is executing this query batch
@@ -2323,18 +3336,7 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
             // EXAMPLE: batchStmts[0].getStatement().getDeferrable()    
         }
         
-        // Calculate the hash code for this batch to see whether we already have a planner
-        final Integer batchHashCode = VoltProcedure.getBatchHashCode(batchStmts, batchSize);
-        BatchPlanner planner = this.batchPlanners.get(batchHashCode);
-        if (planner == null) { // Assume fast case
-            planner = new BatchPlanner(batchStmts,
-                                       batchSize,
-                                       ts.getProcedure(),
-                                       this.p_estimator,
-                                       forceSinglePartition);
-            this.batchPlanners.put(batchHashCode, planner);
-        }
-        assert(planner != null);
+        BatchPlanner planner = this.getBatchPlanner(ts, batchSize, batchStmts, forceSinglePartition);
         
         // At this point we have to calculate exactly what we need to do on each partition
         // for this batch. So somehow right now we need to fire this off to either our
@@ -3047,8 +4049,27 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
                 if (d) LOG.debug(String.format("%s - Restarting because transaction is mispredicted", ts));
                 // We don't want to delete the transaction here because whoever is going to requeue it for
                 // us will need to know what partitions that the transaction touched when it executed before
+                cresponse.releaseResults();
                 this.hstore_site.transactionRequeue(ts, status);
             }
+            // If the txn tried to access evicted tuples, then we will have the
+            // AntiCacheManager fetch them back in and then restart the txn
+            else if (status == Status.ABORT_RESTART &&
+                     this.anticacheManager != null &&
+                     cresponse.getException() instanceof EvictedTupleAccessException) {
+                EvictedTupleAccessException error = (EvictedTupleAccessException)cresponse.getException();
+                Table catalog_tbl = this.database.getTables().get(error.getTableName());
+                if (d) LOG.debug(String.format("%s - Restarting because transaction accessed evicted blocks %s in %s",
+                                               ts, Arrays.toString(error.getBlockIds()), error.getTableName()));
+                // The txn is either going to be restarted or rejected with a new
+                // ClientResponse, so nobody is ever going to send these results
+                cresponse.releaseResults();
+                if (this.anticacheManager.queue(ts, this.partitionId, catalog_tbl, error.getBlockIds()) == false) {
+                    this.hstore_site.transactionReject(ts, Status.ABORT_REJECT);
+                    ts.markAsDeletable();
+                    this.hstore_site.deleteTransaction(ts, Status.ABORT_REJECT);
+                }
+            }
             // Use the separate post-processor thread to send back the result
             else if (hstore_conf.site.exec_postprocessing_threads) {
                 if (t) LOG.trace(String.format("%s - Sending ClientResponse to post-processing thread [status=%s]",
@@ -3161,6 +4182,7 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
                     if (d) LOG.debug(String.format("%s - Aborting on partition=%d [lastTxnId=%d, undoToken=%d, submittedEE=%s]",
                                                    ts, this.partitionId, this.lastCommittedTxnId, undoToken, ts.hasSubmittedEE(this.partitionId)));
                     this.ee.undoUndoToken(undoToken);
+                    if (this.tableVersions != null) this.invalidateQueryCache();
                 }
                 if (needs_profiling) ((LocalTransaction)ts).profiler.stopPostEE();
             }
@@ -3346,10 +4368,21 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
      * Do snapshot work exclusively until there is no more. Also blocks
      * until the syncing and closing of snapshot data targets has completed.
      */
-    public void initiateSnapshots(Deque<SnapshotTableTask> tasks) {
+    public void initiateSnapshots(Deque<SnapshotTableTask> tasks, long txnId, String file_path, String file_nonce) {
         m_snapshotter.initiateSnapshots(ee, tasks);
+        this.snapshotTxnId = txnId;
+        this.snapshotPath = file_path;
+        this.snapshotNonce = file_nonce;
     }
 
+    /**
+     * Returns the per-table progress of the current snapshot at this partition.
+     * Returns null if this partition has never taken a snapshot.
+     */
+    public List<SnapshotTableTask> getSnapshotProgress() {
+        return (m_snapshotter != null ? m_snapshotter.getSnapshotProgress() : null);
+    }
+    
     public Collection<Exception> completeSnapshotWork() throws InterruptedException {
         return m_snapshotter.completeSnapshotWork(ee);
     }
@@ -3409,5 +4442,17 @@ public class PartitionExecutor implements Runnable, Shutdownable, Loggable {
                 LOG.fatal("Unexpected error while shutting down", ex);
             }
         }
+        
+        // Any speculative txn that is still waiting for its response to get
+        // released is never going to send it, so give back its result tables
+        exec_lock.lock();
+        try {
+            Pair<LocalTransaction, ClientResponseImpl> pair = null;
+            while ((pair = this.queued_responses.poll()) != null) {
+                pair.getSecond().releaseResults();
+            } // WHILE
+        } finally {
+            exec_lock.unlock();
+        } // SYNCH
     }
 }
@@ -34,6 +34,7 @@ import org.voltdb.ParameterSet;
 import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Procedure;
+import org.voltdb.messaging.FastDeserializer;
 
 import com.google.protobuf.RpcCallback;
 
@@ -137,6 +138,35 @@ public class TransactionInitializer {
                                        Procedure catalog_proc,
                                        ParameterSet procParams,
                                        int base_partition) {
+        assert(procParams != null);
+        return (this.calculateBasePartition(client_handle, catalog_proc, procParams, null, base_partition));
+    }
+    
+    /**
+     * Calculate what partition the txn should be executed on directly from
+     * its serialized ParameterSet. Only the parameters that the PartitionEstimator
+     * needs to look at will get deserialized. This means that we don't have to 
+     * deserialize the full ParameterSet for txns that we end up redirecting to
+     * another site.
+     * @param client_handle
+     * @param catalog_proc
+     * @param paramsDeserializer A FastDeserializer positioned at the start of the serialized ParameterSet
+     * @param base_partition
+     * @return
+     */
+    public int calculateBasePartition(long client_handle,
+                                       Procedure catalog_proc,
+                                       FastDeserializer paramsDeserializer,
+                                       int base_partition) {
+        assert(paramsDeserializer != null);
+        return (this.calculateBasePartition(client_handle, catalog_proc, null, paramsDeserializer, base_partition));
+    }
+    
+    private int calculateBasePartition(long client_handle,
+                                        Procedure catalog_proc,
+                                        ParameterSet procParams,
+                                        FastDeserializer paramsDeserializer,
+                                        int base_partition) {
         
         // Simple sanity check to make sure that we're not being told a bad partition
         if (base_partition < 0 || base_partition >= hstore_site.local_partitions_arr.length) {
@@ -165,7 +195,25 @@ public class TransactionInitializer {
         else if (hstore_conf.site.exec_force_localexecution == false) {
             if (d) LOG.debug(String.format("Using PartitionEstimator for %s request", catalog_proc.getName()));
             try {
-                Integer p = this.p_estimator.getBasePartition(catalog_proc, procParams.toArray(), false);
+                Object params[] = null;
+                if (procParams != null) {
+                    params = procParams.toArray();
+                } else {
+                    params = new Object[catalog_proc.getParameters().size()];
+                    int offsets[] = this.p_estimator.getBasePartitionParameterOffsets(catalog_proc);
+                    if (offsets.length > 0) {
+                        int num_params = ParameterSet.readParametersAtOffsets(paramsDeserializer, offsets, params);
+                        if (num_params != params.length) {
+                            // Let the txn fail later on when we deserialize the whole thing
+                            if (d) LOG.debug(String.format("Invalid number of parameters for %s request " +
+                                                           "[expected=%d, actual=%d]",
+                                                           catalog_proc.getName(), params.length, num_params));
+                            params = null;
+                        }
+                    }
+                }
+                Integer p = null;
+                if (params != null) p = this.p_estimator.getBasePartition(catalog_proc, params, false);
                 if (p != null) base_partition = p.intValue(); 
             } catch (Exception ex) {
                 throw new RuntimeException(ex);
@@ -193,6 +241,7 @@ public class TransactionInitializer {
      * @param catalog_proc
      * @param procParams
      * @param done
+     * @param predict_touchedPartitions The partitions that this txn is already known to touch (may be null)
      * @return
      */
     public LocalTransaction initInvocation(ByteBuffer serializedRequest, 
@@ -200,7 +249,8 @@ public class TransactionInitializer {
                                      int base_partition,
                                      Procedure catalog_proc,
                                      ParameterSet procParams,
-                                     RpcCallback<ClientResponseImpl> done) {
+                                     RpcCallback<ClientResponseImpl> done,
+                                     Collection<Integer> predict_touchedPartitions) {
         
         if (d) LOG.debug(String.format("Incoming %s transaction request " +
         		                       "[handle=%d, partition=%d]",
@@ -239,7 +289,8 @@ public class TransactionInitializer {
                                 base_partition,
                                 catalog_proc,
                                 procParams,
-                                done);
+                                done,
+                                predict_touchedPartitions);
 
         // Check whether this guy has already been restarted before
         int restartCounter = StoredProcedureInvocation.getRestartCounter(serializedRequest);
@@ -267,6 +318,7 @@ public class TransactionInitializer {
      * @param catalog_proc
      * @param params
      * @param client_callback
+     * @param known_touchedPartitions
      */
     protected void populateProperties(LocalTransaction ts,
                                     Long txn_id,
@@ -274,7 +326,8 @@ public class TransactionInitializer {
                                     int base_partition,
                                     Procedure catalog_proc,
                                     ParameterSet params,
-                                    RpcCallback<ClientResponseImpl> client_callback) {
+                                    RpcCallback<ClientResponseImpl> client_callback,
+                                    Collection<Integer> known_touchedPartitions) {
         
         boolean predict_abortable = (hstore_conf.site.exec_no_undo_logging_all == false);
         boolean predict_readOnly = catalog_proc.getReadonly();
@@ -282,10 +335,21 @@ public class TransactionInitializer {
         TransactionEstimator.State t_state = null; 
         Object args[] = null; // FIXME
         
+        // -------------------------------
+        // KNOWN PARTITIONS
+        // -------------------------------
+        if (known_touchedPartitions != null) {
+            // The caller already knows which partitions this txn touches
+            // (e.g., it was recorded in the command log), so we don't need to estimate it
+            if (d) LOG.debug(String.format("Using known partitions %s for new %s transaction [clientHandle=%d]",
+                                           known_touchedPartitions, catalog_proc.getName(), ts.getClientHandle()));
+            predict_touchedPartitions = known_touchedPartitions;
+        }
+        
         // -------------------------------
         // SYSTEM PROCEDURES
         // -------------------------------
-        if (catalog_proc.getSystemproc()) {
+        else if (catalog_proc.getSystemproc()) {
             // Sysprocs can be either all partitions or single-partitioned
             // TODO: It would be nice if the client could pass us a hint when loading the tables
             // It would be just for the loading, and not regular transactions
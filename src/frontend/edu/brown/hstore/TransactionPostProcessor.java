@@ -101,7 +101,12 @@ public final class TransactionPostProcessor implements Runnable, Shutdownable {
     
     @Override
     public void prepareShutdown(boolean error) {
-        this.queue.clear();
+        // Any response that we drop here will never be sent, so we have
+        // to give back its pooled result tables ourselves
+        Pair<LocalTransaction, ClientResponseImpl> pair = null;
+        while ((pair = this.queue.poll()) != null) {
+            pair.getSecond().releaseResults();
+        } // WHILE
     }
     
     @Override
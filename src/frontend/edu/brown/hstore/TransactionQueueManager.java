@@ -20,6 +20,7 @@ import edu.brown.hstore.conf.HStoreConf;
 import edu.brown.hstore.interfaces.Loggable;
 import edu.brown.hstore.interfaces.Shutdownable;
 import edu.brown.hstore.txns.LocalTransaction;
+import edu.brown.hstore.util.ConcurrentLongHashMap;
 import edu.brown.hstore.util.TxnCounter;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
@@ -79,7 +80,7 @@ public class TransactionQueueManager implements Runnable, Loggable, Shutdownable
     /**
      * Maps txn IDs to their TransactionInitQueueCallbacks
      */
-    private final Map<Long, TransactionInitQueueCallback> lockQueuesCallbacks = new ConcurrentHashMap<Long, TransactionInitQueueCallback>();
+    private final ConcurrentLongHashMap<TransactionInitQueueCallback> lockQueuesCallbacks = new ConcurrentLongHashMap<TransactionInitQueueCallback>();
     
     // ----------------------------------------------------------------------------
     // BLOCKED DISTRIBUTED TRANSACTIONS
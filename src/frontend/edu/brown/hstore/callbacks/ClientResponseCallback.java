@@ -3,9 +3,16 @@
  */
 package edu.brown.hstore.callbacks;
 
+import java.io.IOException;
+
 import org.voltdb.ClientResponseImpl;
+import org.voltdb.VoltTable;
 import org.voltdb.exceptions.ClientConnectionLostException;
+import org.voltdb.messaging.FastSerializer;
 import org.voltdb.network.Connection;
+import org.voltdb.utils.DBBPool;
+import org.voltdb.utils.DBBPool.BBContainer;
+import org.voltdb.utils.DeferredSerialization;
 
 import com.google.protobuf.RpcCallback;
 
@@ -30,11 +37,43 @@ public class ClientResponseCallback implements RpcCallback<ClientResponseImpl> {
     
     @Override
     public void run(ClientResponseImpl parameter) {
-        boolean ret = this.conn.writeStream().enqueue(parameter);
+        boolean ret;
+        if (parameter.hasPooledResults()) {
+            ret = this.conn.writeStream().enqueue(new PooledResultsSerialization(parameter));
+        } else {
+            ret = this.conn.writeStream().enqueue(parameter);
+        }
         if (ret == false) {
             throw new ClientConnectionLostException(parameter.getTransactionId());
         }
         this.clientInterface.reduceBackpressure(this.messageSize);
     }
 
+    /**
+     * Serializes a ClientResponse whose results are backed by pooled buffers
+     * and then gives those buffers back once they have been copied out.
+     */
+    private static class PooledResultsSerialization implements DeferredSerialization {
+        private final ClientResponseImpl cresponse;
+        private final VoltTable results[];
+
+        PooledResultsSerialization(ClientResponseImpl cresponse) {
+            this.cresponse = cresponse;
+            this.results = cresponse.getResults();
+        }
+        @Override
+        public BBContainer serialize(DBBPool pool) throws IOException {
+            try {
+                return new FastSerializer(pool).writeObjectForMessaging(this.cresponse);
+            } finally {
+                this.cancel();
+            }
+        }
+        @Override
+        public void cancel() {
+            for (VoltTable vt : this.results) {
+                vt.release();
+            } // FOR
+        }
+    }
 }
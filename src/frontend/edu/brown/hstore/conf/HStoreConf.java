@@ -390,6 +390,87 @@ public final class HStoreConf {
         )
         public boolean exec_deferrable_queries;
         
+        @ConfigProperty(
+            description="If this parameter is enabled, then tables that are loaded through " +
+                        "@LoadMultipartitionTable or voltLoadTable() are put in bulk-load mode in the EE " +
+                        "for each load. The loaded tuples are only appended to the table and its indexes are " +
+                        "built in one sorted pass with the constraints checked for the whole batch. " +
+                        "If the batch violates a constraint, then its tuples are removed again and " +
+                        "the loading transaction is aborted.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean exec_bulk_load;
+        
+        @ConfigProperty(
+            description="The maximum number of single-partition transactions for single-statement " +
+                        "stored procedures (i.e., procedures without any Java code) that a PartitionExecutor " +
+                        "will group together and execute with a single call into the ExecutionEngine. " +
+                        "Each transaction in the group still has its own undo token. " +
+                        "Set this to one to disable grouping.",
+            defaultInt=1,
+            experimental=true
+        )
+        public int exec_ee_batch_size;
+        
+        @ConfigProperty(
+            description="If this parameter is enabled, then the output tables of queries are copied " +
+                        "out of the ExecutionEngine into direct buffers from a per-partition pool " +
+                        "instead of new heap arrays. The buffers are given back to the pool once the " +
+                        "transaction is cleaned up and its ClientResponse has been written to the client.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean exec_result_buffer_pool;
+        
+        @ConfigProperty(
+            description="Enable the partition-level cache for the results of read-only queries " +
+                        "that are marked as cacheable in their stored procedure. Cached results are " +
+                        "invalidated whenever a transaction modifies one of the tables that they read.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean exec_query_cache;
+        
+        @ConfigProperty(
+            description="The maximum amount of memory (in KB) that each PartitionExecutor's query " +
+                        "result cache may use before evicting the least recently used results. " +
+                        "Only used if ${site.exec_query_cache} is enabled.",
+            defaultInt=16384,
+            experimental=true
+        )
+        public int exec_query_cache_size;
+        
+        @ConfigProperty(
+            description="How much time (in microseconds) each PartitionExecutor may spend executing " +
+                        "deferred queries every time that it runs out of transactions to execute. " +
+                        "If this is zero, then only one query is executed each time. " +
+                        "Only used if ${site.exec_deferrable_queries} is enabled.",
+            defaultInt=1000,
+            experimental=true
+        )
+        public int exec_idle_deferred_slice;
+        
+        @ConfigProperty(
+            description="How much time (in microseconds) each PartitionExecutor may spend serializing " +
+                        "snapshot blocks every time that it runs out of transactions to execute. " +
+                        "Deferred queries always go before snapshot work. " +
+                        "If this is zero, then only one round of snapshot work is done each time.",
+            defaultInt=4000,
+            experimental=true
+        )
+        public int exec_idle_snapshot_slice;
+        
+        @ConfigProperty(
+            description="How much time (in microseconds) each PartitionExecutor may spend on background " +
+                        "maintenance (i.e., anti-cache eviction) every time that it runs out of " +
+                        "transactions to execute. Deferred queries and snapshot work always go first. " +
+                        "If this is zero, then only one unit of background work is done each time.",
+            defaultInt=2000,
+            experimental=true
+        )
+        public int exec_idle_background_slice;
+        
         // ----------------------------------------------------------------------------
         // Command Logging Options
         // ----------------------------------------------------------------------------
@@ -415,6 +496,33 @@ public final class HStoreConf {
         )
         public int commandlog_timeout;
         
+        @ConfigProperty(
+            description="If enabled, then the CommandLogWriter will not wait for a fixed ${site.commandlog_timeout} " +
+                        "before each group commit. Instead it will flush as soon as the number of buffered txns " +
+                        "reaches ${site.commandlog_flush_txns}, the estimated number of buffered bytes reaches " +
+                        "${site.commandlog_flush_bytes}, or it has waited as long as its recent fsyncs took. " +
+                        "${site.commandlog_timeout} is then only used as the upper bound on how long to wait.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean commandlog_adaptive;
+        
+        @ConfigProperty(
+            description="The number of buffered transactions that will trigger a group commit when " +
+                        "${site.commandlog_adaptive} is enabled. Set to zero to disable.",
+            defaultInt=1000,
+            experimental=true
+        )
+        public int commandlog_flush_txns;
+        
+        @ConfigProperty(
+            description="The estimated size (in KB) of the buffered transactions that will trigger a group " +
+                        "commit when ${site.commandlog_adaptive} is enabled. Set to zero to disable.",
+            defaultInt=1024,
+            experimental=true
+        )
+        public int commandlog_flush_bytes;
+        
         @ConfigProperty(
             description="If enabled, then the CommandLogWriter will keep track of various internal " +
                         "profile statistics.",
@@ -423,6 +531,112 @@ public final class HStoreConf {
         )
         public boolean commandlog_profiling;
         
+        @ConfigProperty(
+            description="The number of separate command log streams to write to at each HStoreSite. " +
+                        "Each local partition is assigned to one stripe, and every stripe has its own " +
+                        "writer thread, log file, and fsync. If this is set to one and " +
+                        "${site.commandlog_segment_size} is zero, then all entries are written to a single file.",
+            defaultInt=1,
+            experimental=true
+        )
+        public int commandlog_stripes;
+        
+        @ConfigProperty(
+            description="The size (in MB) at which a command log stream rolls over to a new segment file. " +
+                        "Segment files that only contain transactions that came before a successful snapshot " +
+                        "are deleted once that snapshot finishes. If this is set to zero, then the log will " +
+                        "never roll over.",
+            defaultInt=0,
+            experimental=true
+        )
+        public int commandlog_segment_size;
+        
+        @ConfigProperty(
+            description="If enabled, then the CommandLogWriter will preallocate each log segment file and " +
+                        "write group commit batches directly into a memory-mapped region of that file instead " +
+                        "of copying them through a FileChannel. Each segment is preallocated to " +
+                        "${site.commandlog_mmap_size} and the log rolls over to a new segment when it fills up.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean commandlog_mmap;
+        
+        @ConfigProperty(
+            description="The size (in MB) of each preallocated command log segment file when " +
+                        "${site.commandlog_mmap} is enabled.",
+            defaultInt=64,
+            experimental=true
+        )
+        public int commandlog_mmap_size;
+        
+        @ConfigProperty(
+            description="If enabled, then each group commit batch is compressed before it is written out " +
+                        "to the command log.",
+            defaultBoolean=true,
+            experimental=true
+        )
+        public boolean commandlog_compress;
+        
+        @ConfigProperty(
+            description="If enabled, then when the HStoreSite starts up it will restore the latest snapshot " +
+                        "found in ${site.commandlog_replay_snapshot_dir} and then replay the transactions " +
+                        "stored in its command log file in ${site.commandlog_dir} before it starts accepting " +
+                        "client connections.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean commandlog_replay;
+        
+        @ConfigProperty(
+            description="Directory to search for the snapshot to restore before replaying the command log. " +
+                        "If no valid snapshot is found, then the command log is replayed on an empty database.",
+            defaultString="${global.temp_dir}/snapshots",
+            experimental=true
+        )
+        public String commandlog_replay_snapshot_dir = HStoreConf.this.global.temp_dir + "/snapshots";
+        
+        @ConfigProperty(
+            description="The number of command log entries that the CommandLogReplayer will buffer in memory " +
+                        "at a time in order to replay them in transaction id order.",
+            defaultInt=10000,
+            experimental=true
+        )
+        public int commandlog_replay_window;
+        
+        // ----------------------------------------------------------------------------
+        // Snapshot Options
+        // ----------------------------------------------------------------------------
+        
+        @ConfigProperty(
+            description="The maximum amount of time (in microseconds) that a PartitionExecutor will spend " +
+                        "serializing snapshot blocks each time that it checks for snapshot work in between " +
+                        "transactions. At least one block is always serialized. If this is set to zero, " +
+                        "then only one block is serialized each time.",
+            defaultInt=2000,
+            experimental=true
+        )
+        public int snapshot_work_budget;
+        
+        @ConfigProperty(
+            description="The maximum amount of snapshot data (MB) per second that the HStoreSite " +
+                        "will write to disk. The PartitionExecutors will stop serializing new blocks " +
+                        "while they wait for their buffers to be written out. " +
+                        "Set this to -1 if there should be no limit.",
+            defaultInt=-1,
+            experimental=true
+        )
+        public int snapshot_write_bandwidth;
+        
+        @ConfigProperty(
+            description="If enabled, then @SnapshotRestore will have every partition load its own data " +
+                        "for the partitioned tables out of the save files at its host in parallel. " +
+                        "Tables whose data is not on the same host as its partition in the current " +
+                        "cluster layout are restored by the slower distributed path.",
+            defaultBoolean=true,
+            experimental=true
+        )
+        public boolean snapshot_restore_parallel;
+        
         // ----------------------------------------------------------------------------
         // AntiCache Options
         // ----------------------------------------------------------------------------
@@ -442,6 +656,30 @@ public final class HStoreConf {
         )
         public String anticache_dir = HStoreConf.this.global.temp_dir + "/anticache";
         
+        @ConfigProperty(
+            description="How often in milliseconds should the AntiCacheManager check whether " +
+                        "any partition has crossed its memory threshold.",
+            defaultInt=30000,
+            experimental=true
+        )
+        public int anticache_check_interval;
+        
+        @ConfigProperty(
+            description="The amount of memory (MB) that the tables at each partition can use before " +
+                        "the AntiCacheManager will start evicting their coldest blocks.",
+            defaultInt=200,
+            experimental=true
+        )
+        public int anticache_threshold;
+        
+        @ConfigProperty(
+            description="The amount of data (MB) that each partition will evict from its tables " +
+                        "every time that it is over its anticache_threshold.",
+            defaultInt=16,
+            experimental=true
+        )
+        public int anticache_evict_size;
+        
         // ----------------------------------------------------------------------------
         // MapReduce Options
         // ----------------------------------------------------------------------------
@@ -475,6 +713,15 @@ public final class HStoreConf {
         )
         public boolean network_profiling;
         
+        @ConfigProperty(
+            description="The number of threads that select on the client connections at each HStoreSite. " +
+                        "New connections are assigned to the selector with the fewest connections. " +
+                        "Increase this if the VoltNetwork thread is saturated by a large number of clients.",
+            defaultInt=1,
+            experimental=false
+        )
+        public int network_selector_threads;
+        
         // ----------------------------------------------------------------------------
         // Incoming Transaction Queue Options
         // ----------------------------------------------------------------------------
@@ -565,6 +812,43 @@ public final class HStoreConf {
         )
         public int queue_incoming_increase_max;
         
+        @ConfigProperty(
+            description="The maximum number of new transaction requests that a PartitionExecutor will " +
+                        "drain from its incoming request ring buffer at a time. The ring buffer will " +
+                        "be sized to hold ${site.queue_incoming_max_per_partition} + " +
+                        "${site.queue_incoming_increase_max} requests.",
+            defaultInt=32,
+            experimental=true
+        )
+        public int queue_incoming_batch_size;
+        
+        @ConfigProperty(
+            description="How a PartitionExecutor waits for new work when its queues are empty. " +
+                        "Valid values are 'spin' (spin, then block on the queue), 'spin_yield_park' " +
+                        "(spin, then yield, then block on the queue), or 'park' (always block on the queue). " +
+                        "Spinning avoids the cost of waking up a blocked thread but should only be used " +
+                        "when ${site.cpu_affinity} gives each PartitionExecutor its own core.",
+            defaultString="park",
+            experimental=true
+        )
+        public String queue_wait_strategy;
+        
+        @ConfigProperty(
+            description="The number of times that a PartitionExecutor will poll its queues before yielding " +
+                        "or blocking when ${site.queue_wait_strategy} is set to 'spin' or 'spin_yield_park'.",
+            defaultInt=10000,
+            experimental=true
+        )
+        public int queue_wait_spin_count;
+        
+        @ConfigProperty(
+            description="The number of times that a PartitionExecutor will yield before blocking on its queues " +
+                        "when ${site.queue_wait_strategy} is set to 'spin_yield_park'.",
+            defaultInt=100,
+            experimental=true
+        )
+        public int queue_wait_yield_count;
+        
         @ConfigProperty(
             description="Max size of queued transactions before an HStoreSite will stop accepting new requests " +
                         "from clients and will send back a ClientResponse with the throttle flag enabled.",
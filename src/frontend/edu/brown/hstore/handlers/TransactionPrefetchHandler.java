@@ -49,7 +49,7 @@ public class TransactionPrefetchHandler extends AbstractTransactionHandler<Trans
     public void remoteHandler(RpcController controller, TransactionPrefetchResult request, RpcCallback<TransactionPrefetchAcknowledgement> callback) {
         assert(request.hasTransactionId()) : 
             "Got " + request.getClass().getSimpleName() + " without a txn id!";
-        Long txn_id = Long.valueOf(request.getTransactionId());
+        long txn_id = request.getTransactionId();
         if (debug.get()) LOG.debug(String.format("Got %s for txn #%d [remotePartition=%d]",
                                                  request.getClass().getSimpleName(), txn_id, request.getSourcePartition()));
         
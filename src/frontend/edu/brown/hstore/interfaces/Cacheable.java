@@ -0,0 +1,17 @@
+package edu.brown.hstore.interfaces;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Special marker that indicates that the results of a given read-only SQLStmt
+ * may be cached at a partition and reused by later transactions until one
+ * of the tables that it reads is modified.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Cacheable {
+
+}
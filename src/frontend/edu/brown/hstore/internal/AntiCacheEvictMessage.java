@@ -0,0 +1,9 @@
+package edu.brown.hstore.internal;
+
+/**
+ * Tells a PartitionExecutor to check whether its tables are using more memory
+ * than the anti-cache threshold and evict their coldest blocks if they are. 
+ */
+public class AntiCacheEvictMessage extends InternalMessage {
+
+}
@@ -0,0 +1,38 @@
+package edu.brown.hstore.internal;
+
+import org.voltdb.catalog.Table;
+
+import edu.brown.hstore.txns.LocalTransaction;
+
+/**
+ * Tells a PartitionExecutor to read evicted blocks back in from the anti-cache
+ * and then restart the transaction that tried to access them. The transaction
+ * will be null if there is nothing to restart.
+ */
+public class AntiCacheFetchMessage extends InternalMessage {
+
+    final LocalTransaction ts;
+    final Table catalog_tbl;
+    final int block_ids[];
+    
+    public AntiCacheFetchMessage(LocalTransaction ts, Table catalog_tbl, int block_ids[]) {
+        assert(catalog_tbl != null);
+        assert(block_ids != null);
+        
+        this.ts = ts;
+        this.catalog_tbl = catalog_tbl;
+        this.block_ids = block_ids;
+    }
+    
+    public LocalTransaction getTransaction() {
+        return (this.ts);
+    }
+    
+    public Table getTable() {
+        return (this.catalog_tbl);
+    }
+    
+    public int[] getBlockIds() {
+        return (this.block_ids);
+    }
+}
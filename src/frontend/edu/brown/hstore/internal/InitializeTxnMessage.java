@@ -1,6 +1,7 @@
 package edu.brown.hstore.internal;
 
 import java.nio.ByteBuffer;
+import java.util.Collection;
 
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.ParameterSet;
@@ -15,23 +16,31 @@ public class InitializeTxnMessage extends InternalMessage {
     final Procedure catalog_proc;
     final ParameterSet procParams;
     final RpcCallback<ClientResponseImpl> clientCallback;
+    final Collection<Integer> predictTouchedPartitions;
     
     
     public InitializeTxnMessage(ByteBuffer serializedRequest, 
                                  Procedure catalog_proc,
                                  ParameterSet procParams,
                                  RpcCallback<ClientResponseImpl> clientCallback) {
+        this(serializedRequest, catalog_proc, procParams, clientCallback, null);
+    }
+    
+    public InitializeTxnMessage(ByteBuffer serializedRequest, 
+                                 Procedure catalog_proc,
+                                 ParameterSet procParams,
+                                 RpcCallback<ClientResponseImpl> clientCallback,
+                                 Collection<Integer> predictTouchedPartitions) {
         
         assert(serializedRequest != null);
         assert(catalog_proc != null);
-        assert(procParams != null);
         assert(clientCallback != null);
         
         this.serializedRequest = serializedRequest;
         this.catalog_proc = catalog_proc;
         this.procParams = procParams;
         this.clientCallback = clientCallback;
-        
+        this.predictTouchedPartitions = predictTouchedPartitions;
     }
     
     public ByteBuffer getSerializedRequest() {
@@ -42,6 +51,11 @@ public class InitializeTxnMessage extends InternalMessage {
         return (this.catalog_proc);
     }
 
+    /**
+     * Returns the deserialized ParameterSet for this request. This will be
+     * null if the parameters still need to be deserialized from the 
+     * serialized request.
+     */
     public ParameterSet getProcParams() {
         return (this.procParams);
     }
@@ -50,6 +64,14 @@ public class InitializeTxnMessage extends InternalMessage {
         return (this.clientCallback);
     }
     
+    /**
+     * Returns the partitions that this txn is already known to touch.
+     * This will be null if the txn's partitions still need to be estimated.
+     */
+    public Collection<Integer> getPredictTouchedPartitions() {
+        return (this.predictTouchedPartitions);
+    }
+    
     public long getClientHandle() {
         return StoredProcedureInvocation.getClientHandle(this.serializedRequest);
     }
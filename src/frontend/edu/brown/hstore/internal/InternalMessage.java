@@ -1,5 +1,24 @@
 package edu.brown.hstore.internal;
 
+import edu.brown.utils.ProfileMeasurement;
+
 public abstract class InternalMessage {
 
+    /**
+     * When this message was last put into a PartitionExecutor's queue
+     * (from ProfileMeasurement.getTime()). Zero if it was never marked.
+     */
+    private long queuedTime = 0;
+
+    /**
+     * Record that this message is being put into a queue right now
+     */
+    public final void markQueued() {
+        this.queuedTime = ProfileMeasurement.getTime();
+    }
+
+    public final long getQueuedTime() {
+        return (this.queuedTime);
+    }
+
 }
@@ -110,6 +110,12 @@ public abstract class AbstractTransaction implements Poolable, Loggable {
      */
     protected PrefetchState prefetch;
     
+    /**
+     * The output VoltTables from the EE at each partition that are backed by pooled
+     * buffers. These are released when this handle is returned to its pool. 
+     */
+    private final List<VoltTable> pooled_results[];
+    
     // ----------------------------------------------------------------------------
     // VoltMessage Wrappers
     // ----------------------------------------------------------------------------
@@ -183,6 +189,10 @@ public abstract class AbstractTransaction implements Poolable, Loggable {
         this.exec_eeWork = new boolean[cnt];
         this.exec_noUndoBuffer = new boolean[cnt];
         
+        @SuppressWarnings("unchecked")
+        List<VoltTable> pooled[] = (List<VoltTable>[])new List<?>[cnt];
+        this.pooled_results = pooled;
+        
         this.finish_task = new FinishTxnMessage(this, Status.OK);
         this.work_task = new WorkFragmentMessage[cnt];
         
@@ -257,6 +267,12 @@ public abstract class AbstractTransaction implements Poolable, Loggable {
             this.exec_readOnly[i] = true;
             this.exec_eeWork[i] = false;
             this.exec_noUndoBuffer[i] = false;
+            if (this.pooled_results[i] != null) {
+                for (VoltTable vt : this.pooled_results[i]) {
+                    vt.release();
+                } // FOR
+                this.pooled_results[i].clear();
+            }
         } // FOR
 
         if (d) LOG.debug(String.format("Finished txn #%d and cleaned up internal state [hashCode=%d, finished=%s]",
@@ -643,6 +659,24 @@ public abstract class AbstractTransaction implements Poolable, Loggable {
         return (this.attached_inputs);
     }
     
+    /**
+     * Keep track of the output VoltTables from the EE at the given partition that
+     * are backed by pooled buffers so that we can release them when this txn is finished.
+     * Only one thread should call this per partition. 
+     * @param partition
+     * @param results
+     */
+    public void addPooledResults(int partition, VoltTable results[]) {
+        int offset = hstore_site.getLocalPartitionOffset(partition);
+        for (VoltTable vt : results) {
+            if (vt.isPooled() == false) continue;
+            if (this.pooled_results[offset] == null) {
+                this.pooled_results[offset] = new ArrayList<VoltTable>();
+            }
+            this.pooled_results[offset].add(vt);
+        } // FOR
+    }
+    
     // ----------------------------------------------------------------------------
     // PREFETCH QUERIES
     // ----------------------------------------------------------------------------
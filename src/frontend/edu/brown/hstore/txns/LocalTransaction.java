@@ -108,6 +108,12 @@ public class LocalTransaction extends AbstractTransaction {
      */
     private ParameterSet parameters;
     
+    /**
+     * Whether the ParameterSet was borrowed from the HStoreObjectPools
+     * and therefore needs to be returned when this txn is deleted
+     */
+    private boolean parameters_pooled = false;
+    
     /**
      * Catalog object of the Procedure that this transaction is currently executing
      */
@@ -387,6 +393,7 @@ public class LocalTransaction extends AbstractTransaction {
         this.predict_touchedPartitions = null;
         this.done_partitions.clear();
         this.restart_ctr = 0;
+        this.parameters_pooled = false;
 
         this.log_enabled = false;
         this.log_flushed = false;
@@ -835,6 +842,22 @@ public class LocalTransaction extends AbstractTransaction {
     
     public void removeProcedureParameters() {
         this.parameters = null;
+        this.parameters_pooled = false;
+    }
+    
+    /**
+     * Mark that the ParameterSet for this txn came from the object pool
+     * @param pooled
+     */
+    public void setProcedureParametersPooled(boolean pooled) {
+        this.parameters_pooled = pooled;
+    }
+    
+    /**
+     * Returns true if the ParameterSet for this txn came from the object pool
+     */
+    public boolean isProcedureParametersPooled() {
+        return (this.parameters_pooled);
     }
     
     public int getDependencyCount() { 
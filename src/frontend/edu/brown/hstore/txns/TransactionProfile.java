@@ -12,6 +12,7 @@ import org.apache.log4j.Logger;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.pools.Poolable;
+import edu.brown.utils.LatencyHistogram;
 import edu.brown.utils.ProfileMeasurement;
 import edu.brown.utils.StringUtil;
 
@@ -427,6 +428,40 @@ public class TransactionProfile implements Poolable {
         return true;
     }
     
+    /**
+     * Create a new set of LatencyHistograms, one for each of the ProfileMeasurement
+     * fields in this class. The offsets of the histograms will match the offsets
+     * of the fields in PROFILE_FIELDS.
+     * @return
+     */
+    public static LatencyHistogram[] createHistograms() {
+        LatencyHistogram histograms[] = new LatencyHistogram[PROFILE_FIELDS.length];
+        for (int i = 0; i < histograms.length; i++) {
+            String name = PROFILE_FIELDS[i].getName().replace("pm_", "").toUpperCase();
+            histograms[i] = new LatencyHistogram(name);
+        } // FOR
+        return (histograms);
+    }
+    
+    /**
+     * Record the time spent in each profiled phase of this transaction into the
+     * given histograms (created by createHistograms()). Phases that this
+     * transaction never entered are skipped.
+     * @param histograms
+     */
+    public void recordLatencies(LatencyHistogram histograms[]) {
+        assert(histograms.length == PROFILE_FIELDS.length);
+        for (int i = 0; i < histograms.length; i++) {
+            ProfileMeasurement pm = null;
+            try {
+                pm = (ProfileMeasurement)PROFILE_FIELDS[i].get(this);
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+            if (pm.getInvocations() > 0) histograms[i].record(pm.getTotalThinkTime());
+        } // FOR
+    }
+    
     public long[] getTuple() {
         long tuple[] = new long[PROFILE_FIELDS.length];
         for (int i = 0; i < tuple.length; i++) {
@@ -0,0 +1,313 @@
+package edu.brown.hstore.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A concurrent hash map that is keyed by primitive longs. This is meant to
+ * replace ConcurrentHashMap<Long, V> for things like the inflight txn handles
+ * where we would otherwise create a new Long for every lookup.
+ * <p>
+ * The map is split into segments that each use open addressing with linear probing.
+ * Lookups never acquire a lock and do not allocate anything. Updates lock
+ * the segment that the key hashes to. When a key is removed its slot is left
+ * behind as a tombstone (i.e., the key stays but the value is null) so that
+ * a concurrent reader can never see a value that belongs to a different key.
+ * Tombstones are only ever reused by the same key, and they are purged
+ * whenever a segment is rebuilt.
+ * @author pavlo
+ * @param <V>
+ */
+public class ConcurrentLongHashMap<V> {
+
+    /**
+     * This key is used to mark an empty slot, so it cannot be stored in the map
+     */
+    public static final long NULL_KEY = Long.MIN_VALUE;
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int DEFAULT_NUM_SEGMENTS = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final Segment<V> segments[];
+    private final int segmentMask;
+    private final int segmentShift;
+
+    // ----------------------------------------------------------------------------
+    // SEGMENT
+    // ----------------------------------------------------------------------------
+
+    private static final class Table<V> {
+        final AtomicLongArray keys;
+        final AtomicReferenceArray<V> values;
+        final int mask;
+
+        Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.values = new AtomicReferenceArray<V>(capacity);
+            this.mask = capacity - 1;
+            for (int i = 0; i < capacity; i++) {
+                this.keys.lazySet(i, NULL_KEY);
+            } // FOR
+        }
+        int capacity() {
+            return (this.mask + 1);
+        }
+    }
+
+    private static final class Segment<V> {
+        volatile Table<V> table;
+        /** The number of live entries */
+        volatile int count;
+        /** The number of slots that have a key in them (live + tombstones) */
+        int used;
+
+        Segment(int capacity) {
+            this.table = new Table<V>(capacity);
+        }
+
+        V get(long key, int hash) {
+            if (this.count == 0) return (null);
+            Table<V> t = this.table;
+            int idx = hash & t.mask;
+            for (int i = 0; i <= t.mask; i++) {
+                long k = t.keys.get(idx);
+                if (k == key) return (t.values.get(idx));
+                if (k == NULL_KEY) break;
+                idx = (idx + 1) & t.mask;
+            } // FOR
+            return (null);
+        }
+
+        synchronized V put(long key, int hash, V value, boolean onlyIfAbsent) {
+            Table<V> t = this.table;
+            int idx = hash & t.mask;
+            for (int i = 0; i <= t.mask; i++) {
+                long k = t.keys.get(idx);
+                if (k == key) {
+                    V prev = t.values.get(idx);
+                    if (prev == null) {
+                        t.values.set(idx, value);
+                        this.count++;
+                    } else if (onlyIfAbsent == false) {
+                        t.values.set(idx, value);
+                    }
+                    return (prev);
+                }
+                if (k == NULL_KEY) break;
+                idx = (idx + 1) & t.mask;
+            } // FOR
+
+            // Make room before we insert the new key. We always rebuild the table when
+            // we have too many used slots, which is also what cleans out the tombstones
+            if (this.used + 1 > t.capacity() * LOAD_FACTOR) {
+                t = this.rebuild();
+                idx = hash & t.mask;
+                while (t.keys.get(idx) != NULL_KEY) {
+                    idx = (idx + 1) & t.mask;
+                } // WHILE
+            }
+            // The value has to be set before the key so that a reader
+            // that finds the key will always see its value
+            t.values.set(idx, value);
+            t.keys.set(idx, key);
+            this.used++;
+            this.count++;
+            return (null);
+        }
+
+        synchronized V remove(long key, int hash) {
+            Table<V> t = this.table;
+            int idx = hash & t.mask;
+            for (int i = 0; i <= t.mask; i++) {
+                long k = t.keys.get(idx);
+                if (k == key) {
+                    V prev = t.values.get(idx);
+                    if (prev != null) {
+                        t.values.set(idx, null);
+                        this.count--;
+                    }
+                    return (prev);
+                }
+                if (k == NULL_KEY) break;
+                idx = (idx + 1) & t.mask;
+            } // FOR
+            return (null);
+        }
+
+        synchronized void clear() {
+            this.table = new Table<V>(this.table.capacity());
+            this.used = 0;
+            this.count = 0;
+        }
+
+        /**
+         * Copy all of the live entries into a new table. We will double the size
+         * of the table if it is more than a quarter full of live entries. Otherwise
+         * we just need to get rid of the tombstones.
+         */
+        private Table<V> rebuild() {
+            Table<V> oldTable = this.table;
+            int capacity = oldTable.capacity();
+            if (this.count + 1 > capacity * LOAD_FACTOR * 0.5f) {
+                capacity <<= 1;
+            }
+            Table<V> newTable = new Table<V>(capacity);
+            int used = 0;
+            for (int i = 0; i < oldTable.capacity(); i++) {
+                long k = oldTable.keys.get(i);
+                V v = oldTable.values.get(i);
+                if (k == NULL_KEY || v == null) continue;
+                int idx = hash(k) & newTable.mask;
+                while (newTable.keys.get(idx) != NULL_KEY) {
+                    idx = (idx + 1) & newTable.mask;
+                } // WHILE
+                newTable.values.set(idx, v);
+                newTable.keys.set(idx, k);
+                used++;
+            } // FOR
+            this.used = used;
+            this.table = newTable;
+            return (newTable);
+        }
+
+        synchronized void values(Collection<V> c) {
+            Table<V> t = this.table;
+            for (int i = 0; i < t.capacity(); i++) {
+                V v = t.values.get(i);
+                if (v != null) c.add(v);
+            } // FOR
+        }
+    } // CLASS
+
+    // ----------------------------------------------------------------------------
+    // INITIALIZATION
+    // ----------------------------------------------------------------------------
+
+    public ConcurrentLongHashMap() {
+        this(DEFAULT_CAPACITY, DEFAULT_NUM_SEGMENTS);
+    }
+
+    /**
+     * Constructor
+     * @param capacity The initial total number of slots across all segments
+     * @param numSegments The number of segments that can be updated concurrently
+     */
+    public ConcurrentLongHashMap(int capacity, int numSegments) {
+        int ssize = 1;
+        int sshift = 0;
+        while (ssize < numSegments) {
+            ssize <<= 1;
+            sshift++;
+        } // WHILE
+        this.segmentShift = 32 - sshift;
+        this.segmentMask = ssize - 1;
+
+        int segCapacity = 2;
+        while (segCapacity * ssize < capacity) {
+            segCapacity <<= 1;
+        } // WHILE
+        @SuppressWarnings("unchecked")
+        Segment<V> segments[] = (Segment<V>[])new Segment<?>[ssize];
+        this.segments = segments;
+        for (int i = 0; i < ssize; i++) {
+            this.segments[i] = new Segment<V>(segCapacity);
+        } // FOR
+    }
+
+    // ----------------------------------------------------------------------------
+    // MAP METHODS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Spread the bits of the key so that sequential txn ids do not
+     * all end up in the same segment or in the same run of slots
+     */
+    private static int hash(long key) {
+        key ^= (key >>> 33);
+        key *= 0xff51afd7ed558ccdL;
+        key ^= (key >>> 33);
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= (key >>> 33);
+        return ((int)key);
+    }
+
+    private Segment<V> segmentFor(int hash) {
+        return (this.segments[(hash >>> this.segmentShift) & this.segmentMask]);
+    }
+
+    public V get(long key) {
+        int hash = hash(key);
+        return (this.segmentFor(hash).get(key, hash));
+    }
+
+    public boolean containsKey(long key) {
+        return (this.get(key) != null);
+    }
+
+    /**
+     * Store the given value for the key and return the previous value (if any)
+     */
+    public V put(long key, V value) {
+        assert(key != NULL_KEY) : "Invalid key " + key;
+        assert(value != null) : "Unexpected null value for key " + key;
+        int hash = hash(key);
+        return (this.segmentFor(hash).put(key, hash, value, false));
+    }
+
+    /**
+     * Store the given value for the key only if there isn't one already.
+     * Returns the existing value if there was one, otherwise null
+     */
+    public V putIfAbsent(long key, V value) {
+        assert(key != NULL_KEY) : "Invalid key " + key;
+        assert(value != null) : "Unexpected null value for key " + key;
+        int hash = hash(key);
+        return (this.segmentFor(hash).put(key, hash, value, true));
+    }
+
+    public V remove(long key) {
+        int hash = hash(key);
+        return (this.segmentFor(hash).remove(key, hash));
+    }
+
+    public int size() {
+        long size = 0;
+        for (Segment<V> s : this.segments) {
+            size += s.count;
+        } // FOR
+        return ((int)Math.min(size, Integer.MAX_VALUE));
+    }
+
+    public boolean isEmpty() {
+        for (Segment<V> s : this.segments) {
+            if (s.count != 0) return (false);
+        } // FOR
+        return (true);
+    }
+
+    public void clear() {
+        for (Segment<V> s : this.segments) {
+            s.clear();
+        } // FOR
+    }
+
+    /**
+     * Return a snapshot of all of the values that are in the map.
+     * This is not cheap, so it should only be used for debugging
+     */
+    public Collection<V> values() {
+        Collection<V> c = new ArrayList<V>();
+        for (Segment<V> s : this.segments) {
+            s.values(c);
+        } // FOR
+        return (c);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{size=%d}", this.getClass().getSimpleName(), this.size());
+    }
+}
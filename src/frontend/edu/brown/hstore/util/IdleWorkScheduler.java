@@ -0,0 +1,195 @@
+package edu.brown.hstore.util;
+
+import java.util.Map;
+
+import org.apache.commons.collections15.map.ListOrderedMap;
+import org.apache.log4j.Logger;
+
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+import edu.brown.utils.ProfileMeasurement;
+import edu.brown.utils.StringUtil;
+
+/**
+ * Schedules the work that a PartitionExecutor does while it has no transactions
+ * to execute. Each class of work is given a time slice per idle period and the
+ * classes are always run in the priority order of the WorkType enum. Transaction
+ * work always comes first: the scheduler checks whether new txn work has shown up
+ * before every unit of idle work and gives the partition back right away if it has.
+ * <p>
+ * <B>Note:</B> This is not thread-safe. It must only be used by the
+ * PartitionExecutor's thread.
+ * @author pavlo
+ */
+public class IdleWorkScheduler {
+    private static final Logger LOG = Logger.getLogger(IdleWorkScheduler.class);
+    private static final LoggerBoolean debug = new LoggerBoolean(LOG.isDebugEnabled());
+    private static final LoggerBoolean trace = new LoggerBoolean(LOG.isTraceEnabled());
+    static {
+        LoggerUtil.attachObserver(LOG, debug, trace);
+    }
+
+    /**
+     * The classes of idle work in priority order (highest first)
+     */
+    public enum WorkType {
+        /** Queries that txns marked as deferrable */
+        DEFERRED,
+        /** Serializing snapshot chunks */
+        SNAPSHOT,
+        /** Background maintenance like anti-cache eviction */
+        BACKGROUND;
+    }
+
+    /**
+     * A source of idle work for one WorkType
+     */
+    public interface Work {
+        /**
+         * Returns true if there is work of this type that can be done right now
+         */
+        public boolean hasWork();
+
+        /**
+         * Do a single unit of work. This should be short relative to
+         * the time slice for this type of work.
+         */
+        public void doWork();
+    }
+
+    /**
+     * Tells the scheduler whether there is transaction work waiting
+     */
+    public interface Interrupt {
+        public boolean hasTxnWork();
+    }
+
+    private static final WorkType TYPES[] = WorkType.values();
+
+    private final int partitionId;
+    private final Work work[] = new Work[TYPES.length];
+
+    /**
+     * The time slice per idle period for each WorkType (in nanoseconds).
+     * If the slice is zero, then only one unit of work is done per idle period.
+     */
+    private final long slices[] = new long[TYPES.length];
+
+    // ----------------------------------------------------------------------------
+    // METRICS
+    // ----------------------------------------------------------------------------
+
+    /** How much time was spent on each WorkType */
+    private final ProfileMeasurement times[] = new ProfileMeasurement[TYPES.length];
+
+    /** The number of units of work done for each WorkType */
+    private final long units[] = new long[TYPES.length];
+
+    /** The number of slices that were cut short because txn work showed up */
+    private final long yields[] = new long[TYPES.length];
+
+    /** The number of slices that used up all of their time with work still left */
+    private final long exhausted[] = new long[TYPES.length];
+
+    /**
+     * Constructor
+     * @param partitionId
+     */
+    public IdleWorkScheduler(int partitionId) {
+        this.partitionId = partitionId;
+        for (WorkType type : TYPES) {
+            this.times[type.ordinal()] = new ProfileMeasurement("IDLE_" + type.name());
+        } // FOR
+    }
+
+    /**
+     * Register the source of work for the given WorkType.
+     * @param type
+     * @param work
+     * @param slice The time slice per idle period (in microseconds)
+     */
+    public void register(WorkType type, Work work, long slice) {
+        assert(slice >= 0) : "Invalid time slice " + slice + " for " + type;
+        this.work[type.ordinal()] = work;
+        this.slices[type.ordinal()] = slice * 1000;
+        if (debug.get())
+            LOG.debug(String.format("Registered %s idle work at partition %d [slice=%dus]",
+                                    type, this.partitionId, slice));
+    }
+
+    /**
+     * Run the idle work for each WorkType in priority order until each of
+     * them runs out of work or uses up its time slice. Returns as soon as
+     * the given Interrupt reports that there is txn work to do.
+     * @param interrupt
+     * @return true if there is still idle work that can be done
+     */
+    public boolean run(Interrupt interrupt) {
+        boolean more = false;
+        for (int i = 0; i < TYPES.length; i++) {
+            Work w = this.work[i];
+            if (w == null || w.hasWork() == false) continue;
+            if (interrupt.hasTxnWork()) {
+                this.yields[i]++;
+                return (true);
+            }
+
+            long start = ProfileMeasurement.getTime();
+            long now = start;
+            long deadline = start + this.slices[i];
+            boolean hasWork = true;
+            boolean yielded = false;
+            while (true) {
+                if (trace.get())
+                    LOG.trace(String.format("Doing %s idle work at partition %d", TYPES[i], this.partitionId));
+                w.doWork();
+                this.units[i]++;
+                now = ProfileMeasurement.getTime();
+                if ((hasWork = w.hasWork()) == false) break;
+                if (now >= deadline) break;
+                if (interrupt.hasTxnWork()) {
+                    yielded = true;
+                    break;
+                }
+            } // WHILE
+            this.times[i].addThinkTime(start, now, 1);
+            if (hasWork && yielded == false) this.exhausted[i]++;
+            if (yielded) {
+                this.yields[i]++;
+                return (true);
+            }
+            more = more || hasWork;
+        } // FOR
+        return (more);
+    }
+
+    // ----------------------------------------------------------------------------
+    // METRICS METHODS
+    // ----------------------------------------------------------------------------
+
+    public ProfileMeasurement getTime(WorkType type) {
+        return (this.times[type.ordinal()]);
+    }
+    public long getWorkCount(WorkType type) {
+        return (this.units[type.ordinal()]);
+    }
+    public long getYieldCount(WorkType type) {
+        return (this.yields[type.ordinal()]);
+    }
+    public long getExhaustedCount(WorkType type) {
+        return (this.exhausted[type.ordinal()]);
+    }
+
+    public String debug() {
+        Map<String, Object> m = new ListOrderedMap<String, Object>();
+        for (WorkType type : TYPES) {
+            if (this.work[type.ordinal()] == null) continue;
+            ProfileMeasurement pm = this.getTime(type);
+            m.put(type.name(), String.format("%.2fms total / %d slices / %d units / %d yields / %d exhausted",
+                                             pm.getTotalThinkTimeMS(), pm.getInvocations(),
+                                             this.getWorkCount(type), this.getYieldCount(type),
+                                             this.getExhaustedCount(type)));
+        } // FOR
+        return (StringUtil.formatMaps(m));
+    }
+}
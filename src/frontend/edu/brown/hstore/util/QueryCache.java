@@ -1,8 +1,11 @@
 package edu.brown.hstore.util;
 
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -114,6 +117,60 @@ public class QueryCache {
         }
     } // CLASS
     
+    /**
+     * Key for the global cache. We make a copy of the parameter values because
+     * the original ParameterSet may get reused by the caller.
+     */
+    private static class GlobalCacheKey {
+        final int fragmentId;
+        final Object params[];
+        final int hash;
+        
+        public GlobalCacheKey(int fragmentId, Object params[]) {
+            this.fragmentId = fragmentId;
+            this.params = params;
+            this.hash = 31 * fragmentId + Arrays.hashCode(params);
+        }
+        @Override
+        public int hashCode() {
+            return (this.hash);
+        }
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return (true);
+            if ((obj instanceof GlobalCacheKey) == false) return (false);
+            GlobalCacheKey other = (GlobalCacheKey)obj;
+            return (this.fragmentId == other.fragmentId && Arrays.equals(this.params, other.params));
+        }
+    } // CLASS
+    
+    /**
+     * A cached query result that is shared by all transactions at the partition.
+     * We keep the version of each table that the query read when the result was
+     * generated so that we know when it is out of date. 
+     */
+    private static class GlobalCacheEntry {
+        final ByteBuffer result;
+        final int tableIds[];
+        final long tableVersions[];
+        
+        public GlobalCacheEntry(ByteBuffer result, int tableIds[], long versions[]) {
+            this.result = result;
+            this.tableIds = tableIds;
+            this.tableVersions = new long[tableIds.length];
+            for (int i = 0; i < tableIds.length; i++) {
+                this.tableVersions[i] = versions[tableIds[i]];
+            } // FOR
+        }
+        
+        public boolean isValid(long versions[]) {
+            for (int i = 0; i < this.tableIds.length; i++) {
+                if (this.tableVersions[i] != versions[this.tableIds[i]]) return (false);
+            } // FOR
+            return (true);
+        }
+    } // CLASS
+    
     /**
      * List<Integer> pool used by txnCache
      * TODO: Switch to a better object pool
@@ -135,15 +192,28 @@ public class QueryCache {
     // INITIALIZATION
     // ----------------------------------------------------------------------------
 
-    private final Cache globalCache;
+    /**
+     * Global cache in LRU order
+     */
+    private final LinkedHashMap<GlobalCacheKey, GlobalCacheEntry> globalCache =
+            new LinkedHashMap<GlobalCacheKey, GlobalCacheEntry>(16, 0.75f, true);
+    private final long globalMaxBytes;
+    private long globalBytes = 0;
+    private long globalHits = 0;
+    private long globalMisses = 0;
+    private long globalInvalidations = 0;
+    private long globalEvictions = 0;
+    
     private final Cache txnCache;
     private final IdentityHashMap<Long, List<Integer>> txnCacheXref = new IdentityHashMap<Long, List<Integer>>();
     
     /**
      * Constructor
+     * @param globalMaxBytes The max number of bytes of query results to keep in the global cache
+     * @param txnBufferSize
      */
-    public QueryCache(int globalBufferSize, int txnBufferSize) {
-        this.globalCache = new Cache(globalBufferSize);
+    public QueryCache(long globalMaxBytes, int txnBufferSize) {
+        this.globalMaxBytes = globalMaxBytes;
         this.txnCache = new Cache(txnBufferSize);
     }
     
@@ -153,8 +223,119 @@ public class QueryCache {
     // ----------------------------------------------------------------------------
 
     
-    public void addGlobalQueryResult(int fragmentId, ParameterSet params, VoltTable result) {
+    /**
+     * Store the result of a read-only query so that it can be reused by any transaction at
+     * this partition. The entry is only valid until the version of one of the given tables changes.
+     * This assumes that we only have own thread accessing the cache
+     * @param fragmentId
+     * @param params
+     * @param tableIds The ids of the tables that the query reads
+     * @param tableVersions The current version of every table at this partition (indexed by table id)
+     * @param result
+     * @return true if the result was added to the cache
+     */
+    public boolean addGlobalQueryResult(int fragmentId, ParameterSet params, int tableIds[], long tableVersions[], VoltTable result) {
+        int size = result.getUnderlyingBufferSize();
+        if (size > this.globalMaxBytes) return (false);
+        
+        // We can't tell whether two arrays have the same values because
+        // ParameterSet's hashCode is based on their identity
+        Object values[] = params.toArray();
+        for (Object value : values) {
+            if (value != null && value.getClass().isArray()) return (false);
+        } // FOR
+        
+        // Make our own copy of the table, since the original might be backed by a
+        // buffer that gets reused once the transaction is finished
+        byte bytes[] = new byte[size];
+        result.getTableDataReference().get(bytes);
+        GlobalCacheKey key = new GlobalCacheKey(fragmentId, values.clone());
+        GlobalCacheEntry entry = new GlobalCacheEntry(ByteBuffer.wrap(bytes), tableIds, tableVersions);
         
+        GlobalCacheEntry prev = this.globalCache.put(key, entry);
+        if (prev != null) this.globalBytes -= prev.result.capacity();
+        this.globalBytes += size;
+        
+        // Evict the least recently used entries until we are under our limit
+        Iterator<GlobalCacheEntry> it = this.globalCache.values().iterator();
+        while (this.globalBytes > this.globalMaxBytes && it.hasNext()) {
+            GlobalCacheEntry next = it.next();
+            this.globalBytes -= next.result.capacity();
+            this.globalEvictions++;
+            it.remove();
+        } // WHILE
+        if (trace.get()) LOG.trace(String.format("Stored query result for FragmentId %d - %s [bytes=%d, total=%d]",
+                                                 fragmentId, params, size, this.globalBytes));
+        return (true);
+    }
+    
+    /**
+     * Return the cached result of a read-only query that was stored with addGlobalQueryResult().
+     * Each invocation returns a new VoltTable so that callers do not share iterators.
+     * Entries that are out of date with the given table versions are removed.
+     * This assumes that we only have own thread accessing the cache
+     * @param fragmentId
+     * @param params
+     * @param tableVersions The current version of every table at this partition (indexed by table id)
+     * @return
+     */
+    public VoltTable getGlobalCachedResult(int fragmentId, ParameterSet params, long tableVersions[]) {
+        GlobalCacheKey key = new GlobalCacheKey(fragmentId, params.toArray());
+        GlobalCacheEntry entry = this.globalCache.get(key);
+        if (entry == null) {
+            this.globalMisses++;
+            return (null);
+        }
+        if (entry.isValid(tableVersions) == false) {
+            if (trace.get()) LOG.trace(String.format("Invalidating stale query result for FragmentId %d - %s",
+                                                     fragmentId, params));
+            this.globalCache.remove(key);
+            this.globalBytes -= entry.result.capacity();
+            this.globalInvalidations++;
+            this.globalMisses++;
+            return (null);
+        }
+        this.globalHits++;
+        return (new VoltTable(entry.result.duplicate(), true));
+    }
+    
+    /**
+     * Remove all of the entries in the global cache
+     */
+    public void clearGlobalCache() {
+        this.globalCache.clear();
+        this.globalBytes = 0;
+    }
+    
+    public long getGlobalCacheHits() {
+        return (this.globalHits);
+    }
+    public long getGlobalCacheMisses() {
+        return (this.globalMisses);
+    }
+    public long getGlobalCacheInvalidations() {
+        return (this.globalInvalidations);
+    }
+    public long getGlobalCacheEvictions() {
+        return (this.globalEvictions);
+    }
+    /**
+     * Returns the total number of bytes of query results in the global cache
+     */
+    public long getGlobalCacheSize() {
+        return (this.globalBytes);
+    }
+    public int getGlobalCacheEntries() {
+        return (this.globalCache.size());
+    }
+    
+    public String debugGlobalCache() {
+        long total = this.globalHits + this.globalMisses;
+        return (String.format("%d entries / %d bytes [hits=%d, misses=%d, hitRate=%.1f%%, invalidations=%d, evictions=%d]",
+                              this.globalCache.size(), this.globalBytes,
+                              this.globalHits, this.globalMisses,
+                              (total > 0 ? (this.globalHits / (double)total) * 100d : 0d),
+                              this.globalInvalidations, this.globalEvictions));
     }
     
     /**
@@ -263,7 +444,7 @@ public class QueryCache {
         
         // Global Cache
         m[idx] = new LinkedHashMap<String, Object>();
-        m[idx].put("Global Cache", null);
+        m[idx].put("Global Cache", this.debugGlobalCache());
         
         // TxnCache
         m[++idx] = new LinkedHashMap<String, Object>();
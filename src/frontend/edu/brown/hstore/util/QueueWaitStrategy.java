@@ -0,0 +1,188 @@
+package edu.brown.hstore.util;
+
+import java.util.Map;
+
+import org.apache.commons.collections15.map.ListOrderedMap;
+import org.apache.log4j.Logger;
+
+import edu.brown.hstore.internal.InternalMessage;
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+import edu.brown.utils.ProfileMeasurement;
+import edu.brown.utils.StringUtil;
+
+/**
+ * Controls how a PartitionExecutor waits for new work once its queues are empty.
+ * Parking the thread on a blocking queue means that every handoff from another
+ * thread costs an unpark. When the PartitionExecutor has a dedicated core, it is
+ * cheaper to spin on the queues for a while before giving up the CPU.
+ * <p>
+ * The wait is split into three phases: SPIN, YIELD, and PARK. Only the first two
+ * are handled here. If await() returns null, then the caller is expected to
+ * block on its queue and then report the wake-up with parked().
+ * The wake-up latency is measured from the moment that the message was put
+ * into the queue (see InternalMessage.markQueued()) until we picked it up.
+ * <p>
+ * <B>Note:</B> This is not thread-safe. It must only be used by the
+ * PartitionExecutor's thread.
+ * @author pavlo
+ */
+public class QueueWaitStrategy {
+    private static final Logger LOG = Logger.getLogger(QueueWaitStrategy.class);
+    private static final LoggerBoolean debug = new LoggerBoolean(LOG.isDebugEnabled());
+    private static final LoggerBoolean trace = new LoggerBoolean(LOG.isTraceEnabled());
+    static {
+        LoggerUtil.attachObserver(LOG, debug, trace);
+    }
+
+    public enum Type {
+        /** Spin, then block on the queue */
+        SPIN,
+        /** Spin, then Thread.yield(), then block on the queue */
+        SPIN_YIELD_PARK,
+        /** Always block on the queue */
+        PARK;
+
+        public static Type get(String name) {
+            for (Type t : Type.values()) {
+                if (t.name().equalsIgnoreCase(name)) return (t);
+            } // FOR
+            return (null);
+        }
+    }
+
+    /**
+     * The phase of the wait that we were in when the new work showed up
+     */
+    public enum Phase {
+        SPIN,
+        YIELD,
+        PARK;
+    }
+
+    /**
+     * Non-blocking check for new work
+     * @param <T>
+     */
+    public interface Poller<T extends InternalMessage> {
+        public T poll();
+    }
+
+    private static final Phase PHASES[] = Phase.values();
+
+    private final int partitionId;
+    private final Type type;
+    private final int spinCount;
+    private final int yieldCount;
+
+    /** The wake-up latency for each Phase */
+    private final ProfileMeasurement wakeups[] = new ProfileMeasurement[PHASES.length];
+
+    /**
+     * Constructor
+     * @param partitionId
+     * @param type
+     * @param spinCount The number of times to poll before yielding or parking
+     * @param yieldCount The number of times to yield before parking (SPIN_YIELD_PARK only)
+     */
+    public QueueWaitStrategy(int partitionId, Type type, int spinCount, int yieldCount) {
+        assert(type != null);
+        assert(spinCount >= 0) : "Invalid spin count " + spinCount;
+        assert(yieldCount >= 0) : "Invalid yield count " + yieldCount;
+        this.partitionId = partitionId;
+        this.type = type;
+        this.spinCount = spinCount;
+        this.yieldCount = yieldCount;
+        for (Phase phase : PHASES) {
+            this.wakeups[phase.ordinal()] = new ProfileMeasurement("WAIT_" + phase.name()).enableHistogram();
+        } // FOR
+        if (debug.get())
+            LOG.debug(String.format("Partition %d queue wait strategy: %s [spins=%d, yields=%d]",
+                                    partitionId, type, spinCount, yieldCount));
+    }
+
+    public Type getType() {
+        return (this.type);
+    }
+
+    /**
+     * Poll for new work using the SPIN and YIELD phases of this strategy.
+     * If this returns null, then the caller should park.
+     * @param poller
+     * @return
+     * @throws InterruptedException if the thread was interrupted while spinning
+     */
+    public <T extends InternalMessage> T await(Poller<T> poller) throws InterruptedException {
+        if (this.type == Type.PARK) return (null);
+
+        T item = null;
+        for (int i = 0; i < this.spinCount; i++) {
+            if ((item = poller.poll()) != null) {
+                this.record(Phase.SPIN, item);
+                return (item);
+            }
+            if (Thread.interrupted()) throw new InterruptedException();
+        } // FOR
+
+        if (this.type == Type.SPIN_YIELD_PARK) {
+            for (int i = 0; i < this.yieldCount; i++) {
+                Thread.yield();
+                if ((item = poller.poll()) != null) {
+                    this.record(Phase.YIELD, item);
+                    return (item);
+                }
+            } // FOR
+        }
+        if (Thread.interrupted()) throw new InterruptedException();
+        if (trace.get())
+            LOG.trace(String.format("Partition %d exhausted its spins. Parking...", this.partitionId));
+        return (null);
+    }
+
+    /**
+     * The caller was woken up after parking
+     * @param item The message that woke up the caller
+     */
+    public void parked(InternalMessage item) {
+        this.record(Phase.PARK, item);
+    }
+
+    /**
+     * Record how long it took us to pick up the given message after
+     * it was put into the queue. Messages that were never marked are ignored.
+     */
+    private void record(Phase phase, InternalMessage item) {
+        long queued = item.getQueuedTime();
+        if (queued == 0) return;
+        this.wakeups[phase.ordinal()].addThinkTime(queued, ProfileMeasurement.getTime(), 1);
+    }
+
+    // ----------------------------------------------------------------------------
+    // METRICS METHODS
+    // ----------------------------------------------------------------------------
+
+    public ProfileMeasurement getWakeupTime(Phase phase) {
+        return (this.wakeups[phase.ordinal()]);
+    }
+    public long getWakeupCount(Phase phase) {
+        return (this.wakeups[phase.ordinal()].getInvocations());
+    }
+
+    public void reset() {
+        for (ProfileMeasurement pm : this.wakeups) {
+            pm.reset();
+        } // FOR
+    }
+
+    public String debug() {
+        Map<String, Object> m = new ListOrderedMap<String, Object>();
+        m.put("Strategy", this.type);
+        for (Phase phase : PHASES) {
+            ProfileMeasurement pm = this.getWakeupTime(phase);
+            if (pm.getInvocations() == 0) continue;
+            m.put(phase.name(), String.format("%d wakeups / %.3fms avg",
+                                              pm.getInvocations(), pm.getAverageThinkTimeMS()));
+        } // FOR
+        return (StringUtil.formatMaps(m));
+    }
+}
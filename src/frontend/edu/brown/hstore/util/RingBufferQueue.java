@@ -0,0 +1,244 @@
+package edu.brown.hstore.util;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded lock-free ring buffer that can have many producer threads
+ * but only a single consumer thread. Producers claim a slot by bumping the
+ * tail with a CAS and then publish their element into it. The consumer never
+ * needs a CAS: it clears the slots that it reads and then moves the head forward.
+ * When the consumer uses drainTo() it only has to publish the new head once
+ * for the entire batch, which is what makes this cheaper than handing elements
+ * off one at a time through a lock-based queue.
+ * <p>
+ * <B>Note:</B> All of the methods that remove elements (poll, take, drainTo, clear)
+ * must only ever be invoked by the same consumer thread.
+ * @author pavlo
+ * @param <E>
+ */
+public class RingBufferQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    /**
+     * How long a blocking consumer will park in between checks of the queue
+     */
+    private static final long PARK_NANOS = 50000; // 50us
+
+    private final AtomicReferenceArray<E> buffer;
+    private final int mask;
+    private final int capacity;
+
+    /** The next slot that a producer will claim */
+    private final AtomicLong tail = new AtomicLong(0);
+
+    /** The next slot that the consumer will read. Only the consumer writes this */
+    private final AtomicLong head = new AtomicLong(0);
+
+    /**
+     * Constructor
+     * @param capacity The capacity will be rounded up to the next power of two
+     */
+    public RingBufferQueue(int capacity) {
+        assert(capacity > 0) : "Invalid capacity " + capacity;
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        } // WHILE
+        this.capacity = size;
+        this.mask = size - 1;
+        this.buffer = new AtomicReferenceArray<E>(size);
+    }
+
+    public int getCapacity() {
+        return (this.capacity);
+    }
+
+    // ----------------------------------------------------------------------------
+    // PRODUCER METHODS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Add the element into the ring. Returns false if the ring is full.
+     */
+    @Override
+    public boolean offer(E e) {
+        assert(e != null);
+        long t;
+        do {
+            t = this.tail.get();
+            if (t - this.head.get() >= this.capacity) return (false);
+        } while (this.tail.compareAndSet(t, t + 1) == false);
+
+        // This has to be a volatile write so that a consumer that is about to
+        // go to sleep is guaranteed to either see it or be seen by us
+        this.buffer.set((int)t & this.mask, e);
+        return (true);
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        while (this.offer(e) == false) {
+            LockSupport.parkNanos(PARK_NANOS);
+            if (Thread.interrupted()) throw new InterruptedException();
+        } // WHILE
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (this.offer(e) == false) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return (false);
+            LockSupport.parkNanos(Math.min(remaining, PARK_NANOS));
+            if (Thread.interrupted()) throw new InterruptedException();
+        } // WHILE
+        return (true);
+    }
+
+    // ----------------------------------------------------------------------------
+    // CONSUMER METHODS
+    // ----------------------------------------------------------------------------
+
+    @Override
+    public E poll() {
+        long h = this.head.get();
+        int idx = (int)h & this.mask;
+        E e = this.buffer.get(idx);
+        // The slot will still be null if a producer has claimed it but
+        // not published its element yet. We'll just treat that as empty.
+        if (e != null) {
+            this.buffer.lazySet(idx, null);
+            this.head.lazySet(h + 1);
+        }
+        return (e);
+    }
+
+    @Override
+    public E peek() {
+        return (this.buffer.get((int)this.head.get() & this.mask));
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return (this.drainTo(c, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        long h = this.head.get();
+        int ctr = 0;
+        while (ctr < maxElements) {
+            int idx = (int)(h + ctr) & this.mask;
+            E e = this.buffer.get(idx);
+            if (e == null) break;
+            this.buffer.lazySet(idx, null);
+            c.add(e);
+            ctr++;
+        } // WHILE
+        if (ctr > 0) this.head.lazySet(h + ctr);
+        return (ctr);
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e = null;
+        while ((e = this.poll()) == null) {
+            LockSupport.parkNanos(PARK_NANOS);
+            if (Thread.interrupted()) throw new InterruptedException();
+        } // WHILE
+        return (e);
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        E e = null;
+        while ((e = this.poll()) == null) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) break;
+            LockSupport.parkNanos(Math.min(remaining, PARK_NANOS));
+            if (Thread.interrupted()) throw new InterruptedException();
+        } // WHILE
+        return (e);
+    }
+
+    @Override
+    public void clear() {
+        while (this.poll() != null) {
+            // Keep going...
+        } // WHILE
+    }
+
+    // ----------------------------------------------------------------------------
+    // UTILITY METHODS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Returns the number of slots that producers have claimed. This will include
+     * any elements that are still being published
+     */
+    @Override
+    public int size() {
+        long size = this.tail.get() - this.head.get();
+        return ((int)Math.max(0, Math.min(size, this.capacity)));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return (this.size() == 0);
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return (this.capacity - this.size());
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the elements in the ring.
+     * This is not cheap, so it should only be used for debugging
+     */
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<E>();
+        long h = this.head.get();
+        long t = this.tail.get();
+        for (long i = h; i < t; i++) {
+            E e = this.buffer.get((int)i & this.mask);
+            if (e != null) snapshot.add(e);
+        } // FOR
+        final Iterator<E> it = snapshot.iterator();
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return (it.hasNext());
+            }
+            @Override
+            public E next() {
+                return (it.next());
+            }
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Elements can only be removed by the consumer");
+            }
+        };
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("Elements can only be removed by the consumer");
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{size=%d, capacity=%d}",
+                             this.getClass().getSimpleName(), this.size(), this.capacity);
+    }
+}
@@ -38,7 +38,7 @@ import java.util.Map;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
-import org.jfree.util.Log;
+import org.apache.log4j.Logger;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.DBBPool;
@@ -51,21 +51,33 @@ import org.voltdb.utils.DBBPool.BBContainer;
  * @author pavlo
  */
 public class CommandLogReader implements Iterable<LogEntry> {
+    private static final Logger LOG = Logger.getLogger(CommandLogReader.class);
     
     final FastDeserializer fd;
     final Map<Integer, String> procedures;
     boolean groupCommit;
     
     public CommandLogReader(String path) {
-        FileChannel roChannel = null;
+        RandomAccessFile raf = null;
         ByteBuffer readonlybuffer = null;
         
         File f = new File(path);
         try {
-            roChannel = new RandomAccessFile(f, "r").getChannel();
+            raf = new RandomAccessFile(f, "r");
+            FileChannel roChannel = raf.getChannel();
             readonlybuffer = roChannel.map(FileChannel.MapMode.READ_ONLY, 0, (int)roChannel.size());
         } catch (IOException ex) {
             throw new RuntimeException(ex);
+        } finally {
+            // The mapping stays valid after the channel is closed, so we don't
+            // need to keep a file descriptor open for every segment that we read
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException ex) {
+                    LOG.warn("Failed to close WAL file " + f, ex);
+                }
+            }
         }
         assert(readonlybuffer != null);
         this.fd = new FastDeserializer(readonlybuffer);
@@ -73,6 +85,15 @@ public class CommandLogReader implements Iterable<LogEntry> {
         this.procedures = this.readHeader();
     }
     
+    /**
+     * Return the mapping from ProcedureIds to Procedure names that was
+     * stored in this log's header
+     * @return
+     */
+    public Map<Integer, String> getProcedures() {
+        return (this.procedures);
+    }
+    
     @Override
     public Iterator<LogEntry> iterator() {
         Iterator<LogEntry> it = new Iterator<LogEntry>() {
@@ -96,14 +117,26 @@ public class CommandLogReader implements Iterable<LogEntry> {
                 
                 //Fill the decompressed buffer if it is empty
                 if (groupCommit && !decompressedFd.buffer().hasRemaining()) {
-                    Log.info("filling the decompressed buffer");
+                    if (LOG.isTraceEnabled()) LOG.trace("Filling the decompressed buffer");
                     int sizeCompressed = 0;
                     try {
                         sizeCompressed = fd.readInt();
-                        byte[] b = new byte[sizeCompressed];
-                        fd.readFully(b);
-                        byte[] decompressed = CompressionService.decompressBytes(b);
-                        this.decompressedFd.setBuffer(ByteBuffer.wrap(decompressed));
+                        if (sizeCompressed == 0) {
+                            // We've hit the unused part of a preallocated log file
+                            this.decompressedFd.setBuffer(ByteBuffer.allocate(0));
+                        } else if (sizeCompressed < 0) {
+                            // Uncompressed block. We can just read it in place
+                            ByteBuffer b = fd.buffer().slice();
+                            int length = Math.min(-sizeCompressed, b.remaining());
+                            b.limit(length);
+                            fd.buffer().position(fd.buffer().position() + length);
+                            this.decompressedFd.setBuffer(b);
+                        } else {
+                            byte[] b = new byte[sizeCompressed];
+                            fd.readFully(b);
+                            byte[] decompressed = CompressionService.decompressBytes(b);
+                            this.decompressedFd.setBuffer(ByteBuffer.wrap(decompressed));
+                        }
                     } catch (IOException ex) {
                         throw new RuntimeException("Failed to decompress data from the WAL file!", ex);
                     } catch (BufferUnderflowException ex) {
@@ -131,14 +164,6 @@ public class CommandLogReader implements Iterable<LogEntry> {
             }
         };
         return (it);
-        
-        // TODO: We need to figure out how we want to read these entries
-        // back in. I suppose we could just make a new LocalTransaction
-        // entry each time. What we really should do is recreate
-        // the StoredProcedureInvocation and then pass that into
-        // the HStoreSite so that we can replay the transaction
-        // 
-        // So maybe we want to make this a StoredProcedure Invocation iterator?
     }
     
     /**
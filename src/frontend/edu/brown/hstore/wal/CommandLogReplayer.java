@@ -0,0 +1,542 @@
+/***************************************************************************
+ *   Copyright (C) 2012 by H-Store Project                                 *
+ *   Brown University                                                      *
+ *   Massachusetts Institute of Technology                                 *
+ *   Yale University                                                       *
+ *                                                                         *
+ *   Permission is hereby granted, free of charge, to any person obtaining *
+ *   a copy of this software and associated documentation files (the       *
+ *   "Software"), to deal in the Software without restriction, including   *
+ *   without limitation the rights to use, copy, modify, merge, publish,   *
+ *   distribute, sublicense, and/or sell copies of the Software, and to    *
+ *   permit persons to whom the Software is furnished to do so, subject to *
+ *   the following conditions:                                             *
+ *                                                                         *
+ *   The above copyright notice and this permission notice shall be        *
+ *   included in all copies or substantial portions of the Software.       *
+ *                                                                         *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,       *
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF    *
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.*
+ *   IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR     *
+ *   OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, *
+ *   ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR *
+ *   OTHER DEALINGS IN THE SOFTWARE.                                       *
+ ***************************************************************************/
+
+package edu.brown.hstore.wal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.exceptions.ServerFaultException;
+import org.voltdb.messaging.FastSerializer;
+import org.voltdb.sysprocs.saverestore.SnapshotUtil;
+import org.voltdb.utils.Pair;
+
+import com.google.protobuf.RpcCallback;
+
+import edu.brown.catalog.CatalogUtil;
+import edu.brown.hstore.HStoreSite;
+import edu.brown.hstore.HStoreThreadManager;
+import edu.brown.hstore.PartitionExecutor;
+import edu.brown.hstore.Hstoreservice.Status;
+import edu.brown.hstore.conf.HStoreConf;
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+import edu.brown.utils.CollectionUtil;
+
+/**
+ * Crash recovery for an HStoreSite. We first restore the latest snapshot and
+ * then stream the entries out of the site's command log streams and requeue them
+ * at their base partition's PartitionExecutor. Single-partition txns at different partitions
+ * are replayed in parallel, while distributed txns are replayed by themselves once
+ * all of the txns that came before them in the log have finished.
+ * <B>Note:</B> Replayed txns get new txn ids, so when there is more than one site we
+ * use barriers to order the distributed txns against every site's command log.
+ * Before a site replays a distributed txn from its log, it waits until all of the
+ * other sites have replayed everything in their logs that came before it. The other
+ * sites then wait until the distributed txn has finished before they go on.
+ * @author pavlo
+ */
+public class CommandLogReplayer {
+    private static final Logger LOG = Logger.getLogger(CommandLogReplayer.class);
+    private static final LoggerBoolean debug = new LoggerBoolean(LOG.isDebugEnabled());
+    private static final LoggerBoolean trace = new LoggerBoolean(LOG.isTraceEnabled());
+    static {
+        LoggerUtil.attachObserver(LOG, debug, trace);
+    }
+
+    private static final Comparator<LogEntry> TXNID_COMPARATOR = new Comparator<LogEntry>() {
+        @Override
+        public int compare(LogEntry o1, LogEntry o2) {
+            return (o1.getTransactionId().compareTo(o2.getTransactionId()));
+        }
+    };
+
+    private static final Comparator<Pair<LogEntry, Procedure>> PENDING_COMPARATOR = new Comparator<Pair<LogEntry, Procedure>>() {
+        @Override
+        public int compare(Pair<LogEntry, Procedure> o1, Pair<LogEntry, Procedure> o2) {
+            return (TXNID_COMPARATOR.compare(o1.getFirst(), o2.getFirst()));
+        }
+    };
+
+    /**
+     * Iterates over all of the entries in a single command log stream,
+     * opening each of its segment files one after the other.
+     */
+    private class LogStream {
+        private final Iterator<File> files;
+        private Iterator<LogEntry> entries;
+        private Procedure procedures[];
+        private LogEntry head;
+
+        public LogStream(List<File> segments) {
+            this.files = segments.iterator();
+        }
+
+        /**
+         * Move to the next entry in this stream. Returns false if there are no more
+         */
+        public boolean advance() {
+            while (this.entries == null || this.entries.hasNext() == false) {
+                if (this.files.hasNext() == false) {
+                    this.head = null;
+                    return (false);
+                }
+                File f = this.files.next();
+                if (debug.get()) LOG.debug("Reading command log segment " + f);
+                CommandLogReader reader = new CommandLogReader(f.getAbsolutePath());
+                this.procedures = getProcedures(f, reader.getProcedures());
+                this.entries = reader.iterator();
+            } // WHILE
+            this.head = this.entries.next();
+            return (true);
+        }
+    }
+
+    private static final Comparator<LogStream> STREAM_COMPARATOR = new Comparator<LogStream>() {
+        @Override
+        public int compare(LogStream o1, LogStream o2) {
+            return (TXNID_COMPARATOR.compare(o1.head, o2.head));
+        }
+    };
+
+    private final HStoreSite hstore_site;
+    private final HStoreConf hstore_conf;
+    private final List<List<File>> logFiles;
+    private final int num_sites;
+
+    /**
+     * The id of the txn that took the snapshot that we restored. Every log entry
+     * at or below this id is already in the database, so we can't replay it again.
+     */
+    private long snapshotTxnId = -1;
+
+    /**
+     * TxnId -> Base SiteId for the distributed txns in the other sites' command logs
+     * that we still have to wait for
+     */
+    private final TreeMap<Long, Integer> remoteTxns = new TreeMap<Long, Integer>();
+
+    /**
+     * Released once for every replayed txn that has finished.
+     */
+    private final Semaphore finished = new Semaphore(0);
+
+    /**
+     * The number of replayed txns that we have queued but not waited for yet.
+     */
+    private int outstanding = 0;
+
+    private final AtomicInteger committed = new AtomicInteger(0);
+    private final AtomicInteger aborted = new AtomicInteger(0);
+    private int skipped = 0;
+
+    /**
+     * Replayed txns don't have a client waiting for them, so the only
+     * thing that we need to know is when they are finished.
+     */
+    private final RpcCallback<ClientResponseImpl> replayCallback = new RpcCallback<ClientResponseImpl>() {
+        @Override
+        public void run(ClientResponseImpl cresponse) {
+            if (cresponse.getStatus() == Status.OK) {
+                committed.incrementAndGet();
+            } else {
+                if (debug.get()) LOG.warn(String.format("Replayed txn #%d finished with status %s",
+                                                        cresponse.getTransactionId(), cresponse.getStatus()));
+                aborted.incrementAndGet();
+            }
+            finished.release();
+        }
+    };
+
+    /**
+     * Constructor
+     * @param hstore_site
+     * @param logFiles The log segment files for each of the log's streams
+     */
+    public CommandLogReplayer(HStoreSite hstore_site, List<List<File>> logFiles) {
+        this.hstore_site = hstore_site;
+        this.hstore_conf = hstore_site.getHStoreConf();
+        this.logFiles = logFiles;
+        this.num_sites = CatalogUtil.getNumberOfSites(hstore_site.getSite());
+    }
+
+    /**
+     * Restore the latest snapshot and then replay the command log.
+     * This call will block until every txn in the log has finished.
+     */
+    public void replay() {
+        long start = System.currentTimeMillis();
+        this.snapshotTxnId = this.restoreSnapshot();
+        if (this.num_sites > 1) {
+            this.remoteTxns.putAll(this.exchangeReplayTransactions(this.getDistributedTransactions()));
+            if (debug.get()) LOG.debug(String.format("Replay at %s has to wait for %d remote distributed txns",
+                                                     hstore_site.getSiteName(), this.remoteTxns.size()));
+        }
+
+        // Merge the heads of all of the log streams together
+        PriorityQueue<LogStream> streams = new PriorityQueue<LogStream>(Math.max(1, this.logFiles.size()), STREAM_COMPARATOR);
+        for (List<File> segments : this.logFiles) {
+            LogStream stream = new LogStream(segments);
+            if (stream.advance()) streams.add(stream);
+        } // FOR
+
+        // The log entries are written out in group commit batches that are
+        // grouped by partition, so we have to resort them by their original txn ids.
+        // We only keep a bounded window of entries in memory so that we never
+        // have to materialize the entire log.
+        int window = Math.max(1, hstore_conf.site.commandlog_replay_window);
+        PriorityQueue<Pair<LogEntry, Procedure>> pending = new PriorityQueue<Pair<LogEntry, Procedure>>(window, PENDING_COMPARATOR);
+        int total = 0;
+        while (streams.isEmpty() == false) {
+            LogStream stream = streams.poll();
+            LogEntry entry = stream.head;
+            pending.add(Pair.of(entry, stream.procedures[entry.getProcedureId()]));
+            if (stream.advance()) streams.add(stream);
+
+            if (pending.size() >= window) {
+                this.replayEntry(pending.poll());
+                total++;
+            }
+        } // WHILE
+        while (pending.isEmpty() == false) {
+            this.replayEntry(pending.poll());
+            total++;
+        } // WHILE
+        this.waitForRemoteTransactions(Long.MAX_VALUE);
+        this.waitForOutstanding();
+
+        LOG.info(String.format("Processed %d txns from %d command log stream(s) in %.2f sec [committed=%d, aborted=%d, skipped=%d]",
+                               total, this.logFiles.size(),
+                               (System.currentTimeMillis() - start) / 1000d,
+                               this.committed.get(), this.aborted.get(), this.skipped));
+    }
+
+    /**
+     * Map the procedure ids stored in a log file's header to the current catalog
+     * @param logFile
+     * @param logProcs
+     * @return
+     */
+    private Procedure[] getProcedures(File logFile, Map<Integer, String> logProcs) {
+        int max_id = 0;
+        for (Integer procId : logProcs.keySet()) {
+            max_id = Math.max(max_id, procId.intValue());
+        } // FOR
+        Procedure procedures[] = new Procedure[max_id + 1];
+        for (Map.Entry<Integer, String> e : logProcs.entrySet()) {
+            Procedure catalog_proc = hstore_site.getDatabase().getProcedures().getIgnoreCase(e.getValue());
+            if (catalog_proc == null) {
+                String msg = String.format("Command log %s references unknown procedure '%s'",
+                                           logFile.getName(), e.getValue());
+                throw new RuntimeException(msg);
+            }
+            procedures[e.getKey().intValue()] = catalog_proc;
+        } // FOR
+        return (procedures);
+    }
+
+    /**
+     * Returns the ids of all of the distributed txns in our command log
+     * that are not already in the restored snapshot
+     */
+    private Collection<Long> getDistributedTransactions() {
+        Collection<Long> txnIds = new ArrayList<Long>();
+        for (List<File> segments : this.logFiles) {
+            for (File f : segments) {
+                CommandLogReader reader = new CommandLogReader(f.getAbsolutePath());
+                for (LogEntry entry : reader) {
+                    if (entry.isPredictSinglePartition() == false &&
+                        entry.getTransactionId().longValue() > this.snapshotTxnId) {
+                        txnIds.add(entry.getTransactionId());
+                    }
+                } // FOR
+            } // FOR
+        } // FOR
+        return (txnIds);
+    }
+
+    // ----------------------------------------------------------------------------
+    // SNAPSHOT RESTORE
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Restore the latest snapshot for the entire cluster. The sysproc loads the
+     * data for all of the sites, so only the first site is allowed to fire it off.
+     * Every other site blocks until the first site tells it that the restore
+     * has finished so that nobody replays their log on top of a partial database.
+     * Returns the id of the txn that took the snapshot (-1 if there wasn't one).
+     */
+    protected long restoreSnapshot() {
+        if (hstore_site.getSiteId() != 0) {
+            assert(this.num_sites > 1);
+            if (debug.get()) LOG.debug("Waiting for the snapshot to be restored before replaying command log");
+            Status status = hstore_site.getHStoreCoordinator().waitForReplayRestore();
+            if (status != Status.OK) {
+                String msg = String.format("Unable to replay command log at %s because the snapshot restore failed [status=%s]",
+                                           hstore_site.getSiteName(), status);
+                throw new RuntimeException(msg);
+            }
+            return (hstore_site.getHStoreCoordinator().getReplayRestoreTxnId());
+        }
+
+        long txnId = -1;
+        boolean success = false;
+        try {
+            txnId = this.invokeSnapshotRestore();
+            success = true;
+        } finally {
+            if (this.num_sites > 1) {
+                hstore_site.getHStoreCoordinator().notifyReplayRestore(success ? Status.OK : Status.ABORT_UNEXPECTED, txnId);
+            }
+        }
+        return (txnId);
+    }
+
+    /**
+     * Invoke @SnapshotRestore for the latest valid snapshot in the replay directory.
+     * Returns the id of the txn that took the snapshot (-1 if there wasn't one).
+     */
+    protected long invokeSnapshotRestore() {
+        File snapshotDir = new File(hstore_conf.site.commandlog_replay_snapshot_dir);
+        TreeMap<Long, SnapshotUtil.Snapshot> snapshots = new TreeMap<Long, SnapshotUtil.Snapshot>();
+        if (snapshotDir.exists()) {
+            SnapshotUtil.retrieveSnapshotFiles(snapshotDir, snapshots, new SnapshotUtil.SnapshotFilter(), 0, false);
+        }
+        if (snapshots.isEmpty() || snapshots.lastEntry().getValue().m_digests.isEmpty()) {
+            LOG.warn(String.format("No snapshot found in %s. Replaying command log on an empty database",
+                                   snapshotDir.getAbsolutePath()));
+            return (-1);
+        }
+        SnapshotUtil.Snapshot snapshot = snapshots.lastEntry().getValue();
+        File digest = CollectionUtil.first(snapshot.m_digests);
+        String nonce = digest.getName().substring(0, digest.getName().length() - ".digest".length());
+        LOG.info(String.format("Restoring snapshot '%s' from %s before replaying command log",
+                               nonce, digest.getParent()));
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final ClientResponseImpl response[] = { null };
+        RpcCallback<ClientResponseImpl> callback = new RpcCallback<ClientResponseImpl>() {
+            @Override
+            public void run(ClientResponseImpl cresponse) {
+                response[0] = cresponse;
+                latch.countDown();
+            }
+        };
+        StoredProcedureInvocation spi = new StoredProcedureInvocation(0, "@SnapshotRestore",
+                                                                      digest.getParent(), nonce, 0l);
+        hstore_site.processInvocation(this.serialize(spi), callback);
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            throw new ServerFaultException("Interrupted while waiting for snapshot restore", ex);
+        }
+        if (response[0].getStatus() != Status.OK) {
+            String msg = String.format("Failed to restore snapshot '%s' before replaying command log: %s",
+                                       nonce, response[0].getStatusString());
+            throw new RuntimeException(msg);
+        }
+        if (snapshot.m_txnId < 0) {
+            LOG.warn(String.format("Snapshot '%s' does not record the txn that took it. " +
+                                   "Replaying the entire command log on top of it", nonce));
+        }
+        return (snapshot.m_txnId);
+    }
+
+    // ----------------------------------------------------------------------------
+    // LOG REPLAY
+    // ----------------------------------------------------------------------------
+
+    private void replayEntry(Pair<LogEntry, Procedure> p) {
+        LogEntry entry = p.getFirst();
+        Procedure catalog_proc = p.getSecond();
+        long client_handle = entry.getTransactionId().longValue();
+
+        // The txns that came before the snapshot are already in the database
+        if (client_handle <= this.snapshotTxnId) {
+            if (trace.get()) LOG.trace(String.format("Skipping %s because it is in snapshot txn #%d",
+                                                     entry, this.snapshotTxnId));
+            this.skipped++;
+            return;
+        }
+
+        // Every site only replays the txns that were executed at its own partitions.
+        // The other sites' logs will take care of everything else.
+        int base_partition = entry.getBasePartition();
+        if (hstore_site.isLocalPartition(base_partition) == false) {
+            LOG.warn(String.format("Skipping %s because its base partition %d is not local to %s",
+                                   entry, base_partition, hstore_site.getSiteName()));
+            this.skipped++;
+            return;
+        }
+
+        // Any distributed txn from another site that comes before this one
+        // has to finish first
+        this.waitForRemoteTransactions(client_handle);
+
+        // Distributed txns have to wait for everything before them to finish
+        // and then finish before we can let anything else go
+        boolean singlePartition = entry.isPredictSinglePartition();
+        if (singlePartition == false) {
+            this.waitForOutstanding();
+            if (this.num_sites > 1) this.waitForReplayBarrier(client_handle);
+        }
+
+        if (trace.get()) LOG.trace(String.format("Replaying %s at partition %d [singlePartition=%s]",
+                                                 entry, base_partition, singlePartition));
+
+        // We don't need to serialize the ParameterSet into the request because
+        // the PartitionExecutor only looks at the header fields in the buffer
+        StoredProcedureInvocation spi = new StoredProcedureInvocation(client_handle,
+                                                                      catalog_proc.getId(),
+                                                                      catalog_proc.getName());
+        ByteBuffer serializedRequest = this.serialize(spi);
+        while (this.queueTransaction(entry, catalog_proc, serializedRequest, this.replayCallback) == false) {
+            // The partition's queue is throttled, so we'll wait for some of our
+            // outstanding txns to finish before we try again
+            if (this.outstanding > 0) {
+                try {
+                    this.finished.acquire();
+                } catch (InterruptedException ex) {
+                    throw new ServerFaultException("Interrupted while replaying command log", ex);
+                }
+                this.outstanding--;
+            } else {
+                Thread.yield();
+            }
+        } // WHILE
+        this.outstanding++;
+
+        if (singlePartition == false) {
+            this.waitForOutstanding();
+            if (this.num_sites > 1) this.releaseReplayBarrier(client_handle);
+        }
+    }
+
+    /**
+     * Block until every distributed txn from another site's command log that
+     * comes before the given txn id has finished. We have to finish all of our own
+     * txns that come before each of them first.
+     * @param txnId
+     */
+    private void waitForRemoteTransactions(long txnId) {
+        while (this.remoteTxns.isEmpty() == false && this.remoteTxns.firstKey().longValue() < txnId) {
+            Map.Entry<Long, Integer> e = this.remoteTxns.pollFirstEntry();
+            this.waitForOutstanding();
+            if (trace.get()) LOG.trace(String.format("Waiting for remote distributed txn #%d at %s",
+                                                     e.getKey(), HStoreThreadManager.formatSiteName(e.getValue())));
+            this.enterReplayBarrier(e.getKey().longValue(), e.getValue().intValue());
+        } // WHILE
+    }
+
+    /**
+     * Queue the given log entry at its base partition. The callback has to be invoked
+     * once the txn is finished. Returns false if the partition is throttled.
+     * @param entry
+     * @param catalog_proc
+     * @param serializedRequest
+     * @param callback
+     * @return
+     */
+    protected boolean queueTransaction(LogEntry entry, Procedure catalog_proc,
+                                       ByteBuffer serializedRequest, RpcCallback<ClientResponseImpl> callback) {
+        PartitionExecutor executor = hstore_site.getPartitionExecutor(entry.getBasePartition());
+        return (executor.queueNewTransaction(serializedRequest,
+                                             catalog_proc,
+                                             entry.getProcedureParams(),
+                                             callback,
+                                             entry.getPredictTouchedPartitions()));
+    }
+
+    /**
+     * Send the ids of the distributed txns in our command log to every other site
+     * and return the ones from their logs (TxnId -> Base SiteId)
+     * @param txnIds
+     * @return
+     */
+    protected Map<Long, Integer> exchangeReplayTransactions(Collection<Long> txnIds) {
+        return (hstore_site.getHStoreCoordinator().exchangeReplayTransactions(txnIds));
+    }
+
+    /**
+     * Tell the base site of a remote distributed txn that we have replayed
+     * everything before it and block until it has finished
+     * @param txnId
+     * @param base_site
+     */
+    protected void enterReplayBarrier(long txnId, int base_site) {
+        hstore_site.getHStoreCoordinator().enterReplayBarrier(txnId, base_site);
+    }
+
+    /**
+     * Block until every other site has replayed everything before our local distributed txn
+     * @param txnId
+     */
+    protected void waitForReplayBarrier(long txnId) {
+        hstore_site.getHStoreCoordinator().waitForReplayBarrier(txnId);
+    }
+
+    /**
+     * Tell every other site that our local distributed txn has finished
+     * @param txnId
+     */
+    protected void releaseReplayBarrier(long txnId) {
+        hstore_site.getHStoreCoordinator().releaseReplayBarrier(txnId);
+    }
+
+    private void waitForOutstanding() {
+        if (this.outstanding == 0) return;
+        try {
+            this.finished.acquire(this.outstanding);
+        } catch (InterruptedException ex) {
+            throw new ServerFaultException("Interrupted while replaying command log", ex);
+        }
+        this.outstanding = 0;
+    }
+
+    private ByteBuffer serialize(StoredProcedureInvocation spi) {
+        try {
+            return (ByteBuffer.wrap(FastSerializer.serialize(spi)));
+        } catch (IOException ex) {
+            throw new ServerFaultException("Failed to serialize replay request for " + spi.getProcName(), ex);
+        }
+    }
+}
@@ -28,11 +28,23 @@ package edu.brown.hstore.wal;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.Exchanger;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.log4j.Logger;
 import org.voltdb.ClientResponseImpl;
@@ -41,6 +53,8 @@ import org.voltdb.exceptions.ServerFaultException;
 import org.voltdb.messaging.FastSerializer;
 import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.DBBPool.BBContainer;
+import org.voltdb.utils.Pair;
+import org.xerial.snappy.Snappy;
 
 import com.google.protobuf.RpcCallback;
 
@@ -68,6 +82,33 @@ public class CommandLogWriter implements Shutdownable {
         LoggerUtil.attachObserver(LOG, debug, trace);
     }
     
+    private static final String LOG_FILE_EXT = ".log";
+    
+    /**
+     * The suffix that the HStoreSite adds to the previous log files while it replays them
+     */
+    public static final String REPLAY_FILE_EXT = ".replay";
+    
+    /**
+     * The reasons why the adaptive group commit policy decided
+     * to flush out a stripe's buffers 
+     */
+    public enum FlushReason {
+        /** The number of buffered txns reached site.commandlog_flush_txns */
+        TXNS,
+        /** The estimated number of buffered bytes reached site.commandlog_flush_bytes */
+        BYTES,
+        /** We waited as long as the last fsyncs took */
+        LATENCY,
+        /** We waited for site.commandlog_timeout */
+        TIMEOUT;
+    }
+    
+    /**
+     * Weight of the newest sample in the moving averages for the adaptive group commit policy  
+     */
+    private static final double ADAPTIVE_SAMPLE_WEIGHT = 0.2;
+    
     /**
      * Special LogEntry that holds additional data that we
      * need in order to send back a ClientResponse
@@ -77,12 +118,15 @@ public class CommandLogWriter implements Shutdownable {
         protected RpcCallback<ClientResponseImpl> clientCallback;
         protected long initiateTime;
         protected int restartCounter;
+        /** If true, then we return the ParameterSet to the HStoreSite's pool after the group commit */
+        protected boolean procParamsPooled;
         
         public LogEntry init(LocalTransaction ts, ClientResponseImpl cresponse) {
             this.cresponse = cresponse;
             this.clientCallback = ts.getClientCallback();
             this.initiateTime = ts.getInitiateTime();
             this.restartCounter = ts.getRestartCounter();
+            this.procParamsPooled = ts.isProcedureParametersPooled();
             return super.init(ts);
         }
         
@@ -93,6 +137,7 @@ public class CommandLogWriter implements Shutdownable {
             this.clientCallback = null;
             this.initiateTime = -1;
             this.restartCounter = -1;
+            this.procParamsPooled = false;
         }
     }
     
@@ -139,40 +184,577 @@ public class CommandLogWriter implements Shutdownable {
         }
     } // CLASS
     
+    /**
+     * A single stream of log segment files that is written to by its own
+     * WriterThread. Each local partition at this site is assigned to exactly one
+     * LogStripe, so the partitions in different stripes never contend on the same
+     * buffer exchange, serializer, or fsync.
+     */
+    protected class LogStripe {
+        private final int id;
+        private final FastSerializer serializer;
+        private final AtomicBoolean swapBuffers = new AtomicBoolean(false); 
+        private final AtomicBoolean flushInProgress = new AtomicBoolean(false);
+        private final AtomicBoolean swapInProgress = new AtomicBoolean(false); 
+        private final Semaphore writingEntry; 
+        private final WriterThread flushThread;
+        private final Exchanger<EntryBuffer[]> bufferExchange;
+        private final LogEntry singletonLogEntry;
+        private int commitBatchCounter = 0;
+        
+        /**
+         * Set to true once the WriterThread has done its final group commit.
+         * Anything added after that has to be written out by the partition's thread.
+         */
+        private volatile boolean finished = false;
+        
+        /**
+         * The log entry buffers (one per partition in this stripe) 
+         */
+        private EntryBuffer entries[];
+        private EntryBuffer entriesFlushing[];
+        
+        /**
+         * The current segment file that we are appending to
+         */
+        private File segmentFile;
+        private FileChannel fstream;
+        private MappedByteBuffer mappedBuffer;
+        private int segmentCounter = 0;
+        private long segmentBytes = 0;
+        private long segmentMaxTxnId = -1;
+        
+        /**
+         * Segments that we have rolled over from, along with the 
+         * largest txn id stored in each of them. 
+         */
+        private final List<Pair<File, Long>> closedSegments = new ArrayList<Pair<File, Long>>();
+        
+        private final ProfileMeasurement writingTime;
+        private final ProfileMeasurement networkTime;
+        
+        // Adaptive Group Commit
+        private final AtomicInteger pendingTxns = new AtomicInteger(0);
+        private volatile int flushTxnThreshold;
+        private double avgEntryBytes = 0;
+        private double avgFsyncNanos = 0;
+        private final ProfileMeasurement fsyncTime;
+        private final ProfileMeasurement flushReasons[];
+        
+        public LogStripe(int id, int num_partitions) {
+            this.id = id;
+            this.serializer = new FastSerializer(true, true);
+            
+            // Configure group commit parameters
+            if (group_commit_size > 0) {
+                this.writingEntry = new Semaphore(group_commit_size, false); 
+                this.bufferExchange = new Exchanger<EntryBuffer[]>();
+                
+                // Make one entry buffer per partition SO THAT SYNCHRONIZATION ON EACH BUFFER IS NOT REQUIRED
+                this.entries = new EntryBuffer[num_partitions];
+                this.entriesFlushing = new EntryBuffer[num_partitions];
+                for (int i = 0; i < num_partitions; i++) {
+                    this.entries[i] = new EntryBuffer(group_commit_size, new FastSerializer(hstore_site.getBufferPool()));
+                    this.entriesFlushing[i] = new EntryBuffer(group_commit_size, new FastSerializer(hstore_site.getBufferPool()));
+                } // FOR
+                this.flushThread = new WriterThread(this);
+                this.singletonLogEntry = new LogEntry();
+            } else {
+                this.writingEntry = null; 
+                this.bufferExchange = null;
+                this.flushThread = null;
+                this.singletonLogEntry = new LogEntry();
+            }
+            
+            // Writer Profiling
+            if (profiling) {
+                this.writingTime = new ProfileMeasurement("WRITING");
+                this.networkTime = new ProfileMeasurement("NETWORK");
+                this.fsyncTime = new ProfileMeasurement("FSYNC");
+                this.flushReasons = new ProfileMeasurement[FlushReason.values().length];
+                for (FlushReason r : FlushReason.values()) {
+                    this.flushReasons[r.ordinal()] = new ProfileMeasurement("FLUSH_" + r.name());
+                } // FOR
+            } else {
+                this.writingTime = null;
+                this.networkTime = null;
+                this.fsyncTime = null;
+                this.flushReasons = null;
+            }
+            this.flushTxnThreshold = (hstore_conf.site.commandlog_flush_txns > 0 ?
+                                            hstore_conf.site.commandlog_flush_txns : Integer.MAX_VALUE);
+            
+            this.openSegment();
+        }
+        
+        /**
+         * Open the next segment file for this stripe and write out its header
+         */
+        private void openSegment() {
+            this.segmentFile = getSegmentFile(outputFile, this.id, this.segmentCounter, striped);
+            try {
+                this.segmentFile.getParentFile().mkdirs();
+                LOG.info("Command Log File: " + this.segmentFile.getAbsolutePath());
+                this.segmentFile.createNewFile();
+                if (mmap) {
+                    // Preallocate the entire segment up front so that we never have
+                    // to extend the file (and its metadata) when we fsync
+                    RandomAccessFile raf = new RandomAccessFile(this.segmentFile, "rw");
+                    raf.setLength(mmap_size);
+                    this.fstream = raf.getChannel();
+                    this.mappedBuffer = this.fstream.map(FileChannel.MapMode.READ_WRITE, 0, mmap_size);
+                } else {
+                    this.fstream = new FileOutputStream(this.segmentFile, false).getChannel();
+                }
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+            this.segmentBytes = 0;
+            this.segmentMaxTxnId = -1;
+            
+            // Write out a header to the file 
+            ByteBuffer header = serializeHeader(this.serializer);
+            try {
+                if (mmap) {
+                    this.mappedBuffer.put(header);
+                    this.mappedBuffer.force();
+                    this.segmentBytes += this.mappedBuffer.position();
+                } else {
+                    this.segmentBytes += this.fstream.write(header);
+                    this.fstream.force(true);
+                }
+            } catch (Exception ex) {
+                String message = "Failed to write log headers";
+                throw new ServerFaultException(message, ex);
+            }
+        }
+        
+        /**
+         * Close the current segment file. If it was preallocated, then we will
+         * chop off the part of the file that we never wrote to
+         */
+        private void closeSegment() throws IOException {
+            if (this.mappedBuffer != null) {
+                this.mappedBuffer.force();
+                this.mappedBuffer = null;
+                this.fstream.truncate(this.segmentBytes);
+            }
+            this.fstream.close();
+        }
+        
+        /**
+         * Close the current segment file and start a new one
+         */
+        private void rollSegment() {
+            if (debug.get()) LOG.debug(String.format("Rolling over command log segment %s [bytes=%d, maxTxnId=%d]",
+                                                     this.segmentFile.getName(), this.segmentBytes, this.segmentMaxTxnId));
+            try {
+                this.closeSegment();
+            } catch (IOException ex) {
+                throw new ServerFaultException("Failed to close WAL segment " + this.segmentFile, ex);
+            }
+            synchronized (this.closedSegments) {
+                this.closedSegments.add(Pair.of(this.segmentFile, this.segmentMaxTxnId));
+            } // SYNCH
+            this.segmentCounter++;
+            this.openSegment();
+        }
+        
+        /**
+         * Delete all of the closed segments that only contain txns
+         * that came before the given txn id
+         * @param txnId
+         * @return The number of segment files that were deleted
+         */
+        private int truncate(long txnId) {
+            int deleted = 0;
+            synchronized (this.closedSegments) {
+                Iterator<Pair<File, Long>> it = this.closedSegments.iterator();
+                while (it.hasNext()) {
+                    Pair<File, Long> p = it.next();
+                    if (p.getSecond().longValue() >= txnId) continue;
+                    if (debug.get()) LOG.debug(String.format("Deleting command log segment %s [maxTxnId=%d, snapshotTxnId=%d]",
+                                                             p.getFirst().getName(), p.getSecond(), txnId));
+                    p.getFirst().delete();
+                    it.remove();
+                    deleted++;
+                } // WHILE
+            } // SYNCH
+            return (deleted);
+        }
+        
+        /**
+         * Append a block to the current segment through its FileChannel.
+         * Every block starts with its length. A negative length means that
+         * the block was not compressed.
+         * @param data
+         * @return The number of bytes written
+         */
+        private int writeStream(ByteBuffer data) throws IOException {
+            if (compress) {
+                return (this.fstream.write(CompressionService.compressBufferForMessaging(data)));
+            }
+            ByteBuffer length = ByteBuffer.allocate(4);
+            length.putInt(-data.remaining());
+            length.flip();
+            return ((int)this.fstream.write(new ByteBuffer[]{ length, data.duplicate() }));
+        }
+        
+        /**
+         * Append a block directly into the current segment's memory-mapped region.
+         * If the block will not fit into what is left of this segment, then we 
+         * will roll over to a new one first. The length prefix is written last.
+         * @param data
+         * @return The number of bytes written
+         */
+        private int writeMapped(ByteBuffer data) throws IOException {
+            int maxLength = 4 + (compress ? Snappy.maxCompressedLength(data.remaining()) : data.remaining());
+            if (this.mappedBuffer.remaining() < maxLength) {
+                this.rollSegment();
+                if (this.mappedBuffer.remaining() < maxLength) {
+                    throw new RuntimeException(String.format("Group commit batch needs %d bytes but the preallocated " +
+                                                             "WAL segments are only %d bytes", maxLength, mmap_size));
+                }
+            }
+            
+            int start = this.mappedBuffer.position();
+            int length;
+            this.mappedBuffer.position(start + 4);
+            if (compress) {
+                length = Snappy.compress(data.duplicate(), this.mappedBuffer.slice());
+                this.mappedBuffer.putInt(start, length);
+            } else {
+                length = data.remaining();
+                this.mappedBuffer.put(data.duplicate());
+                this.mappedBuffer.putInt(start, -length);
+            }
+            this.mappedBuffer.position(start + 4 + length);
+            return (4 + length);
+        }
+        
+        /**
+         * GroupCommits the given buffer set all at once
+         * @param eb
+         */
+        private void groupCommit(EntryBuffer[] eb) {
+            if (profiling) this.writingTime.start();
+            this.commitBatchCounter++;
+            
+            // Write all to a single FastSerializer buffer
+            this.serializer.clear();
+            int txnCounter = 0;
+            for (int i = 0; i < eb.length; i++) {
+                EntryBuffer buffer = eb[i];
+                try {
+                    int start = buffer.getStart();
+                    for (int j = 0, size = buffer.getSize(); j < size; j++) {
+                        WriterLogEntry entry = buffer.buffer[(start + j) % buffer.buffer.length];
+                        this.serializer.writeObject(entry);
+                        this.segmentMaxTxnId = Math.max(this.segmentMaxTxnId, entry.txnId.longValue());
+                        txnCounter++;
+                        
+                        if (debug.get())
+                            LOG.debug(String.format("Prepared txn #%d for group commit batch #%d in stripe %d",
+                                                    entry.txnId, this.commitBatchCounter, this.id));
+                    } // FOR
+                    
+                } catch (Exception e) {
+                    String message = "Failed to serialize buffer during group commit";
+                    throw new ServerFaultException(message, e);
+                }
+            } // FOR
+            
+            // Compress and force out to disk
+            ByteBuffer data = this.serializer.getBBContainer().b;
+            if (debug.get()) LOG.debug(String.format("Writing out %d bytes for %d txns [stripe=%d, batchCtr=%d, mmap=%s]",
+                                                     data.limit(), txnCounter, this.id, this.commitBatchCounter, mmap)); 
+            long fsyncStart = -1;
+            try {
+                if (mmap) {
+                    this.segmentBytes += this.writeMapped(data);
+                    fsyncStart = ProfileMeasurement.getTime();
+                    this.mappedBuffer.force();
+                } else {
+                    this.segmentBytes += this.writeStream(data);
+                    fsyncStart = ProfileMeasurement.getTime();
+                    this.fstream.force(true);
+                }
+            } catch (IOException ex) {
+                String message = "Failed to group commit for buffer";
+                throw new ServerFaultException(message, ex);
+            } finally {
+                if (profiling) this.writingTime.stop();
+            }
+            if (hstore_conf.site.commandlog_adaptive) {
+                long fsyncStop = ProfileMeasurement.getTime();
+                if (profiling) this.fsyncTime.addThinkTime(fsyncStart, fsyncStop, 1);
+                this.updateAdaptiveStats(fsyncStop - fsyncStart, this.serializer.getBBContainer().b.limit(), txnCounter);
+            }
+            
+            if (profiling) 
+                this.networkTime.start();
+            
+            // Send responses
+            for (int i = 0; i < eb.length; i++) {
+                EntryBuffer buffer = eb[i];
+                int start = buffer.getStart();
+                for (int j = 0, size = buffer.getSize(); j < size; j++) {
+                    WriterLogEntry entry = buffer.buffer[(start + j) % buffer.buffer.length];
+                    hstore_site.sendClientResponse(entry.cresponse,
+                                                   entry.clientCallback,
+                                                   entry.initiateTime,
+                                                   entry.restartCounter);
+                    
+                    // The txn handed its ParameterSet over to us, so now that it's
+                    // been written out we can give it back to the pool
+                    if (entry.procParamsPooled) {
+                        hstore_site.getObjectPools().PARAMETERSETS.returnObject(entry.getProcedureParams());
+                    }
+                    entry.finish();
+                }
+                buffer.flushCleanup();
+            } // FOR
+            
+            if (profiling) 
+                this.networkTime.stop();
+            
+            // Start a new segment if this one is full. We only do this after
+            // we've sent out the responses so that the clients don't have to wait
+            if (segment_size > 0 && this.segmentBytes >= segment_size) {
+                this.rollSegment();
+            }
+        }
+        
+        // ----------------------------------------------------------------------------
+        // ADAPTIVE GROUP COMMIT
+        // ----------------------------------------------------------------------------
+        
+        /**
+         * Update our moving averages with the measurements from the last group commit
+         * and recompute the number of buffered txns that will force a flush
+         * @param fsyncNanos
+         * @param bytes
+         * @param txns
+         */
+        private void updateAdaptiveStats(long fsyncNanos, int bytes, int txns) {
+            this.avgFsyncNanos = (this.avgFsyncNanos == 0 ? fsyncNanos :
+                                     ((1 - ADAPTIVE_SAMPLE_WEIGHT) * this.avgFsyncNanos) + (ADAPTIVE_SAMPLE_WEIGHT * fsyncNanos));
+            if (txns > 0) {
+                double entryBytes = bytes / (double)txns;
+                this.avgEntryBytes = (this.avgEntryBytes == 0 ? entryBytes :
+                                         ((1 - ADAPTIVE_SAMPLE_WEIGHT) * this.avgEntryBytes) + (ADAPTIVE_SAMPLE_WEIGHT * entryBytes));
+            }
+            
+            int threshold = (hstore_conf.site.commandlog_flush_txns > 0 ?
+                                hstore_conf.site.commandlog_flush_txns : Integer.MAX_VALUE);
+            if (hstore_conf.site.commandlog_flush_bytes > 0 && this.avgEntryBytes > 0) {
+                threshold = (int)Math.min(threshold, Math.max(1, (hstore_conf.site.commandlog_flush_bytes * 1024l) / this.avgEntryBytes));
+            }
+            this.flushTxnThreshold = threshold;
+        }
+        
+        /**
+         * Called by the partition threads after they add a new entry to this stripe 
+         */
+        private void entryAdded() {
+            if (this.pendingTxns.incrementAndGet() == this.flushTxnThreshold) {
+                LockSupport.unpark(this.flushThread);
+            }
+        }
+        
+        /**
+         * Block the WriterThread until the adaptive policy decides that it is 
+         * time for the next group commit. We will flush when either:
+         *  (1) The number of buffered txns reaches site.commandlog_flush_txns
+         *  (2) The estimated number of buffered bytes reaches site.commandlog_flush_bytes
+         *  (3) We have txns waiting and we have waited as long as an average fsync
+         *  (4) We have waited for site.commandlog_timeout
+         * @return
+         */
+        private FlushReason waitForFlush() {
+            final long start = ProfileMeasurement.getTime();
+            final long timeout = hstore_conf.site.commandlog_timeout * 1000000l;
+            FlushReason reason = null;
+            while (stop == false) {
+                long waited = ProfileMeasurement.getTime() - start;
+                int pending = this.pendingTxns.get();
+                if (pending >= this.flushTxnThreshold) {
+                    reason = (hstore_conf.site.commandlog_flush_txns > 0 && pending >= hstore_conf.site.commandlog_flush_txns ?
+                                    FlushReason.TXNS : FlushReason.BYTES);
+                } else if (pending > 0 && this.avgFsyncNanos > 0 && waited >= this.avgFsyncNanos) {
+                    reason = FlushReason.LATENCY;
+                } else if (waited >= timeout) {
+                    reason = FlushReason.TIMEOUT;
+                }
+                if (reason != null) break;
+                
+                // Sleep until either somebody wakes us up because the buffer got big enough
+                // or until it's time to check our latency target again
+                long sleep = timeout - waited;
+                if (pending > 0 && this.avgFsyncNanos > 0) {
+                    sleep = Math.min(sleep, (long)this.avgFsyncNanos - waited);
+                }
+                LockSupport.parkNanos(Math.max(1, sleep));
+            } // WHILE
+            
+            if (reason != null) {
+                if (debug.get()) LOG.debug(String.format("Adaptive group commit for stripe %d [reason=%s, pending=%d, " +
+                                                         "threshold=%d, avgFsync=%.2fms, avgEntryBytes=%.1f]",
+                                                         this.id, reason, this.pendingTxns.get(), this.flushTxnThreshold,
+                                                         this.avgFsyncNanos / 1000000d, this.avgEntryBytes));
+                if (profiling) {
+                    this.flushReasons[reason.ordinal()].addThinkTime(start, ProfileMeasurement.getTime(), 1);
+                }
+            }
+            return (reason);
+        }
+        
+        /**
+         * Exchange the WriterThread's empty buffers for the ones that the partitions
+         * have been filling up. Returns null if we are stopping and no partition
+         * picked up the swap, in which case the swap is cancelled.
+         * @param eb
+         * @return
+         */
+        private EntryBuffer[] exchangeForFlush(EntryBuffer[] eb) throws InterruptedException {
+            while (true) {
+                try {
+                    return (this.bufferExchange.exchange(eb, hstore_conf.site.commandlog_timeout, TimeUnit.MILLISECONDS));
+                } catch (TimeoutException ex) {
+                    if (stop && this.swapBuffers.compareAndSet(true, false)) {
+                        return (null);
+                    }
+                }
+            } // WHILE
+        }
+        
+        /**
+         * Write out whatever the partitions have buffered since the last group commit.
+         * This is invoked by the WriterThread right before it exits. 
+         */
+        private void finalCommit() {
+            // Make sure that no partition is in the middle of adding an entry
+            int free_permits = group_commit_size - this.writingEntry.drainPermits();
+            this.writingEntry.acquireUninterruptibly(free_permits);
+            this.flushInProgress.set(true);
+            try {
+                for (EntryBuffer buffer : this.entries) {
+                    this.pendingTxns.addAndGet(-buffer.getSize());
+                } // FOR
+                if (debug.get()) LOG.debug(String.format("Final group commit for stripe %d", this.id));
+                this.groupCommit(this.entries);
+            } finally {
+                this.finished = true;
+                this.flushInProgress.set(false);
+                this.writingEntry.release(group_commit_size);
+            }
+        }
+        
+        /**
+         * Write out a single entry right away. This is only used for txns
+         * that finish after the WriterThread has stopped.
+         * @param ts
+         */
+        private synchronized void writeSingleEntry(LocalTransaction ts) throws IOException {
+            this.serializer.clear();
+            this.singletonLogEntry.init(ts);
+            this.serializer.writeObject(this.singletonLogEntry);
+            ByteBuffer data = this.serializer.getBBContainer().b;
+            if (mmap) {
+                this.segmentBytes += this.writeMapped(data);
+                this.mappedBuffer.force();
+            } else {
+                this.segmentBytes += this.writeStream(data);
+                this.fstream.force(true);
+            }
+            this.segmentMaxTxnId = Math.max(this.segmentMaxTxnId, ts.getTransactionId().longValue());
+            this.singletonLogEntry.finish();
+        }
+        
+        /**
+         * Force the writer thread to flush all entries out
+         * to disk right now. Multiple invocations of this will not be queued 
+         */
+        private void flush() throws InterruptedException {
+            this.entries = this.bufferExchange.exchange(this.entries);
+            
+            // Then wait until it's done running
+            while (this.flushInProgress.get()) {
+                Thread.yield();
+            }  // WHILE
+        }
+        
+        private void close() {
+            // Wait for the WriterThread to write out everything that it has buffered
+            if (this.flushThread != null) {
+                LockSupport.unpark(this.flushThread);
+                try {
+                    this.flushThread.join();
+                } catch (InterruptedException ex) {
+                    throw new ServerFaultException("Interrupted while waiting for WAL writer thread to finish", ex);
+                }
+            }
+            
+            if (debug.get()) 
+                LOG.debug("Closing WAL file " + this.segmentFile);
+            synchronized (this) {
+                try {
+                    this.closeSegment();
+                } catch (IOException ex) {
+                    String message = "Failed to close WAL file";
+                    throw new ServerFaultException(message, ex);
+                }
+            } // SYNCH
+        }
+    } // CLASS
+    
     /**
      * Separate thread for writing out entries to the log
      */
     protected class WriterThread extends Thread {
+        private final LogStripe stripe;
         {
             this.setDaemon(true);
         }
+        
+        public WriterThread(LogStripe stripe) {
+            this.stripe = stripe;
+        }
 
         @Override
         public void run() {
             Thread self = Thread.currentThread();
-            self.setName(HStoreThreadManager.getThreadName(hstore_site, HStoreConstants.THREAD_NAME_COMMANDLOGGER));
+            if (striped) {
+                self.setName(HStoreThreadManager.getThreadName(hstore_site, HStoreConstants.THREAD_NAME_COMMANDLOGGER,
+                                                               Integer.toString(stripe.id)));
+            } else {
+                self.setName(HStoreThreadManager.getThreadName(hstore_site, HStoreConstants.THREAD_NAME_COMMANDLOGGER));
+            }
 
             while (stop == false) {
-                // Sleep until our timeout period, at which point a 
-                // flush will be initiated
+                // Sleep until our timeout period or until the adaptive policy
+                // tells us to go, at which point a flush will be initiated
                 try {
-                    Thread.sleep(hstore_conf.site.commandlog_timeout);
+                    if (hstore_conf.site.commandlog_adaptive) {
+                        if (stripe.waitForFlush() == null) break;
+                    } else {
+                        Thread.sleep(hstore_conf.site.commandlog_timeout);
+                    }
                 } catch (InterruptedException e) {
                     if (stop) break;
-                } finally {
-                    if (debug.get())
-                        LOG.debug("Group commit timeout occurred, writing buffer to disk.");
-                    
-                    flushInProgress.set(true);
-                    swapBuffers.set(true);
                 }
+                if (debug.get())
+                    LOG.debug("Group commit timeout occurred, writing buffer to disk.");
+                
+                stripe.flushInProgress.set(true);
+                stripe.swapBuffers.set(true);
                 
-                int free_permits = group_commit_size - writingEntry.drainPermits();
+                int free_permits = group_commit_size - stripe.writingEntry.drainPermits();
                 if (debug.get())
                     LOG.debug("Acquiring " + free_permits + " writeEntry permits");
                 do {
                     try {
-                        writingEntry.acquire(free_permits);
+                        stripe.writingEntry.acquire(free_permits);
                     } catch (InterruptedException ex) {
                         continue;
                     }
@@ -184,49 +766,55 @@ public class CommandLogWriter implements Shutdownable {
                     // filling the buffer and the writing thread where a full 
                     // buffer is exchanged for an empty one and the full
                     // buffer is written out to disk.
-                    entriesFlushing = bufferExchange.exchange(entriesFlushing);
+                    EntryBuffer flushing[] = stripe.exchangeForFlush(stripe.entriesFlushing);
+                    if (flushing == null) {
+                        // Nobody picked up the swap because we're stopping,
+                        // so the final commit below will take care of it
+                        stripe.writingEntry.release(group_commit_size);
+                        break;
+                    }
+                    stripe.entriesFlushing = flushing;
+                    for (EntryBuffer buffer : stripe.entriesFlushing) {
+                        stripe.pendingTxns.addAndGet(-buffer.getSize());
+                    } // FOR
 
                     // Release our entry permits so that other threads can 
                     // start filling up their Entry buffers
-                    writingEntry.release(group_commit_size);
+                    stripe.writingEntry.release(group_commit_size);
 
                     // Write the entries out to disk
-                    groupCommit(entriesFlushing);
+                    stripe.groupCommit(stripe.entriesFlushing);
 
                 } catch (InterruptedException ex) {
                     throw new RuntimeException("WAL writer thread interrupted while waiting for a new buffer", ex);
                 } finally {
-                    flushInProgress.set(false);                    
+                    stripe.flushInProgress.set(false);                    
                 }
             } // WHILE
+            
+            // Make sure that nothing that was added after the last group commit gets lost
+            stripe.finalCommit();
         }
     }
     
     private final HStoreSite hstore_site;
     private final HStoreConf hstore_conf;
     private final File outputFile;
-    private final FileChannel fstream;
     private final int group_commit_size;
-    private final FastSerializer singletonSerializer;
-    private final LogEntry singletonLogEntry;
-    private final AtomicBoolean swapBuffers = new AtomicBoolean(false); 
-    private final AtomicBoolean flushInProgress = new AtomicBoolean(false);
-    private final AtomicBoolean swapInProgress = new AtomicBoolean(false); 
-    private final Semaphore writingEntry; 
-    private final WriterThread flushThread;
-    private final Exchanger<EntryBuffer[]> bufferExchange;
-    private int commitBatchCounter = 0;
-    private boolean stop = false;
+    private final long segment_size;
+    private final boolean striped;
+    private final boolean mmap;
+    private final int mmap_size;
+    private final boolean compress;
+    private final boolean profiling;
+    private volatile boolean stop = false;
     
     /**
-     * The log entry buffers (one per partition) 
+     * The independent log streams for this site 
      */
-    private EntryBuffer entries[];
-    private EntryBuffer entriesFlushing[];
+    private final LogStripe stripes[];
     
     private final ProfileMeasurement blockedTime;
-    private final ProfileMeasurement writingTime;
-    private final ProfileMeasurement networkTime;
     
     /**
      * Constructor
@@ -237,7 +825,6 @@ public class CommandLogWriter implements Shutdownable {
         this.hstore_site = hstore_site;
         this.hstore_conf = hstore_site.getHStoreConf();
         this.outputFile = outputFile;
-        this.singletonSerializer = new FastSerializer(true, true);
         //this.group_commit_size = Math.max(1, hstore_conf.site.exec_command_logging_group_commit); //Group commit threshold, or 1 if group commit is turned off
         
         // hack, set arbitrarily high to avoid contention for log buffer
@@ -246,104 +833,148 @@ public class CommandLogWriter implements Shutdownable {
         LOG.info("group_commit_size: " + group_commit_size); 
         LOG.info("group_commit_timeout: " + hstore_conf.site.commandlog_timeout); 
         
-        // Configure group commit parameters
-        if(group_commit_size > 0)
-        {
-            
-            this.writingEntry = new Semaphore(group_commit_size, false); 
-            this.bufferExchange = new Exchanger<EntryBuffer[]>();
-            
-            // Make one entry buffer per partition SO THAT SYNCHRONIZATION ON EACH BUFFER IS NOT REQUIRED
-            int num_partitions = hstore_site.getLocalPartitionIds().size();//CatalogUtil.getNumberOfPartitions(hstore_site.getDatabase());
-            this.entries = new EntryBuffer[num_partitions];
-            this.entriesFlushing = new EntryBuffer[num_partitions];
-            for (int partition = 0; partition < num_partitions; partition++) {
-                //if (hstore_site.isLocalPartition(partition)) {
-                this.entries[partition] = new EntryBuffer(group_commit_size, new FastSerializer(hstore_site.getBufferPool()));
-                this.entriesFlushing[partition] = new EntryBuffer(group_commit_size, new FastSerializer(hstore_site.getBufferPool()));
-                //}
-            } // FOR
-            this.flushThread = new WriterThread();
-            this.singletonLogEntry = null;
-        } else {
-            this.writingEntry = null; 
-            this.bufferExchange = null;
-            this.flushThread = null;
-            this.singletonLogEntry = new LogEntry();
-        }
+        // Figure out how many separate streams we are going to write to.
+        // If there is only one stripe and we never roll over, then we'll
+        // write everything out to the given file just like we always did
+        int num_partitions = hstore_site.getLocalPartitionIds().size();
+        int num_stripes = Math.max(1, Math.min(num_partitions, hstore_conf.site.commandlog_stripes));
+        this.segment_size = hstore_conf.site.commandlog_segment_size * 1048576l;
         
-        FileOutputStream f = null;
-        try {
-            this.outputFile.getParentFile().mkdirs();
-            LOG.info("Command Log File: " + this.outputFile.getAbsolutePath());
-            this.outputFile.createNewFile();
-            f = new FileOutputStream(this.outputFile, false);
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
-        }
-        this.fstream = f.getChannel();
+        // Memory-mapped segments are preallocated, so they always roll over
+        // when they fill up. FileChannel.map() can only give us 2GB at a time 
+        this.mmap = (hstore_conf.site.commandlog_mmap && group_commit_size > 0);
+        this.mmap_size = (int)Math.min(Integer.MAX_VALUE, Math.max(1, hstore_conf.site.commandlog_mmap_size) * 1048576l);
+        this.compress = hstore_conf.site.commandlog_compress;
+        this.profiling = hstore_conf.site.commandlog_profiling;
+        this.striped = (num_stripes > 1 || this.segment_size > 0 || this.mmap);
         
-        // Write out a header to the file 
-        this.writeHeader();
+        // Each partition offset is assigned to stripe (offset % num_stripes)
+        // and is stored in that stripe's EntryBuffer at (offset / num_stripes)
+        this.stripes = new LogStripe[num_stripes];
+        for (int i = 0; i < num_stripes; i++) {
+            int stripe_partitions = (num_partitions / num_stripes) + (i < (num_partitions % num_stripes) ? 1 : 0);
+            this.stripes[i] = new LogStripe(i, stripe_partitions);
+        } // FOR
+        if (this.striped) {
+            LOG.info(String.format("Command log striping: stripes=%d, segmentSize=%d, mmap=%s",
+                                   num_stripes, this.segment_size, this.mmap));
+        }
         
         if (group_commit_size > 0) {
-            this.flushThread.start();
+            for (LogStripe stripe : this.stripes) {
+                stripe.flushThread.start();
+            } // FOR
         }
         
         // Writer Profiling
-        if (hstore_conf.site.commandlog_profiling) {
-            this.writingTime = new ProfileMeasurement("WRITING");
+        if (profiling) {
             this.blockedTime = new ProfileMeasurement("BLOCKED");
-            this.networkTime = new ProfileMeasurement("NETWORK");
         } else {
-            this.writingTime = null;
             this.blockedTime = null;
-            this.networkTime = null;
         }
     }
     
+    // ----------------------------------------------------------------------------
+    // LOG FILES
+    // ----------------------------------------------------------------------------
+    
+    /**
+     * Return the file for the given stripe's log segment. If the log is not striped, 
+     * then this will always be the original output file.
+     * @param outputFile
+     * @param stripe
+     * @param segment
+     * @param striped
+     * @return
+     */
+    protected static File getSegmentFile(File outputFile, int stripe, int segment, boolean striped) {
+        if (striped == false) return (outputFile);
+        return (new File(outputFile.getParentFile(),
+                         String.format("%s-%02d-%05d%s", getBaseName(outputFile), stripe, segment, LOG_FILE_EXT)));
+    }
+    
+    private static String getBaseName(File outputFile) {
+        String name = outputFile.getName();
+        if (name.endsWith(LOG_FILE_EXT)) name = name.substring(0, name.length() - LOG_FILE_EXT.length());
+        return (name);
+    }
+    
+    /**
+     * Return all of the log files that a CommandLogWriter for the given output file
+     * could have written out, grouped by their stripe. The segments in each stripe
+     * are sorted in the order that they were written.
+     * @param outputFile
+     * @return
+     */
+    public static List<List<File>> getLogFiles(File outputFile) {
+        return (getLogFiles(outputFile, ""));
+    }
+    
+    /**
+     * Same as getLogFiles(), but only returns the files whose names
+     * have the given suffix appended to them (e.g., REPLAY_FILE_EXT)
+     * @param outputFile
+     * @param suffix
+     * @return
+     */
+    public static List<List<File>> getLogFiles(File outputFile, String suffix) {
+        final String prefix = getBaseName(outputFile) + "-";
+        final String ext = LOG_FILE_EXT + suffix;
+        SortedMap<String, List<File>> stripes = new TreeMap<String, List<File>>();
+        File unstripedFile = new File(outputFile.getPath() + suffix);
+        if (unstripedFile.exists() && unstripedFile.length() > 0) {
+            stripes.put("", new ArrayList<File>());
+            stripes.get("").add(unstripedFile);
+        }
+        File dir = outputFile.getAbsoluteFile().getParentFile();
+        File files[] = (dir != null ? dir.listFiles() : null);
+        if (files != null) {
+            Arrays.sort(files);
+            for (File f : files) {
+                String name = f.getName();
+                if (name.startsWith(prefix) == false || name.endsWith(ext) == false) continue;
+                // <base>-<stripe>-<segment>.log<suffix>
+                String parts[] = name.substring(prefix.length(), name.length() - ext.length()).split("-");
+                if (parts.length != 2) continue;
+                List<File> segments = stripes.get(parts[0]);
+                if (segments == null) {
+                    segments = new ArrayList<File>();
+                    stripes.put(parts[0], segments);
+                }
+                segments.add(f);
+            } // FOR
+        }
+        return (new ArrayList<List<File>>(stripes.values()));
+    }
+    
+    // ----------------------------------------------------------------------------
+    // SHUTDOWN METHODS
+    // ----------------------------------------------------------------------------
     
     @Override
     public void prepareShutdown(boolean error) {
         this.stop = true;
+        for (LogStripe stripe : this.stripes) {
+            if (stripe.flushThread != null) LockSupport.unpark(stripe.flushThread);
+        } // FOR
     }
     
     /**
-     * Force the writer thread to flush all entries out
+     * Force the writer threads to flush all entries out
      * to disk right now. Multiple invocations of this will not be queued 
      */
     protected void flush() throws InterruptedException {
-//        // Wait until it starts running
-//        while (this.flushInProgress.get() == false) {
-//            this.flushThread.interrupt();
-//            Thread.yield();
-//        } // WHILE
-        
-        this.entries = this.bufferExchange.exchange(entries);
-        
-        // Then wait until it's done running
-        while (this.flushInProgress.get()) {
-            Thread.yield();
-        }  // WHILE
+        for (LogStripe stripe : this.stripes) {
+            stripe.flush();
+        } // FOR
     }
     
     @Override
     public void shutdown() {
-        while (this.flushInProgress.get() == false) {
-//            this.flushThread.interrupt();
-            Thread.yield();
-        } // WHILE
-        
-        if (debug.get()) 
-            LOG.debug("Closing WAL file");
-        try {
-//            this.flushThread.interrupt();
-            this.fstream.close();
-        } catch (IOException ex) {
-            String message = "Failed to close WAL file";
-            throw new ServerFaultException(message, ex);
-        }
-        
+        if (this.stop == false) this.prepareShutdown(false);
+        for (LogStripe stripe : this.stripes) {
+            stripe.close();
+        } // FOR
     }
     
     @Override
@@ -351,115 +982,120 @@ public class CommandLogWriter implements Shutdownable {
         return (this.stop);
     }
     
+    // ----------------------------------------------------------------------------
+    // PROFILING
+    // ----------------------------------------------------------------------------
+    
+    /**
+     * Returns the combined writing time for all of the stripes
+     */
     public ProfileMeasurement getLoggerWritingTime() {
-        return this.writingTime;
+        if (profiling == false) return (null);
+        ProfileMeasurement pm = new ProfileMeasurement("WRITING");
+        for (LogStripe stripe : this.stripes) {
+            pm.appendTime(stripe.writingTime);
+        } // FOR
+        return (pm);
     }
     
     public ProfileMeasurement getLoggerBlockedTime() {
         return this.blockedTime;
     }
     
+    /**
+     * Returns the combined network time for all of the stripes
+     */
     public ProfileMeasurement getLoggerNetworkTime() {
-        return this.networkTime;
+        if (profiling == false) return (null);
+        ProfileMeasurement pm = new ProfileMeasurement("NETWORK");
+        for (LogStripe stripe : this.stripes) {
+            pm.appendTime(stripe.networkTime);
+        } // FOR
+        return (pm);
+    }
+    
+    /**
+     * Returns the combined time spent in fsync for all of the stripes.
+     * This is only recorded when the adaptive group commit policy is enabled.
+     */
+    public ProfileMeasurement getLoggerFsyncTime() {
+        if (profiling == false) return (null);
+        ProfileMeasurement pm = new ProfileMeasurement("FSYNC");
+        for (LogStripe stripe : this.stripes) {
+            pm.appendTime(stripe.fsyncTime);
+        } // FOR
+        return (pm);
+    }
+    
+    /**
+     * Returns the number of times that the adaptive group commit policy flushed
+     * the log for the given reason, along with how long it waited before doing so
+     * @param reason
+     */
+    public ProfileMeasurement getLoggerFlushDecisions(FlushReason reason) {
+        if (profiling == false) return (null);
+        ProfileMeasurement pm = new ProfileMeasurement("FLUSH_" + reason.name());
+        for (LogStripe stripe : this.stripes) {
+            pm.appendTime(stripe.flushReasons[reason.ordinal()]);
+        } // FOR
+        return (pm);
+    }
+    
+    public void resetProfiling() {
+        synchronized (this.blockedTime) {
+            this.blockedTime.reset();
+        } // SYNCH
+        for (LogStripe stripe : this.stripes) {
+            stripe.writingTime.reset();
+            stripe.networkTime.reset();
+            stripe.fsyncTime.reset();
+            for (ProfileMeasurement pm : stripe.flushReasons) {
+                pm.reset();
+            } // FOR
+        } // FOR
     }
     
-    public boolean writeHeader() {
+    // ----------------------------------------------------------------------------
+    // LOGGING METHODS
+    // ----------------------------------------------------------------------------
+    
+    /**
+     * Serialize the WAL header into the given FastSerializer and return its buffer
+     */
+    private ByteBuffer serializeHeader(FastSerializer fs) {
         if (debug.get()) LOG.debug("Writing out WAL header");
-        assert(this.singletonSerializer != null);
+        assert(fs != null);
         try {
-            this.singletonSerializer.clear();
-            this.singletonSerializer.writeBoolean(group_commit_size > 0);//Using group commit
-            this.singletonSerializer.writeInt(hstore_site.getDatabase().getProcedures().size());
+            fs.clear();
+            fs.writeBoolean(group_commit_size > 0);//Using group commit
+            fs.writeInt(hstore_site.getDatabase().getProcedures().size());
             
             for (Procedure catalog_proc : hstore_site.getDatabase().getProcedures()) {
                 int procId = catalog_proc.getId();
-                this.singletonSerializer.writeInt(procId);
-                this.singletonSerializer.writeString(catalog_proc.getName());
+                fs.writeInt(procId);
+                fs.writeString(catalog_proc.getName());
             } // FOR
             
-            BBContainer b = this.singletonSerializer.getBBContainer();
-            this.fstream.write(b.b.asReadOnlyBuffer());
-            this.fstream.force(true);
         } catch (Exception e) {
             String message = "Failed to write log headers";
             throw new ServerFaultException(message, e);
         }
-        
-        return (true);
+        return (fs.getBBContainer().b.asReadOnlyBuffer());
     }
     
     /**
-     * GroupCommits the given buffer set all at once
-     * @param eb
+     * Delete all of the rolled over log segments that only contain txns that came
+     * before the given snapshot txn. The segments that are still being written to are never
+     * removed, so this is only useful when the log has a segment size. 
+     * @param snapshotTxnId
      */
-    public void groupCommit(EntryBuffer[] eb) {
-        if (hstore_conf.site.commandlog_profiling) this.writingTime.start();
-        this.commitBatchCounter++;
-        
-        // Write all to a single FastSerializer buffer
-        this.singletonSerializer.clear();
-        int txnCounter = 0;
-        for (int i = 0; i < eb.length; i++) {
-            EntryBuffer buffer = eb[i];
-            try {
-                assert(this.singletonSerializer != null);
-                int start = buffer.getStart();
-                for (int j = 0, size = buffer.getSize(); j < size; j++) {
-                    WriterLogEntry entry = buffer.buffer[(start + j) % buffer.buffer.length];
-                    this.singletonSerializer.writeObject(entry);
-                    txnCounter++;
-                    
-                    if (debug.get())
-                        LOG.debug(String.format("Prepared txn #%d for group commit batch #%d",
-                                                entry.txnId, this.commitBatchCounter));
-                } // FOR
-                
-            } catch (Exception e) {
-                String message = "Failed to serialize buffer during group commit";
-                throw new ServerFaultException(message, e);
-            }
+    public void truncate(Long snapshotTxnId) {
+        int deleted = 0;
+        for (LogStripe stripe : this.stripes) {
+            deleted += stripe.truncate(snapshotTxnId.longValue());
         } // FOR
-        
-        // Compress and force out to disk
-        ByteBuffer compressed;
-        try {
-            compressed = CompressionService.compressBufferForMessaging(this.singletonSerializer.getBBContainer().b);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to compress WAL buffer");
-        }
-        
-        LOG.info(String.format("Writing out %d bytes for %d txns [batchCtr=%d]",
-                               compressed.limit(), txnCounter, this.commitBatchCounter)); 
-        try {
-            this.fstream.write(compressed);
-            this.fstream.force(true);
-        } catch (IOException ex) {
-            String message = "Failed to group commit for buffer";
-            throw new ServerFaultException(message, ex);
-        } finally {
-            if (hstore_conf.site.commandlog_profiling) this.writingTime.stop();
-        }
-        
-        if (hstore_conf.site.commandlog_profiling) 
-            this.networkTime.start();
-        
-        // Send responses
-        for (int i = 0; i < eb.length; i++) {
-            EntryBuffer buffer = eb[i];
-            int start = buffer.getStart();
-            for (int j = 0, size = buffer.getSize(); j < size; j++) {
-                WriterLogEntry entry = buffer.buffer[(start + j) % buffer.buffer.length];
-                hstore_site.sendClientResponse(entry.cresponse,
-                                               entry.clientCallback,
-                                               entry.initiateTime,
-                                               entry.restartCounter);
-                                
-            }
-            buffer.flushCleanup();
-        } // FOR
-        
-        if (hstore_conf.site.commandlog_profiling) 
-            this.networkTime.stop();
+        if (debug.get() && deleted > 0)
+            LOG.debug(String.format("Deleted %d command log segments after snapshot txn #%d", deleted, snapshotTxnId));
     }
     
     /**
@@ -472,34 +1108,51 @@ public class CommandLogWriter implements Shutdownable {
     public boolean appendToLog(final LocalTransaction ts, final ClientResponseImpl cresponse) {
 
         boolean sendResponse = true;
+        
+        int basePartition = ts.getBasePartition();
+        assert (hstore_site.isLocalPartition(basePartition));
+        int offset = hstore_site.getLocalPartitionOffset(basePartition);
+        LogStripe stripe = this.stripes[offset % this.stripes.length];
 
         if (group_commit_size > 0) {
             if (debug.get())
                 LOG.debug(ts + " - Queuing up txn to write out to command log");
             
-            int basePartition = ts.getBasePartition();
-            assert (hstore_site.isLocalPartition(basePartition));
-            basePartition = hstore_site.getLocalPartitionOffset(basePartition);
-
-            // get the buffer for the partition of the current transaction
-            EntryBuffer buffer = this.entries[basePartition];
-            assert (buffer != null) : "Unexpected log entry buffer for partition " + basePartition;
-
+            // Every partition's thread comes through here, so we can't use the
+            // shared ProfileMeasurement's start/stop markers
+            final long blockedStart = (profiling ? ProfileMeasurement.getTime() : -1);
             try {
                 // if a swap is not yet in progress, initiate a swap with the write thread
                 // this ensures exactly one thread initiates the swap with the writer thread
-                if (swapBuffers.compareAndSet(true, false)) {
-                    swapInProgress.set(true);
+                if (stripe.swapBuffers.compareAndSet(true, false)) {
+                    stripe.swapInProgress.set(true);
 
                     // SYNC POINT: Will synchronize with writing thread
-                    this.entries = this.bufferExchange.exchange(entries);
+                    stripe.entries = stripe.bufferExchange.exchange(stripe.entries);
 
-                    swapInProgress.set(false);
+                    stripe.swapInProgress.set(false);
                 }
 
                 // acquire semaphore permit to write a transaction to the log
                 // buffer will wait if buffer is currently being swapped
-                writingEntry.acquire();
+                stripe.writingEntry.acquire();
+                
+                // The WriterThread has already done its final group commit,
+                // so we have to write this entry out ourselves
+                if (stripe.finished) {
+                    stripe.writingEntry.release();
+                    try {
+                        stripe.writeSingleEntry(ts);
+                    } catch (IOException ex) {
+                        String message = "Failed to write single log entry for " + ts.toString();
+                        throw new ServerFaultException(message, ex, ts.getTransactionId());
+                    }
+                    return (true);
+                }
+                
+                // get the buffer for the partition of the current transaction
+                EntryBuffer buffer = stripe.entries[offset / this.stripes.length];
+                assert (buffer != null) : "Unexpected log entry buffer for partition " + basePartition;
 
                 // create an entry for this transaction in the buffer for this
                 // partition
@@ -507,13 +1160,18 @@ public class CommandLogWriter implements Shutdownable {
                 // only one thread per partition
                 LogEntry entry = buffer.next(ts, cresponse);
                 assert (entry != null);
+                if (hstore_conf.site.commandlog_adaptive) stripe.entryAdded();
 
-                writingEntry.release();
+                stripe.writingEntry.release();
             } catch (InterruptedException e) {
                 throw new RuntimeException("[WAL] Thread interrupted while waiting for WriterThread to finish writing");
             } finally {
-                if (hstore_conf.site.commandlog_profiling)
-                    this.blockedTime.stop();
+                if (profiling) {
+                    long blockedStop = ProfileMeasurement.getTime();
+                    synchronized (this.blockedTime) {
+                        this.blockedTime.addThinkTime(blockedStart, blockedStop, 1);
+                    } // SYNCH
+                }
             }
 
             // We always want to set this to false because our flush thread will
@@ -523,24 +1181,24 @@ public class CommandLogWriter implements Shutdownable {
         }
         // NO GROUP COMMIT -- FINISH AND RETURN TRUE
         else { 
-            try {
-                FastSerializer fs = this.singletonSerializer;
-                assert (fs != null);
-                fs.clear();
-                this.singletonLogEntry.init(ts);
-                fs.writeObject(this.singletonLogEntry);
-                BBContainer b = fs.getBBContainer();
-                this.fstream.write(b.b.asReadOnlyBuffer());
-                this.fstream.force(true);
-                this.singletonLogEntry.finish();
-            } catch (Exception e) {
-                String message = "Failed to write single log entry for " + ts.toString();
-                throw new ServerFaultException(message, e, ts.getTransactionId());
-            }
+            synchronized (stripe) {
+                try {
+                    FastSerializer fs = stripe.serializer;
+                    assert (fs != null);
+                    fs.clear();
+                    stripe.singletonLogEntry.init(ts);
+                    fs.writeObject(stripe.singletonLogEntry);
+                    BBContainer b = fs.getBBContainer();
+                    stripe.fstream.write(b.b.asReadOnlyBuffer());
+                    stripe.fstream.force(true);
+                    stripe.singletonLogEntry.finish();
+                } catch (Exception e) {
+                    String message = "Failed to write single log entry for " + ts.toString();
+                    throw new ServerFaultException(message, e, ts.getTransactionId());
+                }
+            } // SYNCH
         }
         
         return (sendResponse);
     }
-}  
-
-
+}
@@ -27,6 +27,9 @@
 package edu.brown.hstore.wal;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.voltdb.ParameterSet;
 import org.voltdb.messaging.FastDeserializer;
@@ -48,15 +51,54 @@ public class LogEntry implements FastSerializable, Poolable {
     protected long timestamp;
     protected int procId;
     protected ParameterSet procParams;
+    protected int basePartition;
+    protected final Set<Integer> partitions = new HashSet<Integer>();
     
     public LogEntry init(LocalTransaction ts) {
         this.txnId = ts.getTransactionId();
         assert(this.txnId != null);
         this.procId = ts.getProcedure().getId();
         this.procParams = ts.getProcedureParameters();
+        this.basePartition = ts.getBasePartition();
+        this.partitions.clear();
+        this.partitions.addAll(ts.getPredictTouchedPartitions());
         return (this);
     }
     
+    public Long getTransactionId() {
+        return (this.txnId);
+    }
+    
+    public long getTimestamp() {
+        return (this.timestamp);
+    }
+    
+    public int getProcedureId() {
+        return (this.procId);
+    }
+    
+    public ParameterSet getProcedureParams() {
+        return (this.procParams);
+    }
+    
+    /**
+     * Returns the partition that this txn originally executed at
+     */
+    public int getBasePartition() {
+        return (this.basePartition);
+    }
+    
+    /**
+     * Returns the partitions that this txn was predicted to touch when it was executed
+     */
+    public Collection<Integer> getPredictTouchedPartitions() {
+        return (this.partitions);
+    }
+    
+    public boolean isPredictSinglePartition() {
+        return (this.partitions.size() == 1);
+    }
+    
     @Override
     public boolean isInitialized() {
         return (this.txnId != null);
@@ -68,6 +110,8 @@ public class LogEntry implements FastSerializable, Poolable {
         this.timestamp = -1;
         this.procId = -1;
         this.procParams = null;
+        this.basePartition = -1;
+        this.partitions.clear();
     }
 
     @Override
@@ -76,6 +120,12 @@ public class LogEntry implements FastSerializable, Poolable {
         this.timestamp = in.readLong();
         this.procId = in.readInt();
         this.procParams = in.readObject(ParameterSet.class);
+        this.basePartition = in.readInt();
+        this.partitions.clear();
+        int num_partitions = in.readShort();
+        for (int i = 0; i < num_partitions; i++) {
+            this.partitions.add(Integer.valueOf(in.readInt()));
+        } // FOR
     }
 
     @Override
@@ -84,9 +134,15 @@ public class LogEntry implements FastSerializable, Poolable {
         out.writeLong(EstTime.currentTimeMillis());
         out.writeInt(this.procId);
         out.writeObject(this.procParams);
+        out.writeInt(this.basePartition);
+        out.writeShort(this.partitions.size());
+        for (Integer p : this.partitions) {
+            out.writeInt(p.intValue());
+        } // FOR
     }
     
     public String toString() {
-        return ("Txn #" + this.txnId + " / Proc #" + this.procId);
+        return ("Txn #" + this.txnId + " / Proc #" + this.procId +
+                " / Partitions " + this.partitions);
     }
 } // CLASS
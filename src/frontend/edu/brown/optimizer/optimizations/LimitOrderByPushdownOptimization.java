@@ -18,7 +18,9 @@ import edu.brown.plannodes.PlanNodeUtil;
 import edu.brown.utils.CollectionUtil;
 
 /**
- * Pushdown a LIMIT and ORDER BY to be before we send data over the network
+ * Pushdown a LIMIT and ORDER BY to be before we send data over the network.
+ * The LIMIT is inlined into the ORDER BY so that each partition only keeps
+ * the top N tuples in a bounded heap instead of sorting its entire input.
  * 
  * @author pavlo
  */
@@ -69,6 +71,23 @@ public class LimitOrderByPushdownOptimization extends AbstractOptimization {
         assert (orderby_node != null);
         assert (limit_node != null);
 
+        // Each partition has to send back enough tuples for the coordinator
+        // to skip the OFFSET, so we fold it into the pushed-down LIMIT.
+        // We can't do that if one of them is a parameter.
+        if (limit_node.getOffsetParameterIndex() != -1) {
+            if (debug.get())
+                LOG.debug("SKIP - OFFSET is a parameter");
+            return (Pair.of(false, root));
+        } else if (limit_node.getOffset() > 0) {
+            if (limit_node.getLimitParameterIndex() != -1) {
+                if (debug.get())
+                    LOG.debug("SKIP - LIMIT is a parameter and there is an OFFSET");
+                return (Pair.of(false, root));
+            }
+            limit_node.setLimit(limit_node.getLimit() + limit_node.getOffset());
+            limit_node.setOffset(0);
+        }
+
         if (debug.get()) {
             LOG.debug("ORDER BY: " + PlanNodeUtil.debug(orderby_node));
             LOG.debug("LIMIT:    " + PlanNodeUtil.debug(limit_node));
@@ -79,19 +98,20 @@ public class LimitOrderByPushdownOptimization extends AbstractOptimization {
         SendPlanNode send_node = (SendPlanNode) scan_node.getParent(0);
         assert (send_node != null);
 
-        send_node.addIntermediary(limit_node);
-        limit_node.addIntermediary(orderby_node);
+        send_node.addIntermediary(orderby_node);
         orderby_node.clearChildren();
         scan_node.clearParents();
         orderby_node.addAndLinkChild(scan_node);
 
+        // Inline the LIMIT so that the ORDER BY only keeps the top N tuples
         // Need to make sure that the LIMIT has the proper output columns
         limit_node.setOutputColumns(orderby_node.getOutputColumnGUIDs());
+        orderby_node.addInlinePlanNode(limit_node);
         state.markDirty(orderby_node);
         state.markDirty(limit_node);
 
         if (debug.get())
-            LOG.debug("PLANOPT - Added " + limit_node + "+" + orderby_node + " after " + scan_node);
+            LOG.debug("PLANOPT - Added " + orderby_node + " with inline " + limit_node + " after " + scan_node);
 
         return (Pair.of(true, root));
     }
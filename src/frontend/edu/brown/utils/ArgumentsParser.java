@@ -92,6 +92,7 @@ public class ArgumentsParser {
     public static final String PARAM_CATALOG_PARTITION = PARAM_CATALOG + ".partition";
     public static final String PARAM_CATALOG_SITES_PER_HOST = PARAM_CATALOG + ".hosts.numsites";
     public static final String PARAM_CATALOG_PARTITIONS_PER_SITE = PARAM_CATALOG + ".site.numpartitions";
+    public static final String PARAM_CATALOG_NUM_BUCKETS = PARAM_CATALOG + ".buckets";
 
     public static final String PARAM_CONF = "conf";
     public static final String PARAM_CONF_OUTPUT = PARAM_CONF + ".output";
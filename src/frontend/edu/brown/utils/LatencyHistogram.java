@@ -0,0 +1,265 @@
+package edu.brown.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with logarithmic buckets.
+ * Each power-of-two range of values is split into a fixed number of linear
+ * sub-buckets, so the reported percentiles are always within ~3% of the real
+ * values no matter how small or large they are. Recording a value is just
+ * a couple of atomic increments, which means that it can be done from the
+ * PartitionExecutor thread (or any other thread) without grabbing a monitor.
+ * Histograms with the same layout can be merged together so that we can
+ * combine the measurements from multiple partitions.
+ * <p>
+ * All values are in nanoseconds to match ProfileMeasurement.
+ * @author pavlo
+ */
+public class LatencyHistogram {
+
+    /**
+     * The number of bits of precision that we keep for each value
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Anything larger than this will get recorded in the last bucket (~4.9 hours)
+     */
+    private static final int MAX_VALUE_BITS = 44;
+    public static final long MAX_VALUE = (1l << MAX_VALUE_BITS) - 1;
+
+    private static final int NUM_BUCKETS = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    /**
+     * The standard percentiles that we will report
+     */
+    public static final double PERCENTILES[] = { 50d, 95d, 99d, 99.9d };
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong total = new AtomicLong(0);
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(0);
+
+    // ----------------------------------------------------------------------------
+    // CONSTRUCTORS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Constructor
+     * @param name
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Copy constructor
+     * @param orig
+     */
+    public LatencyHistogram(LatencyHistogram orig) {
+        this(orig.name);
+        this.merge(orig);
+    }
+
+    // ----------------------------------------------------------------------------
+    // BUCKET METHODS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Return the bucket offset for the given value
+     * The first 2*SUB_BUCKET_COUNT values each get their own bucket. After that
+     * every power-of-two range is split into SUB_BUCKET_COUNT buckets.
+     * @param value
+     * @return
+     */
+    protected static int getBucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) return ((int)value);
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int group = msb - SUB_BUCKET_BITS + 1;
+        int sub = (int)(value >>> (group - 1)) - SUB_BUCKET_COUNT;
+        return ((group * SUB_BUCKET_COUNT) + sub);
+    }
+
+    /**
+     * Return the smallest value that will be recorded in the given bucket
+     * @param idx
+     * @return
+     */
+    protected static long getBucketLowValue(int idx) {
+        if (idx < SUB_BUCKET_COUNT) return (idx);
+        int group = idx / SUB_BUCKET_COUNT;
+        long sub = (idx % SUB_BUCKET_COUNT) + SUB_BUCKET_COUNT;
+        return (sub << (group - 1));
+    }
+
+    /**
+     * Return the largest value that will be recorded in the given bucket
+     * @param idx
+     * @return
+     */
+    protected static long getBucketHighValue(int idx) {
+        if (idx + 1 >= NUM_BUCKETS) return (MAX_VALUE);
+        return (getBucketLowValue(idx + 1) - 1);
+    }
+
+    // ----------------------------------------------------------------------------
+    // RECORDING METHODS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Record a new measurement (in nanoseconds)
+     * Negative values are ignored.
+     * @param value
+     */
+    public void record(long value) {
+        if (value < 0) return;
+        if (value > MAX_VALUE) value = MAX_VALUE;
+        this.counts.incrementAndGet(getBucketIndex(value));
+        this.total.addAndGet(value);
+
+        long cur;
+        while (value < (cur = this.min.get())) {
+            if (this.min.compareAndSet(cur, value)) break;
+        } // WHILE
+        while (value > (cur = this.max.get())) {
+            if (this.max.compareAndSet(cur, value)) break;
+        } // WHILE
+    }
+
+    /**
+     * Add all of the measurements from the other histogram into this one
+     * @param other
+     * @return this
+     */
+    public LatencyHistogram merge(LatencyHistogram other) {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            long cnt = other.counts.get(i);
+            if (cnt != 0) this.counts.addAndGet(i, cnt);
+        } // FOR
+        this.total.addAndGet(other.total.get());
+
+        long val = other.min.get();
+        long cur;
+        while (val < (cur = this.min.get())) {
+            if (this.min.compareAndSet(cur, val)) break;
+        } // WHILE
+        val = other.max.get();
+        while (val > (cur = this.max.get())) {
+            if (this.max.compareAndSet(cur, val)) break;
+        } // WHILE
+        return (this);
+    }
+
+    /**
+     * Clear out all of the measurements
+     * Any values that are recorded while this is running may or may not be kept.
+     */
+    public void reset() {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            this.counts.set(i, 0);
+        } // FOR
+        this.total.set(0);
+        this.min.set(Long.MAX_VALUE);
+        this.max.set(0);
+    }
+
+    // ----------------------------------------------------------------------------
+    // ACCESS METHODS
+    // ----------------------------------------------------------------------------
+
+    public String getName() {
+        return (this.name);
+    }
+
+    /**
+     * Return the total number of measurements in this histogram
+     * @return
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            count += this.counts.get(i);
+        } // FOR
+        return (count);
+    }
+
+    public boolean isEmpty() {
+        return (this.getCount() == 0);
+    }
+
+    public long getMinValue() {
+        long val = this.min.get();
+        return (val == Long.MAX_VALUE ? 0 : val);
+    }
+
+    public long getMaxValue() {
+        return (this.max.get());
+    }
+
+    /**
+     * Return the average of all of the measurements (in nanoseconds)
+     * @return
+     */
+    public double getMeanValue() {
+        long count = this.getCount();
+        return (count > 0 ? this.total.get() / (double)count : 0d);
+    }
+
+    /**
+     * Return the value (in nanoseconds) that the given percentage of the
+     * measurements are less than or equal to. The result will be the largest
+     * value that could have been recorded in the matching bucket.
+     * @param percentile A number between 0 and 100
+     * @return
+     */
+    public long getValueAtPercentile(double percentile) {
+        assert(percentile >= 0 && percentile <= 100) : "Invalid percentile " + percentile;
+        long snapshot[] = new long[NUM_BUCKETS];
+        long count = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            snapshot[i] = this.counts.get(i);
+            count += snapshot[i];
+        } // FOR
+        if (count == 0) return (0);
+
+        long target = Math.max(1, (long)Math.ceil((percentile / 100d) * count));
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return (Math.min(getBucketHighValue(i), this.getMaxValue()));
+            }
+        } // FOR
+        return (this.getMaxValue());
+    }
+
+    // ----------------------------------------------------------------------------
+    // DEBUG METHODS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Return a short summary of the percentiles in this histogram
+     * @return
+     */
+    public String debug() {
+        if (this.isEmpty()) return ("<EMPTY>");
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d txns / %s avg",
+                                this.getCount(), StringUtil.formatTime("%.2f", this.getMeanValue())));
+        for (double p : PERCENTILES) {
+            sb.append(String.format(" / p%s %s",
+                                    (p == Math.floor(p) ? Integer.toString((int)p) : Double.toString(p)).replace(".", ""),
+                                    StringUtil.formatTime("%.2f", this.getValueAtPercentile(p))));
+        } // FOR
+        sb.append(String.format(" / max %s", StringUtil.formatTime("%.2f", this.getMaxValue())));
+        return (sb.toString());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s]", this.name, this.debug());
+    }
+}
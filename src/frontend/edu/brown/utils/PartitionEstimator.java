@@ -100,6 +100,7 @@ public class PartitionEstimator {
     private int num_partitions;
 
     private final HashMap<Procedure, ProcParameter> cache_procPartitionParameters = new HashMap<Procedure, ProcParameter>();
+    private final HashMap<Procedure, int[]> cache_procPartitionParameterOffsets = new HashMap<Procedure, int[]>();
     private final Map<Table, Column> cache_tablePartitionColumns = new HashMap<Table, Column>();
     private final Map<Statement, Collection<Integer>> cache_stmtPartitionParameters = new HashMap<Statement, Collection<Integer>>();
 
@@ -383,6 +384,7 @@ public class PartitionEstimator {
                     catalog_param = catalog_proc.getParameters().get(param_idx);
                 }
                 this.cache_procPartitionParameters.put(catalog_proc, catalog_param);
+                this.cache_procPartitionParameterOffsets.put(catalog_proc, this.computeBasePartitionParameterOffsets(catalog_proc));
                 if (debug.get())
                     LOG.debug(catalog_proc + " ProcParameter Cache: " + (catalog_param != null ? catalog_param.fullName() : catalog_param));
             }
@@ -431,6 +433,7 @@ public class PartitionEstimator {
      */
     public void clear() {
         this.cache_procPartitionParameters.clear();
+        this.cache_procPartitionParameterOffsets.clear();
         this.cache_tablePartitionColumns.clear();
         this.cache_fragmentEntries.clear();
         this.cache_statementEntries.clear();
@@ -855,6 +858,42 @@ public class PartitionEstimator {
         return (this.getBasePartition(txn_trace.getCatalogItem(this.catalog_db), txn_trace.getParams(), true));
     }
 
+    /**
+     * Return the sorted offsets of the procedure parameters that
+     * getBasePartition() will need to look at when force is false.
+     * This allows the caller to only deserialize those parameters.
+     * 
+     * @param catalog_proc
+     * @return
+     */
+    public int[] getBasePartitionParameterOffsets(final Procedure catalog_proc) {
+        assert (catalog_proc != null);
+        int offsets[] = this.cache_procPartitionParameterOffsets.get(catalog_proc);
+        if (offsets == null) offsets = this.computeBasePartitionParameterOffsets(catalog_proc);
+        return (offsets);
+    }
+
+    private int[] computeBasePartitionParameterOffsets(final Procedure catalog_proc) {
+        ProcParameter catalog_param = this.cache_procPartitionParameters.get(catalog_proc);
+        if (catalog_param == null ||
+            catalog_param instanceof NullProcParameter ||
+            catalog_param instanceof RandomProcParameter) {
+            return (new int[0]);
+        }
+        int offsets[] = null;
+        if (catalog_param instanceof MultiProcParameter) {
+            MultiProcParameter mpp = (MultiProcParameter) catalog_param;
+            offsets = new int[mpp.size()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = mpp.get(i).getIndex();
+            } // FOR
+            Arrays.sort(offsets);
+        } else {
+            offsets = new int[]{ catalog_param.getIndex() };
+        }
+        return (offsets);
+    }
+
     /**
      * Main method for calculating the base partition for a stored procedure
      * 
@@ -65,6 +65,12 @@ public class ProfileMeasurement implements JSONSerializable {
 
     private transient boolean reset = false;
 
+    /**
+     * Optional histogram of the individual intervals between start() and stop()
+     * This is null unless enableHistogram() is called
+     */
+    private transient LatencyHistogram histogram;
+
     private transient EventObservable<ProfileMeasurement> start_observable;
     private transient EventObservable<ProfileMeasurement> stop_observable;
 
@@ -106,6 +112,7 @@ public class ProfileMeasurement implements JSONSerializable {
         }
         this.total_time = 0;
         this.invocations = 0;
+        if (this.histogram != null) this.histogram.reset();
     }
 
     public void clear() {
@@ -128,6 +135,27 @@ public class ProfileMeasurement implements JSONSerializable {
         });
     }
 
+    /**
+     * Keep a LatencyHistogram of each interval that this ProfileMeasurement records
+     * so that we can get percentiles and not just the average.
+     * @return this
+     */
+    public synchronized ProfileMeasurement enableHistogram() {
+        if (this.histogram == null) {
+            this.histogram = new LatencyHistogram(this.type);
+        }
+        return (this);
+    }
+
+    /**
+     * Return the LatencyHistogram for this ProfileMeasurement.
+     * Will be null if enableHistogram() was never called
+     * @return
+     */
+    public LatencyHistogram getHistogram() {
+        return (this.histogram);
+    }
+
     /**
      * Get the profile type
      * 
@@ -251,6 +279,7 @@ public class ProfileMeasurement implements JSONSerializable {
             LOG.warn(String.format("Invalid stop timestamp for %s [timestamp=%d, marker=%d, added=%d]", this.type, timestamp, this.think_marker, added));
         } else {
             this.total_time += added;
+            if (this.histogram != null) this.histogram.record(added);
         }
         this.think_marker = null;
         if (this.stop_observable != null)
@@ -298,6 +327,7 @@ public class ProfileMeasurement implements JSONSerializable {
         assert (this.think_marker == null) : this.type;
         this.total_time += (stop - start);
         this.invocations += invocations;
+        if (this.histogram != null) this.histogram.record(stop - start);
     }
 
     public void addThinkTime(long start, long stop) {
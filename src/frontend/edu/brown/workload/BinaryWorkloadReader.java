@@ -0,0 +1,450 @@
+package edu.brown.workload;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.voltdb.VoltType;
+import org.voltdb.types.TimestampType;
+
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+
+/**
+ * Memory-mapped reader for workload traces written by BinaryWorkloadWriter.
+ * Nothing is deserialized until it is asked for: the iterators decode each
+ * TransactionTrace from the mapped file on demand, so callers can stream through
+ * a trace that is much larger than the heap. The procedure and start time of each
+ * txn comes from the index at the end of the file, which means that we can skip over
+ * the txns that we don't care about without decoding them.
+ * <p>
+ * This class is thread-safe. Multiple threads can decode records at the same time.
+ * @author pavlo
+ */
+public class BinaryWorkloadReader implements Iterable<TransactionTrace>, Closeable {
+    private static final Logger LOG = Logger.getLogger(BinaryWorkloadReader.class);
+    private static final LoggerBoolean debug = new LoggerBoolean(LOG.isDebugEnabled());
+    private static final LoggerBoolean trace = new LoggerBoolean(LOG.isTraceEnabled());
+    static {
+        LoggerUtil.attachObserver(LOG, debug, trace);
+    }
+
+    /**
+     * The largest region of the file that we will map into a single buffer
+     */
+    private static final long MAX_SEGMENT_SIZE = 1l << 30; // 1GB
+
+    private final File path;
+    private final RandomAccessFile file;
+    private final String names[];
+    private final int num_txns;
+
+    /** The mapped index at the end of the file */
+    private final ByteBuffer index;
+
+    /**
+     * The records are split up into segments that each fit into a single MappedByteBuffer.
+     * A record never straddles two segments.
+     */
+    private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+    private final List<Integer> segment_first_txn = new ArrayList<Integer>();
+    private final List<Long> segment_offsets = new ArrayList<Long>();
+
+    // ----------------------------------------------------------------------------
+    // CONSTRUCTOR
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Constructor
+     * @param path
+     * @throws IOException
+     */
+    public BinaryWorkloadReader(File path) throws IOException {
+        this.path = path;
+        this.file = new RandomAccessFile(path, "r");
+        FileChannel channel = this.file.getChannel();
+        long size = channel.size();
+        if (size < BinaryWorkloadWriter.HEADER_SIZE + BinaryWorkloadWriter.FOOTER_SIZE) {
+            throw new IOException("Invalid binary workload file '" + path + "'");
+        }
+
+        // HEADER
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, BinaryWorkloadWriter.HEADER_SIZE);
+        if (header.getLong() != BinaryWorkloadWriter.MAGIC) {
+            throw new IOException("Invalid binary workload file '" + path + "'");
+        }
+        int version = header.getInt();
+        if (version != BinaryWorkloadWriter.VERSION) {
+            throw new IOException(String.format("Unsupported binary workload version %d in '%s'", version, path));
+        }
+
+        // FOOTER
+        ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, size - BinaryWorkloadWriter.FOOTER_SIZE,
+                                        BinaryWorkloadWriter.FOOTER_SIZE);
+        long names_offset = footer.getLong();
+        if (footer.getLong() != BinaryWorkloadWriter.MAGIC) {
+            throw new IOException("Binary workload file '" + path + "' is missing its index. Was it closed properly?");
+        }
+
+        // NAMES + INDEX
+        ByteBuffer meta = channel.map(FileChannel.MapMode.READ_ONLY, names_offset,
+                                      size - BinaryWorkloadWriter.FOOTER_SIZE - names_offset);
+        this.names = new String[meta.getInt()];
+        for (int i = 0; i < this.names.length; i++) {
+            this.names[i] = readString(meta);
+        } // FOR
+        this.num_txns = meta.getInt();
+        this.index = meta.slice();
+        assert(this.index.remaining() == this.num_txns * BinaryWorkloadWriter.INDEX_ENTRY_SIZE);
+
+        // RECORD SEGMENTS
+        int first_txn = 0;
+        while (first_txn < this.num_txns) {
+            long start = this.getOffset(first_txn);
+            int next_txn = first_txn + 1;
+            while (next_txn < this.num_txns && this.getOffset(next_txn) - start < MAX_SEGMENT_SIZE) {
+                next_txn++;
+            } // WHILE
+            long stop = (next_txn < this.num_txns ? this.getOffset(next_txn) : names_offset);
+            this.segments.add(channel.map(FileChannel.MapMode.READ_ONLY, start, stop - start));
+            this.segment_first_txn.add(first_txn);
+            this.segment_offsets.add(start);
+            first_txn = next_txn;
+        } // WHILE
+        if (debug.get()) LOG.debug(String.format("Opened binary workload '%s' [txns=%d, names=%d, segments=%d]",
+                                                 path, this.num_txns, this.names.length, this.segments.size()));
+    }
+
+    /**
+     * Returns true if the given file was written by BinaryWorkloadWriter
+     * @param path
+     * @return
+     */
+    public static boolean isBinaryWorkload(File path) {
+        if (path.isFile() == false || path.length() < BinaryWorkloadWriter.HEADER_SIZE) return (false);
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new FileInputStream(path));
+            return (in.readLong() == BinaryWorkloadWriter.MAGIC);
+        } catch (IOException ex) {
+            return (false);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ex) {
+                    // IGNORE
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.file.close();
+    }
+
+    // ----------------------------------------------------------------------------
+    // INDEX METHODS
+    // ----------------------------------------------------------------------------
+
+    public File getPath() {
+        return (this.path);
+    }
+
+    /**
+     * Return the number of TransactionTraces in the file
+     * @return
+     */
+    public int getTransactionCount() {
+        return (this.num_txns);
+    }
+
+    private long getOffset(int txn_idx) {
+        return (this.index.getLong(txn_idx * BinaryWorkloadWriter.INDEX_ENTRY_SIZE));
+    }
+
+    /**
+     * Return the procedure name for the txn at the given position in the file
+     * without deserializing it
+     * @param txn_idx
+     * @return
+     */
+    public String getProcedureName(int txn_idx) {
+        return (this.names[this.index.getInt(txn_idx * BinaryWorkloadWriter.INDEX_ENTRY_SIZE + 8)]);
+    }
+
+    /**
+     * Return the start timestamp for the txn at the given position in the file
+     * without deserializing it
+     * @param txn_idx
+     * @return
+     */
+    public long getStartTimestamp(int txn_idx) {
+        return (this.index.getLong(txn_idx * BinaryWorkloadWriter.INDEX_ENTRY_SIZE + 12));
+    }
+
+    // ----------------------------------------------------------------------------
+    // DESERIALIZATION
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Deserialize the TransactionTrace at the given position in the file
+     * @param txn_idx
+     * @return
+     */
+    public TransactionTrace getTransaction(int txn_idx) {
+        assert(txn_idx >= 0 && txn_idx < this.num_txns) : "Invalid txn index " + txn_idx;
+
+        // Find the segment that has this record
+        int seg = Collections.binarySearch(this.segment_first_txn, txn_idx);
+        if (seg < 0) seg = -seg - 2;
+        ByteBuffer buffer = this.segments.get(seg).duplicate();
+        buffer.position((int)(this.getOffset(txn_idx) - this.segment_offsets.get(seg)));
+
+        int length = buffer.getInt();
+        int end = buffer.position() + length;
+
+        TransactionTrace txn_trace = new TransactionTrace();
+        txn_trace.catalog_item_name = this.names[buffer.getInt()];
+        txn_trace.txn_id = buffer.getLong();
+        this.readElement(buffer, txn_trace);
+        int num_queries = buffer.getInt();
+        for (int i = 0; i < num_queries; i++) {
+            String name = this.names[buffer.getInt()];
+            int batch_id = buffer.getInt();
+            QueryTrace query_trace = new QueryTrace(name, null, batch_id);
+            this.readElement(buffer, query_trace);
+            txn_trace.addQuery(query_trace);
+        } // FOR
+        assert(buffer.position() == end) :
+            String.format("Read %d bytes for %s but the record is %d bytes", buffer.position() - end + length, txn_trace, length);
+        return (txn_trace);
+    }
+
+    private void readElement(ByteBuffer buffer, AbstractTraceElement<?> element) {
+        byte flags = buffer.get();
+        element.aborted = ((flags & BinaryWorkloadWriter.FLAG_ABORTED) != 0);
+        element.start_timestamp = buffer.getLong();
+        element.stop_timestamp = ((flags & BinaryWorkloadWriter.FLAG_STOPPED) != 0 ? buffer.getLong() : null);
+        element.weight = buffer.getShort();
+
+        // PARAMS
+        int num_params = buffer.getInt();
+        if (num_params >= 0) {
+            element.params = new Object[num_params];
+            for (int i = 0; i < num_params; i++) {
+                element.params[i] = readValue(buffer);
+            } // FOR
+        } else {
+            element.params = null;
+        }
+
+        // OUTPUT
+        if ((flags & BinaryWorkloadWriter.FLAG_OUTPUT) != 0) {
+            int num_tables = buffer.getInt();
+            element.output = new Object[num_tables][][];
+            element.output_types = new VoltType[num_tables][];
+            for (int i = 0; i < num_tables; i++) {
+                int num_cols = buffer.getInt();
+                if (num_cols >= 0) {
+                    element.output_types[i] = new VoltType[num_cols];
+                    for (int j = 0; j < num_cols; j++) {
+                        element.output_types[i][j] = VoltType.get(buffer.get());
+                    } // FOR
+                }
+                int num_rows = buffer.getInt();
+                if (num_rows < 0) continue;
+                element.output[i] = new Object[num_rows][];
+                for (int j = 0; j < num_rows; j++) {
+                    int row_len = buffer.getInt();
+                    if (row_len < 0) continue;
+                    element.output[i][j] = new Object[row_len];
+                    for (int k = 0; k < row_len; k++) {
+                        element.output[i][j][k] = readValue(buffer);
+                    } // FOR
+                } // FOR
+            } // FOR
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte bytes[] = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        try {
+            return (new String(bytes, "UTF-8"));
+        } catch (java.io.UnsupportedEncodingException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static Object readValue(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        switch (tag) {
+            case BinaryWorkloadWriter.TAG_NULL:
+                return (null);
+            case BinaryWorkloadWriter.TAG_BYTE:
+                return (buffer.get());
+            case BinaryWorkloadWriter.TAG_SHORT:
+                return (buffer.getShort());
+            case BinaryWorkloadWriter.TAG_INTEGER:
+                return (buffer.getInt());
+            case BinaryWorkloadWriter.TAG_LONG:
+                return (buffer.getLong());
+            case BinaryWorkloadWriter.TAG_FLOAT:
+                return (buffer.getFloat());
+            case BinaryWorkloadWriter.TAG_DOUBLE:
+                return (buffer.getDouble());
+            case BinaryWorkloadWriter.TAG_BOOLEAN:
+                return (buffer.get() != 0);
+            case BinaryWorkloadWriter.TAG_STRING:
+                return (readString(buffer));
+            case BinaryWorkloadWriter.TAG_TIMESTAMP:
+                return (new TimestampType(buffer.getLong()));
+            case BinaryWorkloadWriter.TAG_DECIMAL:
+                return (new BigDecimal(readString(buffer)));
+            case BinaryWorkloadWriter.TAG_ARRAY: {
+                Object arr[] = new Object[buffer.getInt()];
+                for (int i = 0; i < arr.length; i++) {
+                    arr[i] = readValue(buffer);
+                } // FOR
+                return (arr);
+            }
+            case BinaryWorkloadWriter.TAG_BYTE_ARRAY: {
+                byte arr[] = new byte[buffer.getInt()];
+                buffer.get(arr);
+                return (arr);
+            }
+            case BinaryWorkloadWriter.TAG_SHORT_ARRAY: {
+                short arr[] = new short[buffer.getInt()];
+                for (int i = 0; i < arr.length; i++) arr[i] = buffer.getShort();
+                return (arr);
+            }
+            case BinaryWorkloadWriter.TAG_INT_ARRAY: {
+                int arr[] = new int[buffer.getInt()];
+                for (int i = 0; i < arr.length; i++) arr[i] = buffer.getInt();
+                return (arr);
+            }
+            case BinaryWorkloadWriter.TAG_LONG_ARRAY: {
+                long arr[] = new long[buffer.getInt()];
+                for (int i = 0; i < arr.length; i++) arr[i] = buffer.getLong();
+                return (arr);
+            }
+            default:
+                throw new RuntimeException("Unexpected value tag " + tag);
+        } // SWITCH
+    }
+
+    // ----------------------------------------------------------------------------
+    // ITERATORS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Iterate over all of the TransactionTraces in the file in the order that they were written
+     */
+    @Override
+    public Iterator<TransactionTrace> iterator() {
+        return (this.iterator(null, null, null));
+    }
+
+    /**
+     * Iterate over the TransactionTraces for the given procedures whose start timestamps
+     * are within the given range (inclusive). Any of the arguments can be null.
+     * The txns that don't match are skipped using the index without being deserialized.
+     * @param proc_names
+     * @param min_start
+     * @param max_start
+     * @return
+     */
+    public Iterator<TransactionTrace> iterator(Set<String> proc_names, Long min_start, Long max_start) {
+        // Figure out which names we want ahead of time so that we can just compare ids
+        boolean include[] = null;
+        if (proc_names != null) {
+            include = new boolean[this.names.length];
+            for (int i = 0; i < this.names.length; i++) {
+                include[i] = proc_names.contains(this.names[i]);
+            } // FOR
+        }
+        return (new TransactionIterator(0, this.num_txns, include, min_start, max_start));
+    }
+
+    /**
+     * Iterate over the TransactionTraces at the positions [first, last) in the file
+     * @param first
+     * @param last
+     * @return
+     */
+    public Iterator<TransactionTrace> iterator(int first, int last) {
+        return (new TransactionIterator(first, Math.min(last, this.num_txns), null, null, null));
+    }
+
+    private class TransactionIterator implements Iterator<TransactionTrace> {
+        private final int last;
+        private final boolean include[];
+        private final Long min_start;
+        private final Long max_start;
+        private int next;
+
+        private TransactionIterator(int first, int last, boolean include[], Long min_start, Long max_start) {
+            this.next = first;
+            this.last = last;
+            this.include = include;
+            this.min_start = min_start;
+            this.max_start = max_start;
+            this.advance();
+        }
+
+        private void advance() {
+            while (this.next < this.last) {
+                if (this.include != null) {
+                    int name_id = index.getInt(this.next * BinaryWorkloadWriter.INDEX_ENTRY_SIZE + 8);
+                    if (this.include[name_id] == false) {
+                        this.next++;
+                        continue;
+                    }
+                }
+                if (this.min_start != null || this.max_start != null) {
+                    long start = getStartTimestamp(this.next);
+                    if ((this.min_start != null && start < this.min_start) ||
+                        (this.max_start != null && start > this.max_start)) {
+                        this.next++;
+                        continue;
+                    }
+                }
+                break;
+            } // WHILE
+        }
+
+        @Override
+        public boolean hasNext() {
+            return (this.next < this.last);
+        }
+
+        @Override
+        public TransactionTrace next() {
+            if (this.next >= this.last) throw new NoSuchElementException();
+            TransactionTrace txn_trace = getTransaction(this.next++);
+            this.advance();
+            return (txn_trace);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
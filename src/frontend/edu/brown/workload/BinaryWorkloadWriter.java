@@ -0,0 +1,381 @@
+package edu.brown.workload;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Database;
+import org.voltdb.types.TimestampType;
+
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+import edu.brown.utils.ArgumentsParser;
+import edu.brown.utils.FileUtil;
+
+/**
+ * Writes TransactionTraces out to the compact binary workload format that
+ * can be read back with BinaryWorkloadReader. Unlike the JSON traces, the
+ * binary records do not need the catalog in order to be deserialized and the
+ * file ends with an index of every txn's offset, procedure, and start time.
+ * <p>
+ * File Layout:
+ * <pre>
+ * HEADER:  MAGIC (long) | VERSION (int)
+ * RECORDS: LENGTH (int) | TRANSACTIONTRACE ...
+ * NAMES:   NUM_NAMES (int) | NAME (string) ...
+ * INDEX:   NUM_TXNS (int) | OFFSET (long) | NAME_ID (int) | START (long) ...
+ * FOOTER:  NAMES_OFFSET (long) | MAGIC (long)
+ * </pre>
+ * The main() method will convert an existing JSON workload trace into this format.
+ * @author pavlo
+ */
+public class BinaryWorkloadWriter implements Closeable {
+    private static final Logger LOG = Logger.getLogger(BinaryWorkloadWriter.class);
+    private static final LoggerBoolean debug = new LoggerBoolean(LOG.isDebugEnabled());
+    private static final LoggerBoolean trace = new LoggerBoolean(LOG.isTraceEnabled());
+    static {
+        LoggerUtil.attachObserver(LOG, debug, trace);
+    }
+
+    // ----------------------------------------------------------------------------
+    // FORMAT CONSTANTS
+    // ----------------------------------------------------------------------------
+
+    /** "HSTRACE" + 0x01 */
+    public static final long MAGIC = 0x4853545241434501l;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 8 + 4;
+    public static final int FOOTER_SIZE = 8 + 8;
+    public static final int INDEX_ENTRY_SIZE = 8 + 4 + 8;
+
+    // Element flags
+    static final byte FLAG_ABORTED  = 0x01;
+    static final byte FLAG_STOPPED  = 0x02;
+    static final byte FLAG_OUTPUT   = 0x04;
+
+    // Value type tags
+    static final byte TAG_NULL          = 0;
+    static final byte TAG_BYTE          = 1;
+    static final byte TAG_SHORT         = 2;
+    static final byte TAG_INTEGER       = 3;
+    static final byte TAG_LONG          = 4;
+    static final byte TAG_FLOAT         = 5;
+    static final byte TAG_DOUBLE        = 6;
+    static final byte TAG_BOOLEAN       = 7;
+    static final byte TAG_STRING        = 8;
+    static final byte TAG_TIMESTAMP     = 9;
+    static final byte TAG_DECIMAL       = 10;
+    static final byte TAG_ARRAY         = 11;
+    static final byte TAG_BYTE_ARRAY    = 12;
+    static final byte TAG_SHORT_ARRAY   = 13;
+    static final byte TAG_INT_ARRAY     = 14;
+    static final byte TAG_LONG_ARRAY    = 15;
+
+    // ----------------------------------------------------------------------------
+    // DATA MEMBERS
+    // ----------------------------------------------------------------------------
+
+    private final File path;
+    private final DataOutputStream out;
+    private long offset = 0;
+    private int num_txns = 0;
+
+    /** Catalog Item Name -> Name Id */
+    private final Map<String, Integer> names = new LinkedHashMap<String, Integer>();
+
+    private final ByteArrayOutputStream index_bytes = new ByteArrayOutputStream();
+    private final DataOutputStream index_out = new DataOutputStream(this.index_bytes);
+
+    private final ByteArrayOutputStream record_bytes = new ByteArrayOutputStream();
+    private final DataOutputStream record_out = new DataOutputStream(this.record_bytes);
+
+    private boolean closed = false;
+
+    // ----------------------------------------------------------------------------
+    // CONSTRUCTOR
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Constructor
+     * @param path The output file. It will be overwritten if it already exists
+     * @throws IOException
+     */
+    public BinaryWorkloadWriter(File path) throws IOException {
+        this.path = path;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 65536));
+        this.out.writeLong(MAGIC);
+        this.out.writeInt(VERSION);
+        this.offset = HEADER_SIZE;
+    }
+
+    public File getPath() {
+        return (this.path);
+    }
+
+    public int getTransactionCount() {
+        return (this.num_txns);
+    }
+
+    // ----------------------------------------------------------------------------
+    // WRITE METHODS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Append the given TransactionTrace to the end of the file
+     * @param txn_trace
+     * @throws IOException
+     */
+    public synchronized void write(TransactionTrace txn_trace) throws IOException {
+        assert(this.closed == false) : "Trying to write to closed file " + this.path;
+        int name_id = this.getNameId(txn_trace.catalog_item_name);
+
+        this.record_bytes.reset();
+        this.record_out.writeInt(name_id);
+        this.record_out.writeLong(txn_trace.txn_id);
+        this.writeElement(txn_trace);
+        this.record_out.writeInt(txn_trace.getQueryCount());
+        for (QueryTrace query_trace : txn_trace.getQueries()) {
+            this.record_out.writeInt(this.getNameId(query_trace.catalog_item_name));
+            this.record_out.writeInt(query_trace.getBatchId());
+            this.writeElement(query_trace);
+        } // FOR
+        this.record_out.flush();
+
+        // Index Entry
+        long start = (txn_trace.start_timestamp != null ? txn_trace.start_timestamp : 0);
+        this.index_out.writeLong(this.offset);
+        this.index_out.writeInt(name_id);
+        this.index_out.writeLong(start);
+
+        this.out.writeInt(this.record_bytes.size());
+        this.record_bytes.writeTo(this.out);
+        this.offset += 4 + this.record_bytes.size();
+        this.num_txns++;
+        if (trace.get()) LOG.trace(String.format("Wrote %s [offset=%d, bytes=%d]",
+                                                 txn_trace, this.offset, this.record_bytes.size()));
+    }
+
+    /**
+     * Write out the name table and the index and then close the file
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.closed) return;
+        long names_offset = this.offset;
+
+        // NAMES
+        this.out.writeInt(this.names.size());
+        for (String name : this.names.keySet()) {
+            writeString(this.out, name);
+        } // FOR
+
+        // INDEX
+        this.index_out.flush();
+        this.out.writeInt(this.num_txns);
+        this.index_bytes.writeTo(this.out);
+
+        // FOOTER
+        this.out.writeLong(names_offset);
+        this.out.writeLong(MAGIC);
+        this.out.close();
+        this.closed = true;
+        if (debug.get()) LOG.debug(String.format("Wrote %d txns to binary workload '%s'", this.num_txns, this.path));
+    }
+
+    private int getNameId(String name) {
+        Integer id = this.names.get(name);
+        if (id == null) {
+            id = this.names.size();
+            this.names.put(name, id);
+        }
+        return (id.intValue());
+    }
+
+    private void writeElement(AbstractTraceElement<?> element) throws IOException {
+        byte flags = 0;
+        if (element.aborted) flags |= FLAG_ABORTED;
+        if (element.stop_timestamp != null) flags |= FLAG_STOPPED;
+        if (element.output != null) flags |= FLAG_OUTPUT;
+
+        this.record_out.writeByte(flags);
+        this.record_out.writeLong(element.start_timestamp != null ? element.start_timestamp : 0);
+        if (element.stop_timestamp != null) this.record_out.writeLong(element.stop_timestamp);
+        this.record_out.writeShort(element.weight);
+
+        // PARAMS
+        Object params[] = element.params;
+        this.record_out.writeInt(params != null ? params.length : -1);
+        if (params != null) {
+            for (Object param : params) {
+                writeValue(this.record_out, param);
+            } // FOR
+        }
+
+        // OUTPUT
+        if (element.output != null) {
+            this.record_out.writeInt(element.output.length);
+            for (int i = 0; i < element.output.length; i++) {
+                VoltType types[] = (element.output_types != null ? element.output_types[i] : null);
+                this.record_out.writeInt(types != null ? types.length : -1);
+                if (types != null) {
+                    for (VoltType type : types) {
+                        this.record_out.writeByte((type != null ? type : VoltType.NULL).getValue());
+                    } // FOR
+                }
+                Object data[][] = element.output[i];
+                this.record_out.writeInt(data != null ? data.length : -1);
+                if (data == null) continue;
+                for (Object row[] : data) {
+                    this.record_out.writeInt(row != null ? row.length : -1);
+                    if (row == null) continue;
+                    for (Object val : row) {
+                        writeValue(this.record_out, val);
+                    } // FOR
+                } // FOR
+            } // FOR
+        }
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        byte bytes[] = s.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Serialize a single parameter or output value along with its type tag
+     * @param out
+     * @param value
+     * @throws IOException
+     */
+    static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long)value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TAG_INTEGER);
+            out.writeInt((Integer)value);
+        } else if (value instanceof Short) {
+            out.writeByte(TAG_SHORT);
+            out.writeShort((Short)value);
+        } else if (value instanceof Byte) {
+            out.writeByte(TAG_BYTE);
+            out.writeByte((Byte)value);
+        } else if (value instanceof Double) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble((Double)value);
+        } else if (value instanceof Float) {
+            out.writeByte(TAG_FLOAT);
+            out.writeFloat((Float)value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean((Boolean)value);
+        } else if (value instanceof String) {
+            out.writeByte(TAG_STRING);
+            writeString(out, (String)value);
+        } else if (value instanceof TimestampType) {
+            out.writeByte(TAG_TIMESTAMP);
+            out.writeLong(((TimestampType)value).getTime());
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(TAG_DECIMAL);
+            writeString(out, ((BigDecimal)value).toString());
+        } else if (value instanceof Object[]) {
+            Object arr[] = (Object[])value;
+            out.writeByte(TAG_ARRAY);
+            out.writeInt(arr.length);
+            for (Object inner : arr) {
+                writeValue(out, inner);
+            } // FOR
+        } else if (value instanceof byte[]) {
+            byte arr[] = (byte[])value;
+            out.writeByte(TAG_BYTE_ARRAY);
+            out.writeInt(arr.length);
+            out.write(arr);
+        } else if (value instanceof short[]) {
+            short arr[] = (short[])value;
+            out.writeByte(TAG_SHORT_ARRAY);
+            out.writeInt(arr.length);
+            for (short v : arr) out.writeShort(v);
+        } else if (value instanceof int[]) {
+            int arr[] = (int[])value;
+            out.writeByte(TAG_INT_ARRAY);
+            out.writeInt(arr.length);
+            for (int v : arr) out.writeInt(v);
+        } else if (value instanceof long[]) {
+            long arr[] = (long[])value;
+            out.writeByte(TAG_LONG_ARRAY);
+            out.writeInt(arr.length);
+            for (long v : arr) out.writeLong(v);
+        } else {
+            throw new IOException("Unsupported workload trace value type " + value.getClass().getName());
+        }
+    }
+
+    // ----------------------------------------------------------------------------
+    // CONVERSION
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Convert a JSON workload trace into the binary format. The input file is
+     * processed one line at a time so the traces never all need to be in memory.
+     * @param input_path
+     * @param output_path
+     * @param catalog_db
+     * @return the number of txns that were written out
+     * @throws Exception
+     */
+    public static int convert(File input_path, File output_path, Database catalog_db) throws Exception {
+        BufferedReader in = FileUtil.getReader(input_path);
+        BinaryWorkloadWriter writer = new BinaryWorkloadWriter(output_path);
+        int line_ctr = 0;
+        try {
+            while (in.ready()) {
+                line_ctr++;
+                String line = in.readLine().trim();
+                if (line.isEmpty()) continue;
+                TransactionTrace txn_trace = null;
+                try {
+                    txn_trace = TransactionTrace.loadFromJSONObject(new JSONObject(line), catalog_db);
+                } catch (JSONException ex) {
+                    LOG.warn(String.format("Ignoring invalid TransactionTrace on line %d of '%s'", line_ctr, input_path));
+                    continue;
+                }
+                writer.write(txn_trace);
+                if (debug.get() && writer.getTransactionCount() % 10000 == 0)
+                    LOG.debug(String.format("Converted %d txns from '%s'", writer.getTransactionCount(), input_path.getName()));
+            } // WHILE
+        } finally {
+            in.close();
+            writer.close();
+        }
+        return (writer.getTransactionCount());
+    }
+
+    public static void main(String[] vargs) throws Exception {
+        ArgumentsParser args = ArgumentsParser.load(vargs);
+        args.require(ArgumentsParser.PARAM_CATALOG, ArgumentsParser.PARAM_WORKLOAD_OUTPUT);
+
+        File input_path = new File(args.getOptParam(0));
+        File output_path = new File(args.getParam(ArgumentsParser.PARAM_WORKLOAD_OUTPUT));
+        FileUtil.makeDirIfNotExists(output_path.getParent());
+
+        long start = System.currentTimeMillis();
+        int num_txns = convert(input_path, output_path, args.catalog_db);
+        LOG.info(String.format("Converted %d txns from '%s' into binary workload '%s' in %.1f seconds",
+                               num_txns, input_path, output_path, (System.currentTimeMillis() - start) / 1000d));
+    }
+}
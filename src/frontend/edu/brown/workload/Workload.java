@@ -37,6 +37,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
@@ -350,6 +351,11 @@ public class Workload implements WorkloadTrace, Iterable<TransactionTrace> {
         this.input_path = new File(input_path);
         long start = System.currentTimeMillis();
         
+        if (BinaryWorkloadReader.isBinaryWorkload(this.input_path)) {
+            this.loadBinary(catalog_db, filter);
+            return;
+        }
+        
         // HACK: Throw out traces unless they have the procedures that we're looking for
         Pattern temp_pattern = null;
         if (filter != null) {
@@ -384,17 +390,15 @@ public class Workload implements WorkloadTrace, Iterable<TransactionTrace> {
         int num_threads = ThreadUtil.getMaxGlobalThreads();
         
         // Create the reader thread first
-        WorkloadUtil.ReadThread rt = new WorkloadUtil.ReadThread(this.input_path, pattern, num_threads);
+        WorkloadUtil.ReadThread rt = new WorkloadUtil.ReadThread(this.input_path, catalog_db, pattern, num_threads);
         all_runnables.add(rt);
         
         // Then create all of our processing threads
         for (int i = 0; i < num_threads; i++) {
-            WorkloadUtil.ProcessingThread lt = new WorkloadUtil.ProcessingThread(this, this.input_path, rt, catalog_db, filter, counters);
-            rt.processingThreads.add(lt);
-            all_runnables.add(lt);
+            all_runnables.add(new WorkloadUtil.ProcessingThread(this, i, rt, catalog_db, filter, counters));
         } // FOR
         
-        if (debug.get()) LOG.debug(String.format("Loading workload trace using %d ProcessThreads", rt.processingThreads.size())); 
+        if (debug.get()) LOG.debug(String.format("Loading workload trace using %d ProcessThreads", num_threads)); 
         ThreadUtil.runNewPool(all_runnables, all_runnables.size());
         VerifyWorkload.verify(catalog_db, this);
         
@@ -407,7 +411,67 @@ public class Workload implements WorkloadTrace, Iterable<TransactionTrace> {
         return;
     }
     
-
+    /**
+     * Load a workload trace that was written by BinaryWorkloadWriter.
+     * The records are deserialized straight out of the mapped file by multiple threads.
+     * If the filter contains any ProcedureNameFilters, then we use the file's index to skip
+     * over the records for the other procedures without deserializing them.
+     * @param catalog_db
+     * @param filter
+     * @throws Exception
+     */
+    private void loadBinary(Database catalog_db, Filter filter) throws Exception {
+        long start = System.currentTimeMillis();
+        BinaryWorkloadReader reader = new BinaryWorkloadReader(this.input_path);
+        
+        Set<String> proc_names = null;
+        if (filter != null) {
+            for (ProcedureNameFilter f : filter.getFilters(ProcedureNameFilter.class)) {
+                Set<String> names = f.getProcedureNames();
+                if (names.isEmpty() || names.contains(ProcedureNameFilter.INCLUDE_ALL)) {
+                    proc_names = null;
+                    break;
+                }
+                if (proc_names == null) proc_names = new HashSet<String>();
+                proc_names.addAll(names);
+            } // FOR
+            if (debug.get() && proc_names != null)
+                LOG.debug(String.format("Fast filter for %d procedure names", proc_names.size()));
+        }
+        
+        final AtomicInteger counters[] = new AtomicInteger[] {
+            new AtomicInteger(0), // ELEMENT COUNTER
+            new AtomicInteger(0), // TXN COUNTER
+            new AtomicInteger(0), // QUERY COUNTER
+            new AtomicInteger(0), // WEIGHTED TXN COUNTER
+            new AtomicInteger(0), // WEIGHTED QUERY COUNTER
+        };
+        
+        List<Runnable> all_runnables = new ArrayList<Runnable>();
+        int num_threads = ThreadUtil.getMaxGlobalThreads();
+        AtomicInteger next = new AtomicInteger(0);
+        AtomicBoolean halt = new AtomicBoolean(false);
+        for (int i = 0; i < num_threads; i++) {
+            WorkloadUtil.BinaryTraceReader rt = new WorkloadUtil.BinaryTraceReader(reader, next, halt, proc_names);
+            all_runnables.add(new WorkloadUtil.ProcessingThread(this, i, rt, catalog_db, filter, counters));
+        } // FOR
+        
+        if (debug.get()) LOG.debug(String.format("Loading binary workload trace with %d txns using %d threads",
+                                                 reader.getTransactionCount(), num_threads)); 
+        try {
+            ThreadUtil.runNewPool(all_runnables, all_runnables.size());
+        } finally {
+            reader.close();
+        }
+        VerifyWorkload.verify(catalog_db, this);
+        
+        long stop = System.currentTimeMillis();
+        LOG.info(String.format("Loaded %d txns / %d queries from '%s' in %.1f seconds using %d threads",
+                               this.xact_trace.size(), counters[1].get(), this.input_path.getName(), (stop - start) / 1000d, num_threads));
+        if (counters[1].get() != counters[3].get() || counters[2].get() != counters[4].get()) {
+            LOG.info(String.format("Weighted Workload: %d txns / %d queries", counters[3].get(), counters[4].get()));
+        }
+    }
     
     // ----------------------------------------------------------
     // ITERATORS METHODS
@@ -4,10 +4,10 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Set;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -41,20 +41,40 @@ public abstract class WorkloadUtil {
     private static final int WEIGHTED_QUERY_CTR_IDX     = ELEMENT_CTR_IDX + 4;
 
 
+    /**
+     * Where a ProcessingThread gets the TransactionTraces that it loads into the Workload
+     */
+    public interface TraceReader {
+        /**
+         * Returns the next TransactionTrace to load, or null if there are no more.
+         * This is invoked by the ProcessingThreads, so the record should get
+         * deserialized here.
+         */
+        public TransactionTrace next();
+        
+        /**
+         * The Filter told us to stop loading the workload
+         */
+        public void halt();
+    }
+    
     /**
      * READ THREAD
+     * Reads the lines of a JSON workload trace file into a queue. The ProcessingThreads
+     * then deserialize the TransactionTraces from that queue.
      */
-    public static class ReadThread implements Runnable {
+    public static class ReadThread implements Runnable, TraceReader {
         final File input_path;
-        final List<ProcessingThread> processingThreads = new ArrayList<ProcessingThread>();
-        final AtomicInteger processingThreadId = new AtomicInteger(0);
+        final Database catalog_db;
         final LinkedBlockingDeque<Pair<Integer, String>> lines;
         final Pattern pattern;
         boolean stop = false;
+        volatile boolean finished = false;
         Thread self;
         
-        public ReadThread(File input_path, Pattern pattern, int num_threads) {
+        public ReadThread(File input_path, Database catalog_db, Pattern pattern, int num_threads) {
             this.input_path = input_path;
+            this.catalog_db = catalog_db;
             this.pattern = pattern;
             this.lines = new LinkedBlockingDeque<Pair<Integer, String>>(num_threads * 1000);
         }
@@ -63,8 +83,8 @@ public abstract class WorkloadUtil {
         public void run() {
             self = Thread.currentThread();
             self.setName(this.getClass().getSimpleName());
-            if (debug.get()) LOG.debug(String.format("Starting thread to read workload '%s' [processingThreads=%d]",
-                                       this.input_path.getAbsolutePath(), this.processingThreads.size()));
+            if (debug.get()) LOG.debug(String.format("Starting thread to read workload '%s'",
+                                       this.input_path.getAbsolutePath()));
             
             BufferedReader in = null;
             try {
@@ -100,15 +120,74 @@ public abstract class WorkloadUtil {
                 throw new RuntimeException(ex);
             } finally {
                 // Tell all the load threads to stop before we finish
-                for (ProcessingThread lt : this.processingThreads) {
-                    lt.stop();
-                } // FOR
+                this.finished = true;
             }
             if (debug.get()) LOG.debug(String.format("Read %d lines [fast_filter=%d]", procCtr, fastCtr));
         }
+        
+        @Override
+        public TransactionTrace next() {
+            while (true) {
+                Pair<Integer, String> p = null;
+                try {
+                    p = this.lines.poll(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex) {
+                    // IGNORE
+                    return (null);
+                }
+    
+                if (p == null) {
+                    if (this.finished && this.lines.isEmpty()) {
+                        if (debug.get()) LOG.debug("Queue is empty and we were told to stop!");
+                        return (null);
+                    }
+                    if (debug.get()) LOG.debug("Queue is empty but we haven't been told to stop yet");
+                    continue;
+                }
+                
+                int line_ctr = p.getFirst().intValue();
+                String line = p.getSecond();
+                if (trace.get())
+                    LOG.trace(String.format("Processing TransactionTrace on line %d [queueSize=%d, bytes=%d]",
+                                             line_ctr, this.lines.size(), line.length()));
+                JSONObject jsonObject = null;
+                try {
+                    jsonObject = new JSONObject(line);
+                } catch (JSONException ex) {
+                    String msg = String.format("Ignoring invalid TransactionTrace on line %d of '%s'", (line_ctr+1), this.input_path);
+                    if (debug.get()) {
+                        LOG.warn(msg, ex);
+                    } else {
+                        LOG.warn(msg); 
+                    }
+                    continue;
+                }
+                
+                try {
+                    // TransactionTrace
+                    if (jsonObject.has(TransactionTrace.Members.TXN_ID.name())) {
+                        TransactionTrace xact = TransactionTrace.loadFromJSONObject(jsonObject, this.catalog_db);
+                        if (xact == null) {
+                            throw new Exception("Failed to deserialize transaction trace on line " + line_ctr);
+                        }
+                        return (xact);
+                    }
+                    // Unknown!
+                    throw new Exception("Unexpected serialization line in workload trace file '" + this.input_path.getAbsolutePath() + "'");
+                } catch (Exception ex) {
+                    throw new RuntimeException("Error on line " + (line_ctr+1) + " of workload trace file '" + this.input_path.getAbsolutePath() + "'", ex);
+                }
+            } // WHILE
+        }
+        
+        @Override
+        public void halt() {
+            this.stop();
+        }
+        
         public synchronized void stop() {
             if (this.stop == false) {
-                if (debug.get()) LOG.debug("ReadThread told to stop by LoadThread [queue_size=" + this.lines.size() + "]");
+                if (debug.get()) LOG.debug("ReadThread told to stop by ProcessingThread [queue_size=" + this.lines.size() + "]");
                 this.stop = true;
                 this.lines.clear();
                 this.self.interrupt();
@@ -116,36 +195,96 @@ public abstract class WorkloadUtil {
         }
     } // END CLASS
     
+    /**
+     * BINARY TRACE READER
+     * Deserializes TransactionTraces directly out of a BinaryWorkloadReader. There is
+     * no separate ReadThread here: each ProcessingThread has its own BinaryTraceReader that
+     * grabs the next small batch of record offsets from the shared counter so that the
+     * txns still get loaded in roughly the same order that they appear in the file.
+     */
+    public static class BinaryTraceReader implements TraceReader {
+        private static final int BATCH_SIZE = 64;
+        
+        final BinaryWorkloadReader reader;
+        final AtomicInteger next;
+        final AtomicBoolean halt;
+        final Set<String> proc_names;
+        final int num_txns;
+        
+        /** The offsets of the records in our current batch */
+        int idx = 0;
+        int last = 0;
+        
+        /**
+         * Constructor
+         * @param reader
+         * @param next The shared offset of the next record to load
+         * @param halt The shared flag that tells everyone to stop early
+         * @param proc_names If not null, records for any other procedure will be skipped using the index
+         */
+        public BinaryTraceReader(BinaryWorkloadReader reader, AtomicInteger next, AtomicBoolean halt, Set<String> proc_names) {
+            this.reader = reader;
+            this.next = next;
+            this.halt = halt;
+            this.proc_names = proc_names;
+            this.num_txns = reader.getTransactionCount();
+        }
+        
+        @Override
+        public TransactionTrace next() {
+            while (this.halt.get() == false) {
+                if (this.idx >= this.last) {
+                    int first = this.next.getAndAdd(BATCH_SIZE);
+                    if (first >= this.num_txns) break;
+                    this.idx = first;
+                    this.last = Math.min(first + BATCH_SIZE, this.num_txns);
+                }
+                int offset = this.idx++;
+                if (this.proc_names != null && this.proc_names.contains(this.reader.getProcedureName(offset)) == false) {
+                    continue;
+                }
+                try {
+                    return (this.reader.getTransaction(offset));
+                } catch (Exception ex) {
+                    throw new RuntimeException("Error on record " + offset + " of workload trace file '" + this.reader.getPath().getAbsolutePath() + "'", ex);
+                }
+            } // WHILE
+            return (null);
+        }
+        
+        @Override
+        public void halt() {
+            this.halt.set(true);
+        }
+    } // END CLASS
+    
     /**
      * PROCESSING THREAD
+     * Loads the TransactionTraces from a TraceReader into the Workload
      */
     public static class ProcessingThread implements Runnable {
         final int id;
         final Workload workload;
-        final File input_path;
-        final ReadThread reader;
+        final TraceReader reader;
         final Database catalog_db;
         final Filter filter;
         final AtomicInteger counters[];
-         
-        boolean stop = false;
         
-        public ProcessingThread(Workload workload, File input_path, ReadThread reader, Database catalog_db, Filter filter, AtomicInteger counters[]) {
+        public ProcessingThread(Workload workload, int id, TraceReader reader, Database catalog_db, Filter filter, AtomicInteger counters[]) {
             this.workload = workload;
-            this.input_path = input_path;
+            this.id = id;
             this.reader = reader;
             this.catalog_db = catalog_db;
             this.filter = filter;
             this.counters = counters;
-            this.id = reader.processingThreadId.getAndIncrement();
         }
         
         @Override
         public void run() {
             Thread self = Thread.currentThread();
             self.setName(String.format("%s-%d", this.getClass().getSimpleName(), this.id));
-            if (debug.get()) LOG.debug(String.format("Starting %s [%d / %d]",
-                                       this.getClass().getSimpleName(), this.id, this.reader.processingThreads.size()));
+            if (debug.get()) LOG.debug(String.format("Starting %s-%d [reader=%s]",
+                                       this.getClass().getSimpleName(), this.id, this.reader.getClass().getSimpleName()));
 
             AtomicInteger element_ctr = this.counters[ELEMENT_CTR_IDX];
             AtomicInteger xact_ctr = this.counters[TXN_CTR_IDX];
@@ -154,109 +293,43 @@ public abstract class WorkloadUtil {
             AtomicInteger weightedQuery_ctr = this.counters[WEIGHTED_QUERY_CTR_IDX];
             
             while (true) {
-                String line = null;
-                Integer line_ctr = null;
-                JSONObject jsonObject = null;
-                Pair<Integer, String> p = null;
+                TransactionTrace xact = this.reader.next();
+                if (xact == null) break;
                 
-                try {
-                    p = this.reader.lines.poll(100, TimeUnit.MILLISECONDS);
-                } catch (InterruptedException ex) {
-                    // IGNORE
-                    break;
-                } catch (Exception ex) {
-                    throw new RuntimeException(ex);
-                }
-    
-                if (p == null) {
-                    if (this.stop) {
-                        if (debug.get()) LOG.debug("Queue is empty and we were told to stop!");
+                if (this.filter != null) {
+                    FilterResult result = null;
+                    
+                    // It's ok to do this because the real CPU bottleneck is 
+                    // the deserialization
+                    synchronized (this.filter) {
+                        result = this.filter.apply(xact);
+                    } // SYNCH
+                    if (trace.get()) LOG.trace(xact + " Filter Result: " + result);
+                    
+                    if (result == FilterResult.HALT) {
+                        // We have to tell the TraceReader to stop too!
+                        if (debug.get()) LOG.debug("Got HALT response from filter! Telling TraceReader to stop!");
+                        this.reader.halt();
                         break;
                     }
-                    if (debug.get()) LOG.debug("Queue is empty but we haven't been told to stop yet");
-                    continue;
+                    else if (result == FilterResult.SKIP) continue;
                 }
+
+                // Keep track of how many trace elements we've loaded so that we can make sure
+                // that our element trace list is complete
+                int x = xact_ctr.incrementAndGet();
+                if (debug.get() && x % 10000 == 0) LOG.debug("Processed " + xact_ctr + " transactions...");
+                query_ctr.addAndGet(xact.getQueryCount());
+                element_ctr.addAndGet(1 + xact.getQueries().size());
+                weightedTxn_ctr.addAndGet(xact.weight);
+                for (QueryTrace q : xact.getQueries()) {
+                    weightedQuery_ctr.addAndGet(q.weight);
+                } // FOR
                 
-                line_ctr = p.getFirst();
-                line = p.getSecond();
-                if (trace.get())
-                    LOG.trace(String.format("Processing TransactionTrace on line %d [queueSize=%d, bytes=%d]",
-                                             line_ctr, reader.lines.size(), line.length()));
-                try {
-                    try {
-                        jsonObject = new JSONObject(line);
-                    } catch (JSONException ex) {
-                        String msg = String.format("Ignoring invalid TransactionTrace on line %d of '%s'", (line_ctr+1), input_path);
-                        if (debug.get()) {
-                            LOG.warn(msg, ex);
-                        } else {
-                            LOG.warn(msg); 
-                        }
-                        continue;
-                    }
-                
-                    // TransactionTrace
-                    if (jsonObject.has(TransactionTrace.Members.TXN_ID.name())) {
-                        
-                        // If we have already loaded in up to our limit, then we don't need to
-                        // do anything else. But we still have to keep reading because we need
-                        // be able to load in our index structures that are at the bottom of the file
-                        //
-                        // NOTE: If we ever load something else but the straight trace dumps, then the following
-                        // line should be a continue and not a break.
-                        
-                        // Load the xact from the jsonObject
-                        TransactionTrace xact = TransactionTrace.loadFromJSONObject(jsonObject, catalog_db);
-                        if (xact == null) {
-                            throw new Exception("Failed to deserialize transaction trace on line " + xact_ctr);
-                        } else if (filter != null) {
-                            FilterResult result = null;
-                            
-                            // It's ok to do this because the real CPU bottleneck is 
-                            // the JSON deserialization
-                            synchronized (filter) {
-                                result = filter.apply(xact);
-                            } // SYNCH
-                            if (trace.get()) LOG.trace(xact + " Filter Result: " + result);
-                            
-                            if (result == FilterResult.HALT) {
-                                // We have to tell the ReadThread to stop too!
-                                if (debug.get()) LOG.debug("Got HALT response from filter! Telling ReadThread to stop!");
-                                this.reader.stop();
-                                break;
-                            }
-                            else if (result == FilterResult.SKIP) continue;
-                            if (trace.get()) LOG.trace(result + ": " + xact);
-                        }
-    
-                        // Keep track of how many trace elements we've loaded so that we can make sure
-                        // that our element trace list is complete
-                        int x = xact_ctr.incrementAndGet();
-                        if (debug.get() && x % 10000 == 0) LOG.debug("Processed " + xact_ctr + " transactions...");
-                        query_ctr.addAndGet(xact.getQueryCount());
-                        element_ctr.addAndGet(1 + xact.getQueries().size());
-                        weightedTxn_ctr.addAndGet(xact.weight);
-                        for (QueryTrace q : xact.getQueries()) {
-                            weightedQuery_ctr.addAndGet(q.weight);
-                        } // FOR
-                        
-                        // This call just updates the various other index structures 
-                        this.workload.addTransaction(xact.getCatalogItem(catalog_db), xact, true);
-                        
-                    // Unknown!
-                    } else {
-                        throw new Exception("Unexpected serialization line in workload trace file '" + input_path.getAbsolutePath() + "'");
-                    }
-                } catch (Exception ex) {
-                    throw new RuntimeException("Error on line " + (line_ctr+1) + " of workload trace file '" + input_path.getAbsolutePath() + "'", ex);
-                }
+                // This call just updates the various other index structures 
+                this.workload.addTransaction(xact.getCatalogItem(this.catalog_db), xact, true);
             } // WHILE
         }
-        
-        public void stop() {
-            if (debug.get()) LOG.debug("Told to stop [queue_size=" + this.reader.lines.size() + "]");
-            this.stop = true;
-        }
     } // END CLASS
 
     
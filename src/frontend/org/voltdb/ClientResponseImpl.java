@@ -249,6 +249,38 @@ public class ClientResponseImpl implements FastSerializable, ClientResponse {
         return ret;
     }
 
+    /**
+     * Returns true if any of the result tables are backed by pooled buffers
+     */
+    public boolean hasPooledResults() {
+        for (VoltTable vt : this.results) {
+            if (vt.isPooled()) return (true);
+        } // FOR
+        return (false);
+    }
+
+    /**
+     * Add a reference to all of the pooled result tables in this response
+     * so that they stay valid until the response is serialized.
+     * @see VoltTable#retain()
+     */
+    public void retainResults() {
+        for (VoltTable vt : this.results) {
+            vt.retain();
+        } // FOR
+    }
+
+    /**
+     * Drop this response's reference to its pooled result tables.
+     * This must only be called once the response has been serialized.
+     * @see VoltTable#release()
+     */
+    public void releaseResults() {
+        for (VoltTable vt : this.results) {
+            vt.release();
+        } // FOR
+    }
+
     public String getStatusString() {
         return statusString;
     }
@@ -68,6 +68,15 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
     private static final Semaphore m_bytesAllowedBeforeSync = new Semaphore((1024 * 1024) * 256);
     private final AtomicInteger m_bytesWrittenSinceLastSync = new AtomicInteger(0);
 
+    /*
+     * Disk bandwidth limit (bytes per second) shared by all targets. The throttling is done
+     * in the write service thread so the sites never block on it. They just run out of
+     * snapshot buffers and go back to executing transactions until a buffer is returned.
+     * m_nextWriteTime is only accessed by the write service thread.
+     */
+    private static volatile long m_maxBytesPerSecond = -1;
+    private static long m_nextWriteTime = 0;
+
     private final ScheduledFuture<?> m_syncTask;
     /*
      * Accept a single write even though simulating a full disk is enabled;
@@ -231,6 +240,33 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
         m_syncTask = syncTask;
     }
 
+    /**
+     * Limit the rate at which all snapshot data targets write to disk.
+     * @param bytesPerSecond The max number of bytes per second. Zero or less disables throttling.
+     */
+    public static void setWriteBandwidth(long bytesPerSecond) {
+        m_maxBytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Block the write service thread until it is allowed to write the given number of bytes
+     */
+    private static void throttle(int bytes) throws InterruptedException {
+        final long maxBytesPerSecond = m_maxBytesPerSecond;
+        if (maxBytesPerSecond <= 0) {
+            return;
+        }
+        final long now = System.nanoTime();
+        if (m_nextWriteTime < now) {
+            m_nextWriteTime = now;
+        }
+        final long wait = m_nextWriteTime - now;
+        m_nextWriteTime += (bytes * 1000000000l) / maxBytesPerSecond;
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
     @Override
     public void close() throws IOException, InterruptedException {
         try {
@@ -289,6 +325,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                     }
 
                     m_bytesAllowedBeforeSync.acquire(tupleData.b.remaining());
+                    throttle(tupleData.b.remaining());
 
                     int totalWritten = 0;
                     while (tupleData.b.hasRemaining()) {
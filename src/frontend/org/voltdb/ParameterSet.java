@@ -115,6 +115,31 @@ public class ParameterSet implements FastSerializable, Poolable {
         return retval;
     }
 
+    /**
+     * Deserialize only the parameters at the given offsets from a serialized ParameterSet.
+     * Each value is stored at its offset in the given array and everything else is
+     * left untouched. The parameters that we don't need are skipped over without
+     * creating any objects for them.
+     * @param in A FastDeserializer positioned at the start of a serialized ParameterSet
+     * @param offsets The sorted offsets of the parameters to deserialize
+     * @param params The output array. Must be larger than the last offset
+     * @return The number of parameters in the serialized ParameterSet
+     * @throws IOException
+     */
+    public static int readParametersAtOffsets(FastDeserializer in, int offsets[], Object params[]) throws IOException {
+        int paramLen = in.readShort();
+        int next = 0;
+        for (int i = 0; i < paramLen && next < offsets.length; i++) {
+            if (i == offsets[next]) {
+                params[i] = readOneParameter(in);
+                while (next < offsets.length && offsets[next] == i) next++;
+            } else {
+                skipOneParameter(in);
+            }
+        } // FOR
+        return (paramLen);
+    }
+
     @Override
     public void readExternal(FastDeserializer in) throws IOException {
         int paramLen = in.readShort();
@@ -322,6 +347,69 @@ public class ParameterSet implements FastSerializable, Poolable {
         }
     }
     
+    /**
+     * Advance the FastDeserializer past the next parameter. We only create
+     * objects for types that we can't easily compute the length of.
+     */
+    static private void skipOneParameter(FastDeserializer in) throws IOException {
+        byte nextTypeByte = in.readByte();
+        if (nextTypeByte == ARRAY) {
+            VoltType nextType = VoltType.get(in.readByte());
+            if (nextType == null) return;
+            switch (nextType) {
+                case TINYINT:
+                    in.skipBytes(in.readInt());
+                    break;
+                case SMALLINT:
+                case INTEGER:
+                case BIGINT:
+                case FLOAT:
+                    in.skipBytes(in.readShort() * nextType.getLengthInBytesForFixedTypes());
+                    break;
+                case STRING: {
+                    int count = in.readShort();
+                    for (int i = 0; i < count; i++) {
+                        skipString(in);
+                    } // FOR
+                    break;
+                }
+                default:
+                    in.readArray(nextType.classFromType());
+            } // SWITCH
+        }
+        else {
+            VoltType nextType = VoltType.get(nextTypeByte);
+            switch (nextType) {
+                case NULL:
+                    break;
+                case TINYINT:
+                case SMALLINT:
+                case INTEGER:
+                case BIGINT:
+                case FLOAT:
+                case TIMESTAMP:
+                case BOOLEAN:
+                case DECIMAL:
+                    in.skipBytes(nextType.getLengthInBytesForFixedTypes());
+                    break;
+                case STRING:
+                case DECIMAL_STRING:
+                    skipString(in);
+                    break;
+                case VOLTTABLE:
+                    in.readObject(VoltTable.class);
+                    break;
+                default:
+                    throw new RuntimeException("ParameterSet doesn't support type" + nextType);
+            } // SWITCH
+        }
+    }
+    
+    static private void skipString(FastDeserializer in) throws IOException {
+        int len = in.readInt();
+        if (len > 0) in.skipBytes(len);
+    }
+    
     static Object limitType(Object o) {
         Class<?> ctype = o.getClass();
         if (ctype == Integer.class) {
@@ -19,6 +19,8 @@ package org.voltdb;
 
 import java.nio.ByteBuffer;
 
+import org.voltdb.utils.DBBPool.BBContainer;
+
 /**
  * Deliberately awkward access to package-private constructors of
  * VoltTable. End users shouldn't call the constructors, but VoltDB
@@ -35,4 +37,8 @@ public abstract class PrivateVoltTableFactory {
     public static VoltTable createVoltTableFromBuffer(ByteBuffer backing, boolean readOnly) {
         return new VoltTable(backing, readOnly);
     }
+
+    public static VoltTable createVoltTableFromContainer(BBContainer container, boolean readOnly) {
+        return new VoltTable(container, readOnly);
+    }
 }
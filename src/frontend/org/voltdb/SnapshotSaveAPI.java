@@ -48,6 +48,7 @@ public class SnapshotSaveAPI
      * be accomplished, that the caller knows this is a consistent or useful
      * transaction point at which to snapshot.
      *
+     * @param txnId The id of the txn that is taking this snapshot
      * @param file_path
      * @param file_nonce
      * @param block
@@ -56,7 +57,7 @@ public class SnapshotSaveAPI
      * @param hostname
      * @return VoltTable describing the results of the snapshot attempt
      */
-    public VoltTable startSnapshotting(String file_path, String file_nonce, byte block,
+    public VoltTable startSnapshotting(long txnId, String file_path, String file_nonce, byte block,
             long startTime, SystemProcedureExecutionContext context, String hostname)
     {
         LOG.trace("Creating snapshot target and handing to EEs");
@@ -66,7 +67,7 @@ public class SnapshotSaveAPI
         // m_taskListsForSites for the other sites and creating an appropriate
         // number of snapshot permits
         if (SnapshotSiteProcessor.m_snapshotCreateSetupPermit.tryAcquire()) {
-            createSetup(file_path, file_nonce, startTime, context, hostname, result);
+            createSetup(file_path, file_nonce, txnId, startTime, context, hostname, result);
         }
 
         // All sites wait for a permit to start their individual snapshot tasks
@@ -85,7 +86,7 @@ public class SnapshotSaveAPI
                     assert(SnapshotSiteProcessor.m_snapshotPermits.availablePermits() == 0);
                 }
                 assert(SnapshotSiteProcessor.ExecutionSitesCurrentlySnapshotting.get() > 0);
-                context.getExecutionSite().initiateSnapshots(m_taskList);
+                context.getExecutionSite().initiateSnapshots(m_taskList, txnId, file_path, file_nonce);
             }
         }
 
@@ -128,7 +129,7 @@ public class SnapshotSaveAPI
 
 
     private void createSetup(String file_path, String file_nonce,
-            long startTime, SystemProcedureExecutionContext context,
+            long txnId, long startTime, SystemProcedureExecutionContext context,
             String hostname, final VoltTable result) {
         {
             final int numLocalSites = VoltDB.instance().getLocalSites().values().size();
@@ -148,6 +149,7 @@ public class SnapshotSaveAPI
 
                 SnapshotUtil.recordSnapshotTableList(
                         startTime,
+                        txnId,
                         file_path,
                         file_nonce,
                         tables);
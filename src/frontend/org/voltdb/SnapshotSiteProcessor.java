@@ -91,6 +91,19 @@ public class SnapshotSiteProcessor {
      */
     private ArrayDeque<SnapshotTableTask> m_snapshotTableTasks;
 
+    /**
+     * All of the tasks for the current snapshot (including the ones that are finished)
+     * so that we can report on the progress for each table.
+     */
+    private volatile List<SnapshotTableTask> m_snapshotProgress = null;
+
+    /**
+     * The maximum amount of time (in nanoseconds) that doSnapshotWork() is allowed
+     * to spend serializing tuple blocks each time that it is invoked. It always serializes
+     * at least one block. If this is zero, then it serializes exactly one block.
+     */
+    private final long m_workBudget;
+
 
     /**
      * List of threads to join to block on snapshot completion
@@ -114,6 +127,11 @@ public class SnapshotSiteProcessor {
         private final boolean m_isReplicated;
         private final String m_name;
 
+        /** Progress counters. These are only updated by the PartitionExecutor thread */
+        private volatile long m_bytesSerialized = 0;
+        private volatile int m_blocksSerialized = 0;
+        private volatile boolean m_finished = false;
+
         public SnapshotTableTask(
                 final int tableId,
                 final SnapshotDataTarget target,
@@ -125,6 +143,22 @@ public class SnapshotSiteProcessor {
             m_name = tableName;
         }
 
+        public String getTableName() {
+            return m_name;
+        }
+
+        public long getBytesSerialized() {
+            return m_bytesSerialized;
+        }
+
+        public int getBlocksSerialized() {
+            return m_blocksSerialized;
+        }
+
+        public boolean isFinished() {
+            return m_finished;
+        }
+
         @Override
         public String toString() {
             return ("SnapshotTableTask for " + m_name + " replicated " + m_isReplicated);
@@ -132,7 +166,16 @@ public class SnapshotSiteProcessor {
     }
 
     public SnapshotSiteProcessor(Runnable onPotentialSnapshotWork) {
+        this(onPotentialSnapshotWork, 0);
+    }
+
+    /**
+     * @param onPotentialSnapshotWork
+     * @param workBudget Max time (in microseconds) to spend in each call to doSnapshotWork()
+     */
+    public SnapshotSiteProcessor(Runnable onPotentialSnapshotWork, long workBudget) {
         m_onPotentialSnapshotWork = onPotentialSnapshotWork;
+        m_workBudget = Math.max(0, workBudget) * 1000;
         initializeBufferPool();
     }
 
@@ -164,6 +207,7 @@ public class SnapshotSiteProcessor {
 
     public void initiateSnapshots(ExecutionEngine ee, Deque<SnapshotTableTask> tasks) {
         m_snapshotTableTasks = new ArrayDeque<SnapshotTableTask>(tasks);
+        m_snapshotProgress = Collections.unmodifiableList(new ArrayList<SnapshotTableTask>(tasks));
         m_snapshotTargets = new ArrayList<SnapshotDataTarget>();
         for (final SnapshotTableTask task : tasks) {
             if (!task.m_isReplicated) {
@@ -181,7 +225,33 @@ public class SnapshotSiteProcessor {
         }
     }
 
+    /**
+     * Returns the tasks for the snapshot that is currently running at this site
+     * (or the last one if there is no snapshot running) so that the caller can
+     * see how far along each table is. Returns null if there has never been a snapshot.
+     */
+    public List<SnapshotTableTask> getSnapshotProgress() {
+        return m_snapshotProgress;
+    }
+
+    /**
+     * Returns true if there is a snapshot running at this site and at least
+     * one snapshot buffer is available to serialize more data into.
+     */
+    public boolean hasSnapshotWork() {
+        return (m_snapshotTableTasks != null && !m_availableSnapshotBuffers.isEmpty());
+    }
+
+    /**
+     * Serialize and write out snapshot blocks until either the time budget for this
+     * invocation is used up or all of the snapshot buffers are pending I/O.
+     * Returns the Future for the last block that was handed to a SnapshotDataTarget.
+     */
     public Future<?> doSnapshotWork(ExecutionEngine ee) {
+        return doSnapshotWork(ee, m_workBudget);
+    }
+
+    private Future<?> doSnapshotWork(ExecutionEngine ee, long workBudget) {
         Future<?> retval = null;
 
         /*
@@ -198,12 +268,20 @@ public class SnapshotSiteProcessor {
          * here. If there isn't something is wrong because when the last task
          * is polled cleanup and nulling should occur.
          */
+        final long deadline = System.nanoTime() + workBudget;
         while (!m_snapshotTableTasks.isEmpty()) {
             final SnapshotTableTask currentTask = m_snapshotTableTasks.peek();
             assert(currentTask != null);
             final int headerSize = currentTask.m_target.getHeaderSize();
             final BBContainer snapshotBuffer = m_availableSnapshotBuffers.poll();
-            assert(snapshotBuffer != null);
+            /*
+             * The first buffer is guaranteed by the check above. After that we
+             * stop as soon as all of the buffers are out for I/O.
+             */
+            if (snapshotBuffer == null) {
+                assert(retval != null);
+                break;
+            }
             snapshotBuffer.b.clear();
             snapshotBuffer.b.position(headerSize);
             final int serialized = 0; // FIXME (meng)
@@ -223,6 +301,11 @@ public class SnapshotSiteProcessor {
              */
             if (serialized == 0) {
                 final SnapshotTableTask t = m_snapshotTableTasks.poll();
+                t.m_finished = true;
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(String.format("Finished snapshot of %s [blocks=%d, bytes=%d]",
+                                            t.m_name, t.m_blocksSerialized, t.m_bytesSerialized));
+                }
                 /**
                  * Replicated tables are assigned to a single ES on each site and that ES
                  * is responsible for closing the data target. Done in a separate
@@ -257,8 +340,17 @@ public class SnapshotSiteProcessor {
              */
             snapshotBuffer.b.limit(headerSize + serialized);
             snapshotBuffer.b.position(0);
+            currentTask.m_bytesSerialized += serialized;
+            currentTask.m_blocksSerialized++;
             retval = currentTask.m_target.write(snapshotBuffer);
-            break;
+
+            /*
+             * Go back to executing transactions once we have used up our time.
+             * We will get invoked again when a buffer comes back from the target.
+             */
+            if (workBudget <= 0 || System.nanoTime() >= deadline) {
+                break;
+            }
         }
 
         /**
@@ -321,7 +413,8 @@ public class SnapshotSiteProcessor {
         HashSet<Exception> retval = new HashSet<Exception>();
         m_snapshotTargetTerminators = new ArrayList<Thread>();
         while (m_snapshotTableTasks != null) {
-            Future<?> result = doSnapshotWork(ee);
+            // One block at a time so that we get back every Future
+            Future<?> result = doSnapshotWork(ee, 0);
             if (result != null) {
                 try {
                     result.get();
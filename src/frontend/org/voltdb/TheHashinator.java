@@ -22,6 +22,8 @@ import java.io.UnsupportedEncodingException;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.voltdb.catalog.Catalog;
+import org.voltdb.catalog.CatalogInteger;
+import org.voltdb.catalog.CatalogMap;
 import org.voltdb.catalog.Cluster;
 import org.voltdb.utils.LogKeys;
 import org.voltdb.utils.VoltLoggerFactory;
@@ -32,6 +34,12 @@ import org.voltdb.utils.VoltLoggerFactory;
  */
 public abstract class TheHashinator {
     static int partitionCount;
+    
+    /**
+     * Virtual Bucket Id -> Partition Id
+     * This will be null if the catalog does not have a bucket table.
+     */
+    static int buckets[];
     private static final Logger hostLogger = Logger.getLogger("HOST", VoltLoggerFactory.instance());
 
     /**
@@ -41,6 +49,26 @@ public abstract class TheHashinator {
     public static void initialize(Catalog catalog) {
         Cluster cluster = catalog.getClusters().get("cluster");
         partitionCount = cluster.getNum_partitions();
+        buckets = getBucketTable(cluster);
+    }
+    
+    /**
+     * Return the bucket table from the catalog. The value at each offset
+     * in the array is the partition id for that bucket.
+     * Returns null if the cluster does not have any buckets. 
+     * @param cluster
+     * @return
+     */
+    public static int[] getBucketTable(Cluster cluster) {
+        CatalogMap<CatalogInteger> catalog_buckets = cluster.getBuckets();
+        if (catalog_buckets.isEmpty()) return (null);
+        int table[] = new int[catalog_buckets.size()];
+        for (CatalogInteger catalog_bucket : catalog_buckets) {
+            int bucket = Integer.parseInt(catalog_bucket.getName());
+            assert(bucket >= 0 && bucket < table.length) : "Invalid bucket id " + bucket;
+            table[bucket] = catalog_bucket.getValue();
+        } // FOR
+        return (table);
     }
 
     /**
@@ -92,8 +120,24 @@ public abstract class TheHashinator {
      * @return The id of the partition desired.
      */
     public static int hashToPartition(Object obj) {
+        if (TheHashinator.buckets != null) {
+            return (hashToPartition(obj, TheHashinator.buckets));
+        }
         return (hashToPartition(obj, TheHashinator.partitionCount));
     }
+    
+    /**
+     * Given an object and a bucket table, map the object to a partition.
+     * The object is first hashed to one of the virtual buckets and then the
+     * bucket's entry in the table is the partition id. The EE's TheHashinator
+     * does the exact same thing.
+     * @param obj The object to be mapped to a partition.
+     * @param buckets The partition id for each virtual bucket.
+     * @return The id of the partition desired.
+     */
+    public static int hashToPartition(Object obj, int buckets[]) {
+        return (buckets[hashToPartition(obj, buckets.length)]);
+    }
 
     /**
      * Given an object and a number of partitions, map the object to a partition.
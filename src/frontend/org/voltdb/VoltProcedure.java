@@ -43,6 +43,7 @@ import org.voltdb.catalog.StmtParameter;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.exceptions.ConstraintFailureException;
 import org.voltdb.exceptions.EEException;
+import org.voltdb.exceptions.EvictedTupleAccessException;
 import org.voltdb.exceptions.MispredictionException;
 import org.voltdb.exceptions.SerializableException;
 import org.voltdb.exceptions.ServerFaultException;
@@ -639,6 +640,17 @@ public abstract class VoltProcedure implements Poolable, Loggable {
                 this.status = Status.ABORT_MISPREDICT;
                 this.m_localTxnState.getTouchedPartitions().putHistogram((((MispredictionException)ex).getPartitions()));
 
+            // -------------------------------
+            // EvictedTupleAccessException
+            // -------------------------------
+            } else if (ex_class.equals(EvictedTupleAccessException.class)) {
+                // The PartitionExecutor will restart the txn once the blocks are fetched
+                if (d) LOG.debug(String.format("Caught EvictedTupleAccessException for %s [table=%s, blocks=%s]",
+                                               this.m_currentTxnState, ((EvictedTupleAccessException)ex).getTableName(),
+                                               Arrays.toString(((EvictedTupleAccessException)ex).getBlockIds())));
+                this.status = Status.ABORT_RESTART;
+                this.status_msg = "EVICTED ACCESS: " + ex.getMessage();
+
             // -------------------------------
             // ConstraintFailureException
             // -------------------------------
@@ -742,6 +754,38 @@ public abstract class VoltProcedure implements Poolable, Loggable {
         return (this.catalog_proc);
     }
     
+    /**
+     * Returns the single Statement for a procedure without any Java code.
+     * Returns null if this procedure has Java code
+     * @return
+     */
+    public final SQLStmt getNoJavaStatement() {
+        return (this.procMethodNoJava ? this.m_cachedSingleStmt[0] : null);
+    }
+    
+    /**
+     * For a procedure without any Java code, returns the ParameterSet that its Statement will
+     * be executed with when it is invoked with the given procedure parameters. This does the same
+     * conversions as call() and executeNoJavaProcedure() but does not modify the given array.
+     * Returns null if the parameters are invalid. 
+     * @param paramList
+     * @return
+     */
+    public final ParameterSet getNoJavaParameterSet(Object paramList[]) {
+        assert(this.procMethodNoJava) : "Unexpected call for " + this.procedure_name;
+        if (paramList.length != this.paramTypesLength) return (null);
+        Object args[] = new Object[paramList.length];
+        try {
+            for (int i = 0; i < args.length; i++) {
+                args[i] = tryToMakeCompatible(i, paramList[i]);
+            } // FOR
+            return (getCleanParams(this.m_cachedSingleStmt[0], args));
+        } catch (Exception ex) {
+            if (d) LOG.debug("Invalid parameters for " + this.procedure_name, ex);
+            return (null);
+        }
+    }
+    
     protected final VoltTable executeNoJavaProcedure(Object...params) {
         voltQueueSQL(this.m_cachedSingleStmt[0], params);
         VoltTable result[] = voltExecuteSQL(true);
@@ -908,7 +952,9 @@ public abstract class VoltProcedure implements Poolable, Loggable {
             assert(executor != null);
             executor.loadTable(ts, clusterName, databaseName, tableName, data, allowELT);
         } catch (EEException e) {
-            throw new VoltAbortException("Failed to load table: " + tableName);
+            String msg = "Failed to load table: " + tableName;
+            if (e.getMessage() != null) msg += " - " + e.getMessage();
+            throw new VoltAbortException(msg);
         }
     }
 
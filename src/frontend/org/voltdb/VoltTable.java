@@ -24,12 +24,14 @@ import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.messaging.FastSerializable;
 import org.voltdb.messaging.FastSerializer;
 import org.voltdb.types.TimestampType;
 import org.voltdb.types.VoltDecimalHelper;
+import org.voltdb.utils.DBBPool.BBContainer;
 
 /*
  * The primary representation of a result set (of tuples) or a temporary
@@ -125,6 +127,15 @@ public final class VoltTable extends VoltTableRow implements FastSerializable {
     int m_rowCount = -1;
     int m_colCount = -1;
 
+    /**
+     * The pooled buffer that backs this table. This is null unless the table
+     * was created by {@link #VoltTable(BBContainer, boolean)}
+     */
+    private BBContainer m_container = null;
+    private volatile int m_refCount = 0;
+    private static final AtomicIntegerFieldUpdater<VoltTable> REFCOUNT_UPDATER =
+        AtomicIntegerFieldUpdater.newUpdater(VoltTable.class, "m_refCount");
+
     /**
      * <p>Object that represents the name and schema for a {@link VoltTable} column.
      * Primarily used to construct in the constructor {@link VoltTable#VoltTable(ColumnInfo...)}
@@ -203,6 +214,20 @@ public final class VoltTable extends VoltTableRow implements FastSerializable {
         assert(verifyTableInvariants());
     }
 
+    /**
+     * Create a table from a buffer that was acquired from a DBBPool.
+     * The table starts out with a single reference. The buffer is given back to
+     * its pool once every holder of the table has called {@link #release()}.
+     *
+     * @param container The pooled buffer containing the serialized table.
+     * @param readOnly Can this table be changed?
+     */
+    VoltTable(BBContainer container, boolean readOnly) {
+        this(container.b, readOnly);
+        m_container = container;
+        m_refCount = 1;
+    }
+
     /**
      * Create an empty table from column schema. While {@link #VoltTable(ColumnInfo...)}
      * is the preferred constructor, this version may reduce the need for an array
@@ -328,6 +353,50 @@ public final class VoltTable extends VoltTableRow implements FastSerializable {
         return (m_buffer);
     }
 
+    // ----------------------------------------------------------------------------
+    // POOLED BUFFERS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Returns true if this table is backed by a buffer from a DBBPool
+     * that still needs to be released.
+     */
+    public boolean isPooled() {
+        return (m_container != null);
+    }
+
+    /**
+     * Add a reference to this table's pooled buffer. Anybody that holds on
+     * to this table beyond the lifetime of the transaction that created it
+     * must call this and then call {@link #release()} when it is done.
+     * This is a no-op if the table is not pooled.
+     * @return this table
+     */
+    public VoltTable retain() {
+        if (m_container != null) {
+            int refs = REFCOUNT_UPDATER.incrementAndGet(this);
+            assert(refs > 1) : "Trying to retain a VoltTable that was already released";
+        }
+        return (this);
+    }
+
+    /**
+     * Drop a reference to this table's pooled buffer. Once the last reference
+     * is released, the buffer goes back to its pool and this table can no
+     * longer be used. This is a no-op if the table is not pooled.
+     */
+    public void release() {
+        if (m_container == null) return;
+        int refs = REFCOUNT_UPDATER.decrementAndGet(this);
+        assert(refs >= 0) : "Released a pooled VoltTable too many times";
+        if (refs == 0) {
+            BBContainer container = m_container;
+            m_container = null;
+            m_buffer = null;
+            container.discard();
+        }
+    }
+
     /**
      * Delete all row data. Column data is preserved.
      * Useful for reusing an <tt>VoltTable</tt>.
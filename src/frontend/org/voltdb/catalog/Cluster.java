@@ -33,6 +33,7 @@ public class Cluster extends CatalogType {
     String m_leaderaddress = new String();
     int m_localepoch;
     boolean m_securityEnabled;
+    CatalogMap<CatalogInteger> m_buckets;
 
     void setBaseValues(Catalog catalog, CatalogType parent, String path, String name) {
         super.setBaseValues(catalog, parent, path, name);
@@ -46,6 +47,8 @@ public class Cluster extends CatalogType {
         m_fields.put("leaderaddress", m_leaderaddress);
         m_fields.put("localepoch", m_localepoch);
         m_fields.put("securityEnabled", m_securityEnabled);
+        m_buckets = new CatalogMap<CatalogInteger>(catalog, this, path + "/" + "buckets", CatalogInteger.class);
+        m_childCollections.put("buckets", m_buckets);
     }
 
     public void update() {
@@ -90,6 +93,11 @@ public class Cluster extends CatalogType {
         return m_securityEnabled;
     }
 
+    /** GETTER: The partition that each virtual hash bucket (keyed by its bucket id) is mapped to */
+    public CatalogMap<CatalogInteger> getBuckets() {
+        return m_buckets;
+    }
+
     /** SETTER: The number of partitions in the cluster */
     public void setNum_partitions(int value) {
         m_num_partitions = value; m_fields.put("num_partitions", value);
@@ -37,6 +37,7 @@ public class Statement extends CatalogType {
     boolean m_secondaryindex;
     boolean m_prefetchable;
     boolean m_deferrable;
+    boolean m_cacheable;
     int m_paramnum;
     CatalogMap<StmtParameter> m_parameters;
     CatalogMap<Column> m_output_columns;
@@ -63,6 +64,7 @@ public class Statement extends CatalogType {
         m_fields.put("secondaryindex", m_secondaryindex);
         m_fields.put("prefetchable", m_prefetchable);
         m_fields.put("deferrable", m_deferrable);
+        m_fields.put("cacheable", m_cacheable);
         m_fields.put("paramnum", m_paramnum);
         m_parameters = new CatalogMap<StmtParameter>(catalog, this, path + "/" + "parameters", StmtParameter.class);
         m_childCollections.put("parameters", m_parameters);
@@ -93,6 +95,7 @@ public class Statement extends CatalogType {
         m_secondaryindex = (Boolean) m_fields.get("secondaryindex");
         m_prefetchable = (Boolean) m_fields.get("prefetchable");
         m_deferrable = (Boolean) m_fields.get("deferrable");
+        m_cacheable = (Boolean) m_fields.get("cacheable");
         m_paramnum = (Integer) m_fields.get("paramnum");
         m_has_singlesited = (Boolean) m_fields.get("has_singlesited");
         m_exptree = (String) m_fields.get("exptree");
@@ -155,6 +158,11 @@ public class Statement extends CatalogType {
         return m_deferrable;
     }
 
+    /** GETTER: Whether the results of this read-only query can be cached at a partition and reused by other transactions */
+    public boolean getCacheable() {
+        return m_cacheable;
+    }
+
     public int getParamnum() {
         return m_paramnum;
     }
@@ -266,6 +274,11 @@ public class Statement extends CatalogType {
         m_deferrable = value; m_fields.put("deferrable", value);
     }
 
+    /** SETTER: Whether the results of this read-only query can be cached at a partition and reused by other transactions */
+    public void setCacheable(boolean value) {
+        m_cacheable = value; m_fields.put("cacheable", value);
+    }
+
     public void setParamnum(int value) {
         m_paramnum = value; m_fields.put("paramnum", value);
     }
@@ -49,6 +49,7 @@ import edu.brown.catalog.special.NullProcParameter;
 import edu.brown.hstore.HStoreConstants;
 import edu.brown.hstore.interfaces.Prefetchable;
 import edu.brown.hstore.interfaces.Deferrable;
+import edu.brown.hstore.interfaces.Cacheable;
 import edu.brown.utils.ClassUtil;
 
 /**
@@ -245,6 +246,15 @@ public abstract class ProcedureCompiler {
                     catalogStmt.setDeferrable(true);
                     procedure.setDeferrable(true);
                 }
+                // If this Field has a Cacheable annotation, then its results may be reused
+                // by other transactions. Only read-only Statements can be cached.
+                if (f.getAnnotation(Cacheable.class) != null) {
+                    if (catalogStmt.getReadonly() == false) {
+                        String msg = shortName + "." + f.getName() + ": Only read-only statements can be cacheable";
+                        throw compiler.new VoltCompilerException(msg);
+                    }
+                    catalogStmt.setCacheable(true);
+                }
 
                 // if a single stmt is not read only, then the proc is not read
                 // only
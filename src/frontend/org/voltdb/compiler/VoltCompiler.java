@@ -86,6 +86,7 @@ import org.voltdb.sysprocs.DatabaseDump;
 import org.voltdb.sysprocs.ExecutorStatus;
 import org.voltdb.sysprocs.GarbageCollection;
 import org.voltdb.sysprocs.GetCatalog;
+import org.voltdb.sysprocs.Latencies;
 import org.voltdb.sysprocs.LoadMultipartitionTable;
 import org.voltdb.sysprocs.NoOp;
 import org.voltdb.sysprocs.RecomputeMarkovs;
@@ -1236,6 +1237,7 @@ public class VoltCompiler {
             {ResetProfiling.class,                      true,       true},
             {ExecutorStatus.class,                  true,       false},
             {GetCatalog.class,                      true,       false},
+            {Latencies.class,                       true,       true},
             {SnapshotSave.class,                    false,      true},
             {SnapshotRestore.class,                 false,      true},
             {SnapshotStatus.class,                  false,      true},
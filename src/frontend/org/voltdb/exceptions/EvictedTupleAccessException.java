@@ -3,6 +3,9 @@ package org.voltdb.exceptions;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializer;
+
 /**
  * Special exception that is thrown by the EE when as transaction
  * tries to access one or more tuples that have been evicted.
@@ -12,6 +15,7 @@ public class EvictedTupleAccessException extends SerializableException {
 
     public static final long serialVersionUID = 0L;
 
+    public final String table_name;
     public final int[] block_ids;
     
     /**
@@ -21,14 +25,26 @@ public class EvictedTupleAccessException extends SerializableException {
     public EvictedTupleAccessException(ByteBuffer buffer) {
         super(buffer);
         
-        final int num_blocks = buffer.getShort();
+        try {
+            this.table_name = FastDeserializer.readString(buffer);
+        } catch (IOException ex) {
+            throw new ServerFaultException("Unexpected error when deserializing exception from EE", ex);
+        }
+        final int num_blocks = buffer.getInt();
         assert(num_blocks > 0);
         this.block_ids = new int[num_blocks];
         for (int i = 0; i < this.block_ids.length; i++) {
-            this.block_ids[i] = buffer.getShort();
+            this.block_ids[i] = buffer.getInt();
         } // FOR
     }
 
+    /**
+     * Retrieve the name of the table that the evicted blocks belong to.
+     */
+    public String getTableName() {
+        return (this.table_name);
+    }
+    
     /**
      * Retrieve the block ids that the txn tried to access that generated this exception.
      */
@@ -41,20 +57,22 @@ public class EvictedTupleAccessException extends SerializableException {
      */
     @Override
     protected int p_getSerializedSize() {
+        // string prefix + string length +
         // # of block_ids + 
-        // (2 * # of block_ids)
-        return (2 + (2 * this.block_ids.length));
+        // (4 * # of block_ids)
+        return (4 + this.table_name.length() + 4 + (4 * this.block_ids.length));
     }
 
     /**
-     * Serialize the five character SQLState to the provided ByteBuffer
+     * Serialize the table name and the evicted block ids to the provided ByteBuffer
      * @throws IOException
      */
     @Override
     protected void p_serializeToBuffer(ByteBuffer b) throws IOException {
-        b.putShort((short)this.block_ids.length);
+        FastSerializer.writeString(this.table_name, b);
+        b.putInt(this.block_ids.length);
         for (int block_id : this.block_ids) {
-            b.putShort((short)block_id);
+            b.putInt(block_id);
         }
     }
 
@@ -20,6 +20,7 @@ package org.voltdb.jni;
 import java.io.File;
 import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -34,9 +35,11 @@ import org.voltdb.SysProcSelector;
 import org.voltdb.TableStreamType;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltTable;
+import org.voltdb.catalog.Table;
 import org.voltdb.exceptions.EEException;
 import org.voltdb.export.ExportProtoMessage;
 import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.utils.DBBPool;
 import org.voltdb.utils.DBBPool.BBContainer;
 import org.voltdb.utils.LogKeys;
 import org.voltdb.utils.VoltLoggerFactory;
@@ -62,6 +65,9 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
     
     // Whether the anti-cache feature is enabled
     protected boolean m_anticache;
+    
+    // Where to allocate the buffers for output VoltTables (null means the heap)
+    protected DBBPool m_resultPool;
 
     /** Error codes exported for JNI methods. */
     public static final int ERRORCODE_SUCCESS = 0;
@@ -82,6 +88,16 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
     public boolean getDirtyStatus() {
         return m_dirty;
     }
+    
+    /**
+     * Copy the output VoltTables of PlanFragments into buffers from the given pool
+     * instead of the heap. The caller is responsible for releasing these tables.
+     * @param pool If null, then output VoltTables are allocated on the heap
+     * @see VoltTable#release()
+     */
+    public void setResultBufferPool(DBBPool pool) {
+        m_resultPool = pool;
+    }
 
     /** Utility method to verify return code and throw as required */
     final protected void checkErrorCode(final int errorCode) {
@@ -258,9 +274,14 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
                                            vt.getRowCount(),
                                            vt.getColumnCount(),
                                            vt.getUnderlyingBufferSize(),
-                                           buffer.array().length,
+                                           buffer.limit(),
                                            vt.toString()));
-            assert(buffer.hasArray());
+            // Pooled tables are not backed by an array, so we have to copy them out
+            if (buffer.hasArray() == false) {
+                byte arr[] = new byte[buffer.limit()];
+                vt.getTableDataReference().get(arr);
+                return (arr);
+            }
             return (buffer.array());
         }
         // Note that we will hit this after retrieving all the VoltTables for the given dependencyId
@@ -352,6 +373,51 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
         return (dset.dependencies);
     }
 
+    /**
+     * Run the query plan fragments for several independent transactions. Each
+     * transaction has its own undo token and gets its own DependencySet. The
+     * transactions are executed in order and we stop at the first one that fails,
+     * since undoing it would also undo everything executed after it.
+     * The DependencySet for each transaction that succeeded is stored in results
+     * and then the error for the transaction that failed is thrown.
+     * <B>NOTE:</B> The ExecutionEngineJNI does this in a single call into the EE.
+     * @param numTxns
+     * @param txnIds
+     * @param undoTokens
+     * @param fragmentCounts The number of PlanFragments for each transaction 
+     * @param planFragmentIds The PlanFragments for all of the transactions
+     * @param input_depIds
+     * @param output_depIds
+     * @param parameterSets
+     * @param lastCommittedTxnId
+     * @param results
+     * @throws EEException
+     */
+    public void executeTransactionBatch(int numTxns,
+                                        long txnIds[],
+                                        long undoTokens[],
+                                        int fragmentCounts[],
+                                        long planFragmentIds[],
+                                        int input_depIds[],
+                                        int output_depIds[],
+                                        ParameterSet parameterSets[],
+                                        long lastCommittedTxnId,
+                                        DependencySet results[]) throws EEException {
+        int offset = 0;
+        for (int i = 0; i < numTxns; i++) {
+            int cnt = fragmentCounts[i];
+            results[i] = this.executeQueryPlanFragmentsAndGetDependencySet(
+                                Arrays.copyOfRange(planFragmentIds, offset, offset + cnt),
+                                cnt,
+                                Arrays.copyOfRange(input_depIds, offset, offset + cnt),
+                                Arrays.copyOfRange(output_depIds, offset, offset + cnt),
+                                Arrays.copyOfRange(parameterSets, offset, offset + cnt),
+                                cnt,
+                                txnIds[i], lastCommittedTxnId, undoTokens[i]);
+            offset += cnt;
+        } // FOR
+    }
+
     /**
      * Initialize anti-caching at this partition's EE.
      * <B>NOTE:</B> This must be invoked before loadCatalog is invoked
@@ -360,6 +426,24 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     public abstract void initializeAntiCache(File dbDir) throws EEException;
     
+    /**
+     * Evict the least recently accessed blocks of the given table to the anti-cache.
+     * Returns the number of bytes that were actually evicted.
+     * @param catalog_tbl
+     * @param block_size The number of bytes that should be evicted
+     * @throws EEException
+     */
+    public abstract long antiCacheEvictBlock(Table catalog_tbl, long block_size) throws EEException;
+    
+    /**
+     * Read the given evicted blocks of a table back in from the anti-cache.
+     * Returns the number of bytes that were read back in.
+     * @param catalog_tbl
+     * @param block_ids
+     * @throws EEException
+     */
+    public abstract long antiCacheReadBlocks(Table catalog_tbl, int block_ids[]) throws EEException;
+    
     /** Used for test code only (AFAIK jhugg) */
     abstract public VoltTable serializeTable(int tableId) throws EEException;
 
@@ -367,6 +451,19 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
         int tableId, VoltTable table, long txnId,
         long lastCommittedTxnId, long undoToken, boolean allowExport) throws EEException;
 
+    /**
+     * Switch a table in or out of bulk-load mode. While it is on, loadTable()
+     * only appends the tuples to the table and leaves its indexes alone.
+     * Switching it off builds each index in one sorted pass over everything
+     * that was loaded and checks the table's constraints for the whole batch.
+     * The table must not be touched by anything other than loadTable() while
+     * it is in bulk-load mode.
+     * @param tableId catalog ID of the table
+     * @param enable
+     * @throws EEException if the loaded tuples violate a constraint
+     */
+    abstract public void setBulkLoad(int tableId, boolean enable) throws EEException;
+
     /**
      * Set the log levels to be used when logging in this engine
      * @param logLevels Levels to set
@@ -517,6 +614,24 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     protected native int nativeInitializeAntiCache(long pointer, String dbDir);
     
+    /**
+     * Evict the coldest blocks of the given table to the anti-cache
+     * @param pointer
+     * @param tableId
+     * @param blockSize
+     * @return the number of bytes that were evicted
+     */
+    protected native long nativeAntiCacheEvictBlock(long pointer, int tableId, long blockSize);
+    
+    /**
+     * Read the given evicted blocks of a table back in from the anti-cache
+     * @param pointer
+     * @param tableId
+     * @param blockIds
+     * @return the number of bytes that were read back in
+     */
+    protected native long nativeAntiCacheReadBlocks(long pointer, int tableId, int blockIds[]);
+    
     /**
      * Load the system catalog for this engine.
      * @param pointer the VoltDBEngine pointer
@@ -547,6 +662,15 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
     protected native int nativeLoadTable(long pointer, int table_id, byte[] serialized_table,
             long txnId, long lastCommittedTxnId, long undoToken, boolean allowExport);
 
+    /**
+     * Switch a table in or out of bulk-load mode.
+     * @param pointer the VoltDBEngine pointer
+     * @param table_id catalog ID of the table
+     * @param enable
+     * @return error code
+     */
+    protected native int nativeSetBulkLoad(long pointer, int table_id, boolean enable);
+
     //Execution
 
     /**
@@ -573,6 +697,21 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
             int[] outputDepIds,
             long txnId, long lastCommittedTxnId, long undoToken);
 
+    /**
+     * Executes the plan fragments for several independent transactions.
+     * @param pointer the VoltDBEngine pointer
+     * @param numTxns the number of transactions in the batch
+     * @param fragmentCounts the number of plan fragments for each transaction
+     * @param planFragmentIds the plan fragments for all of the transactions
+     * @return the number of transactions that executed successfully
+     */
+    protected native int nativeExecuteTransactionBatch(long pointer, int numTxns,
+            long[] txnIds, long[] undoTokens, int[] fragmentCounts,
+            long[] planFragmentIds,
+            int[] input_depIds,
+            int[] outputDepIds,
+            long lastCommittedTxnId);
+
     /**
      * Serialize the result temporary table.
      * @param pointer the VoltDBEngine pointer
@@ -43,6 +43,7 @@ import org.voltdb.SysProcSelector;
 import org.voltdb.TableStreamType;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltTable;
+import org.voltdb.catalog.Table;
 import org.voltdb.exceptions.EEException;
 import org.voltdb.exceptions.SerializableException;
 import org.voltdb.export.ExportProtoMessage;
@@ -131,7 +132,8 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         ExportAction(20),
         RecoveryMessage(21),
         TableHashCode(22),
-        Hashinate(23);
+        Hashinate(23),
+        SetBulkLoad(24);
         Commands(final int id) {
             m_id = id;
         }
@@ -1067,6 +1069,27 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         }
     }
 
+    @Override
+    public void setBulkLoad(final int tableId, final boolean enable) throws EEException {
+        int result = ExecutionEngine.ERRORCODE_ERROR;
+        m_data.clear();
+        m_data.putInt(Commands.SetBulkLoad.m_id);
+        m_data.putInt(tableId);
+        m_data.put((byte) (enable ? 1 : 0));
+        try {
+            m_data.flip();
+            m_connection.write();
+            result = m_connection.readStatusByte();
+        } catch (final IOException e) {
+            System.out.println("Exception: " + e.getMessage());
+            throw new RuntimeException(e);
+        }
+        if (result != ExecutionEngine.ERRORCODE_SUCCESS) {
+            // The EE always sends back the (possibly empty) exception that caused this
+            throwExceptionForError(result);
+        }
+    }
+
     @Override
     public VoltTable[] getStats(
             final SysProcSelector selector,
@@ -1464,4 +1487,14 @@ public class ExecutionEngineIPC extends ExecutionEngine {
     public void initializeAntiCache(File dbFilePath) throws EEException {
         throw new NotImplementedException("Anti-Caching is disabled for IPC ExecutionEngine");
     }
+    
+    @Override
+    public long antiCacheEvictBlock(Table catalog_tbl, long block_size) throws EEException {
+        throw new NotImplementedException("Anti-Caching is disabled for IPC ExecutionEngine");
+    }
+    
+    @Override
+    public long antiCacheReadBlocks(Table catalog_tbl, int block_ids[]) throws EEException {
+        throw new NotImplementedException("Anti-Caching is disabled for IPC ExecutionEngine");
+    }
 }
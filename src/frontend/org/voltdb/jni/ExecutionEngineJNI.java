@@ -30,12 +30,14 @@ import org.voltdb.PrivateVoltTableFactory;
 import org.voltdb.SysProcSelector;
 import org.voltdb.TableStreamType;
 import org.voltdb.VoltTable;
+import org.voltdb.catalog.Table;
 import org.voltdb.exceptions.EEException;
 import org.voltdb.exceptions.SerializableException;
 import org.voltdb.export.ExportProtoMessage;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.messaging.FastSerializer;
 import org.voltdb.messaging.FastSerializer.BufferGrowCallback;
+import org.voltdb.utils.DBBPool;
 import org.voltdb.utils.DBBPool.BBContainer;
 
 import edu.brown.hstore.HStoreConstants;
@@ -197,6 +199,22 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         m_anticache = true;
     }
     
+    @Override
+    public long antiCacheEvictBlock(Table catalog_tbl, long block_size) throws EEException {
+        assert(m_anticache) : "Trying to evict blocks when anti-caching is disabled";
+        if (d) LOG.debug(String.format("Evicting %d bytes from %s at partition %d",
+                                       block_size, catalog_tbl.getName(), this.site.getPartitionId()));
+        return (nativeAntiCacheEvictBlock(pointer, catalog_tbl.getRelativeIndex(), block_size));
+    }
+    
+    @Override
+    public long antiCacheReadBlocks(Table catalog_tbl, int block_ids[]) throws EEException {
+        assert(m_anticache) : "Trying to read evicted blocks when anti-caching is disabled";
+        if (d) LOG.debug(String.format("Reading evicted blocks %s for %s at partition %d",
+                                       Arrays.toString(block_ids), catalog_tbl.getName(), this.site.getPartitionId()));
+        return (nativeAntiCacheReadBlocks(pointer, catalog_tbl.getRelativeIndex(), block_ids));
+    }
+    
     /**
      *  Provide a serialized catalog and initialize version 0 of the engine's
      *  catalog.
@@ -361,58 +379,142 @@ public class ExecutionEngineJNI extends ExecutionEngine {
 
         // get a copy of the result buffers and make the tables use the copy
         ByteBuffer fullBacking = deserializer.buffer();
+        m_dirty = false;
         try {
-            // read the complete size of the buffer used
-            fullBacking.getInt();
-            // check if anything was changed
-            m_dirty = (fullBacking.get() == 1 ? true : false);
-
-            // get a copy of the buffer
-            // Because this is a copy, that means we don't have to worry about the EE overwriting us
-            // Not sure of the implications for performance.
-             // deserializer.readBuffer(totalSize);
+            return (this.readDependencySet(fullBacking, txnId, planFragmentIds, output_depIds, 0, batchSize));
+        } catch (Throwable ex) {
+            LOG.error("Failed to deserialze result table" + ex);
+            throw new EEException(ERRORCODE_WRONG_SERIALIZED_BYTES);
+        }
+    }
+    
+    @Override
+    public void executeTransactionBatch(int numTxns,
+                                        long txnIds[],
+                                        long undoTokens[],
+                                        int fragmentCounts[],
+                                        long planFragmentIds[],
+                                        int input_depIds[],
+                                        int output_depIds[],
+                                        ParameterSet parameterSets[],
+                                        long lastCommittedTxnId,
+                                        DependencySet results[]) throws EEException {
+        int numFragments = 0;
+        for (int i = 0; i < numTxns; i++) {
+            numFragments += fragmentCounts[i];
+        } // FOR
+        
+        // serialize the param sets for all of the txns
+        fsForParameterSet.clear();
+        try {
+            for (int i = 0; i < numFragments; ++i) {
+                parameterSets[i].writeExternal(fsForParameterSet);
+            }
+        } catch (final IOException exception) {
+            throw new RuntimeException(exception); // can't happen
+        }
+        
+        deserializer.clear();
+        final int executed = nativeExecuteTransactionBatch(pointer, numTxns,
+                                                           txnIds, undoTokens, fragmentCounts,
+                                                           planFragmentIds,
+                                                           input_depIds,
+                                                           output_depIds,
+                                                           lastCommittedTxnId);
+        if (d) LOG.debug(String.format("Executed %d/%d txns in batch", executed, numTxns));
+        
+        // The results for each txn that succeeded come back one after another
+        ByteBuffer fullBacking = deserializer.buffer();
+        m_dirty = false;
+        int offset = 0;
+        try {
+            for (int i = 0; i < executed; i++) {
+                results[i] = this.readDependencySet(fullBacking, txnIds[i], planFragmentIds, output_depIds, offset, fragmentCounts[i]);
+                offset += fragmentCounts[i];
+            } // FOR
+        } catch (Throwable ex) {
+            LOG.error("Failed to deserialze result table" + ex);
+            throw new EEException(ERRORCODE_WRONG_SERIALIZED_BYTES);
+        }
+        
+        // The error for the txn that failed is waiting for us in the exception buffer
+        if (executed < numTxns) {
+            throwExceptionForError(ERRORCODE_ERROR);
+        }
+    }
+    
+    /**
+     * Read the output dependencies for one batch of PlanFragments out of the given buffer
+     * @param fullBacking
+     * @param txnId
+     * @param planFragmentIds
+     * @param output_depIds
+     * @param offset The offset of the batch's first PlanFragment in planFragmentIds
+     * @param batchSize
+     * @return
+     */
+    private DependencySet readDependencySet(ByteBuffer fullBacking, long txnId,
+                                            long planFragmentIds[], int output_depIds[],
+                                            int offset, int batchSize) {
+        // read the complete size of the buffer used
+        fullBacking.getInt();
+        // check if anything was changed
+        if (fullBacking.get() == 1) m_dirty = true;
+
+        // get a copy of the buffer
+        // Because this is a copy, that means we don't have to worry about the EE overwriting us
+        // Not sure of the implications for performance.
+        // deserializer.readBuffer(totalSize);
+        
+        // At this point we don't know how many dependencies we expect to get back from our fragments.
+        // We're just going to assume that each PlanFragment generated one and only one output dependency
+        VoltTable results[] = new VoltTable[batchSize];
+        int dependencies[] = new int[batchSize];
+        int dep_ctr = 0;
+        for (int i = 0; i < batchSize; ++i) {
+            int numDependencies = fullBacking.getInt(); // number of dependencies for this frag
+            assert(numDependencies == 1) :
+                "Unexpected multiple output dependencies from PlanFragment #" + planFragmentIds[offset + i];
             
-            // At this point we don't know how many dependencies we expect to get back from our fragments.
-            // We're just going to assume that each PlanFragment generated one and only one output dependency
-            VoltTable results[] = new VoltTable[batchSize];
-            int dependencies[] = new int[batchSize];
-            int dep_ctr = 0;
-            for (int i = 0; i < batchSize; ++i) {
-                int numDependencies = fullBacking.getInt(); // number of dependencies for this frag
-                assert(numDependencies == 1) :
-                    "Unexpected multiple output dependencies from PlanFragment #" + planFragmentIds[i];
+            // PAVLO: Since we can't pass the dependency ids using nativeExecuteQueryPlanFragmentsAndGetResults(),
+            // the results will come back without a dependency id. So we have to just assume
+            // that the frags were executed in the order that we passed to the EE and that we
+            // can just use the list of output_depIds that we have 
+            for (int ii = 0; ii < numDependencies; ++ii) {
+                assert(offset + dep_ctr < output_depIds.length) : 
+                    "Trying to get depId #" + (offset + dep_ctr) + ": " + Arrays.toString(output_depIds);
+                fullBacking.getInt(); // IGNORE 
+                int depid = output_depIds[offset + dep_ctr];
+                assert(depid >= 0);
+                
+                int tableSize = fullBacking.getInt();
+                assert(tableSize < 10000000);
                 
-                // PAVLO: Since we can't pass the dependency ids using nativeExecuteQueryPlanFragmentsAndGetResults(),
-                // the results will come back without a dependency id. So we have to just assume
-                // that the frags were executed in the order that we passed to the EE and that we
-                // can just use the list of output_depIds that we have 
-                for (int ii = 0; ii < numDependencies; ++ii) {
-                    assert(dep_ctr < output_depIds.length) : 
-                        "Trying to get depId #" + dep_ctr + ": " + Arrays.toString(output_depIds);
-                    fullBacking.getInt(); // IGNORE 
-                    int depid = output_depIds[dep_ctr];
-                    assert(depid >= 0);
-                    
-                    int tableSize = fullBacking.getInt();
-                    assert(tableSize < 10000000);
+                // Copy the table into a pooled buffer if we can so that we don't
+                // create more garbage for every query result
+                if (m_resultPool != null && tableSize > 0 && tableSize <= DBBPool.MAX_ALLOCATION_SIZE) {
+                    BBContainer bc = m_resultPool.acquire(tableSize);
+                    ByteBuffer tableBytes = fullBacking.duplicate();
+                    tableBytes.limit(tableBytes.position() + tableSize);
+                    bc.b.clear();
+                    bc.b.put(tableBytes);
+                    bc.b.flip();
+                    fullBacking.position(fullBacking.position() + tableSize);
+                    results[dep_ctr] = PrivateVoltTableFactory.createVoltTableFromContainer(bc, true);
+                } else {
                     byte tableBytes[] = new byte[tableSize];
                     fullBacking.get(tableBytes, 0, tableSize);
                     final ByteBuffer tableBacking = ByteBuffer.wrap(tableBytes);
-//                    fullBacking.position(fullBacking.position() + tableSize);
-
                     results[dep_ctr] = PrivateVoltTableFactory.createVoltTableFromBuffer(tableBacking, true);
-                    dependencies[dep_ctr] = depid;
-                    if (d) LOG.debug(String.format("%d - New output VoltTable for DependencyId %d [origTableSize=%d]\n%s",
-                                                   txnId, depid, tableSize, results[dep_ctr].toString())); 
-                    dep_ctr++;
-                } // FOR
+                }
+                dependencies[dep_ctr] = depid;
+                if (d) LOG.debug(String.format("%d - New output VoltTable for DependencyId %d [origTableSize=%d]\n%s",
+                                               txnId, depid, tableSize, results[dep_ctr].toString())); 
+                dep_ctr++;
             } // FOR
-            
-            return (new DependencySet(dependencies, results));
-        } catch (Throwable ex) {
-            LOG.error("Failed to deserialze result table" + ex);
-            throw new EEException(ERRORCODE_WRONG_SERIALIZED_BYTES);
-        }
+        } // FOR
+        
+        return (new DependencySet(dependencies, results));
     }
     
 //    @Override
@@ -462,7 +564,14 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         final long txnId, final long lastCommittedTxnId,
         final long undoToken, boolean allowExport) throws EEException
     {
-        byte[] serialized_table = table.getTableDataReference().array();
+        ByteBuffer buffer = table.getTableDataReference();
+        byte[] serialized_table = null;
+        if (buffer.hasArray()) {
+            serialized_table = buffer.array();
+        } else {
+            serialized_table = new byte[buffer.limit()];
+            buffer.get(serialized_table);
+        }
         if (t) LOG.trace(String.format("Passing table into EE [id=%d, bytes=%s]", tableId, serialized_table.length));
 
         final int errorCode = nativeLoadTable(pointer, tableId, serialized_table,
@@ -471,6 +580,14 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         checkErrorCode(errorCode);
     }
 
+    @Override
+    public void setBulkLoad(final int tableId, final boolean enable) throws EEException {
+        if (d) LOG.debug(String.format("%s bulk-load mode for table #%d",
+                                       (enable ? "Enabling" : "Disabling"), tableId));
+        final int errorCode = nativeSetBulkLoad(pointer, tableId, enable);
+        checkErrorCode(errorCode);
+    }
+
     /**
      * This method should be called roughly every second. It allows the EE
      * to do periodic non-transactional work.
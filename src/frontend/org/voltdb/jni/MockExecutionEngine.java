@@ -27,6 +27,7 @@ import org.voltdb.TableStreamType;
 import org.voltdb.VoltTable;
 import org.voltdb.VoltTable.ColumnInfo;
 import org.voltdb.VoltType;
+import org.voltdb.catalog.Table;
 import org.voltdb.exceptions.EEException;
 import org.voltdb.export.ExportProtoMessage;
 import org.voltdb.utils.DBBPool.BBContainer;
@@ -106,6 +107,11 @@ public class MockExecutionEngine extends ExecutionEngine {
         // TODO Auto-generated method stub
     }
 
+    @Override
+    public void setBulkLoad(final int tableId, final boolean enable) throws EEException {
+        // Nothing to do
+    }
+
     @Override
     public void release() throws EEException {
         // TODO Auto-generated method stub
@@ -195,4 +201,16 @@ public class MockExecutionEngine extends ExecutionEngine {
         // TODO Auto-generated method stub
         
     }
+
+    @Override
+    public long antiCacheEvictBlock(Table catalog_tbl, long block_size) throws EEException {
+        // TODO Auto-generated method stub
+        return 0;
+    }
+
+    @Override
+    public long antiCacheReadBlocks(Table catalog_tbl, int block_ids[]) throws EEException {
+        // TODO Auto-generated method stub
+        return 0;
+    }
 }
@@ -82,31 +82,260 @@ import org.voltdb.utils.EstTimeUpdater;
 import org.voltdb.utils.Pair;
 import org.voltdb.utils.VoltLoggerFactory;
 
-/** Produces work for registered ports that are selected for read, write */
+/**
+ * Produces work for registered ports that are selected for read, write.
+ * Connections are spread over one or more SelectorThreads. Each one has its own
+ * Selector and its own list of pending interest changes, so reads, message framing,
+ * and write scheduling for a connection only ever contend with the other connections
+ * on the same selector. The first SelectorThread runs on the thread that invokes run().
+ */
  public class VoltNetwork implements Runnable {
     
     private static final Logger m_logger = Logger.getLogger(VoltNetwork.class);
     private static final Logger networkLog =
         Logger.getLogger("NETWORK", VoltLoggerFactory.instance());
     
-    private final Selector m_selector;
+    private final SelectorThread m_selectors[];
     private final ArrayDeque<Runnable> m_tasks = new ArrayDeque<Runnable>();
-    // keep two lists and swap them in and out to minimize contention
-    private final ArrayDeque<VoltPort> m_selectorUpdates_1 = new ArrayDeque<VoltPort>();//Used as the lock for swapping lists
-    private final ArrayDeque<VoltPort> m_selectorUpdates_2 = new ArrayDeque<VoltPort>();
-    private ArrayDeque<VoltPort> m_activeUpdateList = m_selectorUpdates_1;
     private volatile boolean m_shouldStop = false;//volatile boolean is sufficient
     private final Thread m_thread;
-    private final HashSet<VoltPort> m_ports = new HashSet<VoltPort>();
     private final boolean m_useBlockingSelect;
     private final boolean m_useExecutorService;
     private final ArrayList<WeakReference<Thread>> m_networkThreads = new ArrayList<WeakReference<Thread>>();
     private final ArrayList<DBBPool> m_poolsToClearOnShutdown = new ArrayList<DBBPool>();
 
     /**
-     * Synchronizes registration and unregistration of channels
+     * A Selector along with the ports that are registered with it
      */
-    private final ReentrantReadWriteLock m_registrationLock = new ReentrantReadWriteLock();
+    public class SelectorThread implements Runnable {
+        private final int m_index;
+        private final Selector m_selector;
+        // keep two lists and swap them in and out to minimize contention
+        private final ArrayDeque<VoltPort> m_selectorUpdates_1 = new ArrayDeque<VoltPort>();//Used as the lock for swapping lists
+        private final ArrayDeque<VoltPort> m_selectorUpdates_2 = new ArrayDeque<VoltPort>();
+        private ArrayDeque<VoltPort> m_activeUpdateList = m_selectorUpdates_1;
+        private final HashSet<VoltPort> m_ports = new HashSet<VoltPort>();
+
+        /**
+         * Synchronizes registration and unregistration of channels
+         */
+        private final ReentrantReadWriteLock m_registrationLock = new ReentrantReadWriteLock();
+
+        // Load counters. These are only written by the thread running this selector.
+        private volatile long m_selectCount = 0;
+        private volatile long m_selectedKeyCount = 0;
+        private volatile long m_busyNanos = 0;
+        private volatile long m_idleNanos = 0;
+
+        private SelectorThread(int index, Selector selector) {
+            m_index = index;
+            m_selector = selector;
+        }
+
+        @Override
+        public void run() {
+            while (m_shouldStop == false) {
+                try {
+                    while (m_shouldStop == false) {
+                        waitForRegistrationLock();
+                        final long start = System.nanoTime();
+                        if (m_useBlockingSelect) {
+                            m_selector.select(5);
+                        } else {
+                            m_selector.selectNow();
+                        }
+                        final long selected = System.nanoTime();
+                        installInterests();
+                        invokeCallbacks();
+                        if (m_index == 0) {
+                            EstTimeUpdater.update(System.currentTimeMillis());
+                        }
+                        m_selectCount++;
+                        m_idleNanos += (selected - start);
+                        m_busyNanos += (System.nanoTime() - selected);
+                    }
+                } catch (Exception ex) {
+                    m_logger.error(null, ex);
+                }
+            }
+        }
+
+        /**
+         * Lock that causes the selection thread to wait for all threads that
+         * are in the process of registering or unregistering channels to finish
+         */
+        private void waitForRegistrationLock() {
+            m_registrationLock.writeLock().lock();
+            m_registrationLock.writeLock().unlock();
+        }
+
+        /**
+         * Acquire a lock that stops the selection thread while a channel is being registered/unregistered
+         */
+        private void acquireRegistrationLock() {
+            m_registrationLock.readLock().lock();
+            m_selector.wakeup();
+        }
+
+        /**
+         * Release a lock that stops the selection thread while a channel is being registered/unregistered
+         */
+        private void releaseRegistrationLock() {
+            m_registrationLock.readLock().unlock();
+        }
+
+        private void addToChangeList(VoltPort port) {
+            synchronized (m_selectorUpdates_1) {
+                m_activeUpdateList.add(port);
+            }
+            if (m_useBlockingSelect) {
+                m_selector.wakeup();
+            }
+        }
+
+        private void installInterests() {
+            // swap the update lists to avoid contention while
+            // draining the requested values. also guarantees
+            // that the end of the list will be reached if code
+            // appends to the update list without bound.
+            ArrayDeque<VoltPort> oldlist;
+            synchronized(m_selectorUpdates_1) {
+                if (m_activeUpdateList == m_selectorUpdates_1) {
+                    oldlist = m_selectorUpdates_1;
+                    m_activeUpdateList = m_selectorUpdates_2;
+                }
+                else {
+                    oldlist = m_selectorUpdates_2;
+                    m_activeUpdateList = m_selectorUpdates_1;
+                }
+            }
+
+            while (!oldlist.isEmpty()) {
+                final VoltPort port = oldlist.poll();
+                if (port.isRunning()) {
+                    continue;
+                }
+                if (port.isDead()) {
+                    unregisterChannel(port);
+                    try {
+                        port.m_selectionKey.channel().close();
+                    } catch (IOException e) {}
+                } else if (port.hasQueuedRunnables()) {
+                    port.lockForHandlingWork();
+                    port.getKey().interestOps(0);
+                    m_selector.selectedKeys().remove(port.getKey());
+                    synchronized (m_tasks) {
+                        m_tasks.offer(getPortCallRunnable(port));
+                        m_tasks.notify();
+                    }
+                } else {
+                    resumeSelection(port);
+                }
+            }
+        }
+
+        private void resumeSelection(VoltPort port) {
+            SelectionKey key = port.getKey();
+
+            if (key.isValid()) {
+                key.interestOps (port.interestOps());
+            } else {
+                synchronized (m_ports) {
+                    m_ports.remove(port);
+                }
+            }
+        }
+
+        /** Set the selected interest set on the port and run it. */
+        private void invokeCallbacks() {
+            final Set<SelectionKey> selectedKeys = m_selector.selectedKeys();
+            final ArrayList<Runnable> generatedTasks = new ArrayList<Runnable>();
+            for(SelectionKey key : selectedKeys) {
+                final VoltPort port = (VoltPort) key.attachment();
+                if (port == null) {
+                    continue;
+                }
+                m_selectedKeyCount++;
+                try {
+                    port.lockForHandlingWork();
+                    key.interestOps(0);
+
+                    final Runnable runner = getPortCallRunnable(port);
+
+                    if (m_useExecutorService) {
+                        generatedTasks.add(runner);
+                    } else {
+                        runner.run();
+                    }
+                }
+                catch (CancelledKeyException e) {
+                    e.printStackTrace();
+                    // no need to do anything here until
+                    // shutdown makes more sense
+                }
+            }
+
+            if (!generatedTasks.isEmpty()) {
+                synchronized (m_tasks) {
+                    m_tasks.addAll(generatedTasks);
+                    if (m_tasks.size() > 1) {
+                        m_tasks.notifyAll();
+                    } else {
+                        m_tasks.notify();
+                    }
+                }
+            }
+
+            selectedKeys.clear();
+        }
+
+        private void close() {
+            Set<SelectionKey> keys = m_selector.keys();
+
+            for (SelectionKey key : keys) {
+                VoltPort port = (VoltPort) key.attachment();
+                if (port != null) {
+                    unregisterChannel (port);
+                }
+            }
+
+            try {
+                m_selector.close();
+            } catch (IOException e) {
+                m_logger.error(null, e);
+            }
+        }
+
+        // ----------------------------------------------------------------------------
+        // LOAD METHODS
+        // ----------------------------------------------------------------------------
+
+        public int getIndex() {
+            return (m_index);
+        }
+        /** The number of connections that are registered with this selector */
+        public int getConnectionCount() {
+            synchronized (m_ports) {
+                return (m_ports.size());
+            }
+        }
+        /** The number of times that this selector has been polled */
+        public long getSelectCount() {
+            return (m_selectCount);
+        }
+        /** The number of ready connections that this selector has dispatched */
+        public long getSelectedKeyCount() {
+            return (m_selectedKeyCount);
+        }
+        /** The amount of time spent handling the selected connections (nanoseconds) */
+        public long getBusyTime() {
+            return (m_busyNanos);
+        }
+        /** The amount of time spent waiting in select (nanoseconds) */
+        public long getIdleTime() {
+            return (m_idleNanos);
+        }
+    }
 
     /**
      * Start this VoltNetwork's thread;
@@ -118,7 +347,7 @@ import org.voltdb.utils.VoltLoggerFactory;
     /** Used for test only! */
     public VoltNetwork(Selector selector) {
         m_thread = null;
-        m_selector = selector;
+        m_selectors = new SelectorThread[] { new SelectorThread(0, selector) };
         m_useBlockingSelect = true;
         m_useExecutorService = false;
     }
@@ -127,23 +356,35 @@ import org.voltdb.utils.VoltLoggerFactory;
         this( true, true, null);
     }
 
+    public VoltNetwork(boolean useExecutorService, boolean blockingSelect, Integer threads) {
+        this(useExecutorService, blockingSelect, threads, 1);
+    }
+
     /**
-     * Initialize a m_selector and become ready to perform real work
+     * Initialize the selectors and become ready to perform real work
      * If the network is not going to provide any threads provideOwnThread should be false
      * and runOnce should be called periodically
+     * @param useExecutorService
+     * @param blockingSelect
+     * @param threads The number of threads that handle the selected connections
+     * @param selectorThreads The number of threads that select on connections
      **/
-    public VoltNetwork(boolean useExecutorService, boolean blockingSelect, Integer threads) {
+    public VoltNetwork(boolean useExecutorService, boolean blockingSelect, Integer threads, int selectorThreads) {
+        assert(selectorThreads > 0) : "Invalid number of selector threads " + selectorThreads;
         m_thread = new Thread(this, "Volt Network");
         m_thread.setDaemon(true);
 
         m_useExecutorService = useExecutorService;
         m_useBlockingSelect = blockingSelect;
 
-        try {
-            m_selector = Selector.open();
-        } catch (IOException ex) {
-            m_logger.fatal(null, ex);
-            throw new RuntimeException(ex);
+        m_selectors = new SelectorThread[selectorThreads];
+        for (int ii = 0; ii < selectorThreads; ii++) {
+            try {
+                m_selectors[ii] = new SelectorThread(ii, Selector.open());
+            } catch (IOException ex) {
+                m_logger.fatal(null, ex);
+                throw new RuntimeException(ex);
+            }
         }
 
         final int availableProcessors = Runtime.getRuntime().availableProcessors();
@@ -216,36 +457,14 @@ import org.voltdb.utils.VoltLoggerFactory;
     }
 
 
-    /**
-     * Lock that causes the selection thread to wait for all threads that
-     * are in the process of registering or unregistering channels to finish
-     */
-    private void waitForRegistrationLock() {
-        m_registrationLock.writeLock().lock();
-        m_registrationLock.writeLock().unlock();
-    }
-
-    /**
-     * Acquire a lock that stops the selection thread while a channel is being registered/unregistered
-     */
-    private void acquireRegistrationLock() {
-        m_registrationLock.readLock().lock();
-        m_selector.wakeup();
-    }
-
-    /**
-     * Release a lock that stops the selection thread while a channel is being registered/unregistered
-     */
-    private void releaseRegistrationLock() {
-        m_registrationLock.readLock().unlock();
-    }
-
     /** Instruct the network to stop after the current loop */
     public void shutdown() throws InterruptedException {
         if (m_thread != null) {
             synchronized (this) {
                 m_shouldStop = true;
-                m_selector.wakeup();
+                for (SelectorThread st : m_selectors) {
+                    st.m_selector.wakeup();
+                }
                 wait();
             }
             m_thread.join();
@@ -259,8 +478,8 @@ import org.voltdb.utils.VoltLoggerFactory;
     }
 
     /**
-     * Register a channel with the selector and create a Connection that will pass incoming events
-     * to the provided handler.
+     * Register a channel with the least loaded selector and create a Connection
+     * that will pass incoming events to the provided handler.
      * @param channel
      * @param handler
      * @throws IOException
@@ -272,27 +491,35 @@ import org.voltdb.utils.VoltLoggerFactory;
         channel.configureBlocking (false);
         channel.socket().setKeepAlive(true);
 
+        SelectorThread selector = m_selectors[0];
+        for (int ii = 1; ii < m_selectors.length; ii++) {
+            if (m_selectors[ii].getConnectionCount() < selector.getConnectionCount()) {
+                selector = m_selectors[ii];
+            }
+        }
+
         VoltPort port =
             new VoltPort(
                     this,
                     handler,
                     handler.getExpectedOutgoingMessageSize(),
                     channel.socket().getInetAddress().getHostName());
-        synchronized (m_ports) {
-            m_ports.add(port);
+        port.m_selectorThread = selector;
+        synchronized (selector.m_ports) {
+            selector.m_ports.add(port);
         }
         port.registering();
 
-        acquireRegistrationLock();
+        selector.acquireRegistrationLock();
         try {
-            SelectionKey key = channel.register (m_selector, interestOps, port);
+            SelectionKey key = channel.register (selector.m_selector, interestOps, port);
 
             port.setKey (key);
             port.registered();
 
             return port;
         } finally {
-            releaseRegistrationLock();
+            selector.releaseRegistrationLock();
         }
     }
 
@@ -304,56 +531,59 @@ import org.voltdb.utils.VoltLoggerFactory;
         VoltPort port = (VoltPort)c;
         assert(c != null);
         SelectionKey selectionKey = port.getKey();
+        SelectorThread selector = this.getSelectorThread(port);
 
-        acquireRegistrationLock();
+        selector.acquireRegistrationLock();
         try {
-            synchronized (m_ports) {
-                if (!m_ports.contains(port)) {
+            synchronized (selector.m_ports) {
+                if (!selector.m_ports.contains(port)) {
                     return;
                 }
             }
             port.unregistering();
             selectionKey.cancel();
             selectionKey.attach(null);
-            synchronized (m_ports) {
-                m_ports.remove(port);
+            synchronized (selector.m_ports) {
+                selector.m_ports.remove(port);
             }
         } finally {
-            releaseRegistrationLock();
+            selector.releaseRegistrationLock();
         }
         port.unregistered();
     }
 
+    private SelectorThread getSelectorThread(VoltPort port) {
+        return (port.m_selectorThread != null ? port.m_selectorThread : m_selectors[0]);
+    }
+
     /** Set interest registrations for a port */
     public void addToChangeList(VoltPort port) {
-        synchronized (m_selectorUpdates_1) {
-            m_activeUpdateList.add(port);
-        }
-        if (m_useBlockingSelect) {
-            m_selector.wakeup();
-        }
+        this.getSelectorThread(port).addToChangeList(port);
     }
 
+    /**
+     * Run the first selector on this thread and start a new thread for each
+     * of the other selectors
+     */
     @Override
     public void run() {
-        while (m_shouldStop == false) {
-            try {
-                while (m_shouldStop == false) {
-                    waitForRegistrationLock();
-                    if (m_useBlockingSelect) {
-                        m_selector.select(5);
-                    } else {
-                        m_selector.selectNow();
-                    }
-                    installInterests();
-                    invokeCallbacks();
-                    EstTimeUpdater.update(System.currentTimeMillis());
-                }
-            } catch (Exception ex) {
-                m_logger.error(null, ex);
-            }
+        final ArrayList<Thread> selectorThreads = new ArrayList<Thread>();
+        for (int ii = 1; ii < m_selectors.length; ii++) {
+            Thread t = new Thread(m_selectors[ii], Thread.currentThread().getName() + "-" + ii);
+            t.setDaemon(true);
+            t.start();
+            selectorThreads.add(t);
         }
 
+        m_selectors[0].run();
+
+        try {
+            for (Thread t : selectorThreads) {
+                t.join();
+            }
+        } catch (InterruptedException e) {
+            m_logger.error(e);
+        }
         p_shutdown();
     }
 
@@ -377,13 +607,8 @@ import org.voltdb.utils.VoltLoggerFactory;
                 m_logger.error(e);
             }
 
-            Set<SelectionKey> keys = m_selector.keys();
-
-            for (SelectionKey key : keys) {
-                VoltPort port = (VoltPort) key.attachment();
-                if (port != null) {
-                    unregisterChannel (port);
-                }
+            for (SelectorThread st : m_selectors) {
+                st.close();
             }
 
             synchronized (m_poolsToClearOnShutdown) {
@@ -392,67 +617,14 @@ import org.voltdb.utils.VoltLoggerFactory;
                 }
                 m_poolsToClearOnShutdown.clear();
             }
-
-            try {
-                m_selector.close();
-            } catch (IOException e) {
-                m_logger.error(null, e);
-            }
         } finally {
             this.notifyAll();
         }
     }
 
     protected void installInterests() {
-        // swap the update lists to avoid contention while
-        // draining the requested values. also guarantees
-        // that the end of the list will be reached if code
-        // appends to the update list without bound.
-        ArrayDeque<VoltPort> oldlist;
-        synchronized(m_selectorUpdates_1) {
-            if (m_activeUpdateList == m_selectorUpdates_1) {
-                oldlist = m_selectorUpdates_1;
-                m_activeUpdateList = m_selectorUpdates_2;
-            }
-            else {
-                oldlist = m_selectorUpdates_2;
-                m_activeUpdateList = m_selectorUpdates_1;
-            }
-        }
-
-        while (!oldlist.isEmpty()) {
-            final VoltPort port = oldlist.poll();
-            if (port.isRunning()) {
-                continue;
-            }
-            if (port.isDead()) {
-                unregisterChannel(port);
-                try {
-                    port.m_selectionKey.channel().close();
-                } catch (IOException e) {}
-            } else if (port.hasQueuedRunnables()) {
-                port.lockForHandlingWork();
-                port.getKey().interestOps(0);
-                m_selector.selectedKeys().remove(port.getKey());
-                synchronized (m_tasks) {
-                    m_tasks.offer(getPortCallRunnable(port));
-                    m_tasks.notify();
-                }
-            } else {
-                resumeSelection(port);
-            }
-        }
-    }
-
-    private void resumeSelection( VoltPort port) {
-        SelectionKey key = port.getKey();
-
-        if (key.isValid()) {
-            key.interestOps (port.interestOps());
-        } else {
-            synchronized (m_ports) {
-                m_ports.remove(port);
-            }
+        for (SelectorThread st : m_selectors) {
+            st.installInterests();
         }
     }
 
@@ -478,44 +650,16 @@ import org.voltdb.utils.VoltLoggerFactory;
 
     /** Set the selected interest set on the port and run it. */
     protected void invokeCallbacks() {
-        final Set<SelectionKey> selectedKeys = m_selector.selectedKeys();
-        final ArrayList<Runnable> generatedTasks = new ArrayList<Runnable>();
-        for(SelectionKey key : selectedKeys) {
-            final VoltPort port = (VoltPort) key.attachment();
-            if (port == null) {
-                continue;
-            }
-            try {
-                port.lockForHandlingWork();
-                key.interestOps(0);
-
-                final Runnable runner = getPortCallRunnable(port);
-
-                if (m_useExecutorService) {
-                    generatedTasks.add(runner);
-                } else {
-                    runner.run();
-                }
-            }
-            catch (CancelledKeyException e) {
-                e.printStackTrace();
-                // no need to do anything here until
-                // shutdown makes more sense
-            }
-        }
-
-        if (!generatedTasks.isEmpty()) {
-            synchronized (m_tasks) {
-                m_tasks.addAll(generatedTasks);
-                if (m_tasks.size() > 1) {
-                    m_tasks.notifyAll();
-                } else {
-                    m_tasks.notify();
-                }
-            }
+        for (SelectorThread st : m_selectors) {
+            st.invokeCallbacks();
         }
+    }
 
-        selectedKeys.clear();
+    /**
+     * Returns the selectors that this network spreads its connections over
+     */
+    public SelectorThread[] getSelectorThreads() {
+        return (m_selectors);
     }
 
     public Map<Long, Pair<String, long[]>> getIOStats(boolean interval) {
@@ -525,24 +669,26 @@ import org.voltdb.utils.VoltLoggerFactory;
         long totalMessagesRead = 0;
         long totalWritten = 0;
         long totalMessagesWritten = 0;
-        synchronized (m_ports) {
-            for (VoltPort p : m_ports) {
-                final long read = p.readStream().getBytesRead(interval);
-                final long writeInfo[] = p.writeStream().getBytesAndMessagesWritten(interval);
-                final long messagesRead = p.getMessagesRead(interval);
-                totalRead += read;
-                totalMessagesRead += messagesRead;
-                totalWritten += writeInfo[0];
-                totalMessagesWritten += writeInfo[1];
-                retval.put(
-                        p.connectionId(),
-                        Pair.of(
-                                p.m_remoteHost,
-                                new long[] {
-                                        read,
-                                        messagesRead,
-                                        writeInfo[0],
-                                        writeInfo[1] }));
+        for (SelectorThread st : m_selectors) {
+            synchronized (st.m_ports) {
+                for (VoltPort p : st.m_ports) {
+                    final long read = p.readStream().getBytesRead(interval);
+                    final long writeInfo[] = p.writeStream().getBytesAndMessagesWritten(interval);
+                    final long messagesRead = p.getMessagesRead(interval);
+                    totalRead += read;
+                    totalMessagesRead += messagesRead;
+                    totalWritten += writeInfo[0];
+                    totalMessagesWritten += writeInfo[1];
+                    retval.put(
+                            p.connectionId(),
+                            Pair.of(
+                                    p.m_remoteHost,
+                                    new long[] {
+                                            read,
+                                            messagesRead,
+                                            writeInfo[0],
+                                            writeInfo[1] }));
+                }
             }
         }
         retval.put(
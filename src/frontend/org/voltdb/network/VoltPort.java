@@ -64,6 +64,9 @@ public class VoltPort implements Callable<VoltPort>, Connection
     // queued to unregistered ports, this is thread safe.
     protected SelectionKey m_selectionKey;
 
+    /** The selector that this port was registered with. Assigned in VoltNetwork.registerChannel() */
+    VoltNetwork.SelectorThread m_selectorThread;
+
     /** The channel this port wraps */
     private SocketChannel m_channel;
 
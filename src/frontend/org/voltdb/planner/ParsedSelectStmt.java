@@ -69,13 +69,13 @@ public class ParsedSelectStmt extends AbstractParsedStmt {
         Node node;
 
         if ((node = attrs.getNamedItem("limit")) != null)
-            limit = Long.parseLong(node.getNodeValue());
+            limit = Long.parseLong(node.getNodeValue().trim());
         if ((node = attrs.getNamedItem("offset")) != null)
-            offset = Long.parseLong(node.getNodeValue());
+            offset = Long.parseLong(node.getNodeValue().trim());
         if ((node = attrs.getNamedItem("limit_paramid")) != null)
-            limitParameterId = Long.parseLong(node.getNodeValue());
+            limitParameterId = Long.parseLong(node.getNodeValue().trim());
         if ((node = attrs.getNamedItem("offset_paramid")) != null)
-            offsetParameterId = Long.parseLong(node.getNodeValue());
+            offsetParameterId = Long.parseLong(node.getNodeValue().trim());
         if ((node = attrs.getNamedItem("grouped")) != null)
             grouped = Boolean.parseBoolean(node.getNodeValue());
         if ((node = attrs.getNamedItem("distinct")) != null)
@@ -27,11 +27,14 @@ import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Table;
 import org.voltdb.expressions.AbstractExpression;
 import org.voltdb.expressions.ExpressionUtil;
+import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
 import org.voltdb.plannodes.NestLoopPlanNode;
 import org.voltdb.plannodes.ReceivePlanNode;
+import org.voltdb.types.ExpressionType;
 import org.voltdb.types.JoinType;
 
 /**
@@ -291,7 +294,15 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
             retval = nlijNode;
         }
         else {
-            NestLoopPlanNode nljNode = new NestLoopPlanNode(m_context, PlanAssembler.getNextPlanNodeId());
+            // If there is no index that we can use for the join but the tables are joined
+            // on an equality, then the EE can hash the inner table rather than scan it
+            // again for every outer tuple
+            NestLoopPlanNode nljNode = null;
+            if (hasEquiJoinClause(joinOrder[0], joinClauses)) {
+                nljNode = new HashJoinPlanNode(m_context, PlanAssembler.getNextPlanNodeId());
+            } else {
+                nljNode = new NestLoopPlanNode(m_context, PlanAssembler.getNextPlanNodeId());
+            }
             if ((joinClauses != null) && (joinClauses.size() > 0))
                 nljNode.setPredicate(ExpressionUtil.combine(joinClauses));
             nljNode.setJoinType(JoinType.LEFT);
@@ -316,6 +327,33 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
         return retval;
     }
 
+    /**
+     * Returns true if one of the join clauses is an equality comparison between a
+     * column of the outer table and a column of one of the inner tables that have the
+     * same type. These are the clauses that a HashJoinPlanNode can use as its keys.
+     *
+     * @param outerTable The outer table of the join.
+     * @param joinClauses The clauses that join the outer table to the inner tables.
+     * @return
+     */
+    protected static boolean hasEquiJoinClause(Table outerTable, List<AbstractExpression> joinClauses) {
+        if (joinClauses == null) return (false);
+        for (AbstractExpression expr : joinClauses) {
+            if (expr.getExpressionType() != ExpressionType.COMPARE_EQUAL) continue;
+            if ((expr.getLeft() instanceof TupleValueExpression) == false ||
+                (expr.getRight() instanceof TupleValueExpression) == false) continue;
+
+            TupleValueExpression left = (TupleValueExpression)expr.getLeft();
+            TupleValueExpression right = (TupleValueExpression)expr.getRight();
+            boolean leftIsOuter = outerTable.getTypeName().equalsIgnoreCase(left.getTableName());
+            boolean rightIsOuter = outerTable.getTypeName().equalsIgnoreCase(right.getTableName());
+            if (leftIsOuter != rightIsOuter && left.getValueType() == right.getValueType()) {
+                return (true);
+            }
+        } // FOR
+        return (false);
+    }
+
     /**
      * For each table in the list, compute the set of all valid access paths that will get
      * tuples that match the right predicate (assuming there is a predicate).
@@ -0,0 +1,27 @@
+package org.voltdb.plannodes;
+
+import org.voltdb.planner.PlannerContext;
+import org.voltdb.types.PlanNodeType;
+
+/**
+ * An equi-join that builds a hash table on the inner table instead of scanning
+ * it once for every outer tuple. The EE derives the join keys from the equality
+ * comparisons in the predicate, so everything else about this node (children,
+ * output columns, predicate) is laid out exactly the same as a NestLoopPlanNode.
+ * @author pavlo
+ */
+public class HashJoinPlanNode extends NestLoopPlanNode {
+
+    /**
+     * @param id
+     */
+    public HashJoinPlanNode(PlannerContext context, Integer id) {
+        super(context, id);
+    }
+
+    @Override
+    public PlanNodeType getPlanNodeType() {
+        return PlanNodeType.HASHJOIN;
+    }
+
+}
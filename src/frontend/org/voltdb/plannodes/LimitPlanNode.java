@@ -104,14 +104,22 @@ public class LimitPlanNode extends AbstractPlanNode {
     protected void loadFromJSONObject(JSONObject obj, Database db) throws JSONException {
         m_offset = obj.getInt(Members.OFFSET.name());
         m_limit = obj.getInt(Members.LIMIT.name());
+        m_offsetParameterId = obj.optLong(Members.OFFSET_PARAM_IDX.name(), -1);
+        m_limitParameterId = obj.optLong(Members.LIMIT_PARAM_IDX.name(), -1);
     }
 
     public void setLimitParameterIndex(long limitParameterId) {
         m_limitParameterId = limitParameterId;
     }
+    public long getLimitParameterIndex() {
+        return m_limitParameterId;
+    }
 
     public void setOffsetParameterIndex(long offsetParameterId) {
         m_offsetParameterId = offsetParameterId;
     }
+    public long getOffsetParameterIndex() {
+        return m_offsetParameterId;
+    }
 
 }
@@ -0,0 +1,147 @@
+package org.voltdb.sysprocs;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.voltdb.BackendTarget;
+import org.voltdb.DependencySet;
+import org.voltdb.HsqlBackend;
+import org.voltdb.ParameterSet;
+import org.voltdb.ProcInfo;
+import org.voltdb.VoltSystemProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.exceptions.ServerFaultException;
+import org.voltdb.types.TimestampType;
+import org.voltdb.utils.VoltTableUtil;
+
+import edu.brown.hstore.PartitionExecutor;
+import edu.brown.hstore.txns.TransactionProfile;
+import edu.brown.utils.LatencyHistogram;
+import edu.brown.utils.PartitionEstimator;
+
+/**
+ * Get the latency percentiles for the profiled phases of the txns that were
+ * executed in the cluster. Each HStoreSite will return one row per phase for each
+ * of its partitions plus one row per phase (with a null PARTITION) that merges
+ * all of the partitions at that site. All of the times are in nanoseconds.
+ * <B>Note:</B> The site.txn_profiling and site.exec_profiling parameters must be
+ * enabled in order for there to be any data to return.
+ * @author pavlo
+ */
+@ProcInfo(singlePartition = false)
+public class Latencies extends VoltSystemProcedure {
+    private static final Logger LOG = Logger.getLogger(Latencies.class);
+
+    public static final ColumnInfo nodeResultsColumns[] = {
+        new ColumnInfo("SITE",      VoltType.STRING),
+        new ColumnInfo("PARTITION", VoltType.INTEGER),
+        new ColumnInfo("NAME",      VoltType.STRING),
+        new ColumnInfo("COUNT",     VoltType.BIGINT),
+        new ColumnInfo("MIN",       VoltType.BIGINT),
+        new ColumnInfo("AVG",       VoltType.FLOAT),
+        new ColumnInfo("P50",       VoltType.BIGINT),
+        new ColumnInfo("P95",       VoltType.BIGINT),
+        new ColumnInfo("P99",       VoltType.BIGINT),
+        new ColumnInfo("P999",      VoltType.BIGINT),
+        new ColumnInfo("MAX",       VoltType.BIGINT),
+        new ColumnInfo("CREATED",   VoltType.TIMESTAMP),
+    };
+
+    @Override
+    public void globalInit(PartitionExecutor site, Procedure catalog_proc,
+            BackendTarget eeType, HsqlBackend hsql, PartitionEstimator p_estimator) {
+        super.globalInit(site, catalog_proc, eeType, hsql, p_estimator);
+        site.registerPlanFragment(SysProcFragmentId.PF_latenciesDistribute, this);
+        site.registerPlanFragment(SysProcFragmentId.PF_latenciesAggregate, this);
+    }
+
+    @Override
+    public DependencySet executePlanFragment(long txn_id,
+                                             Map<Integer, List<VoltTable>> dependencies,
+                                             int fragmentId,
+                                             ParameterSet params,
+                                             PartitionExecutor.SystemProcedureExecutionContext context) {
+        DependencySet result = null;
+        switch (fragmentId) {
+            // Collect Histograms
+            case SysProcFragmentId.PF_latenciesDistribute: {
+                if (LOG.isDebugEnabled()) LOG.debug("Collecting latency histograms");
+                String siteName = hstore_site.getSiteName();
+                TimestampType now = new TimestampType();
+                VoltTable vt = new VoltTable(nodeResultsColumns);
+
+                LatencyHistogram siteTxnTotals[] = TransactionProfile.createHistograms();
+                LatencyHistogram siteExecTotal = null;
+                for (int partition : hstore_site.getLocalPartitionIdArray()) {
+                    PartitionExecutor es = hstore_site.getPartitionExecutor(partition);
+
+                    // TransactionProfile phases
+                    LatencyHistogram histograms[] = es.getTransactionLatencies();
+                    if (histograms != null) {
+                        for (int i = 0; i < histograms.length; i++) {
+                            this.addRow(vt, siteName, partition, histograms[i], now);
+                            siteTxnTotals[i].merge(histograms[i]);
+                        } // FOR
+                    }
+
+                    // PartitionExecutor execution time
+                    LatencyHistogram execHistogram = es.getWorkExecTime().getHistogram();
+                    if (execHistogram != null) {
+                        this.addRow(vt, siteName, partition, execHistogram, now);
+                        if (siteExecTotal == null) siteExecTotal = new LatencyHistogram(execHistogram.getName());
+                        siteExecTotal.merge(execHistogram);
+                    }
+                } // FOR
+
+                // Site Totals
+                for (LatencyHistogram h : siteTxnTotals) {
+                    this.addRow(vt, siteName, null, h, now);
+                } // FOR
+                if (siteExecTotal != null) this.addRow(vt, siteName, null, siteExecTotal, now);
+
+                result = new DependencySet(SysProcFragmentId.PF_latenciesDistribute, vt);
+                break;
+            }
+            // Aggregate Results
+            case SysProcFragmentId.PF_latenciesAggregate:
+                List<VoltTable> siteResults = dependencies.get(SysProcFragmentId.PF_latenciesDistribute);
+                if (siteResults == null || siteResults.isEmpty()) {
+                    String msg = "Missing site results";
+                    throw new ServerFaultException(msg, txn_id);
+                }
+
+                VoltTable vt = VoltTableUtil.combine(siteResults);
+                result = new DependencySet(SysProcFragmentId.PF_latenciesAggregate, vt);
+                break;
+            default:
+                String msg = "Unexpected sysproc fragmentId '" + fragmentId + "'";
+                throw new ServerFaultException(msg, txn_id);
+        } // SWITCH
+        return (result);
+    }
+
+    private void addRow(VoltTable vt, String siteName, Integer partition, LatencyHistogram h, TimestampType now) {
+        if (h.isEmpty()) return;
+        vt.addRow(siteName,
+                  (partition != null ? partition.intValue() : VoltType.NULL_INTEGER),
+                  h.getName(),
+                  h.getCount(),
+                  h.getMinValue(),
+                  h.getMeanValue(),
+                  h.getValueAtPercentile(50d),
+                  h.getValueAtPercentile(95d),
+                  h.getValueAtPercentile(99d),
+                  h.getValueAtPercentile(99.9d),
+                  h.getMaxValue(),
+                  now);
+    }
+
+    public VoltTable[] run() {
+        return this.autoDistribute(SysProcFragmentId.PF_latenciesDistribute,
+                                   SysProcFragmentId.PF_latenciesAggregate);
+    }
+}
@@ -100,14 +100,11 @@ public class LoadMultipartitionTable extends VoltSystemProcedure {
             
             if (debug.get()) LOG.debug("Executing voltLoadTable() sysproc fragment for table '" + table_name + "' in txn #" + txn_id);
             assert(this.isInitialized()) : " The sysproc " + this.getClass().getSimpleName() + " was not initialized properly";
-            try {
-                // voltLoadTable is void. Assume success or exception.
-                super.voltLoadTable(context.getCluster().getName(), context.getDatabase().getName(),
-                                    table_name, (VoltTable)(params.toArray()[1]), 0);
-            } catch (VoltAbortException e) {
-                // must continue and reply with dependency.
-                e.printStackTrace();
-            }
+            // voltLoadTable is void. Assume success or exception.
+            // If the tuples were rejected (e.g., a bulk load that violated a constraint),
+            // then the VoltAbortException has to abort this txn.
+            super.voltLoadTable(context.getCluster().getName(), context.getDatabase().getName(),
+                                table_name, (VoltTable)(params.toArray()[1]), 0);
             if (debug.get()) LOG.debug("Finished loading table. Things look good...");
             return new DependencySet(new int[] { (int)DEP_distribute }, result);
 
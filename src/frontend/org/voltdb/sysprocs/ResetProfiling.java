@@ -22,6 +22,7 @@ import edu.brown.hstore.ClientInterface;
 import edu.brown.hstore.PartitionExecutor;
 import edu.brown.hstore.conf.HStoreConf;
 import edu.brown.hstore.wal.CommandLogWriter;
+import edu.brown.utils.LatencyHistogram;
 import edu.brown.utils.PartitionEstimator;
 import edu.brown.utils.ProfileMeasurement;
 
@@ -65,10 +66,22 @@ public class ResetProfiling extends VoltSystemProcedure {
                 if (hstore_conf.site.exec_profiling) {
                     this.executor.getWorkExecTime().reset();
                     this.executor.getWorkIdleTime().reset();
+                    this.executor.getQueueWaitStrategy().reset();
                     this.executor.getWorkNetworkTime().reset();
                     this.executor.getWorkUtilityTime().reset();
                 }
                 
+                // TRANSACTION LATENCIES
+                if (hstore_conf.site.txn_profiling) {
+                    for (Integer p : hstore_site.getLocalPartitionIdArray()) {
+                        LatencyHistogram histograms[] = hstore_site.getPartitionExecutor(p.intValue()).getTransactionLatencies();
+                        if (histograms == null) continue;
+                        for (LatencyHistogram h : histograms) {
+                            h.reset();
+                        } // FOR
+                    } // FOR
+                }
+                
                 // The first partition at this HStoreSite will have to reset
                 // any global profling parameters
                 if (this.isFirstLocalPartition()) {
@@ -84,9 +97,7 @@ public class ResetProfiling extends VoltSystemProcedure {
                     // COMMAND LOGGER
                     if (hstore_conf.site.commandlog_profiling) {
                         CommandLogWriter commandLog = hstore_site.getCommandLogWriter();
-                        commandLog.getLoggerWritingTime().reset();
-                        commandLog.getLoggerBlockedTime().reset();
-                        commandLog.getLoggerNetworkTime().reset();
+                        commandLog.resetProfiling();
                     }
                 }
                 
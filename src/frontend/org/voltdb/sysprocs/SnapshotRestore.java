@@ -55,11 +55,13 @@ import org.voltdb.catalog.Table;
 import org.voltdb.client.ConnectionUtil;
 import org.voltdb.dtxn.DtxnConstants;
 import org.voltdb.sysprocs.saverestore.ClusterSaveFileState;
+import org.voltdb.sysprocs.saverestore.PartitionedTableSaveFileState;
 import org.voltdb.sysprocs.saverestore.SavedTableConverter;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil;
 import org.voltdb.sysprocs.saverestore.TableSaveFile;
 import org.voltdb.sysprocs.saverestore.TableSaveFileState;
 import org.voltdb.utils.DBBPool.BBContainer;
+import org.voltdb.utils.Pair;
 
 import edu.brown.catalog.CatalogUtil;
 import edu.brown.hstore.PartitionExecutor;
@@ -77,6 +79,10 @@ public class SnapshotRestore extends VoltSystemProcedure
         SysProcFragmentId.PF_restoreScan | DtxnConstants.MULTIPARTITION_DEPENDENCY;
     private static final int DEP_restoreScanResults = (int)
         SysProcFragmentId.PF_restoreScanResults;
+    private static final int DEP_restoreLoadPartitionedTables =
+        SysProcFragmentId.PF_restoreLoadPartitionedTables | DtxnConstants.MULTIPARTITION_DEPENDENCY;
+    private static final int DEP_restoreLoadPartitionedTablesResults =
+        SysProcFragmentId.PF_restoreLoadPartitionedTablesResults;
 
     private static HashSet<String>  m_initializedTableSaveFiles = new HashSet<String>();
     private static ArrayDeque<TableSaveFile> m_saveFiles = new ArrayDeque<TableSaveFile>();
@@ -164,6 +170,12 @@ public class SnapshotRestore extends VoltSystemProcedure
         site.registerPlanFragment(SysProcFragmentId.
                                   PF_restoreSendPartitionedTableResults,
                                   this);
+        site.registerPlanFragment(SysProcFragmentId.
+                                  PF_restoreLoadPartitionedTables,
+                                  this);
+        site.registerPlanFragment(SysProcFragmentId.
+                                  PF_restoreLoadPartitionedTablesResults,
+                                  this);
         m_siteId = site.getSiteId();
         m_hostId = site.getHostId();
     }
@@ -522,6 +534,48 @@ public class SnapshotRestore extends VoltSystemProcedure
                           result_str, error_msg);
             return new DependencySet(dependency_id, result);
         }
+        else if (fragmentId ==
+            SysProcFragmentId.PF_restoreLoadPartitionedTables)
+        {
+            Object paramsA[] = params.toArray();
+            assert(paramsA[0] != null);
+            assert(paramsA[1] != null);
+            assert(paramsA[2] != null);
+            assert(paramsA[3] != null);
+            String file_path = (String) paramsA[0];
+            String file_nonce = (String) paramsA[1];
+            String table_names[] = (String[]) paramsA[2];
+            int allowExport = (Integer) paramsA[3];
+            int partition_id = context.getExecutionSite().getPartitionId();
+
+            VoltTable result = constructResultsTable();
+            for (String table_name : table_names) {
+                LOG.trace("Loading partitioned table: " + table_name +
+                          " partition id: " + partition_id);
+                String error_msg = performLoadPartitionedTable(file_path, file_nonce,
+                                                               table_name, partition_id,
+                                                               allowExport);
+                result.addRow(m_hostId, hostname, m_siteId, table_name, partition_id,
+                              (error_msg == null ? "SUCCESS" : "FAILURE"),
+                              (error_msg == null ? "" : error_msg));
+            }
+            return new DependencySet(DEP_restoreLoadPartitionedTables, result);
+        }
+        else if (fragmentId ==
+            SysProcFragmentId.PF_restoreLoadPartitionedTablesResults)
+        {
+            LOG.trace("Aggregating parallel partitioned table restore results");
+            VoltTable result = constructResultsTable();
+            for (VoltTable t : dependencies.get(DEP_restoreLoadPartitionedTables))
+            {
+                while (t.advanceRow())
+                {
+                    // this will actually add the active row of t
+                    result.add(t);
+                }
+            }
+            return new DependencySet(DEP_restoreLoadPartitionedTablesResults, result);
+        }
         else if (fragmentId ==
             SysProcFragmentId.PF_restoreSendPartitionedTableResults)
         {
@@ -615,7 +669,7 @@ public class SnapshotRestore extends VoltSystemProcedure
             return results;
         }
 
-        results = performTableRestoreWork(savefile_state);
+        results = performTableRestoreWork(savefile_state, path, nonce, (int)allowExport);
 
         final long endTime = System.currentTimeMillis();
         final double duration = (endTime - startTime) / 1000.0;
@@ -767,7 +821,10 @@ public class SnapshotRestore extends VoltSystemProcedure
     }
 
     private VoltTable[]
-    performTableRestoreWork(ClusterSaveFileState savefileState) throws VoltAbortException
+    performTableRestoreWork(ClusterSaveFileState savefileState,
+                            String filePath,
+                            String fileNonce,
+                            int allowExport) throws VoltAbortException
     {
         Set<Table> tables_to_restore =
             getTablesToRestore(savefileState.getSavedTableNames());
@@ -775,10 +832,16 @@ public class SnapshotRestore extends VoltSystemProcedure
         restore_results[0] = constructResultsTable();
         ArrayList<SynthesizedPlanFragment[]> restorePlans =
             new ArrayList<SynthesizedPlanFragment[]>();
+        ArrayList<Table> restorePlanTables = new ArrayList<Table>();
+        ArrayList<String> parallelTables = new ArrayList<String>();
 
         for (Table t : tables_to_restore) {
             TableSaveFileState table_state =
                 savefileState.getTableState(t.getTypeName());
+            if (hstore_conf.site.snapshot_restore_parallel && canRestoreInParallel(t, table_state)) {
+                parallelTables.add(t.getTypeName());
+                continue;
+            }
             SynthesizedPlanFragment[] restore_plan =
                 table_state.generateRestorePlan(t);
             if (restore_plan == null) {
@@ -788,9 +851,23 @@ public class SnapshotRestore extends VoltSystemProcedure
                         "Unable to generate restore plan for " + t.getTypeName() + " table not restored");
             }
             restorePlans.add(restore_plan);
+            restorePlanTables.add(t);
+        }
+
+        // All of the partitions load their data for these tables at the same time
+        if (!parallelTables.isEmpty()) {
+            LOG.info("Restoring partitioned tables in parallel at each partition: " + parallelTables);
+            VoltTable[] results =
+                performParallelPartitionedRestore(filePath, fileNonce,
+                                                  parallelTables.toArray(new String[0]),
+                                                  allowExport);
+            while (results[0].advanceRow())
+            {
+                restore_results[0].add(results[0]);
+            }
         }
 
-        Iterator<Table> tableIterator = tables_to_restore.iterator();
+        Iterator<Table> tableIterator = restorePlanTables.iterator();
         for (SynthesizedPlanFragment[] restore_plan : restorePlans)
         {
             Table table = tableIterator.next();
@@ -810,6 +887,163 @@ public class SnapshotRestore extends VoltSystemProcedure
         return restore_results;
     }
 
+    /**
+     * A partitioned table can be restored in parallel if it was saved with the same number
+     * of partitions that we have now and the save file with each partition's data is at
+     * the host where that partition is now.
+     */
+    private boolean canRestoreInParallel(Table table, TableSaveFileState tableState)
+    {
+        if (table.getIsreplicated() || !(tableState instanceof PartitionedTableSaveFileState)) {
+            return false;
+        }
+        PartitionedTableSaveFileState state = (PartitionedTableSaveFileState)tableState;
+        if (state.getTotalPartitions() != CatalogUtil.getNumberOfPartitions(this.cluster)) {
+            return false;
+        }
+        for (Partition catalog_part : CatalogUtil.getAllPartitions(this.cluster)) {
+            int host_id = ((Site)catalog_part.getParent()).getHost().getRelativeIndex();
+            Set<Pair<Integer, Integer>> partitions_at_host = state.getPartitionsAtHost(host_id);
+            boolean found = false;
+            if (partitions_at_host != null) {
+                for (Pair<Integer, Integer> p : partitions_at_host) {
+                    if (p.getFirst().intValue() == catalog_part.getId()) {
+                        found = true;
+                        break;
+                    }
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private VoltTable[] performParallelPartitionedRestore(String filePath,
+                                                          String fileNonce,
+                                                          String tableNames[],
+                                                          int allowExport)
+    {
+        SynthesizedPlanFragment[] pfs = new SynthesizedPlanFragment[2];
+
+        // Every partition loads its own chunks out of the save files at its host
+        pfs[0] = new SynthesizedPlanFragment();
+        pfs[0].fragmentId = SysProcFragmentId.PF_restoreLoadPartitionedTables;
+        pfs[0].outputDependencyIds = new int[]{ DEP_restoreLoadPartitionedTables };
+        pfs[0].inputDependencyIds = new int[] {};
+        pfs[0].multipartition = true;
+        ParameterSet params = new ParameterSet();
+        params.setParameters(filePath, fileNonce, tableNames, allowExport);
+        pfs[0].parameters = params;
+
+        pfs[1] = new SynthesizedPlanFragment();
+        pfs[1].fragmentId = SysProcFragmentId.PF_restoreLoadPartitionedTablesResults;
+        pfs[1].outputDependencyIds = new int[]{ DEP_restoreLoadPartitionedTablesResults };
+        pfs[1].inputDependencyIds = new int[] { DEP_restoreLoadPartitionedTables };
+        pfs[1].multipartition = false;
+        pfs[1].parameters = new ParameterSet();
+
+        return executeSysProcPlanFragments(pfs, DEP_restoreLoadPartitionedTablesResults);
+    }
+
+    /**
+     * Load all of the chunks for the given partition out of the table's save files at this host.
+     * The files are memory mapped so the chunks for the other partitions are skipped over
+     * without being read. Returns null if the table was loaded successfully, otherwise the error.
+     */
+    private String performLoadPartitionedTable(String filePath,
+                                               String fileNonce,
+                                               String tableName,
+                                               int partitionId,
+                                               int allowExport)
+    {
+        final String prefix = fileNonce + "-" + tableName + "-host_";
+        File[] savefiles = new File(filePath).listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String file) {
+                return file.startsWith(prefix) && file.endsWith(".vpt");
+            }
+        });
+        if (savefiles == null) {
+            return "Unable to list save files in " + filePath;
+        }
+
+        final Table new_catalog_table = getCatalogTable(tableName);
+        final int relevantPartitionIds[] = new int[] { partitionId };
+        Boolean needsConversion = null;
+        int found = 0;
+        for (File f : savefiles) {
+            FileInputStream fis = null;
+            TableSaveFile savefile = null;
+            try {
+                fis = new FileInputStream(f);
+                savefile = new TableSaveFile(fis.getChannel(), 3,
+                                             relevantPartitionIds, false, true);
+                boolean relevant = false;
+                for (int pid : savefile.getPartitionIds()) {
+                    relevant = relevant || (pid == partitionId);
+                }
+                if (!relevant) {
+                    continue;
+                }
+                if (!savefile.getCompleted()) {
+                    return "Save file " + f.getName() + " was not completed";
+                }
+                found++;
+
+                while (savefile.hasMoreChunks()) {
+                    final BBContainer c = savefile.getNextChunk();
+                    if (c == null) {
+                        continue;//Should be equivalent to break
+                    }
+                    try {
+                        if (needsConversion == null) {
+                            VoltTable old_table =
+                                PrivateVoltTableFactory.createVoltTableFromBuffer(c.b.duplicate(), true);
+                            needsConversion = SavedTableConverter.needsConversion(old_table, new_catalog_table);
+                        }
+                        VoltTable table = PrivateVoltTableFactory.createVoltTableFromBuffer(c.b, true);
+                        if (needsConversion.booleanValue()) {
+                            table = SavedTableConverter.convertTable(table, new_catalog_table);
+                        }
+                        super.voltLoadTable(this.cluster.getTypeName(),
+                                            this.database.getTypeName(),
+                                            tableName, table, allowExport);
+                    } finally {
+                        c.discard();
+                    }
+                }
+            } catch (IOException e) {
+                return "Unable to load table: " + tableName + " error: " + e.getMessage();
+            } catch (VoltTypeException e) {
+                return "Unable to load table: " + tableName + " error: " + e.getMessage();
+            } catch (VoltAbortException e) {
+                return e.getMessage();
+            } finally {
+                if (savefile != null) {
+                    try {
+                        savefile.close();
+                    } catch (IOException e) {
+                        LOG.warn("Failed to close save file " + f, e);
+                    }
+                }
+                // TableSaveFile.close() doesn't close the channel that we gave it,
+                // so we always have to close the stream ourselves
+                if (fis != null) {
+                    try {
+                        fis.close();
+                    } catch (IOException e) {
+                        LOG.warn("Failed to close save file " + f, e);
+                    }
+                }
+            }
+        }
+        if (found == 0) {
+            return "No save file at this host contains partition " + partitionId;
+        }
+        return null;
+    }
+
     // XXX I hacked up a horrible one-off in my world to test this code.
     // I believe that it will work for at least one new node, but
     // there's not a good way to add a unit test for this at the moment,
@@ -86,6 +86,8 @@ public class SysProcFragmentId
     public static final int PF_restoreSendReplicatedTableResults = 68;
     public static final int PF_restoreSendPartitionedTable = 69;
     public static final int PF_restoreSendPartitionedTableResults = 70;
+    public static final int PF_restoreLoadPartitionedTables = 71;
+    public static final int PF_restoreLoadPartitionedTablesResults = 72;
 
     // @StartSampler
     public static final int PF_startSampler = 80;
@@ -142,4 +144,8 @@ public class SysProcFragmentId
     public static final int PF_resetProfilingDistribute = 195;
     public static final int PF_resetProfilingAggregate = 196;
     
+    // @Latencies
+    public static final int PF_latenciesDistribute = 200;
+    public static final int PF_latenciesAggregate = 201;
+    
 }
@@ -82,7 +82,7 @@ public class PartitionedTableSaveFileState extends TableSaveFileState
                 (m_partitionsSeen.last() == m_totalPartitions - 1));
     }
 
-    int getTotalPartitions()
+    public int getTotalPartitions()
     {
         return m_totalPartitions;
     }
@@ -53,8 +53,10 @@ public class SnapshotUtil {
 
     /**
      * Create a digest for a snapshot containing the time of the snapshot and the list of tables included.
-     * The first item in the comma separated list is the time in milliseconds as a string.
+     * The first item in the comma separated list is the time in milliseconds as a string, followed
+     * by the id of the txn that took the snapshot (e.g., "1234:5678").
      * @param snapshotTime
+     * @param txnId
      * @param path
      * @param nonce
      * @param tables
@@ -63,6 +65,7 @@ public class SnapshotUtil {
     public static void
         recordSnapshotTableList(
             long snapshotTime,
+            long txnId,
             String path,
             String nonce,
             List<Table> tables) throws IOException {
@@ -75,6 +78,7 @@ public class SnapshotUtil {
         FileOutputStream fos = new FileOutputStream(f);
         StringWriter sw = new StringWriter();
         sw.append(Long.toString(snapshotTime));
+        sw.append(':').append(Long.toString(txnId));
         if (!tables.isEmpty()) {
             sw.append(',');
         }
@@ -114,10 +118,22 @@ public class SnapshotUtil {
         String tableNames[] = tableList.split(",");
         String actualTableNames[] = new String[tableNames.length - 1];
         System.arraycopy( tableNames, 1, actualTableNames, 0, tableNames.length - 1);
-        return Pair.of(Long.valueOf(tableNames[0]),
+        return Pair.of(Long.valueOf(tableNames[0].split(":")[0]),
                        java.util.Arrays.asList(actualTableNames));
     }
 
+    /**
+     * Retrieve the id of the txn that took the snapshot from a digest.
+     * Returns null if the digest was written without one.
+     * @param f
+     * @throws Exception
+     */
+    public static Long retrieveSnapshotTxnId(File f) throws Exception {
+        String tableList = CRCCheck(f);
+        String time[] = tableList.split(",")[0].split(":");
+        return (time.length > 1 ? Long.valueOf(time[1]) : null);
+    }
+
     /**
      * Check if the CRC of the snapshot file matches the digest.
      * @param f The snapshot file object
@@ -168,6 +184,8 @@ public class SnapshotUtil {
      * Storage for information about files that are part of a specific snapshot
      */
     public static class Snapshot {
+        /** The id of the txn that took this snapshot (-1 if the digest doesn't have it) */
+        public long m_txnId = -1;
         public final List<File> m_digests = new ArrayList<File>();
         public final List<Set<String>> m_digestTables = new ArrayList<Set<String>>();
         public final Map<String, TableFiles> m_tableFiles = new TreeMap<String, TableFiles>();
@@ -294,8 +312,10 @@ public class SnapshotUtil {
             try {
                 if (f.getName().endsWith(".digest")) {
                     Pair<Long, List<String>> result = null;
+                    Long txnId = null;
                     try {
                         result = retrieveRelevantTableNamesAndTime(f);
+                        txnId = retrieveSnapshotTxnId(f);
                     } catch (Exception e) {
                         System.err.println(e.getMessage());
                         System.err.println("Error: Unable to process digest " + f.getPath());
@@ -307,6 +327,7 @@ public class SnapshotUtil {
                         s = new Snapshot();
                         snapshots.put(snapshotTime, s);
                     }
+                    if (txnId != null) s.m_txnId = txnId.longValue();
                     TreeSet<String> tableSet = new TreeSet<String>();
                     tableSet.addAll(result.getSecond());
                     s.m_digestTables.add(tableSet);
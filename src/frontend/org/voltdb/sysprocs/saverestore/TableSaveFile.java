@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.nio.BufferUnderflowException;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayDeque;
 import java.util.HashSet;
@@ -90,6 +91,24 @@ public class TableSaveFile
             int relevantPartitionIds[],
             boolean continueOnCorruptedChunk) throws IOException
     {
+        this(dataIn, readAheadChunks, relevantPartitionIds, continueOnCorruptedChunk, false);
+    }
+
+    /**
+     * If memoryMapped is true then the chunks are read out of a memory mapped view of the
+     * file instead of through read() calls, and chunks for partitions that are not in
+     * relevantPartitionIds are skipped without being copied or checksummed. This is meant for
+     * when every site reads the same file for its own partitions, so each chunk is only
+     * validated by the site that is going to load it.
+     */
+    public TableSaveFile(
+            FileChannel dataIn,
+            int readAheadChunks,
+            int relevantPartitionIds[],
+            boolean continueOnCorruptedChunk,
+            boolean memoryMapped) throws IOException
+    {
+        m_memoryMapped = memoryMapped;
         try {
             EELibraryLoader.loadExecutionEngineLibrary(true);
             if (relevantPartitionIds == null) {
@@ -212,6 +231,7 @@ public class TableSaveFile
                 m_versionNum[ii] = fd.readInt();
             }
             m_createTime = fd.readLong();
+            m_mappedOffset = m_saveFile.position();
             m_hostId = fd.readInt();
             m_hostname = fd.readString();
             m_clusterName = fd.readString();
@@ -395,6 +415,15 @@ public class TableSaveFile
 
     private final FileChannel m_saveFile;
     private final ByteBuffer m_tableHeader;
+
+    /**
+     * Memory mapped reads. The file is mapped in windows of at most MAPPED_WINDOW_SIZE bytes
+     * as the ChunkReader moves through it. These are only accessed by the ChunkReader thread.
+     */
+    private static final long MAPPED_WINDOW_SIZE = 1024 * 1024 * 256;
+    private final boolean m_memoryMapped;
+    private MappedByteBuffer m_mappedWindow = null;
+    private long m_mappedOffset;
     private final boolean m_completed;
     private final int m_versionNum[] = new int[4];
     private final int m_hostId;
@@ -431,6 +460,57 @@ public class TableSaveFile
     private Thread m_chunkReaderThread = null;
     private IOException m_chunkReaderException = null;
 
+    /**
+     * Fill the remainder of the given buffer with the next bytes from the file
+     */
+    private void readFully(ByteBuffer dst) throws IOException {
+        if (!m_memoryMapped) {
+            while (dst.hasRemaining()) {
+                final int read = m_saveFile.read(dst);
+                if (read == -1) {
+                    throw new EOFException();
+                }
+            }
+            return;
+        }
+        while (dst.hasRemaining()) {
+            final ByteBuffer window = nextMappedWindow();
+            final ByteBuffer src = window.duplicate();
+            final int length = Math.min(dst.remaining(), src.remaining());
+            src.limit(src.position() + length);
+            dst.put(src);
+            window.position(window.position() + length);
+        }
+    }
+
+    /**
+     * Skip over the next bytes of the file without reading them.
+     * Only supported for memory mapped files.
+     */
+    private void skipFully(long length) throws IOException {
+        assert(m_memoryMapped);
+        while (length > 0) {
+            final ByteBuffer window = nextMappedWindow();
+            final int skip = (int)Math.min(length, window.remaining());
+            window.position(window.position() + skip);
+            length -= skip;
+        }
+    }
+
+    private ByteBuffer nextMappedWindow() throws IOException {
+        if (m_mappedWindow == null || !m_mappedWindow.hasRemaining()) {
+            final long remaining = m_saveFile.size() - m_mappedOffset;
+            if (remaining <= 0) {
+                throw new EOFException();
+            }
+            m_mappedWindow = m_saveFile.map(FileChannel.MapMode.READ_ONLY,
+                                            m_mappedOffset,
+                                            Math.min(remaining, MAPPED_WINDOW_SIZE));
+            m_mappedOffset += m_mappedWindow.capacity();
+        }
+        return m_mappedWindow;
+    }
+
     /**
      * Thread to read chunks from the disk
      */
@@ -453,12 +533,7 @@ public class TableSaveFile
                      * Get the length of the next chunk, partition id, crc for partition id,
                      */
                     ByteBuffer chunkLengthB = ByteBuffer.allocate(16);
-                    while (chunkLengthB.hasRemaining()) {
-                        final int read = m_saveFile.read(chunkLengthB);
-                        if (read == -1) {
-                            throw new EOFException();
-                        }
-                    }
+                    readFully(chunkLengthB);
                     chunkLengthB.flip();
                     final int nextChunkLength = chunkLengthB.getInt();
 
@@ -505,6 +580,18 @@ public class TableSaveFile
                                 "> DEFAULT_CHUNKSIZE bytes");
                     }
 
+                    /*
+                     * With a memory mapped file the site that owns the chunk's partition
+                     * will validate it, so we don't need to touch its pages at all.
+                     */
+                    if (m_memoryMapped &&
+                            m_relevantPartitionIds != null &&
+                            !m_relevantPartitionIds.contains(nextChunkPartitionId)) {
+                        skipFully(nextChunkLength - 12);
+                        m_chunkReads.release();
+                        continue;
+                    }
+
                     /*
                      * Now allocate space to store the chunk using the VoltTable serialization representation.
                      * The chunk will contain an integer row count preceding it so it can
@@ -544,12 +631,7 @@ public class TableSaveFile
                         c.b.put(m_tableHeader);
                         c.b.position(c.b.position() + 4);//Leave space for row count to be moved into
                         checksumStartPosition = c.b.position();
-                        while (c.b.hasRemaining()) {
-                            final int read = m_saveFile.read(c.b);
-                            if (read == -1) {
-                                throw new EOFException();
-                            }
-                        }
+                        readFully(c.b);
                         c.b.position(c.b.position() - 4);
                         rowCount = c.b.getInt();
                         c.b.position(checksumStartPosition);
@@ -82,6 +82,7 @@ public enum IndexType {
         case ARRAY:
             return "_ARRAY";
         case BTREE:
+            return "_BTREE";
         case HASH_TABLE:
             return "";
         }
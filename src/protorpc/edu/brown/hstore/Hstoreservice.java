@@ -10929,6 +10929,1966 @@ public final class Hstoreservice {
     // @@protoc_insertion_point(class_scope:edu.brown.hstore.InitializeResponse)
   }
   
+  public static final class ReplayRestoreRequest extends
+      com.google.protobuf.GeneratedMessage {
+    // Use ReplayRestoreRequest.newBuilder() to construct.
+    private ReplayRestoreRequest() {
+      initFields();
+    }
+    private ReplayRestoreRequest(boolean noInit) {}
+    
+    private static final ReplayRestoreRequest defaultInstance;
+    public static ReplayRestoreRequest getDefaultInstance() {
+      return defaultInstance;
+    }
+    
+    public ReplayRestoreRequest getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+    
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return edu.brown.hstore.Hstoreservice.internal_static_edu_brown_hstore_ReplayRestoreRequest_descriptor;
+    }
+    
+    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return edu.brown.hstore.Hstoreservice.internal_static_edu_brown_hstore_ReplayRestoreRequest_fieldAccessorTable;
+    }
+    
+    // required int32 sender_site = 1;
+    public static final int SENDER_SITE_FIELD_NUMBER = 1;
+    private boolean hasSenderSite;
+    private int senderSite_ = 0;
+    public boolean hasSenderSite() { return hasSenderSite; }
+    public int getSenderSite() { return senderSite_; }
+    
+    // required .edu.brown.hstore.Status status = 2;
+    public static final int STATUS_FIELD_NUMBER = 2;
+    private boolean hasStatus;
+    private edu.brown.hstore.Hstoreservice.Status status_;
+    public boolean hasStatus() { return hasStatus; }
+    public edu.brown.hstore.Hstoreservice.Status getStatus() { return status_; }
+    
+    // optional int64 snapshot_txn_id = 3 [default = -1];
+    public static final int SNAPSHOT_TXN_ID_FIELD_NUMBER = 3;
+    private boolean hasSnapshotTxnId;
+    private long snapshotTxnId_ = -1L;
+    public boolean hasSnapshotTxnId() { return hasSnapshotTxnId; }
+    public long getSnapshotTxnId() { return snapshotTxnId_; }
+    
+    private void initFields() {
+      status_ = edu.brown.hstore.Hstoreservice.Status.OK;
+    }
+    public final boolean isInitialized() {
+      if (!hasSenderSite) return false;
+      if (!hasStatus) return false;
+      return true;
+    }
+    
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (hasSenderSite()) {
+        output.writeInt32(1, getSenderSite());
+      }
+      if (hasStatus()) {
+        output.writeEnum(2, getStatus().getNumber());
+      }
+      if (hasSnapshotTxnId()) {
+        output.writeInt64(3, getSnapshotTxnId());
+      }
+      getUnknownFields().writeTo(output);
+    }
+    
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+    
+      size = 0;
+      if (hasSenderSite()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(1, getSenderSite());
+      }
+      if (hasStatus()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeEnumSize(2, getStatus().getNumber());
+      }
+      if (hasSnapshotTxnId()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt64Size(3, getSnapshotTxnId());
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSerializedSize = size;
+      return size;
+    }
+    
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreRequest parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreRequest parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreRequest parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreRequest parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreRequest parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreRequest parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreRequest parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreRequest parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input, extensionRegistry)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreRequest parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreRequest parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(edu.brown.hstore.Hstoreservice.ReplayRestoreRequest prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+    
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessage.Builder<Builder> {
+      private edu.brown.hstore.Hstoreservice.ReplayRestoreRequest result;
+      
+      // Construct using edu.brown.hstore.Hstoreservice.ReplayRestoreRequest.newBuilder()
+      private Builder() {}
+      
+      private static Builder create() {
+        Builder builder = new Builder();
+        builder.result = new edu.brown.hstore.Hstoreservice.ReplayRestoreRequest();
+        return builder;
+      }
+      
+      protected edu.brown.hstore.Hstoreservice.ReplayRestoreRequest internalGetResult() {
+        return result;
+      }
+      
+      public Builder clear() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "Cannot call clear() after build().");
+        }
+        result = new edu.brown.hstore.Hstoreservice.ReplayRestoreRequest();
+        return this;
+      }
+      
+      public Builder clone() {
+        return create().mergeFrom(result);
+      }
+      
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return edu.brown.hstore.Hstoreservice.ReplayRestoreRequest.getDescriptor();
+      }
+      
+      public edu.brown.hstore.Hstoreservice.ReplayRestoreRequest getDefaultInstanceForType() {
+        return edu.brown.hstore.Hstoreservice.ReplayRestoreRequest.getDefaultInstance();
+      }
+      
+      public boolean isInitialized() {
+        return result.isInitialized();
+      }
+      public edu.brown.hstore.Hstoreservice.ReplayRestoreRequest build() {
+        if (result != null && !isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return buildPartial();
+      }
+      
+      private edu.brown.hstore.Hstoreservice.ReplayRestoreRequest buildParsed()
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        if (!isInitialized()) {
+          throw newUninitializedMessageException(
+            result).asInvalidProtocolBufferException();
+        }
+        return buildPartial();
+      }
+      
+      public edu.brown.hstore.Hstoreservice.ReplayRestoreRequest buildPartial() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "build() has already been called on this Builder.");
+        }
+        edu.brown.hstore.Hstoreservice.ReplayRestoreRequest returnMe = result;
+        result = null;
+        return returnMe;
+      }
+      
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof edu.brown.hstore.Hstoreservice.ReplayRestoreRequest) {
+          return mergeFrom((edu.brown.hstore.Hstoreservice.ReplayRestoreRequest)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+      
+      public Builder mergeFrom(edu.brown.hstore.Hstoreservice.ReplayRestoreRequest other) {
+        if (other == edu.brown.hstore.Hstoreservice.ReplayRestoreRequest.getDefaultInstance()) return this;
+        if (other.hasSenderSite()) {
+          setSenderSite(other.getSenderSite());
+        }
+        if (other.hasStatus()) {
+          setStatus(other.getStatus());
+        }
+        if (other.hasSnapshotTxnId()) {
+          setSnapshotTxnId(other.getSnapshotTxnId());
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
+        return this;
+      }
+      
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder(
+            this.getUnknownFields());
+        while (true) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              this.setUnknownFields(unknownFields.build());
+              return this;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                this.setUnknownFields(unknownFields.build());
+                return this;
+              }
+              break;
+            }
+            case 8: {
+              setSenderSite(input.readInt32());
+              break;
+            }
+            case 16: {
+              int rawValue = input.readEnum();
+              edu.brown.hstore.Hstoreservice.Status value = edu.brown.hstore.Hstoreservice.Status.valueOf(rawValue);
+              if (value == null) {
+                unknownFields.mergeVarintField(2, rawValue);
+              } else {
+                setStatus(value);
+              }
+              break;
+            }
+            case 24: {
+              setSnapshotTxnId(input.readInt64());
+              break;
+            }
+          }
+        }
+      }
+      
+      
+      // required int32 sender_site = 1;
+      public boolean hasSenderSite() {
+        return result.hasSenderSite();
+      }
+      public int getSenderSite() {
+        return result.getSenderSite();
+      }
+      public Builder setSenderSite(int value) {
+        result.hasSenderSite = true;
+        result.senderSite_ = value;
+        return this;
+      }
+      public Builder clearSenderSite() {
+        result.hasSenderSite = false;
+        result.senderSite_ = 0;
+        return this;
+      }
+      
+      // required .edu.brown.hstore.Status status = 2;
+      public boolean hasStatus() {
+        return result.hasStatus();
+      }
+      public edu.brown.hstore.Hstoreservice.Status getStatus() {
+        return result.getStatus();
+      }
+      public Builder setStatus(edu.brown.hstore.Hstoreservice.Status value) {
+        if (value == null) {
+          throw new NullPointerException();
+        }
+        result.hasStatus = true;
+        result.status_ = value;
+        return this;
+      }
+      public Builder clearStatus() {
+        result.hasStatus = false;
+        result.status_ = edu.brown.hstore.Hstoreservice.Status.OK;
+        return this;
+      }
+      
+      // optional int64 snapshot_txn_id = 3 [default = -1];
+      public boolean hasSnapshotTxnId() {
+        return result.hasSnapshotTxnId();
+      }
+      public long getSnapshotTxnId() {
+        return result.getSnapshotTxnId();
+      }
+      public Builder setSnapshotTxnId(long value) {
+        result.hasSnapshotTxnId = true;
+        result.snapshotTxnId_ = value;
+        return this;
+      }
+      public Builder clearSnapshotTxnId() {
+        result.hasSnapshotTxnId = false;
+        result.snapshotTxnId_ = -1L;
+        return this;
+      }
+      
+      // @@protoc_insertion_point(builder_scope:edu.brown.hstore.ReplayRestoreRequest)
+    }
+    
+    static {
+      defaultInstance = new ReplayRestoreRequest(true);
+      edu.brown.hstore.Hstoreservice.internalForceInit();
+      defaultInstance.initFields();
+    }
+    
+    // @@protoc_insertion_point(class_scope:edu.brown.hstore.ReplayRestoreRequest)
+  }
+  
+  public static final class ReplayRestoreResponse extends
+      com.google.protobuf.GeneratedMessage {
+    // Use ReplayRestoreResponse.newBuilder() to construct.
+    private ReplayRestoreResponse() {
+      initFields();
+    }
+    private ReplayRestoreResponse(boolean noInit) {}
+    
+    private static final ReplayRestoreResponse defaultInstance;
+    public static ReplayRestoreResponse getDefaultInstance() {
+      return defaultInstance;
+    }
+    
+    public ReplayRestoreResponse getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+    
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return edu.brown.hstore.Hstoreservice.internal_static_edu_brown_hstore_ReplayRestoreResponse_descriptor;
+    }
+    
+    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return edu.brown.hstore.Hstoreservice.internal_static_edu_brown_hstore_ReplayRestoreResponse_fieldAccessorTable;
+    }
+    
+    // required int32 sender_site = 1;
+    public static final int SENDER_SITE_FIELD_NUMBER = 1;
+    private boolean hasSenderSite;
+    private int senderSite_ = 0;
+    public boolean hasSenderSite() { return hasSenderSite; }
+    public int getSenderSite() { return senderSite_; }
+    
+    private void initFields() {
+    }
+    public final boolean isInitialized() {
+      if (!hasSenderSite) return false;
+      return true;
+    }
+    
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (hasSenderSite()) {
+        output.writeInt32(1, getSenderSite());
+      }
+      getUnknownFields().writeTo(output);
+    }
+    
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+    
+      size = 0;
+      if (hasSenderSite()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(1, getSenderSite());
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSerializedSize = size;
+      return size;
+    }
+    
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreResponse parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreResponse parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreResponse parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreResponse parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreResponse parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreResponse parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreResponse parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreResponse parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input, extensionRegistry)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreResponse parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayRestoreResponse parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(edu.brown.hstore.Hstoreservice.ReplayRestoreResponse prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+    
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessage.Builder<Builder> {
+      private edu.brown.hstore.Hstoreservice.ReplayRestoreResponse result;
+      
+      // Construct using edu.brown.hstore.Hstoreservice.ReplayRestoreResponse.newBuilder()
+      private Builder() {}
+      
+      private static Builder create() {
+        Builder builder = new Builder();
+        builder.result = new edu.brown.hstore.Hstoreservice.ReplayRestoreResponse();
+        return builder;
+      }
+      
+      protected edu.brown.hstore.Hstoreservice.ReplayRestoreResponse internalGetResult() {
+        return result;
+      }
+      
+      public Builder clear() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "Cannot call clear() after build().");
+        }
+        result = new edu.brown.hstore.Hstoreservice.ReplayRestoreResponse();
+        return this;
+      }
+      
+      public Builder clone() {
+        return create().mergeFrom(result);
+      }
+      
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return edu.brown.hstore.Hstoreservice.ReplayRestoreResponse.getDescriptor();
+      }
+      
+      public edu.brown.hstore.Hstoreservice.ReplayRestoreResponse getDefaultInstanceForType() {
+        return edu.brown.hstore.Hstoreservice.ReplayRestoreResponse.getDefaultInstance();
+      }
+      
+      public boolean isInitialized() {
+        return result.isInitialized();
+      }
+      public edu.brown.hstore.Hstoreservice.ReplayRestoreResponse build() {
+        if (result != null && !isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return buildPartial();
+      }
+      
+      private edu.brown.hstore.Hstoreservice.ReplayRestoreResponse buildParsed()
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        if (!isInitialized()) {
+          throw newUninitializedMessageException(
+            result).asInvalidProtocolBufferException();
+        }
+        return buildPartial();
+      }
+      
+      public edu.brown.hstore.Hstoreservice.ReplayRestoreResponse buildPartial() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "build() has already been called on this Builder.");
+        }
+        edu.brown.hstore.Hstoreservice.ReplayRestoreResponse returnMe = result;
+        result = null;
+        return returnMe;
+      }
+      
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof edu.brown.hstore.Hstoreservice.ReplayRestoreResponse) {
+          return mergeFrom((edu.brown.hstore.Hstoreservice.ReplayRestoreResponse)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+      
+      public Builder mergeFrom(edu.brown.hstore.Hstoreservice.ReplayRestoreResponse other) {
+        if (other == edu.brown.hstore.Hstoreservice.ReplayRestoreResponse.getDefaultInstance()) return this;
+        if (other.hasSenderSite()) {
+          setSenderSite(other.getSenderSite());
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
+        return this;
+      }
+      
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder(
+            this.getUnknownFields());
+        while (true) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              this.setUnknownFields(unknownFields.build());
+              return this;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                this.setUnknownFields(unknownFields.build());
+                return this;
+              }
+              break;
+            }
+            case 8: {
+              setSenderSite(input.readInt32());
+              break;
+            }
+          }
+        }
+      }
+      
+      
+      // required int32 sender_site = 1;
+      public boolean hasSenderSite() {
+        return result.hasSenderSite();
+      }
+      public int getSenderSite() {
+        return result.getSenderSite();
+      }
+      public Builder setSenderSite(int value) {
+        result.hasSenderSite = true;
+        result.senderSite_ = value;
+        return this;
+      }
+      public Builder clearSenderSite() {
+        result.hasSenderSite = false;
+        result.senderSite_ = 0;
+        return this;
+      }
+      
+      // @@protoc_insertion_point(builder_scope:edu.brown.hstore.ReplayRestoreResponse)
+    }
+    
+    static {
+      defaultInstance = new ReplayRestoreResponse(true);
+      edu.brown.hstore.Hstoreservice.internalForceInit();
+      defaultInstance.initFields();
+    }
+    
+    // @@protoc_insertion_point(class_scope:edu.brown.hstore.ReplayRestoreResponse)
+  }
+  
+  public static final class ReplayTransactionsRequest extends
+      com.google.protobuf.GeneratedMessage {
+    // Use ReplayTransactionsRequest.newBuilder() to construct.
+    private ReplayTransactionsRequest() {
+      initFields();
+    }
+    private ReplayTransactionsRequest(boolean noInit) {}
+    
+    private static final ReplayTransactionsRequest defaultInstance;
+    public static ReplayTransactionsRequest getDefaultInstance() {
+      return defaultInstance;
+    }
+    
+    public ReplayTransactionsRequest getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+    
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return edu.brown.hstore.Hstoreservice.internal_static_edu_brown_hstore_ReplayTransactionsRequest_descriptor;
+    }
+    
+    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return edu.brown.hstore.Hstoreservice.internal_static_edu_brown_hstore_ReplayTransactionsRequest_fieldAccessorTable;
+    }
+    
+    // required int32 sender_site = 1;
+    public static final int SENDER_SITE_FIELD_NUMBER = 1;
+    private boolean hasSenderSite;
+    private int senderSite_ = 0;
+    public boolean hasSenderSite() { return hasSenderSite; }
+    public int getSenderSite() { return senderSite_; }
+    
+    // repeated int64 transaction_ids = 2;
+    public static final int TRANSACTION_IDS_FIELD_NUMBER = 2;
+    private java.util.List<java.lang.Long> transactionIds_ =
+      java.util.Collections.emptyList();
+    public java.util.List<java.lang.Long> getTransactionIdsList() {
+      return transactionIds_;
+    }
+    public int getTransactionIdsCount() { return transactionIds_.size(); }
+    public long getTransactionIds(int index) {
+      return transactionIds_.get(index);
+    }
+    
+    private void initFields() {
+    }
+    public final boolean isInitialized() {
+      if (!hasSenderSite) return false;
+      return true;
+    }
+    
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (hasSenderSite()) {
+        output.writeInt32(1, getSenderSite());
+      }
+      for (long element : getTransactionIdsList()) {
+        output.writeInt64(2, element);
+      }
+      getUnknownFields().writeTo(output);
+    }
+    
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+    
+      size = 0;
+      if (hasSenderSite()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(1, getSenderSite());
+      }
+      {
+        int dataSize = 0;
+        for (long element : getTransactionIdsList()) {
+          dataSize += com.google.protobuf.CodedOutputStream
+            .computeInt64SizeNoTag(element);
+        }
+        size += dataSize;
+        size += 1 * getTransactionIdsList().size();
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSerializedSize = size;
+      return size;
+    }
+    
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input, extensionRegistry)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+    
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessage.Builder<Builder> {
+      private edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest result;
+      
+      // Construct using edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest.newBuilder()
+      private Builder() {}
+      
+      private static Builder create() {
+        Builder builder = new Builder();
+        builder.result = new edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest();
+        return builder;
+      }
+      
+      protected edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest internalGetResult() {
+        return result;
+      }
+      
+      public Builder clear() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "Cannot call clear() after build().");
+        }
+        result = new edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest();
+        return this;
+      }
+      
+      public Builder clone() {
+        return create().mergeFrom(result);
+      }
+      
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest.getDescriptor();
+      }
+      
+      public edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest getDefaultInstanceForType() {
+        return edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest.getDefaultInstance();
+      }
+      
+      public boolean isInitialized() {
+        return result.isInitialized();
+      }
+      public edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest build() {
+        if (result != null && !isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return buildPartial();
+      }
+      
+      private edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest buildParsed()
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        if (!isInitialized()) {
+          throw newUninitializedMessageException(
+            result).asInvalidProtocolBufferException();
+        }
+        return buildPartial();
+      }
+      
+      public edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest buildPartial() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "build() has already been called on this Builder.");
+        }
+        if (result.transactionIds_ != java.util.Collections.EMPTY_LIST) {
+          result.transactionIds_ =
+            java.util.Collections.unmodifiableList(result.transactionIds_);
+        }
+        edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest returnMe = result;
+        result = null;
+        return returnMe;
+      }
+      
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest) {
+          return mergeFrom((edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+      
+      public Builder mergeFrom(edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest other) {
+        if (other == edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest.getDefaultInstance()) return this;
+        if (other.hasSenderSite()) {
+          setSenderSite(other.getSenderSite());
+        }
+        if (!other.transactionIds_.isEmpty()) {
+          if (result.transactionIds_.isEmpty()) {
+            result.transactionIds_ = new java.util.ArrayList<java.lang.Long>();
+          }
+          result.transactionIds_.addAll(other.transactionIds_);
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
+        return this;
+      }
+      
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder(
+            this.getUnknownFields());
+        while (true) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              this.setUnknownFields(unknownFields.build());
+              return this;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                this.setUnknownFields(unknownFields.build());
+                return this;
+              }
+              break;
+            }
+            case 8: {
+              setSenderSite(input.readInt32());
+              break;
+            }
+            case 16: {
+              addTransactionIds(input.readInt64());
+              break;
+            }
+            case 18: {
+              int length = input.readRawVarint32();
+              int limit = input.pushLimit(length);
+              while (input.getBytesUntilLimit() > 0) {
+                addTransactionIds(input.readInt64());
+              }
+              input.popLimit(limit);
+              break;
+            }
+          }
+        }
+      }
+      
+      
+      // required int32 sender_site = 1;
+      public boolean hasSenderSite() {
+        return result.hasSenderSite();
+      }
+      public int getSenderSite() {
+        return result.getSenderSite();
+      }
+      public Builder setSenderSite(int value) {
+        result.hasSenderSite = true;
+        result.senderSite_ = value;
+        return this;
+      }
+      public Builder clearSenderSite() {
+        result.hasSenderSite = false;
+        result.senderSite_ = 0;
+        return this;
+      }
+      
+      // repeated int64 transaction_ids = 2;
+      public java.util.List<java.lang.Long> getTransactionIdsList() {
+        return java.util.Collections.unmodifiableList(result.transactionIds_);
+      }
+      public int getTransactionIdsCount() {
+        return result.getTransactionIdsCount();
+      }
+      public long getTransactionIds(int index) {
+        return result.getTransactionIds(index);
+      }
+      public Builder setTransactionIds(int index, long value) {
+        result.transactionIds_.set(index, value);
+        return this;
+      }
+      public Builder addTransactionIds(long value) {
+        if (result.transactionIds_.isEmpty()) {
+          result.transactionIds_ = new java.util.ArrayList<java.lang.Long>();
+        }
+        result.transactionIds_.add(value);
+        return this;
+      }
+      public Builder addAllTransactionIds(
+          java.lang.Iterable<? extends java.lang.Long> values) {
+        if (result.transactionIds_.isEmpty()) {
+          result.transactionIds_ = new java.util.ArrayList<java.lang.Long>();
+        }
+        super.addAll(values, result.transactionIds_);
+        return this;
+      }
+      public Builder clearTransactionIds() {
+        result.transactionIds_ = java.util.Collections.emptyList();
+        return this;
+      }
+      
+      // @@protoc_insertion_point(builder_scope:edu.brown.hstore.ReplayTransactionsRequest)
+    }
+    
+    static {
+      defaultInstance = new ReplayTransactionsRequest(true);
+      edu.brown.hstore.Hstoreservice.internalForceInit();
+      defaultInstance.initFields();
+    }
+    
+    // @@protoc_insertion_point(class_scope:edu.brown.hstore.ReplayTransactionsRequest)
+  }
+  
+  public static final class ReplayTransactionsResponse extends
+      com.google.protobuf.GeneratedMessage {
+    // Use ReplayTransactionsResponse.newBuilder() to construct.
+    private ReplayTransactionsResponse() {
+      initFields();
+    }
+    private ReplayTransactionsResponse(boolean noInit) {}
+    
+    private static final ReplayTransactionsResponse defaultInstance;
+    public static ReplayTransactionsResponse getDefaultInstance() {
+      return defaultInstance;
+    }
+    
+    public ReplayTransactionsResponse getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+    
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return edu.brown.hstore.Hstoreservice.internal_static_edu_brown_hstore_ReplayTransactionsResponse_descriptor;
+    }
+    
+    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return edu.brown.hstore.Hstoreservice.internal_static_edu_brown_hstore_ReplayTransactionsResponse_fieldAccessorTable;
+    }
+    
+    // required int32 sender_site = 1;
+    public static final int SENDER_SITE_FIELD_NUMBER = 1;
+    private boolean hasSenderSite;
+    private int senderSite_ = 0;
+    public boolean hasSenderSite() { return hasSenderSite; }
+    public int getSenderSite() { return senderSite_; }
+    
+    private void initFields() {
+    }
+    public final boolean isInitialized() {
+      if (!hasSenderSite) return false;
+      return true;
+    }
+    
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (hasSenderSite()) {
+        output.writeInt32(1, getSenderSite());
+      }
+      getUnknownFields().writeTo(output);
+    }
+    
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+    
+      size = 0;
+      if (hasSenderSite()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(1, getSenderSite());
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSerializedSize = size;
+      return size;
+    }
+    
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input, extensionRegistry)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+    
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessage.Builder<Builder> {
+      private edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse result;
+      
+      // Construct using edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse.newBuilder()
+      private Builder() {}
+      
+      private static Builder create() {
+        Builder builder = new Builder();
+        builder.result = new edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse();
+        return builder;
+      }
+      
+      protected edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse internalGetResult() {
+        return result;
+      }
+      
+      public Builder clear() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "Cannot call clear() after build().");
+        }
+        result = new edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse();
+        return this;
+      }
+      
+      public Builder clone() {
+        return create().mergeFrom(result);
+      }
+      
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse.getDescriptor();
+      }
+      
+      public edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse getDefaultInstanceForType() {
+        return edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse.getDefaultInstance();
+      }
+      
+      public boolean isInitialized() {
+        return result.isInitialized();
+      }
+      public edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse build() {
+        if (result != null && !isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return buildPartial();
+      }
+      
+      private edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse buildParsed()
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        if (!isInitialized()) {
+          throw newUninitializedMessageException(
+            result).asInvalidProtocolBufferException();
+        }
+        return buildPartial();
+      }
+      
+      public edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse buildPartial() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "build() has already been called on this Builder.");
+        }
+        edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse returnMe = result;
+        result = null;
+        return returnMe;
+      }
+      
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse) {
+          return mergeFrom((edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+      
+      public Builder mergeFrom(edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse other) {
+        if (other == edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse.getDefaultInstance()) return this;
+        if (other.hasSenderSite()) {
+          setSenderSite(other.getSenderSite());
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
+        return this;
+      }
+      
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder(
+            this.getUnknownFields());
+        while (true) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              this.setUnknownFields(unknownFields.build());
+              return this;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                this.setUnknownFields(unknownFields.build());
+                return this;
+              }
+              break;
+            }
+            case 8: {
+              setSenderSite(input.readInt32());
+              break;
+            }
+          }
+        }
+      }
+      
+      
+      // required int32 sender_site = 1;
+      public boolean hasSenderSite() {
+        return result.hasSenderSite();
+      }
+      public int getSenderSite() {
+        return result.getSenderSite();
+      }
+      public Builder setSenderSite(int value) {
+        result.hasSenderSite = true;
+        result.senderSite_ = value;
+        return this;
+      }
+      public Builder clearSenderSite() {
+        result.hasSenderSite = false;
+        result.senderSite_ = 0;
+        return this;
+      }
+      
+      // @@protoc_insertion_point(builder_scope:edu.brown.hstore.ReplayTransactionsResponse)
+    }
+    
+    static {
+      defaultInstance = new ReplayTransactionsResponse(true);
+      edu.brown.hstore.Hstoreservice.internalForceInit();
+      defaultInstance.initFields();
+    }
+    
+    // @@protoc_insertion_point(class_scope:edu.brown.hstore.ReplayTransactionsResponse)
+  }
+  
+  public static final class ReplayBarrierRequest extends
+      com.google.protobuf.GeneratedMessage {
+    // Use ReplayBarrierRequest.newBuilder() to construct.
+    private ReplayBarrierRequest() {
+      initFields();
+    }
+    private ReplayBarrierRequest(boolean noInit) {}
+    
+    private static final ReplayBarrierRequest defaultInstance;
+    public static ReplayBarrierRequest getDefaultInstance() {
+      return defaultInstance;
+    }
+    
+    public ReplayBarrierRequest getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+    
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return edu.brown.hstore.Hstoreservice.internal_static_edu_brown_hstore_ReplayBarrierRequest_descriptor;
+    }
+    
+    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return edu.brown.hstore.Hstoreservice.internal_static_edu_brown_hstore_ReplayBarrierRequest_fieldAccessorTable;
+    }
+    
+    // required int32 sender_site = 1;
+    public static final int SENDER_SITE_FIELD_NUMBER = 1;
+    private boolean hasSenderSite;
+    private int senderSite_ = 0;
+    public boolean hasSenderSite() { return hasSenderSite; }
+    public int getSenderSite() { return senderSite_; }
+    
+    // required int64 transaction_id = 2;
+    public static final int TRANSACTION_ID_FIELD_NUMBER = 2;
+    private boolean hasTransactionId;
+    private long transactionId_ = 0L;
+    public boolean hasTransactionId() { return hasTransactionId; }
+    public long getTransactionId() { return transactionId_; }
+    
+    // required bool finished = 3;
+    public static final int FINISHED_FIELD_NUMBER = 3;
+    private boolean hasFinished;
+    private boolean finished_ = false;
+    public boolean hasFinished() { return hasFinished; }
+    public boolean getFinished() { return finished_; }
+    
+    private void initFields() {
+    }
+    public final boolean isInitialized() {
+      if (!hasSenderSite) return false;
+      if (!hasTransactionId) return false;
+      if (!hasFinished) return false;
+      return true;
+    }
+    
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (hasSenderSite()) {
+        output.writeInt32(1, getSenderSite());
+      }
+      if (hasTransactionId()) {
+        output.writeInt64(2, getTransactionId());
+      }
+      if (hasFinished()) {
+        output.writeBool(3, getFinished());
+      }
+      getUnknownFields().writeTo(output);
+    }
+    
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+    
+      size = 0;
+      if (hasSenderSite()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(1, getSenderSite());
+      }
+      if (hasTransactionId()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt64Size(2, getTransactionId());
+      }
+      if (hasFinished()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBoolSize(3, getFinished());
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSerializedSize = size;
+      return size;
+    }
+    
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierRequest parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierRequest parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierRequest parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierRequest parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierRequest parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierRequest parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierRequest parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierRequest parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input, extensionRegistry)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierRequest parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierRequest parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(edu.brown.hstore.Hstoreservice.ReplayBarrierRequest prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+    
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessage.Builder<Builder> {
+      private edu.brown.hstore.Hstoreservice.ReplayBarrierRequest result;
+      
+      // Construct using edu.brown.hstore.Hstoreservice.ReplayBarrierRequest.newBuilder()
+      private Builder() {}
+      
+      private static Builder create() {
+        Builder builder = new Builder();
+        builder.result = new edu.brown.hstore.Hstoreservice.ReplayBarrierRequest();
+        return builder;
+      }
+      
+      protected edu.brown.hstore.Hstoreservice.ReplayBarrierRequest internalGetResult() {
+        return result;
+      }
+      
+      public Builder clear() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "Cannot call clear() after build().");
+        }
+        result = new edu.brown.hstore.Hstoreservice.ReplayBarrierRequest();
+        return this;
+      }
+      
+      public Builder clone() {
+        return create().mergeFrom(result);
+      }
+      
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return edu.brown.hstore.Hstoreservice.ReplayBarrierRequest.getDescriptor();
+      }
+      
+      public edu.brown.hstore.Hstoreservice.ReplayBarrierRequest getDefaultInstanceForType() {
+        return edu.brown.hstore.Hstoreservice.ReplayBarrierRequest.getDefaultInstance();
+      }
+      
+      public boolean isInitialized() {
+        return result.isInitialized();
+      }
+      public edu.brown.hstore.Hstoreservice.ReplayBarrierRequest build() {
+        if (result != null && !isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return buildPartial();
+      }
+      
+      private edu.brown.hstore.Hstoreservice.ReplayBarrierRequest buildParsed()
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        if (!isInitialized()) {
+          throw newUninitializedMessageException(
+            result).asInvalidProtocolBufferException();
+        }
+        return buildPartial();
+      }
+      
+      public edu.brown.hstore.Hstoreservice.ReplayBarrierRequest buildPartial() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "build() has already been called on this Builder.");
+        }
+        edu.brown.hstore.Hstoreservice.ReplayBarrierRequest returnMe = result;
+        result = null;
+        return returnMe;
+      }
+      
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof edu.brown.hstore.Hstoreservice.ReplayBarrierRequest) {
+          return mergeFrom((edu.brown.hstore.Hstoreservice.ReplayBarrierRequest)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+      
+      public Builder mergeFrom(edu.brown.hstore.Hstoreservice.ReplayBarrierRequest other) {
+        if (other == edu.brown.hstore.Hstoreservice.ReplayBarrierRequest.getDefaultInstance()) return this;
+        if (other.hasSenderSite()) {
+          setSenderSite(other.getSenderSite());
+        }
+        if (other.hasTransactionId()) {
+          setTransactionId(other.getTransactionId());
+        }
+        if (other.hasFinished()) {
+          setFinished(other.getFinished());
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
+        return this;
+      }
+      
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder(
+            this.getUnknownFields());
+        while (true) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              this.setUnknownFields(unknownFields.build());
+              return this;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                this.setUnknownFields(unknownFields.build());
+                return this;
+              }
+              break;
+            }
+            case 8: {
+              setSenderSite(input.readInt32());
+              break;
+            }
+            case 16: {
+              setTransactionId(input.readInt64());
+              break;
+            }
+            case 24: {
+              setFinished(input.readBool());
+              break;
+            }
+          }
+        }
+      }
+      
+      
+      // required int32 sender_site = 1;
+      public boolean hasSenderSite() {
+        return result.hasSenderSite();
+      }
+      public int getSenderSite() {
+        return result.getSenderSite();
+      }
+      public Builder setSenderSite(int value) {
+        result.hasSenderSite = true;
+        result.senderSite_ = value;
+        return this;
+      }
+      public Builder clearSenderSite() {
+        result.hasSenderSite = false;
+        result.senderSite_ = 0;
+        return this;
+      }
+      
+      // required int64 transaction_id = 2;
+      public boolean hasTransactionId() {
+        return result.hasTransactionId();
+      }
+      public long getTransactionId() {
+        return result.getTransactionId();
+      }
+      public Builder setTransactionId(long value) {
+        result.hasTransactionId = true;
+        result.transactionId_ = value;
+        return this;
+      }
+      public Builder clearTransactionId() {
+        result.hasTransactionId = false;
+        result.transactionId_ = 0L;
+        return this;
+      }
+      
+      // required bool finished = 3;
+      public boolean hasFinished() {
+        return result.hasFinished();
+      }
+      public boolean getFinished() {
+        return result.getFinished();
+      }
+      public Builder setFinished(boolean value) {
+        result.hasFinished = true;
+        result.finished_ = value;
+        return this;
+      }
+      public Builder clearFinished() {
+        result.hasFinished = false;
+        result.finished_ = false;
+        return this;
+      }
+      
+      // @@protoc_insertion_point(builder_scope:edu.brown.hstore.ReplayBarrierRequest)
+    }
+    
+    static {
+      defaultInstance = new ReplayBarrierRequest(true);
+      edu.brown.hstore.Hstoreservice.internalForceInit();
+      defaultInstance.initFields();
+    }
+    
+    // @@protoc_insertion_point(class_scope:edu.brown.hstore.ReplayBarrierRequest)
+  }
+  
+  public static final class ReplayBarrierResponse extends
+      com.google.protobuf.GeneratedMessage {
+    // Use ReplayBarrierResponse.newBuilder() to construct.
+    private ReplayBarrierResponse() {
+      initFields();
+    }
+    private ReplayBarrierResponse(boolean noInit) {}
+    
+    private static final ReplayBarrierResponse defaultInstance;
+    public static ReplayBarrierResponse getDefaultInstance() {
+      return defaultInstance;
+    }
+    
+    public ReplayBarrierResponse getDefaultInstanceForType() {
+      return defaultInstance;
+    }
+    
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return edu.brown.hstore.Hstoreservice.internal_static_edu_brown_hstore_ReplayBarrierResponse_descriptor;
+    }
+    
+    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return edu.brown.hstore.Hstoreservice.internal_static_edu_brown_hstore_ReplayBarrierResponse_fieldAccessorTable;
+    }
+    
+    // required int32 sender_site = 1;
+    public static final int SENDER_SITE_FIELD_NUMBER = 1;
+    private boolean hasSenderSite;
+    private int senderSite_ = 0;
+    public boolean hasSenderSite() { return hasSenderSite; }
+    public int getSenderSite() { return senderSite_; }
+    
+    private void initFields() {
+    }
+    public final boolean isInitialized() {
+      if (!hasSenderSite) return false;
+      return true;
+    }
+    
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      getSerializedSize();
+      if (hasSenderSite()) {
+        output.writeInt32(1, getSenderSite());
+      }
+      getUnknownFields().writeTo(output);
+    }
+    
+    private int memoizedSerializedSize = -1;
+    public int getSerializedSize() {
+      int size = memoizedSerializedSize;
+      if (size != -1) return size;
+    
+      size = 0;
+      if (hasSenderSite()) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(1, getSenderSite());
+      }
+      size += getUnknownFields().getSerializedSize();
+      memoizedSerializedSize = size;
+      return size;
+    }
+    
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierResponse parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierResponse parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierResponse parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierResponse parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return newBuilder().mergeFrom(data, extensionRegistry)
+               .buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierResponse parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierResponse parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierResponse parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierResponse parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      Builder builder = newBuilder();
+      if (builder.mergeDelimitedFrom(input, extensionRegistry)) {
+        return builder.buildParsed();
+      } else {
+        return null;
+      }
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierResponse parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input).buildParsed();
+    }
+    public static edu.brown.hstore.Hstoreservice.ReplayBarrierResponse parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return newBuilder().mergeFrom(input, extensionRegistry)
+               .buildParsed();
+    }
+    
+    public static Builder newBuilder() { return Builder.create(); }
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder(edu.brown.hstore.Hstoreservice.ReplayBarrierResponse prototype) {
+      return newBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() { return newBuilder(this); }
+    
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessage.Builder<Builder> {
+      private edu.brown.hstore.Hstoreservice.ReplayBarrierResponse result;
+      
+      // Construct using edu.brown.hstore.Hstoreservice.ReplayBarrierResponse.newBuilder()
+      private Builder() {}
+      
+      private static Builder create() {
+        Builder builder = new Builder();
+        builder.result = new edu.brown.hstore.Hstoreservice.ReplayBarrierResponse();
+        return builder;
+      }
+      
+      protected edu.brown.hstore.Hstoreservice.ReplayBarrierResponse internalGetResult() {
+        return result;
+      }
+      
+      public Builder clear() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "Cannot call clear() after build().");
+        }
+        result = new edu.brown.hstore.Hstoreservice.ReplayBarrierResponse();
+        return this;
+      }
+      
+      public Builder clone() {
+        return create().mergeFrom(result);
+      }
+      
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return edu.brown.hstore.Hstoreservice.ReplayBarrierResponse.getDescriptor();
+      }
+      
+      public edu.brown.hstore.Hstoreservice.ReplayBarrierResponse getDefaultInstanceForType() {
+        return edu.brown.hstore.Hstoreservice.ReplayBarrierResponse.getDefaultInstance();
+      }
+      
+      public boolean isInitialized() {
+        return result.isInitialized();
+      }
+      public edu.brown.hstore.Hstoreservice.ReplayBarrierResponse build() {
+        if (result != null && !isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return buildPartial();
+      }
+      
+      private edu.brown.hstore.Hstoreservice.ReplayBarrierResponse buildParsed()
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        if (!isInitialized()) {
+          throw newUninitializedMessageException(
+            result).asInvalidProtocolBufferException();
+        }
+        return buildPartial();
+      }
+      
+      public edu.brown.hstore.Hstoreservice.ReplayBarrierResponse buildPartial() {
+        if (result == null) {
+          throw new IllegalStateException(
+            "build() has already been called on this Builder.");
+        }
+        edu.brown.hstore.Hstoreservice.ReplayBarrierResponse returnMe = result;
+        result = null;
+        return returnMe;
+      }
+      
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof edu.brown.hstore.Hstoreservice.ReplayBarrierResponse) {
+          return mergeFrom((edu.brown.hstore.Hstoreservice.ReplayBarrierResponse)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+      
+      public Builder mergeFrom(edu.brown.hstore.Hstoreservice.ReplayBarrierResponse other) {
+        if (other == edu.brown.hstore.Hstoreservice.ReplayBarrierResponse.getDefaultInstance()) return this;
+        if (other.hasSenderSite()) {
+          setSenderSite(other.getSenderSite());
+        }
+        this.mergeUnknownFields(other.getUnknownFields());
+        return this;
+      }
+      
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder(
+            this.getUnknownFields());
+        while (true) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              this.setUnknownFields(unknownFields.build());
+              return this;
+            default: {
+              if (!parseUnknownField(input, unknownFields,
+                                     extensionRegistry, tag)) {
+                this.setUnknownFields(unknownFields.build());
+                return this;
+              }
+              break;
+            }
+            case 8: {
+              setSenderSite(input.readInt32());
+              break;
+            }
+          }
+        }
+      }
+      
+      
+      // required int32 sender_site = 1;
+      public boolean hasSenderSite() {
+        return result.hasSenderSite();
+      }
+      public int getSenderSite() {
+        return result.getSenderSite();
+      }
+      public Builder setSenderSite(int value) {
+        result.hasSenderSite = true;
+        result.senderSite_ = value;
+        return this;
+      }
+      public Builder clearSenderSite() {
+        result.hasSenderSite = false;
+        result.senderSite_ = 0;
+        return this;
+      }
+      
+      // @@protoc_insertion_point(builder_scope:edu.brown.hstore.ReplayBarrierResponse)
+    }
+    
+    static {
+      defaultInstance = new ReplayBarrierResponse(true);
+      edu.brown.hstore.Hstoreservice.internalForceInit();
+      defaultInstance.initFields();
+    }
+    
+    // @@protoc_insertion_point(class_scope:edu.brown.hstore.ReplayBarrierResponse)
+  }
+  
   public static final class ShutdownRequest extends
       com.google.protobuf.GeneratedMessage {
     // Use ShutdownRequest.newBuilder() to construct.
@@ -12366,6 +14326,21 @@ public final class Hstoreservice {
           edu.brown.hstore.Hstoreservice.InitializeRequest request,
           com.google.protobuf.RpcCallback<edu.brown.hstore.Hstoreservice.InitializeResponse> done);
       
+      public abstract void replayRestore(
+          com.google.protobuf.RpcController controller,
+          edu.brown.hstore.Hstoreservice.ReplayRestoreRequest request,
+          com.google.protobuf.RpcCallback<edu.brown.hstore.Hstoreservice.ReplayRestoreResponse> done);
+      
+      public abstract void replayTransactions(
+          com.google.protobuf.RpcController controller,
+          edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest request,
+          com.google.protobuf.RpcCallback<edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse> done);
+      
+      public abstract void replayBarrier(
+          com.google.protobuf.RpcController controller,
+          edu.brown.hstore.Hstoreservice.ReplayBarrierRequest request,
+          com.google.protobuf.RpcCallback<edu.brown.hstore.Hstoreservice.ReplayBarrierResponse> done);
+      
       public abstract void shutdown(
           com.google.protobuf.RpcController controller,
           edu.brown.hstore.Hstoreservice.ShutdownRequest request,
@@ -12461,6 +14436,30 @@ public final class Hstoreservice {
           impl.initialize(controller, request, done);
         }
         
+        @Override
+        public  void replayRestore(
+            com.google.protobuf.RpcController controller,
+            edu.brown.hstore.Hstoreservice.ReplayRestoreRequest request,
+            com.google.protobuf.RpcCallback<edu.brown.hstore.Hstoreservice.ReplayRestoreResponse> done) {
+          impl.replayRestore(controller, request, done);
+        }
+        
+        @Override
+        public  void replayTransactions(
+            com.google.protobuf.RpcController controller,
+            edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest request,
+            com.google.protobuf.RpcCallback<edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse> done) {
+          impl.replayTransactions(controller, request, done);
+        }
+        
+        @Override
+        public  void replayBarrier(
+            com.google.protobuf.RpcController controller,
+            edu.brown.hstore.Hstoreservice.ReplayBarrierRequest request,
+            com.google.protobuf.RpcCallback<edu.brown.hstore.Hstoreservice.ReplayBarrierResponse> done) {
+          impl.replayBarrier(controller, request, done);
+        }
+        
         @Override
         public  void shutdown(
             com.google.protobuf.RpcController controller,
@@ -12520,8 +14519,14 @@ public final class Hstoreservice {
             case 9:
               return impl.initialize(controller, (edu.brown.hstore.Hstoreservice.InitializeRequest)request);
             case 10:
-              return impl.shutdown(controller, (edu.brown.hstore.Hstoreservice.ShutdownRequest)request);
+              return impl.replayRestore(controller, (edu.brown.hstore.Hstoreservice.ReplayRestoreRequest)request);
             case 11:
+              return impl.replayTransactions(controller, (edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest)request);
+            case 12:
+              return impl.replayBarrier(controller, (edu.brown.hstore.Hstoreservice.ReplayBarrierRequest)request);
+            case 13:
+              return impl.shutdown(controller, (edu.brown.hstore.Hstoreservice.ShutdownRequest)request);
+            case 14:
               return impl.timeSync(controller, (edu.brown.hstore.Hstoreservice.TimeSyncRequest)request);
             default:
               throw new java.lang.AssertionError("Can't get here.");
@@ -12558,8 +14563,14 @@ public final class Hstoreservice {
             case 9:
               return edu.brown.hstore.Hstoreservice.InitializeRequest.getDefaultInstance();
             case 10:
-              return edu.brown.hstore.Hstoreservice.ShutdownRequest.getDefaultInstance();
+              return edu.brown.hstore.Hstoreservice.ReplayRestoreRequest.getDefaultInstance();
             case 11:
+              return edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest.getDefaultInstance();
+            case 12:
+              return edu.brown.hstore.Hstoreservice.ReplayBarrierRequest.getDefaultInstance();
+            case 13:
+              return edu.brown.hstore.Hstoreservice.ShutdownRequest.getDefaultInstance();
+            case 14:
               return edu.brown.hstore.Hstoreservice.TimeSyncRequest.getDefaultInstance();
             default:
               throw new java.lang.AssertionError("Can't get here.");
@@ -12596,8 +14607,14 @@ public final class Hstoreservice {
             case 9:
               return edu.brown.hstore.Hstoreservice.InitializeResponse.getDefaultInstance();
             case 10:
-              return edu.brown.hstore.Hstoreservice.ShutdownResponse.getDefaultInstance();
+              return edu.brown.hstore.Hstoreservice.ReplayRestoreResponse.getDefaultInstance();
             case 11:
+              return edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse.getDefaultInstance();
+            case 12:
+              return edu.brown.hstore.Hstoreservice.ReplayBarrierResponse.getDefaultInstance();
+            case 13:
+              return edu.brown.hstore.Hstoreservice.ShutdownResponse.getDefaultInstance();
+            case 14:
               return edu.brown.hstore.Hstoreservice.TimeSyncResponse.getDefaultInstance();
             default:
               throw new java.lang.AssertionError("Can't get here.");
@@ -12657,6 +14674,21 @@ public final class Hstoreservice {
         edu.brown.hstore.Hstoreservice.InitializeRequest request,
         com.google.protobuf.RpcCallback<edu.brown.hstore.Hstoreservice.InitializeResponse> done);
     
+    public abstract void replayRestore(
+        com.google.protobuf.RpcController controller,
+        edu.brown.hstore.Hstoreservice.ReplayRestoreRequest request,
+        com.google.protobuf.RpcCallback<edu.brown.hstore.Hstoreservice.ReplayRestoreResponse> done);
+    
+    public abstract void replayTransactions(
+        com.google.protobuf.RpcController controller,
+        edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest request,
+        com.google.protobuf.RpcCallback<edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse> done);
+    
+    public abstract void replayBarrier(
+        com.google.protobuf.RpcController controller,
+        edu.brown.hstore.Hstoreservice.ReplayBarrierRequest request,
+        com.google.protobuf.RpcCallback<edu.brown.hstore.Hstoreservice.ReplayBarrierResponse> done);
+    
     public abstract void shutdown(
         com.google.protobuf.RpcController controller,
         edu.brown.hstore.Hstoreservice.ShutdownRequest request,
@@ -12740,11 +14772,26 @@ public final class Hstoreservice {
               done));
           return;
         case 10:
+          this.replayRestore(controller, (edu.brown.hstore.Hstoreservice.ReplayRestoreRequest)request,
+            com.google.protobuf.RpcUtil.<edu.brown.hstore.Hstoreservice.ReplayRestoreResponse>specializeCallback(
+              done));
+          return;
+        case 11:
+          this.replayTransactions(controller, (edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest)request,
+            com.google.protobuf.RpcUtil.<edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse>specializeCallback(
+              done));
+          return;
+        case 12:
+          this.replayBarrier(controller, (edu.brown.hstore.Hstoreservice.ReplayBarrierRequest)request,
+            com.google.protobuf.RpcUtil.<edu.brown.hstore.Hstoreservice.ReplayBarrierResponse>specializeCallback(
+              done));
+          return;
+        case 13:
           this.shutdown(controller, (edu.brown.hstore.Hstoreservice.ShutdownRequest)request,
             com.google.protobuf.RpcUtil.<edu.brown.hstore.Hstoreservice.ShutdownResponse>specializeCallback(
               done));
           return;
-        case 11:
+        case 14:
           this.timeSync(controller, (edu.brown.hstore.Hstoreservice.TimeSyncRequest)request,
             com.google.protobuf.RpcUtil.<edu.brown.hstore.Hstoreservice.TimeSyncResponse>specializeCallback(
               done));
@@ -12784,8 +14831,14 @@ public final class Hstoreservice {
         case 9:
           return edu.brown.hstore.Hstoreservice.InitializeRequest.getDefaultInstance();
         case 10:
-          return edu.brown.hstore.Hstoreservice.ShutdownRequest.getDefaultInstance();
+          return edu.brown.hstore.Hstoreservice.ReplayRestoreRequest.getDefaultInstance();
         case 11:
+          return edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest.getDefaultInstance();
+        case 12:
+          return edu.brown.hstore.Hstoreservice.ReplayBarrierRequest.getDefaultInstance();
+        case 13:
+          return edu.brown.hstore.Hstoreservice.ShutdownRequest.getDefaultInstance();
+        case 14:
           return edu.brown.hstore.Hstoreservice.TimeSyncRequest.getDefaultInstance();
         default:
           throw new java.lang.AssertionError("Can't get here.");
@@ -12822,8 +14875,14 @@ public final class Hstoreservice {
         case 9:
           return edu.brown.hstore.Hstoreservice.InitializeResponse.getDefaultInstance();
         case 10:
-          return edu.brown.hstore.Hstoreservice.ShutdownResponse.getDefaultInstance();
+          return edu.brown.hstore.Hstoreservice.ReplayRestoreResponse.getDefaultInstance();
         case 11:
+          return edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse.getDefaultInstance();
+        case 12:
+          return edu.brown.hstore.Hstoreservice.ReplayBarrierResponse.getDefaultInstance();
+        case 13:
+          return edu.brown.hstore.Hstoreservice.ShutdownResponse.getDefaultInstance();
+        case 14:
           return edu.brown.hstore.Hstoreservice.TimeSyncResponse.getDefaultInstance();
         default:
           throw new java.lang.AssertionError("Can't get here.");
@@ -12996,12 +15055,57 @@ public final class Hstoreservice {
             edu.brown.hstore.Hstoreservice.InitializeResponse.getDefaultInstance()));
       }
       
+      public  void replayRestore(
+          com.google.protobuf.RpcController controller,
+          edu.brown.hstore.Hstoreservice.ReplayRestoreRequest request,
+          com.google.protobuf.RpcCallback<edu.brown.hstore.Hstoreservice.ReplayRestoreResponse> done) {
+        channel.callMethod(
+          getDescriptor().getMethods().get(10),
+          controller,
+          request,
+          edu.brown.hstore.Hstoreservice.ReplayRestoreResponse.getDefaultInstance(),
+          com.google.protobuf.RpcUtil.generalizeCallback(
+            done,
+            edu.brown.hstore.Hstoreservice.ReplayRestoreResponse.class,
+            edu.brown.hstore.Hstoreservice.ReplayRestoreResponse.getDefaultInstance()));
+      }
+      
+      public  void replayTransactions(
+          com.google.protobuf.RpcController controller,
+          edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest request,
+          com.google.protobuf.RpcCallback<edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse> done) {
+        channel.callMethod(
+          getDescriptor().getMethods().get(11),
+          controller,
+          request,
+          edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse.getDefaultInstance(),
+          com.google.protobuf.RpcUtil.generalizeCallback(
+            done,
+            edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse.class,
+            edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse.getDefaultInstance()));
+      }
+      
+      public  void replayBarrier(
+          com.google.protobuf.RpcController controller,
+          edu.brown.hstore.Hstoreservice.ReplayBarrierRequest request,
+          com.google.protobuf.RpcCallback<edu.brown.hstore.Hstoreservice.ReplayBarrierResponse> done) {
+        channel.callMethod(
+          getDescriptor().getMethods().get(12),
+          controller,
+          request,
+          edu.brown.hstore.Hstoreservice.ReplayBarrierResponse.getDefaultInstance(),
+          com.google.protobuf.RpcUtil.generalizeCallback(
+            done,
+            edu.brown.hstore.Hstoreservice.ReplayBarrierResponse.class,
+            edu.brown.hstore.Hstoreservice.ReplayBarrierResponse.getDefaultInstance()));
+      }
+      
       public  void shutdown(
           com.google.protobuf.RpcController controller,
           edu.brown.hstore.Hstoreservice.ShutdownRequest request,
           com.google.protobuf.RpcCallback<edu.brown.hstore.Hstoreservice.ShutdownResponse> done) {
         channel.callMethod(
-          getDescriptor().getMethods().get(10),
+          getDescriptor().getMethods().get(13),
           controller,
           request,
           edu.brown.hstore.Hstoreservice.ShutdownResponse.getDefaultInstance(),
@@ -13016,7 +15120,7 @@ public final class Hstoreservice {
           edu.brown.hstore.Hstoreservice.TimeSyncRequest request,
           com.google.protobuf.RpcCallback<edu.brown.hstore.Hstoreservice.TimeSyncResponse> done) {
         channel.callMethod(
-          getDescriptor().getMethods().get(11),
+          getDescriptor().getMethods().get(14),
           controller,
           request,
           edu.brown.hstore.Hstoreservice.TimeSyncResponse.getDefaultInstance(),
@@ -13083,6 +15187,21 @@ public final class Hstoreservice {
           edu.brown.hstore.Hstoreservice.InitializeRequest request)
           throws com.google.protobuf.ServiceException;
       
+      public edu.brown.hstore.Hstoreservice.ReplayRestoreResponse replayRestore(
+          com.google.protobuf.RpcController controller,
+          edu.brown.hstore.Hstoreservice.ReplayRestoreRequest request)
+          throws com.google.protobuf.ServiceException;
+      
+      public edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse replayTransactions(
+          com.google.protobuf.RpcController controller,
+          edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest request)
+          throws com.google.protobuf.ServiceException;
+      
+      public edu.brown.hstore.Hstoreservice.ReplayBarrierResponse replayBarrier(
+          com.google.protobuf.RpcController controller,
+          edu.brown.hstore.Hstoreservice.ReplayBarrierRequest request)
+          throws com.google.protobuf.ServiceException;
+      
       public edu.brown.hstore.Hstoreservice.ShutdownResponse shutdown(
           com.google.protobuf.RpcController controller,
           edu.brown.hstore.Hstoreservice.ShutdownRequest request)
@@ -13221,12 +15340,48 @@ public final class Hstoreservice {
       }
       
       
+      public edu.brown.hstore.Hstoreservice.ReplayRestoreResponse replayRestore(
+          com.google.protobuf.RpcController controller,
+          edu.brown.hstore.Hstoreservice.ReplayRestoreRequest request)
+          throws com.google.protobuf.ServiceException {
+        return (edu.brown.hstore.Hstoreservice.ReplayRestoreResponse) channel.callBlockingMethod(
+          getDescriptor().getMethods().get(10),
+          controller,
+          request,
+          edu.brown.hstore.Hstoreservice.ReplayRestoreResponse.getDefaultInstance());
+      }
+      
+      
+      public edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse replayTransactions(
+          com.google.protobuf.RpcController controller,
+          edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest request)
+          throws com.google.protobuf.ServiceException {
+        return (edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse) channel.callBlockingMethod(
+          getDescriptor().getMethods().get(11),
+          controller,
+          request,
+          edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse.getDefaultInstance());
+      }
+      
+      
+      public edu.brown.hstore.Hstoreservice.ReplayBarrierResponse replayBarrier(
+          com.google.protobuf.RpcController controller,
+          edu.brown.hstore.Hstoreservice.ReplayBarrierRequest request)
+          throws com.google.protobuf.ServiceException {
+        return (edu.brown.hstore.Hstoreservice.ReplayBarrierResponse) channel.callBlockingMethod(
+          getDescriptor().getMethods().get(12),
+          controller,
+          request,
+          edu.brown.hstore.Hstoreservice.ReplayBarrierResponse.getDefaultInstance());
+      }
+      
+      
       public edu.brown.hstore.Hstoreservice.ShutdownResponse shutdown(
           com.google.protobuf.RpcController controller,
           edu.brown.hstore.Hstoreservice.ShutdownRequest request)
           throws com.google.protobuf.ServiceException {
         return (edu.brown.hstore.Hstoreservice.ShutdownResponse) channel.callBlockingMethod(
-          getDescriptor().getMethods().get(10),
+          getDescriptor().getMethods().get(13),
           controller,
           request,
           edu.brown.hstore.Hstoreservice.ShutdownResponse.getDefaultInstance());
@@ -13238,7 +15393,7 @@ public final class Hstoreservice {
           edu.brown.hstore.Hstoreservice.TimeSyncRequest request)
           throws com.google.protobuf.ServiceException {
         return (edu.brown.hstore.Hstoreservice.TimeSyncResponse) channel.callBlockingMethod(
-          getDescriptor().getMethods().get(11),
+          getDescriptor().getMethods().get(14),
           controller,
           request,
           edu.brown.hstore.Hstoreservice.TimeSyncResponse.getDefaultInstance());
@@ -13367,6 +15522,36 @@ public final class Hstoreservice {
   private static
     com.google.protobuf.GeneratedMessage.FieldAccessorTable
       internal_static_edu_brown_hstore_InitializeResponse_fieldAccessorTable;
+  private static com.google.protobuf.Descriptors.Descriptor
+    internal_static_edu_brown_hstore_ReplayRestoreRequest_descriptor;
+  private static
+    com.google.protobuf.GeneratedMessage.FieldAccessorTable
+      internal_static_edu_brown_hstore_ReplayRestoreRequest_fieldAccessorTable;
+  private static com.google.protobuf.Descriptors.Descriptor
+    internal_static_edu_brown_hstore_ReplayRestoreResponse_descriptor;
+  private static
+    com.google.protobuf.GeneratedMessage.FieldAccessorTable
+      internal_static_edu_brown_hstore_ReplayRestoreResponse_fieldAccessorTable;
+  private static com.google.protobuf.Descriptors.Descriptor
+    internal_static_edu_brown_hstore_ReplayTransactionsRequest_descriptor;
+  private static
+    com.google.protobuf.GeneratedMessage.FieldAccessorTable
+      internal_static_edu_brown_hstore_ReplayTransactionsRequest_fieldAccessorTable;
+  private static com.google.protobuf.Descriptors.Descriptor
+    internal_static_edu_brown_hstore_ReplayTransactionsResponse_descriptor;
+  private static
+    com.google.protobuf.GeneratedMessage.FieldAccessorTable
+      internal_static_edu_brown_hstore_ReplayTransactionsResponse_fieldAccessorTable;
+  private static com.google.protobuf.Descriptors.Descriptor
+    internal_static_edu_brown_hstore_ReplayBarrierRequest_descriptor;
+  private static
+    com.google.protobuf.GeneratedMessage.FieldAccessorTable
+      internal_static_edu_brown_hstore_ReplayBarrierRequest_fieldAccessorTable;
+  private static com.google.protobuf.Descriptors.Descriptor
+    internal_static_edu_brown_hstore_ReplayBarrierResponse_descriptor;
+  private static
+    com.google.protobuf.GeneratedMessage.FieldAccessorTable
+      internal_static_edu_brown_hstore_ReplayBarrierResponse_fieldAccessorTable;
   private static com.google.protobuf.Descriptors.Descriptor
     internal_static_edu_brown_hstore_ShutdownRequest_descriptor;
   private static
@@ -13474,48 +15659,66 @@ public final class Hstoreservice {
       "st\022\023\n\013sender_site\030\001 \002(\005\022\023\n\013instance_id\030\002" +
       " \002(\003\"S\n\022InitializeResponse\022\023\n\013sender_sit" +
       "e\030\001 \002(\005\022(\n\006status\030\002 \002(\0162\030.edu.brown.hsto" +
-      "re.Status\"J\n\017ShutdownRequest\022\023\n\013sender_s" +
-      "ite\030\001 \002(\005\022\023\n\013exit_status\030\002 \002(\005\022\r\n\005error\030",
-      "\003 \001(\014\"\'\n\020ShutdownResponse\022\023\n\013sender_site" +
-      "\030\001 \002(\005\"4\n\017TimeSyncRequest\022\023\n\013sender_site" +
-      "\030\001 \002(\005\022\014\n\004t0_s\030\002 \002(\003\"Q\n\020TimeSyncResponse" +
-      "\022\023\n\013sender_site\030\001 \002(\005\022\014\n\004t0_s\030\002 \002(\003\022\014\n\004t" +
-      "0_r\030\003 \002(\003\022\014\n\004t1_s\030\004 \002(\003*\240\001\n\006Status\022\006\n\002OK" +
-      "\020\000\022\016\n\nABORT_USER\020\001\022\022\n\016ABORT_GRACEFUL\020\002\022\024" +
-      "\n\020ABORT_UNEXPECTED\020\003\022\031\n\025ABORT_CONNECTION" +
-      "_LOST\020\004\022\024\n\020ABORT_MISPREDICT\020\005\022\021\n\rABORT_R" +
-      "ESTART\020\006\022\020\n\014ABORT_REJECT\020\0072\321\t\n\rHStoreSer" +
-      "vice\022f\n\017TransactionInit\022(.edu.brown.hsto",
-      "re.TransactionInitRequest\032).edu.brown.hs" +
-      "tore.TransactionInitResponse\022f\n\017Transact" +
-      "ionWork\022(.edu.brown.hstore.TransactionWo" +
-      "rkRequest\032).edu.brown.hstore.Transaction" +
-      "WorkResponse\022x\n\023TransactionPrefetch\022+.ed" +
-      "u.brown.hstore.TransactionPrefetchResult" +
-      "\0324.edu.brown.hstore.TransactionPrefetchA" +
-      "cknowledgement\022c\n\016TransactionMap\022\'.edu.b" +
-      "rown.hstore.TransactionMapRequest\032(.edu." +
-      "brown.hstore.TransactionMapResponse\022l\n\021T",
-      "ransactionReduce\022*.edu.brown.hstore.Tran" +
-      "sactionReduceRequest\032+.edu.brown.hstore." +
-      "TransactionReduceResponse\022o\n\022Transaction" +
-      "Prepare\022+.edu.brown.hstore.TransactionPr" +
-      "epareRequest\032,.edu.brown.hstore.Transact" +
-      "ionPrepareResponse\022l\n\021TransactionFinish\022" +
-      "*.edu.brown.hstore.TransactionFinishRequ" +
-      "est\032+.edu.brown.hstore.TransactionFinish" +
-      "Response\022r\n\023TransactionRedirect\022,.edu.br" +
-      "own.hstore.TransactionRedirectRequest\032-.",
-      "edu.brown.hstore.TransactionRedirectResp" +
-      "onse\022Q\n\010SendData\022!.edu.brown.hstore.Send" +
-      "DataRequest\032\".edu.brown.hstore.SendDataR" +
-      "esponse\022W\n\nInitialize\022#.edu.brown.hstore" +
-      ".InitializeRequest\032$.edu.brown.hstore.In" +
-      "itializeResponse\022Q\n\010Shutdown\022!.edu.brown" +
-      ".hstore.ShutdownRequest\032\".edu.brown.hsto" +
-      "re.ShutdownResponse\022Q\n\010TimeSync\022!.edu.br" +
-      "own.hstore.TimeSyncRequest\032\".edu.brown.h" +
-      "store.TimeSyncResponse"
+      "re.Status\"r\n\024ReplayRestoreRequest\022\023\n\013sen" +
+      "der_site\030\001 \002(\005\022(\n\006status\030\002 \002(\0162\030.edu.bro",
+      "wn.hstore.Status\022\033\n\017snapshot_txn_id\030\003 \001(" +
+      "\003:\002-1\",\n\025ReplayRestoreResponse\022\023\n\013sender" +
+      "_site\030\001 \002(\005\"I\n\031ReplayTransactionsRequest" +
+      "\022\023\n\013sender_site\030\001 \002(\005\022\027\n\017transaction_ids" +
+      "\030\002 \003(\003\"1\n\032ReplayTransactionsResponse\022\023\n\013" +
+      "sender_site\030\001 \002(\005\"U\n\024ReplayBarrierReques" +
+      "t\022\023\n\013sender_site\030\001 \002(\005\022\026\n\016transaction_id" +
+      "\030\002 \002(\003\022\020\n\010finished\030\003 \002(\010\",\n\025ReplayBarrie" +
+      "rResponse\022\023\n\013sender_site\030\001 \002(\005\"J\n\017Shutdo" +
+      "wnRequest\022\023\n\013sender_site\030\001 \002(\005\022\023\n\013exit_s",
+      "tatus\030\002 \002(\005\022\r\n\005error\030\003 \001(\014\"\'\n\020ShutdownRe" +
+      "sponse\022\023\n\013sender_site\030\001 \002(\005\"4\n\017TimeSyncR" +
+      "equest\022\023\n\013sender_site\030\001 \002(\005\022\014\n\004t0_s\030\002 \002(" +
+      "\003\"Q\n\020TimeSyncResponse\022\023\n\013sender_site\030\001 \002" +
+      "(\005\022\014\n\004t0_s\030\002 \002(\003\022\014\n\004t0_r\030\003 \002(\003\022\014\n\004t1_s\030\004" +
+      " \002(\003*\240\001\n\006Status\022\006\n\002OK\020\000\022\016\n\nABORT_USER\020\001\022" +
+      "\022\n\016ABORT_GRACEFUL\020\002\022\024\n\020ABORT_UNEXPECTED\020" +
+      "\003\022\031\n\025ABORT_CONNECTION_LOST\020\004\022\024\n\020ABORT_MI" +
+      "SPREDICT\020\005\022\021\n\rABORT_RESTART\020\006\022\020\n\014ABORT_R" +
+      "EJECT\020\0072\206\014\n\rHStoreService\022f\n\017Transaction",
+      "Init\022(.edu.brown.hstore.TransactionInitR" +
+      "equest\032).edu.brown.hstore.TransactionIni" +
+      "tResponse\022f\n\017TransactionWork\022(.edu.brown" +
+      ".hstore.TransactionWorkRequest\032).edu.bro" +
+      "wn.hstore.TransactionWorkResponse\022x\n\023Tra" +
+      "nsactionPrefetch\022+.edu.brown.hstore.Tran" +
+      "sactionPrefetchResult\0324.edu.brown.hstore" +
+      ".TransactionPrefetchAcknowledgement\022c\n\016T" +
+      "ransactionMap\022\'.edu.brown.hstore.Transac" +
+      "tionMapRequest\032(.edu.brown.hstore.Transa",
+      "ctionMapResponse\022l\n\021TransactionReduce\022*." +
+      "edu.brown.hstore.TransactionReduceReques" +
+      "t\032+.edu.brown.hstore.TransactionReduceRe" +
+      "sponse\022o\n\022TransactionPrepare\022+.edu.brown" +
+      ".hstore.TransactionPrepareRequest\032,.edu." +
+      "brown.hstore.TransactionPrepareResponse\022" +
+      "l\n\021TransactionFinish\022*.edu.brown.hstore." +
+      "TransactionFinishRequest\032+.edu.brown.hst" +
+      "ore.TransactionFinishResponse\022r\n\023Transac" +
+      "tionRedirect\022,.edu.brown.hstore.Transact",
+      "ionRedirectRequest\032-.edu.brown.hstore.Tr" +
+      "ansactionRedirectResponse\022Q\n\010SendData\022!." +
+      "edu.brown.hstore.SendDataRequest\032\".edu.b" +
+      "rown.hstore.SendDataResponse\022W\n\nInitiali" +
+      "ze\022#.edu.brown.hstore.InitializeRequest\032" +
+      "$.edu.brown.hstore.InitializeResponse\022`\n" +
+      "\rReplayRestore\022&.edu.brown.hstore.Replay" +
+      "RestoreRequest\032\'.edu.brown.hstore.Replay" +
+      "RestoreResponse\022o\n\022ReplayTransactions\022+." +
+      "edu.brown.hstore.ReplayTransactionsReque",
+      "st\032,.edu.brown.hstore.ReplayTransactions" +
+      "Response\022`\n\rReplayBarrier\022&.edu.brown.hs" +
+      "tore.ReplayBarrierRequest\032\'.edu.brown.hs" +
+      "tore.ReplayBarrierResponse\022Q\n\010Shutdown\022!" +
+      ".edu.brown.hstore.ShutdownRequest\032\".edu." +
+      "brown.hstore.ShutdownResponse\022Q\n\010TimeSyn" +
+      "c\022!.edu.brown.hstore.TimeSyncRequest\032\".e" +
+      "du.brown.hstore.TimeSyncResponse"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
       new com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner() {
@@ -13714,8 +15917,56 @@ public final class Hstoreservice {
               new java.lang.String[] { "SenderSite", "Status", },
               edu.brown.hstore.Hstoreservice.InitializeResponse.class,
               edu.brown.hstore.Hstoreservice.InitializeResponse.Builder.class);
-          internal_static_edu_brown_hstore_ShutdownRequest_descriptor =
+          internal_static_edu_brown_hstore_ReplayRestoreRequest_descriptor =
             getDescriptor().getMessageTypes().get(22);
+          internal_static_edu_brown_hstore_ReplayRestoreRequest_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+              internal_static_edu_brown_hstore_ReplayRestoreRequest_descriptor,
+              new java.lang.String[] { "SenderSite", "Status", "SnapshotTxnId", },
+              edu.brown.hstore.Hstoreservice.ReplayRestoreRequest.class,
+              edu.brown.hstore.Hstoreservice.ReplayRestoreRequest.Builder.class);
+          internal_static_edu_brown_hstore_ReplayRestoreResponse_descriptor =
+            getDescriptor().getMessageTypes().get(23);
+          internal_static_edu_brown_hstore_ReplayRestoreResponse_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+              internal_static_edu_brown_hstore_ReplayRestoreResponse_descriptor,
+              new java.lang.String[] { "SenderSite", },
+              edu.brown.hstore.Hstoreservice.ReplayRestoreResponse.class,
+              edu.brown.hstore.Hstoreservice.ReplayRestoreResponse.Builder.class);
+          internal_static_edu_brown_hstore_ReplayTransactionsRequest_descriptor =
+            getDescriptor().getMessageTypes().get(24);
+          internal_static_edu_brown_hstore_ReplayTransactionsRequest_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+              internal_static_edu_brown_hstore_ReplayTransactionsRequest_descriptor,
+              new java.lang.String[] { "SenderSite", "TransactionIds", },
+              edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest.class,
+              edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest.Builder.class);
+          internal_static_edu_brown_hstore_ReplayTransactionsResponse_descriptor =
+            getDescriptor().getMessageTypes().get(25);
+          internal_static_edu_brown_hstore_ReplayTransactionsResponse_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+              internal_static_edu_brown_hstore_ReplayTransactionsResponse_descriptor,
+              new java.lang.String[] { "SenderSite", },
+              edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse.class,
+              edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse.Builder.class);
+          internal_static_edu_brown_hstore_ReplayBarrierRequest_descriptor =
+            getDescriptor().getMessageTypes().get(26);
+          internal_static_edu_brown_hstore_ReplayBarrierRequest_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+              internal_static_edu_brown_hstore_ReplayBarrierRequest_descriptor,
+              new java.lang.String[] { "SenderSite", "TransactionId", "Finished", },
+              edu.brown.hstore.Hstoreservice.ReplayBarrierRequest.class,
+              edu.brown.hstore.Hstoreservice.ReplayBarrierRequest.Builder.class);
+          internal_static_edu_brown_hstore_ReplayBarrierResponse_descriptor =
+            getDescriptor().getMessageTypes().get(27);
+          internal_static_edu_brown_hstore_ReplayBarrierResponse_fieldAccessorTable = new
+            com.google.protobuf.GeneratedMessage.FieldAccessorTable(
+              internal_static_edu_brown_hstore_ReplayBarrierResponse_descriptor,
+              new java.lang.String[] { "SenderSite", },
+              edu.brown.hstore.Hstoreservice.ReplayBarrierResponse.class,
+              edu.brown.hstore.Hstoreservice.ReplayBarrierResponse.Builder.class);
+          internal_static_edu_brown_hstore_ShutdownRequest_descriptor =
+            getDescriptor().getMessageTypes().get(28);
           internal_static_edu_brown_hstore_ShutdownRequest_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_edu_brown_hstore_ShutdownRequest_descriptor,
@@ -13723,7 +15974,7 @@ public final class Hstoreservice {
               edu.brown.hstore.Hstoreservice.ShutdownRequest.class,
               edu.brown.hstore.Hstoreservice.ShutdownRequest.Builder.class);
           internal_static_edu_brown_hstore_ShutdownResponse_descriptor =
-            getDescriptor().getMessageTypes().get(23);
+            getDescriptor().getMessageTypes().get(29);
           internal_static_edu_brown_hstore_ShutdownResponse_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_edu_brown_hstore_ShutdownResponse_descriptor,
@@ -13731,7 +15982,7 @@ public final class Hstoreservice {
               edu.brown.hstore.Hstoreservice.ShutdownResponse.class,
               edu.brown.hstore.Hstoreservice.ShutdownResponse.Builder.class);
           internal_static_edu_brown_hstore_TimeSyncRequest_descriptor =
-            getDescriptor().getMessageTypes().get(24);
+            getDescriptor().getMessageTypes().get(30);
           internal_static_edu_brown_hstore_TimeSyncRequest_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_edu_brown_hstore_TimeSyncRequest_descriptor,
@@ -13739,7 +15990,7 @@ public final class Hstoreservice {
               edu.brown.hstore.Hstoreservice.TimeSyncRequest.class,
               edu.brown.hstore.Hstoreservice.TimeSyncRequest.Builder.class);
           internal_static_edu_brown_hstore_TimeSyncResponse_descriptor =
-            getDescriptor().getMessageTypes().get(25);
+            getDescriptor().getMessageTypes().get(31);
           internal_static_edu_brown_hstore_TimeSyncResponse_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_edu_brown_hstore_TimeSyncResponse_descriptor,
@@ -0,0 +1,194 @@
+/* Copyright (C) 2012 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+#include "common/TupleSchema.h"
+#include "common/types.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
+#include "common/EvictedTupleAccessException.h"
+#include "execution/VoltDBEngine.h"
+#include "storage/persistenttable.h"
+#include "storage/tablefactory.h"
+#include "storage/tableiterator.h"
+#include "indexes/tableindex.h"
+#include <vector>
+#include <string>
+#include <stdint.h>
+#include <stdlib.h>
+
+using namespace voltdb;
+
+/**
+ * Fill up a table with a few blocks worth of tuples, evict the coldest
+ * block, and then make sure that accessing it throws an exception until
+ * the block is read back in.
+ */
+class AntiCacheEvictionTest : public Test {
+public:
+    AntiCacheEvictionTest() {
+        m_engine = new voltdb::VoltDBEngine();
+        m_engine->initialize(1,1, 0, 0, "");
+
+        char dbDir[] = "/tmp/anticache-XXXXXX";
+        m_dbDir = std::string(mkdtemp(dbDir));
+        m_engine->enableAntiCache(m_dbDir);
+
+        m_columnNames.push_back("1");
+        m_columnNames.push_back("2");
+
+        m_tableSchemaTypes.push_back(voltdb::VALUE_TYPE_INTEGER);
+        m_tableSchemaTypes.push_back(voltdb::VALUE_TYPE_INTEGER);
+        m_primaryKeyIndexSchemaTypes.push_back(voltdb::VALUE_TYPE_INTEGER);
+
+        m_tableSchemaColumnSizes.push_back(NValue::getTupleStorageSize(voltdb::VALUE_TYPE_INTEGER));
+        m_tableSchemaColumnSizes.push_back(NValue::getTupleStorageSize(voltdb::VALUE_TYPE_INTEGER));
+        m_primaryKeyIndexSchemaColumnSizes.push_back(NValue::getTupleStorageSize(voltdb::VALUE_TYPE_INTEGER));
+
+        m_tableSchemaAllowNull.push_back(false);
+        m_tableSchemaAllowNull.push_back(false);
+        m_primaryKeyIndexSchemaAllowNull.push_back(false);
+
+        m_primaryKeyIndexColumns.push_back(0);
+
+        m_tableSchema = voltdb::TupleSchema::createTupleSchema(m_tableSchemaTypes,
+                                                               m_tableSchemaColumnSizes,
+                                                               m_tableSchemaAllowNull,
+                                                               true);
+        m_primaryKeyIndexSchema = voltdb::TupleSchema::createTupleSchema(m_primaryKeyIndexSchemaTypes,
+                                                                         m_primaryKeyIndexSchemaColumnSizes,
+                                                                         m_primaryKeyIndexSchemaAllowNull,
+                                                                         true);
+        voltdb::TableIndexScheme indexScheme = voltdb::TableIndexScheme("primaryKeyIndex",
+                                                                        voltdb::BALANCED_TREE_INDEX,
+                                                                        m_primaryKeyIndexColumns,
+                                                                        m_primaryKeyIndexSchemaTypes,
+                                                                        true, false, m_tableSchema);
+        indexScheme.keySchema = m_primaryKeyIndexSchema;
+        std::vector<voltdb::TableIndexScheme> indexes;
+
+        m_table = dynamic_cast<voltdb::PersistentTable*>(voltdb::TableFactory::getPersistentTable
+                                                         (0, m_engine->getExecutorContext(), "Foo",
+                                                          m_tableSchema, &m_columnNames[0], indexScheme, indexes, 0,
+                                                          false, false));
+    }
+
+    ~AntiCacheEvictionTest() {
+        delete m_table;
+        delete m_engine;
+        voltdb::TupleSchema::freeTupleSchema(m_primaryKeyIndexSchema);
+        rmdir(m_dbDir.c_str());
+    }
+
+    void addTuples(int numTuples) {
+        TableTuple tuple = m_table->tempTuple();
+        for (int ii = 0; ii < numTuples; ii++) {
+            tuple.setNValue(0, ValueFactory::getIntegerValue(ii));
+            tuple.setNValue(1, ValueFactory::getIntegerValue(ii * 2));
+            m_table->insertTuple(tuple);
+        }
+    }
+
+    int64_t sumTuples() {
+        int64_t sum = 0;
+        TableTuple tuple(m_table->schema());
+        TableIterator iterator(m_table);
+        while (iterator.next(tuple)) {
+            sum += ValuePeeker::peekAsInteger(tuple.getNValue(1));
+        }
+        return sum;
+    }
+
+    voltdb::VoltDBEngine *m_engine;
+    voltdb::TupleSchema *m_tableSchema;
+    voltdb::TupleSchema *m_primaryKeyIndexSchema;
+    voltdb::PersistentTable *m_table;
+    std::string m_dbDir;
+    std::vector<std::string> m_columnNames;
+    std::vector<voltdb::ValueType> m_tableSchemaTypes;
+    std::vector<int32_t> m_tableSchemaColumnSizes;
+    std::vector<bool> m_tableSchemaAllowNull;
+    std::vector<voltdb::ValueType> m_primaryKeyIndexSchemaTypes;
+    std::vector<int32_t> m_primaryKeyIndexSchemaColumnSizes;
+    std::vector<bool> m_primaryKeyIndexSchemaAllowNull;
+    std::vector<int> m_primaryKeyIndexColumns;
+};
+
+TEST_F(AntiCacheEvictionTest, EvictAndReadBlock) {
+    const int numTuples = 699048;
+    addTuples(numTuples);
+    const int64_t expected = sumTuples();
+
+    // Touch everything but the first block so that it is the coldest one
+    TableTuple tuple(m_table->schema());
+    TableTuple key(m_primaryKeyIndexSchema);
+    std::vector<char> keyData(m_primaryKeyIndexSchema->tupleLength() + TUPLE_HEADER_SIZE);
+    key.move(&keyData[0]);
+    TableIndex *index = m_table->primaryKeyIndex();
+    key.setNValue(0, ValueFactory::getIntegerValue(numTuples - 1));
+    ASSERT_TRUE(index->moveToKey(&key));
+    tuple = index->nextValueAtKey();
+    m_table->accessTuple(tuple);
+
+    // Evicting a single byte will push out the whole coldest block
+    int64_t evicted = m_table->evictBlocks(1);
+    ASSERT_TRUE(evicted > 0);
+
+    // Scanning the table or looking up a tuple in the evicted block must fail
+    bool caught = false;
+    try {
+        sumTuples();
+    } catch (EvictedTupleAccessException &ex) {
+        caught = true;
+    }
+    ASSERT_TRUE(caught);
+
+    key.setNValue(0, ValueFactory::getIntegerValue(0));
+    ASSERT_TRUE(index->moveToKey(&key));
+    tuple = index->nextValueAtKey();
+    caught = false;
+    try {
+        m_table->accessTuple(tuple);
+    } catch (EvictedTupleAccessException &ex) {
+        caught = true;
+    }
+    ASSERT_TRUE(caught);
+
+    // The block ids start at one. Reading it back in should give us
+    // everything that we had before
+    std::vector<int32_t> blockIds;
+    blockIds.push_back(1);
+    ASSERT_EQ(evicted, m_table->readEvictedBlocks(blockIds));
+    ASSERT_EQ(expected, sumTuples());
+    m_table->accessTuple(tuple);
+
+    // Reading the same block twice does nothing
+    ASSERT_EQ(0, m_table->readEvictedBlocks(blockIds));
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -0,0 +1,193 @@
+/* Copyright (C) 2012 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <vector>
+#include <algorithm>
+
+#include "harness.h"
+#include "common/common.h"
+#include "common/TupleSchema.h"
+#include "common/tabletuple.h"
+#include "common/ValueFactory.hpp"
+#include "expressions/expressions.h"
+#include "expressions/expressionutil.h"
+#include "expressions/batchpredicate.h"
+
+using namespace std;
+using namespace voltdb;
+
+#define NUM_TUPLES 3000
+
+class BatchPredicateTest : public Test {
+    public:
+        BatchPredicateTest() {
+            vector<ValueType> types;
+            vector<int32_t> lengths;
+            vector<bool> allowNull;
+            types.push_back(VALUE_TYPE_INTEGER);
+            types.push_back(VALUE_TYPE_BIGINT);
+            types.push_back(VALUE_TYPE_DOUBLE);
+            for (int i = 0; i < types.size(); i++) {
+                lengths.push_back(NValue::getTupleStorageSize(types[i]));
+                allowNull.push_back(true);
+            }
+            m_schema = TupleSchema::createTupleSchema(types, lengths, allowNull, true);
+
+            int tupleLength = m_schema->tupleLength() + TUPLE_HEADER_SIZE;
+            m_storage = new char[tupleLength * NUM_TUPLES]();
+            m_addresses = new char*[NUM_TUPLES];
+            TableTuple tuple(m_schema);
+            for (int i = 0; i < NUM_TUPLES; i++) {
+                m_addresses[i] = m_storage + (i * tupleLength);
+                tuple.move(m_addresses[i]);
+                // Every tenth tuple has a NULL in the first column
+                tuple.setNValue(0, (i % 10 == 0) ? NValue::getNullValue(VALUE_TYPE_INTEGER) :
+                                                   ValueFactory::getIntegerValue(i % 100));
+                tuple.setNValue(1, ValueFactory::getBigIntValue(i));
+                tuple.setNValue(2, ValueFactory::getDoubleValue(i * 0.5));
+            }
+        }
+
+        ~BatchPredicateTest() {
+            delete [] m_addresses;
+            delete [] m_storage;
+            TupleSchema::freeTupleSchema(m_schema);
+        }
+
+        /**
+         * Count the number of tuples that match the predicate using eval()
+         */
+        int countExpected(AbstractExpression *predicate) {
+            int count = 0;
+            TableTuple tuple(m_schema);
+            for (int i = 0; i < NUM_TUPLES; i++) {
+                tuple.move(m_addresses[i]);
+                if (predicate->eval(&tuple, NULL).isTrue()) count++;
+            }
+            return (count);
+        }
+
+        /**
+         * Count the number of tuples that match the predicate using BatchPredicate::filter()
+         * and check that every selected tuple actually matches
+         */
+        int countBatched(AbstractExpression *predicate, BatchPredicate &batch) {
+            uint16_t selected[BatchPredicate::BATCH_SIZE];
+            int count = 0;
+            TableTuple tuple(m_schema);
+            for (int offset = 0; offset < NUM_TUPLES; offset += BatchPredicate::BATCH_SIZE) {
+                int size = min(NUM_TUPLES - offset, (int)BatchPredicate::BATCH_SIZE);
+                int matched = batch.filter(m_addresses + offset, size, selected);
+                for (int i = 0; i < matched; i++) {
+                    EXPECT_TRUE(i == 0 || selected[i] > selected[i-1]);
+                    tuple.move(m_addresses[offset + selected[i]]);
+                    EXPECT_TRUE(predicate->eval(&tuple, NULL).isTrue());
+                }
+                count += matched;
+            }
+            return (count);
+        }
+
+        int countMatches(BatchPredicate &batch) {
+            int count = 0;
+            TableTuple tuple(m_schema);
+            for (int i = 0; i < NUM_TUPLES; i++) {
+                tuple.move(m_addresses[i]);
+                if (batch.matches(tuple)) count++;
+            }
+            return (count);
+        }
+
+        TupleSchema *m_schema;
+        char *m_storage;
+        char **m_addresses;
+};
+
+TEST_F(BatchPredicateTest, ColumnComparisons) {
+    // c0 >= 50 AND c1 < 2000 AND 700.0 < c2
+    AbstractExpression *predicate = conjunctionFactory(EXPRESSION_TYPE_CONJUNCTION_AND,
+        conjunctionFactory(EXPRESSION_TYPE_CONJUNCTION_AND,
+            comparisonFactory(EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO,
+                              new TupleValueExpression(0, "t", "c0"),
+                              new ConstantValueExpression(ValueFactory::getBigIntValue(50))),
+            comparisonFactory(EXPRESSION_TYPE_COMPARE_LESSTHAN,
+                              new TupleValueExpression(1, "t", "c1"),
+                              new ConstantValueExpression(ValueFactory::getIntegerValue(2000)))),
+        comparisonFactory(EXPRESSION_TYPE_COMPARE_LESSTHAN,
+                          new ConstantValueExpression(ValueFactory::getDoubleValue(700.0)),
+                          new TupleValueExpression(2, "t", "c2")));
+
+    BatchPredicate batch;
+    batch.init(predicate, m_schema, 0);
+    batch.bind(NULL);
+    ASSERT_TRUE(batch.isVectorized());
+
+    int expected = countExpected(predicate);
+    ASSERT_TRUE(expected > 0);
+    EXPECT_EQ(expected, countBatched(predicate, batch));
+    EXPECT_EQ(expected, countMatches(batch));
+    delete predicate;
+}
+
+TEST_F(BatchPredicateTest, ResidualTerms) {
+    // c1 <> 1500 AND (c1 + 1) <> 1502
+    AbstractExpression *predicate = conjunctionFactory(EXPRESSION_TYPE_CONJUNCTION_AND,
+        comparisonFactory(EXPRESSION_TYPE_COMPARE_NOTEQUAL,
+                          new TupleValueExpression(1, "t", "c1"),
+                          new ConstantValueExpression(ValueFactory::getBigIntValue(1500))),
+        comparisonFactory(EXPRESSION_TYPE_COMPARE_NOTEQUAL,
+                          operatorFactory(EXPRESSION_TYPE_OPERATOR_PLUS,
+                                          new TupleValueExpression(1, "t", "c1"),
+                                          new ConstantValueExpression(ValueFactory::getBigIntValue(1))),
+                          new ConstantValueExpression(ValueFactory::getBigIntValue(1502))));
+
+    BatchPredicate batch;
+    batch.init(predicate, m_schema, 0);
+    batch.bind(NULL);
+    ASSERT_TRUE(batch.isVectorized());
+
+    EXPECT_EQ(NUM_TUPLES - 2, countExpected(predicate));
+    EXPECT_EQ(NUM_TUPLES - 2, countBatched(predicate, batch));
+    EXPECT_EQ(NUM_TUPLES - 2, countMatches(batch));
+    delete predicate;
+}
+
+TEST_F(BatchPredicateTest, NotVectorized) {
+    // (c1 + 1) > 10
+    AbstractExpression *predicate = comparisonFactory(EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+        operatorFactory(EXPRESSION_TYPE_OPERATOR_PLUS,
+                        new TupleValueExpression(1, "t", "c1"),
+                        new ConstantValueExpression(ValueFactory::getBigIntValue(1))),
+        new ConstantValueExpression(ValueFactory::getBigIntValue(10)));
+
+    BatchPredicate batch;
+    batch.init(predicate, m_schema, 0);
+    EXPECT_FALSE(batch.isVectorized());
+    delete predicate;
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -0,0 +1,462 @@
+/* Copyright (C) 2012 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <cstdio>
+#include <cstdlib>
+#include <sys/time.h>
+#include <vector>
+#include <string>
+
+#include "harness.h"
+#include "common/common.h"
+#include "common/TupleSchema.h"
+#include "common/tabletuple.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "indexes/tableindex.h"
+#include "indexes/tableindexfactory.h"
+#include "indexes/CompactBTreeIndex.h"
+
+using namespace std;
+using namespace voltdb;
+
+#define NUM_TUPLES 20000
+#define VALUE_RANGE 100000
+#define NUM_BENCHMARK_TUPLES 100000
+#define NAME_LENGTH 40
+
+#define ID_COLUMN 0
+#define VALUE_COLUMN 1
+#define NAME_COLUMN 2
+#define DOUBLE_COLUMN 3
+
+/**
+ * Checks the CompactBTreeIndex against the BinaryTree indexes
+ * that the factory creates for the same scheme
+ */
+class CompactBTreeIndexTest : public Test {
+    public:
+        CompactBTreeIndexTest() {
+            vector<ValueType> types;
+            vector<int32_t> lengths;
+            vector<bool> allowNull;
+            types.push_back(VALUE_TYPE_INTEGER);
+            types.push_back(VALUE_TYPE_BIGINT);
+            types.push_back(VALUE_TYPE_VARCHAR);
+            types.push_back(VALUE_TYPE_DOUBLE);
+            for (int i = 0; i < types.size(); i++) {
+                lengths.push_back(types[i] == VALUE_TYPE_VARCHAR ? NAME_LENGTH :
+                                                                   NValue::getTupleStorageSize(types[i]));
+                allowNull.push_back(true);
+            }
+            m_schema = TupleSchema::createTupleSchema(types, lengths, allowNull, true);
+            m_tupleLength = m_schema->tupleLength() + TUPLE_HEADER_SIZE;
+            m_storage = NULL;
+            m_keyStorage = NULL;
+            m_numTuples = 0;
+            srand(0);
+        }
+
+        ~CompactBTreeIndexTest() {
+            while (m_indexes.empty() == false) {
+                delete m_indexes.back();
+                m_indexes.pop_back();
+            }
+            delete [] m_storage;
+            delete [] m_keyStorage;
+            TupleSchema::freeTupleSchema(m_schema);
+        }
+
+        /**
+         * Create tuples where:
+         *  (0) ID is the offset of the tuple
+         *  (1) VALUE is unique and scattered over positive and negative numbers
+         *  (2) NAME has a long common prefix with only a few distinct values (every 17th is NULL)
+         *  (3) DOUBLE has negative values, zeros, and NULLs
+         */
+        void loadTuples(int numTuples) {
+            m_numTuples = numTuples;
+            m_storage = new char[m_tupleLength * numTuples]();
+            TableTuple tuple(m_schema);
+            char name[NAME_LENGTH];
+            for (int i = 0; i < numTuples; i++) {
+                tuple.move(getAddress(i));
+                tuple.setNValue(ID_COLUMN, ValueFactory::getIntegerValue(i));
+                tuple.setNValue(VALUE_COLUMN, ValueFactory::getBigIntValue(getValue(i)));
+                if (i % 17 == 0) {
+                    tuple.setNValue(NAME_COLUMN, ValueFactory::getNullStringValue());
+                } else {
+                    snprintf(name, NAME_LENGTH, "customer_account_%05d", (i * 31) % 500);
+                    NValue value = ValueFactory::getStringValue(name);
+                    tuple.setNValue(NAME_COLUMN, value);
+                    value.free();
+                }
+                if (i % 13 == 0) {
+                    tuple.setNValue(DOUBLE_COLUMN, NValue::getNullValue(VALUE_TYPE_DOUBLE));
+                } else {
+                    tuple.setNValue(DOUBLE_COLUMN, ValueFactory::getDoubleValue(((i * 7) % 201 - 100) * 0.25));
+                }
+            }
+        }
+
+        int64_t getValue(int i) {
+            return ((static_cast<int64_t>(i) * 7919) % (VALUE_RANGE * 2 + 1) - VALUE_RANGE);
+        }
+
+        char *getAddress(int i) {
+            return (m_storage + (i * m_tupleLength));
+        }
+
+        TableIndex *createIndex(TableIndexType type, bool unique, int column) {
+            vector<int> columnIndices;
+            vector<ValueType> columnTypes;
+            columnIndices.push_back(column);
+            columnTypes.push_back(m_schema->columnType(column));
+            TableIndexScheme scheme("idx", type, columnIndices, columnTypes, unique, false, m_schema);
+            TableIndex *index = TableIndexFactory::getInstance(scheme);
+            m_indexes.push_back(index);
+
+            if (m_keyStorage == NULL) {
+                m_keyStorage = new char[index->getKeySchema()->tupleLength() + TUPLE_HEADER_SIZE]();
+            }
+            return (index);
+        }
+
+        TableTuple getKey(TableIndex *index, NValue value) {
+            TableTuple key(index->getKeySchema());
+            key.move(m_keyStorage);
+            key.setNValue(0, value);
+            return (key);
+        }
+
+        static bool sameValue(const NValue &a, const NValue &b) {
+            if (a.isNull() || b.isNull()) return (a.isNull() && b.isNull());
+            return (a.compare(b) == 0);
+        }
+
+        /**
+         * Scan the whole index in the given direction and return the values of the column
+         */
+        vector<NValue> scan(TableIndex *index, int column, bool forward) {
+            vector<NValue> values;
+            index->moveToEnd(forward);
+            TableTuple tuple;
+            while (!(tuple = index->nextValue()).isNullTuple()) {
+                values.push_back(tuple.getNValue(column));
+            }
+            return (values);
+        }
+
+        void checkSameScan(TableIndex *expected, TableIndex *actual, int column) {
+            ASSERT_EQ(expected->getSize(), actual->getSize());
+            for (int forward = 0; forward < 2; forward++) {
+                vector<NValue> e = scan(expected, column, forward);
+                vector<NValue> a = scan(actual, column, forward);
+                ASSERT_EQ(e.size(), a.size());
+                ASSERT_EQ(expected->getSize(), a.size());
+                for (int i = 0; i < e.size(); i++) {
+                    ASSERT_TRUE(sameValue(e[i], a[i]));
+                }
+            }
+        }
+
+        /**
+         * Count the entries for the key with moveToKey() and nextValueAtKey()
+         */
+        int countKey(TableIndex *index, int column, NValue value) {
+            TableTuple key = getKey(index, value);
+            if (!index->moveToKey(&key)) return (0);
+            int count = 0;
+            TableTuple tuple;
+            while (!(tuple = index->nextValueAtKey()).isNullTuple()) {
+                EXPECT_TRUE(sameValue(value, tuple.getNValue(column)));
+                count++;
+            }
+            return (count);
+        }
+
+        TupleSchema *m_schema;
+        int m_tupleLength;
+        char *m_storage;
+        char *m_keyStorage;
+        int m_numTuples;
+        vector<TableIndex*> m_indexes;
+};
+
+static int64_t elapsed(timeval &start) {
+    timeval end;
+    gettimeofday(&end, NULL);
+    return ((end.tv_sec - start.tv_sec) * 1000000 + (end.tv_usec - start.tv_usec));
+}
+
+TEST_F(CompactBTreeIndexTest, Factory) {
+    loadTuples(1);
+    TableIndex *index = createIndex(BTREE_INDEX, true, VALUE_COLUMN);
+    EXPECT_EQ(string("CompactBTreeIndex"), index->getTypeName());
+
+    // Strings that are too big to encode fall back to the binary tree
+    vector<ValueType> types(1, VALUE_TYPE_VARCHAR);
+    vector<int32_t> lengths(1, CompactBTreeIndex::MAX_KEY_SIZE);
+    vector<bool> allowNull(1, true);
+    TupleSchema *schema = TupleSchema::createTupleSchema(types, lengths, allowNull, true);
+    vector<int> columnIndices(1, 0);
+    TableIndexScheme scheme("wide", BTREE_INDEX, columnIndices, types, true, false, schema);
+    TableIndex *wide = TableIndexFactory::getInstance(scheme);
+    EXPECT_NE(string("CompactBTreeIndex"), wide->getTypeName());
+    delete wide;
+    TupleSchema::freeTupleSchema(schema);
+}
+
+TEST_F(CompactBTreeIndexTest, UniqueBigInt) {
+    loadTuples(NUM_TUPLES);
+    TableIndex *expected = createIndex(BALANCED_TREE_INDEX, true, VALUE_COLUMN);
+    TableIndex *actual = createIndex(BTREE_INDEX, true, VALUE_COLUMN);
+
+    TableTuple tuple(m_schema);
+    for (int i = 0; i < m_numTuples; i++) {
+        tuple.move(getAddress(i));
+        ASSERT_TRUE(expected->addEntry(&tuple));
+        ASSERT_TRUE(actual->addEntry(&tuple));
+    }
+    // Duplicates are rejected
+    tuple.move(getAddress(m_numTuples / 2));
+    EXPECT_FALSE(actual->addEntry(&tuple));
+    EXPECT_GT(static_cast<CompactBTreeIndex*>(actual)->getHeight(), 1);
+    checkSameScan(expected, actual, VALUE_COLUMN);
+
+    // Point lookups
+    for (int i = 0; i < m_numTuples; i++) {
+        TableTuple key = getKey(actual, ValueFactory::getBigIntValue(getValue(i)));
+        ASSERT_TRUE(actual->moveToKey(&key));
+        ASSERT_EQ(getAddress(i), actual->nextValueAtKey().address());
+        ASSERT_TRUE(actual->nextValueAtKey().isNullTuple());
+        tuple.move(getAddress(i));
+        ASSERT_TRUE(actual->exists(&tuple));
+    }
+    TableTuple missing = getKey(actual, ValueFactory::getBigIntValue(VALUE_RANGE + 1));
+    EXPECT_FALSE(actual->moveToKey(&missing));
+
+    // Remove every third tuple
+    for (int i = 0; i < m_numTuples; i += 3) {
+        tuple.move(getAddress(i));
+        ASSERT_TRUE(expected->deleteEntry(&tuple));
+        ASSERT_TRUE(actual->deleteEntry(&tuple));
+        ASSERT_FALSE(actual->deleteEntry(&tuple));
+        ASSERT_FALSE(actual->exists(&tuple));
+    }
+    checkSameScan(expected, actual, VALUE_COLUMN);
+
+    // Range scans from random keys
+    for (int i = 0; i < 1000; i++) {
+        NValue value = ValueFactory::getBigIntValue(getValue(rand() % m_numTuples) + (rand() % 3) - 1);
+        for (int greater = 0; greater < 2; greater++) {
+            TableTuple key = getKey(expected, value);
+            if (greater) {
+                expected->moveToGreaterThanKey(&key);
+                actual->moveToGreaterThanKey(&key);
+            } else {
+                expected->moveToKeyOrGreater(&key);
+                actual->moveToKeyOrGreater(&key);
+            }
+            for (int j = 0; j < 20; j++) {
+                TableTuple e = expected->nextValue();
+                TableTuple a = actual->nextValue();
+                ASSERT_EQ(e.isNullTuple(), a.isNullTuple());
+                if (e.isNullTuple()) break;
+                ASSERT_EQ(e.address(), a.address());
+            }
+        }
+    }
+
+    // Change the keys of the remaining tuples
+    for (int i = 1; i < m_numTuples; i += 3) {
+        char copy[m_tupleLength];
+        ::memcpy(copy, getAddress(i), m_tupleLength);
+        TableTuple oldTuple(copy, m_schema);
+        tuple.move(getAddress(i));
+        tuple.setNValue(VALUE_COLUMN, ValueFactory::getBigIntValue(VALUE_RANGE + i));
+        ASSERT_TRUE(actual->checkForIndexChange(&oldTuple, &tuple));
+        ASSERT_TRUE(expected->replaceEntry(&oldTuple, &tuple));
+        ASSERT_TRUE(actual->replaceEntry(&oldTuple, &tuple));
+    }
+    checkSameScan(expected, actual, VALUE_COLUMN);
+
+    // Remove everything else
+    for (int i = 0; i < m_numTuples; i++) {
+        if (i % 3 == 0) continue;
+        tuple.move(getAddress(i));
+        ASSERT_TRUE(actual->deleteEntry(&tuple));
+    }
+    EXPECT_EQ(0, actual->getSize());
+    EXPECT_TRUE(scan(actual, VALUE_COLUMN, true).empty());
+    EXPECT_LE(static_cast<CompactBTreeIndex*>(actual)->getHeight(), 1);
+    EXPECT_LE(static_cast<CompactBTreeIndex*>(actual)->getMemorySize(), CompactBTreeIndex::NODE_SIZE);
+}
+
+TEST_F(CompactBTreeIndexTest, MultiVarchar) {
+    loadTuples(NUM_TUPLES);
+    TableIndex *expected = createIndex(BALANCED_TREE_INDEX, false, NAME_COLUMN);
+    TableIndex *actual = createIndex(BTREE_INDEX, false, NAME_COLUMN);
+
+    vector<const void*> addresses;
+    TableTuple tuple(m_schema);
+    for (int i = 0; i < m_numTuples; i++) {
+        tuple.move(getAddress(i));
+        ASSERT_TRUE(expected->addEntry(&tuple));
+        addresses.push_back(getAddress(i));
+    }
+    EXPECT_EQ(0, actual->addEntries(addresses));
+    checkSameScan(expected, actual, NAME_COLUMN);
+
+    // Every distinct key has the same number of entries. NULL is the first key.
+    NValue value = scan(expected, NAME_COLUMN, true)[0];
+    EXPECT_TRUE(value.isNull());
+    int keys = 0;
+    while (true) {
+        ASSERT_EQ(countKey(expected, NAME_COLUMN, value), countKey(actual, NAME_COLUMN, value));
+        keys++;
+
+        // countKey() moved the cursors, so go back to where we were
+        TableTuple key = getKey(actual, value);
+        expected->moveToKey(&key);
+        actual->moveToKey(&key);
+        if (!expected->advanceToNextKey()) {
+            EXPECT_FALSE(actual->advanceToNextKey());
+            break;
+        }
+        ASSERT_TRUE(actual->advanceToNextKey());
+        value = expected->nextValueAtKey().getNValue(NAME_COLUMN);
+        ASSERT_TRUE(sameValue(value, actual->nextValueAtKey().getNValue(NAME_COLUMN)));
+    }
+    EXPECT_EQ(501, keys);
+
+    // Delete the tuples for one of the keys
+    NValue removed = ValueFactory::getStringValue("customer_account_00031");
+    for (int i = 0; i < m_numTuples; i++) {
+        tuple.move(getAddress(i));
+        if (sameValue(removed, tuple.getNValue(NAME_COLUMN))) {
+            ASSERT_TRUE(expected->deleteEntry(&tuple));
+            ASSERT_TRUE(actual->deleteEntry(&tuple));
+        }
+    }
+    EXPECT_EQ(0, countKey(actual, NAME_COLUMN, removed));
+    removed.free();
+    checkSameScan(expected, actual, NAME_COLUMN);
+
+    // Move some of the NULLs to a new key. The tuple is updated
+    // in place before the index is told about it.
+    NValue renamed = ValueFactory::getStringValue("customer");
+    for (int i = 0; i < m_numTuples; i += 17 * 3) {
+        char copy[m_tupleLength];
+        ::memcpy(copy, getAddress(i), m_tupleLength);
+        TableTuple oldTuple(copy, m_schema);
+        tuple.move(getAddress(i));
+        tuple.setNValue(NAME_COLUMN, renamed);
+        ASSERT_TRUE(expected->replaceEntry(&oldTuple, &tuple));
+        ASSERT_TRUE(actual->replaceEntry(&oldTuple, &tuple));
+    }
+    EXPECT_EQ(countKey(expected, NAME_COLUMN, renamed), countKey(actual, NAME_COLUMN, renamed));
+    renamed.free();
+    checkSameScan(expected, actual, NAME_COLUMN);
+}
+
+TEST_F(CompactBTreeIndexTest, DoubleOrder) {
+    loadTuples(NUM_TUPLES / 10);
+    TableIndex *expected = createIndex(BALANCED_TREE_INDEX, false, DOUBLE_COLUMN);
+    TableIndex *actual = createIndex(BTREE_INDEX, false, DOUBLE_COLUMN);
+
+    TableTuple tuple(m_schema);
+    for (int i = 0; i < m_numTuples; i++) {
+        tuple.move(getAddress(i));
+        ASSERT_TRUE(expected->addEntry(&tuple));
+        ASSERT_TRUE(actual->addEntry(&tuple));
+    }
+    checkSameScan(expected, actual, DOUBLE_COLUMN);
+
+    // -0.0 and 0.0 are the same key
+    EXPECT_EQ(countKey(actual, DOUBLE_COLUMN, ValueFactory::getDoubleValue(0.0)),
+              countKey(actual, DOUBLE_COLUMN, ValueFactory::getDoubleValue(-0.0)));
+    EXPECT_EQ(countKey(expected, DOUBLE_COLUMN, ValueFactory::getDoubleValue(-12.5)),
+              countKey(actual, DOUBLE_COLUMN, ValueFactory::getDoubleValue(-12.5)));
+}
+
+/**
+ * Compare the time it takes to build, probe, and scan both kinds of tree indexes.
+ * This only prints out the timings, so it is skipped unless the
+ * HSTORE_EE_BENCHMARK environment variable is set.
+ */
+TEST_F(CompactBTreeIndexTest, Benchmark) {
+    if (getenv("HSTORE_EE_BENCHMARK") == NULL) {
+        return;
+    }
+    loadTuples(NUM_BENCHMARK_TUPLES);
+    TableIndexType types[] = { BALANCED_TREE_INDEX, BTREE_INDEX };
+    for (int t = 0; t < 2; t++) {
+        for (int unique = 0; unique < 2; unique++) {
+            int column = (unique ? VALUE_COLUMN : NAME_COLUMN);
+            TableIndex *index = createIndex(types[t], unique, column);
+            TableTuple tuple(m_schema);
+            timeval start;
+
+            gettimeofday(&start, NULL);
+            for (int i = 0; i < m_numTuples; i++) {
+                tuple.move(getAddress(i));
+                index->addEntry(&tuple);
+            }
+            int64_t insertTime = elapsed(start);
+
+            gettimeofday(&start, NULL);
+            int found = 0;
+            for (int i = 0; i < m_numTuples; i++) {
+                tuple.move(getAddress(rand() % m_numTuples));
+                if (index->moveToTuple(&tuple)) found++;
+            }
+            int64_t lookupTime = elapsed(start);
+            EXPECT_EQ(m_numTuples, found);
+
+            gettimeofday(&start, NULL);
+            int scanned = 0;
+            index->moveToEnd(true);
+            while (!index->nextValue().isNullTuple()) scanned++;
+            int64_t scanTime = elapsed(start);
+            EXPECT_EQ(m_numTuples, scanned);
+
+            printf("%-18s %-7s insert: %7jdus  lookup: %7jdus  scan: %6jdus\n",
+                   index->getTypeName().c_str(), (unique ? "BIGINT" : "VARCHAR"),
+                   (intmax_t)insertTime, (intmax_t)lookupTime, (intmax_t)scanTime);
+            if (types[t] == BTREE_INDEX) {
+                printf("%-18s %-7s height: %d  memory: %zu bytes\n", "", "",
+                       static_cast<CompactBTreeIndex*>(index)->getHeight(), static_cast<CompactBTreeIndex*>(index)->getMemorySize());
+            }
+
+            m_indexes.pop_back();
+            delete index;
+        }
+    }
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -69,10 +69,12 @@ const char *kMultiIntsHash = "MultiIntsHash";
 const char *kMultiIntsTree = "MultiIntsTree";
 const char *kMultiGenericHash = "MultiGenericHash";
 const char *kMultiGenericTree = "MultiGenericTree";
+const char *kMultiGenericBTree = "MultiGenericBTree";
 const char *kUniqueIntsHash = "UniqueIntsHash";
 const char *kUniqueIntsTree = "UniqueIntsTree";
 const char *kUniqueGenericHash = "UniqueGenericHash";
 const char *kUniqueGenericTree = "UniqueGenericTree";
+const char *kUniqueGenericBTree = "UniqueGenericBTree";
 
 
 struct Command {
@@ -236,6 +238,10 @@ void setNewCurrent(const char *testName,
             voltdb::TableIndexScheme scheme(indexName, voltdb::BALANCED_TREE_INDEX, columnIndices, columnTypes, false, false, schema);
             index = voltdb::TableIndexFactory::getInstance(scheme);
         }
+        else if (strcmp(indexName, kMultiGenericBTree) == 0) {
+            voltdb::TableIndexScheme scheme(indexName, voltdb::BTREE_INDEX, columnIndices, columnTypes, false, false, schema);
+            index = voltdb::TableIndexFactory::getInstance(scheme);
+        }
         else if (strcmp(indexName, kUniqueIntsHash) == 0) {
             voltdb::TableIndexScheme scheme(indexName, voltdb::HASH_TABLE_INDEX, columnIndices, columnTypes, true, true, schema);
             index = voltdb::TableIndexFactory::getInstance(scheme);
@@ -252,6 +258,10 @@ void setNewCurrent(const char *testName,
             voltdb::TableIndexScheme scheme(indexName, voltdb::BALANCED_TREE_INDEX, columnIndices, columnTypes, true, false, schema);
             index = voltdb::TableIndexFactory::getInstance(scheme);
         }
+        else if (strcmp(indexName, kUniqueGenericBTree) == 0) {
+            voltdb::TableIndexScheme scheme(indexName, voltdb::BTREE_INDEX, columnIndices, columnTypes, true, false, schema);
+            index = voltdb::TableIndexFactory::getInstance(scheme);
+        }
         else {
             cerr << "Unable to load index named: " << indexName << " on line: " << line << endl;
             exit(-1);
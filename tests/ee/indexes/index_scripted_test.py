@@ -47,7 +47,7 @@ script = """
 #   us = update expecting success
 #   uf = update expecting failure
 
-begin TestName MultiIntsTree,MultiGenericTree,MultiIntsHash,MultiGenericHash,UniqueIntsTree,UniqueGenericTree,UniqueIntsHash,UniqueGenericHash bint,bint,bint
+begin TestName MultiIntsTree,MultiGenericTree,MultiGenericBTree,MultiIntsHash,MultiGenericHash,UniqueIntsTree,UniqueGenericTree,UniqueGenericBTree,UniqueIntsHash,UniqueGenericHash bint,bint,bint
 is 5,6,7
 ls 5,6,7
 #us 5,6,7 8,9,10
@@ -55,7 +55,7 @@ ls 5,6,7
 ds 5,6,7
 df 8,9,10
 exec
-begin GenericTest MultiGenericTree,MultiGenericHash,UniqueGenericTree,UniqueGenericHash str4,bint,bint
+begin GenericTest MultiGenericTree,MultiGenericBTree,MultiGenericHash,UniqueGenericTree,UniqueGenericBTree,UniqueGenericHash str4,bint,bint
 is foo,6,7
 ls foo,6,7
 #us foo,6,7 bar,9,10
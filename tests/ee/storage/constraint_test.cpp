@@ -57,10 +57,14 @@
 #include "common/TupleSchema.h"
 #include "common/NValue.hpp"
 #include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
 #include "common/SerializableEEException.h"
 #include "common/tabletuple.h"
 #include "storage/tablefactory.h"
 #include "storage/persistenttable.h"
+#include "storage/temptable.h"
+#include "storage/tableiterator.h"
+#include "common/serializeio.h"
 #include "indexes/tableindex.h"
 #include "execution/VoltDBEngine.h"
 
@@ -132,6 +136,34 @@ protected:
     void setTable(voltdb::TableIndexScheme &pkey) {
         setTable(&pkey);
     };
+
+    /*
+     * Serialize the given keys as a table with the same schema as the test
+     * table and load them into the test table through loadTuplesFrom()
+     */
+    void loadKeys(const std::vector<int64_t> &keys) {
+        std::string *names = new std::string[columnNames.size()];
+        for (std::size_t i = 0; i < columnNames.size(); i++) {
+            names[i] = columnNames[i];
+        }
+        TupleSchema *schema = TupleSchema::createTupleSchema(table->schema());
+        Table *temp = TableFactory::getTempTable(this->database_id, "temp_table", schema, names, NULL);
+        delete[] names;
+        for (std::size_t i = 0; i < keys.size(); i++) {
+            TableTuple &tuple = temp->tempTuple();
+            tuple.setAllNulls();
+            for (std::size_t col = 0; col < columnNames.size(); col++) {
+                tuple.setNValue(static_cast<int>(col), ValueFactory::getBigIntValue(keys[i]));
+            }
+            temp->insertTuple(tuple);
+        }
+        CopySerializeOutput serialize_out;
+        temp->serializeTo(serialize_out);
+        ReferenceSerializeInput serialize_in(serialize_out.data() + sizeof(int32_t),
+                                             serialize_out.size() - sizeof(int32_t));
+        table->loadTuplesFrom(false, serialize_in, NULL);
+        delete temp;
+    };
 };
 
 TEST_F(ConstraintTest, NotNull) {
@@ -410,6 +442,127 @@ TEST_F(ConstraintTest, UniqueTwoColumnAllowNull) {
     }
 }
 
+TEST_F(ConstraintTest, BulkLoad) {
+    //
+    // Load a batch in bulk-load mode and make sure that the pkey index
+    // only gets built once the mode is switched off
+    //
+    const int columnCount = 2;
+    for (int ctr = 0; ctr < columnCount; ctr++) {
+        char name[16];
+        snprintf(name, 16, "col%02d", ctr);
+        addColumn(name, VALUE_TYPE_BIGINT,
+                  NValue::getTupleStorageSize(VALUE_TYPE_BIGINT), false);
+    }
+    std::vector<int> pkey_column_indices(1, 0);
+    std::vector<voltdb::ValueType> pkey_column_types(1, VALUE_TYPE_BIGINT);
+    TableIndexScheme pkey("idx_pkey", voltdb::BALANCED_TREE_INDEX, pkey_column_indices, pkey_column_types, true, true, NULL);
+    setTable(pkey);
+    PersistentTable *persistent = dynamic_cast<PersistentTable*>(this->table);
+    ASSERT_TRUE(persistent != NULL);
+
+    // Load the keys in reverse order over two batches
+    persistent->setBulkLoad(true);
+    std::vector<int64_t> keys;
+    for (int64_t ctr = NUM_OF_TUPLES * 2 - 1; ctr >= NUM_OF_TUPLES; ctr--) keys.push_back(ctr);
+    loadKeys(keys);
+    keys.clear();
+    for (int64_t ctr = NUM_OF_TUPLES - 1; ctr >= 0; ctr--) keys.push_back(ctr);
+    loadKeys(keys);
+    EXPECT_EQ(NUM_OF_TUPLES * 2, this->table->activeTupleCount());
+    EXPECT_EQ(0, this->table->primaryKeyIndex()->getSize());
+
+    persistent->setBulkLoad(false);
+    EXPECT_FALSE(persistent->isBulkLoad());
+    TableIndex *index = this->table->primaryKeyIndex();
+    EXPECT_EQ(NUM_OF_TUPLES * 2, index->getSize());
+
+    // The index has to come back out in key order
+    index->moveToEnd(true);
+    TableTuple tuple(this->table->schema());
+    int64_t expected = 0;
+    while (!(tuple = index->nextValue()).isNullTuple()) {
+        EXPECT_EQ(expected, ValuePeeker::peekBigInt(tuple.getNValue(0)));
+        expected++;
+    }
+    EXPECT_EQ(NUM_OF_TUPLES * 2, expected);
+
+    // Loads outside of bulk-load mode still go straight into the index
+    keys.clear();
+    keys.push_back(NUM_OF_TUPLES * 2);
+    loadKeys(keys);
+    EXPECT_EQ(NUM_OF_TUPLES * 2 + 1, index->getSize());
+}
+
+TEST_F(ConstraintTest, BulkLoadUniqueViolation) {
+    //
+    // Duplicate keys in a bulk-loaded batch are reported when the
+    // indexes are built, and everything from the batch is removed again
+    //
+    const int columnCount = 2;
+    for (int ctr = 0; ctr < columnCount; ctr++) {
+        char name[16];
+        snprintf(name, 16, "col%02d", ctr);
+        addColumn(name, VALUE_TYPE_BIGINT,
+                  NValue::getTupleStorageSize(VALUE_TYPE_BIGINT), false);
+    }
+    std::vector<int> pkey_column_indices(1, 0);
+    std::vector<voltdb::ValueType> pkey_column_types(1, VALUE_TYPE_BIGINT);
+    TableIndexScheme pkey("idx_pkey", voltdb::BALANCED_TREE_INDEX, pkey_column_indices, pkey_column_types, true, true, NULL);
+    setTable(pkey);
+    PersistentTable *persistent = dynamic_cast<PersistentTable*>(this->table);
+    ASSERT_TRUE(persistent != NULL);
+
+    // These were loaded before and have to survive the failed bulk load
+    const int64_t existing = 10;
+    std::vector<int64_t> keys;
+    for (int64_t ctr = 0; ctr < existing; ctr++) keys.push_back(NUM_OF_TUPLES + ctr);
+    loadKeys(keys);
+    TableIndex *index = this->table->primaryKeyIndex();
+    ASSERT_EQ(existing, index->getSize());
+
+    // The batch has duplicates of its own and one key that is already in the table
+    persistent->setBulkLoad(true);
+    keys.clear();
+    for (int64_t ctr = 0; ctr < NUM_OF_TUPLES; ctr++) {
+        keys.push_back(ctr);
+        if (ctr % 2 == 0) keys.push_back(ctr);
+    }
+    keys.push_back(NUM_OF_TUPLES);
+    loadKeys(keys);
+
+    bool exceptionThrown = false;
+    try {
+        persistent->setBulkLoad(false);
+    } catch (SerializableEEException &e) {
+        exceptionThrown = true;
+    }
+    EXPECT_TRUE(exceptionThrown);
+    EXPECT_FALSE(persistent->isBulkLoad());
+
+    // The table and its index have to look like the load never happened
+    EXPECT_EQ(existing, this->table->activeTupleCount());
+    EXPECT_EQ(existing, index->getSize());
+    index->moveToEnd(true);
+    TableTuple tuple(this->table->schema());
+    int64_t expected = NUM_OF_TUPLES;
+    while (!(tuple = index->nextValue()).isNullTuple()) {
+        EXPECT_TRUE(tuple.isActive());
+        EXPECT_EQ(expected, ValuePeeker::peekBigInt(tuple.getNValue(0)));
+        expected++;
+    }
+    EXPECT_EQ(NUM_OF_TUPLES + existing, expected);
+
+    // And we can load the same keys again without the duplicates
+    keys.clear();
+    for (int64_t ctr = 0; ctr < NUM_OF_TUPLES; ctr++) keys.push_back(ctr);
+    persistent->setBulkLoad(true);
+    loadKeys(keys);
+    persistent->setBulkLoad(false);
+    EXPECT_EQ(NUM_OF_TUPLES + existing, this->table->activeTupleCount());
+    EXPECT_EQ(NUM_OF_TUPLES + existing, index->getSize());
+}
+
 int main() {
     return TestSuite::globalInstance()->runAll();
 }
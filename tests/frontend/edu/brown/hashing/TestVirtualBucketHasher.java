@@ -0,0 +1,90 @@
+package edu.brown.hashing;
+
+import org.voltdb.TheHashinator;
+
+import junit.framework.TestCase;
+
+public class TestVirtualBucketHasher extends TestCase {
+
+    private static final int NUM_BUCKETS = VirtualBucketHasher.DEFAULT_NUM_BUCKETS;
+    private static final int NUM_PARTITIONS = 10;
+
+    private void checkBalanced(int table[], int num_partitions) {
+        int counts[] = new int[num_partitions];
+        for (int partition : table) {
+            assertTrue(partition >= 0 && partition < num_partitions);
+            counts[partition]++;
+        } // FOR
+        int min = table.length / num_partitions;
+        for (int partition = 0; partition < num_partitions; partition++) {
+            assertTrue("Partition " + partition + " => " + counts[partition],
+                       counts[partition] == min || counts[partition] == min + 1);
+        } // FOR
+    }
+
+    private int countMoved(int orig[], int table[]) {
+        int moved = 0;
+        for (int bucket = 0; bucket < orig.length; bucket++) {
+            if (orig[bucket] != table[bucket]) moved++;
+        } // FOR
+        return (moved);
+    }
+
+    /**
+     * testCreateBucketTable
+     */
+    public void testCreateBucketTable() throws Exception {
+        int table[] = VirtualBucketHasher.createBucketTable(NUM_BUCKETS, NUM_PARTITIONS);
+        assertEquals(NUM_BUCKETS, table.length);
+        this.checkBalanced(table, NUM_PARTITIONS);
+    }
+
+    /**
+     * testRebalanceAddPartition
+     */
+    public void testRebalanceAddPartition() throws Exception {
+        int orig[] = VirtualBucketHasher.createBucketTable(NUM_BUCKETS, NUM_PARTITIONS);
+        int table[] = VirtualBucketHasher.rebalanceBucketTable(orig, NUM_PARTITIONS + 1);
+        this.checkBalanced(table, NUM_PARTITIONS + 1);
+
+        // Only the buckets that the new partition needs should have moved
+        int moved = countMoved(orig, table);
+        assertTrue("Moved " + moved, moved <= (NUM_BUCKETS / (NUM_PARTITIONS + 1)) + 1);
+        for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+            if (orig[bucket] != table[bucket]) assertEquals(NUM_PARTITIONS, table[bucket]);
+        } // FOR
+
+        // Rebalancing to the same number of partitions shouldn't move anything
+        assertEquals(0, countMoved(table, VirtualBucketHasher.rebalanceBucketTable(table, NUM_PARTITIONS + 1)));
+    }
+
+    /**
+     * testRebalanceRemovePartition
+     */
+    public void testRebalanceRemovePartition() throws Exception {
+        int orig[] = VirtualBucketHasher.createBucketTable(NUM_BUCKETS, NUM_PARTITIONS);
+        int table[] = VirtualBucketHasher.rebalanceBucketTable(orig, NUM_PARTITIONS - 1);
+        this.checkBalanced(table, NUM_PARTITIONS - 1);
+
+        // Only the removed partition's buckets should have moved
+        for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+            if (orig[bucket] != table[bucket]) assertEquals(NUM_PARTITIONS - 1, orig[bucket]);
+        } // FOR
+    }
+
+    /**
+     * testHash
+     */
+    public void testHash() throws Exception {
+        VirtualBucketHasher hasher = new VirtualBucketHasher(null, NUM_PARTITIONS);
+        int table[] = hasher.getBuckets();
+        assertNotNull(table);
+        for (long val = 0; val < 10000; val++) {
+            int expected = TheHashinator.hashToPartition(val, table);
+            assertEquals(expected, hasher.hash(val));
+            // Using a different number of partitions falls back to the regular hashing
+            assertEquals(TheHashinator.hashToPartition(val, NUM_PARTITIONS + 1), hasher.hash(val, NUM_PARTITIONS + 1));
+            assertEquals(table[TheHashinator.hashToPartition(val, NUM_BUCKETS)], expected);
+        } // FOR
+    }
+}
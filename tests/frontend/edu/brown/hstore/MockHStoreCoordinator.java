@@ -8,6 +8,12 @@ import com.google.protobuf.RpcController;
 import edu.brown.hstore.Hstoreservice.HStoreService;
 import edu.brown.hstore.Hstoreservice.InitializeRequest;
 import edu.brown.hstore.Hstoreservice.InitializeResponse;
+import edu.brown.hstore.Hstoreservice.ReplayRestoreRequest;
+import edu.brown.hstore.Hstoreservice.ReplayRestoreResponse;
+import edu.brown.hstore.Hstoreservice.ReplayBarrierRequest;
+import edu.brown.hstore.Hstoreservice.ReplayBarrierResponse;
+import edu.brown.hstore.Hstoreservice.ReplayTransactionsRequest;
+import edu.brown.hstore.Hstoreservice.ReplayTransactionsResponse;
 import edu.brown.hstore.Hstoreservice.SendDataRequest;
 import edu.brown.hstore.Hstoreservice.SendDataResponse;
 import edu.brown.hstore.Hstoreservice.ShutdownRequest;
@@ -137,6 +143,21 @@ public class MockHStoreCoordinator extends HStoreCoordinator {
         public void initialize(RpcController controller, InitializeRequest request, RpcCallback<InitializeResponse> done) {
             // TODO Auto-generated method stub
         }
+        
+        @Override
+        public void replayRestore(RpcController controller, ReplayRestoreRequest request, RpcCallback<ReplayRestoreResponse> done) {
+            // Ignore
+        }
+        
+        @Override
+        public void replayTransactions(RpcController controller, ReplayTransactionsRequest request, RpcCallback<ReplayTransactionsResponse> done) {
+            // Ignore
+        }
+        
+        @Override
+        public void replayBarrier(RpcController controller, ReplayBarrierRequest request, RpcCallback<ReplayBarrierResponse> done) {
+            // Ignore
+        }
 
         @Override
         public void shutdown(RpcController controller, ShutdownRequest request, RpcCallback<ShutdownResponse> done) {
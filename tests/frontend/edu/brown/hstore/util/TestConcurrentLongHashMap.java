@@ -0,0 +1,131 @@
+package edu.brown.hstore.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class TestConcurrentLongHashMap extends TestCase {
+
+    static final int NUM_KEYS = 10000;
+    static final int NUM_THREADS = 4;
+
+    ConcurrentLongHashMap<String> map;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // Use a small map so that we are forced to rebuild segments
+        this.map = new ConcurrentLongHashMap<String>(16, 4);
+    }
+
+    /**
+     * testPutGetRemove
+     */
+    public void testPutGetRemove() throws Exception {
+        assertTrue(map.isEmpty());
+        for (long key = 0; key < NUM_KEYS; key++) {
+            assertNull(map.put(key, Long.toString(key)));
+        } // FOR
+        assertEquals(NUM_KEYS, map.size());
+
+        for (long key = 0; key < NUM_KEYS; key++) {
+            assertEquals(Long.toString(key), map.get(key));
+            assertTrue(map.containsKey(key));
+        } // FOR
+        assertNull(map.get(-1l));
+        assertFalse(map.containsKey(NUM_KEYS));
+
+        // Remove every other key
+        for (long key = 0; key < NUM_KEYS; key += 2) {
+            assertEquals(Long.toString(key), map.remove(key));
+            assertNull(map.remove(key));
+        } // FOR
+        assertEquals(NUM_KEYS / 2, map.size());
+        for (long key = 0; key < NUM_KEYS; key++) {
+            if (key % 2 == 0) assertNull(map.get(key));
+            else assertEquals(Long.toString(key), map.get(key));
+        } // FOR
+
+        Collection<String> values = map.values();
+        assertEquals(NUM_KEYS / 2, values.size());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1l));
+    }
+
+    /**
+     * testPutIfAbsent
+     */
+    public void testPutIfAbsent() throws Exception {
+        long key = 1234;
+        assertNull(map.putIfAbsent(key, "a"));
+        assertEquals("a", map.putIfAbsent(key, "b"));
+        assertEquals("a", map.get(key));
+        assertEquals("a", map.put(key, "b"));
+        assertEquals("b", map.get(key));
+
+        // Reinsert after a remove should reuse the key's old slot
+        assertEquals("b", map.remove(key));
+        assertNull(map.putIfAbsent(key, "c"));
+        assertEquals("c", map.get(key));
+        assertEquals(1, map.size());
+    }
+
+    /**
+     * testTombstones
+     */
+    public void testTombstones() throws Exception {
+        // Insert and remove a lot of unique keys like we do with txnIds.
+        // The map should keep purging the removed keys instead of growing forever
+        for (long key = 0; key < NUM_KEYS * 10; key++) {
+            assertNull(map.put(key, "x"));
+            if (key >= 10) assertEquals("x", map.remove(key - 10));
+        } // FOR
+        assertEquals(10, map.size());
+        for (long key = NUM_KEYS * 10 - 10; key < NUM_KEYS * 10; key++) {
+            assertEquals("x", map.get(key));
+        } // FOR
+    }
+
+    /**
+     * testConcurrentAccess
+     */
+    public void testConcurrentAccess() throws Exception {
+        final ConcurrentLongHashMap<Long> m = new ConcurrentLongHashMap<Long>();
+        final CountDownLatch latch = new CountDownLatch(NUM_THREADS);
+        final AtomicInteger errors = new AtomicInteger(0);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            final long offset = i * (long)NUM_KEYS;
+            threads.add(new Thread() {
+                public void run() {
+                    for (long key = offset; key < offset + NUM_KEYS; key++) {
+                        m.put(key, key);
+                        Long val = m.get(key);
+                        if (val == null || val.longValue() != key) errors.incrementAndGet();
+                        if (key % 2 == 0) m.remove(key);
+                    } // FOR
+                    latch.countDown();
+                }
+            });
+        } // FOR
+        for (Thread t : threads) t.start();
+        latch.await();
+
+        assertEquals(0, errors.get());
+        assertEquals(NUM_THREADS * NUM_KEYS / 2, m.size());
+        Set<Long> values = new HashSet<Long>(m.values());
+        assertEquals(m.size(), values.size());
+        for (Long val : values) {
+            assertEquals(1, val.longValue() % 2);
+            assertEquals(val, m.get(val.longValue()));
+        } // FOR
+    }
+}
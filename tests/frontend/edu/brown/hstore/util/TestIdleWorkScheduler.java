@@ -0,0 +1,139 @@
+package edu.brown.hstore.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import edu.brown.hstore.util.IdleWorkScheduler.WorkType;
+
+public class TestIdleWorkScheduler extends TestCase {
+
+    /**
+     * Idle work that records the order in which it was invoked
+     */
+    private class MockWork implements IdleWorkScheduler.Work {
+        final WorkType type;
+        int remaining;
+
+        MockWork(WorkType type, int remaining) {
+            this.type = type;
+            this.remaining = remaining;
+        }
+        @Override
+        public boolean hasWork() {
+            return (this.remaining > 0);
+        }
+        @Override
+        public void doWork() {
+            assertTrue(this.remaining > 0);
+            this.remaining--;
+            invoked.add(this.type);
+        }
+    }
+
+    private final List<WorkType> invoked = new ArrayList<WorkType>();
+    private boolean txnWork = false;
+    private final IdleWorkScheduler.Interrupt interrupt = new IdleWorkScheduler.Interrupt() {
+        @Override
+        public boolean hasTxnWork() {
+            return (txnWork);
+        }
+    };
+
+    private IdleWorkScheduler scheduler;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.scheduler = new IdleWorkScheduler(0);
+    }
+
+    /**
+     * testPriorityOrder
+     */
+    public void testPriorityOrder() throws Exception {
+        MockWork background = new MockWork(WorkType.BACKGROUND, 2);
+        MockWork snapshot = new MockWork(WorkType.SNAPSHOT, 2);
+        MockWork deferred = new MockWork(WorkType.DEFERRED, 2);
+        this.scheduler.register(WorkType.BACKGROUND, background, 100000);
+        this.scheduler.register(WorkType.SNAPSHOT, snapshot, 100000);
+        this.scheduler.register(WorkType.DEFERRED, deferred, 100000);
+
+        assertFalse(this.scheduler.run(this.interrupt));
+        assertEquals(6, this.invoked.size());
+        for (int i = 0; i < this.invoked.size(); i++) {
+            assertEquals(WorkType.values()[i / 2], this.invoked.get(i));
+        } // FOR
+        for (WorkType type : WorkType.values()) {
+            assertEquals(2, this.scheduler.getWorkCount(type));
+            assertEquals(1, this.scheduler.getTime(type).getInvocations());
+            assertEquals(0, this.scheduler.getExhaustedCount(type));
+        } // FOR
+
+        // Nothing left to do
+        assertFalse(this.scheduler.run(this.interrupt));
+        assertEquals(6, this.invoked.size());
+    }
+
+    /**
+     * testTimeSlice
+     */
+    public void testTimeSlice() throws Exception {
+        MockWork snapshot = new MockWork(WorkType.SNAPSHOT, 10);
+        MockWork background = new MockWork(WorkType.BACKGROUND, 1);
+        this.scheduler.register(WorkType.SNAPSHOT, snapshot, 0);
+        this.scheduler.register(WorkType.BACKGROUND, background, 0);
+
+        // With a zero slice, each class only gets one unit of work per idle period
+        assertTrue(this.scheduler.run(this.interrupt));
+        assertEquals(2, this.invoked.size());
+        assertEquals(WorkType.SNAPSHOT, this.invoked.get(0));
+        assertEquals(WorkType.BACKGROUND, this.invoked.get(1));
+        assertEquals(9, snapshot.remaining);
+        assertEquals(1, this.scheduler.getExhaustedCount(WorkType.SNAPSHOT));
+
+        int rounds = 1;
+        boolean more = true;
+        while (more) {
+            more = this.scheduler.run(this.interrupt);
+            rounds++;
+        } // WHILE
+        assertEquals(10, rounds);
+        assertEquals(0, snapshot.remaining);
+        assertEquals(10, this.scheduler.getWorkCount(WorkType.SNAPSHOT));
+    }
+
+    /**
+     * testYield
+     */
+    public void testYield() throws Exception {
+        final MockWork deferred = new MockWork(WorkType.DEFERRED, 10);
+        MockWork snapshot = new MockWork(WorkType.SNAPSHOT, 10);
+        this.scheduler.register(WorkType.DEFERRED, new IdleWorkScheduler.Work() {
+            @Override
+            public boolean hasWork() {
+                return (deferred.hasWork());
+            }
+            @Override
+            public void doWork() {
+                deferred.doWork();
+                // A new txn shows up after the third query
+                if (deferred.remaining == 7) txnWork = true;
+            }
+        }, 100000);
+        this.scheduler.register(WorkType.SNAPSHOT, snapshot, 100000);
+
+        assertTrue(this.scheduler.run(this.interrupt));
+        assertEquals(3, this.invoked.size());
+        assertEquals(1, this.scheduler.getYieldCount(WorkType.DEFERRED));
+        assertEquals(10, snapshot.remaining);
+
+        // Nothing should run while there is still txn work
+        assertTrue(this.scheduler.run(this.interrupt));
+        assertEquals(3, this.invoked.size());
+
+        this.txnWork = false;
+        assertFalse(this.scheduler.run(this.interrupt));
+        assertEquals(20, this.invoked.size());
+    }
+}
@@ -23,7 +23,7 @@ import edu.brown.utils.ProjectType;
  */
 public class TestQueryCache extends BaseTestCase {
 
-    private static final int globalBufferSize = 10;
+    private static final long globalBufferSize = 1024 * 1024;
     private static final int txnBufferSize = 10;
     private static Class<? extends VoltProcedure> TARGET_PROCEDURE = DeleteCallForwarding.class;
     private static String TARGET_STATEMENT = "query";
@@ -103,6 +103,90 @@ public class TestQueryCache extends BaseTestCase {
         
     }
     
+    /**
+     * testGlobalCacheGet
+     */
+    public void testGlobalCacheGet() throws Exception {
+        int fragmentId = 1111;
+        int tableIds[] = { 1 };
+        long versions[] = { 0, 0, 0 };
+        ParameterSet params = new ParameterSet("Squirrels", 1981);
+        long expected = 9900;
+        VoltTable result = new VoltTable(TARGET_RESULT);
+        result.addRow(expected);
+        
+        assertNull(this.cache.getGlobalCachedResult(fragmentId, params, versions));
+        assertEquals(1, this.cache.getGlobalCacheMisses());
+        assertTrue(this.cache.addGlobalQueryResult(fragmentId, params, tableIds, versions, result));
+        assertEquals(result.getUnderlyingBufferSize(), this.cache.getGlobalCacheSize());
+        
+        // Each lookup should get back its own copy of the table
+        for (int i = 0; i < 2; i++) {
+            VoltTable cacheResult = this.cache.getGlobalCachedResult(fragmentId, new ParameterSet("Squi" + "rrels", 1981), versions);
+            assertNotNull(cacheResult);
+            assertEquals(1, cacheResult.getRowCount());
+            assertEquals(expected, cacheResult.asScalarLong());
+        } // FOR
+        assertEquals(2, this.cache.getGlobalCacheHits());
+        
+        // Different parameters or a different fragment should miss
+        assertNull(this.cache.getGlobalCachedResult(fragmentId, new ParameterSet("WuTang!", 1981), versions));
+        assertNull(this.cache.getGlobalCachedResult(fragmentId+1, params, versions));
+        
+        // Parameters with arrays are never cached
+        ParameterSet arrayParams = new ParameterSet(new long[]{ 1, 2, 3 });
+        assertFalse(this.cache.addGlobalQueryResult(fragmentId, arrayParams, tableIds, versions, result));
+    }
+    
+    /**
+     * testGlobalCacheInvalidation
+     */
+    public void testGlobalCacheInvalidation() throws Exception {
+        int fragmentId = 1111;
+        int tableIds[] = { 1 };
+        long versions[] = { 0, 0, 0 };
+        ParameterSet params = new ParameterSet("Squirrels", 1981);
+        VoltTable result = new VoltTable(TARGET_RESULT);
+        result.addRow(9900l);
+        assertTrue(this.cache.addGlobalQueryResult(fragmentId, params, tableIds, versions, result));
+        
+        // Modifying a table that the query doesn't read should not matter
+        versions[0]++;
+        versions[2]++;
+        assertNotNull(this.cache.getGlobalCachedResult(fragmentId, params, versions));
+        
+        // But once its table changes, the result has to go away
+        versions[1]++;
+        assertNull(this.cache.getGlobalCachedResult(fragmentId, params, versions));
+        assertEquals(1, this.cache.getGlobalCacheInvalidations());
+        assertEquals(0, this.cache.getGlobalCacheEntries());
+        assertEquals(0, this.cache.getGlobalCacheSize());
+    }
     
+    /**
+     * testGlobalCacheEviction
+     */
+    public void testGlobalCacheEviction() throws Exception {
+        int tableIds[] = { 1 };
+        long versions[] = { 0, 0, 0 };
+        ParameterSet params = new ParameterSet("Squirrels", 1981);
+        VoltTable result = new VoltTable(TARGET_RESULT);
+        result.addRow(9900l);
+        int size = result.getUnderlyingBufferSize();
+        
+        // Only enough room for two results
+        this.cache = new QueryCache(size * 2, txnBufferSize);
+        assertTrue(this.cache.addGlobalQueryResult(1, params, tableIds, versions, result));
+        assertTrue(this.cache.addGlobalQueryResult(2, params, tableIds, versions, result));
+        
+        // Touch the first one so that the second one is the least recently used 
+        assertNotNull(this.cache.getGlobalCachedResult(1, params, versions));
+        assertTrue(this.cache.addGlobalQueryResult(3, params, tableIds, versions, result));
+        assertEquals(2, this.cache.getGlobalCacheEntries());
+        assertEquals(1, this.cache.getGlobalCacheEvictions());
+        assertNotNull(this.cache.getGlobalCachedResult(1, params, versions));
+        assertNull(this.cache.getGlobalCachedResult(2, params, versions));
+        assertNotNull(this.cache.getGlobalCachedResult(3, params, versions));
+    }
     
 }
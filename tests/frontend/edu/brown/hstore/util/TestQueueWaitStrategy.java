@@ -0,0 +1,159 @@
+package edu.brown.hstore.util;
+
+import junit.framework.TestCase;
+import edu.brown.hstore.internal.InternalMessage;
+import edu.brown.hstore.util.QueueWaitStrategy.Phase;
+import edu.brown.hstore.util.QueueWaitStrategy.Type;
+import edu.brown.utils.ProfileMeasurement;
+
+public class TestQueueWaitStrategy extends TestCase {
+
+    private static final int SPIN_COUNT = 100;
+    private static final int YIELD_COUNT = 10;
+
+    private static class MockMessage extends InternalMessage {
+        final int polls;
+
+        MockMessage(int polls) {
+            this.polls = polls;
+        }
+    }
+
+    /**
+     * Poller that returns a freshly queued message after a fixed number of polls
+     */
+    private class MockPoller implements QueueWaitStrategy.Poller<MockMessage> {
+        final int ready;
+        int polls = 0;
+
+        MockPoller(int ready) {
+            this.ready = ready;
+        }
+        @Override
+        public MockMessage poll() {
+            if (++this.polls < this.ready) return (null);
+            MockMessage msg = new MockMessage(this.polls);
+            msg.markQueued();
+            return (msg);
+        }
+    }
+
+    /**
+     * testGetType
+     */
+    public void testGetType() throws Exception {
+        for (Type t : Type.values()) {
+            assertEquals(t, Type.get(t.name()));
+            assertEquals(t, Type.get(t.name().toLowerCase()));
+        } // FOR
+        assertNull(Type.get("xxx"));
+    }
+
+    /**
+     * testPark
+     */
+    public void testPark() throws Exception {
+        QueueWaitStrategy strategy = new QueueWaitStrategy(0, Type.PARK, SPIN_COUNT, YIELD_COUNT);
+        MockPoller poller = new MockPoller(1);
+        assertNull(strategy.await(poller));
+        assertEquals(0, poller.polls);
+
+        strategy.parked(poller.poll());
+        assertEquals(1, strategy.getWakeupCount(Phase.PARK));
+        assertEquals(0, strategy.getWakeupCount(Phase.SPIN));
+    }
+
+    /**
+     * testWakeupLatency
+     */
+    public void testWakeupLatency() throws Exception {
+        QueueWaitStrategy strategy = new QueueWaitStrategy(0, Type.PARK, SPIN_COUNT, YIELD_COUNT);
+
+        // The latency has to start when the message was queued, not when we started waiting
+        long waitStart = ProfileMeasurement.getTime();
+        Thread.sleep(50);
+        MockMessage msg = new MockMessage(0);
+        msg.markQueued();
+        long queued = msg.getQueuedTime();
+        Thread.sleep(5);
+        long before = ProfileMeasurement.getTime();
+        strategy.parked(msg);
+        long after = ProfileMeasurement.getTime();
+
+        ProfileMeasurement pm = strategy.getWakeupTime(Phase.PARK);
+        assertEquals(1, pm.getInvocations());
+        assertTrue(pm.getTotalThinkTime() >= (before - queued));
+        assertTrue(pm.getTotalThinkTime() <= (after - queued));
+        assertTrue(pm.getTotalThinkTime() < (before - waitStart));
+
+        // Messages that were never marked don't count
+        strategy.parked(new MockMessage(0));
+        assertEquals(1, pm.getInvocations());
+    }
+
+    /**
+     * testSpin
+     */
+    public void testSpin() throws Exception {
+        QueueWaitStrategy strategy = new QueueWaitStrategy(0, Type.SPIN, SPIN_COUNT, YIELD_COUNT);
+
+        // Picked up while spinning
+        MockPoller poller = new MockPoller(SPIN_COUNT / 2);
+        assertEquals(SPIN_COUNT / 2, strategy.await(poller).polls);
+        assertEquals(1, strategy.getWakeupCount(Phase.SPIN));
+
+        // Nothing showed up, so we have to park without ever yielding
+        poller = new MockPoller(Integer.MAX_VALUE);
+        assertNull(strategy.await(poller));
+        assertEquals(SPIN_COUNT, poller.polls);
+        assertEquals(1, strategy.getWakeupCount(Phase.SPIN));
+        assertEquals(0, strategy.getWakeupCount(Phase.YIELD));
+    }
+
+    /**
+     * testSpinYieldPark
+     */
+    public void testSpinYieldPark() throws Exception {
+        QueueWaitStrategy strategy = new QueueWaitStrategy(0, Type.SPIN_YIELD_PARK, SPIN_COUNT, YIELD_COUNT);
+
+        // Picked up while spinning
+        MockPoller poller = new MockPoller(SPIN_COUNT / 2);
+        assertEquals(SPIN_COUNT / 2, strategy.await(poller).polls);
+        assertEquals(1, strategy.getWakeupCount(Phase.SPIN));
+
+        // Picked up while yielding
+        poller = new MockPoller(SPIN_COUNT + 1);
+        assertEquals(SPIN_COUNT + 1, strategy.await(poller).polls);
+        assertEquals(1, strategy.getWakeupCount(Phase.YIELD));
+
+        // Nothing showed up, so we have to park
+        poller = new MockPoller(Integer.MAX_VALUE);
+        assertNull(strategy.await(poller));
+        assertEquals(SPIN_COUNT + YIELD_COUNT, poller.polls);
+        assertEquals(1, strategy.getWakeupCount(Phase.SPIN));
+        assertEquals(1, strategy.getWakeupCount(Phase.YIELD));
+        assertEquals(0, strategy.getWakeupCount(Phase.PARK));
+
+        strategy.reset();
+        for (Phase phase : Phase.values()) {
+            assertEquals(0, strategy.getWakeupCount(phase));
+        } // FOR
+    }
+
+    /**
+     * testSpinInterrupt
+     */
+    public void testSpinInterrupt() throws Exception {
+        QueueWaitStrategy strategy = new QueueWaitStrategy(0, Type.SPIN, SPIN_COUNT, YIELD_COUNT);
+        MockPoller poller = new MockPoller(Integer.MAX_VALUE);
+        Thread.currentThread().interrupt();
+        try {
+            strategy.await(poller);
+            fail("Failed to stop spinning after being interrupted");
+        } catch (InterruptedException ex) {
+            // Expected
+        }
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertEquals(1, poller.polls);
+    }
+}
@@ -0,0 +1,134 @@
+package edu.brown.hstore.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class TestRingBufferQueue extends TestCase {
+
+    static final int CAPACITY = 100;
+    static final int NUM_PRODUCERS = 4;
+    static final int NUM_ELEMENTS = 50000;
+
+    RingBufferQueue<Long> queue;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.queue = new RingBufferQueue<Long>(CAPACITY);
+    }
+
+    /**
+     * testOfferPoll
+     */
+    public void testOfferPoll() throws Exception {
+        assertEquals(128, queue.getCapacity());
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+
+        // Make sure that we wrap around the ring a few times
+        for (long i = 0; i < queue.getCapacity() * 3; i++) {
+            assertTrue(queue.offer(i));
+            assertEquals(1, queue.size());
+            assertEquals(Long.valueOf(i), queue.peek());
+            assertEquals(Long.valueOf(i), queue.poll());
+            assertTrue(queue.isEmpty());
+        } // FOR
+    }
+
+    /**
+     * testFull
+     */
+    public void testFull() throws Exception {
+        int capacity = queue.getCapacity();
+        for (long i = 0; i < capacity; i++) {
+            assertTrue(queue.offer(i));
+        } // FOR
+        assertEquals(capacity, queue.size());
+        assertEquals(0, queue.remainingCapacity());
+        assertFalse(queue.offer(-1l));
+        assertFalse(queue.offer(-1l, 1, TimeUnit.MILLISECONDS));
+
+        // Freeing up one slot lets us add one more
+        assertEquals(Long.valueOf(0), queue.poll());
+        assertTrue(queue.offer((long)capacity));
+        assertFalse(queue.offer(-1l));
+
+        List<Long> drained = new ArrayList<Long>();
+        assertEquals(capacity, queue.drainTo(drained));
+        for (int i = 0; i < capacity; i++) {
+            assertEquals(i + 1, drained.get(i).longValue());
+        } // FOR
+        assertTrue(queue.isEmpty());
+    }
+
+    /**
+     * testDrainTo
+     */
+    public void testDrainTo() throws Exception {
+        for (long i = 0; i < 10; i++) {
+            assertTrue(queue.offer(i));
+        } // FOR
+        List<Long> drained = new ArrayList<Long>();
+        assertEquals(4, queue.drainTo(drained, 4));
+        assertEquals(6, queue.size());
+        assertEquals(6, queue.drainTo(drained, 100));
+        assertEquals(0, queue.drainTo(drained, 100));
+        assertEquals(10, drained.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, drained.get(i).longValue());
+        } // FOR
+    }
+
+    /**
+     * testMultipleProducers
+     */
+    public void testMultipleProducers() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < NUM_PRODUCERS; i++) {
+            final long producer = i;
+            threads.add(new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (long j = 0; j < NUM_ELEMENTS; j++) {
+                            queue.put(producer * NUM_ELEMENTS + j);
+                        } // FOR
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+            });
+        } // FOR
+        for (Thread t : threads) t.start();
+        start.countDown();
+
+        // Each producer's elements must come out in the order that they were added
+        long last[] = new long[NUM_PRODUCERS];
+        for (int i = 0; i < NUM_PRODUCERS; i++) last[i] = -1;
+        List<Long> batch = new ArrayList<Long>();
+        int total = 0;
+        while (total < NUM_PRODUCERS * NUM_ELEMENTS) {
+            batch.clear();
+            if (queue.drainTo(batch, 16) == 0) {
+                Long val = queue.poll(1, TimeUnit.MILLISECONDS);
+                if (val == null) continue;
+                batch.add(val);
+            }
+            for (Long val : batch) {
+                int producer = (int)(val / NUM_ELEMENTS);
+                long offset = val % NUM_ELEMENTS;
+                assertEquals(last[producer] + 1, offset);
+                last[producer] = offset;
+                total++;
+            } // FOR
+        } // WHILE
+        for (Thread t : threads) t.join();
+        assertTrue(queue.isEmpty());
+    }
+}
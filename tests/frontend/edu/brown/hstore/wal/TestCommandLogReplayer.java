@@ -0,0 +1,372 @@
+/***************************************************************************
+ *   Copyright (C) 2012 by H-Store Project                                 *
+ *   Brown University                                                      *
+ *   Massachusetts Institute of Technology                                 *
+ *   Yale University                                                       *
+ *                                                                         *
+ *   Permission is hereby granted, free of charge, to any person obtaining *
+ *   a copy of this software and associated documentation files (the       *
+ *   "Software"), to deal in the Software without restriction, including   *
+ *   without limitation the rights to use, copy, modify, merge, publish,   *
+ *   distribute, sublicense, and/or sell copies of the Software, and to    *
+ *   permit persons to whom the Software is furnished to do so, subject to *
+ *   the following conditions:                                             *
+ *                                                                         *
+ *   The above copyright notice and this permission notice shall be        *
+ *   included in all copies or substantial portions of the Software.       *
+ *                                                                         *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,       *
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF    *
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.*
+ *   IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR     *
+ *   OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, *
+ *   ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR *
+ *   OTHER DEALINGS IN THE SOFTWARE.                                       *
+ ***************************************************************************/
+package edu.brown.hstore.wal;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Site;
+
+import com.google.protobuf.RpcCallback;
+
+import edu.brown.BaseTestCase;
+import edu.brown.benchmark.tm1.procedures.DeleteCallForwarding;
+import edu.brown.benchmark.tm1.procedures.InsertCallForwarding;
+import edu.brown.catalog.CatalogUtil;
+import edu.brown.hstore.HStoreConstants;
+import edu.brown.hstore.HStoreSite;
+import edu.brown.hstore.Hstoreservice.Status;
+import edu.brown.hstore.MockHStoreSite;
+import edu.brown.hstore.conf.HStoreConf;
+import edu.brown.hstore.txns.LocalTransaction;
+import edu.brown.utils.FileUtil;
+import edu.brown.utils.ProjectType;
+
+/**
+ * Replays the command logs of two sites on top of a fake CALL_FORWARDING table.
+ * Inserting a key that already exists aborts, just like it would with the real primary key.
+ * @author pavlo
+ */
+public class TestCommandLogReplayer extends BaseTestCase {
+
+    static final AtomicLong TXN_ID = new AtomicLong(1000);
+    static final int NUM_SITES = 2;
+    static final int NUM_PARTITIONS = 4;
+    static final int NUM_TXNS = 40;
+    static final int SNAPSHOT_TXN = NUM_TXNS / 2;
+
+    HStoreSite hstore_sites[] = new HStoreSite[NUM_SITES];
+    Procedure insertProc;
+    Procedure deleteProc;
+    List<List<File>> logFiles[];
+
+    /** The txn id for each step of the workload */
+    long txnIds[] = new long[NUM_TXNS];
+    /** The table after the first SNAPSHOT_TXN steps */
+    Map<String, String> snapshot = new TreeMap<String, String>();
+    /** The table after every step */
+    Map<String, String> expected = new TreeMap<String, String>();
+
+    /** The fake table that all of the replayers execute their txns on */
+    final Map<String, String> table = new TreeMap<String, String>();
+    /** The ids of the replayed txns in the order that they were executed */
+    final List<Long> replayed = Collections.synchronizedList(new ArrayList<Long>());
+    final AtomicInteger aborted = new AtomicInteger(0);
+    final ExecutorService partitions[] = new ExecutorService[NUM_PARTITIONS];
+    final CountDownLatch restored = new CountDownLatch(1);
+    final MockCluster cluster = new MockCluster();
+
+    /**
+     * Passes the replay barrier messages between the sites' replayers
+     */
+    class MockCluster {
+        final Map<Long, Integer> txns = new TreeMap<Long, Integer>();
+        final Map<Long, Integer> ready = new HashMap<Long, Integer>();
+        final Set<Long> finished = new HashSet<Long>();
+        int sites = 0;
+
+        synchronized Map<Long, Integer> exchange(int site_id, Collection<Long> txnIds) {
+            for (Long txnId : txnIds) {
+                this.txns.put(txnId, site_id);
+            } // FOR
+            this.sites++;
+            this.notifyAll();
+            while (this.sites < NUM_SITES) this.block();
+            Map<Long, Integer> remote = new TreeMap<Long, Integer>(this.txns);
+            remote.values().removeAll(Collections.singleton(site_id));
+            return (remote);
+        }
+
+        synchronized void enter(long txnId) {
+            Integer cnt = this.ready.get(txnId);
+            this.ready.put(txnId, (cnt == null ? 1 : cnt.intValue() + 1));
+            this.notifyAll();
+            while (this.finished.contains(txnId) == false) this.block();
+        }
+
+        synchronized void await(long txnId) {
+            while (this.ready.get(txnId) == null || this.ready.get(txnId).intValue() < NUM_SITES - 1) this.block();
+        }
+
+        synchronized void release(long txnId) {
+            this.finished.add(txnId);
+            this.notifyAll();
+        }
+
+        private void block() {
+            try {
+                this.wait();
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    /**
+     * Executes the replayed txns against the fake table instead of the EE. Every partition
+     * gets its own thread so that single-partition txns run in parallel.
+     */
+    class MockReplayer extends CommandLogReplayer {
+        final int site_id;
+
+        MockReplayer(HStoreSite hstore_site, List<List<File>> logFiles) {
+            super(hstore_site, logFiles);
+            this.site_id = hstore_site.getSiteId();
+        }
+
+        @Override
+        protected long restoreSnapshot() {
+            if (this.site_id == 0) {
+                synchronized (table) {
+                    table.putAll(snapshot);
+                } // SYNCH
+                restored.countDown();
+            } else {
+                try {
+                    restored.await();
+                } catch (InterruptedException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+            return (txnIds[SNAPSHOT_TXN - 1]);
+        }
+
+        @Override
+        protected Map<Long, Integer> exchangeReplayTransactions(Collection<Long> txnIds) {
+            return (cluster.exchange(this.site_id, txnIds));
+        }
+
+        @Override
+        protected void enterReplayBarrier(long txnId, int base_site) {
+            cluster.enter(txnId);
+        }
+
+        @Override
+        protected void waitForReplayBarrier(long txnId) {
+            cluster.await(txnId);
+        }
+
+        @Override
+        protected void releaseReplayBarrier(long txnId) {
+            cluster.release(txnId);
+        }
+
+        @Override
+        protected boolean queueTransaction(final LogEntry entry, final Procedure catalog_proc,
+                                           ByteBuffer serializedRequest, final RpcCallback<ClientResponseImpl> callback) {
+            partitions[entry.getBasePartition()].execute(new Runnable() {
+                @Override
+                public void run() {
+                    Status status;
+                    synchronized (table) {
+                        status = (apply(table, catalog_proc, entry.getProcedureParams().toArray()) ? Status.OK : Status.ABORT_USER);
+                        replayed.add(entry.getTransactionId());
+                    } // SYNCH
+                    if (status != Status.OK) aborted.incrementAndGet();
+                    callback.run(new ClientResponseImpl(entry.getTransactionId().longValue(),
+                                                        0l,
+                                                        entry.getBasePartition(),
+                                                        status,
+                                                        HStoreConstants.EMPTY_RESULT,
+                                                        ""));
+                }
+            });
+            return (true);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void setUp() throws Exception {
+        super.setUp(ProjectType.TM1);
+        this.initializeCluster(1, NUM_SITES, NUM_PARTITIONS / NUM_SITES);
+        this.insertProc = this.getProcedure(InsertCallForwarding.class);
+        this.deleteProc = this.getProcedure(DeleteCallForwarding.class);
+
+        HStoreConf hstore_conf = HStoreConf.singleton();
+        hstore_conf.site.commandlog_timeout = 1000;
+        hstore_conf.site.commandlog_stripes = 2;
+        CommandLogWriter loggers[] = new CommandLogWriter[NUM_SITES];
+        File outputFiles[] = new File[NUM_SITES];
+        for (Site catalog_site : CatalogUtil.getCluster(catalog).getSites()) {
+            int site_id = catalog_site.getId();
+            hstore_sites[site_id] = new MockHStoreSite(catalog_site, hstore_conf);
+            outputFiles[site_id] = FileUtil.getTempFile("log");
+            loggers[site_id] = new CommandLogWriter(hstore_sites[site_id], outputFiles[site_id]);
+        } // FOR
+        hstore_conf.site.commandlog_stripes = 1;
+        for (int p = 0; p < NUM_PARTITIONS; p++) {
+            this.partitions[p] = Executors.newSingleThreadExecutor();
+        } // FOR
+
+        // Every tenth txn is a distributed txn that deletes a key that was inserted
+        // a few txns earlier. The txn right after it inserts the same key again at
+        // the other site, so it only works if it is replayed after the delete
+        for (int i = 0; i < NUM_TXNS; i++) {
+            Procedure catalog_proc = this.insertProc;
+            int key = i;
+            int base_partition = key % NUM_PARTITIONS;
+            if (i % 10 == 9) {
+                catalog_proc = this.deleteProc;
+                key = i - 5;
+                base_partition = key % NUM_PARTITIONS;
+            } else if (i % 10 == 0 && i > 0) {
+                key = i - 6;
+                base_partition = (key + NUM_PARTITIONS / NUM_SITES) % NUM_PARTITIONS;
+            }
+            Object params[] = this.getParams(catalog_proc, key);
+            Collection<Integer> partitions = (catalog_proc == this.deleteProc ? CatalogUtil.getAllPartitionIds(catalog_db) :
+                                                                                Collections.singleton(base_partition));
+            HStoreSite hstore_site = this.getHStoreSite(base_partition);
+
+            LocalTransaction ts = new LocalTransaction(hstore_site);
+            txnIds[i] = TXN_ID.incrementAndGet();
+            ts.testInit(new Long(txnIds[i]), base_partition, partitions, catalog_proc, params);
+            ClientResponseImpl cresponse = new ClientResponseImpl(txnIds[i],
+                                                                  0l,
+                                                                  base_partition,
+                                                                  Status.OK,
+                                                                  HStoreConstants.EMPTY_RESULT,
+                                                                  "");
+            assertFalse(loggers[hstore_site.getSiteId()].appendToLog(ts, cresponse));
+
+            assertTrue(apply(this.expected, catalog_proc, params));
+            if (i + 1 == SNAPSHOT_TXN) this.snapshot.putAll(this.expected);
+        } // FOR
+
+        this.logFiles = new List[NUM_SITES];
+        for (int site_id = 0; site_id < NUM_SITES; site_id++) {
+            loggers[site_id].flush();
+            loggers[site_id].shutdown();
+            this.logFiles[site_id] = CommandLogWriter.getLogFiles(outputFiles[site_id]);
+        } // FOR
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        for (ExecutorService e : this.partitions) {
+            if (e != null) e.shutdownNow();
+        } // FOR
+        for (List<List<File>> streams : this.logFiles) {
+            for (List<File> segments : streams) {
+                for (File f : segments) f.delete();
+            } // FOR
+        } // FOR
+    }
+
+    private HStoreSite getHStoreSite(int partition) {
+        for (HStoreSite hstore_site : this.hstore_sites) {
+            if (hstore_site.isLocalPartition(partition)) return (hstore_site);
+        } // FOR
+        throw new RuntimeException("No site for partition " + partition);
+    }
+
+    private Object[] getParams(Procedure catalog_proc, int key) {
+        String sub_nbr = String.format("%015d", key);
+        if (catalog_proc == this.deleteProc) {
+            return new Object[]{ sub_nbr, 1l, 0l };
+        }
+        return new Object[]{ sub_nbr, 1l, 0l, 8l, "number" + key };
+    }
+
+    /**
+     * Apply a txn to the given fake table. Returns false if it would abort
+     */
+    private boolean apply(Map<String, String> table, Procedure catalog_proc, Object params[]) {
+        String key = params[0] + ":" + params[1] + ":" + params[2];
+        if (catalog_proc.getName().equals(this.deleteProc.getName())) {
+            return (table.remove(key) != null);
+        }
+        if (table.containsKey(key)) return (false);
+        table.put(key, params[4].toString());
+        return (true);
+    }
+
+    /**
+     * testReplayAfterSnapshot
+     */
+    @Test
+    public void testReplayAfterSnapshot() throws Exception {
+        final Throwable errors[] = new Throwable[NUM_SITES];
+        Thread threads[] = new Thread[NUM_SITES];
+        for (int i = 0; i < NUM_SITES; i++) {
+            final int site_id = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        new MockReplayer(hstore_sites[site_id], logFiles[site_id]).replay();
+                    } catch (Throwable ex) {
+                        errors[site_id] = ex;
+                    }
+                }
+            };
+            threads[i].start();
+        } // FOR
+        for (int i = 0; i < NUM_SITES; i++) {
+            threads[i].join(30000);
+            assertFalse("Replay at site " + i + " is stuck", threads[i].isAlive());
+            if (errors[i] != null) throw new Exception(errors[i]);
+        } // FOR
+
+        // Only the txns that came after the snapshot should have been replayed
+        assertEquals(NUM_TXNS - SNAPSHOT_TXN, this.replayed.size());
+        for (Long txnId : this.replayed) {
+            assertTrue(txnId.toString(), txnId.longValue() > txnIds[SNAPSHOT_TXN - 1]);
+        } // FOR
+
+        // Every distributed txn has to run after everything that came before it
+        // in either site's log and before everything that came after it
+        for (int i = SNAPSHOT_TXN; i < NUM_TXNS; i++) {
+            if (i % 10 != 9) continue;
+            int idx = this.replayed.indexOf(txnIds[i]);
+            for (int j = 0; j < this.replayed.size(); j++) {
+                long txnId = this.replayed.get(j).longValue();
+                if (j < idx) assertTrue(this.replayed.toString(), txnId < txnIds[i]);
+                if (j > idx) assertTrue(this.replayed.toString(), txnId > txnIds[i]);
+            } // FOR
+        } // FOR
+        assertEquals(0, this.aborted.get());
+        assertEquals(this.expected, this.table);
+    }
+}
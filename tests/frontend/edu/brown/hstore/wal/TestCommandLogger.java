@@ -27,10 +27,15 @@ package edu.brown.hstore.wal;
 
 import java.io.File;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Test;
 import org.voltdb.ClientResponseImpl;
+import org.voltdb.ParameterSet;
 import org.voltdb.VoltProcedure;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.Site;
@@ -48,6 +53,7 @@ import edu.brown.hstore.txns.LocalTransaction;
 import edu.brown.utils.CollectionUtil;
 import edu.brown.utils.FileUtil;
 import edu.brown.utils.ProjectType;
+import edu.brown.utils.ThreadUtil;
 
 /**
  * @author mkirsch
@@ -57,6 +63,7 @@ public class TestCommandLogger extends BaseTestCase {
     
     static final AtomicLong TXN_ID = new AtomicLong(1000);
     static final int BASE_PARTITION = 0;
+    static final int NUM_PARTITIONS = 4;
     
     @SuppressWarnings("unchecked")
     static final Class<? extends VoltProcedure>[] TARGET_PROC = (Class<? extends VoltProcedure>[])new Class<?>[]{
@@ -73,6 +80,7 @@ public class TestCommandLogger extends BaseTestCase {
     @Override
     protected void setUp() throws Exception {
         super.setUp(ProjectType.TM1);
+        this.addPartitions(NUM_PARTITIONS);
         this.catalog_proc = new Procedure[2];
         this.catalog_proc[0] = this.getProcedure(TARGET_PROC[0]);
         this.catalog_proc[1] = this.getProcedure(TARGET_PROC[1]);
@@ -121,6 +129,10 @@ public class TestCommandLogger extends BaseTestCase {
         // Now read in the file back in and check to see that we have two
         // entries that have our expected information
         CommandLogReader reader = new CommandLogReader(outputFile.getAbsolutePath());
+        Map<Integer, String> procedures = reader.getProcedures();
+        for (Procedure proc : catalog_proc) {
+            assertEquals(proc.getName(), procedures.get(proc.getId()));
+        }
         int ctr = 0;
         for (LogEntry entry : reader) {
             assertNotNull(entry);
@@ -136,4 +148,239 @@ public class TestCommandLogger extends BaseTestCase {
         }
         assertEquals(txnId.length, ctr);
     }
+    
+    /**
+     * testReturnPooledParameters
+     */
+    @Test
+    public void testReturnPooledParameters() throws Exception {
+        // Only the txn whose ParameterSet came from the pool should give it back
+        int idle = hstore_site.getObjectPools().PARAMETERSETS.getNumIdle();
+        ParameterSet params[] = new ParameterSet[2];
+        for (int i = 0; i < 2; i++) {
+            LocalTransaction ts = new LocalTransaction(hstore_site);
+            long txnId = TXN_ID.incrementAndGet();
+            ts.testInit(new Long(txnId),
+                        BASE_PARTITION,
+                        Collections.singleton(BASE_PARTITION),
+                        catalog_proc[i],
+                        TARGET_PARAMS[i]);
+            ts.setProcedureParametersPooled(i == 0);
+            params[i] = ts.getProcedureParameters();
+            
+            ClientResponseImpl cresponse = new ClientResponseImpl(txnId,
+                                                                  0l,
+                                                                  BASE_PARTITION,
+                                                                  Status.OK,
+                                                                  HStoreConstants.EMPTY_RESULT,
+                                                                  "");
+            assertFalse(logger.appendToLog(ts, cresponse));
+        } // FOR
+        assertEquals(idle, hstore_site.getObjectPools().PARAMETERSETS.getNumIdle());
+        
+        logger.flush();
+        logger.shutdown();
+        assertEquals(idle + 1, hstore_site.getObjectPools().PARAMETERSETS.getNumIdle());
+        
+        // The ParameterSet that we didn't give back should still be intact
+        assertEquals(TARGET_PARAMS[1].length, params[1].toArray().length);
+    }
+    
+    /**
+     * testFinalCommitOnShutdown
+     */
+    @Test
+    public void testFinalCommitOnShutdown() throws Exception {
+        // Shutting down without flushing first should still write
+        // out everything that was buffered since the last group commit
+        long txnId[] = new long[2];
+        for (int i = 0; i < txnId.length; i++) {
+            LocalTransaction ts = new LocalTransaction(hstore_site);
+            txnId[i] = TXN_ID.incrementAndGet(); 
+            ts.testInit(new Long(txnId[i]),
+                        BASE_PARTITION,
+                        Collections.singleton(BASE_PARTITION),
+                        catalog_proc[i],
+                        TARGET_PARAMS[i]);
+            ClientResponseImpl cresponse = new ClientResponseImpl(txnId[i],
+                                                                  0l,
+                                                                  BASE_PARTITION,
+                                                                  Status.OK,
+                                                                  HStoreConstants.EMPTY_RESULT,
+                                                                  "");
+            assertFalse(logger.appendToLog(ts, cresponse));
+        } // FOR
+        logger.shutdown();
+        
+        CommandLogReader reader = new CommandLogReader(outputFile.getAbsolutePath());
+        int ctr = 0;
+        for (LogEntry entry : reader) {
+            assertEquals(txnId[ctr], entry.getTransactionId().longValue());
+            assertEquals(BASE_PARTITION, entry.getBasePartition());
+            assertTrue(entry.isPredictSinglePartition());
+            ctr++;
+        } // FOR
+        assertEquals(txnId.length, ctr);
+    }
+    
+    /**
+     * testStripes
+     */
+    @Test
+    public void testStripes() throws Exception {
+        HStoreConf hstore_conf = HStoreConf.singleton();
+        hstore_conf.site.commandlog_stripes = NUM_PARTITIONS;
+        File stripedFile = FileUtil.getTempFile("log");
+        CommandLogWriter stripedLogger = new CommandLogWriter(hstore_site, stripedFile);
+        hstore_conf.site.commandlog_stripes = 1;
+        
+        // Write out one txn for each partition so that every stripe gets something
+        Set<Long> expected = new HashSet<Long>();
+        for (int partition = 0; partition < NUM_PARTITIONS; partition++) {
+            LocalTransaction ts = new LocalTransaction(hstore_site);
+            long txnId = TXN_ID.incrementAndGet(); 
+            ts.testInit(new Long(txnId),
+                        partition,
+                        Collections.singleton(partition),
+                        catalog_proc[0],
+                        TARGET_PARAMS[0]);
+            ClientResponseImpl cresponse = new ClientResponseImpl(txnId,
+                                                                  0l,
+                                                                  partition,
+                                                                  Status.OK,
+                                                                  HStoreConstants.EMPTY_RESULT,
+                                                                  "");
+            assertFalse(stripedLogger.appendToLog(ts, cresponse));
+            expected.add(txnId);
+        } // FOR
+        stripedLogger.flush();
+        stripedLogger.shutdown();
+        
+        // Each stripe should have its own file with exactly one entry 
+        List<List<File>> logFiles = CommandLogWriter.getLogFiles(stripedFile);
+        assertEquals(NUM_PARTITIONS, logFiles.size());
+        
+        // We should still find them after they were moved out of the way for replay
+        for (List<File> segments : logFiles) {
+            for (File f : segments) {
+                assertTrue(f.renameTo(new File(f.getPath() + CommandLogWriter.REPLAY_FILE_EXT)));
+            } // FOR
+        } // FOR
+        assertTrue(CommandLogWriter.getLogFiles(stripedFile).isEmpty());
+        logFiles = CommandLogWriter.getLogFiles(stripedFile, CommandLogWriter.REPLAY_FILE_EXT);
+        assertEquals(NUM_PARTITIONS, logFiles.size());
+        for (List<File> segments : logFiles) {
+            assertEquals(1, segments.size());
+            File f = CollectionUtil.first(segments);
+            int ctr = 0;
+            for (LogEntry entry : new CommandLogReader(f.getAbsolutePath())) {
+                assertTrue(entry.toString(), expected.remove(entry.getTransactionId()));
+                ctr++;
+            } // FOR
+            assertEquals(1, ctr);
+            f.delete();
+        } // FOR
+        assertTrue(expected.toString(), expected.isEmpty());
+    }
+    
+    /**
+     * testMemoryMapped
+     */
+    @Test
+    public void testMemoryMapped() throws Exception {
+        HStoreConf hstore_conf = HStoreConf.singleton();
+        for (boolean compress : new boolean[]{ true, false }) {
+            hstore_conf.site.commandlog_mmap = true;
+            hstore_conf.site.commandlog_mmap_size = 1;
+            hstore_conf.site.commandlog_compress = compress;
+            File mappedFile = FileUtil.getTempFile("log");
+            CommandLogWriter mappedLogger = new CommandLogWriter(hstore_site, mappedFile);
+            hstore_conf.site.commandlog_mmap = false;
+            hstore_conf.site.commandlog_compress = true;
+            
+            Set<Long> expected = new HashSet<Long>();
+            for (int i = 0; i < 10; i++) {
+                LocalTransaction ts = new LocalTransaction(hstore_site);
+                long txnId = TXN_ID.incrementAndGet(); 
+                ts.testInit(new Long(txnId),
+                            BASE_PARTITION,
+                            Collections.singleton(BASE_PARTITION),
+                            catalog_proc[0],
+                            TARGET_PARAMS[0]);
+                ClientResponseImpl cresponse = new ClientResponseImpl(txnId,
+                                                                      0l,
+                                                                      BASE_PARTITION,
+                                                                      Status.OK,
+                                                                      HStoreConstants.EMPTY_RESULT,
+                                                                      "");
+                assertFalse(mappedLogger.appendToLog(ts, cresponse));
+                expected.add(txnId);
+            } // FOR
+            mappedLogger.flush();
+            mappedLogger.shutdown();
+            
+            // The unused part of the preallocated segment should have been chopped off
+            List<List<File>> logFiles = CommandLogWriter.getLogFiles(mappedFile);
+            assertEquals(1, logFiles.size());
+            File f = CollectionUtil.first(CollectionUtil.first(logFiles));
+            assertTrue(f.length() < 1048576l);
+            for (LogEntry entry : new CommandLogReader(f.getAbsolutePath())) {
+                assertTrue(entry.toString(), expected.remove(entry.getTransactionId()));
+            } // FOR
+            assertTrue("compress=" + compress + " " + expected, expected.isEmpty());
+            f.delete();
+        } // FOR
+    }
+    
+    /**
+     * testAdaptiveGroupCommit
+     */
+    @Test
+    public void testAdaptiveGroupCommit() throws Exception {
+        final int flushTxns = 4;
+        HStoreConf hstore_conf = HStoreConf.singleton();
+        hstore_conf.site.commandlog_adaptive = true;
+        hstore_conf.site.commandlog_profiling = true;
+        hstore_conf.site.commandlog_flush_txns = flushTxns;
+        hstore_conf.site.commandlog_flush_bytes = 0;
+        int orig_timeout = hstore_conf.site.commandlog_timeout;
+        hstore_conf.site.commandlog_timeout = 60000;
+        File adaptiveFile = FileUtil.getTempFile("log");
+        CommandLogWriter adaptiveLogger = new CommandLogWriter(hstore_site, adaptiveFile);
+        
+        try {
+            // Queue up exactly enough txns to cross the flush threshold. The
+            // WriterThread should wake up long before the timeout expires
+            for (int i = 0; i < flushTxns; i++) {
+                LocalTransaction ts = new LocalTransaction(hstore_site);
+                long txnId = TXN_ID.incrementAndGet(); 
+                ts.testInit(new Long(txnId),
+                            BASE_PARTITION,
+                            Collections.singleton(BASE_PARTITION),
+                            catalog_proc[0],
+                            TARGET_PARAMS[0]);
+                ClientResponseImpl cresponse = new ClientResponseImpl(txnId,
+                                                                      0l,
+                                                                      BASE_PARTITION,
+                                                                      Status.OK,
+                                                                      HStoreConstants.EMPTY_RESULT,
+                                                                      "");
+                assertFalse(adaptiveLogger.appendToLog(ts, cresponse));
+            } // FOR
+            
+            int decisions = 0;
+            for (int i = 0; i < 100 && decisions == 0; i++) {
+                ThreadUtil.sleep(50);
+                decisions = adaptiveLogger.getLoggerFlushDecisions(CommandLogWriter.FlushReason.TXNS).getInvocations();
+            } // FOR
+            assertEquals(1, decisions);
+            assertEquals(0, adaptiveLogger.getLoggerFlushDecisions(CommandLogWriter.FlushReason.TIMEOUT).getInvocations());
+        } finally {
+            adaptiveLogger.shutdown();
+            adaptiveFile.delete();
+            hstore_conf.site.commandlog_adaptive = false;
+            hstore_conf.site.commandlog_profiling = false;
+            hstore_conf.site.commandlog_timeout = orig_timeout;
+        }
+    }
 }
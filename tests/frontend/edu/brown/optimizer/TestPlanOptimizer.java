@@ -104,6 +104,9 @@ public class TestPlanOptimizer extends BasePlanOptimizerTestCase {
             this.addStmtProcedure("LimitOrderBy",
                                   "SELECT C_ID FROM TABLEC ORDER BY C_B_A_ID LIMIT 1000");
             
+            this.addStmtProcedure("LimitOffsetOrderBy",
+                                  "SELECT C_ID FROM TABLEC ORDER BY C_B_A_ID LIMIT 10 OFFSET 5");
+            
             this.addStmtProcedure("SingleSelect",
                                   "SELECT A_ID FROM TABLEA");
             
@@ -563,21 +566,60 @@ public class TestPlanOptimizer extends BasePlanOptimizerTestCase {
         AbstractPlanNode root = PlanNodeUtil.getRootPlanNodeForStatement(catalog_stmt, false);
         assertNotNull(root);
         
-        // We should have two LIMITs and two ORDER BYs
-        Class<?> planClasses[] = { LimitPlanNode.class, OrderByPlanNode.class };
-        for (Class<?> c : planClasses) {
-            @SuppressWarnings("unchecked")
-            Collection<AbstractPlanNode> nodes = PlanNodeUtil.getPlanNodes(root, (Class<AbstractPlanNode>)c);
-            assertNotNull(nodes);
-            assertEquals(2, nodes.size());
-            
-            // Make sure each one only has one child!
-            for (AbstractPlanNode node : nodes) {
-                assertEquals(PlanNodeUtil.debug(node), 1, node.getChildPlanNodeCount());
-            } // FOR
+        // We should have two ORDER BYs but only one LIMIT, because the LIMIT that
+        // was pushed down to the partitions is inlined into its ORDER BY
+        Collection<OrderByPlanNode> orderby_nodes = PlanNodeUtil.getPlanNodes(root, OrderByPlanNode.class);
+        assertEquals(2, orderby_nodes.size());
+        Collection<LimitPlanNode> limit_nodes = PlanNodeUtil.getPlanNodes(root, LimitPlanNode.class);
+        assertEquals(1, limit_nodes.size());
+        
+        // Make sure each one only has one child!
+        int inlined = 0;
+        for (OrderByPlanNode node : orderby_nodes) {
+            assertEquals(PlanNodeUtil.debug(node), 1, node.getChildPlanNodeCount());
+            LimitPlanNode inline_node = node.getInlinePlanNode(PlanNodeType.LIMIT);
+            if (inline_node == null) continue;
+            assertEquals(PlanNodeUtil.debug(node), PlanNodeType.SEND, node.getParent(0).getPlanNodeType());
+            assertEquals(1000, inline_node.getLimit());
+            inlined++;
+        } // FOR
+        assertEquals(1, inlined);
+        for (LimitPlanNode node : limit_nodes) {
+            assertEquals(PlanNodeUtil.debug(node), 1, node.getChildPlanNodeCount());
         } // FOR
     }
     
+    /**
+* testLimitOffsetOrderBy
+*/
+    @Test
+    public void testLimitOffsetOrderBy() throws Exception {
+        Procedure catalog_proc = this.getProcedure("LimitOffsetOrderBy");
+        Statement catalog_stmt = this.getStatement(catalog_proc, "sql");
+        this.check(catalog_stmt);
+
+        AbstractPlanNode root = PlanNodeUtil.getRootPlanNodeForStatement(catalog_stmt, false);
+        assertNotNull(root);
+        
+        // The partitions have to send back enough tuples for the coordinator
+        // to apply the OFFSET itself
+        LimitPlanNode inline_node = null;
+        for (OrderByPlanNode node : PlanNodeUtil.getPlanNodes(root, OrderByPlanNode.class)) {
+            if (node.getInlinePlanNode(PlanNodeType.LIMIT) != null) {
+                assertNull(inline_node);
+                inline_node = node.getInlinePlanNode(PlanNodeType.LIMIT);
+            }
+        } // FOR
+        assertNotNull(inline_node);
+        assertEquals(15, inline_node.getLimit());
+        assertEquals(0, inline_node.getOffset());
+        
+        LimitPlanNode limit_node = CollectionUtil.first(PlanNodeUtil.getPlanNodes(root, LimitPlanNode.class));
+        assertNotNull(limit_node);
+        assertEquals(10, limit_node.getLimit());
+        assertEquals(5, limit_node.getOffset());
+    }
+    
     /**
 * testSingleSelect
 */
@@ -0,0 +1,119 @@
+package edu.brown.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class TestLatencyHistogram extends TestCase {
+
+    static final int NUM_VALUES = 100000;
+    static final int NUM_THREADS = 4;
+    static final double PRECISION = 1.0 / 32;
+
+    final Random rand = new Random(0);
+
+    /**
+     * testBuckets
+     */
+    public void testBuckets() throws Exception {
+        // Every value must fall inside of the range of its bucket and the
+        // buckets must not have any gaps between them
+        long last_high = -1;
+        for (int idx = 0, cnt = LatencyHistogram.getBucketIndex(LatencyHistogram.MAX_VALUE); idx <= cnt; idx++) {
+            long low = LatencyHistogram.getBucketLowValue(idx);
+            long high = LatencyHistogram.getBucketHighValue(idx);
+            assertEquals("Bucket " + idx, last_high + 1, low);
+            assertTrue("Bucket " + idx, low <= high);
+            assertEquals(idx, LatencyHistogram.getBucketIndex(low));
+            assertEquals(idx, LatencyHistogram.getBucketIndex(high));
+            last_high = high;
+        } // FOR
+        assertEquals(LatencyHistogram.MAX_VALUE, last_high);
+    }
+
+    /**
+     * testPercentiles
+     */
+    public void testPercentiles() throws Exception {
+        LatencyHistogram h = new LatencyHistogram("test");
+        assertTrue(h.isEmpty());
+        assertEquals(0, h.getValueAtPercentile(99d));
+
+        long values[] = new long[NUM_VALUES];
+        long total = 0;
+        for (int i = 0; i < values.length; i++) {
+            // Lots of fast values with a long tail of slow ones
+            values[i] = (long)(Math.exp(rand.nextDouble() * 20) * 100);
+            h.record(values[i]);
+            total += values[i];
+        } // FOR
+        Arrays.sort(values);
+
+        assertEquals(NUM_VALUES, h.getCount());
+        assertEquals(values[0], h.getMinValue());
+        assertEquals(values[values.length-1], h.getMaxValue());
+        assertEquals(total / (double)NUM_VALUES, h.getMeanValue(), 0.001);
+        for (double p : LatencyHistogram.PERCENTILES) {
+            long expected = values[(int)Math.ceil(p / 100d * NUM_VALUES) - 1];
+            long actual = h.getValueAtPercentile(p);
+            assertTrue(String.format("p%.1f: %d < %d", p, actual, expected), actual >= expected);
+            assertTrue(String.format("p%.1f: %d > %d", p, actual, expected), actual <= expected * (1 + PRECISION) + 1);
+        } // FOR
+        assertEquals(h.getMaxValue(), h.getValueAtPercentile(100d));
+
+        h.reset();
+        assertTrue(h.isEmpty());
+        assertEquals(0, h.getMaxValue());
+    }
+
+    /**
+     * testMerge
+     */
+    public void testMerge() throws Exception {
+        LatencyHistogram h0 = new LatencyHistogram("h0");
+        LatencyHistogram h1 = new LatencyHistogram("h1");
+        LatencyHistogram expected = new LatencyHistogram("expected");
+        for (int i = 0; i < NUM_VALUES; i++) {
+            long val = rand.nextInt(1000000);
+            (i % 2 == 0 ? h0 : h1).record(val);
+            expected.record(val);
+        } // FOR
+
+        LatencyHistogram merged = new LatencyHistogram(h0).merge(h1);
+        assertEquals(expected.getCount(), merged.getCount());
+        assertEquals(expected.getMinValue(), merged.getMinValue());
+        assertEquals(expected.getMaxValue(), merged.getMaxValue());
+        for (double p : LatencyHistogram.PERCENTILES) {
+            assertEquals(expected.getValueAtPercentile(p), merged.getValueAtPercentile(p));
+        } // FOR
+        // The original shouldn't have been changed
+        assertEquals(NUM_VALUES / 2, h0.getCount());
+    }
+
+    /**
+     * testConcurrentRecord
+     */
+    public void testConcurrentRecord() throws Exception {
+        final LatencyHistogram h = new LatencyHistogram("test");
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < NUM_THREADS; i++) {
+            final long offset = i * 1000l;
+            threads.add(new Thread() {
+                public void run() {
+                    for (int j = 0; j < NUM_VALUES; j++) {
+                        h.record(offset + (j % 1000));
+                    } // FOR
+                }
+            });
+        } // FOR
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+
+        assertEquals(NUM_THREADS * NUM_VALUES, h.getCount());
+        assertEquals(0, h.getMinValue());
+        assertEquals(NUM_THREADS * 1000l - 1, h.getMaxValue());
+    }
+}
@@ -0,0 +1,140 @@
+package edu.brown.workload;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.voltdb.benchmark.tpcc.procedures.neworder;
+import org.voltdb.benchmark.tpcc.procedures.paymentByCustomerId;
+
+import edu.brown.BaseTestCase;
+import edu.brown.utils.FileUtil;
+import edu.brown.utils.ProjectType;
+import edu.brown.workload.filters.ProcedureLimitFilter;
+import edu.brown.workload.filters.ProcedureNameFilter;
+
+public class TestBinaryWorkload extends BaseTestCase {
+
+    protected static final int WORKLOAD_XACT_LIMIT = 1000;
+
+    // Reading the workload takes a long time, so we only want to do it once
+    protected static Workload workload;
+    protected static File binary_file;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp(ProjectType.TPCC);
+
+        if (workload == null) {
+            File workload_file = this.getWorkloadFile(ProjectType.TPCC);
+            workload = new Workload(catalog);
+            workload.load(workload_file.getAbsolutePath(), catalog_db, new ProcedureLimitFilter(WORKLOAD_XACT_LIMIT));
+            assertEquals(WORKLOAD_XACT_LIMIT, workload.getTransactionCount());
+
+            binary_file = FileUtil.getTempFile("trace", true);
+            BinaryWorkloadWriter writer = new BinaryWorkloadWriter(binary_file);
+            for (TransactionTrace txn_trace : workload) {
+                writer.write(txn_trace);
+            } // FOR
+            writer.close();
+            assertEquals(WORKLOAD_XACT_LIMIT, writer.getTransactionCount());
+        }
+        assertTrue(BinaryWorkloadReader.isBinaryWorkload(binary_file));
+    }
+
+    /**
+     * testRoundTrip
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        BinaryWorkloadReader reader = new BinaryWorkloadReader(binary_file);
+        assertEquals(workload.getTransactionCount(), reader.getTransactionCount());
+
+        Iterator<TransactionTrace> it = workload.iterator();
+        int idx = 0;
+        for (TransactionTrace txn_trace : reader) {
+            assertTrue(it.hasNext());
+            TransactionTrace expected = it.next();
+            assertEquals(expected.getTransactionId(), txn_trace.getTransactionId());
+            assertEquals(expected.getCatalogItemName(), reader.getProcedureName(idx));
+            assertEquals(expected.getStartTimestamp().longValue(), reader.getStartTimestamp(idx));
+            assertEquals(expected.getQueryCount(), txn_trace.getQueryCount());
+            assertEquals(expected.toJSONString(catalog_db), txn_trace.toJSONString(catalog_db));
+            idx++;
+        } // FOR
+        assertFalse(it.hasNext());
+        reader.close();
+    }
+
+    /**
+     * testIndexIterator
+     */
+    @Test
+    public void testIndexIterator() throws Exception {
+        Map<String, Integer> expected = new HashMap<String, Integer>();
+        for (TransactionTrace txn_trace : workload) {
+            String proc_name = txn_trace.getCatalogItemName();
+            Integer cnt = expected.get(proc_name);
+            expected.put(proc_name, (cnt == null ? 1 : cnt + 1));
+        } // FOR
+
+        Set<String> proc_names = new HashSet<String>();
+        proc_names.add(neworder.class.getSimpleName());
+        proc_names.add(paymentByCustomerId.class.getSimpleName());
+
+        BinaryWorkloadReader reader = new BinaryWorkloadReader(binary_file);
+        int count = 0;
+        Iterator<TransactionTrace> it = reader.iterator(proc_names, null, null);
+        while (it.hasNext()) {
+            TransactionTrace txn_trace = it.next();
+            assertTrue(txn_trace.toString(), proc_names.contains(txn_trace.getCatalogItemName()));
+            count++;
+        } // WHILE
+        int total = 0;
+        for (String proc_name : proc_names) {
+            if (expected.containsKey(proc_name)) total += expected.get(proc_name);
+        } // FOR
+        assertEquals(total, count);
+        reader.close();
+    }
+
+    /**
+     * testLoad
+     */
+    @Test
+    public void testLoad() throws Exception {
+        Workload binary = new Workload(catalog);
+        binary.load(binary_file.getAbsolutePath(), catalog_db);
+        assertEquals(workload.getTransactionCount(), binary.getTransactionCount());
+        assertEquals(workload.getQueryCount(), binary.getQueryCount());
+        for (TransactionTrace expected : workload) {
+            TransactionTrace txn_trace = binary.getTransaction(expected.getTransactionId());
+            assertNotNull(expected.toString(), txn_trace);
+            assertEquals(expected.toJSONString(catalog_db), txn_trace.toJSONString(catalog_db));
+        } // FOR
+    }
+
+    /**
+     * testLoadFilter
+     */
+    @Test
+    public void testLoadFilter() throws Exception {
+        String proc_name = neworder.class.getSimpleName();
+        int expected = 0;
+        for (TransactionTrace txn_trace : workload) {
+            if (txn_trace.getCatalogItemName().equals(proc_name)) expected++;
+        } // FOR
+        assert(expected > 0);
+
+        Workload binary = new Workload(catalog);
+        binary.load(binary_file.getAbsolutePath(), catalog_db, new ProcedureNameFilter(false).include(proc_name));
+        assertEquals(expected, binary.getTransactionCount());
+        for (TransactionTrace txn_trace : binary) {
+            assertEquals(proc_name, txn_trace.getCatalogItemName());
+        } // FOR
+    }
+}
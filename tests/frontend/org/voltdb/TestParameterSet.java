@@ -106,6 +106,46 @@ public class TestParameterSet extends TestCase {
         assertEquals(bin[0], 'f'); assertEquals(bin[1], 'o'); assertEquals(bin[2], 'o');
     }
 
+    public void testReadParametersAtOffsets() throws IOException {
+        Object orig[] = new Object[]{
+            "foo",
+            new long[]{ 1, 2, 3 },
+            123l,
+            null,
+            new String[]{ "a", null, "ccc" },
+            new TimestampType(1000l),
+            new byte[]{ 'x', 'y' },
+            new BigDecimal("12.345600000000"),
+            (short)7,
+            true,
+            "bar",
+        };
+        params.setParameters(orig);
+        ByteBuffer buf = ByteBuffer.wrap(FastSerializer.serialize(params));
+
+        // Only pull out a few of the parameters and make sure that we skipped
+        // over everything else correctly
+        int offsets[] = { 2, 8, 10 };
+        Object out[] = new Object[orig.length];
+        buf.rewind();
+        assertEquals(orig.length, ParameterSet.readParametersAtOffsets(new FastDeserializer(buf), offsets, out));
+        for (int i = 0; i < orig.length; i++) {
+            if (i == 2 || i == 8 || i == 10) {
+                assertEquals(orig[i], out[i]);
+            } else {
+                assertNull(out[i]);
+            }
+        } // FOR
+        
+        // Duplicate offsets are allowed
+        offsets = new int[]{ 0, 0, 9 };
+        out = new Object[orig.length];
+        buf.rewind();
+        ParameterSet.readParametersAtOffsets(new FastDeserializer(buf), offsets, out);
+        assertEquals("foo", out[0]);
+        assertEquals(true, out[9]);
+    }
+
     private boolean arrayLengthTester(Object[] objs)
     {
         params = new ParameterSet();
@@ -24,6 +24,7 @@
 package org.voltdb;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import junit.framework.TestCase;
@@ -32,6 +33,7 @@ import org.voltdb.VoltTable.ColumnInfo;
 import org.voltdb.messaging.FastSerializableTestUtil;
 import org.voltdb.types.TimestampType;
 import org.voltdb.types.VoltDecimalHelper;
+import org.voltdb.utils.DBBPool.BBContainer;
 
 public class TestVoltTable extends TestCase {
     private VoltTable LONG_FIVE;
@@ -641,4 +643,38 @@ public class TestVoltTable extends TestCase {
         }
         assertEquals(rowcounter, content.length);
     }
+
+    public void testPooledBuffer() {
+        final int discarded[] = { 0 };
+        ByteBuffer src = LONG_FIVE.getTableDataReference();
+        ByteBuffer direct = ByteBuffer.allocateDirect(src.limit() * 2);
+        direct.put(src);
+        direct.flip();
+        BBContainer container = new BBContainer(direct, 0) {
+            @Override
+            public void discard() {
+                discarded[0]++;
+            }
+        };
+
+        VoltTable pooled = PrivateVoltTableFactory.createVoltTableFromContainer(container, true);
+        assertTrue(pooled.isPooled());
+        assertEquals(LONG_FIVE, pooled);
+        assertEquals(LONG_FIVE, FastSerializableTestUtil.roundTrip(pooled));
+
+        // The buffer only goes back to the pool once every reference is released
+        assertSame(pooled, pooled.retain());
+        pooled.release();
+        assertEquals(0, discarded[0]);
+        assertTrue(pooled.isPooled());
+        pooled.release();
+        assertEquals(1, discarded[0]);
+        assertFalse(pooled.isPooled());
+
+        // Releasing a table that is not pooled is a no-op
+        assertFalse(LONG_FIVE.isPooled());
+        LONG_FIVE.retain();
+        LONG_FIVE.release();
+        assertEquals(5L, LONG_FIVE.asScalarLong());
+    }
 }
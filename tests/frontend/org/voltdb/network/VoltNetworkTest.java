@@ -24,11 +24,16 @@
 package org.voltdb.network;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.channels.spi.SelectorProvider;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.HashSet;
 import junit.framework.*;
@@ -289,4 +294,46 @@ public class VoltNetworkTest extends TestCase {
         vn.shutdown();
         assertEquals(SelectionKey.OP_ACCEPT, vp.readyOps());
     }
+
+    public void testSelectorBalancing() throws Exception {
+        final int numSelectors = 3;
+        final int numConnections = numSelectors * 4;
+        VoltNetwork vn = new VoltNetwork(true, true, null, numSelectors);
+        vn.start();
+
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.socket().bind(new InetSocketAddress("localhost", 0));
+        List<SocketChannel> clients = new ArrayList<SocketChannel>();
+        List<Connection> connections = new ArrayList<Connection>();
+        for (int i = 0; i < numConnections; i++) {
+            clients.add(SocketChannel.open(server.socket().getLocalSocketAddress()));
+            connections.add(vn.registerChannel(server.accept(), new MockInputHandler()));
+        }
+
+        // New connections go to the selector with the fewest connections
+        VoltNetwork.SelectorThread selectors[] = vn.getSelectorThreads();
+        assertEquals(numSelectors, selectors.length);
+        for (VoltNetwork.SelectorThread st : selectors) {
+            assertEquals(numConnections / numSelectors, st.getConnectionCount());
+        }
+
+        // Removing connections from one selector means that it gets the next one
+        VoltPort port = (VoltPort)connections.get(0);
+        VoltNetwork.SelectorThread st = port.m_selectorThread;
+        vn.unregisterChannel(port);
+        assertEquals(numConnections / numSelectors - 1, st.getConnectionCount());
+        clients.add(SocketChannel.open(server.socket().getLocalSocketAddress()));
+        port = (VoltPort)vn.registerChannel(server.accept(), new MockInputHandler());
+        assertSame(st, port.m_selectorThread);
+
+        vn.shutdown();
+        for (VoltNetwork.SelectorThread s : selectors) {
+            assertEquals(0, s.getConnectionCount());
+            assertTrue(s.getSelectCount() > 0);
+        }
+        for (SocketChannel c : clients) {
+            c.close();
+        }
+        server.close();
+    }
 }
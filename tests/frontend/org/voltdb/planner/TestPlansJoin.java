@@ -0,0 +1,90 @@
+package org.voltdb.planner;
+
+import java.util.Collection;
+
+import junit.framework.TestCase;
+
+import org.voltdb.catalog.CatalogMap;
+import org.voltdb.catalog.Cluster;
+import org.voltdb.catalog.Table;
+import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
+import org.voltdb.plannodes.NestLoopIndexPlanNode;
+import org.voltdb.plannodes.NestLoopPlanNode;
+
+import edu.brown.plannodes.PlanNodeUtil;
+
+public class TestPlansJoin extends TestCase {
+
+    private PlannerTestAideDeCamp aide;
+
+    private AbstractPlanNode compile(String sql, int paramCount) {
+        AbstractPlanNode pn = null;
+        try {
+            pn =  aide.compile(sql, paramCount);
+        }
+        catch (Exception ex) {
+            ex.printStackTrace();
+            fail();
+        }
+        assertNotNull(pn);
+        return pn;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        aide = new PlannerTestAideDeCamp(TestPlansJoin.class.getResource("testplans-join-ddl.sql"), "testplansjoin");
+
+        // Set all tables to replicated so that the joins are executed at a single partition
+        Cluster cluster = aide.getCatalog().getClusters().get("cluster");
+        CatalogMap<Table> tmap = cluster.getDatabases().get("database").getTables();
+        for (Table t : tmap) {
+            t.setIsreplicated(true);
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        aide.tearDown();
+    }
+
+    /**
+     * testEquiJoinWithoutIndex
+     */
+    public void testEquiJoinWithoutIndex() {
+        AbstractPlanNode pn = compile("SELECT R1_NAME, R2_NAME FROM R1, R2 WHERE R1_A = R2_A", 0);
+        Collection<HashJoinPlanNode> nodes = PlanNodeUtil.getPlanNodes(pn, HashJoinPlanNode.class);
+        assertEquals(pn.toJSONString(), 1, nodes.size());
+        HashJoinPlanNode join = nodes.iterator().next();
+        assertNotNull(join.getPredicate());
+        assertEquals(2, join.getChildPlanNodeCount());
+    }
+
+    /**
+     * testEquiJoinWithIndex
+     */
+    public void testEquiJoinWithIndex() {
+        AbstractPlanNode pn = compile("SELECT R1_NAME, R2_NAME FROM R1, R2 WHERE R1_A = R2_ID", 0);
+        assertEquals(pn.toJSONString(), 0, PlanNodeUtil.getPlanNodes(pn, HashJoinPlanNode.class).size());
+        assertEquals(pn.toJSONString(), 1, PlanNodeUtil.getPlanNodes(pn, NestLoopIndexPlanNode.class).size());
+    }
+
+    /**
+     * testNonEquiJoin
+     */
+    public void testNonEquiJoin() {
+        AbstractPlanNode pn = compile("SELECT R1_NAME, R2_NAME FROM R1, R2 WHERE R1_A < R2_A", 0);
+        assertEquals(pn.toJSONString(), 0, PlanNodeUtil.getPlanNodes(pn, HashJoinPlanNode.class).size());
+        assertEquals(pn.toJSONString(), 1, PlanNodeUtil.getPlanNodes(pn, NestLoopPlanNode.class).size());
+    }
+
+    /**
+     * testMismatchedTypes
+     */
+    public void testMismatchedTypes() {
+        // We can't hash an INTEGER and a BIGINT the same way
+        AbstractPlanNode pn = compile("SELECT R1_NAME, R2_NAME FROM R1, R2 WHERE R1_B = R2_B", 0);
+        assertEquals(pn.toJSONString(), 0, PlanNodeUtil.getPlanNodes(pn, HashJoinPlanNode.class).size());
+    }
+}
@@ -0,0 +1,15 @@
+CREATE TABLE R1 (
+	R1_ID INTEGER NOT NULL,
+	R1_A INTEGER NOT NULL,
+	R1_B BIGINT NOT NULL,
+	R1_NAME VARCHAR(10) NOT NULL,
+	PRIMARY KEY (R1_ID)
+);
+
+CREATE TABLE R2 (
+	R2_ID INTEGER NOT NULL,
+	R2_A INTEGER NOT NULL,
+	R2_B INTEGER NOT NULL,
+	R2_NAME VARCHAR(10) NOT NULL,
+	PRIMARY KEY (R2_ID)
+);
@@ -32,6 +32,7 @@ import org.voltdb.VoltTable;
 import org.voltdb.client.Client;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ProcCallException;
+import org.voltdb.client.ProcedureCallback;
 import org.voltdb.compiler.VoltProjectBuilder;
 import org.voltdb.exceptions.ConstraintFailureException;
 import org.voltdb.regressionsuites.failureprocs.CleanupFail;
@@ -45,6 +46,8 @@ import org.voltdb.regressionsuites.failureprocs.ViolateUniquenessAndCatchExcepti
 import org.voltdb.regressionsuites.failureprocs.ReturnAppStatus;
 import org.voltdb.regressionsuites.sqlfeatureprocs.WorkWithBigString;
 
+import edu.brown.hstore.Hstoreservice.Status;
+
 public class TestFailuresSuite extends RegressionSuite {
 
     // procedures used by these tests
@@ -151,6 +154,48 @@ public class TestFailuresSuite extends RegressionSuite {
         }
         assertTrue(threwException);
     }
+    /*
+     * Queue up a bunch of single-statement inserts at the same partition so that
+     * they get executed in one EE batch. The txn in the middle of the batch violates
+     * the primary key, so it has to come back with the ConstraintFailureException
+     * from the EE while every other txn still commits.
+     */
+    public void testViolateUniquenessInTransactionBatch() throws Exception {
+        System.out.println("STARTING testViolateUniquenessInTransactionBatch");
+        Client client = getClient();
+        final int num_txns = 10;
+        final int duplicate = num_txns / 2;
+        final ClientResponse responses[] = new ClientResponse[num_txns];
+        for (int i = 0; i < num_txns; i++) {
+            final int idx = i;
+            ProcedureCallback callback = new ProcedureCallback() {
+                @Override
+                public void clientCallback(ClientResponse clientResponse) {
+                    responses[idx] = clientResponse;
+                }
+            };
+            // The duplicate uses the same key as the first txn in the batch
+            long o_id = (i == duplicate ? 0 : i);
+            assertTrue(client.callProcedure(callback, "InsertNewOrder", o_id, 3L, 3L));
+        } // FOR
+        client.drain();
+
+        for (int i = 0; i < num_txns; i++) {
+            ClientResponse cr = responses[i];
+            assertNotNull("Missing response for txn #" + i, cr);
+            if (i != duplicate) {
+                assertEquals(cr.toString(), Status.OK, cr.getStatus());
+                continue;
+            }
+            assertFalse(cr.toString(), cr.getStatus() == Status.OK);
+            assertTrue(cr.getStatusString(), cr.getStatusString().contains("CONSTRAINT VIOLATION"));
+            if (!isHSQL()) {
+                assertNotNull(cr.toString(), cr.getException());
+                assertEquals(ConstraintFailureException.class, cr.getException().getClass());
+            }
+        } // FOR
+    }
+
 // This is failing, so commenting out for now b/c it doesn't use @AdHoc
 //    public void testDivideByZero() throws IOException {
 //        System.out.println("STARTING DivideByZero");
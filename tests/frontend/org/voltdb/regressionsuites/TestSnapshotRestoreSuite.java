@@ -0,0 +1,151 @@
+package org.voltdb.regressionsuites;
+
+import java.io.File;
+import java.util.Random;
+
+import junit.framework.Test;
+
+import org.voltdb.BackendTarget;
+import org.voltdb.VoltTable;
+import org.voltdb.benchmark.tpcc.TPCCProjectBuilder;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.Table;
+import org.voltdb.client.Client;
+import org.voltdb.client.ClientResponse;
+
+import edu.brown.catalog.CatalogUtil;
+import edu.brown.hstore.Hstoreservice.Status;
+import edu.brown.utils.FileUtil;
+
+/**
+ * Save a snapshot of several tables, wipe them out, and then make sure that
+ * @SnapshotRestore brings back every row for all of them at once.
+ */
+public class TestSnapshotRestoreSuite extends RegressionSuite {
+
+    private static final String PREFIX = "snapshotrestore";
+    private static final String TABLES[] = { "NEW_ORDER", "HISTORY", "ORDER_LINE", "ITEM" };
+    private static final int NUM_TUPLES = 500;
+
+    public TestSnapshotRestoreSuite(String name) {
+        super(name);
+    }
+
+    private long getRowCount(Client client, String tableName) throws Exception {
+        ClientResponse cr = client.callProcedure("Count" + tableName);
+        assertEquals(Status.OK, cr.getStatus());
+        VoltTable results[] = cr.getResults();
+        assertEquals(1, results.length);
+        return (results[0].asScalarLong());
+    }
+
+    /**
+     * testRestoreMultipleTables
+     */
+    public void testRestoreMultipleTables() throws Exception {
+        Client client = this.getClient();
+        Database catalog_db = CatalogUtil.getDatabase(this.getCatalog());
+        Random rand = new Random(0);
+
+        long expected[] = new long[TABLES.length];
+        for (int i = 0; i < TABLES.length; i++) {
+            Table catalog_tbl = catalog_db.getTables().getIgnoreCase(TABLES[i]);
+            assertNotNull(TABLES[i], catalog_tbl);
+            if (catalog_tbl.getIsreplicated()) {
+                // Replicated tables have unique primary keys, so we have to load them ourselves
+                VoltTable vt = CatalogUtil.getVoltTable(catalog_tbl);
+                for (int id = 0; id < NUM_TUPLES; id++) {
+                    vt.addRow(id, id, "name_" + id, (double)id, "data_" + id);
+                } // FOR
+                ClientResponse cr = client.callProcedure("@LoadMultipartitionTable", catalog_tbl.getName(), vt);
+                assertEquals(Status.OK, cr.getStatus());
+            } else if (catalog_tbl.getName().equalsIgnoreCase("HISTORY")) {
+                RegressionSuiteUtil.loadRandomData(client, catalog_tbl, rand, NUM_TUPLES);
+            } else {
+                VoltTable vt = CatalogUtil.getVoltTable(catalog_tbl);
+                int num_cols = catalog_tbl.getColumns().size();
+                for (int id = 0; id < NUM_TUPLES; id++) {
+                    Object row[] = new Object[num_cols];
+                    for (int col = 0; col < num_cols; col++) {
+                        row[col] = null;
+                    } // FOR
+                    // Spread the rows across all of the warehouses so that
+                    // every partition has something to restore
+                    row[0] = id;
+                    row[1] = (byte)(id % 10);
+                    row[2] = (short)(id % 8);
+                    if (num_cols > 3) row[3] = 1;
+                    vt.addRow(row);
+                } // FOR
+                ClientResponse cr = client.callProcedure("@LoadMultipartitionTable", catalog_tbl.getName(), vt);
+                assertEquals(Status.OK, cr.getStatus());
+            }
+            expected[i] = this.getRowCount(client, TABLES[i]);
+            assertEquals(TABLES[i], NUM_TUPLES, expected[i]);
+        } // FOR
+
+        File snapshotDir = new File(FileUtil.getTempDirectory(), PREFIX + "-" + this.getServerConfig().getName());
+        FileUtil.makeDirIfNotExists(snapshotDir.getAbsolutePath());
+        String nonce = PREFIX + System.currentTimeMillis();
+        ClientResponse cr = client.callProcedure("@SnapshotSave", snapshotDir.getAbsolutePath(), nonce, 1l);
+        assertEquals(cr.toString(), Status.OK, cr.getStatus());
+
+        // Wipe out everything so that the restore has to load all of the tables
+        for (int i = 0; i < TABLES.length; i++) {
+            cr = client.callProcedure("Delete" + TABLES[i]);
+            assertEquals(Status.OK, cr.getStatus());
+            assertEquals(TABLES[i], 0, this.getRowCount(client, TABLES[i]));
+        } // FOR
+
+        cr = client.callProcedure("@SnapshotRestore", snapshotDir.getAbsolutePath(), nonce, 0l);
+        assertEquals(cr.toString(), Status.OK, cr.getStatus());
+        for (VoltTable vt : cr.getResults()) {
+            while (vt.advanceRow()) {
+                assertEquals(vt.toString(), "SUCCESS", vt.getString("RESULT"));
+            } // WHILE
+        } // FOR
+
+        for (int i = 0; i < TABLES.length; i++) {
+            assertEquals(TABLES[i], expected[i], this.getRowCount(client, TABLES[i]));
+        } // FOR
+    }
+
+    public static Test suite() {
+        VoltServerConfig config = null;
+        MultiConfigSuiteBuilder builder = new MultiConfigSuiteBuilder(TestSnapshotRestoreSuite.class);
+
+        TPCCProjectBuilder project = new TPCCProjectBuilder();
+        project.addDefaultSchema();
+        project.addDefaultPartitioning();
+        for (String tableName : TABLES) {
+            project.addStmtProcedure("Count" + tableName, "SELECT COUNT(*) FROM " + tableName);
+            project.addStmtProcedure("Delete" + tableName, "DELETE FROM " + tableName);
+        } // FOR
+
+        /////////////////////////////////////////////////////////////
+        // CONFIG #1: 2 Local Partitions restoring in parallel
+        /////////////////////////////////////////////////////////////
+        config = new LocalSingleProcessServer(PREFIX + "-2part-parallel.jar", 2, BackendTarget.NATIVE_EE_JNI);
+        config.setConfParameter("site.snapshot_restore_parallel", true);
+        config.compile(project);
+        builder.addServerConfig(config);
+
+        /////////////////////////////////////////////////////////////
+        // CONFIG #2: 2 Local Partitions restoring through the distributor
+        /////////////////////////////////////////////////////////////
+        config = new LocalSingleProcessServer(PREFIX + "-2part-serial.jar", 2, BackendTarget.NATIVE_EE_JNI);
+        config.setConfParameter("site.snapshot_restore_parallel", false);
+        config.compile(project);
+        builder.addServerConfig(config);
+
+        /////////////////////////////////////////////////////////////
+        // CONFIG #3: cluster of 2 nodes running 2 partitions each
+        /////////////////////////////////////////////////////////////
+        config = new LocalCluster(PREFIX + "-cluster.jar", 2, 2, 1, BackendTarget.NATIVE_EE_JNI);
+        config.setConfParameter("site.snapshot_restore_parallel", true);
+        config.compile(project);
+        builder.addServerConfig(config);
+
+        return builder;
+    }
+}